@@ -22,6 +22,7 @@ import java.awt.Frame;
 import java.util.*;
 import java.util.logging.*;
 import java.sql.Connection;
+import java.sql.SQLException;
 
 
 /**
@@ -498,8 +499,7 @@ class LoggedOrbitSourceView extends OrbitSourceView {
 	protected void attemptDefaultConnection() {
 		final ConnectionDictionary dictionary = PVLogger.newBrowsingConnectionDictionary();
 		if ( dictionary != null && dictionary.hasRequiredInfo() ) {
-			final DatabaseAdaptor adaptor = dictionary.getDatabaseAdaptor();
-			if ( adaptor != null && adaptor.getConnection( dictionary ) != null ) {
+			if ( canConnect( dictionary ) ) {
 				setupPVLogger( dictionary );
 			}
 		}
@@ -578,14 +578,28 @@ class LoggedOrbitSourceView extends OrbitSourceView {
 	}
 	
 	
+	/** Determine whether the dictionary's account can be connected, borrowing the test connection from the shared pool so reconnecting reuses it */
+	protected boolean canConnect( final ConnectionDictionary dictionary ) {
+		final DatabaseAdaptor adaptor = dictionary.getDatabaseAdaptor();
+		if ( adaptor == null )  return false;
+
+		try ( final Connection connection = adaptor.getPooledConnection( dictionary ) ) {
+			return connection != null;
+		}
+		catch( SQLException exception ) {
+			Logger.getLogger( "global" ).log( Level.WARNING, "Exception returning the connection to the pool.", exception );
+			return true;
+		}
+	}
+
+
 	/** Display a connection dialog to the user and connect to the database using the resulting connection dictionary. */
 	protected void requestUserConnection() {
 		final ConnectionDictionary defaultDictionary = PVLogger.newBrowsingConnectionDictionary();
 		final ConnectionDialog connectionDialog = ConnectionDialog.getInstance( _owner, defaultDictionary );
 		final ConnectionDictionary dictionary = connectionDialog.getConnectionDictionary();
 		if ( dictionary != null && dictionary.hasRequiredInfo() ) {
-			final DatabaseAdaptor adaptor = dictionary.getDatabaseAdaptor();
-			if ( adaptor != null && adaptor.getConnection( dictionary ) != null ) {
+			if ( canConnect( dictionary ) ) {
 				setupPVLogger( dictionary );
 			}
 		}
@@ -27,6 +27,9 @@ class ChannelHistogram implements DataListener {
 	/** minimum buffer size */
 	final static public int MINIMUM_BUFFER_SIZE;
 	
+	/** fractions of the samples at or below the quantiles reported with each histogram update */
+	final static public double[] QUANTILE_FRACTIONS;
+	
 	/** message center for dispatching events to registered listeners */
 	final private MessageCenter MESSAGE_CENTER;
 	
@@ -39,8 +42,8 @@ class ChannelHistogram implements DataListener {
 	/** connection event handler */
 	final private ConnectionHandler CONNECTION_HANDLER;
 	
-	/** buffer of monitored values */
-	final private LinkedList<Double> VALUE_BUFFER;
+	/** sliding window of monitored values and their incrementally maintained histogram */
+	final private StreamingHistogram VALUE_HISTOGRAM;
 	
 	/** statistics for the monitored samples */
 	final private MutableUnivariateStatistics VALUE_STATS;
@@ -51,9 +54,6 @@ class ChannelHistogram implements DataListener {
 	/** lock for synchronizing channel changes */
 	final private Object CHANNEL_LOCK;
 	
-	/** lower and upper limits of the values to histogram */
-	final private double[] VALUE_RANGE;
-	
 	/** manually specified lower and upper limits of the values to histogram if auto limits is disabled */
 	private double[] _manualValueRange;
 	
@@ -75,6 +75,9 @@ class ChannelHistogram implements DataListener {
 	/** indicates whether the lower and upper limits are automatically calculated */
 	private boolean _autoLimits;
 	
+	/** indicates whether quantiles are estimated with each histogram update */
+	private boolean _quantilesEnabled;
+	
 	/** accelerator used to get node channel references */
 	private Accelerator _accelerator;
 	
@@ -82,6 +85,7 @@ class ChannelHistogram implements DataListener {
 	// static initializer
 	static {
 		MINIMUM_BUFFER_SIZE = 5;
+		QUANTILE_FRACTIONS = new double[] { 0.05, 0.5, 0.95 };
 	}
 	
 	
@@ -94,13 +98,14 @@ class ChannelHistogram implements DataListener {
 		HISTOGRAM_LOCK = new Object();
 		
 		VALUE_STATS = new MutableUnivariateStatistics();
-		VALUE_BUFFER = new LinkedList<Double>();
-		VALUE_RANGE = new double[] { -1.0, 1.0 };
 		_manualValueRange = new double[] { -1.0, 1.0 };
 		
 		_bufferSize = 1000;
 		_binCount = 24;
 		_autoLimits = true;
+		_quantilesEnabled = true;
+		
+		VALUE_HISTOGRAM = new StreamingHistogram( _bufferSize );
 		
 		_counts = new int[_binCount];
 		
@@ -129,6 +134,10 @@ class ChannelHistogram implements DataListener {
 			setAutoLimits( adaptor.booleanValue( "autoLimits" ) );
 		}
 		
+		if ( adaptor.hasAttribute( "quantilesEnabled" ) ) {
+			setQuantilesEnabled( adaptor.booleanValue( "quantilesEnabled" ) );
+		}
+		
 		if ( adaptor.hasAttribute( "manualLowerLimit" ) && adaptor.hasAttribute( "manualUpperLimit" ) ) {
 			final double lowerLimit = adaptor.doubleValue( "manualLowerLimit" );
 			final double upperLimit = adaptor.doubleValue( "manualUpperLimit" );
@@ -146,6 +155,7 @@ class ChannelHistogram implements DataListener {
         adaptor.setValue( "bufferSize", _bufferSize );
         adaptor.setValue( "binCount", _binCount );
 		adaptor.setValue( "autoLimits", _autoLimits );
+		adaptor.setValue( "quantilesEnabled", _quantilesEnabled );
 		adaptor.setValue( "manualLowerLimit", _manualValueRange[0] );
 		adaptor.setValue( "manualUpperLimit", _manualValueRange[1] );
 		
@@ -173,10 +183,36 @@ class ChannelHistogram implements DataListener {
 	}
 	
 	
+	/** set whether to estimate quantiles with each histogram update */
+	public void setQuantilesEnabled( final boolean enable ) {
+		_quantilesEnabled = enable;
+	}
+	
+	
+	/** determine whether quantiles are estimated with each histogram update */
+	public boolean getQuantilesEnabled() {
+		return _quantilesEnabled;
+	}
+	
+	
 	/** get the value range to use for the histogram */
 	private double[] getHistogramRange() {
-		return _autoLimits ? new double[] { VALUE_RANGE[0], VALUE_RANGE[1] } : new double[] { _manualValueRange[0], _manualValueRange[1] };
-
+		if ( _autoLimits ) {
+			synchronized ( HISTOGRAM_LOCK ) {
+				switch ( VALUE_HISTOGRAM.getSize() ) {
+					case 0:
+						return new double[] { -1.0, 1.0 };
+					case 1:
+						final double value = VALUE_HISTOGRAM.getMinimum();
+						return new double[] { value - 1.0, value + 1.0 };
+					default:
+						return new double[] { VALUE_HISTOGRAM.getMinimum(), VALUE_HISTOGRAM.getMaximum() };
+				}
+			}
+		}
+		else {
+			return new double[] { _manualValueRange[0], _manualValueRange[1] };
+		}
 	}
 	
 	
@@ -223,7 +259,7 @@ class ChannelHistogram implements DataListener {
 	/** clear the buffer and derived data */
 	public void clear() {
 		synchronized ( HISTOGRAM_LOCK ) {
-			VALUE_BUFFER.clear();
+			VALUE_HISTOGRAM.clear();
 			VALUE_STATS.clear();
 			clearHistogram();
 		}
@@ -248,21 +284,10 @@ class ChannelHistogram implements DataListener {
 	}
 	
 	
-	/** populate the histogram from the buffer and return the histogram counts */
+	/** populate the histogram from the streaming histogram of the buffer and return the histogram counts */
 	private int[] populateHistogram( final double[] range ) {
 		synchronized ( HISTOGRAM_LOCK ) {
-			clearHistogram();
-			final double lowerLimit = range[0];
-			final double span = range[1] - lowerLimit;
-			final double scale = _binCount / span;
-			if ( span > 0 ) {
-				for ( final double value : VALUE_BUFFER ) {
-					final int bin = (int)Math.floor( ( value - lowerLimit ) * scale );
-					if ( bin < _counts.length ) {
-						++_counts[bin];
-					}
-				}
-			}
+			VALUE_HISTOGRAM.getCounts( range[0], range[1], _counts );
 			final int[] counts = new int[_counts.length];
 			System.arraycopy( _counts, 0, counts, 0, counts.length );
 			return counts;
@@ -278,7 +303,15 @@ class ChannelHistogram implements DataListener {
 	
 	/** set the buffer size */
 	public void setBufferSize( final int bufferSize ) {
-		_bufferSize = bufferSize > MINIMUM_BUFFER_SIZE ? bufferSize : MINIMUM_BUFFER_SIZE;
+		synchronized ( HISTOGRAM_LOCK ) {
+			_bufferSize = bufferSize > MINIMUM_BUFFER_SIZE ? bufferSize : MINIMUM_BUFFER_SIZE;
+			
+			// drop the oldest samples which no longer fit from the statistics
+			for ( int index = 0 ; index < VALUE_HISTOGRAM.getSize() - _bufferSize ; index++ ) {
+				VALUE_STATS.removeSample( VALUE_HISTOGRAM.getSample( index ) );
+			}
+			VALUE_HISTOGRAM.setCapacity( _bufferSize );
+		}
 	}
 	
 	
@@ -381,34 +414,25 @@ class ChannelHistogram implements DataListener {
 				}
 			}
 			if ( !Double.isNaN( value ) && !Double.isInfinite( value ) ) {
-				final List<Double> buffer = new ArrayList<Double>();
 				UnivariateStatistics stats;
 				int[] counts;
 				double[] range;
-				synchronized ( HISTOGRAM_LOCK ) {		// use the buffer instance to synchronize anything associated with values
-					VALUE_BUFFER.add( value );
-					VALUE_STATS.addSample( value );
-					while ( VALUE_BUFFER.size() > _bufferSize ) {
-						final double oldValue = VALUE_BUFFER.removeFirst();
-						VALUE_STATS.removeSample( oldValue );
-					}
-					final List<Double> orderedList = new ArrayList<Double>( VALUE_BUFFER );
-					Collections.sort( orderedList );
-					final int valueCount = orderedList.size();
-					if ( valueCount > 1 ) {
-						VALUE_RANGE[0] = orderedList.get(0);
-						VALUE_RANGE[1] = orderedList.get( valueCount - 1 );
+				double[] quantiles;
+				synchronized ( HISTOGRAM_LOCK ) {		// use the histogram lock to synchronize anything associated with values
+					// the streaming histogram updates its bins and range incrementally as the sample is added and the oldest evicted
+					final double oldValue = VALUE_HISTOGRAM.addSample( value );
+					if ( Double.isNaN( oldValue ) ) {
+						VALUE_STATS.addSample( value );
 					}
-					else if ( valueCount == 1 ) {
-						VALUE_RANGE[0] = orderedList.get(0) - 1.0;
-						VALUE_RANGE[1] = VALUE_RANGE[1] + 1.0;
+					else {
+						VALUE_STATS.replaceSample( oldValue, value );
 					}
-					buffer.addAll( VALUE_BUFFER );
 					stats = new UnivariateStatistics( VALUE_STATS );
 					range = getHistogramRange();
-					counts = populateHistogram( range );	// for now just rebuild the entire histogram; need to modify this to just update for changes
+					counts = populateHistogram( range );
+					quantiles = _quantilesEnabled ? VALUE_HISTOGRAM.getQuantiles( QUANTILE_FRACTIONS ) : null;
 				}
-				EVENT_PROXY.histogramUpdated( ChannelHistogram.this, range, counts, buffer, stats );
+				EVENT_PROXY.histogramUpdated( ChannelHistogram.this, range, counts, quantiles, stats );
 			}
 		}
 	}
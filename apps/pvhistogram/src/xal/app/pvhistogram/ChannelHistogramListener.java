@@ -10,14 +10,12 @@ package xal.app.pvhistogram;
 
 import xal.tools.statistics.UnivariateStatistics;
 
-import java.util.List;
-
 
 /** interface for channel histogram messages */
 public interface ChannelHistogramListener {
 	/** event indicating that the model's channel source has changed */
 	public void channelSourceChanged( final ChannelHistogram model, final ChannelSource channelSource );
 	
-	/** event indicating that the model's histogram has changed */
-	public void histogramUpdated( final ChannelHistogram model, final double[] range, final int[] counts, final List<Double> values, final UnivariateStatistics statistics );
+	/** event indicating that the model's histogram has changed where the quantiles correspond to the model's quantile fractions or are null if disabled */
+	public void histogramUpdated( final ChannelHistogram model, final double[] range, final int[] counts, final double[] quantiles, final UnivariateStatistics statistics );
 }
@@ -97,7 +97,7 @@ public class HistogramDocument extends AcceleratorDocument implements DataListen
    /** configure the main window */
    private void configureWindow( final WindowReference windowReference ) {
 	   final JSpinner bufferSizeSpinner = (JSpinner)windowReference.getView( "BufferSizeSpinner" );
-	   bufferSizeSpinner.setModel( new SpinnerNumberModel( MODEL.getBufferSize(), 2, 10000, 1 ) );
+	   bufferSizeSpinner.setModel( new SpinnerNumberModel( MODEL.getBufferSize(), 2, 1000000, 1 ) );
 	   bufferSizeSpinner.addChangeListener( newBufferSizeHandler() );
 	   
 	   final JButton clearButton = (JButton)windowReference.getView( "ClearButton" );
@@ -369,7 +369,7 @@ public class HistogramDocument extends AcceleratorDocument implements DataListen
 	
 	
 	/** event indicating that the model's histogram has changed */
-	public void histogramUpdated( final ChannelHistogram model, final double[] range, final int[] counts, final List<Double> values, final UnivariateStatistics statistics ) {
+	public void histogramUpdated( final ChannelHistogram model, final double[] range, final int[] counts, final double[] quantiles, final UnivariateStatistics statistics ) {
 		final WindowReference windowReference = WINDOW_REFERENCE;
 		
 		final JTextField meanField = (JTextField)windowReference.getView( "MeanField" );
@@ -378,6 +378,13 @@ public class HistogramDocument extends AcceleratorDocument implements DataListen
 		meanField.setText( population > 0 ? STATS_FORMAT.format( statistics.mean() ) : "" );
 		sigmaField.setText( population > 1 ? STATS_FORMAT.format( statistics.sampleStandardDeviation() ) : "" );
 		
+		// quantiles correspond to the 5%, 50% and 95% fractions of the model
+		final JTextField medianField = (JTextField)windowReference.getView( "MedianField" );
+		final JTextField percentileRangeField = (JTextField)windowReference.getView( "PercentileRangeField" );
+		final boolean hasQuantiles = quantiles != null && population > 0;
+		medianField.setText( hasQuantiles ? STATS_FORMAT.format( quantiles[1] ) : "" );
+		percentileRangeField.setText( hasQuantiles ? STATS_FORMAT.format( quantiles[0] ) + " to " + STATS_FORMAT.format( quantiles[2] ) : "" );
+		
 		HISTOGRAM_DATA.clear();
 		
 		if ( counts.length > 0 ) {
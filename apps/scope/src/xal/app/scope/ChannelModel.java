@@ -798,13 +798,17 @@ public class ChannelModel implements TraceSource, DataListener, TimeModelListene
     
     /**
      * Get the trace for the specified record.  Process the raw record to account
-     * for the signal scale and signal offset.
+     * for the signal scale and signal offset.  The raw array is returned without 
+     * copying it when the scale and offset leave it unchanged.
      * @param correlation The correlation from which to get the channel's record and generate the trace.
      * @return the waveform trace
      */
     final public double[] getTrace( final Correlation<ChannelTimeRecord> correlation ) {
         final ChannelRecord record = correlation.getRecord( ID );        
-        return record == null ? null : ArrayMath.transform( record.doubleArray(), _signalScale, _signalOffset );
+        if ( record == null )  return null;
+        
+        final double[] rawTrace = record.doubleArray();
+        return _signalScale == 1.0 && _signalOffset == 0.0 ? rawTrace : ArrayMath.transform( rawTrace, _signalScale, _signalOffset );
     }
 	
 	
@@ -59,11 +59,12 @@ public class ChannelTraceEvent implements TraceEvent {
 	
 	/**
 	 * Get the default trace with appropriate scale and offsets set by the user.
+	 * The raw trace is returned without copying it when the scale and offset leave it unchanged.
 	 * @return Teh default trace.
 	 */
 	public double[] getDefaultTrace() {
 		if ( _defaultTrace == null && _rawTrace != null ) {
-			_defaultTrace = ArrayMath.transform(_rawTrace, scale, offset);
+			_defaultTrace = scale == 1.0 && offset == 0.0 ? _rawTrace : ArrayMath.transform(_rawTrace, scale, offset);
 		}
 		return _defaultTrace;
 	}
@@ -210,7 +210,7 @@ class DefaultScreenHandler extends AbstractScreenHandler implements TimeModelLis
         for ( int seriesIndex = 0 ; seriesIndex < numSeries ; seriesIndex++ ) {
             final double[] xValues = dataModel.getXSeries(seriesIndex);
             final double[] yValues = dataModel.getYSeries(seriesIndex);
-            final BasicGraphData graphData = new BasicGraphData();
+            final BasicGraphData graphData = new ColumnarGraphData();
             graphData.addPoint(xValues, yValues);
             graphData.setGraphColor( getSeriesColor(seriesIndex) );
 			graphData.setGraphProperty(chart.getLegendKeyString(), model.getTraceSource(seriesIndex).getLabel());
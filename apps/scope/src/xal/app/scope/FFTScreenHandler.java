@@ -13,10 +13,9 @@ package xal.app.scope;
 import xal.tools.data.*;
 import xal.extension.widgets.plot.*;
 import xal.tools.LinearInterpolator;
+import xal.tools.math.FastFourierTransform;
 import xal.extension.widgets.apputils.SimpleChartPopupMenu;
 
-import JSci.maths.*;
-
 import java.util.*;
 
 /**
@@ -146,12 +145,12 @@ public class FFTScreenHandler extends AbstractScreenHandler implements TimeModel
 	 */
 	private double[] getTransform(final double[] y, final double[] t, final int count) {
 		double[] waveform = getInterpolatedWaveform(y, t, 2*count);
-		Complex[] fft = FourierMath.transform(waveform);
-		final int fft_count = fft.length;
+		final int fft_count = waveform.length;
 		double[] transform = new double[fft_count];
 		
+		FastFourierTransform.getInstance(fft_count).powerSpectrum(waveform, transform);
 		for ( int index = 0 ; index < fft_count ; index++ ) {
-			transform[index] = fft[index].mod();
+			transform[index] = Math.sqrt(transform[index]);
 		}
 		
 		return transform;
@@ -0,0 +1,237 @@
+/*
+ * HistoryDialog.java
+ *
+ * Created on Mon Oct 19 2026
+ */
+
+package xal.app.scope;
+
+import javax.swing.*;
+import javax.swing.border.*;
+import java.awt.*;
+import java.awt.event.*;
+import java.io.File;
+
+
+/**
+ * HistoryDialog allows the user to set the depth and the storage directory of the waveform history kept by the scope,
+ * and to export the waveforms of an earlier pulse held by the history.  A depth of zero keeps no history.
+ */
+public class HistoryDialog extends JDialog implements SwingConstants {
+	/** constant required to keep serializable happy */
+	static final private long serialVersionUID = 1L;
+
+	/** depth unit of frames */
+	final static private String FRAME_UNITS = "waveforms";
+
+	/** depth unit of megabytes */
+	final static private String MEGABYTE_UNITS = "MB";
+
+	/** number of bytes per megabyte */
+	final static private long MEGABYTE = 1024L * 1024;
+
+	/** static instance */
+	final static private HistoryDialog HISTORY_DIALOG;
+
+	/** chooser of the history directory */
+	final private JFileChooser DIRECTORY_CHOOSER;
+
+	/** model */
+	private ScopeModel _model;
+
+	/** depth of the history per channel */
+	private JTextField _depthField;
+
+	/** units of the history depth */
+	private JComboBox<String> _unitsMenu;
+
+	/** directory of the history files */
+	private JTextField _directoryField;
+
+	/** directory selected for the history files or null to keep the history off heap */
+	private File _directory;
+
+	/** number of pulses held by the history */
+	private JLabel _countLabel;
+
+	/** number of pulses before the most recent one to export */
+	private JSpinner _pulsesAgoSpinner;
+
+
+	static {
+		HISTORY_DIALOG = new HistoryDialog();
+	}
+
+
+	/** Constructor */
+	protected HistoryDialog() {
+		super();
+		setTitle( "Waveform History" );
+		setModal( true );
+
+		DIRECTORY_CHOOSER = new JFileChooser();
+		DIRECTORY_CHOOSER.setFileSelectionMode( JFileChooser.DIRECTORIES_ONLY );
+
+		initComponents();
+	}
+
+
+	/**
+	 * Show the history dialog box with values appropriate to the target model.
+	 * @param owner The window where the request initiated.
+	 * @param aModel The model to be controlled.
+	 */
+	static public void show( final JFrame owner, final ScopeModel aModel ) {
+		HISTORY_DIALOG._model = aModel;
+		HISTORY_DIALOG.setLocationRelativeTo( owner );
+		HISTORY_DIALOG.updateView();
+		HISTORY_DIALOG.setVisible( true );
+	}
+
+
+	/** Update the view to reflect model information. */
+	protected void updateView() {
+		final long byteDepth = _model.getHistoryByteDepth();
+		if ( byteDepth > 0 ) {
+			_depthField.setText( String.valueOf( byteDepth / MEGABYTE ) );
+			_unitsMenu.setSelectedItem( MEGABYTE_UNITS );
+		}
+		else {
+			_depthField.setText( String.valueOf( _model.getHistoryFrameDepth() ) );
+			_unitsMenu.setSelectedItem( FRAME_UNITS );
+		}
+
+		_directory = _model.getHistoryDirectory();
+		_directoryField.setText( _directory != null ? _directory.getPath() : "" );
+
+		final int historyCount = _model.getHistoryCount();
+		_countLabel.setText( "Pulses held: " + historyCount );
+		_pulsesAgoSpinner.setModel( new SpinnerNumberModel( 0, 0, Math.max( 0, historyCount - 1 ), 1 ) );
+	}
+
+
+	/** Apply the depth and directory entered by the user to the model. */
+	protected void applySettings() {
+		final long depth;
+		try {
+			depth = Long.parseLong( _depthField.getText().trim() );
+		}
+		catch( NumberFormatException exception ) {
+			JOptionPane.showMessageDialog( this, "The history depth must be a whole number.", "Invalid Depth", JOptionPane.ERROR_MESSAGE );
+			return;
+		}
+		final long maxDepth = FRAME_UNITS.equals( _unitsMenu.getSelectedItem() ) ? Integer.MAX_VALUE : Long.MAX_VALUE / MEGABYTE;
+		if ( depth < 0 || depth > maxDepth ) {
+			JOptionPane.showMessageDialog( this, "The history depth is out of range.", "Invalid Depth", JOptionPane.ERROR_MESSAGE );
+			return;
+		}
+
+		_model.setHistoryDirectory( _directory );
+		if ( MEGABYTE_UNITS.equals( _unitsMenu.getSelectedItem() ) ) {
+			_model.setHistoryByteDepth( depth * MEGABYTE );
+		}
+		else {
+			_model.setHistoryFrameDepth( (int)depth );
+		}
+		updateView();
+	}
+
+
+	/** Export the waveforms of the pulse selected by the user. */
+	protected void exportSnapshot() {
+		final int pulsesAgo = ((Number)_pulsesAgoSpinner.getValue()).intValue();
+		final WaveformSnapshot snapshot = _model.getRawWaveformSnapshot( pulsesAgo );
+		if ( snapshot == null ) {
+			JOptionPane.showMessageDialog( this, "The history no longer holds the selected pulse.", "Export Failed", JOptionPane.ERROR_MESSAGE );
+			updateView();
+			return;
+		}
+
+		try {
+			WaveformOutputHandler.writeWaveformSnapshot( this, snapshot );
+		}
+		catch( java.io.IOException exception ) {
+			JOptionPane.showMessageDialog( this, exception.getMessage(), "Error writing data", JOptionPane.ERROR_MESSAGE );
+			System.err.println( exception );
+		}
+	}
+
+
+	/** Create the views and controls that appear in the dialog box. */
+	protected void initComponents() {
+		//----------------- history depth
+		final Box depthPanel = new Box( HORIZONTAL );
+		depthPanel.setBorder( new TitledBorder( "Depth per Channel (0 keeps no history)" ) );
+		_depthField = new JTextField( 8 );
+		_depthField.setHorizontalAlignment( RIGHT );
+		depthPanel.add( _depthField );
+		_unitsMenu = new JComboBox<>( new String[] { FRAME_UNITS, MEGABYTE_UNITS } );
+		depthPanel.add( _unitsMenu );
+
+		//----------------- history directory
+		final Box directoryPanel = new Box( HORIZONTAL );
+		directoryPanel.setBorder( new TitledBorder( "Directory (blank keeps the history in memory)" ) );
+		_directoryField = new JTextField( 20 );
+		_directoryField.setEditable( false );
+		directoryPanel.add( _directoryField );
+		final JButton chooseButton = new JButton( "Choose..." );
+		chooseButton.addActionListener( new ActionListener() {
+			public void actionPerformed( final ActionEvent event ) {
+				if ( _directory != null )  DIRECTORY_CHOOSER.setCurrentDirectory( _directory );
+				if ( DIRECTORY_CHOOSER.showOpenDialog( HistoryDialog.this ) == JFileChooser.APPROVE_OPTION ) {
+					_directory = DIRECTORY_CHOOSER.getSelectedFile();
+					_directoryField.setText( _directory.getPath() );
+				}
+			}
+		});
+		directoryPanel.add( chooseButton );
+		final JButton clearButton = new JButton( "Clear" );
+		clearButton.addActionListener( new ActionListener() {
+			public void actionPerformed( final ActionEvent event ) {
+				_directory = null;
+				_directoryField.setText( "" );
+			}
+		});
+		directoryPanel.add( clearButton );
+
+		final Box applyPanel = new Box( HORIZONTAL );
+		applyPanel.add( Box.createHorizontalGlue() );
+		final JButton applyButton = new JButton( "Apply" );
+		applyButton.setToolTipText( "Apply the depth and directory which discards the recorded history." );
+		applyButton.addActionListener( new ActionListener() {
+			public void actionPerformed( final ActionEvent event ) {
+				applySettings();
+			}
+		});
+		applyPanel.add( applyButton );
+
+		//----------------- export of an earlier pulse
+		final Box exportPanel = new Box( HORIZONTAL );
+		exportPanel.setBorder( new TitledBorder( "Export Pulse" ) );
+		_countLabel = new JLabel();
+		exportPanel.add( _countLabel );
+		exportPanel.add( Box.createHorizontalStrut( 10 ) );
+		exportPanel.add( new JLabel( "Pulses ago: " ) );
+		_pulsesAgoSpinner = new JSpinner();
+		exportPanel.add( _pulsesAgoSpinner );
+		final JButton exportButton = new JButton( "Export..." );
+		exportButton.setToolTipText( "Dump the raw waveforms of the selected pulse to a text file." );
+		exportButton.addActionListener( new ActionListener() {
+			public void actionPerformed( final ActionEvent event ) {
+				exportSnapshot();
+			}
+		});
+		exportPanel.add( exportButton );
+
+		final Box mainPanel = new Box( VERTICAL );
+		mainPanel.add( depthPanel );
+		mainPanel.add( directoryPanel );
+		mainPanel.add( applyPanel );
+		mainPanel.add( Box.createVerticalStrut( 5 ) );
+		mainPanel.add( exportPanel );
+
+		getContentPane().add( mainPanel );
+		pack();
+		setResizable( false );
+	}
+}
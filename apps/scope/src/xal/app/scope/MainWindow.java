@@ -240,6 +240,18 @@ public class MainWindow extends XalWindow implements SwingConstants, DataListene
             }
         });
 		
+		//----------------- add a history button for setting the waveform history and exporting earlier pulses
+		JButton historyButton = new JButton("History");
+		historyButton.setMinimumSize(buttonSize);
+		historyButton.setMaximumSize(buttonSize);
+		historyButton.setToolTipText("Set the waveform history and export earlier pulses.");
+		addButtonToVertical(historyButton, rightButtonPanel);
+		historyButton.addActionListener(new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				HistoryDialog.show(MainWindow.this, scopeModel);
+			}
+		});
+		
 		//----------------- add a data grab button for writing out the waveform snapshot to a text file
 		JButton dataCaptureButton = new JButton( "" );
 		dataCaptureButton.setMinimumSize(buttonSize);
@@ -41,7 +41,7 @@ public class MathModel implements TraceSource, DataListener, ChannelModelListene
     
     // formula infrastructure
     protected String _formula;
-    protected FormulaInterpreter _interpreter;
+    protected Formula _compiledFormula;
     
     // state variables
     protected boolean hasCompileErrors;
@@ -72,7 +72,7 @@ public class MathModel implements TraceSource, DataListener, ChannelModelListene
         MESSAGE_CENTER = new MessageCenter( "Channel Model" );
         SETTING_PROXY = MESSAGE_CENTER.registerSource(this, SettingListener.class);
 
-        _interpreter = new FormulaInterpreter();
+        _compiledFormula = null;
         canEnable = false;
         enabled = false;
         hasCompileErrors = false;
@@ -175,14 +175,12 @@ public class MathModel implements TraceSource, DataListener, ChannelModelListene
      */
     public void setFormula( final String newFormula ) throws RuntimeException {
 		try {
-			// create fresh interpreter with no variables assigned
-			final FormulaInterpreter interpreter = new FormulaInterpreter();
-			interpreter.compile( newFormula );
+			final Formula compiledFormula = Formula.compile( newFormula );
 
 			dispatchUpdateOperation( new Runnable() {
 				public void run() {
 					_formula = newFormula;
-					_interpreter = interpreter;
+					_compiledFormula = compiledFormula;
 					hasCompileErrors = false;
 
 					setupSources();
@@ -217,7 +215,7 @@ public class MathModel implements TraceSource, DataListener, ChannelModelListene
 				int numSources = 0;
 				for ( int index = 0 ; index < allSources.length ; index++ ) {
 					final String sourceID = allSources[index].getID();
-					if ( _formula.contains( sourceID ) ) {
+					if ( _compiledFormula.getVariableIndex( sourceID ) >= 0 ) {
 						tempSources[numSources++] = allSources[index];
 					}
 				}
@@ -352,16 +350,26 @@ public class MathModel implements TraceSource, DataListener, ChannelModelListene
 			interpolators[sourceIndex] = new LinearInterpolator( rawArray, delay, samplePeriod );
         }
         
-        final double[] values = new double[elementTimes.length];
-        for ( int sampleIndex = 0 ; sampleIndex < elementTimes.length ; sampleIndex++ ) {
-            double time = startTurn + sampleIndex * turnStep;
-            for ( int sourceIndex = 0 ; sourceIndex < sources.length ; sourceIndex++ ) {
-                _interpreter.setVariable(channelKeys[sourceIndex], interpolators[sourceIndex].calcValueAt(time));
+        // interpolate each source over the trace times and evaluate the formula over the whole trace at once
+        final int sampleCount = elementTimes.length;
+        final double[][] variableValues = new double[_compiledFormula.getVariableCount()][];
+        for ( int sourceIndex = 0 ; sourceIndex < sources.length ; sourceIndex++ ) {
+            final int variableIndex = _compiledFormula.getVariableIndex( channelKeys[sourceIndex] );
+            if ( variableIndex < 0 )  continue;
+            final double[] sourceValues = new double[sampleCount];
+            final LinearInterpolator interpolator = interpolators[sourceIndex];
+            for ( int sampleIndex = 0 ; sampleIndex < sampleCount ; sampleIndex++ ) {
+                sourceValues[sampleIndex] = interpolator.calcValueAt( startTurn + sampleIndex * turnStep );
+            }
+            variableValues[variableIndex] = sourceValues;
+        }
+        for ( int variableIndex = 0 ; variableIndex < variableValues.length ; variableIndex++ ) {
+            if ( variableValues[variableIndex] == null ) {
+                throw new FormulaException( "The variable \"" + _compiledFormula.getVariableName( variableIndex ) + "\" is not defined in the formula: " + _formula );
             }
-            values[sampleIndex] = _interpreter.evaluate();
         }
         
-        return values;
+        return _compiledFormula.evaluate( variableValues, sampleCount, new double[sampleCount] );
     }
 	
 	
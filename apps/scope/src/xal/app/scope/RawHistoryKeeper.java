@@ -14,6 +14,8 @@ import xal.ca.Channel;
 import xal.ca.ChannelTimeRecord;
 import xal.tools.correlator.*;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 
@@ -24,13 +26,32 @@ import java.util.*;
  * confident that the last time information, last PV and last correlation are consistent.  The association can't be guaranteed
  * since the time information is not correlated with the waveform since the time information may be posted only when it 
  * changes rather than along with the waveform.
+ * <p>
+ * Keeping a history of earlier pulses is optional and off by default, in which case a snapshot of the last correlation is 
+ * made only when requested.  When a history depth is set in frames or bytes, the waveforms of each channel are recorded in 
+ * a preallocated WaveformRing and the rings may be mapped to files to persist the history.  An index of the recent 
+ * correlations refers to the frames recorded for each, so snapshots of the latest or earlier pulses view the recorded frames 
+ * without copying them.  The index is rebuilt from the frames of history files which are reopened.
+ * </p>
  *
  * @author  tap
  */
 public class RawHistoryKeeper implements CorrelationNotice<ChannelTimeRecord>, ChannelModelListener {
+	/** maximum number of correlations indexed when the history depth is given in bytes */
+	final static private int MAX_INDEXED_CORRELATIONS = 4096;
+	
     // channel models
     protected ChannelModel[] channelModels;
 	
+	// waveform history
+	protected Map<String,WaveformRing> ringMap;			// waveform ring vs. channel id
+	protected int historyFrames;						// history depth in frames or zero if given in bytes or not kept
+	protected long historyBytes;						// history depth per channel in bytes or zero if given in frames or not kept
+	protected File historyDirectory;					// directory of the mapped history files or null to keep the history off heap
+	protected long[] correlationTimes;					// mean time in milliseconds of each indexed correlation
+	protected Map<String,long[]> correlationSerials;	// frame serials of each indexed correlation vs. channel id
+	protected long correlationCount;					// number of correlations indexed
+	
 	// history
 	protected Correlation<ChannelTimeRecord> lastCorrelation;		// last correlation captured
 	protected Map<String,WaveformTime> lastTimeMap;					// map of delay and sample period vs. channel id for the last correlation
@@ -51,6 +72,12 @@ public class RawHistoryKeeper implements CorrelationNotice<ChannelTimeRecord>, C
 	public RawHistoryKeeper(ChannelModel[] newChannelModels) {
 		lock = new Object();
 		
+		ringMap = new HashMap<>();
+		historyFrames = 0;
+		historyBytes = 0;
+		historyDirectory = null;
+		resetCorrelationIndex();
+		
 		pendingTime = true;
 		pendingTimeMap = new HashMap<>();
 		lastTimeMap = new HashMap<>();
@@ -77,6 +104,237 @@ public class RawHistoryKeeper implements CorrelationNotice<ChannelTimeRecord>, C
 		for ( int index = 0 ; index < channelModels.length ; index++ ) {
 			channelModels[index].removeChannelModelListener(this);
 		}
+		flushHistory();
+	}
+	
+	
+	/**
+	 * Set the history depth of each channel in frames.  The recorded history is discarded.
+	 * @param frames The number of waveforms to keep per channel or zero to keep no history.
+	 */
+	public void setHistoryFrameDepth( final int frames ) {
+		if ( frames < 0 )  throw new IllegalArgumentException( "The history depth must not be negative." );
+		
+		synchronized(lock) {
+			historyFrames = frames;
+			historyBytes = 0;
+			resetHistory();
+		}
+	}
+	
+	
+	/**
+	 * Get the history depth of each channel in frames.
+	 * @return The number of waveforms kept per channel or zero if the depth is given in bytes or no history is kept.
+	 */
+	public int getHistoryFrameDepth() {
+		synchronized(lock) {
+			return historyFrames;
+		}
+	}
+	
+	
+	/**
+	 * Set the history depth of each channel in bytes.  Each channel keeps as many waveforms as fit, but at least one.
+	 * The recorded history is discarded.
+	 * @param bytes The number of bytes of history to keep per channel or zero to keep no history.
+	 */
+	public void setHistoryByteDepth( final long bytes ) {
+		if ( bytes < 0 )  throw new IllegalArgumentException( "The history depth must not be negative." );
+		
+		synchronized(lock) {
+			historyFrames = 0;
+			historyBytes = bytes;
+			resetHistory();
+		}
+	}
+	
+	
+	/**
+	 * Get the history depth of each channel in bytes.
+	 * @return The number of bytes of history kept per channel or zero if the depth is given in frames or no history is kept.
+	 */
+	public long getHistoryByteDepth() {
+		synchronized(lock) {
+			return historyBytes;
+		}
+	}
+	
+	
+	/**
+	 * Determine whether a history of earlier pulses is kept.
+	 * @return true if a history depth has been set and false if only the last correlation is kept.
+	 */
+	public boolean isHistoryEnabled() {
+		synchronized(lock) {
+			return historyFrames > 0 || historyBytes > 0;
+		}
+	}
+	
+	
+	/**
+	 * Set the directory of the files to which the waveform history is mapped.  The history held by the files of the 
+	 * channels is reopened if it was kept for the same PVs with the same depth.
+	 * @param directory The directory for the history files or null to keep the history off heap.
+	 */
+	public void setHistoryDirectory( final File directory ) {
+		synchronized(lock) {
+			historyDirectory = directory;
+			resetHistory();
+		}
+	}
+	
+	
+	/**
+	 * Get the directory of the files to which the waveform history is mapped.
+	 * @return The directory for the history files or null if the history is kept off heap.
+	 */
+	public File getHistoryDirectory() {
+		synchronized(lock) {
+			return historyDirectory;
+		}
+	}
+	
+	
+	/**
+	 * Write the history mapped to files out to the storage device.
+	 */
+	public void flushHistory() {
+		synchronized(lock) {
+			for ( final WaveformRing ring : ringMap.values() ) {
+				ring.force();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Get the number of pulses whose waveforms can be replayed.
+	 * @return The number of correlations indexed in the history or one if only the last correlation is kept.
+	 */
+	public int getHistoryCount() {
+		synchronized(lock) {
+			if ( !isHistoryEnabled() )  return lastCorrelation != null ? 1 : 0;
+			return (int)Math.min( correlationCount, correlationTimes.length );
+		}
+	}
+	
+	
+	/**
+	 * Discard the recorded history and the correlation index and reopen the history files if any.
+	 */
+	protected void resetHistory() {
+		flushHistory();
+		ringMap.clear();
+		resetCorrelationIndex();
+		restoreHistory();
+	}
+	
+	
+	/**
+	 * Allocate an empty correlation index sized for the history depth.
+	 */
+	protected void resetCorrelationIndex() {
+		final int capacity = historyFrames > 0 ? historyFrames : historyBytes > 0 ? MAX_INDEXED_CORRELATIONS : 0;
+		correlationTimes = new long[capacity];
+		correlationSerials = new HashMap<>();
+		correlationCount = 0;
+	}
+	
+	
+	/**
+	 * Reopen the history files of the channels whose PV and depth match the current settings and index the correlations 
+	 * of their frames.  Correlations recorded later continue from the latest correlation restored.
+	 */
+	protected void restoreHistory() {
+		if ( historyDirectory == null || !isHistoryEnabled() )  return;
+		
+		for ( final ChannelModel channelModel : channelModels ) {
+			final String channelID = channelModel.getID();
+			final String pvName = channelModel.getChannelName();
+			if ( pvName == null )  continue;
+			
+			try {
+				final WaveformRing ring = WaveformRing.restoreFile( new File( historyDirectory, channelID + ".wfr" ), pvName );
+				if ( ring != null && ring.getFrameCapacity() == getFrameCapacity( ring.getSampleCapacity() ) ) {
+					ringMap.put( channelID, ring );
+				}
+			}
+			catch( IOException | IllegalArgumentException exception ) {
+				System.err.println( "Failed to restore the waveform history file for " + pvName + ": " + exception.getMessage() );
+			}
+		}
+		
+		// the latest correlation of any restored frame determines which correlations remain within the index
+		long latestCorrelation = -1;
+		for ( final WaveformRing ring : ringMap.values() ) {
+			for ( long serial = ring.getFrameCount() - ring.getAvailableFrameCount() ; serial < ring.getFrameCount() ; serial++ ) {
+				if ( ring.holdsFrame( serial ) )  latestCorrelation = Math.max( latestCorrelation, ring.getCorrelation( ring.getSlot( serial ) ) );
+			}
+		}
+		correlationCount = latestCorrelation + 1;
+		
+		for ( final Map.Entry<String,WaveformRing> entry : ringMap.entrySet() ) {
+			final WaveformRing ring = entry.getValue();
+			final long[] serials = new long[correlationTimes.length];
+			Arrays.fill( serials, -1 );
+			for ( long serial = ring.getFrameCount() - ring.getAvailableFrameCount() ; serial < ring.getFrameCount() ; serial++ ) {
+				if ( !ring.holdsFrame( serial ) )  continue;
+				final int frameSlot = ring.getSlot( serial );
+				final long correlation = ring.getCorrelation( frameSlot );
+				if ( correlation < 0 || correlation < correlationCount - correlationTimes.length )  continue;
+				
+				final int slot = (int)( correlation % correlationTimes.length );
+				correlationTimes[slot] = ring.getCorrelationTime( frameSlot );
+				serials[slot] = serial;
+			}
+			correlationSerials.put( entry.getKey(), serials );
+		}
+	}
+	
+	
+	/**
+	 * Get the number of frames each channel keeps for the history depth.
+	 * @param sampleCapacity The number of samples per frame.
+	 * @return The number of frames per channel.
+	 */
+	protected int getFrameCapacity( final int sampleCapacity ) {
+		return historyFrames > 0 ? historyFrames : WaveformRing.getFrameCapacity( historyBytes, sampleCapacity );
+	}
+	
+	
+	/**
+	 * Get the waveform ring of the channel creating it if necessary.  A new ring replaces the existing one if the PV has
+	 * changed or the waveform no longer fits.
+	 * @param channelID The channel model's ID.
+	 * @param pvName The channel's PV name.
+	 * @param sampleCount The number of samples of the waveform to record.
+	 * @return The channel's waveform ring.
+	 */
+	protected WaveformRing getRing( final String channelID, final String pvName, final int sampleCount ) {
+		final WaveformRing ring = ringMap.get( channelID );
+		if ( ring != null && ring.getName().equals( pvName ) && ring.getSampleCapacity() >= sampleCount ) {
+			return ring;
+		}
+		
+		final int sampleCapacity = Math.max( 1, sampleCount );
+		final int frameCapacity = getFrameCapacity( sampleCapacity );
+		WaveformRing newRing = null;
+		if ( historyDirectory != null ) {
+			try {
+				newRing = WaveformRing.mapFile( new File( historyDirectory, channelID + ".wfr" ), pvName, frameCapacity, sampleCapacity );
+			}
+			catch( IOException exception ) {
+				System.err.println( "Failed to map the waveform history file for " + pvName + ": " + exception.getMessage() );
+			}
+		}
+		if ( newRing == null ) {
+			newRing = WaveformRing.withFrameCapacity( pvName, frameCapacity, sampleCapacity );
+		}
+		
+		ringMap.put( channelID, newRing );
+		correlationSerials.remove( channelID );
+		return newRing;
 	}
 	
 	
@@ -140,11 +398,93 @@ public class RawHistoryKeeper implements CorrelationNotice<ChannelTimeRecord>, C
 	 * @return The waveform snapshot representing waveforms from the most recent pulse.
 	 */
 	public WaveformSnapshot getWaveformSnapshot() {
-		if ( lastCorrelation == null ) {
+		final WaveformSnapshot snapshot = getWaveformSnapshot( 0 );
+		if ( snapshot == null ) {
 			throw new RuntimeException("Attempt to output data when there are no waveforms...");
 		}
 		
-		return new WaveformSnapshot( lastCorrelation, lastPvMap, lastTimeMap );
+		return snapshot;
+	}
+	
+	
+	/**
+	 * Get the waveforms recorded for an earlier pulse.  The waveforms are copied while the history is locked, so the 
+	 * snapshot remains intact when the history wraps around while it is being exported.  If no history is kept, only the 
+	 * most recent pulse is available and its waveforms are copied from the last correlation.
+	 * @param correlationsAgo The number of correlations before the most recent one.
+	 * @return The waveform snapshot of the pulse or null if the history no longer holds it.
+	 */
+	public WaveformSnapshot getWaveformSnapshot( final int correlationsAgo ) {
+		synchronized(lock) {
+			if ( !isHistoryEnabled() )  return correlationsAgo == 0 ? makeLastSnapshot() : null;
+			
+			final long correlationIndex = correlationCount - 1 - correlationsAgo;
+			if ( correlationsAgo < 0 || correlationIndex < 0 || correlationIndex < correlationCount - correlationTimes.length )  return null;
+			
+			final int slot = (int)( correlationIndex % correlationTimes.length );
+			final List<WaveformFrame> frames = new ArrayList<>();
+			for ( final Map.Entry<String,long[]> entry : correlationSerials.entrySet() ) {
+				final WaveformRing ring = ringMap.get( entry.getKey() );
+				final WaveformFrame frame = ring != null ? ring.copyFrame( entry.getValue()[slot] ) : null;
+				if ( frame != null )  frames.add( frame );
+			}
+			
+			return frames.isEmpty() ? null : new WaveformSnapshot( new Date( correlationTimes[slot] ), frames );
+		}
+	}
+	
+	
+	/**
+	 * Copy the waveforms of the last correlation into a new snapshot.
+	 * @return The waveform snapshot of the last correlation or null if there is none.
+	 */
+	protected WaveformSnapshot makeLastSnapshot() {
+		if ( lastCorrelation == null )  return null;
+		
+		final List<WaveformFrame> frames = new ArrayList<>();
+		for ( final String channelID : lastCorrelation.names() ) {
+			final String pvName = lastPvMap.get( channelID );
+			if ( pvName == null )  continue;
+			
+			final ChannelTimeRecord record = lastCorrelation.getRecord( channelID );
+			frames.add( WaveformRing.withWaveform( pvName, record, record.timeStampInSeconds(), lastTimeMap.get( channelID ) ).getLatestFrame() );
+		}
+		
+		return new WaveformSnapshot( lastCorrelation.meanDate(), frames );
+	}
+	
+	
+	/**
+	 * Record the waveforms of the correlation in the history and index them.
+	 * @param correlation The correlation whose waveforms to record.
+	 */
+	protected void recordCorrelation( final Correlation<ChannelTimeRecord> correlation ) {
+		final int slot = (int)( correlationCount % correlationTimes.length );
+		final long correlationTime = correlation.meanDate().getTime();
+		correlationTimes[slot] = correlationTime;
+		
+		// clear the slot for channels missing from this correlation
+		for ( final long[] serials : correlationSerials.values() ) {
+			serials[slot] = -1;
+		}
+		
+		for ( final String channelID : correlation.names() ) {
+			final String pvName = lastPvMap.get( channelID );
+			if ( pvName == null )  continue;
+			
+			final ChannelTimeRecord record = correlation.getRecord( channelID );
+			final WaveformRing ring = getRing( channelID, pvName, record.getCount() );
+			
+			long[] serials = correlationSerials.get( channelID );
+			if ( serials == null ) {
+				serials = new long[correlationTimes.length];
+				Arrays.fill( serials, -1 );
+				correlationSerials.put( channelID, serials );
+			}
+			serials[slot] = ring.append( record, record.timeStampInSeconds(), lastTimeMap.get( channelID ), correlationCount, correlationTime );
+		}
+		
+		++correlationCount;
 	}
 	
 	
@@ -159,6 +499,7 @@ public class RawHistoryKeeper implements CorrelationNotice<ChannelTimeRecord>, C
 			lastCorrelation = correlation;
 			updateTimeHistory();
 			updatePvHistory();
+			if ( isHistoryEnabled() )  recordCorrelation( correlation );
 		}
 	}
 	
@@ -14,6 +14,7 @@ import xal.tools.correlator.*;
 import xal.ca.correlator.*;
 import xal.ca.*;
 
+import java.io.File;
 import java.util.*;
 
 
@@ -147,6 +148,17 @@ public class ScopeModel implements CorrelationNotice<ChannelTimeRecord>, Channel
         if ( triggerAdaptor != null ) {
             trigger.update( triggerAdaptor );
         }
+		
+		// apply the history settings after the channels so the history files of their PVs can be reopened
+		if ( adaptor.hasAttribute("historyDirectory") ) {
+			setHistoryDirectory( new File( adaptor.stringValue("historyDirectory") ) );
+		}
+		if ( adaptor.hasAttribute("historyFrames") ) {
+			setHistoryFrameDepth( adaptor.intValue("historyFrames") );
+		}
+		else if ( adaptor.hasAttribute("historyBytes") ) {
+			setHistoryByteDepth( adaptor.longValue("historyBytes") );
+		}
     }
     
     
@@ -170,6 +182,16 @@ public class ScopeModel implements CorrelationNotice<ChannelTimeRecord>, Channel
         }
         
         adaptor.writeNode(trigger);
+		
+		if ( rawHistoryKeeper.getHistoryByteDepth() > 0 ) {
+			adaptor.setValue( "historyBytes", rawHistoryKeeper.getHistoryByteDepth() );
+		}
+		else {
+			adaptor.setValue( "historyFrames", rawHistoryKeeper.getHistoryFrameDepth() );
+		}
+		if ( rawHistoryKeeper.getHistoryDirectory() != null ) {
+			adaptor.setValue( "historyDirectory", rawHistoryKeeper.getHistoryDirectory().getPath() );
+		}
     }
     
     
@@ -401,6 +423,88 @@ public class ScopeModel implements CorrelationNotice<ChannelTimeRecord>, Channel
 	public WaveformSnapshot getRawWaveformSnapshot() {
 		return rawHistoryKeeper.getWaveformSnapshot();
 	}
+
+
+	/**
+	 * Get the number of pulses whose waveforms can be replayed.
+	 * @return the number of pulses held by the waveform history
+	 */
+	public int getHistoryCount() {
+		return rawHistoryKeeper.getHistoryCount();
+	}
+	
+	
+	/**
+	 * Get the history depth of each channel in frames.
+	 * @return the number of waveforms kept per channel or zero if the depth is given in bytes or no history is kept
+	 */
+	public int getHistoryFrameDepth() {
+		return rawHistoryKeeper.getHistoryFrameDepth();
+	}
+	
+	
+	/**
+	 * Set the history depth of each channel in frames.  The recorded history is discarded.
+	 * @param frames the number of waveforms to keep per channel or zero to keep no history
+	 */
+	public void setHistoryFrameDepth( final int frames ) {
+		if ( frames != getHistoryFrameDepth() || getHistoryByteDepth() != 0 ) {
+			rawHistoryKeeper.setHistoryFrameDepth( frames );
+			SETTING_EVENT_PROXY.settingChanged(this);
+		}
+	}
+	
+	
+	/**
+	 * Get the history depth of each channel in bytes.
+	 * @return the number of bytes of history kept per channel or zero if the depth is given in frames or no history is kept
+	 */
+	public long getHistoryByteDepth() {
+		return rawHistoryKeeper.getHistoryByteDepth();
+	}
+	
+	
+	/**
+	 * Set the history depth of each channel in bytes.  The recorded history is discarded.
+	 * @param bytes the number of bytes of history to keep per channel or zero to keep no history
+	 */
+	public void setHistoryByteDepth( final long bytes ) {
+		if ( bytes != getHistoryByteDepth() || getHistoryFrameDepth() != 0 ) {
+			rawHistoryKeeper.setHistoryByteDepth( bytes );
+			SETTING_EVENT_PROXY.settingChanged(this);
+		}
+	}
+	
+	
+	/**
+	 * Get the directory of the files to which the waveform history is mapped.
+	 * @return the directory of the history files or null if the history is kept off heap
+	 */
+	public File getHistoryDirectory() {
+		return rawHistoryKeeper.getHistoryDirectory();
+	}
+	
+	
+	/**
+	 * Set the directory of the files to which the waveform history is mapped.
+	 * @param directory the directory of the history files or null to keep the history off heap
+	 */
+	public void setHistoryDirectory( final File directory ) {
+		if ( directory == null ? getHistoryDirectory() != null : !directory.equals( getHistoryDirectory() ) ) {
+			rawHistoryKeeper.setHistoryDirectory( directory );
+			SETTING_EVENT_PROXY.settingChanged(this);
+		}
+	}
+	
+	
+	/**
+	 * Get the snapshot of the waveforms captured the specified number of pulses before the most recent one.
+	 * @param correlationsAgo the number of correlations before the most recent one
+	 * @return the snapshot of waveform data or null if the history no longer holds it
+	 */
+	public WaveformSnapshot getRawWaveformSnapshot( final int correlationsAgo ) {
+		return rawHistoryKeeper.getWaveformSnapshot( correlationsAgo );
+	}
 	
     
     /** 
@@ -12,7 +12,8 @@ package xal.app.scope;
 
 
 /**
- * Waveform is a representation of a waveform.
+ * Waveform is a representation of a waveform.  It is a view of a frame in the waveform history rather than a copy of
+ * the samples, and its minimum and maximum values were computed when the frame was recorded.
  *
  * @author  tap
  */
@@ -20,25 +21,28 @@ final class Waveform {
 	/** The waveform's name. */
 	protected String name;
 	
-	/** The waveform samples. */
-	protected WaveformSample[] samples;
+	/** The frame holding the waveform's samples. */
+	protected WaveformFrame frame;
+	
+	/** The delay from cycle start of the first sample in turns. */
+	protected double delay;
+	
+	/** The sample period in turns. */
+	protected double samplePeriod;
 	
 	
 	/**
 	 * Waveform constructor.
 	 * @param aName The name of the waveform.
-	 * @param values The array of the waveform's sample values.
-	 * @param timeInfo Structure holding the delay from cycle start and the sample period.
+	 * @param aFrame The frame holding the waveform's samples and time information.
 	 */
-	public Waveform(String aName, double[] values, WaveformTime timeInfo) {
+	public Waveform( final String aName, final WaveformFrame aFrame ) {
 		name = aName;
-		samples = new WaveformSample[values.length];
+		frame = aFrame;
 		
-		double turn = timeInfo.delay;
-		for ( int index = 0 ; index < samples.length ; index++ ) {
-			samples[index] = new WaveformSample(turn, values[index]);
-			turn += timeInfo.samplePeriod;
-		}
+		final WaveformTime timeInfo = aFrame.getTimeInfo();
+		delay = timeInfo.delay;
+		samplePeriod = timeInfo.samplePeriod;
 	}
 	
 	/**
@@ -50,12 +54,41 @@ final class Waveform {
 	}
 	
 	
+	/**
+	 * Get the frame holding the waveform's samples.
+	 * @return The waveform's frame.
+	 */
+	public WaveformFrame getFrame() {
+		return frame;
+	}
+	
+	
 	/**
 	 * Get the number of samples in the waveform.
 	 * @return The number of samples in the waveform.
 	 */
 	public int getSampleCount() {
-		return samples.length;
+		return frame.getSampleCount();
+	}
+	
+	
+	/**
+	 * Get the sample at the specified index.
+	 * @param index The index of the sample.
+	 * @return The sample's time and value.
+	 */
+	public WaveformSample getSample( final int index ) {
+		return new WaveformSample( getTime( index ), frame.getValue( index ) );
+	}
+	
+	
+	/**
+	 * Get the time of the sample at the specified index.
+	 * @param index The index of the sample.
+	 * @return The time of the sample in turns relative to cycle start.
+	 */
+	public double getTime( final int index ) {
+		return delay + index * samplePeriod;
 	}
 	
 	
@@ -64,12 +97,7 @@ final class Waveform {
 	 * @return The minimum value found in the waveform.
 	 */
 	public double getMinValue() {
-		double minValue = Double.MAX_VALUE;
-		for ( int index = 0 ; index < samples.length ; index++ ) {
-			minValue = Math.min(minValue, samples[index].getValue() );
-		}
-		
-		return minValue;
+		return frame.getMinValue();
 	}
 	
 	
@@ -78,12 +106,16 @@ final class Waveform {
 	 * @return The maximum value found in the waveform.
 	 */
 	public double getMaxValue() {
-		double maxValue = Double.MIN_VALUE;
-		for ( int index = 0 ; index < samples.length ; index++ ) {
-			maxValue = Math.max(maxValue, samples[index].getValue() );
-		}
-		
-		return maxValue;
+		return frame.getMaxValue();
+	}
+	
+	
+	/**
+	 * Get the mean value of the waveform.
+	 * @return The mean value of the waveform.
+	 */
+	public double getMeanValue() {
+		return frame.getMeanValue();
 	}
 	
 	
@@ -92,7 +124,7 @@ final class Waveform {
 	 * @return the time of the first sample in turns relative to cycle start.
 	 */
 	public double getStartTime() {
-		return samples[0].getTime();
+		return getTime( 0 );
 	}
 	
 	
@@ -101,7 +133,7 @@ final class Waveform {
 	 * @return the time of the last sample in turns relative to cycle start.
 	 */
 	public double getEndTime() {
-		return samples[samples.length-1].getTime();
+		return getTime( getSampleCount() - 1 );
 	}
 	
 	
@@ -111,15 +143,15 @@ final class Waveform {
 	 * @return A string representation of the waveform.
 	 */
 	public String toString() {
+		final int sampleCount = getSampleCount();
 		StringBuffer buffer = new StringBuffer();
 		buffer.append("PV: " + name);
-		buffer.append("\nSamples: " + samples.length);
+		buffer.append("\nSamples: " + sampleCount);
 		buffer.append("\n");
-		for ( int index = 0 ; index < samples.length ; index++ ) {
-			buffer.append(samples[index]);
+		for ( int index = 0 ; index < sampleCount ; index++ ) {
+			buffer.append( getSample( index ) );
 			buffer.append("\n");
 		}
 		return buffer.toString();
 	}
 }
-
@@ -0,0 +1,138 @@
+/*
+ * WaveformFrame.java
+ *
+ * Created on Mon Oct 19 2026
+ */
+
+package xal.app.scope;
+
+import java.nio.DoubleBuffer;
+
+
+/**
+ * WaveformFrame is a view of one waveform held by a WaveformRing.  The frame does not copy the samples, so it remains
+ * valid only until the ring overwrites it which happens once the ring's frame capacity of newer frames have been appended.
+ */
+final class WaveformFrame {
+	/** The ring holding the frame. */
+	final private WaveformRing RING;
+	
+	/** The frame's serial number within the ring. */
+	final private long SERIAL;
+	
+	/** The ring slot holding the frame. */
+	final private int SLOT;
+	
+	
+	/**
+	 * WaveformFrame constructor.
+	 * @param ring The ring holding the frame.
+	 * @param serial The frame's serial number.
+	 * @param slot The ring slot holding the frame.
+	 */
+	WaveformFrame( final WaveformRing ring, final long serial, final int slot ) {
+		RING = ring;
+		SERIAL = serial;
+		SLOT = slot;
+	}
+	
+	
+	/**
+	 * Get the name of the frame's channel.
+	 * @return The channel name.
+	 */
+	public String getName() {
+		return RING.getName();
+	}
+	
+	
+	/**
+	 * Get the frame's serial number which is the number of frames appended to the ring before it.
+	 * @return The frame's serial number.
+	 */
+	public long getSerial() {
+		return SERIAL;
+	}
+	
+	
+	/**
+	 * Determine whether the ring still holds this frame.
+	 * @return true if the frame has not been overwritten and false otherwise.
+	 */
+	public boolean isValid() {
+		return RING.holdsFrame( SERIAL );
+	}
+	
+	
+	/**
+	 * Get the timestamp of the waveform.
+	 * @return The timestamp in seconds.
+	 */
+	public double getTimestamp() {
+		return RING.getTimestamp( SLOT );
+	}
+	
+	
+	/**
+	 * Get the delay and sample period of the waveform.
+	 * @return The waveform's time information.
+	 */
+	public WaveformTime getTimeInfo() {
+		return new WaveformTime( RING.getDelay( SLOT ), RING.getSamplePeriod( SLOT ) );
+	}
+	
+	
+	/**
+	 * Get the number of samples in the waveform.
+	 * @return The number of samples.
+	 */
+	public int getSampleCount() {
+		return RING.getSampleCount( SLOT );
+	}
+	
+	
+	/**
+	 * Get the sample at the specified index.
+	 * @param index The index of the sample.
+	 * @return The sample's value.
+	 */
+	public double getValue( final int index ) {
+		return RING.getValue( SLOT, index );
+	}
+	
+	
+	/**
+	 * Get a read only view of the samples without copying them.
+	 * @return The buffer of samples.
+	 */
+	public DoubleBuffer getValues() {
+		return RING.getValues( SLOT );
+	}
+	
+	
+	/**
+	 * Get the minimum sample which was computed when the frame was written.
+	 * @return The minimum sample or NaN if the waveform is empty.
+	 */
+	public double getMinValue() {
+		return RING.getMinValue( SLOT );
+	}
+	
+	
+	/**
+	 * Get the maximum sample which was computed when the frame was written.
+	 * @return The maximum sample or NaN if the waveform is empty.
+	 */
+	public double getMaxValue() {
+		return RING.getMaxValue( SLOT );
+	}
+	
+	
+	/**
+	 * Get the mean sample which was computed when the frame was written.
+	 * @return The mean sample or NaN if the waveform is empty.
+	 */
+	public double getMeanValue() {
+		return RING.getMeanValue( SLOT );
+	}
+}
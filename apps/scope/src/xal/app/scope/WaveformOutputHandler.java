@@ -38,7 +38,22 @@ public class WaveformOutputHandler {
 	 * @throws java.io.IOException if there was an error when writing the snapshot to the output file
 	 */
 	static void writeRawWaveformSnapshot(Component sender, ScopeModel scopeModel) throws java.io.IOException {
-		String output = scopeModel.getRawWaveformSnapshot().toString();
+		writeWaveformSnapshot( sender, scopeModel.getRawWaveformSnapshot() );
+	}
+	
+	
+	/**
+	 * Write the specified waveform snapshot to a text file.  Queries the user for the output file and writes
+	 * the waveforms to this output file.
+	 * @param sender
+	 * @param snapshot the waveform snapshot to write
+	 * @throws java.io.IOException if the snapshot's waveforms were overwritten or there was an error when writing the snapshot to the output file
+	 */
+	static void writeWaveformSnapshot( final Component sender, final WaveformSnapshot snapshot ) throws java.io.IOException {
+		String output = snapshot.toString();
+		if ( !snapshot.isValid() ) {
+			throw new IOException( "The waveforms were overwritten by newer pulses while they were being formatted." );
+		}
 		int status = fileChooser.showSaveDialog(sender);
 		switch(status) {
 			case JFileChooser.APPROVE_OPTION:
@@ -0,0 +1,572 @@
+/*
+ * WaveformRing.java
+ *
+ * Created on Mon Oct 19 2026
+ */
+
+package xal.app.scope;
+
+import xal.ca.ChannelRecord;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+
+/**
+ * WaveformRing is a preallocated ring of waveform frames for a single channel.  Each frame holds the samples of one
+ * waveform along with its timestamp, time information and the minimum, maximum and mean of its samples which are
+ * computed once as the frame is written.  The frames live in one buffer which is either allocated off the heap or
+ * mapped to a file, so appending a waveform allocates no sample arrays and a mapped ring persists its history as it is written.
+ * Each frame also records the serial and time of the correlation it belongs to, so the correlations of a restored history
+ * can be indexed again.  Frames are read through WaveformFrame views which refer to the ring's storage rather than copying it,
+ * and a frame which must outlive the ring's wrap around is copied into a ring of its own.
+ */
+final class WaveformRing {
+	/** identifies a ring file and its layout version */
+	final static private int MAGIC = 0x57465232;
+
+	/** bytes reserved for the ring header */
+	final static private int HEADER_SIZE = 512;
+
+	/** maximum number of bytes of the encoded channel name stored in the header */
+	final static private int MAX_NAME_BYTES = HEADER_SIZE - 32;
+
+	/** bytes of metadata per frame */
+	final static private int FRAME_INFO_SIZE = 80;
+
+	/** header offset of the frame capacity */
+	final static private int FRAME_CAPACITY_OFFSET = 4;
+
+	/** header offset of the sample capacity */
+	final static private int SAMPLE_CAPACITY_OFFSET = 8;
+
+	/** header offset of the total number of frames appended */
+	final static private int FRAME_COUNT_OFFSET = 16;
+
+	/** header offset of the encoded channel name preceded by its length */
+	final static private int NAME_OFFSET = 24;
+
+	/** frame metadata offsets */
+	final static private int SERIAL_OFFSET = 0;
+	final static private int TIMESTAMP_OFFSET = 8;
+	final static private int SAMPLE_COUNT_OFFSET = 16;
+	final static private int DELAY_OFFSET = 24;
+	final static private int SAMPLE_PERIOD_OFFSET = 32;
+	final static private int MIN_OFFSET = 40;
+	final static private int MAX_OFFSET = 48;
+	final static private int MEAN_OFFSET = 56;
+	final static private int CORRELATION_OFFSET = 64;
+	final static private int CORRELATION_TIME_OFFSET = 72;
+
+	/** serial marking a frame slot which is empty or being written */
+	final static private long NO_SERIAL = -1;
+
+	/** name of the channel whose waveforms are kept */
+	final private String NAME;
+
+	/** maximum number of frames kept */
+	final private int FRAME_CAPACITY;
+
+	/** maximum number of samples per frame */
+	final private int SAMPLE_CAPACITY;
+
+	/** storage of the header, frame metadata and samples */
+	final private ByteBuffer BUFFER;
+
+	/** view of the samples region of the storage */
+	final private DoubleBuffer SAMPLES;
+
+	/** byte offset of the samples region */
+	final private int SAMPLES_OFFSET;
+
+	/** total number of frames appended which is also the serial of the next frame */
+	private volatile long _frameCount;
+
+
+	/**
+	 * Constructor
+	 * @param name the channel name
+	 * @param frameCapacity the maximum number of frames
+	 * @param sampleCapacity the maximum number of samples per frame
+	 * @param buffer the storage which must be at least the size given by getStorageSize()
+	 * @param restore true to keep the frames already held by the storage if its layout matches
+	 */
+	private WaveformRing( final String name, final int frameCapacity, final int sampleCapacity, final ByteBuffer buffer, final boolean restore ) {
+		NAME = name;
+		FRAME_CAPACITY = frameCapacity;
+		SAMPLE_CAPACITY = sampleCapacity;
+		BUFFER = buffer.order( ByteOrder.nativeOrder() );
+		SAMPLES_OFFSET = HEADER_SIZE + frameCapacity * FRAME_INFO_SIZE;
+
+		final ByteBuffer samplesBuffer = BUFFER.duplicate().order( ByteOrder.nativeOrder() );
+		samplesBuffer.position( SAMPLES_OFFSET );
+		SAMPLES = samplesBuffer.slice().order( ByteOrder.nativeOrder() ).asDoubleBuffer();
+
+		if ( restore && hasMatchingHeader( BUFFER, NAME, FRAME_CAPACITY, SAMPLE_CAPACITY ) ) {
+			_frameCount = BUFFER.getLong( FRAME_COUNT_OFFSET );
+		}
+		else {
+			clear();
+		}
+	}
+
+
+	/**
+	 * Create an off heap ring holding the specified number of frames.
+	 * @param name the channel name
+	 * @param frameCapacity the maximum number of frames
+	 * @param sampleCapacity the maximum number of samples per frame
+	 * @return the new ring
+	 */
+	static public WaveformRing withFrameCapacity( final String name, final int frameCapacity, final int sampleCapacity ) {
+		return new WaveformRing( name, frameCapacity, sampleCapacity, ByteBuffer.allocateDirect( getStorageSize( frameCapacity, sampleCapacity ) ), false );
+	}
+
+
+	/**
+	 * Create a ring on the heap holding just the specified waveform.  Such a ring serves a single snapshot when no history is kept.
+	 * @param name the channel name
+	 * @param record the record holding the waveform
+	 * @param timestamp the timestamp of the waveform in seconds
+	 * @param timeInfo the delay and sample period of the waveform
+	 * @return the new ring
+	 */
+	static public WaveformRing withWaveform( final String name, final ChannelRecord record, final double timestamp, final WaveformTime timeInfo ) {
+		final int sampleCapacity = Math.max( 1, record.getCount() );
+		final WaveformRing ring = new WaveformRing( name, 1, sampleCapacity, ByteBuffer.allocate( getStorageSize( 1, sampleCapacity ) ), false );
+		ring.append( record, timestamp, timeInfo, NO_SERIAL, (long)( 1000 * timestamp ) );
+		return ring;
+	}
+
+
+	/**
+	 * Create an off heap ring holding as many frames as fit within the specified number of bytes, but at least one frame.
+	 * @param name the channel name
+	 * @param byteCapacity the maximum number of bytes of storage
+	 * @param sampleCapacity the maximum number of samples per frame
+	 * @return the new ring
+	 */
+	static public WaveformRing withByteCapacity( final String name, final long byteCapacity, final int sampleCapacity ) {
+		return withFrameCapacity( name, getFrameCapacity( byteCapacity, sampleCapacity ), sampleCapacity );
+	}
+
+
+	/**
+	 * Create a ring mapped to the specified file.  If the file already holds a ring for the same channel with the same
+	 * capacities its frames are kept so a previous history can be replayed, and if it holds a ring for the same channel
+	 * with other capacities the file is reset.  A file holding anything else, such as the history of another channel, is
+	 * refused rather than overwritten.
+	 * @param file the file to map
+	 * @param name the channel name
+	 * @param frameCapacity the maximum number of frames
+	 * @param sampleCapacity the maximum number of samples per frame
+	 * @return the new ring
+	 * @throws java.io.IOException if the file cannot be mapped or holds something other than a ring for the channel
+	 */
+	static public WaveformRing mapFile( final File file, final String name, final int frameCapacity, final int sampleCapacity ) throws IOException {
+		final int storageSize = getStorageSize( frameCapacity, sampleCapacity );
+		try ( final RandomAccessFile randomAccessFile = new RandomAccessFile( file, "rw" ) ) {
+			final FileChannel fileChannel = randomAccessFile.getChannel();
+			if ( fileChannel.size() > 0 ) {
+				final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.nativeOrder() );
+				fileChannel.read( header, 0 );
+				if ( !holdsChannel( header, name ) ) {
+					throw new IOException( "The file " + file + " does not hold the waveform history of " + name + " and will not be overwritten." );
+				}
+			}
+			final MappedByteBuffer buffer = fileChannel.map( FileChannel.MapMode.READ_WRITE, 0, storageSize );		// the mapping remains valid after the channel is closed
+			return new WaveformRing( name, frameCapacity, sampleCapacity, buffer, true );
+		}
+	}
+
+
+	/**
+	 * Reopen the ring held by the specified file using the capacities recorded in the file.
+	 * @param file the file holding the ring
+	 * @param name the channel name which the ring must hold
+	 * @return the ring with its frames restored or null if the file does not hold a ring for the channel
+	 * @throws java.io.IOException if the file cannot be read or mapped
+	 */
+	static public WaveformRing restoreFile( final File file, final String name ) throws IOException {
+		if ( !file.isFile() || file.length() < HEADER_SIZE )  return null;
+
+		final int frameCapacity;
+		final int sampleCapacity;
+		try ( final RandomAccessFile randomAccessFile = new RandomAccessFile( file, "r" ) ) {
+			final ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.nativeOrder() );
+			randomAccessFile.getChannel().read( header, 0 );
+			frameCapacity = header.getInt( FRAME_CAPACITY_OFFSET );
+			sampleCapacity = header.getInt( SAMPLE_CAPACITY_OFFSET );
+			if ( !hasMatchingHeader( header, name, frameCapacity, sampleCapacity ) )  return null;		// leave the file alone rather than resetting it
+			if ( frameCapacity < 1 || sampleCapacity < 1 || file.length() < HEADER_SIZE + (long)frameCapacity * getFrameSize( sampleCapacity ) )  return null;
+		}
+
+		final WaveformRing ring = mapFile( file, name, frameCapacity, sampleCapacity );
+		return ring.getFrameCount() > 0 ? ring : null;
+	}
+
+
+	/**
+	 * Get the number of bytes of storage needed for a ring.
+	 * @param frameCapacity the maximum number of frames
+	 * @param sampleCapacity the maximum number of samples per frame
+	 * @return the number of bytes of storage
+	 * @throws java.lang.IllegalArgumentException if the capacities are not positive or the storage exceeds the limit of a buffer
+	 */
+	static public int getStorageSize( final int frameCapacity, final int sampleCapacity ) {
+		if ( frameCapacity < 1 || sampleCapacity < 1 ) {
+			throw new IllegalArgumentException( "The frame capacity: " + frameCapacity + " and sample capacity: " + sampleCapacity + " must be positive." );
+		}
+
+		final long size = HEADER_SIZE + (long)frameCapacity * getFrameSize( sampleCapacity );
+		if ( size > Integer.MAX_VALUE ) {
+			throw new IllegalArgumentException( "The waveform history of " + size + " bytes exceeds the limit of a single buffer." );
+		}
+		return (int)size;
+	}
+
+
+	/**
+	 * Get the number of frames which fit within the specified number of bytes, but at least one frame.
+	 * @param byteCapacity the maximum number of bytes of storage
+	 * @param sampleCapacity the maximum number of samples per frame
+	 * @return the number of frames
+	 */
+	static public int getFrameCapacity( final long byteCapacity, final int sampleCapacity ) {
+		final long frameSize = getFrameSize( sampleCapacity );
+		final long maxFrames = ( Integer.MAX_VALUE - HEADER_SIZE ) / frameSize;
+		return (int)Math.max( 1, Math.min( maxFrames, ( byteCapacity - HEADER_SIZE ) / frameSize ) );
+	}
+
+
+	/**
+	 * Get the number of bytes of storage per frame.
+	 * @param sampleCapacity the maximum number of samples per frame
+	 * @return the number of bytes per frame including its metadata
+	 */
+	static private long getFrameSize( final int sampleCapacity ) {
+		return FRAME_INFO_SIZE + 8L * sampleCapacity;
+	}
+
+
+	/**
+	 * Get the name of the channel whose waveforms are kept.
+	 * @return the channel name
+	 */
+	public String getName() {
+		return NAME;
+	}
+
+
+	/**
+	 * Get the maximum number of frames kept.
+	 * @return the frame capacity
+	 */
+	public int getFrameCapacity() {
+		return FRAME_CAPACITY;
+	}
+
+
+	/**
+	 * Get the maximum number of samples per frame.
+	 * @return the sample capacity
+	 */
+	public int getSampleCapacity() {
+		return SAMPLE_CAPACITY;
+	}
+
+
+	/**
+	 * Get the total number of frames appended to the ring including those which have been overwritten.
+	 * @return the number of frames appended
+	 */
+	public long getFrameCount() {
+		return _frameCount;
+	}
+
+
+	/**
+	 * Get the number of frames currently held by the ring.
+	 * @return the number of frames available
+	 */
+	public int getAvailableFrameCount() {
+		return (int)Math.min( _frameCount, FRAME_CAPACITY );
+	}
+
+
+	/**
+	 * Get the most recent frame.
+	 * @return the most recent frame or null if no frames have been appended
+	 */
+	public WaveformFrame getLatestFrame() {
+		return getFrame( _frameCount - 1 );
+	}
+
+
+	/**
+	 * Get the frame which was appended the specified number of frames before the most recent one.
+	 * @param framesAgo the number of frames before the most recent frame
+	 * @return the frame or null if it is not held by the ring
+	 */
+	public WaveformFrame getPreviousFrame( final int framesAgo ) {
+		return getFrame( _frameCount - 1 - framesAgo );
+	}
+
+
+	/**
+	 * Get the frame with the specified serial number.
+	 * @param serial the serial number of the frame which is the number of frames appended before it
+	 * @return the frame or null if it has not been appended or has been overwritten
+	 */
+	public WaveformFrame getFrame( final long serial ) {
+		return holdsFrame( serial ) ? new WaveformFrame( this, serial, getSlot( serial ) ) : null;
+	}
+
+
+	/**
+	 * Copy the frame with the specified serial number into a new ring on the heap, so the copy remains valid after this
+	 * ring overwrites the frame.
+	 * @param serial the serial number of the frame which is the number of frames appended before it
+	 * @return the copy of the frame or null if it has not been appended or has been overwritten
+	 */
+	public WaveformFrame copyFrame( final long serial ) {
+		if ( !holdsFrame( serial ) )  return null;
+
+		final int slot = getSlot( serial );
+		final int infoOffset = getInfoOffset( slot );
+		final DoubleBuffer values = getValues( slot );
+		final int sampleCapacity = Math.max( 1, values.remaining() );
+		final WaveformRing copy = new WaveformRing( NAME, 1, sampleCapacity, ByteBuffer.allocate( getStorageSize( 1, sampleCapacity ) ), false );
+
+		final int copyInfoOffset = copy.getInfoOffset( 0 );
+		for ( int offset = SERIAL_OFFSET + 8 ; offset < FRAME_INFO_SIZE ; offset += 8 ) {
+			copy.BUFFER.putLong( copyInfoOffset + offset, BUFFER.getLong( infoOffset + offset ) );
+		}
+		copy.SAMPLES.duplicate().put( values );
+		copy.BUFFER.putLong( copyInfoOffset + SERIAL_OFFSET, 0 );
+		copy._frameCount = 1;
+		copy.BUFFER.putLong( FRAME_COUNT_OFFSET, 1 );
+
+		// the frame may have been overwritten while it was being copied
+		return holdsFrame( serial ) ? copy.getLatestFrame() : null;
+	}
+
+
+	/**
+	 * Append a waveform to the ring overwriting the oldest frame if the ring is full.  Samples beyond the sample capacity
+	 * are dropped.
+	 * @param record the record holding the waveform
+	 * @param timestamp the timestamp of the waveform in seconds
+	 * @param timeInfo the delay and sample period of the waveform
+	 * @param correlation the serial of the correlation to which the waveform belongs
+	 * @param correlationTime the mean time in milliseconds of the correlation
+	 * @return the serial number of the new frame
+	 */
+	public long append( final ChannelRecord record, final double timestamp, final WaveformTime timeInfo, final long correlation, final long correlationTime ) {
+		final long serial = _frameCount;
+		final int slot = getSlot( serial );
+		final int infoOffset = getInfoOffset( slot );
+		final int sampleOffset = slot * SAMPLE_CAPACITY;
+		final int count = Math.min( record.getCount(), SAMPLE_CAPACITY );
+
+		// invalidate the slot's previous frame before overwriting it
+		BUFFER.putLong( infoOffset + SERIAL_OFFSET, NO_SERIAL );
+
+		// double records return their backing array so the samples are copied once, straight into the ring
+		final double[] values = record.doubleArray();
+		final DoubleBuffer samples = SAMPLES.duplicate();
+		samples.position( sampleOffset );
+		samples.put( values, 0, count );
+
+		double minValue = Double.POSITIVE_INFINITY;
+		double maxValue = Double.NEGATIVE_INFINITY;
+		double sum = 0.0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			final double value = values[index];
+			if ( value < minValue )  minValue = value;
+			if ( value > maxValue )  maxValue = value;
+			sum += value;
+		}
+
+		BUFFER.putDouble( infoOffset + TIMESTAMP_OFFSET, timestamp );
+		BUFFER.putInt( infoOffset + SAMPLE_COUNT_OFFSET, count );
+		BUFFER.putDouble( infoOffset + DELAY_OFFSET, timeInfo != null ? timeInfo.delay : 0.0 );
+		BUFFER.putDouble( infoOffset + SAMPLE_PERIOD_OFFSET, timeInfo != null ? timeInfo.samplePeriod : 1.0 );
+		BUFFER.putDouble( infoOffset + MIN_OFFSET, count > 0 ? minValue : Double.NaN );
+		BUFFER.putDouble( infoOffset + MAX_OFFSET, count > 0 ? maxValue : Double.NaN );
+		BUFFER.putDouble( infoOffset + MEAN_OFFSET, count > 0 ? sum / count : Double.NaN );
+		BUFFER.putLong( infoOffset + CORRELATION_OFFSET, correlation );
+		BUFFER.putLong( infoOffset + CORRELATION_TIME_OFFSET, correlationTime );
+		BUFFER.putLong( infoOffset + SERIAL_OFFSET, serial );
+
+		_frameCount = serial + 1;
+		BUFFER.putLong( FRAME_COUNT_OFFSET, _frameCount );
+
+		return serial;
+	}
+
+
+	/**
+	 * Discard all frames.
+	 */
+	public void clear() {
+		BUFFER.putInt( 0, MAGIC );
+		BUFFER.putInt( FRAME_CAPACITY_OFFSET, FRAME_CAPACITY );
+		BUFFER.putInt( SAMPLE_CAPACITY_OFFSET, SAMPLE_CAPACITY );
+
+		final byte[] nameBytes = encodeName( NAME );
+		BUFFER.putShort( NAME_OFFSET, (short)nameBytes.length );
+		for ( int index = 0 ; index < nameBytes.length ; index++ ) {
+			BUFFER.put( NAME_OFFSET + 2 + index, nameBytes[index] );
+		}
+
+		for ( int slot = 0 ; slot < FRAME_CAPACITY ; slot++ ) {
+			BUFFER.putLong( getInfoOffset( slot ) + SERIAL_OFFSET, NO_SERIAL );
+		}
+
+		_frameCount = 0;
+		BUFFER.putLong( FRAME_COUNT_OFFSET, 0 );
+	}
+
+
+	/**
+	 * Write the frames of a ring mapped to a file out to the storage device.  Off heap rings are not affected.
+	 */
+	public void force() {
+		if ( BUFFER instanceof MappedByteBuffer ) {
+			((MappedByteBuffer)BUFFER).force();
+		}
+	}
+
+
+	/**
+	 * Determine whether the ring still holds the frame with the specified serial number.
+	 * @param serial the serial number of the frame
+	 * @return true if the frame has been appended and not overwritten
+	 */
+	boolean holdsFrame( final long serial ) {
+		return serial >= 0 && serial < _frameCount && serial >= _frameCount - FRAME_CAPACITY && BUFFER.getLong( getInfoOffset( getSlot( serial ) ) + SERIAL_OFFSET ) == serial;
+	}
+
+
+	/** Get the timestamp in seconds of the frame in the specified slot. */
+	double getTimestamp( final int slot ) {
+		return BUFFER.getDouble( getInfoOffset( slot ) + TIMESTAMP_OFFSET );
+	}
+
+
+	/** Get the number of samples of the frame in the specified slot. */
+	int getSampleCount( final int slot ) {
+		return BUFFER.getInt( getInfoOffset( slot ) + SAMPLE_COUNT_OFFSET );
+	}
+
+
+	/** Get the delay in turns of the frame in the specified slot. */
+	double getDelay( final int slot ) {
+		return BUFFER.getDouble( getInfoOffset( slot ) + DELAY_OFFSET );
+	}
+
+
+	/** Get the sample period in turns of the frame in the specified slot. */
+	double getSamplePeriod( final int slot ) {
+		return BUFFER.getDouble( getInfoOffset( slot ) + SAMPLE_PERIOD_OFFSET );
+	}
+
+
+	/** Get the minimum sample of the frame in the specified slot. */
+	double getMinValue( final int slot ) {
+		return BUFFER.getDouble( getInfoOffset( slot ) + MIN_OFFSET );
+	}
+
+
+	/** Get the maximum sample of the frame in the specified slot. */
+	double getMaxValue( final int slot ) {
+		return BUFFER.getDouble( getInfoOffset( slot ) + MAX_OFFSET );
+	}
+
+
+	/** Get the mean sample of the frame in the specified slot. */
+	double getMeanValue( final int slot ) {
+		return BUFFER.getDouble( getInfoOffset( slot ) + MEAN_OFFSET );
+	}
+
+
+	/** Get the serial of the correlation of the frame in the specified slot. */
+	long getCorrelation( final int slot ) {
+		return BUFFER.getLong( getInfoOffset( slot ) + CORRELATION_OFFSET );
+	}
+
+
+	/** Get the mean time in milliseconds of the correlation of the frame in the specified slot. */
+	long getCorrelationTime( final int slot ) {
+		return BUFFER.getLong( getInfoOffset( slot ) + CORRELATION_TIME_OFFSET );
+	}
+
+
+	/** Get the sample at the specified index of the frame in the specified slot. */
+	double getValue( final int slot, final int index ) {
+		return SAMPLES.get( slot * SAMPLE_CAPACITY + index );
+	}
+
+
+	/** Get a read only view of the samples of the frame in the specified slot. */
+	DoubleBuffer getValues( final int slot ) {
+		final DoubleBuffer values = SAMPLES.duplicate();
+		final int start = slot * SAMPLE_CAPACITY;
+		values.limit( start + getSampleCount( slot ) );
+		values.position( start );
+		return values.slice().asReadOnlyBuffer();
+	}
+
+
+	/** Get the slot holding the frame with the specified serial number. */
+	int getSlot( final long serial ) {
+		return (int)( serial % FRAME_CAPACITY );
+	}
+
+
+	/** Get the byte offset of the metadata of the frame in the specified slot. */
+	private int getInfoOffset( final int slot ) {
+		return HEADER_SIZE + slot * FRAME_INFO_SIZE;
+	}
+
+
+	/** Determine whether the header describes a ring with the specified layout and channel. */
+	static private boolean hasMatchingHeader( final ByteBuffer header, final String name, final int frameCapacity, final int sampleCapacity ) {
+		if ( !holdsChannel( header, name ) || header.getInt( FRAME_CAPACITY_OFFSET ) != frameCapacity || header.getInt( SAMPLE_CAPACITY_OFFSET ) != sampleCapacity )  return false;
+
+		final long frameCount = header.getLong( FRAME_COUNT_OFFSET );
+		return frameCount >= 0;
+	}
+
+
+	/** Determine whether the header describes a ring of any layout for the specified channel. */
+	static private boolean holdsChannel( final ByteBuffer header, final String name ) {
+		if ( header.getInt( 0 ) != MAGIC )  return false;
+
+		final byte[] nameBytes = encodeName( name );
+		if ( header.getShort( NAME_OFFSET ) != nameBytes.length )  return false;
+		for ( int index = 0 ; index < nameBytes.length ; index++ ) {
+			if ( header.get( NAME_OFFSET + 2 + index ) != nameBytes[index] )  return false;
+		}
+		return true;
+	}
+
+
+	/** Encode the channel name for the header truncating it if necessary. */
+	static private byte[] encodeName( final String name ) {
+		final byte[] bytes = ( name != null ? name : "" ).getBytes( StandardCharsets.UTF_8 );
+		if ( bytes.length <= MAX_NAME_BYTES )  return bytes;
+
+		final byte[] truncated = new byte[MAX_NAME_BYTES];
+		System.arraycopy( bytes, 0, truncated, 0, MAX_NAME_BYTES );
+		return truncated;
+	}
+}
@@ -10,9 +10,6 @@
 
 package xal.app.scope;
 
-import xal.tools.correlator.Correlation;
-import xal.ca.*;
-
 import java.util.*;
 
 
@@ -31,29 +28,44 @@ public class WaveformSnapshot {
 	
 	/**
 	 * WaveformSnapshot constructor.
-	 * @param correlation The pulse's correlation event from which we extract the waveforms.
-	 * @param pvMap The map of entries each containing a waveform id as the key and PV name as the value.
-	 * @param timeMap The map of entries each containing a waveform id as the key and the associated WaveformTime as the value
+	 * @param aTimestamp The time stamp of the pulse.
+	 * @param frames The frames holding the pulse's waveforms which are viewed rather than copied, so the caller should
+	 * pass frames which no other writer overwrites.
 	 */
-	public WaveformSnapshot( final Correlation<ChannelTimeRecord> correlation, final Map<String,String> pvMap, final Map<String,WaveformTime> timeMap ) {
-		timestamp = correlation.meanDate();
-		
-		final Set<String> keys = new HashSet<>( pvMap.keySet() );
-		keys.retainAll( correlation.names() );
+	public WaveformSnapshot( final Date aTimestamp, final Collection<WaveformFrame> frames ) {
+		timestamp = aTimestamp;
 		
-		int count = keys.size();
-		waveforms = new Waveform[count];
+		waveforms = new Waveform[frames.size()];
 		int index = 0;
-		for ( final String key : keys ) {
-			final ChannelRecord record = correlation.getRecord( key );
-			final WaveformTime timeInfo = timeMap.get( key );
-			final String pvName = pvMap.get( key );
-			waveforms[index] = new Waveform( pvName, record.doubleArray(), timeInfo );
+		for ( final WaveformFrame frame : frames ) {
+			waveforms[index] = new Waveform( frame.getName(), frame );
 			++index;
 		}
 	}
 	
 	
+	/**
+	 * Get the time stamp of the pulse.
+	 * @return The time stamp of the pulse.
+	 */
+	public Date getTimestamp() {
+		return timestamp;
+	}
+	
+	
+	/**
+	 * Determine whether the frames still hold all of the snapshot's waveforms.  The snapshot views its frames rather than
+	 * copying them, so a snapshot made from frames held by a waveform history is overwritten once that history wraps around.
+	 * @return true if none of the waveforms have been overwritten and false otherwise.
+	 */
+	public boolean isValid() {
+		for ( final Waveform waveform : waveforms ) {
+			if ( !waveform.getFrame().isValid() )  return false;
+		}
+		return true;
+	}
+	
+	
 	/**
 	 * Get the number of waveforms in the snapshot.
 	 * @return The number of waveforms in the snapshot.
@@ -0,0 +1,702 @@
+//
+//  HeadlessVAServer.java
+//  xal
+//
+//  Created on 10/19/2026.
+//
+package xal.app.virtualaccelerator;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import xal.ca.Channel;
+import xal.ca.ChannelFactory;
+import xal.ca.ChannelRecord;
+import xal.ca.IEventSinkValue;
+import xal.ca.IServerChannel;
+import xal.ca.Monitor;
+import xal.model.ModelException;
+import xal.model.probe.EnvelopeProbe;
+import xal.model.probe.Probe;
+import xal.model.probe.TransferMapProbe;
+import xal.model.probe.traj.EnvelopeProbeState;
+import xal.model.probe.traj.ProbeState;
+import xal.model.probe.traj.Trajectory;
+import xal.sim.scenario.Scenario;
+import xal.smf.Accelerator;
+import xal.smf.AcceleratorNode;
+import xal.smf.AcceleratorSeq;
+import xal.smf.Ring;
+import xal.smf.attr.BPMBucket;
+import xal.smf.data.XMLDataManager;
+import xal.smf.impl.BPM;
+import xal.smf.impl.Electromagnet;
+import xal.smf.impl.MagnetMainSupply;
+import xal.smf.impl.MagnetTrimSupply;
+import xal.smf.impl.ProfileMonitor;
+import xal.smf.impl.RfCavity;
+import xal.smf.impl.RfGap;
+import xal.smf.impl.RingBPM;
+import xal.smf.impl.SCLCavity;
+import xal.smf.impl.TrimmedQuadrupole;
+import xal.smf.impl.qualify.QualifierFactory;
+import xal.smf.impl.qualify.TypeQualifier;
+import xal.smf.proxy.ElectromagnetPropertyAccessor;
+import xal.smf.proxy.RfCavityPropertyAccessor;
+import xal.tools.beam.PhaseVector;
+import xal.tools.beam.Twiss;
+import xal.tools.beam.calc.SimpleSimResultsAdaptor;
+
+
+/**
+ * Virtual accelerator service without a user interface, intended as a high rate load source for integration testing.
+ * Unlike the VA document, which resyncs the whole scenario from channel access on every update, this server keeps the
+ * setpoints in memory by monitoring its own server channels. Only the model elements of the nodes whose setpoints changed
+ * are resynchronized, but the probe is still propagated through the whole sequence on any update following a setpoint
+ * change; updates without setpoint changes skip the model entirely. An update which follows a setpoint change therefore
+ * takes as long as a full simulation of the sequence, which for a full linac with an envelope probe is far longer than the
+ * update period, so the publishing rate drops while setpoints are changing. On every update all readback and diagnostic
+ * values are staged on the server channels and published together with one timestamp.
+ */
+public class HeadlessVAServer {
+	/** default update rate in Hz */
+	final static public double DEFAULT_UPDATE_RATE = 60.0;
+
+	/** sequence to simulate */
+	final private AcceleratorSeq SEQUENCE;
+
+	/** factory of the server channels of the sequence */
+	final private ChannelFactory CHANNEL_FACTORY;
+
+	/** server which applies the channel limits */
+	final private VAServer VA_SERVER;
+
+	/** online model scenario synchronized from the setpoint cache */
+	final private Scenario MODEL_SCENARIO;
+
+	/** probe from which each simulation starts */
+	final private Probe<?> BASE_PROBE;
+
+	/** latest setpoints keyed by setpoint channel */
+	final private Map<Channel,SetpointCache> SETPOINTS;
+
+	/** model inputs derived from the setpoints */
+	final private List<ModelInputSource> MODEL_INPUTS;
+
+	/** readbacks which follow the setpoints */
+	final private List<ReadbackSource> READBACKS;
+
+	/** BPM diagnostics computed from the simulation */
+	final private List<BPMSource> BPM_SOURCES;
+
+	/** wire scanner diagnostics computed from the simulation */
+	final private List<ProfileMonitorSource> PROFILE_SOURCES;
+
+	/** model inputs whose setpoints changed since the last simulation */
+	final private Set<ModelInputSource> CHANGED_INPUTS;
+
+	/** monitors of the setpoint channels */
+	final private List<Monitor> SETPOINT_MONITORS;
+
+	/** executor which runs the periodic updates */
+	private ScheduledExecutorService _updateExecutor;
+
+	/** noise level in percent applied to the readbacks */
+	private volatile double _readbackNoise;
+
+	/** noise level in percent applied to the BPM positions */
+	private volatile double _bpmNoise;
+
+	/** number of simulations run */
+	private volatile long _simulationCount;
+
+	/** number of updates published */
+	private volatile long _updateCount;
+
+
+	/**
+	 * Constructor
+	 * @param sequence sequence to simulate whose channels were created by a server channel factory
+	 * @param channelFactory server channel factory of the sequence
+	 */
+	public HeadlessVAServer( final AcceleratorSeq sequence, final ChannelFactory channelFactory ) throws Exception {
+		SEQUENCE = sequence;
+		CHANNEL_FACTORY = channelFactory;
+		VA_SERVER = new VAServer( sequence );
+
+		SETPOINTS = new HashMap<Channel,SetpointCache>();
+		MODEL_INPUTS = new ArrayList<ModelInputSource>();
+		READBACKS = new ArrayList<ReadbackSource>();
+		BPM_SOURCES = new ArrayList<BPMSource>();
+		PROFILE_SOURCES = new ArrayList<ProfileMonitorSource>();
+		CHANGED_INPUTS = Collections.newSetFromMap( new ConcurrentHashMap<ModelInputSource,Boolean>() );
+		SETPOINT_MONITORS = new ArrayList<Monitor>();
+
+		_readbackNoise = 0.0;
+		_bpmNoise = 0.0;
+
+		configureSetpoints();
+		configureDiagnostics();
+
+		// the scenario starts from the design values which match the initial setpoints
+		MODEL_SCENARIO = Scenario.newScenarioFor( sequence );
+		MODEL_SCENARIO.setSynchronizationMode( Scenario.SYNC_MODE_DESIGN );
+		MODEL_SCENARIO.resync();
+		BASE_PROBE = ( sequence instanceof Ring ) ? VADocument.createRingProbe( sequence ) : VADocument.createEnvelopeProbe( sequence );
+
+		monitorSetpoints();
+		simulate();
+	}
+
+
+	/** Load an accelerator with server channels and serve the specified sequence */
+	static public HeadlessVAServer getInstance( final String acceleratorPath, final String sequenceID ) throws Exception {
+		final ChannelFactory channelFactory = ChannelFactory.newServerFactory();
+		final Accelerator accelerator = acceleratorPath != null ? XMLDataManager.acceleratorWithPath( acceleratorPath, channelFactory ) : XMLDataManager.loadDefaultAccelerator( channelFactory );
+		if ( accelerator == null )  throw new IllegalArgumentException( "No accelerator could be loaded." );
+
+		final AcceleratorSeq sequence = accelerator.findSequence( sequenceID );
+		if ( sequence == null )  throw new IllegalArgumentException( "No sequence found with ID: " + sequenceID );
+
+		return new HeadlessVAServer( sequence, channelFactory );
+	}
+
+
+	/**
+	 * Run the virtual accelerator without a user interface.
+	 * Arguments: the sequence ID, optionally followed by the update rate in Hz and the accelerator file path.
+	 */
+	static public void main( final String[] args ) {
+		if ( args.length < 1 ) {
+			System.err.println( "Usage: HeadlessVAServer sequenceID [rate (Hz)] [accelerator path]" );
+			System.exit( 1 );
+		}
+
+		try {
+			final double rate = args.length > 1 ? Double.parseDouble( args[1] ) : DEFAULT_UPDATE_RATE;
+			final HeadlessVAServer server = getInstance( args.length > 2 ? args[2] : null, args[0] );
+			Logger.getLogger( "global" ).log( Level.INFO, "Serving sequence " + args[0] + " at " + rate + " Hz..." );
+			server.start( rate );
+			server.awaitTermination();
+		}
+		catch( Exception exception ) {
+			Logger.getLogger( "global" ).log( Level.SEVERE, "Headless virtual accelerator failed.", exception );
+			System.exit( 1 );
+		}
+	}
+
+
+	/** get the sequence being simulated */
+	public AcceleratorSeq getSequence() {
+		return SEQUENCE;
+	}
+
+
+	/** get the number of simulations run so far */
+	public long getSimulationCount() {
+		return _simulationCount;
+	}
+
+
+	/** get the number of updates published so far */
+	public long getUpdateCount() {
+		return _updateCount;
+	}
+
+
+	/** set the noise levels (percent) applied to the readbacks and BPM positions */
+	public void setNoise( final double readbackNoise, final double bpmNoise ) {
+		_readbackNoise = readbackNoise;
+		_bpmNoise = bpmNoise;
+	}
+
+
+	/** start publishing updates at the specified rate in Hz */
+	synchronized public void start( final double rate ) {
+		if ( _updateExecutor != null )  return;
+
+		_updateExecutor = Executors.newSingleThreadScheduledExecutor( new ThreadFactory() {
+			public Thread newThread( final Runnable runnable ) {
+				final Thread thread = new Thread( runnable, "Headless VA Update" );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+
+		final long period = Math.round( 1.0e9 / rate );
+		_updateExecutor.scheduleAtFixedRate( new Runnable() {
+			public void run() {
+				try {
+					update();
+				}
+				catch( Exception exception ) {
+					Logger.getLogger( "global" ).log( Level.SEVERE, "Headless virtual accelerator update failed.", exception );
+				}
+			}
+		}, 0, period, TimeUnit.NANOSECONDS );
+	}
+
+
+	/** stop publishing updates */
+	synchronized public void stop() {
+		if ( _updateExecutor != null ) {
+			_updateExecutor.shutdown();
+			_updateExecutor = null;
+		}
+	}
+
+
+	/** wait until the server is stopped */
+	public void awaitTermination() throws InterruptedException {
+		final ScheduledExecutorService executor;
+		synchronized( this ) {
+			executor = _updateExecutor;
+		}
+		if ( executor != null ) {
+			executor.awaitTermination( Long.MAX_VALUE, TimeUnit.NANOSECONDS );
+		}
+	}
+
+
+	/** stop the server and release the setpoint monitors */
+	public void destroy() throws Exception {
+		stop();
+		for ( final Monitor monitor : SETPOINT_MONITORS ) {
+			monitor.clear();
+		}
+		SETPOINT_MONITORS.clear();
+		VA_SERVER.destroy();
+	}
+
+
+	/**
+	 * Perform one update: rerun the model if any setpoints changed, then stage every readback and
+	 * diagnostic value and publish them together.
+	 */
+	synchronized public void update() throws ModelException {
+		if ( !CHANGED_INPUTS.isEmpty() ) {
+			simulate();
+		}
+
+		final double readbackNoise = _readbackNoise;
+		for ( final ReadbackSource readback : READBACKS ) {
+			readback.stage( readbackNoise );
+		}
+
+		final double bpmNoise = _bpmNoise;
+		for ( final BPMSource bpmSource : BPM_SOURCES ) {
+			bpmSource.stage( bpmNoise );
+		}
+
+		for ( final ProfileMonitorSource profileSource : PROFILE_SOURCES ) {
+			profileSource.stage();
+		}
+
+		CHANNEL_FACTORY.publishStagedValues();
+		_updateCount++;
+	}
+
+
+	/** apply the changed setpoints as model inputs, resync the affected nodes and propagate the probe through the whole sequence */
+	private void simulate() throws ModelException {
+		final Set<AcceleratorNode> changedNodes = new HashSet<AcceleratorNode>();
+		for ( final ModelInputSource input : new ArrayList<ModelInputSource>( CHANGED_INPUTS ) ) {
+			CHANGED_INPUTS.remove( input );		// remove before reading so a concurrent change is not lost
+			input.apply( MODEL_SCENARIO );
+			changedNodes.addAll( input.getSynchronizedNodes() );
+		}
+
+		if ( !changedNodes.isEmpty() ) {
+			MODEL_SCENARIO.resyncFromCache( changedNodes );
+		}
+
+		final Probe<?> probe = BASE_PROBE.copy();
+		probe.initialize();
+		MODEL_SCENARIO.setProbe( probe );
+		MODEL_SCENARIO.run();
+
+		final Trajectory<?> trajectory = MODEL_SCENARIO.getTrajectory();
+		final SimpleSimResultsAdaptor resultsAdaptor = new SimpleSimResultsAdaptor( trajectory );
+		final boolean computePhase = !( probe instanceof TransferMapProbe );
+		for ( final BPMSource bpmSource : BPM_SOURCES ) {
+			bpmSource.load( trajectory, resultsAdaptor, computePhase );
+		}
+		if ( probe instanceof EnvelopeProbe ) {
+			for ( final ProfileMonitorSource profileSource : PROFILE_SOURCES ) {
+				profileSource.load( trajectory );
+			}
+		}
+
+		_simulationCount++;
+	}
+
+
+	/** create the setpoint caches, model inputs and readbacks for the magnets and RF cavities */
+	private void configureSetpoints() {
+		final List<Electromagnet> magnets = SEQUENCE.<Electromagnet>getAllNodesWithQualifier( QualifierFactory.qualifierWithStatusAndTypes( true, Electromagnet.s_strType ) );
+		for ( final Electromagnet magnet : magnets ) {
+			final SetpointCache mainSetpoint = cacheSetpoint( magnet.getMainSupply().findChannel( MagnetMainSupply.FIELD_SET_HANDLE ), magnet.toCAFromField( magnet.getDfltField() ) );
+			if ( mainSetpoint == null )  continue;
+			addReadback( magnet.findChannel( Electromagnet.FIELD_RB_HANDLE ), mainSetpoint );
+
+			final List<SetpointCache> fieldSetpoints = new ArrayList<SetpointCache>( 2 );
+			fieldSetpoints.add( mainSetpoint );
+			if ( magnet instanceof TrimmedQuadrupole ) {
+				final SetpointCache trimSetpoint = cacheSetpoint( ((TrimmedQuadrupole)magnet).getTrimSupply().findChannel( MagnetTrimSupply.FIELD_SET_HANDLE ), 0.0 );
+				if ( trimSetpoint != null ) {
+					addReadback( magnet.findChannel( MagnetTrimSupply.FIELD_RB_HANDLE ), trimSetpoint );
+					fieldSetpoints.add( trimSetpoint );
+				}
+			}
+			MODEL_INPUTS.add( new ModelInputSource( magnet, ElectromagnetPropertyAccessor.PROPERTY_FIELD, fieldSetpoints, Collections.<AcceleratorNode>singletonList( magnet ) ) );
+		}
+
+		final List<RfCavity> cavities = SEQUENCE.<RfCavity>getAllInclusiveNodesWithQualifier( QualifierFactory.qualifierWithStatusAndTypes( true, RfCavity.s_strType ) );
+		for ( final RfCavity cavity : cavities ) {
+			// the cavity inputs are also applied to its gaps which must be resynchronized with it
+			final List<AcceleratorNode> syncNodes = new ArrayList<AcceleratorNode>();
+			syncNodes.add( cavity );
+			for ( final RfGap gap : cavity.getGaps() ) {
+				syncNodes.add( gap );
+			}
+
+			final double designAmp = cavity instanceof SCLCavity ? cavity.getDfltCavAmp() * ((SCLCavity)cavity).getStructureTTF() : cavity.getDfltCavAmp();
+			final SetpointCache ampSetpoint = cacheSetpoint( cavity.findChannel( RfCavity.CAV_AMP_SET_HANDLE ), designAmp );
+			if ( ampSetpoint != null ) {
+				addReadback( cavity.findChannel( RfCavity.CAV_AMP_AVG_HANDLE ), ampSetpoint );
+				MODEL_INPUTS.add( new ModelInputSource( cavity, RfCavityPropertyAccessor.PROPERTY_AMPLITUDE, Collections.singletonList( ampSetpoint ), syncNodes ) );
+			}
+
+			final SetpointCache phaseSetpoint = cacheSetpoint( cavity.findChannel( RfCavity.CAV_PHASE_SET_HANDLE ), cavity.getDfltCavPhase() );
+			if ( phaseSetpoint != null ) {
+				addReadback( cavity.findChannel( RfCavity.CAV_PHASE_AVG_HANDLE ), phaseSetpoint );
+				MODEL_INPUTS.add( new ModelInputSource( cavity, RfCavityPropertyAccessor.PROPERTY_PHASE, Collections.singletonList( phaseSetpoint ), syncNodes ) );
+			}
+		}
+
+		for ( final ModelInputSource input : MODEL_INPUTS ) {
+			for ( final SetpointCache setpoint : input.getSetpoints() ) {
+				setpoint.addDependent( input );
+			}
+		}
+	}
+
+
+	/** create the BPM and wire scanner diagnostics */
+	private void configureDiagnostics() {
+		final List<BPM> bpms = SEQUENCE.<BPM>getAllNodesWithQualifier( QualifierFactory.qualifierWithStatusAndType( true, BPM.s_strType ) );
+		for ( final BPM bpm : bpms ) {
+			BPM_SOURCES.add( new BPMSource( bpm ) );
+		}
+
+		final TypeQualifier profileQualifier = QualifierFactory.qualifierWithStatusAndType( true, ProfileMonitor.PROFILE_MONITOR_TYPE );
+		for ( final AcceleratorNode node : SEQUENCE.getAllNodesWithQualifier( profileQualifier ) ) {
+			if ( node instanceof ProfileMonitor ) {
+				PROFILE_SOURCES.add( new ProfileMonitorSource( (ProfileMonitor)node ) );
+			}
+		}
+	}
+
+
+	/** cache the setpoint channel initialized to the design value, or return null if the channel is not valid */
+	private SetpointCache cacheSetpoint( final Channel channel, final double designValue ) {
+		if ( channel == null || !channel.isValid() )  return null;
+
+		SetpointCache setpoint = SETPOINTS.get( channel );
+		if ( setpoint == null ) {
+			setpoint = new SetpointCache( channel, designValue );
+			SETPOINTS.put( channel, setpoint );
+		}
+		return setpoint;
+	}
+
+
+	/** add a readback which follows the specified setpoint if the readback channel is valid */
+	private void addReadback( final Channel channel, final SetpointCache setpoint ) {
+		if ( channel instanceof IServerChannel && channel.isValid() ) {
+			READBACKS.add( new ReadbackSource( (IServerChannel)channel, setpoint ) );
+		}
+	}
+
+
+	/** publish the initial setpoints and monitor them for changes by clients */
+	private void monitorSetpoints() throws Exception {
+		for ( final SetpointCache setpoint : SETPOINTS.values() ) {
+			setpoint.publishInitialValue();
+		}
+		CHANNEL_FACTORY.publishStagedValues();
+
+		for ( final SetpointCache setpoint : SETPOINTS.values() ) {
+			SETPOINT_MONITORS.add( setpoint.getChannel().addMonitorValue( setpoint, Monitor.VALUE ) );
+		}
+	}
+
+
+
+	/** latest value of a setpoint channel, updated by its monitor */
+	private class SetpointCache implements IEventSinkValue {
+		/** setpoint channel */
+		final private Channel CHANNEL;
+
+		/** model inputs which depend on this setpoint */
+		final private List<ModelInputSource> DEPENDENTS;
+
+		/** latest setpoint value */
+		private volatile double _value;
+
+
+		/** Constructor */
+		public SetpointCache( final Channel channel, final double initialValue ) {
+			CHANNEL = channel;
+			DEPENDENTS = new ArrayList<ModelInputSource>( 1 );
+			_value = initialValue;
+		}
+
+
+		/** get the setpoint channel */
+		public Channel getChannel() {
+			return CHANNEL;
+		}
+
+
+		/** get the latest setpoint value */
+		public double getValue() {
+			return _value;
+		}
+
+
+		/** add a model input which depends on this setpoint */
+		public void addDependent( final ModelInputSource input ) {
+			DEPENDENTS.add( input );
+		}
+
+
+		/** stage the initial value on the setpoint channel */
+		public void publishInitialValue() {
+			if ( CHANNEL instanceof IServerChannel ) {
+				((IServerChannel)CHANNEL).stageValue( _value );
+			}
+		}
+
+
+		/** handle the monitor event by caching the new value and marking the dependent model inputs as changed */
+		public void eventValue( final ChannelRecord record, final Channel channel ) {
+			final double value = record.doubleValue();
+			if ( value != _value ) {
+				_value = value;
+				CHANGED_INPUTS.addAll( DEPENDENTS );
+			}
+		}
+	}
+
+
+
+	/** node property of the model computed from one or more setpoints */
+	private static class ModelInputSource {
+		/** node whose property is set */
+		final private AcceleratorNode NODE;
+
+		/** name of the property */
+		final private String PROPERTY;
+
+		/** setpoints in the order of the node's live property channels */
+		final private List<SetpointCache> SETPOINTS;
+
+		/** nodes whose model elements must be resynchronized when the input changes */
+		final private Collection<AcceleratorNode> SYNC_NODES;
+
+		/** buffer of the setpoint values */
+		final private double[] VALUES;
+
+
+		/** Constructor */
+		public ModelInputSource( final AcceleratorNode node, final String property, final List<SetpointCache> setpoints, final Collection<AcceleratorNode> syncNodes ) {
+			NODE = node;
+			PROPERTY = property;
+			SETPOINTS = setpoints;
+			SYNC_NODES = syncNodes;
+			VALUES = new double[setpoints.size()];
+		}
+
+
+		/** get the setpoints */
+		public List<SetpointCache> getSetpoints() {
+			return SETPOINTS;
+		}
+
+
+		/** get the nodes to resynchronize */
+		public Collection<AcceleratorNode> getSynchronizedNodes() {
+			return SYNC_NODES;
+		}
+
+
+		/** compute the property from the setpoints and set it as a model input of the scenario */
+		public void apply( final Scenario scenario ) {
+			for ( int index = 0 ; index < VALUES.length ; index++ ) {
+				VALUES[index] = SETPOINTS.get( index ).getValue();
+			}
+			scenario.setModelInput( NODE, PROPERTY, NODE.getLivePropertyValue( PROPERTY, VALUES ) );
+		}
+	}
+
+
+
+	/** readback channel which follows a setpoint with noise */
+	private static class ReadbackSource {
+		/** readback channel */
+		final private IServerChannel CHANNEL;
+
+		/** setpoint followed by the readback */
+		final private SetpointCache SETPOINT;
+
+
+		/** Constructor */
+		public ReadbackSource( final IServerChannel channel, final SetpointCache setpoint ) {
+			CHANNEL = channel;
+			SETPOINT = setpoint;
+		}
+
+
+		/** stage the setpoint with noise on the readback channel */
+		public void stage( final double noise ) {
+			final double setpoint = SETPOINT.getValue();
+			CHANNEL.stageValue( noise != 0.0 ? NoiseGenerator.setValForPV( setpoint, noise, 0.0 ) : setpoint );
+		}
+	}
+
+
+
+	/** BPM whose average position, amplitude and phase are published from the latest simulation */
+	private static class BPMSource {
+		/** hardwired BPM amplitude */
+		final static private double AMPLITUDE = 20.0;
+
+		/** hardwired BPM amplitude noise in percent */
+		final static private double AMPLITUDE_NOISE = 5.0;
+
+		/** BPM */
+		final private BPM BPM_NODE;
+
+		/** horizontal average channel */
+		final private IServerChannel X_AVG_CHANNEL;
+
+		/** vertical average channel */
+		final private IServerChannel Y_AVG_CHANNEL;
+
+		/** amplitude average channel */
+		final private IServerChannel AMP_AVG_CHANNEL;
+
+		/** phase average channel or null if the phase is not simulated */
+		final private IServerChannel PHASE_AVG_CHANNEL;
+
+		/** simulated horizontal position (mm) */
+		private double _x;
+
+		/** simulated vertical position (mm) */
+		private double _y;
+
+		/** simulated phase (degrees) or NaN if not simulated */
+		private double _phase;
+
+
+		/** Constructor */
+		public BPMSource( final BPM bpm ) {
+			BPM_NODE = bpm;
+			X_AVG_CHANNEL = serverChannel( bpm, BPM.X_AVG_HANDLE );
+			Y_AVG_CHANNEL = serverChannel( bpm, BPM.Y_AVG_HANDLE );
+			AMP_AVG_CHANNEL = serverChannel( bpm, BPM.AMP_AVG_HANDLE );
+			PHASE_AVG_CHANNEL = bpm instanceof RingBPM ? null : serverChannel( bpm, BPM.PHASE_AVG_HANDLE );
+			_phase = Double.NaN;
+		}
+
+
+		/** load the simulated values from the trajectory */
+		public void load( final Trajectory<?> trajectory, final SimpleSimResultsAdaptor resultsAdaptor, final boolean computePhase ) {
+			final ProbeState<?> state = trajectory.stateForElement( BPM_NODE.getId() );
+			if ( state == null )  return;
+
+			final PhaseVector coordinates = resultsAdaptor.computeFixedOrbit( state );
+			_x = coordinates.getx() * 1000.0;
+			_y = coordinates.gety() * 1000.0;
+
+			final BPMBucket bucket = (BPMBucket)BPM_NODE.getBucket( "bpm" );
+			_phase = computePhase && bucket != null ? state.getTime() * 360. * ( bucket.getFrequency() * 1.e6 ) % 360.0 : Double.NaN;
+		}
+
+
+		/** stage the simulated values with noise */
+		public void stage( final double noise ) {
+			if ( X_AVG_CHANNEL != null )  X_AVG_CHANNEL.stageValue( NoiseGenerator.setValForPV( _x, noise, 0.0 ) );
+			if ( Y_AVG_CHANNEL != null )  Y_AVG_CHANNEL.stageValue( NoiseGenerator.setValForPV( _y, noise, 0.0 ) );
+			if ( AMP_AVG_CHANNEL != null )  AMP_AVG_CHANNEL.stageValue( NoiseGenerator.setValForPV( AMPLITUDE, AMPLITUDE_NOISE, 0.1 ) );
+			if ( PHASE_AVG_CHANNEL != null && !Double.isNaN( _phase ) )  PHASE_AVG_CHANNEL.stageValue( _phase );
+		}
+	}
+
+
+
+	/** wire scanner whose beam sizes are published from the latest simulation */
+	private static class ProfileMonitorSource {
+		/** wire scanner */
+		final private ProfileMonitor MONITOR;
+
+		/** horizontal sigma channel */
+		final private IServerChannel H_SIGMA_CHANNEL;
+
+		/** vertical sigma channel */
+		final private IServerChannel V_SIGMA_CHANNEL;
+
+		/** simulated horizontal beam size (mm) */
+		private double _hSigma;
+
+		/** simulated vertical beam size (mm) */
+		private double _vSigma;
+
+
+		/** Constructor */
+		public ProfileMonitorSource( final ProfileMonitor monitor ) {
+			MONITOR = monitor;
+			H_SIGMA_CHANNEL = serverChannel( monitor, ProfileMonitor.H_SIGMA_M_HANDLE );
+			V_SIGMA_CHANNEL = serverChannel( monitor, ProfileMonitor.V_SIGMA_M_HANDLE );
+		}
+
+
+		/** load the simulated beam sizes from the envelope trajectory */
+		public void load( final Trajectory<?> trajectory ) {
+			final ProbeState<?> state = trajectory.stateForElement( MONITOR.getId() );
+			if ( state instanceof EnvelopeProbeState ) {
+				final Twiss[] twiss = ((EnvelopeProbeState)state).getCovarianceMatrix().computeTwiss();
+				_hSigma = twiss[0].getEnvelopeRadius() * 1000.;
+				_vSigma = twiss[1].getEnvelopeRadius() * 1000.;
+			}
+		}
+
+
+		/** stage the simulated beam sizes */
+		public void stage() {
+			if ( H_SIGMA_CHANNEL != null )  H_SIGMA_CHANNEL.stageValue( _hSigma );
+			if ( V_SIGMA_CHANNEL != null )  V_SIGMA_CHANNEL.stageValue( _vSigma );
+		}
+	}
+
+
+	/** get the node's server channel for the handle or null if there is no valid server channel */
+	static private IServerChannel serverChannel( final AcceleratorNode node, final String handle ) {
+		final Channel channel = node.findChannel( handle );
+		return channel instanceof IServerChannel && channel.isValid() ? (IServerChannel)channel : null;
+	}
+}
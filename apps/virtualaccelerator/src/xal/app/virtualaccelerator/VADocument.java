@@ -554,14 +554,14 @@ public class VADocument extends AcceleratorDocument implements ActionListener, P
     
     
 	/** create a new ring probe */
-	static private TransferMapProbe createRingProbe( final AcceleratorSeq sequence ) throws InstantiationException {
+	static TransferMapProbe createRingProbe( final AcceleratorSeq sequence ) throws InstantiationException {
 		final TransferMapTracker tracker = AlgorithmFactory.createTransferMapTracker( sequence );
 		return ProbeFactory.getTransferMapProbe( sequence, tracker );
 	}
     
     
 	/** create a new envelope probe */
-	static private EnvelopeProbe createEnvelopeProbe( final AcceleratorSeq sequence ) throws InstantiationException {
+	static EnvelopeProbe createEnvelopeProbe( final AcceleratorSeq sequence ) throws InstantiationException {
 		final IAlgorithm tracker = AlgorithmFactory.createEnvTrackerAdapt( sequence );
 		return ProbeFactory.getEnvelopeProbe( sequence, tracker );
 	}
@@ -36,6 +36,9 @@ public class CorrelationController implements DataListener {
  	/** the data adaptor label used for reading and writing this controller */
 	static public final String DATA_LABEL = "CorrelationController";
 	
+	/** period in milliseconds between redraws of the correlation plot */
+	static final private int REDRAW_PERIOD = 100;
+	
 	/** file dialog for choosing the export file */
 	private static JFileChooser EXPORT_FILE_DIALOG;
 	
@@ -58,11 +61,14 @@ public class CorrelationController implements DataListener {
 	final private JSpinner FIT_ORDER_SPINNER;
 	
 	/** handles the plotting of correlations */
-	private CorrelationPlotter _correlationPlotter;
+	private volatile CorrelationPlotter _correlationPlotter;
 	
 	/** table model for the channel table */
 	private ChannelTableModel CHANNEL_TABLE_MODEL;
 	
+	/** timer which redraws the plot at a throttled rate instead of for each correlation */
+	final private javax.swing.Timer REDRAW_TIMER;
+	
 	
 	/** Primary Constructor */
 	public CorrelationController( final XyzDocument document, final WindowReference windowReference ) {
@@ -85,6 +91,19 @@ public class CorrelationController implements DataListener {
 		
 		// start handling events
 		MODEL.addCorrelationModelListener( new ModelHandler() );	
+		
+		REDRAW_TIMER = new javax.swing.Timer( REDRAW_PERIOD, new ActionListener() {
+			public void actionPerformed( final ActionEvent event ) {
+				_correlationPlotter.redraw();
+			}
+		});
+		REDRAW_TIMER.start();
+	}
+	
+	
+	/** stop redrawing the plot since the document is closing */
+	public void dispose() {
+		REDRAW_TIMER.stop();
 	}
 	
     
@@ -435,7 +454,7 @@ public class CorrelationController implements DataListener {
 		}
 		
 		
-		/** correlation captured */
+		/** correlation captured (the point is drawn by the next scheduled redraw) */
 		public void correlationCaptured( final Correlation<ChannelTimeRecord> correlation, final List<ChannelTimeRecord> plotRecords ) {
 			_correlationPlotter.plot( plotRecords, correlation.meanDate() );			
 		}
@@ -48,8 +48,8 @@ public class CorrelationModel implements DataListener {
 	/** default correlation buffer limit */
 	final static public int DEFAULT_CORRELATION_BUFFER_LIMIT = 100;
 	
-	/** correlation buffer */
-	private List<Correlation<ChannelTimeRecord>> CORRELATION_BUFFER;
+	/** correlation buffer ordered from the oldest to the newest correlation */
+	final private Deque<Correlation<ChannelTimeRecord>> CORRELATION_BUFFER;
 	
 	/** limit for the buffer */
 	protected volatile int _bufferLimit;
@@ -66,7 +66,7 @@ public class CorrelationModel implements DataListener {
 		PLOT_CHANNEL_IDs = new ArrayList<String>();
 		MONITOR_CHANNEL_IDs = new ArrayList<String>();
 		
-		CORRELATION_BUFFER = new ArrayList<Correlation<ChannelTimeRecord>>();
+		CORRELATION_BUFFER = new ArrayDeque<Correlation<ChannelTimeRecord>>();
 		CORRELATOR = new ChannelCorrelator( 0.001 );
 		
 		setCorrelationBufferLimit( DEFAULT_CORRELATION_BUFFER_LIMIT );
@@ -133,13 +133,9 @@ public class CorrelationModel implements DataListener {
 	
 	/** Get a copy of the correlation buffer */
 	public List<Correlation<ChannelTimeRecord>> getCorrelationBufferCopy() {
-		final List<Correlation<ChannelTimeRecord>> buffer = new ArrayList<Correlation<ChannelTimeRecord>>();
-		
 		synchronized ( CORRELATION_BUFFER ) {
-			buffer.addAll( CORRELATION_BUFFER );
+			return new ArrayList<Correlation<ChannelTimeRecord>>( CORRELATION_BUFFER );
 		}
-		
-		return buffer;
 	}
 	
 	
@@ -489,7 +485,7 @@ public class CorrelationModel implements DataListener {
 			synchronized ( CORRELATION_BUFFER ) {
 				CORRELATION_BUFFER.add( correlation );
 				while ( CORRELATION_BUFFER.size() > _bufferLimit ) {
-					CORRELATION_BUFFER.remove( 0 );
+					CORRELATION_BUFFER.removeFirst();
 				}
 			}
 			
@@ -16,7 +16,6 @@ import java.awt.event.*;
 import java.awt.Color;
 import java.util.*;
 import java.text.DecimalFormat;
-import java.text.SimpleDateFormat;
 
 import xal.extension.bricks.WindowReference;
 import xal.extension.widgets.plot.*;
@@ -71,10 +70,14 @@ abstract class CorrelationPlotter {
 	}
 	
 	
-	/** plot the new correlation point */
+	/** buffer the new correlation point to be drawn at the next redraw */
 	abstract public void plot( final List<ChannelTimeRecord> records, final Date timeStamp );
 	
 	
+	/** redraw the plot if correlation points have been buffered since the last redraw (must be called on the event dispatch thread) */
+	public void redraw() {}
+	
+	
 	/** determines whether this plotter can plot the specified number of channels */
 	abstract public boolean supportsChannelCount( final int numChannels );
 	
@@ -135,8 +138,11 @@ class EmptyCorrelationPlotter extends CorrelationPlotter{
 
 /** plots the 2D correlated data */
 class CorrelationPlotter2D extends CorrelationPlotter {
-	/** format for writing the time stamp */
-	final static protected SimpleDateFormat TIME_STAMP_FORMAT;
+	/** width and height in pixels of the plot cells in which only the most recent point is drawn */
+	final static protected int CELL_PIXELS = 4;
+	
+	/** diameter in pixels of a drawn point */
+	final static protected int POINT_WIDTH = 10;
 	
 	/** plot for displaying correlated data */
 	final protected FunctionGraphsJPanel CORRELATION_PLOT;
@@ -150,24 +156,43 @@ class CorrelationPlotter2D extends CorrelationPlotter {
 	/** fit data */
 	final protected BasicGraphData FIT_DATA;
 	
-	/** buffer of plot data */
-	final protected List<CorrelationPoint2D> PLOT_BUFFER;
+	/** window of correlated points */
+	final protected CorrelationSeries SERIES;
+	
+	/** single point curves reused for drawing the points */
+	final private List<CurveData> POINT_CURVES;
+	
+	/** curves drawn by the last redraw */
+	final private Vector<CurveData> DRAWN_CURVES;
+	
+	/** index of the most recent point in each plot cell or -1 if the cell is empty */
+	private int[] _cellPoints;
+	
+	/** indicates whether points have been buffered or the plot cleared since the last redraw */
+	protected volatile boolean _needsRedraw;
+	
+	/** plot limits of the last redraw if it had points outside of them and null otherwise */
+	private double[] _outsideLimits;
 	
 	/** fit equation */
 	protected String _fitEquation;
 	
 	
-	// static initializer
-	static {
-		TIME_STAMP_FORMAT = new SimpleDateFormat( "yyyy/MM/dd'T'HH:mm:ss.SSS" );
+	/** Constructor */
+	public CorrelationPlotter2D( final FunctionGraphsJPanel plot, final WindowReference windowReference ) {
+		this( plot, windowReference, 2 );
 	}
 	
+	
 	/** Constructor */
-	public CorrelationPlotter2D( final FunctionGraphsJPanel plot, final WindowReference windowReference ) {
+	protected CorrelationPlotter2D( final FunctionGraphsJPanel plot, final WindowReference windowReference, final int dimension ) {
 		CORRELATION_PLOT = plot;
 		WINDOW_REFERENCE = windowReference;
 		
-		PLOT_BUFFER = Collections.synchronizedList( new LinkedList<CorrelationPoint2D>() );
+		SERIES = new CorrelationSeries( dimension, _bufferLimit );
+		POINT_CURVES = new ArrayList<CurveData>();
+		DRAWN_CURVES = new Vector<CurveData>();
+		_cellPoints = new int[0];
 		
 		_fitEquation = "";
 		FIT_DATA = new CubicSplineGraphData();
@@ -188,19 +213,30 @@ class CorrelationPlotter2D extends CorrelationPlotter {
 	}
 	
 	
+	/** set the buffer limit */
+	public void setBufferLimit( final int bufferLimit ) {
+		super.setBufferLimit( bufferLimit );
+		SERIES.setCapacity( bufferLimit );
+		_needsRedraw = true;
+	}
+	
+	
 	/** perform a fit */
 	public void performFit() {
-		final List<CorrelationPoint2D> points = new ArrayList<CorrelationPoint2D>( PLOT_BUFFER );	// get a local copy which is not changing
-		final int numPoints = points.size();
+		// get a local copy which is not changing
+		final double[] xValues;
+		final double[] yValues;
+		synchronized( SERIES ) {
+			xValues = SERIES.copyColumn( 0 );
+			yValues = SERIES.copyColumn( 1 );
+		}
+		final int numPoints = xValues.length;
 		if ( numPoints > _fitOrder ) {
 			try {
 				clearFit();	// clear the previous fit if any
 				
 				final Polynomial fitter = new Polynomial( _fitOrder );
-				for ( int index = 0; index < numPoints; index++ ) {
-					final CorrelationPoint2D point = points.get( index );
-					fitter.addData( point.getX(), point.getY() );
-				}
+				fitter.setData( xValues, yValues );
 				fitter.fitFromCenter();
 				final String equation = fitter.equation();
 				_fitEquation = equation;
@@ -241,18 +277,20 @@ class CorrelationPlotter2D extends CorrelationPlotter {
 	/** clear the plot */
 	synchronized public void clearPlot() {
 		super.clearPlot();
+		SERIES.clear();
+		DRAWN_CURVES.clear();
+		_outsideLimits = null;
 		CORRELATION_PLOT.removeAllCurveData();
 		CORRELATION_PLOT.addCurveData( RECENT_CROSS_HAIR );
 		FIT_DATA.removeAllPoints();
+		updateStatisticsLabel();
 	}
 	
 	
 	/** draw the cross hair indicating the most recent point */
-	protected void drawRecentCrossHair( final CorrelationPoint2D point ) {
+	protected void drawRecentCrossHair( final double x, final double y ) {
 		final double halfWidth = ( CORRELATION_PLOT.getCurrentMaxX() - CORRELATION_PLOT.getCurrentMinX() ) / 50;
 		final double halfHeight = ( CORRELATION_PLOT.getCurrentMaxY() - CORRELATION_PLOT.getCurrentMinY() ) / 50;
-		final double x = point.getX();
-		final double y = point.getY();
 		
 		RECENT_CROSS_HAIR.clear();
 		RECENT_CROSS_HAIR.addPoint( x - halfWidth, y + halfHeight );
@@ -263,23 +301,156 @@ class CorrelationPlotter2D extends CorrelationPlotter {
 	}
 	
 	
-	/** plot the new correlation point */
-	synchronized public void plot( final List<ChannelTimeRecord> records, final Date timeStamp ) {
-		if ( records.size() == 2 ) {
-			final CorrelationPoint2D point = new CorrelationPoint2D( records, timeStamp );
-			PLOT_BUFFER.add( point );
-			CORRELATION_PLOT.addCurveData( point.getCurveData() );
-			drawRecentCrossHair( point );
-			trimBuffer();
+	/** buffer the new correlation point to be drawn at the next redraw */
+	public void plot( final List<ChannelTimeRecord> records, final Date timeStamp ) {
+		final int dimension = SERIES.getDimension();
+		if ( records.size() == dimension ) {
+			final double[] values = new double[dimension];
+			for ( int index = 0 ; index < dimension ; index++ ) {
+				values[index] = records.get( index ).doubleValue();
+			}
+			SERIES.add( values );
+			_needsRedraw = true;
+		}
+	}
+	
+	
+	/**
+	 * Redraw the buffered points. Only the most recent point within each small cell of the visible plot area is drawn, so the
+	 * cost of painting is bounded by the plot size rather than the buffer size. The extreme points are always drawn so the
+	 * plot scales to include all the points.
+	 */
+	synchronized public void redraw() {
+		final double[] limits = getPlotLimits();
+		if ( !_needsRedraw && ( _outsideLimits == null || Arrays.equals( _outsideLimits, limits ) ) )  return;
+		_needsRedraw = false;
+		
+		DRAWN_CURVES.clear();
+		DRAWN_CURVES.add( RECENT_CROSS_HAIR );
+		
+		synchronized( SERIES ) {
+			final int count = SERIES.size();
+			if ( count > 0 ) {
+				prepareRedraw( count );
+				_outsideLimits = selectPoints( count, limits ) ? limits : null;
+				drawRecentCrossHair( SERIES.getValue( 0, count - 1 ), SERIES.getValue( 1, count - 1 ) );
+			}
+			else {
+				_outsideLimits = null;
+				RECENT_CROSS_HAIR.clear();
+			}
+			updateStatisticsLabel();
+		}
+		
+		CORRELATION_PLOT.setCurveData( DRAWN_CURVES );
+	}
+	
+	
+	/** get the current plot limits as minimum x, maximum x, minimum y and maximum y */
+	private double[] getPlotLimits() {
+		return new double[] { CORRELATION_PLOT.getCurrentMinX(), CORRELATION_PLOT.getCurrentMaxX(), CORRELATION_PLOT.getCurrentMinY(), CORRELATION_PLOT.getCurrentMaxY() };
+	}
+	
+	
+	/**
+	 * Select the points to draw and add their curves to the drawn curves (must be called while holding the series lock)
+	 * @param count number of points in the series
+	 * @param limits the plot limits
+	 * @return true if some points are outside of the plot limits
+	 */
+	private boolean selectPoints( final int count, final double[] limits ) {
+		final int columns = Math.max( 1, CORRELATION_PLOT.getWidth() / CELL_PIXELS );
+		final int rows = Math.max( 1, CORRELATION_PLOT.getHeight() / CELL_PIXELS );
+		final int cellCount = columns * rows;
+		if ( _cellPoints.length < cellCount ) {
+			_cellPoints = new int[cellCount];
 		}
+		Arrays.fill( _cellPoints, 0, cellCount, -1 );
+		
+		final double minX = limits[0];
+		final double maxX = limits[1];
+		final double minY = limits[2];
+		final double maxY = limits[3];
+		final double columnScale = maxX > minX ? columns / ( maxX - minX ) : 0.0;
+		final double rowScale = maxY > minY ? rows / ( maxY - minY ) : 0.0;
+		
+		boolean hasOutsidePoints = false;
+		int minXIndex = -1, maxXIndex = -1, minYIndex = -1, maxYIndex = -1;
+		for ( int index = 0 ; index < count ; index++ ) {
+			final double x = SERIES.getValue( 0, index );
+			final double y = SERIES.getValue( 1, index );
+			if ( Double.isNaN( x ) || Double.isNaN( y ) )  continue;
+			
+			if ( minXIndex < 0 || x < SERIES.getValue( 0, minXIndex ) )  minXIndex = index;
+			if ( maxXIndex < 0 || x > SERIES.getValue( 0, maxXIndex ) )  maxXIndex = index;
+			if ( minYIndex < 0 || y < SERIES.getValue( 1, minYIndex ) )  minYIndex = index;
+			if ( maxYIndex < 0 || y > SERIES.getValue( 1, maxYIndex ) )  maxYIndex = index;
+			
+			if ( x >= minX && x <= maxX && y >= minY && y <= maxY ) {
+				final int column = Math.min( columns - 1, (int)( ( x - minX ) * columnScale ) );
+				final int row = Math.min( rows - 1, (int)( ( y - minY ) * rowScale ) );
+				_cellPoints[ row * columns + column ] = index;	// later points replace earlier ones as when painted over
+			}
+			else {
+				hasOutsidePoints = true;
+			}
+		}
+		
+		int curveCount = 0;
+		for ( int cell = 0 ; cell < cellCount ; cell++ ) {
+			final int index = _cellPoints[cell];
+			if ( index >= 0 ) {
+				addPointCurve( curveCount++, index );
+			}
+		}
+		if ( hasOutsidePoints ) {
+			for ( final int index : new int[] { minXIndex, maxXIndex, minYIndex, maxYIndex } ) {
+				if ( index >= 0 ) {
+					addPointCurve( curveCount++, index );
+				}
+			}
+		}
+		
+		return hasOutsidePoints;
+	}
+	
+	
+	/** reuse or create the point curve at the specified pool position for the point at the specified series index */
+	private void addPointCurve( final int curveIndex, final int pointIndex ) {
+		if ( curveIndex == POINT_CURVES.size() ) {
+			final CurveData curve = new CurveData();
+			curve.setLineWidth( POINT_WIDTH );
+			POINT_CURVES.add( curve );
+		}
+		final CurveData curve = POINT_CURVES.get( curveIndex );
+		curve.clear();
+		curve.addPoint( SERIES.getValue( 0, pointIndex ), SERIES.getValue( 1, pointIndex ) );
+		curve.setColor( getPointColor( pointIndex ) );
+		DRAWN_CURVES.add( curve );
+	}
+	
+	
+	/** prepare to draw the points (called while holding the series lock) */
+	protected void prepareRedraw( final int count ) {}
+	
+	
+	/** get the color for the point at the specified series index (called while holding the series lock) */
+	protected Color getPointColor( final int pointIndex ) {
+		return Color.BLUE;
 	}
 	
 	
-	/** trim the buffer of any excess points */
-	protected void trimBuffer() {
-		while( PLOT_BUFFER.size() > _bufferLimit ) {
-			final CorrelationPoint2D oldPoint = PLOT_BUFFER.remove( 0 );
-			CORRELATION_PLOT.removeCurveData( oldPoint.getCurveData() );
+	/** display the running correlation statistics of the window */
+	private void updateStatisticsLabel() {
+		final JLabel statisticsLabel = (JLabel)WINDOW_REFERENCE.getView( "CorrelationStatsLabel" );
+		if ( statisticsLabel == null )  return;
+		
+		final int count = SERIES.size();
+		if ( count > 1 ) {
+			statisticsLabel.setText( String.format( " N: %d  r: %.4f  slope: %.4g  intercept: %.4g ", count, SERIES.getCorrelationCoefficient(), SERIES.getSlope(), SERIES.getIntercept() ) );
+		}
+		else {
+			statisticsLabel.setText( "" );
 		}
 	}
 }
@@ -306,7 +477,7 @@ class CorrelationPlotter3D extends CorrelationPlotter2D {
 	
 	/** Constructor */
 	public CorrelationPlotter3D( final FunctionGraphsJPanel plot, final WindowReference windowReference ) {
-		super( plot, windowReference );
+		super( plot, windowReference, 3 );
 		
 		_minZ = Double.MAX_VALUE;
 		_maxZ = -Double.MAX_VALUE;
@@ -321,30 +492,6 @@ class CorrelationPlotter3D extends CorrelationPlotter2D {
 	}
 	
 	
-	/** plot the new correlation point */
-	synchronized public void plot( final List<ChannelTimeRecord> records, final Date timeStamp ) {
-		if ( records.size() == 3 ) {
-			final CorrelationPoint3D point = new CorrelationPoint3D( records, timeStamp );
-			updateSpectrumRangeForNewPoint( point.getZ() );
-			point.applyColorForRange( _startZ, _endZ );
-			PLOT_BUFFER.add( point );
-			CORRELATION_PLOT.addCurveData( point.getCurveData() );
-			drawRecentCrossHair( point );
-			trimBuffer();
-		}
-	}
-	
-	
-	/** trim the buffer of any excess points */
-	protected void trimBuffer() {
-		while( PLOT_BUFFER.size() > _bufferLimit ) {
-			final CorrelationPoint3D oldPoint = (CorrelationPoint3D)PLOT_BUFFER.remove( 0 );
-			CORRELATION_PLOT.removeCurveData( oldPoint.getCurveData() );
-			updateSpectrumRangeForOldPoint( oldPoint.getZ() );
-		}
-	}
-	
-	
 	/** clear the plot */
 	synchronized public void clearPlot() {
 		super.clearPlot();
@@ -355,40 +502,38 @@ class CorrelationPlotter3D extends CorrelationPlotter2D {
 	}
 	
 	
-	/** update the spectrum range if the new point's z value is outside of the spectrum range */
-	private void updateSpectrumRangeForNewPoint( final double z ) {
-		if ( z < _minZ ) {
-			_minZ = z;
-		}
-		if ( z > _maxZ ) {
-			_maxZ = z;
+	/** update the spectrum range from the extrema of Z in the buffer */
+	protected void prepareRedraw( final int count ) {
+		double minZ = Double.MAX_VALUE;
+		double maxZ = -Double.MAX_VALUE;
+		for ( int index = 0 ; index < count ; index++ ) {
+			final double z = SERIES.getValue( 2, index );
+			if ( z < minZ ) {
+				minZ = z;
+			}
+			if ( z > maxZ ) {
+				maxZ = z;
+			}
 		}
 		
-		if ( z < _startZ || z > _endZ ) {
+		if ( minZ != _minZ || maxZ != _maxZ ) {
+			_minZ = minZ;
+			_maxZ = maxZ;
 			makeSpectrumRangeFromExtrema();
 		}
 	}
 	
 	
-	/** update the spectrum range if the old point's z value matches the minimum or maximum values indicating that it is may have been a range determining point */
-	private void updateSpectrumRangeForOldPoint( final double oldZ ) {
-		if ( oldZ == _minZ || oldZ == _maxZ ) {
-			// need to determine the new extrema from the buffer
-			double minZ = Double.MAX_VALUE;
-			double maxZ = -Double.MAX_VALUE;
-			for ( final CorrelationPoint2D point : PLOT_BUFFER ) {
-				final double z = ((CorrelationPoint3D)point).getZ();
-				if ( z < minZ ) {
-					minZ = z;
-				}
-				if ( z > maxZ ) {
-					maxZ = z;
-				}
-			}
-			_minZ = minZ;
-			_maxZ = maxZ;
-			
-			makeSpectrumRangeFromExtrema();				
+	/** get the color of the point from its Z value within the spectrum range */
+	protected Color getPointColor( final int pointIndex ) {
+		final double z = SERIES.getValue( 2, pointIndex );
+		if ( z >= _startZ && z <= _endZ ) {
+			// color value is in the range from 0 to 1 and maps to the red to blue spectrum
+			final float colorValue = (float)( ( z - _startZ ) / ( _endZ - _startZ ) );
+			return ColorSpectrumPanel.getColor( colorValue );
+		}
+		else {
+			return Color.BLACK;
 		}
 	}
 	
@@ -410,12 +555,6 @@ class CorrelationPlotter3D extends CorrelationPlotter2D {
 		final JLabel startZLabel = (JLabel)WINDOW_REFERENCE.getView( "StartZLabel" );
 		startZLabel.setText( RANGE_FORMAT.format( _startZ ) );
 		endZLabel.setText( RANGE_FORMAT.format( _endZ ) );
-		
-		// apply the new spectrum range to the current points in the buffer
-		for ( final CorrelationPoint2D point : PLOT_BUFFER ) {
-			final CorrelationPoint3D point3D = (CorrelationPoint3D)point;
-			point3D.applyColorForRange( _startZ, _endZ );
-		}			
 	}
 	
 	
@@ -431,91 +570,3 @@ class CorrelationPlotter3D extends CorrelationPlotter2D {
 		}
 	}
 }
-
-
-
-/** holds the x and y data for a correlation */
-class CorrelationPoint2D {
-	/** time stamp of the correlated event */
-	final protected Date TIME_STAMP;
-	
-	/** curve data for x and y along with the color corresponding to z */
-	final protected CurveData CURVE_DATA;
-	
-	
-	/** Constructor */
-	public CorrelationPoint2D( final List<ChannelTimeRecord> records, final Date timeStamp ) {
-		TIME_STAMP = timeStamp;
-		
-		if ( records.size() >= 2 ) {
-			CURVE_DATA = new CurveData();
-			CURVE_DATA.setColor( Color.BLUE );
-			CURVE_DATA.setLineWidth( 10 );
-			final double x = records.get(0).doubleValue();
-			final double y = records.get(1).doubleValue();
-			CURVE_DATA.addPoint( x, y );
-		}
-		else {
-			CURVE_DATA = null;
-		}
-	}
-	
-	
-	/** get the time stamp of the correlated event */
-	public Date getTimeStamp() {
-		return TIME_STAMP;
-	}
-	
-	
-	/** get the X coordinate */
-	public double getX() {
-		return CURVE_DATA.getX( 0 );
-	}
-	
-	
-	/** get the Y coordinate */
-	public double getY() {
-		return CURVE_DATA.getY( 0 );
-	}
-	
-	
-	/** get the curve data */
-	public CurveData getCurveData() {
-		return CURVE_DATA;
-	}
-}
-
-
-
-/** holds the x, y and z data for a correlation */
-class CorrelationPoint3D extends CorrelationPoint2D {
-	/** z data */
-	final private double Z;
-	
-	
-	/** Constructor */
-	public CorrelationPoint3D( final List<ChannelTimeRecord> records, final Date timeStamp ) {
-		super( records, timeStamp );
-		
-		Z = records.size() == 3 ? records.get(2).doubleValue() : Double.NaN;
-	}
-	
-	
-	/** get the z value */
-	public double getZ() {
-		return Z;
-	}
-	
-	
-	/** Apply the color for the specified z range */
-	public void applyColorForRange( final double start, final double end ) {
-		if ( Z >= start && Z <= end ) {
-			// color value is in the range from 0 to 1 and maps to the red to blue spectrum
-			final float colorValue = (float)( ( Z - start ) / ( end - start ) );
-			CURVE_DATA.setColor( ColorSpectrumPanel.getColor( colorValue ) );
-		}
-		else {
-			CURVE_DATA.setColor( Color.BLACK );
-		}
-	}
-}
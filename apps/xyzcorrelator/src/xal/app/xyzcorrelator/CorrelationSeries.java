@@ -0,0 +1,241 @@
+//
+//  CorrelationSeries.java
+//  xal
+//
+//  Created on 10/19/26.
+//
+
+package xal.app.xyzcorrelator;
+
+
+/**
+ * Fixed window of correlated samples kept in primitive columns (x, y and optionally z) of a ring buffer.
+ * Running means and co-moments of x and y are updated as samples enter and leave the window, so the linear
+ * fit and covariance of the window are available in constant time per sample. To bound round off drift of
+ * the removals, the running statistics are recomputed from the window after every window's worth of removals.
+ */
+class CorrelationSeries {
+	/** number of columns (2 for x and y, 3 to include z) */
+	final private int DIMENSION;
+
+	/** ring buffer columns indexed by column and then by slot */
+	private double[][] _columns;
+
+	/** slot of the oldest sample */
+	private int _start;
+
+	/** number of samples in the window */
+	private int _count;
+
+	/** mean of x */
+	private double _meanX;
+
+	/** mean of y */
+	private double _meanY;
+
+	/** sum of squared deviations of x from its mean */
+	private double _sumSquaresX;
+
+	/** sum of squared deviations of y from its mean */
+	private double _sumSquaresY;
+
+	/** sum of products of the deviations of x and y from their means */
+	private double _sumProductsXY;
+
+	/** number of removals since the running statistics were last recomputed */
+	private int _removalsSinceRefresh;
+
+
+	/** Constructor */
+	public CorrelationSeries( final int dimension, final int capacity ) {
+		DIMENSION = dimension;
+		_columns = new double[dimension][Math.max( capacity, 1 )];
+		clear();
+	}
+
+
+	/** get the number of columns */
+	public int getDimension() {
+		return DIMENSION;
+	}
+
+
+	/** get the maximum number of samples in the window */
+	synchronized public int getCapacity() {
+		return _columns[0].length;
+	}
+
+
+	/** set the maximum number of samples in the window keeping the most recent samples */
+	synchronized public void setCapacity( final int capacity ) {
+		final int newCapacity = Math.max( capacity, 1 );
+		if ( newCapacity == _columns[0].length )  return;
+
+		final int keepCount = Math.min( _count, newCapacity );
+		final int skipCount = _count - keepCount;
+		final double[][] columns = new double[DIMENSION][newCapacity];
+		for ( int column = 0 ; column < DIMENSION ; column++ ) {
+			for ( int index = 0 ; index < keepCount ; index++ ) {
+				columns[column][index] = getValue( column, skipCount + index );
+			}
+		}
+
+		_columns = columns;
+		_start = 0;
+		_count = keepCount;
+		refreshStatistics();
+	}
+
+
+	/** clear the samples */
+	synchronized public void clear() {
+		_start = 0;
+		_count = 0;
+		resetStatistics();
+	}
+
+
+	/** get the number of samples in the window */
+	synchronized public int size() {
+		return _count;
+	}
+
+
+	/**
+	 * Add a sample evicting the oldest sample if the window is full
+	 * @param values the sample values with one value per column
+	 */
+	synchronized public void add( final double[] values ) {
+		final int capacity = _columns[0].length;
+		if ( _count == capacity ) {
+			removeStatistics( _columns[0][_start], _columns[1][_start] );
+			_start = ( _start + 1 ) % capacity;
+			--_count;
+			if ( ++_removalsSinceRefresh >= capacity ) {
+				refreshStatistics();
+			}
+		}
+
+		final int slot = ( _start + _count ) % capacity;
+		for ( int column = 0 ; column < DIMENSION ; column++ ) {
+			_columns[column][slot] = values[column];
+		}
+		++_count;
+		addStatistics( values[0], values[1] );
+	}
+
+
+	/**
+	 * Get a sample value
+	 * @param column the column (0 for x, 1 for y and 2 for z)
+	 * @param index index of the sample from 0 for the oldest to size() - 1 for the newest
+	 * @return the value
+	 */
+	synchronized public double getValue( final int column, final int index ) {
+		return _columns[column][ ( _start + index ) % _columns[0].length ];
+	}
+
+
+	/**
+	 * Copy a column into an array ordered from the oldest to the newest sample
+	 * @param column the column to copy
+	 * @return a new array with one value per sample
+	 */
+	synchronized public double[] copyColumn( final int column ) {
+		final double[] values = new double[_count];
+		final int capacity = _columns[0].length;
+		final int firstCount = Math.min( _count, capacity - _start );
+		System.arraycopy( _columns[column], _start, values, 0, firstCount );
+		System.arraycopy( _columns[column], 0, values, firstCount, _count - firstCount );
+		return values;
+	}
+
+
+	/** get the mean of x over the window */
+	synchronized public double getMeanX() {
+		return _count > 0 ? _meanX : Double.NaN;
+	}
+
+
+	/** get the mean of y over the window */
+	synchronized public double getMeanY() {
+		return _count > 0 ? _meanY : Double.NaN;
+	}
+
+
+	/** get the sample covariance of x and y over the window */
+	synchronized public double getCovariance() {
+		return _count > 1 ? _sumProductsXY / ( _count - 1 ) : Double.NaN;
+	}
+
+
+	/** get the Pearson correlation coefficient of x and y over the window */
+	synchronized public double getCorrelationCoefficient() {
+		final double denominator = Math.sqrt( _sumSquaresX * _sumSquaresY );
+		return _count > 1 && denominator > 0.0 ? _sumProductsXY / denominator : Double.NaN;
+	}
+
+
+	/** get the slope of the least squares line of y versus x over the window */
+	synchronized public double getSlope() {
+		return _count > 1 && _sumSquaresX > 0.0 ? _sumProductsXY / _sumSquaresX : Double.NaN;
+	}
+
+
+	/** get the intercept of the least squares line of y versus x over the window */
+	synchronized public double getIntercept() {
+		return _meanY - getSlope() * _meanX;
+	}
+
+
+	/** reset the running statistics */
+	private void resetStatistics() {
+		_meanX = 0.0;
+		_meanY = 0.0;
+		_sumSquaresX = 0.0;
+		_sumSquaresY = 0.0;
+		_sumProductsXY = 0.0;
+		_removalsSinceRefresh = 0;
+	}
+
+
+	/** recompute the running statistics from the samples in the window */
+	private void refreshStatistics() {
+		resetStatistics();
+		final int count = _count;
+		_count = 0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			++_count;
+			addStatistics( getValue( 0, index ), getValue( 1, index ) );
+		}
+	}
+
+
+	/** include a new sample in the running statistics (the count already includes the sample) */
+	private void addStatistics( final double x, final double y ) {
+		final double deltaX = x - _meanX;
+		final double deltaY = y - _meanY;
+		_meanX += deltaX / _count;
+		_meanY += deltaY / _count;
+		_sumSquaresX += deltaX * ( x - _meanX );
+		_sumSquaresY += deltaY * ( y - _meanY );
+		_sumProductsXY += deltaX * ( y - _meanY );
+	}
+
+
+	/** remove a sample from the running statistics (the count still includes the sample) */
+	private void removeStatistics( final double x, final double y ) {
+		if ( _count <= 1 ) {
+			resetStatistics();
+			return;
+		}
+
+		final double meanX = ( _count * _meanX - x ) / ( _count - 1 );
+		final double meanY = ( _count * _meanY - y ) / ( _count - 1 );
+		_sumSquaresX -= ( x - meanX ) * ( x - _meanX );
+		_sumSquaresY -= ( y - meanY ) * ( y - _meanY );
+		_sumProductsXY -= ( x - meanX ) * ( y - _meanY );
+		_meanX = meanX;
+		_meanY = meanY;
+	}
+}
@@ -75,6 +75,13 @@ public class XyzDocument extends AcceleratorDocument implements DataListener, Co
 	}
 	
 	
+	/** Stop the correlator and the plot redraws when the document closes. */
+	public void freeCustomResources() {
+		MODEL.stopCorrelator();
+		if ( _correlationController != null )  _correlationController.dispose();		// null if the document failed to construct its controller
+	}
+	
+	
 	/** Make a main window by instantiating the my custom window. */
     public void makeMainWindow() {				
         mainWindow = (XalWindow)_windowReference.getWindow();
@@ -0,0 +1,215 @@
+/*
+ * ArrayBufferReader.java
+ *
+ * Created on October 19, 2026
+ */
+
+package xal.ca;
+
+import xal.tools.ArrayValue;
+
+import java.nio.DoubleBuffer;
+
+
+/**
+ * ArrayBufferReader copies the elements of a native array payload into buffers supplied by the caller. When the
+ * buffer type matches the payload type the elements are copied in bulk, otherwise each element is converted in
+ * the same way as the corresponding ArrayValue accessor. The payload is referenced rather than copied, so it must
+ * not be modified while the reader is in use.
+ */
+public class ArrayBufferReader {
+	/** payload when it is a double array */
+	final private double[] DOUBLES;
+
+	/** payload when it is a float array */
+	final private float[] FLOATS;
+
+	/** payload when it is a long array */
+	final private long[] LONGS;
+
+	/** payload when it is an int array */
+	final private int[] INTS;
+
+	/** payload when it is a short array */
+	final private short[] SHORTS;
+
+	/** payload when it is a byte array */
+	final private byte[] BYTES;
+
+	/** number of elements in the payload */
+	final private int COUNT;
+
+
+	/**
+	 * Constructor
+	 * @param array the native array to read (a primitive numeric array or any array supported by ArrayValue)
+	 * @throws IllegalArgumentException if the argument is not an array
+	 */
+	public ArrayBufferReader( final Object array ) throws IllegalArgumentException {
+		final Object payload = isNumericArray( array ) ? array : ArrayValue.arrayValueFromArray( array ).doubleArray();
+
+		DOUBLES = payload instanceof double[] ? (double[])payload : null;
+		FLOATS = payload instanceof float[] ? (float[])payload : null;
+		LONGS = payload instanceof long[] ? (long[])payload : null;
+		INTS = payload instanceof int[] ? (int[])payload : null;
+		SHORTS = payload instanceof short[] ? (short[])payload : null;
+		BYTES = payload instanceof byte[] ? (byte[])payload : null;
+		COUNT = java.lang.reflect.Array.getLength( payload );
+	}
+
+
+	/**
+	 * Get a reader of the elements of an array value using its internal storage when the storage is numeric
+	 * @param value the array value to read
+	 * @return a new reader
+	 */
+	static public ArrayBufferReader getInstance( final ArrayValue value ) {
+		final Class<?> type = value.getType();
+		if ( type == Double.TYPE ) {
+			return new ArrayBufferReader( value.doubleArray() );
+		}
+		else if ( type == Float.TYPE ) {
+			return new ArrayBufferReader( value.floatArray() );
+		}
+		else if ( type == Long.TYPE ) {
+			return new ArrayBufferReader( value.longArray() );
+		}
+		else if ( type == Integer.TYPE ) {
+			return new ArrayBufferReader( value.intArray() );
+		}
+		else if ( type == Short.TYPE ) {
+			return new ArrayBufferReader( value.shortArray() );
+		}
+		else if ( type == Byte.TYPE ) {
+			return new ArrayBufferReader( value.byteArray() );
+		}
+		else {
+			return new ArrayBufferReader( value.doubleArray() );
+		}
+	}
+
+
+	/** determine whether the array is a primitive numeric array which the reader can use directly */
+	static private boolean isNumericArray( final Object array ) {
+		return array instanceof double[] || array instanceof float[] || array instanceof long[] || array instanceof int[] || array instanceof short[] || array instanceof byte[];
+	}
+
+
+	/**
+	 * Get the number of elements in the payload
+	 * @return the number of elements
+	 */
+	public int getCount() {
+		return COUNT;
+	}
+
+
+	/**
+	 * Copy the leading elements of the payload into the buffer
+	 * @param buffer the buffer to fill
+	 * @param offset index in the buffer of the first element to fill
+	 * @param length maximum number of elements to copy
+	 * @return the number of elements copied which is the lesser of the element count and the length
+	 */
+	public int copyTo( final double[] buffer, final int offset, final int length ) {
+		final int count = Math.min( COUNT, length );
+		if ( DOUBLES != null ) {
+			System.arraycopy( DOUBLES, 0, buffer, offset, count );
+		}
+		else {
+			for ( int index = 0 ; index < count ; index++ ) {
+				buffer[offset + index] = doubleValueAt( index );
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Copy the leading elements of the payload into the buffer
+	 * @param buffer the buffer to fill
+	 * @param offset index in the buffer of the first element to fill
+	 * @param length maximum number of elements to copy
+	 * @return the number of elements copied which is the lesser of the element count and the length
+	 */
+	public int copyTo( final float[] buffer, final int offset, final int length ) {
+		final int count = Math.min( COUNT, length );
+		if ( FLOATS != null ) {
+			System.arraycopy( FLOATS, 0, buffer, offset, count );
+		}
+		else {
+			for ( int index = 0 ; index < count ; index++ ) {
+				buffer[offset + index] = (float)doubleValueAt( index );
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Copy the leading elements of the payload into the buffer
+	 * @param buffer the buffer to fill
+	 * @param offset index in the buffer of the first element to fill
+	 * @param length maximum number of elements to copy
+	 * @return the number of elements copied which is the lesser of the element count and the length
+	 */
+	public int copyTo( final int[] buffer, final int offset, final int length ) {
+		final int count = Math.min( COUNT, length );
+		if ( INTS != null ) {
+			System.arraycopy( INTS, 0, buffer, offset, count );
+		}
+		else if ( LONGS != null ) {
+			for ( int index = 0 ; index < count ; index++ ) {
+				buffer[offset + index] = (int)LONGS[index];
+			}
+		}
+		else {
+			for ( int index = 0 ; index < count ; index++ ) {
+				buffer[offset + index] = (int)doubleValueAt( index );
+			}
+		}
+		return count;
+	}
+
+
+	/**
+	 * Copy the leading elements of the payload into the buffer starting at its position and advance its position
+	 * @param buffer the buffer to fill
+	 * @return the number of elements copied which is the lesser of the element count and the remaining buffer space
+	 */
+	public int copyTo( final DoubleBuffer buffer ) {
+		final int count = Math.min( COUNT, buffer.remaining() );
+		if ( DOUBLES != null ) {
+			buffer.put( DOUBLES, 0, count );
+		}
+		else {
+			for ( int index = 0 ; index < count ; index++ ) {
+				buffer.put( doubleValueAt( index ) );
+			}
+		}
+		return count;
+	}
+
+
+	/** get the element at the specified index as a double */
+	private double doubleValueAt( final int index ) {
+		if ( DOUBLES != null ) {
+			return DOUBLES[index];
+		}
+		else if ( FLOATS != null ) {
+			return FLOATS[index];
+		}
+		else if ( LONGS != null ) {
+			return LONGS[index];
+		}
+		else if ( INTS != null ) {
+			return INTS[index];
+		}
+		else if ( SHORTS != null ) {
+			return SHORTS[index];
+		}
+		else {
+			return BYTES[index];
+		}
+	}
+}
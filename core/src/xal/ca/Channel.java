@@ -10,6 +10,8 @@ import xal.tools.ArrayValue;
 import xal.tools.transforms.ValueTransform;
 import xal.tools.transforms.DataTransformFactory;
 
+import java.nio.DoubleBuffer;
+
 
 /**
  * Channel is an abstract high level XAL wrapper for a native process variable (PV) channel.
@@ -667,6 +669,94 @@ abstract public class Channel {
     }
     
     
+    /**
+     * Fetch the array value of the channel into the caller's buffer rather than a new array.
+     * @param buffer the buffer to fill starting at index zero
+     * @return the number of elements copied which is the lesser of the element count and the buffer length
+     * @throws xal.ca.ConnectionException accordingly
+     * @throws xal.ca.GetException accordingly
+     */
+    public int getArrDbl( final double[] buffer ) throws ConnectionException, GetException {
+        return getArrDbl( buffer, 0, buffer.length );
+    }
+    
+    
+    /**
+     * Fetch the array value of the channel into a region of the caller's buffer rather than a new array.
+     * @param buffer the buffer to fill
+     * @param offset index in the buffer of the first element to fill
+     * @param length maximum number of elements to copy
+     * @return the number of elements copied which is the lesser of the element count and the length
+     * @throws xal.ca.ConnectionException accordingly
+     * @throws xal.ca.GetException accordingly
+     */
+    public int getArrDbl( final double[] buffer, final int offset, final int length ) throws ConnectionException, GetException {
+        final int count = getRawArrayReader().copyTo( buffer, offset, length );
+        return transformFromRaw( buffer, offset, count );
+    }
+    
+    
+    /**
+     * Fetch the array value of the channel into the caller's buffer rather than a new array.
+     * @param buffer the buffer to fill starting at index zero
+     * @return the number of elements copied which is the lesser of the element count and the buffer length
+     * @throws xal.ca.ConnectionException accordingly
+     * @throws xal.ca.GetException accordingly
+     */
+    public int getArrFlt( final float[] buffer ) throws ConnectionException, GetException {
+        final int count = getRawArrayReader().copyTo( buffer, 0, buffer.length );
+        return transformFromRaw( buffer, count );
+    }
+    
+    
+    /**
+     * Fetch the array value of the channel into the caller's buffer rather than a new array.
+     * @param buffer the buffer to fill starting at index zero
+     * @return the number of elements copied which is the lesser of the element count and the buffer length
+     * @throws xal.ca.ConnectionException accordingly
+     * @throws xal.ca.GetException accordingly
+     */
+    public int getArrInt( final int[] buffer ) throws ConnectionException, GetException {
+        final int count = getRawArrayReader().copyTo( buffer, 0, buffer.length );
+        return transformFromRaw( buffer, count );
+    }
+    
+    
+    /**
+     * Fetch the array value of the channel into the caller's buffer starting at the buffer's position and advance
+     * the position past the copied elements.
+     * @param buffer the buffer to fill
+     * @return the number of elements copied which is the lesser of the element count and the remaining buffer space
+     * @throws xal.ca.ConnectionException accordingly
+     * @throws xal.ca.GetException accordingly
+     */
+    public int getArrDbl( final DoubleBuffer buffer ) throws ConnectionException, GetException {
+        final int position = buffer.position();
+        final int count;
+        if ( buffer.hasArray() ) {
+            count = getArrDbl( buffer.array(), buffer.arrayOffset() + position, buffer.remaining() );
+        }
+        else {
+            count = transformFromRaw( buffer, position, getRawArrayReader().copyTo( buffer ) );
+        }
+        buffer.position( position + count );
+        return count;
+    }
+    
+    
+    /**
+     * Fetch the raw array for the native type of this channel as a reader which copies it into caller buffers.
+     * The default implementation reads the raw value record, so subclasses should override it to read the
+     * native payload directly.
+     * @return a reader of the raw array
+     * @throws xal.ca.ConnectionException accordingly
+     * @throws xal.ca.GetException accordingly
+     */
+    protected ArrayBufferReader getRawArrayReader() throws ConnectionException, GetException {
+        return ArrayBufferReader.getInstance( getRawValueRecord().arrayValue() );
+    }
+    
+    
     /**
      * Return a raw <code>ChannelRecord</code> representing the fetched record for the 
      * native type of this channel.  This is a convenient way to get the value of the PV.
@@ -726,6 +816,64 @@ abstract public class Channel {
     abstract public ChannelTimeRecord getRawTimeRecord()  throws ConnectionException, GetException;
 
     
+    /**
+     * Convert raw values held in a buffer to physical values in place. Channels without a transform are left
+     * untouched. ValueTransform operates on ArrayValue, so any other transform converts through a temporary copy.
+     * @param buffer the buffer holding the raw values
+     * @param offset index in the buffer of the first raw value
+     * @param count number of raw values
+     * @return number of physical values now held in the buffer
+     */
+    final protected int transformFromRaw( final double[] buffer, final int offset, final int count ) {
+        if ( valueTransform == ValueTransform.noOperationTransform )  return count;
+        
+        final double[] rawArray = new double[count];
+        System.arraycopy( buffer, offset, rawArray, 0, count );
+        return convertFromRaw( ArrayValue.doubleStore( rawArray ) ).copyTo( buffer, offset, count );
+    }
+    
+    
+    /** Convert the leading raw values held in a buffer to physical values in place and return the physical count */
+    final protected int transformFromRaw( final float[] buffer, final int count ) {
+        if ( valueTransform == ValueTransform.noOperationTransform )  return count;
+        
+        final float[] rawArray = new float[count];
+        System.arraycopy( buffer, 0, rawArray, 0, count );
+        return convertFromRaw( ArrayValue.floatStore( rawArray ) ).copyTo( buffer, 0, count );
+    }
+    
+    
+    /** Convert the leading raw values held in a buffer to physical values in place and return the physical count */
+    final protected int transformFromRaw( final int[] buffer, final int count ) {
+        if ( valueTransform == ValueTransform.noOperationTransform )  return count;
+        
+        final int[] rawArray = new int[count];
+        System.arraycopy( buffer, 0, rawArray, 0, count );
+        return convertFromRaw( ArrayValue.intStore( rawArray ) ).copyTo( buffer, 0, count );
+    }
+    
+    
+    /** Convert raw values held in a buffer starting at the specified position to physical values in place and return the physical count */
+    final protected int transformFromRaw( final DoubleBuffer buffer, final int position, final int count ) {
+        if ( valueTransform == ValueTransform.noOperationTransform )  return count;
+        
+        final double[] rawArray = new double[count];
+        for ( int index = 0 ; index < count ; index++ ) {
+            rawArray[index] = buffer.get( position + index );
+        }
+        final DoubleBuffer target = buffer.duplicate();
+        target.limit( position + count );
+        target.position( position );
+        return convertFromRaw( ArrayValue.doubleStore( rawArray ) ).copyTo( target );
+    }
+    
+    
+    /** Apply this channel's transform to the raw value and get a reader of the physical value */
+    private ArrayBufferReader convertFromRaw( final ArrayValue rawValue ) {
+        return ArrayBufferReader.getInstance( valueTransform.convertFromRaw( rawValue ) );
+    }
+    
+    
     /**
      * Return a <code>ChannelRecord</code> representing the fetched record for the 
      * native type of this channel.  This is a convenient way to get the value of the PV.
@@ -934,6 +1082,25 @@ abstract public class Channel {
     }
     
     
+    /**
+     *  Get the array value of the process variable into the caller's buffer via a callback to the specified listener.
+     *  The request is queued without flushing, so requests for many channels may be issued and then sent together
+     *  with a single call to flushIO(). The buffer must not be used until the listener has been called.
+     *  @param  buffer       buffer to fill starting at index zero
+     *  @param  listener     receiver of the callback event.
+     *  @throws  xal.ca.ConnectionException     channel is not connected
+     *  @throws  xal.ca.GetException            general channel access failure
+     */
+    public void getArrDblCallback( final double[] buffer, final IEventSinkBufferDbl listener ) throws ConnectionException, GetException {
+        getRawValueCallback( new IEventSinkValue() {
+            public void eventValue( final ChannelRecord record, final Channel channel ) {
+                final ArrayBufferReader reader = ArrayBufferReader.getInstance( record.applyTransform( valueTransform ).arrayValue() );
+                listener.eventArray( buffer, reader.copyTo( buffer, 0, buffer.length ), Channel.this );
+            }
+        });
+    }
+    
+    
     /**
      *  Get the value of the process variable via a callback to the specified listener.
      *  @param  listener     receiver of the callback event.
@@ -1029,6 +1196,29 @@ abstract public class Channel {
     abstract public xal.ca.Monitor addMonitorValue(IEventSinkValue listener, int intMaskFire)
         throws ConnectionException, MonitorException;
     
+    
+    /**
+     *  Setup a monitor on this channel which copies each array value into a buffer taken from the pool instead of
+     *  a new array. The listener owns each buffer it receives and should release it back to the pool when done.
+     *  The default implementation copies from the monitored value record, so subclasses should override it to copy
+     *  the native payload directly.
+     *  @param  listener     interface to data sink
+     *  @param  pool        pool from which buffers are acquired
+     *  @param  intMaskFire code specifying when the monitor is fired or'ed combination of {Monitor.VALUE, Monitor.LOG, Monitor.ALARM}
+     *  @return A new monitor
+     *  @throws xal.ca.ConnectionException     channel is not connected
+     *  @throws xal.ca.MonitorException        general monitor failure
+     */
+    public xal.ca.Monitor addMonitorArrDbl( final IEventSinkBufferDbl listener, final DoubleArrayPool pool, final int intMaskFire ) throws ConnectionException, MonitorException {
+        return addMonitorValue( new IEventSinkValue() {
+            public void eventValue( final ChannelRecord record, final Channel channel ) {
+                final ArrayBufferReader reader = ArrayBufferReader.getInstance( record.arrayValue() );
+                final double[] buffer = pool.acquire( reader.getCount() );
+                listener.eventArray( buffer, reader.copyTo( buffer, 0, buffer.length ), Channel.this );
+            }
+        }, intMaskFire );
+    }
+    
 
     
     /**
@@ -123,6 +123,15 @@ abstract public class ChannelFactory {
     abstract protected ChannelSystem channelSystem();
     
     
+    /** 
+	 * Publish the values staged on this factory's server channels with a common timestamp.
+	 * @see IServerChannel#stageValue(double)
+	 */
+    public void publishStagedValues() {
+        channelSystem().publishStagedValues();
+    }
+    
+    
     /** 
 	 * get the defualt system which handles static behavior of Channels 
 	 * @return the channel system associated with the default channel factory
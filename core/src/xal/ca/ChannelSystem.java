@@ -37,6 +37,13 @@ abstract public class ChannelSystem {
 	
 	/** flush requests to the server */
 	abstract public void flushIO();
+	
+	
+	/** 
+	 * Publish the values staged on server channels since the last publication, notifying 
+	 * their monitors in one pass. Systems without server channels have nothing to publish.
+	 */
+	public void publishStagedValues() {}
     
     
 	/**
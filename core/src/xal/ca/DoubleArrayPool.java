@@ -0,0 +1,92 @@
+/*
+ * DoubleArrayPool.java
+ *
+ * Created on October 19, 2026
+ */
+
+package xal.ca;
+
+import java.util.ArrayDeque;
+
+
+/**
+ * DoubleArrayPool holds released double arrays so they can be reused for subsequent array reads instead of
+ * allocating a new array for every waveform. Arrays which are too short for a request are discarded and at most
+ * the pool's capacity of arrays is retained. The pool is safe to use from multiple threads.
+ */
+public class DoubleArrayPool {
+	/** default maximum number of idle arrays retained */
+	final static public int DEFAULT_CAPACITY = 8;
+
+	/** maximum number of idle arrays retained */
+	final private int CAPACITY;
+
+	/** idle arrays with the most recently released last */
+	final private ArrayDeque<double[]> ARRAYS;
+
+
+	/** Constructor */
+	public DoubleArrayPool() {
+		this( DEFAULT_CAPACITY );
+	}
+
+
+	/**
+	 * Constructor
+	 * @param capacity maximum number of idle arrays retained
+	 */
+	public DoubleArrayPool( final int capacity ) {
+		CAPACITY = capacity;
+		ARRAYS = new ArrayDeque<double[]>( Math.max( capacity, 1 ) );
+	}
+
+
+	/**
+	 * Get an array whose length is at least the specified length reusing an idle array if possible
+	 * @param length the minimum length of the array
+	 * @return an array which the caller owns until it is released
+	 */
+	public double[] acquire( final int length ) {
+		synchronized ( ARRAYS ) {
+			while ( !ARRAYS.isEmpty() ) {
+				final double[] array = ARRAYS.pollLast();
+				if ( array.length >= length )  return array;
+			}
+		}
+		return new double[length];
+	}
+
+
+	/**
+	 * Return an array to the pool for reuse. The caller must not use the array after releasing it.
+	 * @param array the array to release
+	 */
+	public void release( final double[] array ) {
+		if ( array == null )  return;
+
+		synchronized ( ARRAYS ) {
+			if ( ARRAYS.size() < CAPACITY ) {
+				ARRAYS.addLast( array );
+			}
+		}
+	}
+
+
+	/**
+	 * Get the number of idle arrays in the pool
+	 * @return the number of idle arrays
+	 */
+	public int size() {
+		synchronized ( ARRAYS ) {
+			return ARRAYS.size();
+		}
+	}
+
+
+	/** Discard the idle arrays */
+	public void clear() {
+		synchronized ( ARRAYS ) {
+			ARRAYS.clear();
+		}
+	}
+}
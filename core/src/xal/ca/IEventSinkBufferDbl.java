@@ -0,0 +1,24 @@
+/*
+ * IEventSinkBufferDbl.java
+ *
+ * Created on October 19, 2026
+ */
+
+package xal.ca;
+
+
+/**
+ * Receives array values which have been copied into a reusable buffer rather than a newly allocated array.
+ * For monitors the buffer is taken from the DoubleArrayPool supplied when the monitor was created and belongs to
+ * the sink which should return it to that pool once it is done with the values. For get callbacks the buffer is
+ * the one supplied with the request.
+ */
+public interface IEventSinkBufferDbl {
+	/**
+	 * Handle the array event
+	 * @param buffer the buffer whose leading elements hold the array (it may be longer than the array)
+	 * @param count the number of valid elements in the buffer
+	 * @param chan the channel which provided the array
+	 */
+	public void eventArray( double[] buffer, int count, Channel chan );
+}
@@ -78,4 +78,18 @@ public interface IServerChannel {
 	 * @param settable true if it can be changed
 	 */
 	void setSettable( final boolean settable );
+
+	/** 
+	 * Stage a new scalar value without notifying monitors. Staged values are published 
+	 * together with a common timestamp by {@link ChannelFactory#publishStagedValues()}.
+	 * @param value the new value
+	 */
+	void stageValue( final double value );
+	
+	/** 
+	 * Stage a new array value without notifying monitors. Staged values are published 
+	 * together with a common timestamp by {@link ChannelFactory#publishStagedValues()}.
+	 * @param array the new value
+	 */
+	void stageValue( final double[] array );
 }
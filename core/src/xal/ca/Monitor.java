@@ -115,5 +115,18 @@ abstract public class Monitor {
         record.applyTransform( m_xalChan.getValueTransform() );
         listener.eventValue(record, m_xalChan);
     }
+
+    
+    /**
+     * Copy the raw array into a buffer from the pool, convert it to physical values and post the buffer to the listener.
+     * @param listener The object receiving the buffer.
+     * @param reader The reader of the raw array.
+     * @param pool The pool from which the buffer is acquired.
+     */
+    final protected void postArrayBuffer( final IEventSinkBufferDbl listener, final ArrayBufferReader reader, final DoubleArrayPool pool ) {
+        final double[] buffer = pool.acquire( reader.getCount() );
+        final int count = m_xalChan.transformFromRaw( buffer, 0, reader.copyTo( buffer, 0, buffer.length ) );
+        listener.eventArray( buffer, count, m_xalChan );
+    }
 }
 
@@ -17,6 +17,7 @@ import xal.smf.AcceleratorNode;
 import xal.smf.AcceleratorSeq;
 import xal.smf.Ring;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -193,6 +194,17 @@ public class Scenario {
         mgrSync.resyncFromCache();
     }
 	
+	
+    /**
+	 * Synchronizes only the lattice elements mapped to the specified nodes from the cache and applies the whatif model inputs.
+	 * This is useful when only a few model inputs have changed since the last full resync.
+	 * @param nodes the nodes whose elements to resynchronize
+     * @throws SynchronizationException if an error is encountered reading a data source
+     */
+    public void resyncFromCache( final Collection<AcceleratorNode> nodes ) throws SynchronizationException {
+        mgrSync.resyncFromCache( nodes );
+    }
+	
         
     /**
      * Sets the model to start propagation from the AcceleratorNode with the
@@ -123,6 +123,24 @@ public class SynchronizationManager {
 	}
 	
 	
+	/**
+	 * Use the cached values modified by the model inputs and resync only the elements mapped to the specified nodes.
+	 * Nodes which are not synchronized are ignored. The cache must already have been populated by a full resync.
+	 * @param nodes the nodes whose elements to resync
+	 */
+	public void resyncFromCache( final Collection<AcceleratorNode> nodes ) throws SynchronizationException {
+		for ( final AcceleratorNode node : nodes ) {
+			final List<IElement> elements = synchronizedNodeElems.get( node );
+			if ( elements == null )  continue;
+
+			final Map<String,Double> valueMap = propertyAccessor.getWhatifValueMapFromCache( node );
+			for ( final IElement elem : elements ) {
+				resync( elem, valueMap );
+			}
+		}
+	}
+	
+	
 	/**
 	 * Synchronizes anElem to the property values contained in valueMap.
 	 * @param anElem element to synchronize
@@ -809,7 +809,7 @@ public abstract class ProfileDevice extends AcceleratorNode {
             throws ConnectionException, GetException, BadStructException {
 
         try {
-            Constructor<T>  ctorCfg = clsType.getConstructor(clsType);
+            Constructor<T>  ctorCfg = this.getDeviceConstructor(clsType);
             T               cfgAcq  = ctorCfg.newInstance(this);
 
             return cfgAcq;
@@ -859,7 +859,7 @@ public abstract class ProfileDevice extends AcceleratorNode {
             throws ConnectionException, GetException, BadStructException {
 
         try {
-            Constructor<T>  ctorData = clsType.getConstructor(clsType);
+            Constructor<T>  ctorData = this.getDeviceConstructor(clsType);
             T               dataAcq  = ctorData.newInstance(this);
 
             return dataAcq;
@@ -1016,4 +1016,36 @@ public abstract class ProfileDevice extends AcceleratorNode {
         return bolResult;
     }
 
+
+
+    /*
+     * Support Methods
+     */
+
+    /**
+     * Returns the public constructor of the given data structure type which takes a 
+     * single device argument compatible with this device.  The data structures declare
+     * their acquisition constructors with the type of their device
+     * (e.g., <code>WireScanner</code>) or with <code>ProfileDevice</code>.
+     *
+     * @param <T>       type of the data structure
+     * @param clsType   class type of the data structure
+     * 
+     * @return          the acquisition constructor of the data structure
+     * 
+     * @throws NoSuchMethodException    the data structure has no constructor accepting this device
+     *
+     * @since  Oct 19, 2026
+     */
+    @SuppressWarnings("unchecked")
+    <T> Constructor<T> getDeviceConstructor(Class<T> clsType) throws NoSuchMethodException {
+        for (Constructor<?> ctor : clsType.getConstructors()) {
+            Class<?>[]  arrPrmTypes = ctor.getParameterTypes();
+
+            if (arrPrmTypes.length == 1 && arrPrmTypes[0].isAssignableFrom(this.getClass()))
+                return (Constructor<T>) ctor;
+        }
+
+        throw new NoSuchMethodException("No constructor of " + clsType.getName() + " accepts a " + this.getClass().getName()); //$NON-NLS-1$ //$NON-NLS-2$
+    }
 }
@@ -0,0 +1,1360 @@
+/**
+ * ProfileDeviceGroup.java
+ *
+ * Since   : Oct 19, 2026
+ */
+package xal.smf.impl.profile;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import xal.ca.BatchConnectionRequest;
+import xal.ca.BatchConnectionRequestListener;
+import xal.ca.Channel;
+import xal.ca.ChannelRecord;
+import xal.ca.ChannelTimeRecord;
+import xal.ca.ConnectionException;
+import xal.ca.GetException;
+import xal.ca.IEventSinkValTime;
+import xal.smf.NoSuchChannelException;
+import xal.smf.impl.ProfileFit;
+import xal.smf.scada.ScadaAnnotationException;
+import xal.smf.scada.ScadaFieldDescriptor;
+
+/**
+ * <p>
+ * Acquires the profile traces of a group of profile devices together and
+ * reduces them in parallel.  Acquiring a <code>{@link SignalSet}</code> from each
+ * device in turn costs one round trip per field, per plane, per device; polling
+ * twenty wire scanners after a scan that way is dominated by channel access latency.
+ * Here the trace channels of all the devices and planes described by a
+ * <code>SignalSet</code>-derived class are connected with one batch request,
+ * all their values are requested before a single flush of the channel access buffer,
+ * and each plane of a device is reduced on a shared pool of daemon threads as soon
+ * as the last value of that device arrives.
+ * </p>
+ * <p>
+ * The reduction of each plane subtracts the baseline (the noise average of the device
+ * if it provides one, otherwise the average of the edge samples of the trace), computes
+ * the area, centroid and RMS size of the baseline-subtracted signal, and fits a Gaussian
+ * to the samples above a threshold of the peak.  The results are kept in
+ * <code>{@link DeviceData}</code> and <code>{@link PlaneData}</code> objects which
+ * are owned by the group and reused, including their primitive trace buffers, by every
+ * acquisition.  The connect, fetch and processing times of each device are recorded
+ * so that slow devices can be spotted.
+ * </p>
+ * <p>
+ * An acquisition is not thread safe with respect to another acquisition of the same
+ * group; the results of one acquisition are overwritten by the next.
+ * </p>
+ *
+ * @since  Oct 19, 2026
+ */
+public class ProfileDeviceGroup {
+
+
+    /*
+     * Global Constants
+     */
+
+    /** Default fraction of the samples at each end of a trace used to estimate the baseline */
+    public static final double      DBL_EDGE_FRACTION = 0.1;
+
+    /** Default fraction of the peak signal above which samples are used in the Gaussian fit */
+    public static final double      DBL_FIT_THRESHOLD = 0.05;
+
+    /** The number of reweighting iterations of the Gaussian fit */
+    private static final int        CNT_FIT_ITERATIONS = 3;
+
+    /** Nanoseconds per second */
+    private static final double     DBL_NANOS_PER_SEC = 1.0e9;
+
+
+    /*
+     * Global Attributes
+     */
+
+    /** Executor shared by all the groups for processing the device signals */
+    private static ExecutorService  EXEC_PROCESSING = null;
+
+
+    /*
+     * Internal Classes
+     */
+
+    /**
+     * The trace of one measurement plane of a device together with the results
+     * of its reduction.  The trace buffers are reused between acquisitions and
+     * grow as needed, so only the first <code>{@link #getCount()}</code> elements
+     * are valid.
+     *
+     * @since  Oct 19, 2026
+     */
+    public static class PlaneData {
+
+        /*
+         * Local Attributes
+         */
+
+        /** The measurement plane */
+        private final ProfileDevice.ANGLE   angle;
+
+        /** Indices of the channel values for each signal field, or -1 if the field has no channel */
+        private final int[]         arrSlots;
+
+        /** Sample positions */
+        private double[]            arrPos;
+
+        /** Raw sample values */
+        private double[]            arrVal;
+
+        /** Baseline-subtracted sample values */
+        private double[]            arrSig;
+
+        /** Number of valid samples in the buffers */
+        private int                 cntSmps;
+
+        /** The subtracted baseline */
+        private double              dblBase;
+
+        /** Standard deviation of the noise */
+        private double              dblNoise;
+
+        /** Area under the baseline-subtracted signal */
+        private double              dblArea;
+
+        /** Centroid of the baseline-subtracted signal */
+        private double              dblCentroid;
+
+        /** RMS size of the baseline-subtracted signal */
+        private double              dblRms;
+
+        /** The Gaussian fit to the signal */
+        private final ProfileFit    fitGauss;
+
+        /** Whether the Gaussian fit converged to a peak */
+        private boolean             bolFitValid;
+
+        /** Seconds spent processing the plane in the last acquisition */
+        private double              dblTimeProc;
+
+
+        /*
+         * Initialization
+         */
+
+        /**
+         * Creates the plane data for the given plane.
+         *
+         * @param angle     the measurement plane
+         * @param arrSlots  channel value index of each <code>Signal.FIELD</code>, or -1
+         */
+        PlaneData(ProfileDevice.ANGLE angle, int[] arrSlots) {
+            this.angle    = angle;
+            this.arrSlots = arrSlots;
+            this.arrPos   = new double[0];
+            this.arrVal   = new double[0];
+            this.arrSig   = new double[0];
+            this.fitGauss = new ProfileFit();
+        }
+
+
+        /*
+         * Attributes
+         */
+
+        /**
+         * Returns the measurement plane of this trace.
+         *
+         * @return  the measurement plane
+         */
+        public ProfileDevice.ANGLE  getAngle() {
+            return this.angle;
+        }
+
+        /**
+         * Returns the number of valid samples in the trace buffers.
+         *
+         * @return  number of samples
+         */
+        public int      getCount() {
+            return this.cntSmps;
+        }
+
+        /**
+         * Returns the sample position buffer.  Only the first <code>{@link #getCount()}</code>
+         * elements are valid and the buffer is overwritten by the next acquisition.
+         *
+         * @return  sample positions
+         */
+        public double[] getPositions() {
+            return this.arrPos;
+        }
+
+        /**
+         * Returns the raw sample value buffer.  Only the first <code>{@link #getCount()}</code>
+         * elements are valid and the buffer is overwritten by the next acquisition.
+         *
+         * @return  raw sample values
+         */
+        public double[] getValues() {
+            return this.arrVal;
+        }
+
+        /**
+         * Returns the baseline-subtracted sample buffer.  Only the first
+         * <code>{@link #getCount()}</code> elements are valid and the buffer
+         * is overwritten by the next acquisition.
+         *
+         * @return  baseline-subtracted sample values
+         */
+        public double[] getSignal() {
+            return this.arrSig;
+        }
+
+        /**
+         * Returns the baseline subtracted from the raw values.
+         *
+         * @return  the baseline
+         */
+        public double   getBaseline() {
+            return this.dblBase;
+        }
+
+        /**
+         * Returns the standard deviation of the noise, as provided by the device
+         * or estimated from the edge samples.
+         *
+         * @return  the noise standard deviation
+         */
+        public double   getNoise() {
+            return this.dblNoise;
+        }
+
+        /**
+         * Returns the area under the baseline-subtracted signal (trapezoidal rule).
+         *
+         * @return  the signal area
+         */
+        public double   getArea() {
+            return this.dblArea;
+        }
+
+        /**
+         * Returns the centroid of the baseline-subtracted signal.
+         *
+         * @return  the signal centroid, or <code>NaN</code> if the signal has no positive weight
+         */
+        public double   getCentroid() {
+            return this.dblCentroid;
+        }
+
+        /**
+         * Returns the RMS size of the baseline-subtracted signal about its centroid.
+         *
+         * @return  the RMS size, or <code>NaN</code> if the signal has no positive weight
+         */
+        public double   getRms() {
+            return this.dblRms;
+        }
+
+        /**
+         * Returns the Gaussian fit to the signal.  The offset of the fit is the
+         * subtracted baseline and its slope is zero.
+         *
+         * @return  the Gaussian fit (overwritten by the next acquisition)
+         */
+        public ProfileFit   getFit() {
+            return this.fitGauss;
+        }
+
+        /**
+         * Indicates whether the Gaussian fit found a peak.  If not the fit
+         * parameters are <code>NaN</code>.
+         *
+         * @return  <code>true</code> if the fit is valid
+         */
+        public boolean  isFitValid() {
+            return this.bolFitValid;
+        }
+
+        /**
+         * Returns the time spent processing this plane in the last acquisition.
+         *
+         * @return  processing time in seconds
+         */
+        public double   getProcessTime() {
+            return this.dblTimeProc;
+        }
+
+
+        /*
+         * Support Methods
+         */
+
+        /**
+         * Returns the channel record for the given signal field, or <code>null</code>
+         * if the signal has no channel for the field.
+         *
+         * @param fld       signal field
+         * @param arrRecs   channel records of the device
+         *
+         * @return  record for the field or <code>null</code>
+         */
+        private ChannelRecord   getRecord(Signal.FIELD fld, ChannelRecord[] arrRecs) {
+            int     indSlot = this.arrSlots[fld.ordinal()];
+
+            return (indSlot < 0) ? null : arrRecs[indSlot];
+        }
+
+        /**
+         * Copies the trace from the given channel records into the buffers and
+         * reduces it.
+         *
+         * @param arrRecs       channel records of the device
+         * @param dblFracEdge   fraction of the samples at each end used for the baseline
+         * @param dblFracFit    fraction of the peak above which samples are fit
+         */
+        void    process(ChannelRecord[] arrRecs, double dblFracEdge, double dblFracFit) {
+            long    lngStart = System.nanoTime();
+
+            ChannelRecord   recVal = this.getRecord(Signal.FIELD.VAL, arrRecs);
+            ChannelRecord   recPos = this.getRecord(Signal.FIELD.POS, arrRecs);
+            ChannelRecord   recCnt = this.getRecord(Signal.FIELD.CNT, arrRecs);
+
+            int     cnt = recVal.getCount();
+            if (recPos != null)
+                cnt = Math.min(cnt, recPos.getCount());
+            if (recCnt != null)
+                cnt = Math.max(0, Math.min(cnt, recCnt.intValue()));
+
+            if (this.arrVal.length < cnt) {
+                this.arrPos = new double[cnt];
+                this.arrVal = new double[cnt];
+                this.arrSig = new double[cnt];
+            }
+            this.cntSmps = cnt;
+
+            for (int i=0; i<cnt; i++) {
+                this.arrVal[i] = recVal.doubleValueAt(i);
+                this.arrPos[i] = (recPos != null) ? recPos.doubleValueAt(i) : i;
+            }
+
+            this.subtractBaseline(arrRecs, dblFracEdge);
+            this.computeMoments();
+            this.fitGaussian(dblFracFit);
+
+            this.dblTimeProc = (System.nanoTime() - lngStart)/DBL_NANOS_PER_SEC;
+        }
+
+        /**
+         * Clears the results after a failed acquisition.
+         */
+        private void    clear() {
+            this.cntSmps     = 0;
+            this.dblBase     = Double.NaN;
+            this.dblNoise    = Double.NaN;
+            this.dblArea     = Double.NaN;
+            this.dblCentroid = Double.NaN;
+            this.dblRms      = Double.NaN;
+            this.dblTimeProc = 0.0;
+            this.invalidateFit();
+        }
+
+        /**
+         * Subtracts the baseline from the raw values.  The baseline and noise are
+         * taken from the device if it provides them, otherwise they are estimated
+         * from the edge samples at both ends of the trace.
+         *
+         * @param arrRecs       channel records of the device
+         * @param dblFracEdge   fraction of the samples at each end used for the estimate
+         */
+        private void    subtractBaseline(ChannelRecord[] arrRecs, double dblFracEdge) {
+            ChannelRecord   recAvg = this.getRecord(Signal.FIELD.NAVG, arrRecs);
+            ChannelRecord   recVar = this.getRecord(Signal.FIELD.NVAR, arrRecs);
+
+            int     cnt = this.cntSmps;
+
+            if (recAvg != null) {
+                this.dblBase  = recAvg.doubleValue();
+                this.dblNoise = (recVar != null) ? recVar.doubleValue() : Double.NaN;
+
+            } else if (cnt == 0) {
+                this.dblBase  = 0.0;
+                this.dblNoise = Double.NaN;
+
+            } else {
+                int     cntEdge = Math.max(1, (int)(dblFracEdge*cnt));
+
+                if (2*cntEdge > cnt)
+                    cntEdge = (cnt + 1)/2;
+
+                double  dblSum   = 0.0;
+                double  dblSumSq = 0.0;
+                int     cntSum   = 0;
+
+                for (int i=0; i<cntEdge; i++) {
+                    double  dblLo = this.arrVal[i];
+                    double  dblHi = this.arrVal[cnt - 1 - i];
+
+                    dblSum   += dblLo + dblHi;
+                    dblSumSq += dblLo*dblLo + dblHi*dblHi;
+                    cntSum   += 2;
+                }
+
+                double  dblAvg = dblSum/cntSum;
+                double  dblVar = dblSumSq/cntSum - dblAvg*dblAvg;
+
+                this.dblBase  = dblAvg;
+                this.dblNoise = Math.sqrt(Math.max(dblVar, 0.0));
+            }
+
+            for (int i=0; i<cnt; i++)
+                this.arrSig[i] = this.arrVal[i] - this.dblBase;
+        }
+
+        /**
+         * Computes the area, centroid and RMS size of the baseline-subtracted signal.
+         */
+        private void    computeMoments() {
+            int     cnt = this.cntSmps;
+
+            double  dblArea = 0.0;
+            for (int i=1; i<cnt; i++)
+                dblArea += 0.5*(this.arrSig[i] + this.arrSig[i-1])*(this.arrPos[i] - this.arrPos[i-1]);
+
+            double  dblWt  = 0.0;
+            double  dblSum = 0.0;
+            for (int i=0; i<cnt; i++) {
+                dblWt  += this.arrSig[i];
+                dblSum += this.arrSig[i]*this.arrPos[i];
+            }
+
+            this.dblArea = Math.abs(dblArea);
+
+            if (dblWt <= 0.0) {
+                this.dblCentroid = Double.NaN;
+                this.dblRms      = Double.NaN;
+                return;
+            }
+
+            double  dblCen = dblSum/dblWt;
+            double  dblVar = 0.0;
+            for (int i=0; i<cnt; i++) {
+                double  dblDel = this.arrPos[i] - dblCen;
+
+                dblVar += this.arrSig[i]*dblDel*dblDel;
+            }
+
+            this.dblCentroid = dblCen;
+            this.dblRms      = Math.sqrt(Math.max(dblVar/dblWt, 0.0));
+        }
+
+        /**
+         * <p>
+         * Fits the Gaussian <i>A</i> exp[-(<i>x</i> - <i>x</i><sub>0</sub>)<sup>2</sup>/2&sigma;<sup>2</sup>]
+         * to the baseline-subtracted samples above the given fraction of the peak.
+         * The logarithm of the Gaussian is a parabola, which is fit by weighted linear
+         * least squares; the weights are the squared model values, starting from the
+         * squared samples and refined from the previous fit on each iteration
+         * (H. Guo, IEEE Signal Processing Magazine 28(5), 2011).  The fit costs a
+         * few passes over the trace and needs no starting guess.
+         * </p>
+         *
+         * @param dblFracFit    fraction of the peak above which samples are fit
+         */
+        private void    fitGaussian(double dblFracFit) {
+            int     cnt = this.cntSmps;
+
+            double  dblPeak = 0.0;
+            for (int i=0; i<cnt; i++)
+                dblPeak = Math.max(dblPeak, this.arrSig[i]);
+
+            if (dblPeak <= 0.0) {
+                this.invalidateFit();
+                return;
+            }
+
+            // Center the positions on the centroid to condition the normal equations
+            double  dblThresh = dblFracFit*dblPeak;
+            double  dblX0     = Double.isNaN(this.dblCentroid) ? 0.0 : this.dblCentroid;
+
+            double  a = 0.0, b = 0.0, c = 0.0;
+
+            for (int iter=0; iter<CNT_FIT_ITERATIONS; iter++) {
+                double  s0 = 0, s1 = 0, s2 = 0, s3 = 0, s4 = 0;
+                double  t0 = 0, t1 = 0, t2 = 0;
+                int     cntFit = 0;
+
+                for (int i=0; i<cnt; i++) {
+                    double  y = this.arrSig[i];
+
+                    if (y <= dblThresh)
+                        continue;
+
+                    double  x  = this.arrPos[i] - dblX0;
+                    double  w  = (iter == 0) ? y : Math.exp(a + x*(b + x*c));
+                    double  w2 = w*w;
+                    double  ly = Math.log(y);
+                    double  x2 = x*x;
+
+                    s0 += w2;
+                    s1 += w2*x;
+                    s2 += w2*x2;
+                    s3 += w2*x2*x;
+                    s4 += w2*x2*x2;
+                    t0 += w2*ly;
+                    t1 += w2*ly*x;
+                    t2 += w2*ly*x2;
+                    cntFit++;
+                }
+
+                if (cntFit < 3) {
+                    this.invalidateFit();
+                    return;
+                }
+
+                // Solve the symmetric 3x3 normal equations by Cramer's rule
+                double  det = s0*(s2*s4 - s3*s3) - s1*(s1*s4 - s3*s2) + s2*(s1*s3 - s2*s2);
+
+                if (det == 0.0 || Double.isNaN(det)) {
+                    this.invalidateFit();
+                    return;
+                }
+
+                a = (t0*(s2*s4 - s3*s3) - s1*(t1*s4 - s3*t2) + s2*(t1*s3 - s2*t2))/det;
+                b = (s0*(t1*s4 - t2*s3) - t0*(s1*s4 - s3*s2) + s2*(s1*t2 - t1*s2))/det;
+                c = (s0*(s2*t2 - s3*t1) - s1*(s1*t2 - t1*s2) + t0*(s1*s3 - s2*s2))/det;
+
+                if (!(c < 0.0)) {
+                    this.invalidateFit();
+                    return;
+                }
+            }
+
+            double  dblSigma = Math.sqrt(-0.5/c);
+            double  dblMean  = -0.5*b/c;
+            double  dblAmp   = Math.exp(a - 0.25*b*b/c);
+
+            this.fitGauss.setMean(dblX0 + dblMean);
+            this.fitGauss.setSigma(dblSigma);
+            this.fitGauss.setAmp(dblAmp);
+            this.fitGauss.setArea(dblAmp*dblSigma*Math.sqrt(2.0*Math.PI));
+            this.fitGauss.setOffset(this.dblBase);
+            this.fitGauss.setSlope(0.0);
+            this.bolFitValid = true;
+        }
+
+        /**
+         * Marks the Gaussian fit as invalid and sets its parameters to <code>NaN</code>.
+         */
+        private void    invalidateFit() {
+            this.fitGauss.setMean(Double.NaN);
+            this.fitGauss.setSigma(Double.NaN);
+            this.fitGauss.setAmp(Double.NaN);
+            this.fitGauss.setArea(Double.NaN);
+            this.fitGauss.setOffset(this.dblBase);
+            this.fitGauss.setSlope(0.0);
+            this.bolFitValid = false;
+        }
+    }
+
+    /**
+     * The traces of one device in the group together with the stage timing
+     * of the last acquisition.
+     *
+     * @since  Oct 19, 2026
+     */
+    public static class DeviceData {
+
+        /*
+         * Local Attributes
+         */
+
+        /** The profile device */
+        private final ProfileDevice     smfDev;
+
+        /** The distinct channels of all the signal fields of the device */
+        private final Channel[]         arrChans;
+
+        /** The planes with a signal value channel */
+        private final PlaneData[]       arrPlanes;
+
+        /** Seconds spent waiting for the channels of the device to connect */
+        private double                  dblTimeConn;
+
+        /** Seconds from the flush of the requests until the last value of the device arrived */
+        private double                  dblTimeFetch;
+
+        /** The reason the last acquisition of the device failed, or <code>null</code> */
+        private volatile Exception      excFailure;
+
+        /** The reason the device cannot be acquired at all, or <code>null</code> */
+        private final Exception         excConfig;
+
+
+        /*
+         * Initialization
+         */
+
+        /**
+         * Creates the device data, resolving the channels of the signal fields.
+         *
+         * @param smfDev    the profile device
+         * @param annSet    signal set annotation describing the trace channels
+         *
+         * @throws ScadaAnnotationException the annotation is ill-formed
+         */
+        private DeviceData(ProfileDevice smfDev, ASignal.ASet annSet) throws ScadaAnnotationException {
+            this.smfDev = smfDev;
+
+            List<Channel>   lstChans  = new ArrayList<Channel>();
+            List<PlaneData> lstPlanes = new LinkedList<PlaneData>();
+            Exception       excConfig = null;
+
+            try {
+                for (ProfileDevice.ANGLE angle : ProfileDevice.ANGLE.values()) {
+                    ASignal     annSig   = ProfileDeviceGroup.getSignalAnnotation(annSet, angle);
+                    int[]       arrSlots = new int[Signal.FIELD.values().length];
+
+                    for (Signal.FIELD fld : Signal.FIELD.values()) {
+                        ScadaFieldDescriptor    sfd = fld.createDescriptor(annSig);
+
+                        if (sfd == null) {
+                            arrSlots[fld.ordinal()] = -1;
+                            continue;
+                        }
+
+                        // Planes often share channels (e.g., the step count)
+                        Channel     chan    = smfDev.getChannel(sfd.getRbHandle());
+                        int         indSlot = lstChans.indexOf(chan);
+
+                        if (indSlot < 0) {
+                            indSlot = lstChans.size();
+                            lstChans.add(chan);
+                        }
+                        arrSlots[fld.ordinal()] = indSlot;
+                    }
+
+                    if (arrSlots[Signal.FIELD.VAL.ordinal()] >= 0)
+                        lstPlanes.add( new PlaneData(angle, arrSlots) );
+                }
+
+            } catch (NoSuchChannelException e) {
+                lstChans.clear();
+                lstPlanes.clear();
+                excConfig = e;
+            }
+
+            this.arrChans  = lstChans.toArray(new Channel[lstChans.size()]);
+            this.arrPlanes = lstPlanes.toArray(new PlaneData[lstPlanes.size()]);
+            this.excConfig = excConfig;
+            this.excFailure = excConfig;
+        }
+
+
+        /*
+         * Attributes
+         */
+
+        /**
+         * Returns the profile device.
+         *
+         * @return  the device
+         */
+        public ProfileDevice    getDevice() {
+            return this.smfDev;
+        }
+
+        /**
+         * Returns the trace of the given plane.
+         *
+         * @param angle     measurement plane
+         *
+         * @return  the plane data or <code>null</code> if the device has no trace for the plane
+         */
+        public PlaneData    getPlane(ProfileDevice.ANGLE angle) {
+            for (PlaneData plane : this.arrPlanes)
+                if (plane.getAngle() == angle)
+                    return plane;
+
+            return null;
+        }
+
+        /**
+         * Returns the traces of all the planes of the device.
+         *
+         * @return  the plane data
+         */
+        public List<PlaneData>  getPlanes() {
+            List<PlaneData>     lstPlanes = new ArrayList<PlaneData>(this.arrPlanes.length);
+
+            Collections.addAll(lstPlanes, this.arrPlanes);
+
+            return lstPlanes;
+        }
+
+        /**
+         * Indicates whether the last acquisition of the device succeeded.
+         *
+         * @return  <code>true</code> if all the trace values were received and processed
+         */
+        public boolean  isValid() {
+            return this.excFailure == null;
+        }
+
+        /**
+         * Returns the reason the last acquisition of the device failed.
+         *
+         * @return  a <code>ConnectionException</code>, <code>GetException</code> or
+         *          <code>NoSuchChannelException</code>, or <code>null</code> if it succeeded
+         */
+        public Exception    getFailure() {
+            return this.excFailure;
+        }
+
+        /**
+         * Returns the time spent waiting for the channels of the device to connect
+         * in the last acquisition.  This is zero if they were already connected.
+         *
+         * @return  connect time in seconds
+         */
+        public double   getConnectTime() {
+            return this.dblTimeConn;
+        }
+
+        /**
+         * Returns the time from the flush of the value requests until the last
+         * value of the device arrived in the last acquisition.
+         *
+         * @return  fetch time in seconds
+         */
+        public double   getFetchTime() {
+            return this.dblTimeFetch;
+        }
+
+        /**
+         * Returns the time spent processing all the planes of the device
+         * in the last acquisition.
+         *
+         * @return  processing time in seconds
+         */
+        public double   getProcessTime() {
+            double  dblTime = 0.0;
+
+            for (PlaneData plane : this.arrPlanes)
+                dblTime += plane.getProcessTime();
+
+            return dblTime;
+        }
+
+
+        /*
+         * Object Overrides
+         */
+
+        /**
+         * Returns the device identifier and stage times of the last acquisition.
+         *
+         * @return  a one-line timing summary
+         *
+         * @see java.lang.Object#toString()
+         */
+        @Override
+        public String toString() {
+            return String.format("%s: connect %.1f ms, fetch %.1f ms, process %.1f ms%s",
+                    this.smfDev.getId(), 1000.0*this.dblTimeConn, 1000.0*this.dblTimeFetch, 1000.0*this.getProcessTime(),
+                    this.isValid() ? "" : ", failed: " + this.excFailure.getMessage());
+        }
+
+
+        /*
+         * Support Methods
+         */
+
+        /**
+         * Resets the stage timing and failure status before an acquisition.
+         */
+        private void    reset() {
+            this.dblTimeConn  = 0.0;
+            this.dblTimeFetch = 0.0;
+            this.excFailure   = this.excConfig;
+        }
+
+        /**
+         * Records the failure of the device in the current acquisition and clears its planes.
+         *
+         * @param excFailure    the reason for the failure
+         */
+        private void    fail(Exception excFailure) {
+            this.excFailure = excFailure;
+
+            for (PlaneData plane : this.arrPlanes)
+                plane.clear();
+        }
+    }
+
+    /**
+     * The state of one acquisition.  Values arriving after the acquisition has
+     * timed out are discarded by the device claims, so a late callback can never
+     * touch the buffers of a following acquisition.
+     *
+     * @since  Oct 19, 2026
+     */
+    private final class Acquisition {
+
+        /** The channel records of each device */
+        private final ChannelRecord[][]     arrRecs;
+
+        /** The number of records still expected from each device */
+        private final AtomicInteger[]       arrPending;
+
+        /** Set once the device has been handed to processing or marked as failed */
+        private final AtomicBoolean[]       arrClaimed;
+
+        /** Counts down the devices whose values have all arrived or which have failed */
+        private final CountDownLatch        latFetched;
+
+        /** Counts down the planes which have been processed or abandoned */
+        private final CountDownLatch        latProcessed;
+
+        /** Time at which the value requests were flushed */
+        private volatile long               lngFlush;
+
+        /** Set once the acquisition is interrupted so that no further device is handed to processing */
+        private volatile boolean            bolCancelled;
+
+
+        /**
+         * Creates the state of a new acquisition.
+         */
+        private Acquisition() {
+            int     cntDevs   = ProfileDeviceGroup.this.arrDevs.length;
+            int     cntPlanes = 0;
+
+            this.arrRecs    = new ChannelRecord[cntDevs][];
+            this.arrPending = new AtomicInteger[cntDevs];
+            this.arrClaimed = new AtomicBoolean[cntDevs];
+
+            for (int indDev=0; indDev<cntDevs; indDev++) {
+                DeviceData  datDev = ProfileDeviceGroup.this.arrDevs[indDev];
+
+                this.arrRecs[indDev]    = new ChannelRecord[datDev.arrChans.length];
+                this.arrPending[indDev] = new AtomicInteger(datDev.arrChans.length);
+                this.arrClaimed[indDev] = new AtomicBoolean(false);
+                cntPlanes += datDev.arrPlanes.length;
+            }
+
+            this.latFetched   = new CountDownLatch(cntDevs);
+            this.latProcessed = new CountDownLatch(cntPlanes);
+        }
+
+        /**
+         * Records a channel value and hands the device to processing if it was the
+         * last value expected from the device.
+         *
+         * @param indDev    index of the device
+         * @param indChan   index of the channel within the device
+         * @param recPv     the channel value
+         */
+        private void    receive(int indDev, int indChan, ChannelRecord recPv) {
+            this.arrRecs[indDev][indChan] = recPv;
+
+            if (this.arrPending[indDev].decrementAndGet() > 0)
+                return;
+
+            if ( !this.arrClaimed[indDev].compareAndSet(false, true) )
+                return;
+
+            if (this.bolCancelled) {
+                this.fail(indDev, new InterruptedException("ProfileDeviceGroup#acquire(): interrupted before device " +
+                        ProfileDeviceGroup.this.arrDevs[indDev].getDevice().getId() + " was processed"));
+                return;
+            }
+
+            final DeviceData        datDev  = ProfileDeviceGroup.this.arrDevs[indDev];
+            final ChannelRecord[]   arrDevRecs = this.arrRecs[indDev];
+
+            datDev.dblTimeFetch = (System.nanoTime() - this.lngFlush)/DBL_NANOS_PER_SEC;
+            this.latFetched.countDown();
+
+            for (final PlaneData plane : datDev.arrPlanes) {
+                ProfileDeviceGroup.getProcessingExecutor().execute(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            plane.process(arrDevRecs, ProfileDeviceGroup.this.dblFracEdge, ProfileDeviceGroup.this.dblFracFit);
+
+                        } catch (RuntimeException e) {
+                            plane.clear();
+                            datDev.excFailure = e;
+
+                        } finally {
+                            Acquisition.this.latProcessed.countDown();
+                        }
+                    }
+                });
+            }
+        }
+
+        /**
+         * Marks the device as failed unless it has already been handed to processing.
+         *
+         * @param indDev        index of the device
+         * @param excFailure    the reason for the failure
+         */
+        private void    abandon(int indDev, Exception excFailure) {
+            if ( !this.arrClaimed[indDev].compareAndSet(false, true) )
+                return;
+
+            this.fail(indDev, excFailure);
+        }
+
+        /**
+         * Stops handing devices to processing and marks every device which has not
+         * been handed to processing yet as failed.
+         *
+         * @param excFailure    the reason for the failure
+         */
+        private void    cancel(Exception excFailure) {
+            this.bolCancelled = true;
+
+            for (int indDev=0; indDev<ProfileDeviceGroup.this.arrDevs.length; indDev++)
+                this.abandon(indDev, excFailure);
+        }
+
+        /**
+         * Waits until every device handed to processing has been processed, even if the
+         * waiting thread is interrupted, in which case its interrupt status is restored.
+         */
+        private void    awaitProcessing() {
+            boolean bolInterrupted = false;
+
+            while (true) {
+                try {
+                    this.latProcessed.await();
+                    break;
+
+                } catch (InterruptedException e) {
+                    bolInterrupted = true;
+                }
+            }
+
+            if (bolInterrupted)
+                Thread.currentThread().interrupt();
+        }
+
+        /**
+         * Marks a device which has just been claimed as failed.
+         *
+         * @param indDev        index of the device
+         * @param excFailure    the reason for the failure
+         */
+        private void    fail(int indDev, Exception excFailure) {
+            DeviceData  datDev = ProfileDeviceGroup.this.arrDevs[indDev];
+
+            datDev.fail(excFailure);
+            this.latFetched.countDown();
+
+            for (int i=0; i<datDev.arrPlanes.length; i++)
+                this.latProcessed.countDown();
+        }
+    }
+
+
+    /*
+     * Local Attributes
+     */
+
+    /** The signal set class describing the trace channels */
+    private final Class<? extends SignalSet>    clsSigSet;
+
+    /** The data of each device in the group */
+    private final DeviceData[]      arrDevs;
+
+    /** Fraction of the samples at each end of a trace used to estimate the baseline */
+    private volatile double         dblFracEdge;
+
+    /** Fraction of the peak signal above which samples are used in the Gaussian fit */
+    private volatile double         dblFracFit;
+
+    /** Total time of the last acquisition in seconds */
+    private double                  dblTimeTotal;
+
+
+    /*
+     * Initialization
+     */
+
+    /**
+     * Creates a new group acquiring the traces described by the given <code>SignalSet</code>-derived
+     * class (e.g., <code>WireScanner.DataRaw</code> or <code>WireHarp.DataRaw</code>) from
+     * the given devices.  A device which lacks one of the channels is kept in the group
+     * but always reported as failed.
+     *
+     * @param lstDevs       the profile devices to acquire together
+     * @param clsSigSet     class whose <code>ASignal.ASet</code> annotation describes the trace channels
+     *
+     * @throws ScadaAnnotationException the class has no <code>ASignal.ASet</code> annotation, or it is ill-formed
+     */
+    public ProfileDeviceGroup(List<? extends ProfileDevice> lstDevs, Class<? extends SignalSet> clsSigSet)
+        throws ScadaAnnotationException
+    {
+        if ( !clsSigSet.isAnnotationPresent(ASignal.ASet.class) )
+            throw new ScadaAnnotationException("There is no ASignal.ASet annotation on class " + clsSigSet.getName());
+
+        ASignal.ASet    annSet = clsSigSet.getAnnotation(ASignal.ASet.class);
+
+        this.clsSigSet   = clsSigSet;
+        this.arrDevs     = new DeviceData[lstDevs.size()];
+        this.dblFracEdge = DBL_EDGE_FRACTION;
+        this.dblFracFit  = DBL_FIT_THRESHOLD;
+
+        int     indDev = 0;
+        for (ProfileDevice smfDev : lstDevs)
+            this.arrDevs[indDev++] = new DeviceData(smfDev, annSet);
+    }
+
+    /**
+     * Sets the fraction of the samples at each end of a trace used to estimate the
+     * baseline and noise of devices which do not provide them.
+     *
+     * @param dblFracEdge   fraction in (0, 0.5]
+     */
+    public void setEdgeFraction(double dblFracEdge) {
+        this.dblFracEdge = dblFracEdge;
+    }
+
+    /**
+     * Sets the fraction of the peak signal above which samples are used in the
+     * Gaussian fit.
+     *
+     * @param dblFracFit    fraction in [0, 1)
+     */
+    public void setFitThreshold(double dblFracFit) {
+        this.dblFracFit = dblFracFit;
+    }
+
+
+    /*
+     * Attributes
+     */
+
+    /**
+     * Returns the signal set class describing the trace channels of the group.
+     *
+     * @return  the signal set class
+     */
+    public Class<? extends SignalSet>   getSignalSetClass() {
+        return this.clsSigSet;
+    }
+
+    /**
+     * Returns the data of each device in the group, in the order the devices were given.
+     * The data objects are reused by every acquisition.
+     *
+     * @return  the device data
+     */
+    public List<DeviceData>     getDeviceData() {
+        List<DeviceData>    lstDevs = new ArrayList<DeviceData>(this.arrDevs.length);
+
+        Collections.addAll(lstDevs, this.arrDevs);
+
+        return lstDevs;
+    }
+
+    /**
+     * Returns the data of the given device.
+     *
+     * @param smfDev    a device of the group
+     *
+     * @return  the device data or <code>null</code> if the device is not in the group
+     */
+    public DeviceData   getDeviceData(ProfileDevice smfDev) {
+        for (DeviceData datDev : this.arrDevs)
+            if (datDev.getDevice() == smfDev)
+                return datDev;
+
+        return null;
+    }
+
+    /**
+     * Returns the total time of the last acquisition.
+     *
+     * @return  acquisition time in seconds
+     */
+    public double   getAcquisitionTime() {
+        return this.dblTimeTotal;
+    }
+
+    /**
+     * Returns the device which took the longest from the start of the last
+     * acquisition until its traces were processed.
+     *
+     * @return  the slowest device data or <code>null</code> if the group is empty
+     */
+    public DeviceData   getSlowestDevice() {
+        DeviceData  datSlow = null;
+        double      dblSlow = -1.0;
+
+        for (DeviceData datDev : this.arrDevs) {
+            double  dblTime = datDev.getConnectTime() + datDev.getFetchTime() + datDev.getProcessTime();
+
+            if (dblTime > dblSlow) {
+                dblSlow = dblTime;
+                datSlow = datDev;
+            }
+        }
+
+        return datSlow;
+    }
+
+
+    /*
+     * Operations
+     */
+
+    /**
+     * Acquires and processes the traces of all the devices using the largest
+     * I/O timeout of their channels.
+     *
+     * @return  the number of devices acquired successfully
+     *
+     * @see #acquire(double)
+     */
+    public int  acquire() {
+        double  dblTmout = 0.0;
+
+        for (DeviceData datDev : this.arrDevs)
+            for (Channel chan : datDev.arrChans)
+                dblTmout = Math.max(dblTmout, chan.getIoTimeout());
+
+        return this.acquire(dblTmout);
+    }
+
+    /**
+     * <p>
+     * Acquires and processes the traces of all the devices.  The unconnected channels
+     * are connected with one batch request, then the values of all the channels are
+     * requested and flushed together.  Each device is handed to the processing threads
+     * as soon as its last value arrives.  The method returns when every device has
+     * been processed or has failed.
+     * </p>
+     * <p>
+     * A device fails if one of its channels does not connect, or does not deliver
+     * its value, within the timeout of the respective stage.  The failure is reported
+     * by <code>{@link DeviceData#getFailure()}</code> and does not affect the other devices.
+     * </p>
+     * <p>
+     * The devices reuse their buffers from one acquisition to the next, so concurrent
+     * calls are serialized.  If the calling thread is interrupted, the devices not yet
+     * handed to processing fail, the devices already being processed are finished so
+     * that no buffer is left half written, and the method returns with the thread's
+     * interrupt status set.
+     * </p>
+     *
+     * @param dblTmout  timeout in seconds for each of the connection and fetch stages
+     *
+     * @return  the number of devices acquired successfully
+     */
+    public synchronized int  acquire(double dblTmout) {
+        long    lngStart = System.nanoTime();
+
+        for (DeviceData datDev : this.arrDevs)
+            datDev.reset();
+
+        Acquisition     acq = new Acquisition();
+
+        // Stage 1: connection
+        this.connect(acq, dblTmout);
+
+        if (Thread.currentThread().isInterrupted())
+            acq.cancel(new InterruptedException("ProfileDeviceGroup#acquire(): interrupted before the values were requested"));
+
+        // Stage 2: fetch the values of the connected devices with a single flush
+        acq.lngFlush = System.nanoTime();
+
+        for (int indDev=0; indDev<this.arrDevs.length; indDev++) {
+            DeviceData  datDev = this.arrDevs[indDev];
+
+            if (datDev.excConfig != null)
+                acq.abandon(indDev, datDev.excConfig);
+
+            if (acq.arrClaimed[indDev].get())
+                continue;
+
+            for (int indChan=0; indChan<datDev.arrChans.length; indChan++) {
+                final Acquisition   acqCurr = acq;
+                final int           indRecDev  = indDev;
+                final int           indRecChan = indChan;
+
+                try {
+                    datDev.arrChans[indChan].getRawValueTimeCallback(new IEventSinkValTime() {
+                        @Override
+                        public void eventValue(ChannelTimeRecord recPv, Channel chan) {
+                            acqCurr.receive(indRecDev, indRecChan, recPv);
+                        }
+                    }, false);
+
+                } catch (ConnectionException e) {
+                    acq.abandon(indDev, e);
+                    break;
+
+                } catch (GetException e) {
+                    acq.abandon(indDev, e);
+                    break;
+                }
+            }
+        }
+        Channel.flushIO();
+
+        try {
+            acq.latFetched.await((long)(1000.0*dblTmout), TimeUnit.MILLISECONDS);
+
+            for (int indDev=0; indDev<this.arrDevs.length; indDev++)
+                acq.abandon(indDev, new GetException("ProfileDeviceGroup#acquire(): no value received within " + dblTmout +
+                        " seconds from device " + this.arrDevs[indDev].getDevice().getId()));
+
+        } catch (InterruptedException e) {
+            acq.cancel(e);
+            Thread.currentThread().interrupt();
+        }
+
+        // Stage 3: the claimed devices only have CPU-bound work left, which must finish before their buffers are read or reused
+        acq.awaitProcessing();
+
+        this.dblTimeTotal = (System.nanoTime() - lngStart)/DBL_NANOS_PER_SEC;
+
+        int     cntValid = 0;
+        for (DeviceData datDev : this.arrDevs)
+            if (datDev.isValid())
+                cntValid++;
+
+        return cntValid;
+    }
+
+
+    /*
+     * Support Methods
+     */
+
+    /**
+     * Connects the unconnected channels of all the devices with one batch request,
+     * recording the time at which the last channel of each device connected.  Devices
+     * with a channel that does not connect are abandoned.
+     *
+     * @param acq       the current acquisition
+     * @param dblTmout  connection timeout in seconds
+     */
+    private void    connect(Acquisition acq, double dblTmout) {
+        final Set<Channel>  setUncon = new HashSet<Channel>();
+
+        for (DeviceData datDev : this.arrDevs)
+            for (Channel chan : datDev.arrChans)
+                if ( !chan.isConnected() )
+                    setUncon.add(chan);
+
+        if (setUncon.isEmpty())
+            return;
+
+        final long  lngStart = System.nanoTime();
+        final long[]  arrConnTimes = new long[this.arrDevs.length];
+
+        BatchConnectionRequest  reqConn = new BatchConnectionRequest(setUncon);
+        reqConn.addBatchConnectionRequestListener(new BatchConnectionRequestListener() {
+            @Override
+            public void batchConnectionRequestCompleted(BatchConnectionRequest request, int connectedCount, int disconnectedCount, int exceptionCount) {
+            }
+
+            @Override
+            public void connectionExceptionInBatch(BatchConnectionRequest request, Channel channel, Exception exception) {
+            }
+
+            @Override
+            public void connectionChangeInBatch(BatchConnectionRequest request, Channel channel, boolean connected) {
+                if (!connected)
+                    return;
+
+                long    lngNow = System.nanoTime();
+
+                synchronized (arrConnTimes) {
+                    for (int indDev=0; indDev<arrDevs.length; indDev++)
+                        for (Channel chan : arrDevs[indDev].arrChans)
+                            if (chan == channel)
+                                arrConnTimes[indDev] = Math.max(arrConnTimes[indDev], lngNow);
+                }
+            }
+        });
+        reqConn.submitAndWait(dblTmout);
+
+        synchronized (arrConnTimes) {
+            for (int indDev=0; indDev<this.arrDevs.length; indDev++) {
+                DeviceData  datDev = this.arrDevs[indDev];
+
+                if (arrConnTimes[indDev] > 0)
+                    datDev.dblTimeConn = (arrConnTimes[indDev] - lngStart)/DBL_NANOS_PER_SEC;
+
+                for (Channel chan : datDev.arrChans)
+                    if ( !chan.isConnected() ) {
+                        datDev.dblTimeConn = dblTmout;
+                        acq.abandon(indDev, new ConnectionException(chan, "ProfileDeviceGroup#acquire(): channel will not connect, device " +
+                                datDev.getDevice().getId()));
+                        break;
+                    }
+            }
+        }
+    }
+
+    /**
+     * Returns the signal annotation of the given plane.
+     *
+     * @param annSet    the signal set annotation
+     * @param angle     the measurement plane
+     *
+     * @return  the signal annotation for the plane
+     */
+    private static ASignal  getSignalAnnotation(ASignal.ASet annSet, ProfileDevice.ANGLE angle) {
+        switch (angle) {
+        case HOR: return annSet.sigHor();
+        case VER: return annSet.sigVer();
+        default:  return annSet.sigDia();
+        }
+    }
+
+    /**
+     * Returns the executor shared by all the groups for processing the device
+     * signals, one daemon thread per processor.  Its threads time out when idle.
+     *
+     * @return  the shared processing executor
+     */
+    private static synchronized ExecutorService getProcessingExecutor() {
+        if (EXEC_PROCESSING == null) {
+            int     cntThreads = Runtime.getRuntime().availableProcessors();
+
+            ThreadPoolExecutor  exec = new ThreadPoolExecutor(cntThreads, cntThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                public Thread newThread(Runnable runTask) {
+                    Thread  thdProc = new Thread(runTask, "Profile Signal Processor");
+                    thdProc.setDaemon(true);
+
+                    return thdProc;
+                }
+            });
+            exec.allowCoreThreadTimeOut(true);
+            EXEC_PROCESSING = exec;
+        }
+
+        return EXEC_PROCESSING;
+    }
+}
@@ -0,0 +1,546 @@
+/**
+ * ScadaFieldAccessor.java
+ *
+ * @since  Oct 19, 2026
+ *
+ */
+
+package xal.smf.scada;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import xal.ca.Channel;
+import xal.ca.ChannelRecord;
+import xal.ca.ConnectionException;
+import xal.ca.GetException;
+import xal.ca.IEventSinkValTime;
+import xal.ca.PutException;
+import xal.ca.PutListener;
+import xal.tools.data.DataAdaptor;
+
+/**
+ * <p>
+ * Accessor for a single data field of a <code>{@link ScadaRecord}</code> class.
+ * The field is looked up by reflection once, its type is classified once, and
+ * its value is thereafter read and written through cached <code>MethodHandle</code>s
+ * rather than through a <code>Field</code> lookup and type switch on every
+ * access.  Accessors are cached by record class and field name.
+ * </p>
+ * <p>
+ * The handles are adapted to the generic signatures <code>(Object)Object</code>
+ * and <code>(Object,Object)void</code> so a single exact invocation serves every
+ * field type; scalar values are boxed.
+ * </p>
+ * <p>
+ * PV values are read as they always have been by <code>ScadaRecord</code>:
+ * <code>double[]</code> fields are read from the transformed (physical) value
+ * of the channel and <code>String</code> fields from its string value, as by
+ * <code>Channel#getArrDbl()</code> and <code>Channel#getValString()</code>,
+ * while all other fields are read from the raw value.  All fields are written
+ * through the channel transform.
+ * </p>
+ *
+ * @since  Oct 19, 2026
+ */
+final class ScadaFieldAccessor {
+
+
+    /*
+     * Internal Classes
+     */
+
+    /**
+     * Classification of the supported data field types.  The
+     * boxed scalar types are treated as their primitive forms.
+     *
+     * @since  Oct 19, 2026
+     */
+    enum FieldType {
+
+        /** <code>byte</code> or <code>Byte</code> field */
+        BYTE,
+
+        /** <code>byte[]</code> field */
+        BYTE_ARRAY,
+
+        /** <code>short</code> or <code>Short</code> field */
+        SHORT,
+
+        /** <code>short[]</code> field */
+        SHORT_ARRAY,
+
+        /** <code>int</code> or <code>Integer</code> field */
+        INT,
+
+        /** <code>int[]</code> field */
+        INT_ARRAY,
+
+        /** <code>long</code> or <code>Long</code> field */
+        LONG,
+
+        /** <code>float</code> or <code>Float</code> field */
+        FLOAT,
+
+        /** <code>float[]</code> field */
+        FLOAT_ARRAY,
+
+        /** <code>double</code> or <code>Double</code> field */
+        DOUBLE,
+
+        /** <code>double[]</code> field */
+        DOUBLE_ARRAY,
+
+        /** <code>boolean</code> or <code>Boolean</code> field */
+        BOOLEAN,
+
+        /** <code>String</code> field */
+        STRING,
+
+        /** any other type, which cannot be exchanged with a PV */
+        UNSUPPORTED;
+
+        /**
+         * Classifies the given field type.
+         *
+         * @param clsType   Java type of a data field
+         *
+         * @return          the field type classification
+         *
+         * @since  Oct 19, 2026
+         */
+        static FieldType    of(Class<?> clsType) {
+            if (clsType == byte.class || clsType == Byte.class)         return BYTE;
+            if (clsType == byte[].class)                                return BYTE_ARRAY;
+            if (clsType == short.class || clsType == Short.class)       return SHORT;
+            if (clsType == short[].class)                               return SHORT_ARRAY;
+            if (clsType == int.class || clsType == Integer.class)       return INT;
+            if (clsType == int[].class)                                 return INT_ARRAY;
+            if (clsType == long.class || clsType == Long.class)         return LONG;
+            if (clsType == float.class || clsType == Float.class)       return FLOAT;
+            if (clsType == float[].class)                               return FLOAT_ARRAY;
+            if (clsType == double.class || clsType == Double.class)     return DOUBLE;
+            if (clsType == double[].class)                              return DOUBLE_ARRAY;
+            if (clsType == boolean.class || clsType == Boolean.class)   return BOOLEAN;
+            if (clsType == String.class)                                return STRING;
+
+            return UNSUPPORTED;
+        }
+    }
+
+
+    /*
+     * Global Attributes
+     */
+
+    /** Generic signature of the cached getters */
+    private static final MethodType     TYP_GETTER = MethodType.methodType(Object.class, Object.class);
+
+    /** Generic signature of the cached setters */
+    private static final MethodType     TYP_SETTER = MethodType.methodType(void.class, Object.class, Object.class);
+
+    /** The accessors of each record class keyed by field name */
+    private static final ConcurrentMap<Class<?>, ConcurrentMap<String, ScadaFieldAccessor>> MAP_CLS2ACCS =
+            new ConcurrentHashMap<Class<?>, ConcurrentMap<String, ScadaFieldAccessor>>();
+
+
+    /*
+     * Global Operations
+     */
+
+    /**
+     * Returns the accessor for the named public field of the given record class,
+     * resolving and caching it on first use.
+     *
+     * @param clsRecord     class of the SCADA record
+     * @param strFldName    name of the public data field
+     *
+     * @return              accessor for the data field
+     *
+     * @throws BadStructException   the field does not exist or is inaccessible
+     *
+     * @since  Oct 19, 2026
+     */
+    static ScadaFieldAccessor   getAccessor(Class<? extends ScadaRecord> clsRecord, String strFldName) throws BadStructException {
+        ConcurrentMap<String, ScadaFieldAccessor> mapNm2Acc = MAP_CLS2ACCS.get(clsRecord);
+
+        if (mapNm2Acc == null) {
+            mapNm2Acc = new ConcurrentHashMap<String, ScadaFieldAccessor>();
+
+            ConcurrentMap<String, ScadaFieldAccessor> mapPrev = MAP_CLS2ACCS.putIfAbsent(clsRecord, mapNm2Acc);
+            if (mapPrev != null)
+                mapNm2Acc = mapPrev;
+        }
+
+        ScadaFieldAccessor  accFld = mapNm2Acc.get(strFldName);
+        if (accFld == null) {
+            accFld = new ScadaFieldAccessor(clsRecord, strFldName);
+            mapNm2Acc.putIfAbsent(strFldName, accFld);
+        }
+
+        return accFld;
+    }
+
+
+    /*
+     * Local Attributes
+     */
+
+    /** name of the data field */
+    private final String        strFldName;
+
+    /** Java type of the data field */
+    private final Class<?>      clsFldType;
+
+    /** classification of the field type */
+    private final FieldType     enmFldType;
+
+    /** reflective description of the field */
+    private final String        strFldDescr;
+
+    /** getter with signature <code>(Object)Object</code> */
+    private final MethodHandle  hndGetter;
+
+    /** setter with signature <code>(Object,Object)void</code> */
+    private final MethodHandle  hndSetter;
+
+
+    /*
+     * Initialization
+     */
+
+    /**
+     * Resolves the named public field of the given record class and creates
+     * its cached handles.
+     *
+     * @param clsRecord     class of the SCADA record
+     * @param strFldName    name of the public data field
+     *
+     * @throws BadStructException   the field does not exist or is inaccessible
+     *
+     * @since  Oct 19, 2026
+     */
+    private ScadaFieldAccessor(Class<? extends ScadaRecord> clsRecord, String strFldName) throws BadStructException {
+        try {
+            Field   fldData = clsRecord.getField(strFldName);
+
+            // Public fields of non-public record classes are reachable through Field but not through a lookup
+            fldData.setAccessible(true);
+
+            MethodHandles.Lookup    lookup = MethodHandles.lookup();
+
+            this.strFldName = strFldName;
+            this.clsFldType = fldData.getType();
+            this.enmFldType = FieldType.of(this.clsFldType);
+            this.strFldDescr = fldData.toString();
+            this.hndGetter  = lookup.unreflectGetter(fldData).asType(TYP_GETTER);
+            this.hndSetter  = lookup.unreflectSetter(fldData).asType(TYP_SETTER);
+
+        } catch (NoSuchFieldException e) {
+            throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
+
+        } catch (SecurityException e) {
+            throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
+
+        } catch (IllegalAccessException e) {
+            throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
+
+        }
+    }
+
+
+    /*
+     * Attributes
+     */
+
+    /**
+     * Returns the name of the data field.
+     *
+     * @return  data field name
+     *
+     * @since  Oct 19, 2026
+     */
+    String      getFieldName() {
+        return this.strFldName;
+    }
+
+    /**
+     * Returns the Java type of the data field.
+     *
+     * @return  data field type
+     *
+     * @since  Oct 19, 2026
+     */
+    Class<?>    getFieldType() {
+        return this.clsFldType;
+    }
+
+    /**
+     * Returns the classification of the data field type.
+     *
+     * @return  data field type classification
+     *
+     * @since  Oct 19, 2026
+     */
+    FieldType   getFieldTypeClass() {
+        return this.enmFldType;
+    }
+
+
+    /**
+     * Returns the reflective description of the field, that is, its
+     * modifiers, type, declaring class and name.
+     *
+     * @return  description of the data field
+     *
+     * @since  Oct 19, 2026
+     *
+     * @see java.lang.reflect.Field#toString()
+     */
+    @Override
+    public String   toString() {
+        return this.strFldDescr;
+    }
+
+
+    /*
+     * Operations
+     */
+
+    /**
+     * Returns the value of the data field of the given record.  Scalar
+     * values are boxed.
+     *
+     * @param recData   SCADA record holding the field
+     *
+     * @return          the field value
+     *
+     * @throws BadStructException   the field could not be read
+     *
+     * @since  Oct 19, 2026
+     */
+    Object  get(ScadaRecord recData) throws BadStructException {
+        try {
+            return (Object)this.hndGetter.invokeExact((Object)recData);
+
+        } catch (Throwable e) {
+            throw this.fieldException("Illegal access attempt for field ", e); //$NON-NLS-1$
+
+        }
+    }
+
+    /**
+     * Sets the value of the data field of the given record.  Scalar
+     * values must be given as the boxed form of the field type.
+     *
+     * @param recData   SCADA record holding the field
+     * @param objVal    new value of the field
+     *
+     * @throws BadStructException   the value is incompatible with the field
+     *
+     * @since  Oct 19, 2026
+     */
+    void    set(ScadaRecord recData, Object objVal) throws BadStructException {
+        try {
+            this.hndSetter.invokeExact((Object)recData, objVal);
+
+        } catch (Throwable e) {
+            throw this.fieldException("Illegal type conversion for field ", e); //$NON-NLS-1$
+
+        }
+    }
+
+    /**
+     * Indicates whether the field value can be requested with a queued get
+     * through <code>{@link #requestFromChannel(Channel, IEventSinkValTime)}</code>.
+     * <code>String</code> fields are read from the string value of their PV, for
+     * which there is no queued get, so they must be read with
+     * <code>{@link #setFromChannel(ScadaRecord, Channel)}</code>.
+     *
+     * @return  <code>true</code> if the field value can be requested with a queued get
+     *
+     * @since  Oct 19, 2026
+     */
+    boolean isRequestable() {
+        return this.enmFldType != FieldType.STRING;
+    }
+
+    /**
+     * Queues a get request for the value record of the field's PV without
+     * flushing.  The record is the transformed record for <code>double[]</code>
+     * fields and the raw record otherwise, as expected by
+     * <code>{@link #setFromPvRecord(ScadaRecord, ChannelRecord)}</code>.
+     *
+     * @param chanPv    channel of the (read back) PV
+     * @param snkVal    receives the value record
+     *
+     * @throws ConnectionException  the channel is not connected
+     * @throws GetException         general channel access get failure
+     *
+     * @since  Oct 19, 2026
+     */
+    void    requestFromChannel(Channel chanPv, IEventSinkValTime snkVal) throws ConnectionException, GetException {
+        if (this.enmFldType == FieldType.DOUBLE_ARRAY)
+            chanPv.getValueTimeCallback(snkVal, false);
+        else
+            chanPv.getRawValueTimeCallback(snkVal, false);
+    }
+
+    /**
+     * Sets the data field of the given record from the current value of
+     * the given channel.  The value is fetched synchronously.
+     *
+     * @param recData   SCADA record holding the field
+     * @param chanPv    channel of the (read back) PV
+     *
+     * @throws BadStructException   the field type cannot be read from a PV
+     * @throws ConnectionException  the channel is not connected
+     * @throws GetException         general channel access get failure
+     *
+     * @since  Oct 19, 2026
+     */
+    void    setFromChannel(ScadaRecord recData, Channel chanPv) throws BadStructException, ConnectionException, GetException {
+        switch (this.enmFldType) {
+        case DOUBLE_ARRAY:  this.set(recData, chanPv.getArrDbl());      break;
+        case STRING:        this.set(recData, chanPv.getValString());   break;
+        default:
+            this.setFromPvRecord(recData, chanPv.getRawValueRecord());
+        }
+    }
+
+    /**
+     * Sets the data field of the given record from a channel access
+     * record, converting the PV value to the field type.  The record
+     * must be the transformed value record for <code>double[]</code> fields
+     * and the raw value record otherwise, as requested by
+     * <code>{@link #requestFromChannel(Channel, IEventSinkValTime)}</code>.
+     *
+     * @param recData   SCADA record holding the field
+     * @param recPv     PV value record
+     *
+     * @throws BadStructException   the field type cannot be read from a PV
+     *
+     * @since  Oct 19, 2026
+     */
+    void    setFromPvRecord(ScadaRecord recData, ChannelRecord recPv) throws BadStructException {
+        switch (this.enmFldType) {
+        case BYTE:          this.set(recData, recPv.byteValue());   break;
+        case BYTE_ARRAY:    this.set(recData, recPv.byteArray());   break;
+        case SHORT:         this.set(recData, recPv.shortValue());  break;
+        case SHORT_ARRAY:   this.set(recData, recPv.shortArray());  break;
+        case INT:           this.set(recData, recPv.intValue());    break;
+        case INT_ARRAY:     this.set(recData, recPv.intArray());    break;
+        case FLOAT:         this.set(recData, recPv.floatValue());  break;
+        case FLOAT_ARRAY:   this.set(recData, recPv.floatArray());  break;
+        case DOUBLE:        this.set(recData, recPv.doubleValue()); break;
+        case DOUBLE_ARRAY:  this.set(recData, recPv.doubleArray()); break;
+        case STRING:        this.set(recData, recPv.stringValue()); break;
+        default:
+            throw this.unsupportedType();
+        }
+    }
+
+    /**
+     * Puts the value of the data field of the given record to the given
+     * channel without flushing.  The put completes when the caller flushes
+     * the channel access request buffer.
+     *
+     * @param recData   SCADA record holding the field
+     * @param chanPv    channel of the (set) PV
+     * @param lsnPut    receives the put completion event
+     *
+     * @throws BadStructException   the field type cannot be written to a PV
+     * @throws ConnectionException  the channel is not connected
+     * @throws PutException         general channel access put failure
+     *
+     * @since  Oct 19, 2026
+     */
+    void    putToChannel(ScadaRecord recData, Channel chanPv, PutListener lsnPut)
+        throws BadStructException, ConnectionException, PutException
+    {
+        Object  objVal = this.get(recData);
+
+        switch (this.enmFldType) {
+        case BYTE:          chanPv.putValCallback((Byte)objVal, lsnPut);        break;
+        case BYTE_ARRAY:    chanPv.putValCallback((byte[])objVal, lsnPut);      break;
+        case SHORT:         chanPv.putValCallback((Short)objVal, lsnPut);       break;
+        case SHORT_ARRAY:   chanPv.putValCallback((short[])objVal, lsnPut);     break;
+        case INT:           chanPv.putValCallback((Integer)objVal, lsnPut);     break;
+        case INT_ARRAY:     chanPv.putValCallback((int[])objVal, lsnPut);       break;
+        case FLOAT:         chanPv.putValCallback((Float)objVal, lsnPut);       break;
+        case FLOAT_ARRAY:   chanPv.putValCallback((float[])objVal, lsnPut);     break;
+        case DOUBLE:        chanPv.putValCallback((Double)objVal, lsnPut);      break;
+        case DOUBLE_ARRAY:  chanPv.putValCallback((double[])objVal, lsnPut);    break;
+        case STRING:        chanPv.putValCallback((String)objVal, lsnPut);      break;
+        default:
+            throw this.unsupportedType();
+        }
+    }
+
+    /**
+     * Sets the data field of the given record from the attribute of the
+     * same name in the given data source.  Fields of other types are
+     * left unchanged.
+     *
+     * @param recData   SCADA record holding the field
+     * @param daptVals  data source containing the field attribute
+     *
+     * @throws BadStructException   the attribute value is incompatible with the field
+     *
+     * @since  Oct 19, 2026
+     */
+    void    setFromAdaptor(ScadaRecord recData, DataAdaptor daptVals) throws BadStructException {
+        String  strName = this.strFldName;
+
+        switch (this.enmFldType) {
+        case DOUBLE_ARRAY:  this.set(recData, daptVals.doubleArray(strName));   break;
+        case DOUBLE:        this.set(recData, daptVals.doubleValue(strName));   break;
+        case LONG:          this.set(recData, daptVals.longValue(strName));     break;
+        case INT:           this.set(recData, daptVals.intValue(strName));      break;
+        case BOOLEAN:       this.set(recData, daptVals.booleanValue(strName));  break;
+        case STRING:        this.set(recData, daptVals.stringValue(strName));   break;
+        default:
+            break;
+        }
+    }
+
+
+    /*
+     * Support Methods
+     */
+
+    /**
+     * Creates the exception for a failed field access.
+     *
+     * @param strMsg    description of the failure followed by the field name
+     * @param e         cause of the failure
+     *
+     * @return          exception to be thrown
+     *
+     * @since  Oct 19, 2026
+     */
+    private BadStructException  fieldException(String strMsg, Throwable e) {
+        if (e instanceof Exception)
+            return new BadStructException("ScadaRecord: " + strMsg + this.strFldName, (Exception)e); //$NON-NLS-1$
+
+        return new BadStructException("ScadaRecord: " + strMsg + this.strFldName + " (" + e + ")"); //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+    }
+
+    /**
+     * Creates the exception for a field type which cannot be exchanged with a PV.
+     *
+     * @return  exception to be thrown
+     *
+     * @since  Oct 19, 2026
+     */
+    private BadStructException  unsupportedType() {
+        String  strMsg = "ScadaRecord: Unsupported data type " + this.clsFldType.getName() +  //$NON-NLS-1$
+                         " for field " + this.strFldName; //$NON-NLS-1$
+
+        return new BadStructException(strMsg);
+    }
+}
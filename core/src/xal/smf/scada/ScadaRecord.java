@@ -8,21 +8,30 @@ package xal.smf.scada;
 
 import xal.smf.scada.ScadaFieldDescriptor;
 import xal.smf.scada.BadStructException;
+import xal.ca.BatchConnectionRequest;
 import xal.ca.Channel;
 import xal.ca.ChannelRecord;
+import xal.ca.ChannelTimeRecord;
 import xal.ca.ConnectionException;
 import xal.ca.GetException;
+import xal.ca.IEventSinkValTime;
 import xal.ca.PutException;
+import xal.ca.PutListener;
 import xal.tools.data.DataAdaptor;
 import xal.tools.data.DataListener;
 import xal.smf.AcceleratorNode;
 
-import java.lang.reflect.Field;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Base class for data records containing
@@ -71,6 +80,19 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
 
 
 
+    /*
+     * Global Attributes
+     */
+    
+    /** The annotated field descriptors of each record class, parsed once per class */
+    private static final ConcurrentMap<Class<?>, ScadaFieldDescriptor[]> MAP_CLS2FDS = 
+            new ConcurrentHashMap<Class<?>, ScadaFieldDescriptor[]>();
+
+    
+    /*
+     * Local Attributes
+     */
+    
     /** The set of PV field descriptors for this data set */
     private List<ScadaFieldDescriptor>        lstFldDscr; 
 
@@ -130,7 +152,14 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
      * Populate the fields of this data set with the current
      * Process Variable values of the given device.  We
      * assume that this data set has the appropriate fields
-     * for the given device.
+     * for the given device.  The read back PVs are connected
+     * together, all the get requests are issued before a single
+     * flush of the channel access request buffer, then the fields
+     * are set through their cached accessors as the values arrive.
+     * <code>double[]</code> fields receive the transformed PV values and
+     * <code>String</code> fields the PV string values, which are fetched
+     * individually after the batch, while all other fields receive the
+     * raw PV values.
      *
      * @param smfDev    hardware device from which values are obtained
      * 
@@ -144,17 +173,76 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
     public void loadHardwareValues(AcceleratorNode smfDev) 
         throws BadStructException, ConnectionException, GetException 
     {
+        int                         cntFlds  = this.lstFldDscr.size();
+        final ScadaFieldAccessor[]  arrAccs  = new ScadaFieldAccessor[cntFlds];
+        final ChannelRecord[]       arrRecs  = new ChannelRecord[cntFlds];
+        String[]                    arrHnds  = new String[cntFlds];
+        Channel[]                   arrChans = new Channel[cntFlds];
+        
+        int     indFld = 0;
         for (ScadaFieldDescriptor pfdFld : this.lstFldDscr) {
-            String      strFldNm = pfdFld.getFieldName();
-            String      strHndPv = pfdFld.getRbHandle();
+            arrAccs[indFld]  = ScadaFieldAccessor.getAccessor(this.getClass(), pfdFld.getFieldName());
+            arrHnds[indFld]  = pfdFld.getRbHandle();
+            arrChans[indFld] = smfDev.getChannel(arrHnds[indFld]);
+            indFld++;
+        }
+        
+        double  dblTmout = ScadaRecord.connectChannels(arrChans, arrHnds);
+        
+        // Request the values of all the PVs with queued gets then flush the requests at once
+        int     cntReqs = 0;
+        for (ScadaFieldAccessor accFld : arrAccs) 
+            if (accFld.isRequestable())
+                cntReqs++;
+        
+        final CountDownLatch    latGets = new CountDownLatch(cntReqs);
+        
+        for (indFld=0; indFld<cntFlds; indFld++) {
+            if (!arrAccs[indFld].isRequestable())
+                continue;
+            
+            final int   indRec = indFld;
+            
+            arrAccs[indFld].requestFromChannel(arrChans[indFld], new IEventSinkValTime() {
+                @Override
+                public void eventValue(ChannelTimeRecord recPv, Channel chan) {
+                    arrRecs[indRec] = recPv;
+                    latGets.countDown();
+                }
+            });
+        }
+        Channel.flushIO();
+        
+        try {
+            latGets.await((long)(1000.0*dblTmout), TimeUnit.MILLISECONDS);
+            
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GetException("ScadaRecord#loadHardwareValues(): interrupted waiting for PV values"); //$NON-NLS-1$
+            
+        }
+        
+        // Set the fields, the latch publishes the records written by the callbacks
+        for (indFld=0; indFld<cntFlds; indFld++) {
+            if (!arrAccs[indFld].isRequestable()) {
+                arrAccs[indFld].setFromChannel(this, arrChans[indFld]);
+                continue;
+            }
+            
+            if (arrRecs[indFld] == null)
+                throw new GetException("ScadaRecord#loadHardwareValues(): no value received within " + dblTmout +  //$NON-NLS-1$
+                        " seconds for channel " + arrChans[indFld].channelName() +  //$NON-NLS-1$
+                        ", XAL channel handle = " + arrHnds[indFld]); //$NON-NLS-1$
             
-            this.setFieldFromPV(strFldNm, strHndPv, smfDev);
+            arrAccs[indFld].setFromPvRecord(this, arrRecs[indFld]);
         }
     }
     
     /**
      * Sets the parameters of the given hardware device, to the values 
-     * in this data structure.
+     * in this data structure.  The (set) PVs are connected together and
+     * all the puts are issued before a single flush of the channel access 
+     * request buffer.
      *
      * @param smfDev    hardware device to receive new parameter values
      * 
@@ -168,17 +256,40 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
     public void     setHardwareValues(AcceleratorNode smfDev) 
         throws BadStructException, ConnectionException, PutException 
     {
+        List<ScadaFieldAccessor>    lstAccs  = new LinkedList<ScadaFieldAccessor>();
+        List<String>                lstHnds  = new LinkedList<String>();
+        List<Channel>               lstChans = new LinkedList<Channel>();
+        
         for (ScadaFieldDescriptor pfdFld : this.lstFldDscr) {
             if (  pfdFld.isControllable() ) {
-                String          strFldNm = pfdFld.getFieldName();
-                String          strHndPv = pfdFld.getSetHandle();
-
-                this.setPvFromField(strFldNm, strHndPv, smfDev);
+                lstAccs.add( ScadaFieldAccessor.getAccessor(this.getClass(), pfdFld.getFieldName()) );
+                lstHnds.add( pfdFld.getSetHandle() );
+                lstChans.add( smfDev.getChannel(pfdFld.getSetHandle()) );
             }
         }
+        if (lstChans.isEmpty())
+            return;
+        
+        Channel[]   arrChans = lstChans.toArray(new Channel[lstChans.size()]);
+        
+        ScadaRecord.connectChannels(arrChans, lstHnds.toArray(new String[lstHnds.size()]));
+        
+        // A put with a listener is queued rather than flushed immediately,
+        //  so all the puts go out with the single flush below
+        PutListener lsnPuts = new PutListener() {
+            @Override
+            public void putCompleted(Channel chan) {
+            }
+        };
+        
+        int     indFld = 0;
+        for (ScadaFieldAccessor accFld : lstAccs) 
+            accFld.putToChannel(this, arrChans[indFld++], lsnPuts);
+        
+        Channel.flushIO();
     }
-
     
+
     /*
      * Object Overrides
      */
@@ -205,35 +316,22 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
             String          strFldVal;
             
             try {
-                Field   fldDataSet = this.getClass().getField(strFldNm);
+                ScadaFieldAccessor  accFld = ScadaFieldAccessor.getAccessor(this.getClass(), strFldNm);
                 
-                if (clsFldTyp == double.class || clsFldTyp == Double.class) {
-                    double  dblVal = fldDataSet.getDouble(this);
-                    strFldVal = String.valueOf(dblVal);
-                    
-                } else if (clsFldTyp == int.class || clsFldTyp == Integer.class) {
-                    int     intVal = fldDataSet.getInt(this);
-                    strFldVal = String.valueOf(intVal);
+                if (clsFldTyp == double.class || clsFldTyp == Double.class
+                 || clsFldTyp == int.class || clsFldTyp == Integer.class) {
+                    strFldVal = String.valueOf( accFld.get(this) );
                     
                 } else {
-                    strFldVal = fldDataSet.toString();
+                    strFldVal = accFld.toString();
                     
                 }
 
                 bufStr.append(strFldNm + " = " + strFldVal + "\n"); //$NON-NLS-1$ //$NON-NLS-2$
                 
-            } catch (SecurityException e) {
+            } catch (BadStructException e) {
                 bufStr.append(strFldNm + " = ERROR\n"); //$NON-NLS-1$
 
-            } catch (NoSuchFieldException e) {
-                bufStr.append(strFldNm + " = ERROR\n"); //$NON-NLS-1$
-                
-            } catch (IllegalArgumentException e) {
-                bufStr.append(strFldNm + " = ERROR\n"); //$NON-NLS-1$
-                
-            } catch (IllegalAccessException e) {
-                bufStr.append(strFldNm + " = ERROR\n"); //$NON-NLS-1$
-                
             }
         }
 
@@ -287,54 +385,8 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
                 throw new MissingResourceException(strMsg, this.getClass().getName(), strFldName);
             }
             
-            // Get the field object and its data type
-            try {
-                Class<? extends ScadaRecord>     clsThis    = this.getClass();
-                Field                            fldDataFld = clsThis.getField(strFldName);
-                Class<?>                         typDataFld = fldDataFld.getType();
-
-                if (typDataFld == double[].class) {
-                    
-                    double[] arrVals = daptVals.doubleArray(strFldName);
-
-                    fldDataFld.set(this, arrVals);
-                    
-                } else if (typDataFld == double.class){
-                    double dblVal = daptVals.doubleValue(strFldName);
-                    
-                    fldDataFld.setDouble(this, dblVal);
-                    
-                } else if (typDataFld == long.class) {
-                    long lngVal = daptVals.longValue(strFldName);
-                    
-                    fldDataFld.setLong(this, lngVal);
-                    
-                } else if (typDataFld == int.class) {
-                    int intVal = daptVals.intValue(strFldName);
-                    
-                    fldDataFld.setInt(this, intVal);
-                    
-                } else if (typDataFld == boolean.class) {
-                    boolean bolVal = daptVals.booleanValue(strFldName);
-                    
-                    fldDataFld.setBoolean(this, bolVal);
-                    
-                } else if (typDataFld == String.class) {
-                    String strVal = daptVals.stringValue(strFldName);
-                    
-                    fldDataFld.set(this, strVal);
-                }
-
-            } catch (IllegalAccessException e) {
-                throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
-                
-            } catch (SecurityException e) {
-                throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
-
-            } catch (NoSuchFieldException e) {
-                throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
-                
-            }
+            // Set the field through its cached accessor according to its data type
+            ScadaFieldAccessor.getAccessor(this.getClass(), strFldName).setFromAdaptor(this, daptVals);
         }
     }
 
@@ -362,32 +414,18 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
         for (ScadaFieldDescriptor pktFld : this.lstFldDscr) {
             String          strFldName = pktFld.getFieldName();
 
-            // Get the field object and its data type
-            try {
-                Class<? extends ScadaRecord> clsThis    = this.getClass();
-                Field                            fldDataFld = clsThis.getField(strFldName);
-                Class<?>                         typDataFld = fldDataFld.getType();
-                Object                           objFldVal  = fldDataFld.get(this);
+            // Get the field value through its cached accessor
+            ScadaFieldAccessor  accFld    = ScadaFieldAccessor.getAccessor(this.getClass(), strFldName);
+            Object              objFldVal = accFld.get(this);
 
-                if (typDataFld == double[].class) {
-                    double[]    arrVals = (double[])objFldVal;
-                    
-                    daptVals.setValue(strFldName, arrVals);
-                    
-                } else {
-                    daptVals.setValue(strFldName, objFldVal.toString());
+            if (accFld.getFieldTypeClass() == ScadaFieldAccessor.FieldType.DOUBLE_ARRAY) {
+                double[]    arrVals = (double[])objFldVal;
 
-                }
+                daptVals.setValue(strFldName, arrVals);
 
-            } catch (IllegalAccessException e) {
-                throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
-                
-            } catch (SecurityException e) {
-                throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
+            } else {
+                daptVals.setValue(strFldName, objFldVal.toString());
 
-            } catch (NoSuchFieldException e) {
-                throw new BadStructException("Data field " + strFldName + " is ill-defined.", e); //$NON-NLS-1$ //$NON-NLS-2$
-                
             }
         }
     }
@@ -441,8 +479,22 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
      * @author    Christopher K. Allen
      */
     protected ScadaRecord() throws BadStructException {
-        this.lstFldDscr = new ScadaFieldList( this.getClass() );
-        this.mapNm2Fd   = new ScadaFieldMap( this.getClass() );
+        this.lstFldDscr = new LinkedList<ScadaFieldDescriptor>();
+        this.mapNm2Fd   = new HashMap<String, ScadaFieldDescriptor>();
+        
+        // The annotations are parsed once per class, the descriptors are immutable
+        ScadaFieldDescriptor[]  arrFds = MAP_CLS2FDS.get( this.getClass() );
+        if (arrFds == null) {
+            ScadaFieldList  lstFds = new ScadaFieldList( this.getClass() );
+            
+            arrFds = lstFds.toArray( new ScadaFieldDescriptor[lstFds.size()] );
+            MAP_CLS2FDS.putIfAbsent(this.getClass(), arrFds);
+        }
+        
+        for (ScadaFieldDescriptor fd : arrFds) {
+            this.lstFldDscr.add(fd);
+            this.mapNm2Fd.put(fd.getFieldName(), fd);
+        }
         
 //        if (this.lstFldDscr.size() == 0)
 //            throw new BadStructException("No SCADA fields (@AScada.Field) found in data structure."); //$NON-NLS-1$
@@ -572,7 +624,8 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
     /**
      * Set the value of of the given data field using the
      * value obtained from the PV attached to the given device.
-     * The type of the field is determined using Java reflection.
+     * The type of the field is determined using Java reflection
+     * once per record class and cached with the field accessor.
      * Supported typed are all the native types plus their
      * array forms.  The value of the PV is read in as the
      * same type of the data field.  
@@ -593,103 +646,17 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
     protected void setFieldFromPV(String strFldName, String strHndPv, AcceleratorNode smfDev) 
         throws BadStructException, ConnectionException, GetException
     {
+        // Get the cached accessor of the data structure field
+        ScadaFieldAccessor  accFld = ScadaFieldAccessor.getAccessor(this.getClass(), strFldName);
         
-        try {
-            // Get the data structure field object and its data type
-            Class<? extends ScadaRecord> clsThis  = this.getClass();
-            Field                       fldDataFld = clsThis.getField(strFldName);
-            Class<?>                    clsFldType = fldDataFld.getType();
-
-            
-            // Get the channel for the data structure process variable 
-            Channel       chanPv = smfDev.getAndConnectChannel(strHndPv);
-            if ( !chanPv.isConnected() )
-                throw new ConnectionException(chanPv, "Channel to data structure PV will not connect." +  //$NON-NLS-1$
-                        "XAL channel handle = " + strHndPv); //$NON-NLS-1$
-            
-            ChannelRecord recPv  = chanPv.getRawValueRecord();
-            
-            // Get the PV value and set the field with it
-            if (clsFldType == byte.class || clsFldType == Byte.class) {
-                Byte    bytVal = recPv.byteValue();
-                fldDataFld.set(this, bytVal);
-                
-            } else if (clsFldType == byte[].class) {
-//                byte[]      arrBytVal = chanPv.getArrByte();
-//                fldDataStr.set(this, arrBytVal);
-                byte[]      arrBytVal = recPv.byteArray();
-                fldDataFld.set(this, arrBytVal);
-
-            } else if (clsFldType == int.class || clsFldType == Integer.class) {
-                Integer intVal = recPv.intValue();
-                fldDataFld.setInt(this, intVal);
-
-            } else if (clsFldType == int[].class ) {
-                int[]       arrIntVal = recPv.intArray();
-                fldDataFld.set(this, arrIntVal);
-            
-            } else if (clsFldType == short.class || clsFldType == Short.class) {
-                Short   sht = recPv.shortValue();
-                fldDataFld.setInt(this, sht);
-
-            } else if (clsFldType == short[].class) {
-                short[]       arrLngVal = recPv.shortArray();
-                fldDataFld.set(this, arrLngVal);
-            
-            } else if (clsFldType == float.class || clsFldType == Float.class) {
-                Float   fltVal = recPv.floatValue();
-                fldDataFld.setFloat(this, fltVal);
-                
-            } else if (clsFldType == float[].class) {
-                float[]     arFltVal = recPv.floatArray();
-                fldDataFld.set(this, arFltVal);
-                
-            } else if (clsFldType == double.class || clsFldType == Double.class) { 
-                Double  dblVal = recPv.doubleValue();
-                fldDataFld.setDouble(this, dblVal);
-                
-            } else if (clsFldType == double[].class) {
-                double[]    arrDblVal = chanPv.getArrDbl();
-                fldDataFld.set(this, arrDblVal);
-                
-            } else if (clsFldType == String.class) {
-                String  strVal = chanPv.getValString();
-                fldDataFld.set(this, strVal);
-                
-            } else {
-                String  strType = clsFldType.getName();
-                String  strMsg  = "ScadaStruct#setFieldFromPv(): " + //$NON-NLS-1$
-                                  "Unsupported data type " + strType +  //$NON-NLS-1$
-                                  " for channel handle " + strHndPv; //$NON-NLS-1$
-                System.err.println(strMsg);
-                throw new BadStructException(strMsg);
-            }
-
-        } catch (SecurityException e) {
-            String  strMsg = "ScadaStruct#getHardwareValues:" //$NON-NLS-1$
-                + " unable to initialize field " + strFldName //$NON-NLS-1$
-                + ", incompatible types for " + strHndPv; //$NON-NLS-1$
-            throw new BadStructException(strMsg, e);
-            
-        } catch (NoSuchFieldException e) {
-            String  strMsg = "ScadaStruct#getHardwareValues:" //$NON-NLS-1$
-                + " unable to initialize field " + strFldName //$NON-NLS-1$
-                + ", incompatible types for " + strHndPv; //$NON-NLS-1$
-            throw new BadStructException(strMsg, e);
-            
-        } catch (IllegalArgumentException e) {
-            String  strMsg = "ScadaStruct#getHardwareValues:" //$NON-NLS-1$
-                + " unable to initialize field " + strFldName //$NON-NLS-1$
-                + ", incompatible types for " + strHndPv; //$NON-NLS-1$
-            throw new BadStructException(strMsg, e);
-            
-        } catch (IllegalAccessException e) {
-            String  strMsg = "ScadaStruct#getHardwareValues:" //$NON-NLS-1$
-                + " unable to initialize field " + strFldName //$NON-NLS-1$
-                + ", incompatible types for " + strHndPv; //$NON-NLS-1$
-            throw new BadStructException(strMsg, e);
-            
-        }
+        // Get the channel for the data structure process variable 
+        Channel       chanPv = smfDev.getAndConnectChannel(strHndPv);
+        if ( !chanPv.isConnected() )
+            throw new ConnectionException(chanPv, "Channel to data structure PV will not connect." +  //$NON-NLS-1$
+                    "XAL channel handle = " + strHndPv); //$NON-NLS-1$
+        
+        // Set the field with the PV value converted to the field type
+        accFld.setFromChannel(this, chanPv);
     }
 
     
@@ -720,80 +687,51 @@ public abstract class ScadaRecord implements DataListener, Cloneable {
     protected void setPvFromField(String strFldName, String  strHndPv, AcceleratorNode smfDev) 
         throws BadStructException, ConnectionException, PutException
     {
+        // Get the PV channel handle then fetch channel 
+        Channel             chanPv = smfDev.getAndConnectChannel(strHndPv);
 
-        try {
-            // Get the PV channel handle then fetch channel 
-            Channel         chanPv = smfDev.getAndConnectChannel(strHndPv);
-
-            
-            // Get the field object and its data type
-            Class<? extends ScadaRecord>    clsThis    = this.getClass();
-            Field                           fldDataFld = clsThis.getField(strFldName);
-            Class<?>                        clsFldType = fldDataFld.getType();
-
-            // Use the value of the field to set the PV (using the correct type)
-            if (clsFldType == byte.class) {
-                byte        bytVal = fldDataFld.getByte(this);
-                chanPv.putVal(bytVal);
-
-            } else if (clsFldType == byte[].class) {
-                byte[]      arrBytVal = (byte[])fldDataFld.get(this);
-                chanPv.putVal(arrBytVal);
-
-            } else if (clsFldType == int.class) {
-                int         intVal = fldDataFld.getInt(this);
-                chanPv.putVal(intVal);
-
-            } else if (clsFldType == int[].class) {
-                int[]       arrIntVal = (int[])fldDataFld.get(this);
-                chanPv.putVal(arrIntVal);
-
-            } else if (clsFldType == float.class ) {
-                float       fltVal = fldDataFld.getFloat(this);
-                chanPv.putVal(fltVal);
-
-            } else if (clsFldType == float[].class) {
-                float[]       arrFltVal = (float[])fldDataFld.get(this);
-                chanPv.putVal(arrFltVal);
-
-            } else if (clsFldType == double.class ) { 
-                double      dblVal = fldDataFld.getDouble(this);
-                chanPv.putVal(dblVal);
-
-            } else if (clsFldType == double[].class) {
-                double[]    arrDblVal = (double[])fldDataFld.get(this);
-                chanPv.putVal(arrDblVal);
-
-            } else if (clsFldType == String.class) {
-                String      strVal = (String)fldDataFld.get(this);
-                chanPv.putVal(strVal);
-                
-            } else {
-                String  strType = clsFldType.getName();
-                String  strMsg  = "ScadaRecord#setPv: " + //$NON-NLS-1$
-                "Unknown data type " + strType +  //$NON-NLS-1$
-                " for channel handle " + strHndPv; //$NON-NLS-1$
-                System.err.println(strMsg);
-                throw new BadStructException(strMsg);
-                
-            }
-            
-            
-        } catch (SecurityException e) {
-            throw new BadStructException("ScadaRecord#getPv(): Security Exception: inaccessible field " + strFldName); //$NON-NLS-1$
+        // Use the value of the field to set the PV (using the correct type)
+        ScadaFieldAccessor  accFld = ScadaFieldAccessor.getAccessor(this.getClass(), strFldName);
+        
+        accFld.putToChannel(this, chanPv, null);
+    }
+    
+    /**
+     * Connects the given channels together, waiting at most the longest I/O
+     * timeout of the channels.
+     *
+     * @param arrChans  channels of the record PVs
+     * @param arrHnds   handles of the channels on the device
+     * 
+     * @return          the longest channel access I/O timeout of the channels (in seconds)
+     * 
+     * @throws ConnectionException  a channel could not be connected
+     *
+     * @since  Oct 19, 2026
+     */
+    private static double   connectChannels(Channel[] arrChans, String[] arrHnds) throws ConnectionException {
+        double          dblTmout = 0.0;
+        Set<Channel>    setUncon = new HashSet<Channel>();
+        
+        for (Channel chan : arrChans) {
+            dblTmout = Math.max(dblTmout, chan.getIoTimeout());
             
-        } catch (NoSuchFieldException e) {
-            throw new BadStructException("ScadaRecord#getPv(): ERROR: No such field " + strFldName); //$NON-NLS-1$
+            if ( !chan.isConnected() )
+                setUncon.add(chan);
+        }
+        
+        if ( !setUncon.isEmpty() ) {
+            BatchConnectionRequest  reqCon = new BatchConnectionRequest(setUncon);
+            reqCon.submitAndWait(dblTmout);
             
-        } catch (IllegalArgumentException e) {
-            throw new BadStructException("ScadaRecord#getPv(): Illegal type conversion for field " + strFldName); //$NON-NLS-1$
-
-        } catch (IllegalAccessException e) {
-            throw new BadStructException("ScadaRecord#getPv(): Illegal access attempt for field " + strFldName); //$NON-NLS-1$
-
+            for (int indChan=0; indChan<arrChans.length; indChan++) 
+                if ( !arrChans[indChan].isConnected() ) 
+                    throw new ConnectionException(arrChans[indChan], "Channel to data structure PV will not connect." +  //$NON-NLS-1$
+                            "XAL channel handle = " + arrHnds[indChan]); //$NON-NLS-1$
         }
+        
+        return dblTmout;
     }
 
 }
 
-
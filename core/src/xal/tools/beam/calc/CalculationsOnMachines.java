@@ -144,6 +144,9 @@ public class CalculationsOnMachines extends CalculationEngine  implements ISimLo
     /** The matched beam Twiss parameters at the start of the ring */
     private final Twiss[]               arrTwsMch;
     
+    /** Cache of transfer map products between trajectory states (created when first needed) */
+    private TransferMapTree             trrXfrMaps;
+    
 
     /*
      * Initialization
@@ -232,6 +235,27 @@ public class CalculationsOnMachines extends CalculationEngine  implements ISimLo
         return this.arrTwsMch;
     }
     
+    /**
+     * <p>
+     * Returns the cache of transfer map products for the associated trajectory.  The
+     * cache composes the transfer map between any two states, or the full-turn
+     * map at any state, from O(log <i>n</i>) partial products without inverting
+     * the composite maps of the states.
+     * </p>
+     * <p>
+     * The cache is built the first time it is requested and then reused by all
+     * subsequent queries.
+     * </p>
+     * 
+     * @return  transfer map cache for the associated trajectory
+     */
+    public synchronized TransferMapTree getTransferMapTree() {
+        if (this.trrXfrMaps == null)
+            this.trrXfrMaps = new TransferMapTree(this.trjSimFull);
+        
+        return this.trrXfrMaps;
+    }
+    
     /*
      * Local Operations
      */
@@ -276,10 +300,8 @@ public class CalculationsOnMachines extends CalculationEngine  implements ISimLo
         indFrom = arrIndFrom[0] - 1;
         if (indFrom < 0) return matTo; // response from beginning of machine
         
-        TransferMapState stateFrom = trajectory.stateWithIndex(indFrom);
-        PhaseMatrix matFrom = stateFrom.getTransferMap().getFirstOrder();
-        
-        return matTo.times(matFrom.inverse());
+        // compose the partial maps between the states rather than inverting the upstream map
+        return this.getTransferMapTree().computeTransferMap(indFrom, indTo).getFirstOrder();
     }
 
     
@@ -691,7 +713,10 @@ public class CalculationsOnMachines extends CalculationEngine  implements ISimLo
      * <br>
      * <br>
      * That is, we conjugate the full transfer map for this machine by the transfer map 
-     * for the given state.
+     * for the given state.  The conjugation is evaluated without inversion as the
+     * product of the partial maps once around the machine starting at the given state
+     * (see <code>{@link TransferMapTree#computeFullTurnMapAt(TransferMapState)}</code>).
+     * States which do not belong to the associated trajectory are conjugated directly.
      * </p> 
      * 
      * @param state     state object <i>S<sub>n</sub></i> for location <i>s<sub>n</sub></i>
@@ -704,6 +729,11 @@ public class CalculationsOnMachines extends CalculationEngine  implements ISimLo
      * @since  Oct 28, 2013
      */
     protected PhaseMatrix calculateFullLatticeMatrixAt(TransferMapState state) {
+        TransferMapTree trrMaps = this.getTransferMapTree();
+        
+        if (trrMaps.containsState(state))
+            return trrMaps.computeFullTurnMapAt(state).getFirstOrder();
+        
         PhaseMap    mapPhiState = state.getTransferMap();
         PhaseMatrix matPhiState = mapPhiState.getFirstOrder();
         PhaseMatrix matPhiStInv = matPhiState.inverse();
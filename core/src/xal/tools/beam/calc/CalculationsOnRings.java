@@ -236,7 +236,10 @@ public class CalculationsOnRings extends CalculationsOnMachines {
     public R3   computePhaseAdvanceBetween(TransferMapState state1, TransferMapState state2) {
         Twiss[]     arrTws1 = this.computeMatchedTwissAt(state1);
         Twiss[]     arrTws2 = this.computeMatchedTwissAt(state2);
-        PhaseMatrix matPhi  = computeTransferMatrix(state1, state2);
+        TransferMapTree trrMaps = super.getTransferMapTree();
+        PhaseMatrix matPhi  = trrMaps.containsState(state1) && trrMaps.containsState(state2) 
+                            ? trrMaps.computeTransferMatrix(state1, state2) 
+                            : computeTransferMatrix(state1, state2);
                 
         R3      vecPhsAdv = this.calculatePhaseAdvance(matPhi, arrTws1, arrTws2);
         
@@ -317,8 +320,8 @@ public class CalculationsOnRings extends CalculationsOnMachines {
         Twiss[]     arrTwsPrv = super.getMatchedTwiss();
         Twiss[]     arrTwsCur;
         
-        PhaseMatrix matXfrPrv = PhaseMatrix.identity();
-        PhaseMatrix matXfrCur;
+        TransferMapTree trrMaps = super.getTransferMapTree();
+        int             indState = 0;
         
         // We sum up the partial phase advance from each trajectory state
         for (TransferMapState state : super.getTrajectory()) {
@@ -330,11 +333,11 @@ public class CalculationsOnRings extends CalculationsOnMachines {
             PhaseMatrix         matFull = this.calculateFullLatticeMatrixAt(state);
             
             // For this state location, compute the matched twiss parameters and 
-            //  the transfer matrix from the previous state to here. 
+            //  the transfer matrix from the previous state to here, which is the 
+            //  cached partial map of the state (the composite map of the first state). 
             arrTwsCur = super.calculateMatchedTwiss(matFull);
-            matXfrCur = state.getTransferMap().getFirstOrder();
             
-            PhaseMatrix matXfrStep = matXfrCur.times(  matXfrPrv.inverse()  );
+            PhaseMatrix matXfrStep = trrMaps.computeLeafProduct(indState, indState).getFirstOrder();
             
             // Compute the phase advance through this state then add it to the sum
             R3          vecDelPhs = super.calculatePhaseAdvance(matXfrStep, arrTwsPrv, arrTwsCur);
@@ -343,7 +346,7 @@ public class CalculationsOnRings extends CalculationsOnMachines {
             
             // Reset the loop
             arrTwsPrv = arrTwsCur;
-            matXfrPrv = matXfrCur;
+            indState++;
             
 //            // Type out
 //            System.out.println("Element ID " + state.getElementId() + " phase advance=" + vecPhsAdv);
@@ -596,6 +599,15 @@ public class CalculationsOnRings extends CalculationsOnMachines {
      */
     public PhaseMatrix  computeRingTransferMatrix(TransferMapState state1, TransferMapState state2) {
         
+        TransferMapTree trrMaps = super.getTransferMapTree();
+        
+        if (trrMaps.containsState(state1) && trrMaps.containsState(state2)) {
+            
+            PhaseMap    mapTrn = this.computeRingTransferMap(state1, state2);
+            
+            return mapTrn.getFirstOrder();
+        }
+        
         double      dblPos1 = state1.getPosition();
         double      dblPos2 = state2.getPosition();
         
@@ -687,6 +699,16 @@ public class CalculationsOnRings extends CalculationsOnMachines {
         double      dblPos1 = state1.getPosition();
         double      dblPos2 = state2.getPosition();
         
+        // Compose the cached partial maps between states of this ring's trajectory
+        TransferMapTree trrMaps = super.getTransferMapTree();
+        
+        if (trrMaps.containsState(state1) && trrMaps.containsState(state2)) {
+            int     ind1 = trrMaps.getStateIndex(state1);
+            int     ind2 = trrMaps.getStateIndex(state2);
+            
+            return trrMaps.computeRingTransferMap(ind1, ind2, !(dblPos1 < dblPos2));
+        }
+        
         if (dblPos1 < dblPos2) {
         
             PhaseMap mapTrn = CalculationsOnMachines.computeTransferMap(state1, state2);
@@ -857,6 +879,26 @@ public class CalculationsOnRings extends CalculationsOnMachines {
         return arrPosVec;
     }
     
+    /**
+     * <p>
+     * Creates a multi-turn tracking engine for the ring.  Unlike
+     * <code>{@link #computeTurnByTurnResponse(TransferMapState, TransferMapState, int, PhaseVector)}</code>,
+     * which iterates the one-turn matrix for a single particle, the engine tracks
+     * batches of particles through thin sextupole and octupole kicks placed around the
+     * ring and records the turn-by-turn coordinates at chosen observation points.
+     * </p>
+     * <p>
+     * The engine shares this object's cache of transfer map products.
+     * </p>
+     * 
+     * @return  new tracking engine for the ring of this calculation engine
+     *
+     * @since  Oct 19, 2026
+     */
+    public RingTrackingEngine createTrackingEngine() {
+        return new RingTrackingEngine( super.getTransferMapTree() );
+    }
+    
     /**
      * <p>
      * Calculates the matched Courant-Snyder parameters for the given
@@ -0,0 +1,224 @@
+/**
+ * ParticleBatch.java
+ *
+ * Since   : Oct 19, 2026
+ */
+package xal.tools.beam.calc;
+
+import java.util.Arrays;
+
+import xal.tools.beam.PhaseVector;
+
+/**
+ * <p>
+ * A batch of particles stored in structure-of-arrays form for the
+ * <code>RingTrackingEngine</code>.  Each of the six phase coordinates
+ * (<i>x</i>, <i>x'</i>, <i>y</i>, <i>y'</i>, <i>z</i>, <i>z'</i>) is held
+ * in its own primitive array indexed by particle, so the tracking kernels
+ * sweep contiguous memory rather than allocating a <code>PhaseVector</code>
+ * per particle per turn.
+ * </p>
+ * <p>
+ * The batch also records the turn on which each particle was lost.  The
+ * coordinates of a lost particle are set to <code>NaN</code>.
+ * </p>
+ *
+ * @since  Oct 19, 2026
+ */
+public class ParticleBatch {
+
+
+    /*
+     * Global Constants
+     */
+
+    /** Index of the horizontal position coordinate */
+    public static final int     IND_X  = 0;
+
+    /** Index of the horizontal divergence coordinate */
+    public static final int     IND_XP = 1;
+
+    /** Index of the vertical position coordinate */
+    public static final int     IND_Y  = 2;
+
+    /** Index of the vertical divergence coordinate */
+    public static final int     IND_YP = 3;
+
+    /** Index of the longitudinal position coordinate */
+    public static final int     IND_Z  = 4;
+
+    /** Index of the longitudinal momentum coordinate */
+    public static final int     IND_ZP = 5;
+
+    /** The number of phase coordinates of each particle */
+    public static final int     CNT_COORDS = 6;
+
+    /** Loss turn value of a particle which has not been lost */
+    public static final int     INT_NOT_LOST = -1;
+
+
+    /*
+     * Local Attributes
+     */
+
+    /** The number of particles in the batch */
+    private final int           cntParticles;
+
+    /** The particle coordinates indexed by coordinate then particle */
+    private final double[][]    arrCoords;
+
+    /** The turn on which each particle was lost or <code>INT_NOT_LOST</code> */
+    private final int[]         arrLossTurns;
+
+
+    /*
+     * Initialization
+     */
+
+    /**
+     * Constructor for <code>ParticleBatch</code>.  All particles start on axis
+     * and none are lost.
+     *
+     * @param cntParticles  number of particles in the batch
+     *
+     * @throws IllegalArgumentException the particle count is negative
+     */
+    public ParticleBatch(int cntParticles) throws IllegalArgumentException {
+        if (cntParticles < 0)
+            throw new IllegalArgumentException("Negative particle count: " + cntParticles);
+
+        this.cntParticles = cntParticles;
+        this.arrCoords    = new double[CNT_COORDS][cntParticles];
+        this.arrLossTurns = new int[cntParticles];
+
+        Arrays.fill(this.arrLossTurns, INT_NOT_LOST);
+    }
+
+    /**
+     * Sets the phase coordinates of the given particle and marks it as not lost.
+     *
+     * @param indParticle   index of the particle
+     * @param vecPhase      phase coordinates of the particle
+     */
+    public void setParticle(int indParticle, PhaseVector vecPhase) {
+        for (int indCoord=0; indCoord<CNT_COORDS; indCoord++)
+            this.arrCoords[indCoord][indParticle] = vecPhase.getElem(indCoord);
+
+        this.arrLossTurns[indParticle] = INT_NOT_LOST;
+    }
+
+    /**
+     * Sets the phase coordinates of the given particle and marks it as not lost.
+     *
+     * @param indParticle   index of the particle
+     * @param x             horizontal position
+     * @param xp            horizontal divergence
+     * @param y             vertical position
+     * @param yp            vertical divergence
+     * @param z             longitudinal position
+     * @param zp            longitudinal momentum
+     */
+    public void setParticle(int indParticle, double x, double xp, double y, double yp, double z, double zp) {
+        this.arrCoords[IND_X][indParticle]  = x;
+        this.arrCoords[IND_XP][indParticle] = xp;
+        this.arrCoords[IND_Y][indParticle]  = y;
+        this.arrCoords[IND_YP][indParticle] = yp;
+        this.arrCoords[IND_Z][indParticle]  = z;
+        this.arrCoords[IND_ZP][indParticle] = zp;
+
+        this.arrLossTurns[indParticle] = INT_NOT_LOST;
+    }
+
+
+    /*
+     * Attributes
+     */
+
+    /**
+     * Returns the number of particles in the batch.
+     *
+     * @return  number of particles
+     */
+    public int getParticleCount() {
+        return this.cntParticles;
+    }
+
+    /**
+     * Returns the live array of the given coordinate for all particles.  Changes to the
+     * array change the particle coordinates.
+     *
+     * @param indCoord  coordinate index, one of the <code>IND_</code> constants
+     *
+     * @return  array of the coordinate indexed by particle
+     */
+    public double[] getCoordinates(int indCoord) {
+        return this.arrCoords[indCoord];
+    }
+
+    /**
+     * Returns the phase coordinates of the given particle as a new phase vector.
+     *
+     * @param indParticle   index of the particle
+     *
+     * @return  homogeneous phase vector of the particle coordinates
+     */
+    public PhaseVector getParticle(int indParticle) {
+        PhaseVector vecPhase = new PhaseVector();
+
+        for (int indCoord=0; indCoord<CNT_COORDS; indCoord++)
+            vecPhase.setElem(indCoord, this.arrCoords[indCoord][indParticle]);
+
+        return vecPhase;
+    }
+
+    /**
+     * Returns the turn on which the given particle was lost.
+     *
+     * @param indParticle   index of the particle
+     *
+     * @return  the loss turn or <code>INT_NOT_LOST</code> if the particle survives
+     */
+    public int getLossTurn(int indParticle) {
+        return this.arrLossTurns[indParticle];
+    }
+
+    /**
+     * Returns whether the given particle has been lost.
+     *
+     * @param indParticle   index of the particle
+     *
+     * @return  <code>true</code> if the particle was lost, <code>false</code> otherwise
+     */
+    public boolean isLost(int indParticle) {
+        return this.arrLossTurns[indParticle] != INT_NOT_LOST;
+    }
+
+    /**
+     * Counts the particles which have not been lost.
+     *
+     * @return  number of surviving particles
+     */
+    public int countSurvivors() {
+        int     cntSurvivors = 0;
+
+        for (int indTurn : this.arrLossTurns)
+            if (indTurn == INT_NOT_LOST)
+                cntSurvivors++;
+
+        return cntSurvivors;
+    }
+
+
+    /*
+     * Support Methods
+     */
+
+    /**
+     * Returns the live array of loss turns for the tracking engine.
+     *
+     * @return  loss turns indexed by particle
+     */
+    int[] getLossTurns() {
+        return this.arrLossTurns;
+    }
+}
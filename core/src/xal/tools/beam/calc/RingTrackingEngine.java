@@ -0,0 +1,762 @@
+/**
+ * RingTrackingEngine.java
+ *
+ * Since   : Oct 19, 2026
+ */
+package xal.tools.beam.calc;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import xal.model.probe.traj.TransferMapState;
+import xal.smf.AcceleratorSeq;
+import xal.smf.impl.Sextupole;
+import xal.tools.beam.IConstants;
+import xal.tools.beam.PhaseMatrix;
+
+/**
+ * <p>
+ * Multi-turn particle tracking engine for rings with thin nonlinear kicks.
+ * The ring is taken from the transfer map trajectory of a full ring simulation
+ * (see <code>{@link CalculationsOnRings}</code>), and is compiled once into a flat
+ * array of element kernels: linear kernels holding the transfer matrix between
+ * consecutive kick or observation locations, thin sextupole and octupole kicks,
+ * and observation kernels which copy the particle coordinates into a
+ * <code>{@link TurnByTurnBuffer}</code>.  The linear kernels are composed from the
+ * <code>{@link TransferMapTree}</code> of the trajectory, so a ring with <i>m</i> kicks
+ * costs only about 2<i>m</i> kernels per turn regardless of the number of elements.
+ * </p>
+ * <p>
+ * Particles are tracked in structure-of-arrays form (<code>{@link ParticleBatch}</code>)
+ * in chunks of <code>CNT_CHUNK_PARTICLES</code>.  Each chunk is tracked through all turns
+ * independently so the chunks are shared between the calling thread and a pool of
+ * daemon threads, one per additional processor, with no synchronization between turns.
+ * </p>
+ * <p>
+ * The nonlinear kicks use the integrated normalized strengths
+ * <i>K</i><sub>2</sub><i>L</i> and <i>K</i><sub>3</sub><i>L</i>, where
+ * <i>K<sub>n</sub></i> = <i>qc</i>/<i>p</i> &part;<sup><i>n</i></sup><i>B<sub>y</sub></i>/&part;<i>x<sup>n</sup></i>,
+ * and act on the divergences as
+ * <br>
+ * <br>
+ * &nbsp; &nbsp; &Delta;<i>x'</i> + <i>i</i>&Delta;<i>y'</i> = -<i>K<sub>n</sub>L</i>/<i>n</i>!
+ *                 (<i>x</i> - <i>iy</i>)<sup><i>n</i></sup> .
+ * <br>
+ * <br>
+ * The kicks neglect the chromatic dependence on <i>z'</i>.  The online model treats
+ * the bodies of sextupoles and octupoles as drifts, so the kick of a magnet is
+ * applied at the center marker the model places in divided magnets, or spread
+ * evenly over the exits of the magnet's states when there is no center marker.
+ * </p>
+ * <p>
+ * A particle is lost on the first turn at whose end its transverse radius exceeds
+ * the aperture radius or its coordinates are no longer finite; its coordinates
+ * are then set to <code>NaN</code>.
+ * </p>
+ *
+ * @since  Oct 19, 2026
+ */
+public class RingTrackingEngine {
+
+
+    /*
+     * Global Constants
+     */
+
+    /** The number of particles tracked together by one task */
+    public static final int         CNT_CHUNK_PARTICLES = 256;
+
+    /** Prefix of the element identifiers of the magnet center markers */
+    private static final String     STR_CENTER_PREFIX = "CENTER:";
+
+    /** Kernel code of a linear transfer matrix */
+    private static final int        CODE_LINEAR = 0;
+
+    /** Kernel code of a thin sextupole kick */
+    private static final int        CODE_SEXTUPOLE = 1;
+
+    /** Kernel code of a thin octupole kick */
+    private static final int        CODE_OCTUPOLE = 2;
+
+    /** Kernel code of an observation point */
+    private static final int        CODE_OBSERVE = 3;
+
+    /** The number of matrix elements stored for each linear kernel (the six non-trivial rows) */
+    private static final int        SZ_MATRIX = 6*7;
+
+
+    /*
+     * Global Attributes
+     */
+
+    /** The executor shared by all engines to track particle chunks in parallel */
+    private static ExecutorService  EXEC_TRACKING = null;
+
+
+    /*
+     * Internal Classes
+     */
+
+    /**
+     * The compiled ring lattice.  Kernel <i>k</i> has code <code>arrCodes[k]</code>,
+     * an integer argument (the matrix offset or observation index) and a strength.
+     */
+    private static final class CompiledLattice {
+
+        /** The kernel codes in tracking order */
+        private final int[]     arrCodes;
+
+        /** The matrix offset of linear kernels or the observation index of observation kernels */
+        private final int[]     arrArgs;
+
+        /** The integrated strength of kick kernels */
+        private final double[]  arrStrengths;
+
+        /** The linear kernel matrices, six rows of seven elements each */
+        private final double[]  arrMatrices;
+
+        /** The observation point identifiers in index order */
+        private final List<String>  lstObsIds;
+
+        /**
+         * Constructor for the compiled lattice.
+         *
+         * @param arrCodes      kernel codes
+         * @param arrArgs       kernel arguments
+         * @param arrStrengths  kernel strengths
+         * @param arrMatrices   linear kernel matrices
+         * @param lstObsIds     observation point identifiers
+         */
+        private CompiledLattice(int[] arrCodes, int[] arrArgs, double[] arrStrengths, double[] arrMatrices, List<String> lstObsIds) {
+            this.arrCodes     = arrCodes;
+            this.arrArgs      = arrArgs;
+            this.arrStrengths = arrStrengths;
+            this.arrMatrices  = arrMatrices;
+            this.lstObsIds    = lstObsIds;
+        }
+    }
+
+
+    /*
+     * Local Attributes
+     */
+
+    /** The transfer map products of the ring trajectory */
+    private final TransferMapTree       trrMaps;
+
+    /** The integrated sextupole strength applied at the exit of each state */
+    private final double[]              arrSextStrengths;
+
+    /** The integrated octupole strength applied at the exit of each state */
+    private final double[]              arrOctStrengths;
+
+    /** The state index of each observation point */
+    private final List<Integer>         lstObsStates;
+
+    /** The identifier of each observation point */
+    private final List<String>          lstObsIds;
+
+    /** The transverse aperture radius beyond which particles are lost */
+    private double                      dblApertureRadius;
+
+    /** The compiled lattice, or <code>null</code> if the lattice has changed since it was compiled */
+    private CompiledLattice             latCompiled;
+
+
+    /*
+     * Initialization
+     */
+
+    /**
+     * Constructor for <code>RingTrackingEngine</code>.  The ring is closed by identifying
+     * the entrance of the first state and the exit of the last state of the trajectory,
+     * as in <code>CalculationsOnRings</code>.
+     *
+     * @param trrMaps   transfer map products of the trajectory for a full ring simulation
+     */
+    public RingTrackingEngine(TransferMapTree trrMaps) {
+        int     cntStates = trrMaps.getStateCount();
+
+        this.trrMaps           = trrMaps;
+        this.arrSextStrengths  = new double[cntStates];
+        this.arrOctStrengths   = new double[cntStates];
+        this.lstObsStates      = new ArrayList<Integer>();
+        this.lstObsIds         = new ArrayList<String>();
+        this.dblApertureRadius = Double.POSITIVE_INFINITY;
+        this.latCompiled       = null;
+    }
+
+    /**
+     * Adds a thin sextupole kick for the given magnet.  Strengths added to the same
+     * magnet accumulate.
+     *
+     * @param strNodeId     hardware node identifier (or element identifier) of the magnet
+     * @param dblK2L        integrated normalized strength <i>K</i><sub>2</sub><i>L</i> (1/m<sup>2</sup>)
+     *
+     * @throws IllegalArgumentException no state of the trajectory belongs to the magnet
+     */
+    public synchronized void addSextupole(String strNodeId, double dblK2L) throws IllegalArgumentException {
+        this.distributeStrength(this.arrSextStrengths, strNodeId, dblK2L);
+    }
+
+    /**
+     * Adds a thin octupole kick for the given magnet.  Strengths added to the same
+     * magnet accumulate.
+     *
+     * @param strNodeId     hardware node identifier (or element identifier) of the magnet
+     * @param dblK3L        integrated normalized strength <i>K</i><sub>3</sub><i>L</i> (1/m<sup>3</sup>)
+     *
+     * @throws IllegalArgumentException no state of the trajectory belongs to the magnet
+     */
+    public synchronized void addOctupole(String strNodeId, double dblK3L) throws IllegalArgumentException {
+        this.distributeStrength(this.arrOctStrengths, strNodeId, dblK3L);
+    }
+
+    /**
+     * <p>
+     * Adds the sextupole kicks of all normal sextupoles of the ring sequence
+     * which appear in the trajectory.  The integrated strength of each magnet is
+     * computed from its design field <i>B''</i> (T/m<sup>2</sup>) and effective length
+     * <i>L</i> as <i>K</i><sub>2</sub><i>L</i> = <i>qcB''L</i>/<i>p</i> using the
+     * momentum and charge of the trajectory's initial state.
+     * </p>
+     * <p>
+     * Skew sextupoles are not loaded.
+     * </p>
+     *
+     * @param smfRing   the ring sequence that was simulated
+     *
+     * @return  the number of sextupoles loaded
+     */
+    public synchronized int loadSextupoles(AcceleratorSeq smfRing) {
+        TransferMapState    state0  = this.trrMaps.getTrajectory().initialState();
+        double              dblRigid = state0.getSpeciesCharge() * IConstants.LightSpeed / state0.getMomentum();
+
+        int     cntLoaded = 0;
+        for (Sextupole smfSext : smfRing.<Sextupole>getAllNodesOfType(Sextupole.s_strType)) {
+            if (smfSext.isSkew())
+                continue;
+
+            int[]   arrInds = this.findKickStates(smfSext.getId());
+            if (arrInds.length == 0)
+                continue;
+
+            double  dblK2L = dblRigid * smfSext.getDesignField() * smfSext.getEffLength();
+            for (int indState : arrInds)
+                this.arrSextStrengths[indState] += dblK2L/arrInds.length;
+
+            cntLoaded++;
+        }
+        this.latCompiled = null;
+
+        return cntLoaded;
+    }
+
+    /**
+     * Removes all sextupole and octupole kicks.
+     */
+    public synchronized void clearKicks() {
+        Arrays.fill(this.arrSextStrengths, 0.0);
+        Arrays.fill(this.arrOctStrengths, 0.0);
+        this.latCompiled = null;
+    }
+
+    /**
+     * Adds an observation point at the exit of the given element.  Should the
+     * element occupy several states, the observation point is at the exit of
+     * the last one.
+     *
+     * @param strId     element identifier or hardware node identifier
+     *
+     * @return  the index of the observation point in the recorded samples
+     *
+     * @throws IllegalArgumentException no state of the trajectory belongs to the element
+     */
+    public synchronized int addObservationPoint(String strId) throws IllegalArgumentException {
+        int     indState = -1;
+        int     indCurr  = 0;
+        for (TransferMapState state : this.trrMaps.getTrajectory()) {
+            if (strId.equals(state.getElementId()) || strId.equals(state.getHardwareNodeId()))
+                indState = indCurr;
+            indCurr++;
+        }
+
+        if (indState < 0)
+            throw new IllegalArgumentException("No state of the ring trajectory belongs to " + strId);
+
+        return this.addObservationPoint(strId, indState);
+    }
+
+    /**
+     * Adds an observation point at the exit of the given state.
+     *
+     * @param state     a state of the ring trajectory
+     *
+     * @return  the index of the observation point in the recorded samples
+     *
+     * @throws IllegalArgumentException the state is not in the trajectory
+     */
+    public synchronized int addObservationPoint(TransferMapState state) throws IllegalArgumentException {
+        return this.addObservationPoint(state.getElementId(), this.trrMaps.getStateIndex(state));
+    }
+
+    /**
+     * Sets the transverse aperture radius beyond which particles are lost.  The default
+     * is infinite, so only particles whose coordinates overflow are lost.
+     *
+     * @param dblRadius     aperture radius (m)
+     */
+    public synchronized void setApertureRadius(double dblRadius) {
+        this.dblApertureRadius = dblRadius;
+    }
+
+
+    /*
+     * Attributes
+     */
+
+    /**
+     * Returns the transfer map products of the ring trajectory.
+     *
+     * @return  transfer map tree from which the lattice is compiled
+     */
+    public TransferMapTree getTransferMapTree() {
+        return this.trrMaps;
+    }
+
+    /**
+     * Returns the transverse aperture radius beyond which particles are lost.
+     *
+     * @return  aperture radius (m)
+     */
+    public synchronized double getApertureRadius() {
+        return this.dblApertureRadius;
+    }
+
+    /**
+     * Returns the number of observation points.
+     *
+     * @return  number of observation points
+     */
+    public synchronized int getObservationCount() {
+        return this.lstObsIds.size();
+    }
+
+    /**
+     * Returns the number of kernels applied per turn, compiling the lattice
+     * if necessary.
+     *
+     * @return  number of element kernels of the compiled lattice
+     */
+    public int getKernelCount() {
+        return this.compile().arrCodes.length;
+    }
+
+
+    /*
+     * Operations
+     */
+
+    /**
+     * <p>
+     * Tracks the particles of the batch through the given number of turns around the
+     * ring starting at the entrance of the first state of the trajectory.  The batch
+     * coordinates are updated to those at the end of the last turn, and particles lost
+     * along the way are marked with the turn on which they were lost (counted from zero
+     * for this call).  Particles which were lost before the call are not tracked.
+     * </p>
+     * <p>
+     * The coordinates at each observation point are recorded every <i>stride</i>
+     * turns, starting with turn 0.
+     * </p>
+     *
+     * @param batch         the particles to track
+     * @param cntTurns      number of turns
+     * @param cntStride     number of turns between recorded samples
+     *
+     * @return  the turn-by-turn samples at the observation points
+     *
+     * @throws IllegalArgumentException the turn count is negative, the stride is not positive,
+     *                                  or the samples will not fit in the buffer
+     */
+    public TurnByTurnBuffer track(final ParticleBatch batch, final int cntTurns, final int cntStride) throws IllegalArgumentException {
+        if (cntTurns < 0 || cntStride < 1)
+            throw new IllegalArgumentException("Invalid turn count " + cntTurns + " or stride " + cntStride);
+
+        final CompiledLattice   latCmp;
+        final double            dblAper2;
+        synchronized (this) {
+            latCmp   = this.compile();
+            dblAper2 = this.dblApertureRadius * this.dblApertureRadius;
+        }
+
+        int     cntRecords = (cntTurns + cntStride - 1) / cntStride;
+        final TurnByTurnBuffer  bufSamples = new TurnByTurnBuffer(latCmp.lstObsIds, cntRecords, cntStride, batch.getParticleCount());
+
+        final int   cntParticles = batch.getParticleCount();
+        final int   cntChunks    = (cntParticles + CNT_CHUNK_PARTICLES - 1) / CNT_CHUNK_PARTICLES;
+
+        // The chunks are claimed by the calling thread and the helper threads until none remain
+        final AtomicInteger cntClaimed = new AtomicInteger(0);
+        Runnable    runTracker = new Runnable() {
+            public void run() {
+                for (int indChunk = cntClaimed.getAndIncrement(); indChunk < cntChunks; indChunk = cntClaimed.getAndIncrement()) {
+                    int     indFirst = indChunk * CNT_CHUNK_PARTICLES;
+                    int     cntChunk = Math.min(CNT_CHUNK_PARTICLES, cntParticles - indFirst);
+
+                    trackChunk(latCmp, batch, indFirst, cntChunk, cntTurns, cntStride, dblAper2, bufSamples);
+                }
+            }
+        };
+
+        int             cntHelpers = Math.min(cntChunks - 1, Runtime.getRuntime().availableProcessors() - 1);
+        List<Future<?>> lstHelpers = new ArrayList<Future<?>>();
+        for (int i=0; i<cntHelpers; i++)
+            lstHelpers.add( getTrackingExecutor().submit(runTracker) );
+
+        runTracker.run();
+
+        try {
+            for (Future<?> futHelper : lstHelpers)
+                futHelper.get();
+
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while tracking particles", e);
+
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Particle tracking failed", e.getCause());
+        }
+
+        return bufSamples;
+    }
+
+
+    /*
+     * Support Methods
+     */
+
+    /**
+     * Returns the executor for tracking particle chunks in parallel.  Its daemon
+     * threads time out when idle.
+     *
+     * @return  the shared tracking executor
+     */
+    private static synchronized ExecutorService getTrackingExecutor() {
+        if (EXEC_TRACKING == null) {
+            int     cntThreads = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+
+            ThreadPoolExecutor  exec = new ThreadPoolExecutor(cntThreads, cntThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                public Thread newThread(Runnable runTask) {
+                    Thread  thdTracker = new Thread(runTask, "Ring Particle Tracker");
+                    thdTracker.setDaemon(true);
+
+                    return thdTracker;
+                }
+            });
+            exec.allowCoreThreadTimeOut(true);
+            EXEC_TRACKING = exec;
+        }
+
+        return EXEC_TRACKING;
+    }
+
+    /**
+     * Adds an observation point for the given state, reusing an existing
+     * observation point at the same state.
+     *
+     * @param strId     identifier of the observation point
+     * @param indState  index of the state in the trajectory
+     *
+     * @return  the index of the observation point
+     */
+    private int addObservationPoint(String strId, int indState) {
+        int     indObs = this.lstObsStates.indexOf(indState);
+        if (indObs >= 0)
+            return indObs;
+
+        this.lstObsStates.add(indState);
+        this.lstObsIds.add(strId);
+        this.latCompiled = null;
+
+        return this.lstObsStates.size() - 1;
+    }
+
+    /**
+     * Spreads the strength of the given magnet evenly over its kick states.
+     *
+     * @param arrStrengths  strengths indexed by state
+     * @param strNodeId     identifier of the magnet
+     * @param dblStrength   integrated strength of the magnet
+     *
+     * @throws IllegalArgumentException no state of the trajectory belongs to the magnet
+     */
+    private void distributeStrength(double[] arrStrengths, String strNodeId, double dblStrength) throws IllegalArgumentException {
+        int[]   arrInds = this.findKickStates(strNodeId);
+
+        if (arrInds.length == 0)
+            throw new IllegalArgumentException("No state of the ring trajectory belongs to " + strNodeId);
+
+        for (int indState : arrInds)
+            arrStrengths[indState] += dblStrength/arrInds.length;
+
+        this.latCompiled = null;
+    }
+
+    /**
+     * Finds the states at whose exits the kick of the given magnet is applied: the
+     * center marker of the magnet if there is one, otherwise every state of the magnet.
+     *
+     * @param strNodeId     identifier of the magnet
+     *
+     * @return  indices of the kick states, empty if the magnet is not in the trajectory
+     */
+    private int[] findKickStates(String strNodeId) {
+        String          strCenterId = STR_CENTER_PREFIX + strNodeId;
+        List<Integer>   lstInds     = new ArrayList<Integer>();
+
+        int     indCurr = 0;
+        for (TransferMapState state : this.trrMaps.getTrajectory()) {
+            if (strCenterId.equals(state.getElementId()))
+                return new int[] { indCurr };
+
+            if (strNodeId.equals(state.getHardwareNodeId()) || strNodeId.equals(state.getElementId()))
+                lstInds.add(indCurr);
+
+            indCurr++;
+        }
+
+        int[]   arrInds = new int[lstInds.size()];
+        for (int i=0; i<arrInds.length; i++)
+            arrInds[i] = lstInds.get(i);
+
+        return arrInds;
+    }
+
+    /**
+     * Compiles the ring into kernels if it has changed since it was last compiled.
+     * The linear maps between consecutive kick and observation locations are
+     * composed from the transfer map tree; linear segments which are the identity
+     * are dropped.
+     *
+     * @return  the compiled lattice
+     */
+    private synchronized CompiledLattice compile() {
+        if (this.latCompiled != null)
+            return this.latCompiled;
+
+        int     cntStates = this.trrMaps.getStateCount();
+        int[]   arrObsAt  = new int[cntStates];
+        Arrays.fill(arrObsAt, -1);
+        for (int indObs=0; indObs<this.lstObsStates.size(); indObs++)
+            arrObsAt[ this.lstObsStates.get(indObs) ] = indObs;
+
+        List<double[]>  lstMatrices = new ArrayList<double[]>();
+        int[]           arrCodes    = new int[4*cntStates + 1];
+        int[]           arrArgs     = new int[arrCodes.length];
+        double[]        arrValues   = new double[arrCodes.length];
+        int             cntKernels  = 0;
+
+        int     indSegStart = 0;
+        for (int indState=0; indState<cntStates; indState++) {
+            boolean bolSext = this.arrSextStrengths[indState] != 0.0;
+            boolean bolOct  = this.arrOctStrengths[indState] != 0.0;
+            boolean bolObs  = arrObsAt[indState] >= 0;
+
+            if (!bolSext && !bolOct && !bolObs && indState < cntStates - 1)
+                continue;
+
+            PhaseMatrix matSeg = this.trrMaps.computeLeafProduct(indSegStart, indState).getFirstOrder();
+            if ( !matSeg.isEquivalentTo(PhaseMatrix.identity()) ) {
+                arrCodes[cntKernels] = CODE_LINEAR;
+                arrArgs[cntKernels]  = SZ_MATRIX*lstMatrices.size();
+                lstMatrices.add( packMatrix(matSeg) );
+                cntKernels++;
+            }
+            indSegStart = indState + 1;
+
+            if (bolSext) {
+                arrCodes[cntKernels]  = CODE_SEXTUPOLE;
+                arrValues[cntKernels] = this.arrSextStrengths[indState];
+                cntKernels++;
+            }
+            if (bolOct) {
+                arrCodes[cntKernels]  = CODE_OCTUPOLE;
+                arrValues[cntKernels] = this.arrOctStrengths[indState];
+                cntKernels++;
+            }
+            if (bolObs) {
+                arrCodes[cntKernels] = CODE_OBSERVE;
+                arrArgs[cntKernels]  = arrObsAt[indState];
+                cntKernels++;
+            }
+        }
+
+        double[]    arrMatrices = new double[SZ_MATRIX*lstMatrices.size()];
+        for (int indMat=0; indMat<lstMatrices.size(); indMat++)
+            System.arraycopy(lstMatrices.get(indMat), 0, arrMatrices, SZ_MATRIX*indMat, SZ_MATRIX);
+
+        this.latCompiled = new CompiledLattice(
+                Arrays.copyOf(arrCodes, cntKernels),
+                Arrays.copyOf(arrArgs, cntKernels),
+                Arrays.copyOf(arrValues, cntKernels),
+                arrMatrices,
+                new ArrayList<String>(this.lstObsIds)
+                );
+
+        return this.latCompiled;
+    }
+
+    /**
+     * Packs the six non-trivial rows of a homogeneous transfer matrix into a
+     * row-major array.
+     *
+     * @param matPhi    transfer matrix
+     *
+     * @return  array of the first six rows of seven elements each
+     */
+    private static double[] packMatrix(PhaseMatrix matPhi) {
+        double[]    arrMat = new double[SZ_MATRIX];
+
+        for (int i=0; i<6; i++)
+            for (int j=0; j<7; j++)
+                arrMat[7*i + j] = matPhi.getElem(i, j);
+
+        return arrMat;
+    }
+
+    /**
+     * Tracks a contiguous chunk of particles through all turns.  The chunk coordinates
+     * are copied into local arrays so the kernels sweep a small working set.
+     *
+     * @param latCmp        compiled lattice
+     * @param batch         particle batch
+     * @param indFirst      index of the first particle of the chunk
+     * @param cnt           number of particles in the chunk
+     * @param cntTurns      number of turns
+     * @param cntStride     number of turns between recorded samples
+     * @param dblAper2      square of the aperture radius
+     * @param bufSamples    buffer receiving the samples
+     */
+    private static void trackChunk(CompiledLattice latCmp, ParticleBatch batch, int indFirst, int cnt, int cntTurns, int cntStride, double dblAper2, TurnByTurnBuffer bufSamples) {
+        double[]    x  = Arrays.copyOfRange(batch.getCoordinates(ParticleBatch.IND_X),  indFirst, indFirst + cnt);
+        double[]    xp = Arrays.copyOfRange(batch.getCoordinates(ParticleBatch.IND_XP), indFirst, indFirst + cnt);
+        double[]    y  = Arrays.copyOfRange(batch.getCoordinates(ParticleBatch.IND_Y),  indFirst, indFirst + cnt);
+        double[]    yp = Arrays.copyOfRange(batch.getCoordinates(ParticleBatch.IND_YP), indFirst, indFirst + cnt);
+        double[]    z  = Arrays.copyOfRange(batch.getCoordinates(ParticleBatch.IND_Z),  indFirst, indFirst + cnt);
+        double[]    zp = Arrays.copyOfRange(batch.getCoordinates(ParticleBatch.IND_ZP), indFirst, indFirst + cnt);
+        double[][]  arrChunk = new double[][] { x, xp, y, yp, z, zp };
+
+        int[]       arrLoss  = batch.getLossTurns();
+        for (int i=0; i<cnt; i++)
+            if (arrLoss[indFirst + i] != ParticleBatch.INT_NOT_LOST)
+                x[i] = xp[i] = y[i] = yp[i] = z[i] = zp[i] = Double.NaN;
+
+        int[]       arrCodes     = latCmp.arrCodes;
+        int[]       arrArgs      = latCmp.arrArgs;
+        double[]    arrStrengths = latCmp.arrStrengths;
+        double[]    arrMatrices  = latCmp.arrMatrices;
+
+        for (int indTurn=0; indTurn<cntTurns; indTurn++) {
+            boolean bolRecord = indTurn % cntStride == 0;
+            int     indRecord = indTurn / cntStride;
+
+            for (int k=0; k<arrCodes.length; k++) {
+                switch (arrCodes[k]) {
+
+                case CODE_LINEAR:
+                    applyLinear(arrMatrices, arrArgs[k], x, xp, y, yp, z, zp, cnt);
+                    break;
+
+                case CODE_SEXTUPOLE: {
+                    double  dblK = arrStrengths[k];
+                    double  dblH = 0.5*dblK;
+                    for (int i=0; i<cnt; i++) {
+                        double  xi = x[i];
+                        double  yi = y[i];
+
+                        xp[i] -= dblH*(xi*xi - yi*yi);
+                        yp[i] += dblK*xi*yi;
+                    }
+                    break;
+                }
+
+                case CODE_OCTUPOLE: {
+                    double  dblK = arrStrengths[k]/6.0;
+                    for (int i=0; i<cnt; i++) {
+                        double  xi = x[i];
+                        double  yi = y[i];
+
+                        xp[i] -= dblK*xi*(xi*xi - 3.0*yi*yi);
+                        yp[i] += dblK*yi*(3.0*xi*xi - yi*yi);
+                    }
+                    break;
+                }
+
+                case CODE_OBSERVE:
+                    if (bolRecord) {
+                        double[]    arrObs = bufSamples.getSamples(arrArgs[k]);
+                        for (int indCoord=0; indCoord<ParticleBatch.CNT_COORDS; indCoord++)
+                            System.arraycopy(arrChunk[indCoord], 0, arrObs, bufSamples.offsetOf(indRecord, indCoord) + indFirst, cnt);
+                    }
+                    break;
+                }
+            }
+
+            // Check the aperture at the end of the turn
+            for (int i=0; i<cnt; i++) {
+                double  dblR2 = x[i]*x[i] + y[i]*y[i];
+
+                if ( !(dblR2 <= dblAper2) && arrLoss[indFirst + i] == ParticleBatch.INT_NOT_LOST ) {
+                    arrLoss[indFirst + i] = indTurn;
+                    x[i] = xp[i] = y[i] = yp[i] = z[i] = zp[i] = Double.NaN;
+                }
+            }
+        }
+
+        for (int indCoord=0; indCoord<ParticleBatch.CNT_COORDS; indCoord++)
+            System.arraycopy(arrChunk[indCoord], 0, batch.getCoordinates(indCoord), indFirst, cnt);
+    }
+
+    /**
+     * Applies a linear kernel to the chunk coordinates.
+     *
+     * @param arrMat    packed matrices
+     * @param off       offset of the kernel's matrix
+     * @param x         horizontal positions
+     * @param xp        horizontal divergences
+     * @param y         vertical positions
+     * @param yp        vertical divergences
+     * @param z         longitudinal positions
+     * @param zp        longitudinal momenta
+     * @param cnt       number of particles
+     */
+    private static void applyLinear(double[] arrMat, int off, double[] x, double[] xp, double[] y, double[] yp, double[] z, double[] zp, int cnt) {
+        double  m00 = arrMat[off],    m01 = arrMat[off+1],  m02 = arrMat[off+2],  m03 = arrMat[off+3],  m04 = arrMat[off+4],  m05 = arrMat[off+5],  m06 = arrMat[off+6];
+        double  m10 = arrMat[off+7],  m11 = arrMat[off+8],  m12 = arrMat[off+9],  m13 = arrMat[off+10], m14 = arrMat[off+11], m15 = arrMat[off+12], m16 = arrMat[off+13];
+        double  m20 = arrMat[off+14], m21 = arrMat[off+15], m22 = arrMat[off+16], m23 = arrMat[off+17], m24 = arrMat[off+18], m25 = arrMat[off+19], m26 = arrMat[off+20];
+        double  m30 = arrMat[off+21], m31 = arrMat[off+22], m32 = arrMat[off+23], m33 = arrMat[off+24], m34 = arrMat[off+25], m35 = arrMat[off+26], m36 = arrMat[off+27];
+        double  m40 = arrMat[off+28], m41 = arrMat[off+29], m42 = arrMat[off+30], m43 = arrMat[off+31], m44 = arrMat[off+32], m45 = arrMat[off+33], m46 = arrMat[off+34];
+        double  m50 = arrMat[off+35], m51 = arrMat[off+36], m52 = arrMat[off+37], m53 = arrMat[off+38], m54 = arrMat[off+39], m55 = arrMat[off+40], m56 = arrMat[off+41];
+
+        for (int i=0; i<cnt; i++) {
+            double  x0 = x[i], xp0 = xp[i], y0 = y[i], yp0 = yp[i], z0 = z[i], zp0 = zp[i];
+
+            x[i]  = m00*x0 + m01*xp0 + m02*y0 + m03*yp0 + m04*z0 + m05*zp0 + m06;
+            xp[i] = m10*x0 + m11*xp0 + m12*y0 + m13*yp0 + m14*z0 + m15*zp0 + m16;
+            y[i]  = m20*x0 + m21*xp0 + m22*y0 + m23*yp0 + m24*z0 + m25*zp0 + m26;
+            yp[i] = m30*x0 + m31*xp0 + m32*y0 + m33*yp0 + m34*z0 + m35*zp0 + m36;
+            z[i]  = m40*x0 + m41*xp0 + m42*y0 + m43*yp0 + m44*z0 + m45*zp0 + m46;
+            zp[i] = m50*x0 + m51*xp0 + m52*y0 + m53*yp0 + m54*z0 + m55*zp0 + m56;
+        }
+    }
+}
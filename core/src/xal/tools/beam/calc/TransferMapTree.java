@@ -0,0 +1,378 @@
+/**
+ * TransferMapTree.java
+ *
+ * Since   : Oct 19, 2026
+ */
+package xal.tools.beam.calc;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+import xal.model.probe.traj.Trajectory;
+import xal.model.probe.traj.TransferMapState;
+import xal.tools.beam.PhaseMap;
+import xal.tools.beam.PhaseMatrix;
+
+/**
+ * <p>
+ * Cache of transfer map products for a trajectory of <code>TransferMapState</code>
+ * objects which answers transfer map queries between arbitrary states without
+ * inverting any maps.  The partial transfer map <b>P</b><sub><i>n</i></sub> through
+ * each state <i>S<sub>n</sub></i> is a leaf of a balanced segment tree where each
+ * node holds the composition of the partial maps of its leaves.  The transfer map
+ * between states <i>S<sub>i</sub></i> and <i>S<sub>j</sub></i> is then
+ * <br>
+ * <br>
+ * &nbsp; &nbsp; <b>T</b><sub><i>j,i</i></sub> = <b>P</b><sub><i>j</i></sub> &sdot;
+ *               <b>P</b><sub><i>j</i>-1</sub> &sdot; &hellip; &sdot; <b>P</b><sub><i>i</i>+1</sub> ,
+ * <br>
+ * <br>
+ * which the tree composes from O(log <i>n</i>) node maps rather than computing
+ * <b>T</b><sub><i>j</i></sub><b>T</b><sub><i>i</i></sub><sup>-1</sup> from the composite maps of the states.
+ * </p>
+ * <p>
+ * The partial maps are checked against the composite map of each state when the
+ * tree is built.  Should the partial map of a state be inconsistent with the
+ * composite maps (for example, a trajectory restored from an archive), the leaf
+ * for that state is derived from the composite maps instead.  The tree is immutable
+ * once built so a single instance can be shared by any number of queries on the
+ * same trajectory.
+ * </p>
+ *
+ * @since  Oct 19, 2026
+ */
+public class TransferMapTree {
+
+
+    /*
+     * Global Constants
+     */
+
+    /** Relative tolerance for the consistency of the partial maps with the composite maps */
+    private static final double     DBL_CONSISTENCY_TOL = 1.0e-8;
+
+
+    /*
+     * Local Attributes
+     */
+
+    /** The trajectory whose transfer maps are cached */
+    private final Trajectory<TransferMapState>      trjStates;
+
+    /** The states of the trajectory indexed by their position in the trajectory */
+    private final Map<TransferMapState, Integer>    mapStateToIndex;
+
+    /** The number of states (leaves) in the tree */
+    private final int               cntStates;
+
+    /** The number of leaf slots which is the smallest power of two not less than the number of states */
+    private final int               szLeaves;
+
+    /** The tree nodes in heap order where node <i>k</i> has children 2<i>k</i> and 2<i>k</i>+1 */
+    private final PhaseMap[]        arrMapNodes;
+
+    /** The number of leaves derived from the composite maps because their partial maps were inconsistent */
+    private final int               cntDerivedLeaves;
+
+
+    /*
+     * Initialization
+     */
+
+    /**
+     * Constructor for <code>TransferMapTree</code>.  Builds the segment tree from the
+     * partial transfer maps of the given trajectory's states, which requires one map
+     * composition per state plus one per tree node.
+     *
+     * @param trjStates     trajectory of transfer map states
+     *
+     * @throws IllegalArgumentException the trajectory is empty
+     */
+    public TransferMapTree(Trajectory<TransferMapState> trjStates) throws IllegalArgumentException {
+        int     cntStates = trjStates.numStates();
+
+        if (cntStates == 0)
+            throw new IllegalArgumentException("Cannot build a transfer map tree for an empty trajectory");
+
+        int     szLeaves = 1;
+        while (szLeaves < cntStates)
+            szLeaves *= 2;
+
+        this.trjStates = trjStates;
+        this.cntStates = cntStates;
+        this.szLeaves  = szLeaves;
+        this.arrMapNodes = new PhaseMap[2*szLeaves];
+        this.mapStateToIndex = new IdentityHashMap<TransferMapState, Integer>(2*cntStates);
+
+        // Load the leaves with the partial map through each state.  The leaf of the first
+        //  state is its composite map so the product of all leaves up to a state is
+        //  that state's composite map.
+        int                 cntDerived = 0;
+        int                 indState   = 0;
+        TransferMapState    statePrev  = null;
+        for (TransferMapState state : trjStates) {
+            PhaseMap    mapLeaf;
+
+            if (statePrev == null) {
+                mapLeaf = state.getTransferMap();
+
+            } else {
+                PhaseMap    mapPrev = statePrev.getTransferMap();
+                PhaseMap    mapCurr = state.getTransferMap();
+
+                mapLeaf = state.getPartialTransferMap();
+                if ( !isConsistent(mapLeaf.compose(mapPrev), mapCurr) ) {
+                    mapLeaf = mapCurr.compose( mapPrev.inverse() );
+                    cntDerived++;
+                }
+            }
+
+            this.arrMapNodes[szLeaves + indState] = mapLeaf;
+            this.mapStateToIndex.put(state, indState);
+
+            statePrev = state;
+            indState++;
+        }
+        this.cntDerivedLeaves = cntDerived;
+
+        // Pad the unused leaves with the identity then compose up the tree with
+        //  the right (downstream) child acting after the left child
+        for (int index=szLeaves + cntStates; index<2*szLeaves; index++)
+            this.arrMapNodes[index] = PhaseMap.identity();
+
+        for (int index=szLeaves-1; index>0; index--) {
+            PhaseMap    mapLeft  = this.arrMapNodes[2*index];
+            PhaseMap    mapRight = this.arrMapNodes[2*index + 1];
+
+            this.arrMapNodes[index] = mapRight.compose(mapLeft);
+        }
+    }
+
+
+    /*
+     * Attribute Queries
+     */
+
+    /**
+     * Returns the trajectory whose transfer maps are cached.
+     *
+     * @return  the trajectory from which this tree was built
+     */
+    public Trajectory<TransferMapState> getTrajectory() {
+        return this.trjStates;
+    }
+
+    /**
+     * Returns the number of trajectory states covered by the tree.
+     *
+     * @return  the number of states in the trajectory
+     */
+    public int getStateCount() {
+        return this.cntStates;
+    }
+
+    /**
+     * Returns the number of states whose partial transfer maps were inconsistent with
+     * the composite maps so their leaves had to be derived from the composite maps.
+     *
+     * @return  the number of derived leaves (zero for trajectories produced by the transfer map tracker)
+     */
+    public int getDerivedLeafCount() {
+        return this.cntDerivedLeaves;
+    }
+
+    /**
+     * Determines whether the given state belongs to the trajectory from which this tree was built.
+     *
+     * @param state     a trajectory state
+     *
+     * @return          <code>true</code> if the state is one of the cached trajectory's states
+     */
+    public boolean containsState(TransferMapState state) {
+        return this.mapStateToIndex.containsKey(state);
+    }
+
+    /**
+     * Returns the index of the given state within the trajectory.
+     *
+     * @param state     a state of the trajectory from which this tree was built
+     *
+     * @return          the index of the state within the trajectory
+     *
+     * @throws IllegalArgumentException the state does not belong to the trajectory
+     */
+    public int getStateIndex(TransferMapState state) throws IllegalArgumentException {
+        Integer     intIndex = this.mapStateToIndex.get(state);
+
+        if (intIndex == null)
+            throw new IllegalArgumentException("The state " + state.getElementId() + " does not belong to the cached trajectory");
+
+        return intIndex;
+    }
+
+
+    /*
+     * Operations
+     */
+
+    /**
+     * Returns the composition of the leaf maps <b>P</b><sub><i>j</i></sub> &sdot; &hellip; &sdot;
+     * <b>P</b><sub><i>i</i></sub> for the given (inclusive) range of state indices.  The
+     * identity is returned for an empty range, that is, when <i>i</i> &gt; <i>j</i>.
+     *
+     * @param indFirst  index <i>i</i> of the first (upstream) leaf
+     * @param indLast   index <i>j</i> of the last (downstream) leaf
+     *
+     * @return          composition of the leaf maps in the range
+     */
+    public PhaseMap computeLeafProduct(int indFirst, int indLast) {
+        if (indFirst < 0 || indLast >= this.cntStates)
+            throw new IndexOutOfBoundsException("Leaf range [" + indFirst + ", " + indLast + "] exceeds the " + this.cntStates + " trajectory states");
+
+        // Walk up the tree from both ends of the range collecting node maps.  The
+        //  upstream maps act first and the downstream maps act last.
+        PhaseMap    mapUpstream   = null;
+        PhaseMap    mapDownstream = null;
+
+        int     indLow  = indFirst + this.szLeaves;
+        int     indHigh = indLast + this.szLeaves + 1;
+        while (indLow < indHigh) {
+            if ( (indLow & 1) == 1 ) {
+                PhaseMap    mapNode = this.arrMapNodes[indLow++];
+
+                mapUpstream = (mapUpstream == null) ? mapNode : mapNode.compose(mapUpstream);
+            }
+
+            if ( (indHigh & 1) == 1 ) {
+                PhaseMap    mapNode = this.arrMapNodes[--indHigh];
+
+                mapDownstream = (mapDownstream == null) ? mapNode : mapDownstream.compose(mapNode);
+            }
+
+            indLow  /= 2;
+            indHigh /= 2;
+        }
+
+        if (mapUpstream == null && mapDownstream == null)
+            return PhaseMap.identity();
+        if (mapUpstream == null)
+            return mapDownstream.copy();
+        if (mapDownstream == null)
+            return mapUpstream.copy();
+
+        return mapDownstream.compose(mapUpstream);
+    }
+
+    /**
+     * Returns the transfer map <b>T</b><sub><i>j,i</i></sub> taking phase coordinates
+     * from state <i>S<sub>i</sub></i> to state <i>S<sub>j</sub></i>.  If <i>j</i> &lt; <i>i</i>
+     * the map is the inverse of the map from <i>S<sub>j</sub></i> to <i>S<sub>i</sub></i>,
+     * which is the same result as <b>T</b><sub><i>j</i></sub><b>T</b><sub><i>i</i></sub><sup>-1</sup>.
+     *
+     * @param indFrom   index <i>i</i> of the starting state
+     * @param indTo     index <i>j</i> of the final state
+     *
+     * @return          transfer map from state <i>S<sub>i</sub></i> to state <i>S<sub>j</sub></i>
+     */
+    public PhaseMap computeTransferMap(int indFrom, int indTo) {
+        if (indFrom <= indTo)
+            return this.computeLeafProduct(indFrom + 1, indTo);
+
+        return this.computeLeafProduct(indTo + 1, indFrom).inverse();
+    }
+
+    /**
+     * Returns the transfer map between the given states of the trajectory.  See
+     * <code>{@link #computeTransferMap(int, int)}</code>.
+     *
+     * @param state1    state <i>S</i><sub>1</sub> of the starting location
+     * @param state2    state <i>S</i><sub>2</sub> of the final location
+     *
+     * @return          transfer map <b>T</b><sub>2,1</sub> from <i>S</i><sub>1</sub> to <i>S</i><sub>2</sub>
+     */
+    public PhaseMap computeTransferMap(TransferMapState state1, TransferMapState state2) {
+        return this.computeTransferMap(this.getStateIndex(state1), this.getStateIndex(state2));
+    }
+
+    /**
+     * Returns the transfer matrix between the given states of the trajectory, the
+     * first-order part of <code>{@link #computeTransferMap(TransferMapState, TransferMapState)}</code>.
+     *
+     * @param state1    state <i>S</i><sub>1</sub> of the starting location
+     * @param state2    state <i>S</i><sub>2</sub> of the final location
+     *
+     * @return          transfer matrix <b>&Phi;</b><sub>2,1</sub> from <i>S</i><sub>1</sub> to <i>S</i><sub>2</sub>
+     */
+    public PhaseMatrix computeTransferMatrix(TransferMapState state1, TransferMapState state2) {
+        return this.computeTransferMap(state1, state2).getFirstOrder();
+    }
+
+    /**
+     * <p>
+     * Returns the transfer map from state <i>S<sub>i</sub></i> to state <i>S<sub>j</sub></i>
+     * always traveling downstream around a ring.  When <i>j</i> &le; <i>i</i> the map
+     * passes through the end of the trajectory and is
+     * <br>
+     * <br>
+     * &nbsp; &nbsp; <b>T</b><sub><i>j,i</i></sub> = (<b>P</b><sub><i>j</i></sub> &sdot; &hellip; &sdot; <b>P</b><sub>0</sub>)
+     *               &sdot; (<b>P</b><sub><i>n</i>-1</sub> &sdot; &hellip; &sdot; <b>P</b><sub><i>i</i>+1</sub>) ,
+     * <br>
+     * <br>
+     * which equals <b>T</b><sub><i>j</i></sub><b>T</b><sub>0</sub><b>T</b><sub><i>i</i></sub><sup>-1</sup>
+     * where <b>T</b><sub>0</sub> is the full map of the trajectory.
+     * </p>
+     *
+     * @param indFrom   index <i>i</i> of the starting state
+     * @param indTo     index <i>j</i> of the final state
+     * @param bolWrap   whether the map passes through the end of the trajectory
+     *
+     * @return          downstream transfer map from state <i>S<sub>i</sub></i> to state <i>S<sub>j</sub></i>
+     */
+    public PhaseMap computeRingTransferMap(int indFrom, int indTo, boolean bolWrap) {
+        if (!bolWrap)
+            return this.computeTransferMap(indFrom, indTo);
+
+        PhaseMap    mapToEnd   = this.computeLeafProduct(indFrom + 1, this.cntStates - 1);
+        PhaseMap    mapFromBeg = this.computeLeafProduct(0, indTo);
+
+        return mapFromBeg.compose(mapToEnd);
+    }
+
+    /**
+     * Returns the full-turn map <b>T</b><sub><i>n</i></sub><b>T</b><sub>0</sub><b>T</b><sub><i>n</i></sub><sup>-1</sup>
+     * of the ring at the location of state <i>S<sub>n</sub></i>, composed without inversion as
+     * the map once around the ring starting and ending at that state.
+     *
+     * @param state     state <i>S<sub>n</sub></i> identifying the location
+     *
+     * @return          the full-turn map at the location of the given state
+     */
+    public PhaseMap computeFullTurnMapAt(TransferMapState state) {
+        int     indState = this.getStateIndex(state);
+
+        return this.computeRingTransferMap(indState, indState, true);
+    }
+
+
+    /*
+     * Support Methods
+     */
+
+    /**
+     * Determines whether two maps agree to within the consistency tolerance
+     * relative to the size of the reference map.
+     *
+     * @param mapTest   map being tested
+     * @param mapRef    reference map
+     *
+     * @return          <code>true</code> if the linear parts and displacements agree
+     */
+    private static boolean isConsistent(PhaseMap mapTest, PhaseMap mapRef) {
+        PhaseMatrix matRef  = mapRef.getFirstOrder();
+        double      dblScale = Math.max(1.0, matRef.normInf());
+        double      dblErrLin = mapTest.getFirstOrder().minus(matRef).normInf();
+        double      dblErrDspl = mapTest.getRangeDisplace().minus( mapRef.getRangeDisplace() ).normInf();
+
+        return dblErrLin <= DBL_CONSISTENCY_TOL*dblScale && dblErrDspl <= DBL_CONSISTENCY_TOL*dblScale;
+    }
+}
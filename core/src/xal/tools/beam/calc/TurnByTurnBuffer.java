@@ -0,0 +1,230 @@
+/**
+ * TurnByTurnBuffer.java
+ *
+ * Since   : Oct 19, 2026
+ */
+package xal.tools.beam.calc;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * <p>
+ * Turn-by-turn particle coordinates recorded by the <code>RingTrackingEngine</code>
+ * at its observation points.  The samples of each observation point are held in
+ * one primitive array ordered by recorded turn, then coordinate, then particle, so
+ * the coordinates of all particles at one turn are contiguous.
+ * </p>
+ * <p>
+ * Turns are recorded at a fixed stride: record <i>r</i> holds the coordinates at
+ * the observation point during turn <i>r</i> &times; <i>stride</i>, where turn 0 is
+ * the first pass through the ring.  The samples of lost particles are <code>NaN</code>.
+ * </p>
+ *
+ * @since  Oct 19, 2026
+ */
+public class TurnByTurnBuffer {
+
+
+    /*
+     * Local Attributes
+     */
+
+    /** The identifiers of the observation points */
+    private final String[]      arrObsIds;
+
+    /** The number of recorded turns */
+    private final int           cntRecords;
+
+    /** The number of turns between consecutive records */
+    private final int           cntStride;
+
+    /** The number of particles sampled */
+    private final int           cntParticles;
+
+    /** The samples of each observation point indexed by record, coordinate then particle */
+    private final double[][]    arrSamples;
+
+
+    /*
+     * Initialization
+     */
+
+    /**
+     * Constructor for <code>TurnByTurnBuffer</code>.  The samples are initialized
+     * to <code>NaN</code>.
+     *
+     * @param lstObsIds     identifiers of the observation points
+     * @param cntRecords    number of recorded turns
+     * @param cntStride     number of turns between consecutive records
+     * @param cntParticles  number of particles sampled
+     *
+     * @throws IllegalArgumentException the samples of one observation point exceed the capacity of an array
+     */
+    TurnByTurnBuffer(List<String> lstObsIds, int cntRecords, int cntStride, int cntParticles) throws IllegalArgumentException {
+        long    szSamples = (long)cntRecords * ParticleBatch.CNT_COORDS * cntParticles;
+
+        if (szSamples > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Too many samples per observation point (" + szSamples + "), increase the turn stride");
+
+        this.arrObsIds    = lstObsIds.toArray(new String[lstObsIds.size()]);
+        this.cntRecords   = cntRecords;
+        this.cntStride    = cntStride;
+        this.cntParticles = cntParticles;
+        this.arrSamples   = new double[this.arrObsIds.length][(int)szSamples];
+
+        for (double[] arrObs : this.arrSamples)
+            Arrays.fill(arrObs, Double.NaN);
+    }
+
+
+    /*
+     * Attributes
+     */
+
+    /**
+     * Returns the number of observation points.
+     *
+     * @return  number of observation points
+     */
+    public int getObservationCount() {
+        return this.arrObsIds.length;
+    }
+
+    /**
+     * Returns the identifier of the given observation point as it was
+     * given to the tracking engine.
+     *
+     * @param indObs    index of the observation point
+     *
+     * @return  identifier of the observation point
+     */
+    public String getObservationId(int indObs) {
+        return this.arrObsIds[indObs];
+    }
+
+    /**
+     * Returns the number of recorded turns.
+     *
+     * @return  number of records per observation point
+     */
+    public int getRecordCount() {
+        return this.cntRecords;
+    }
+
+    /**
+     * Returns the number of turns between consecutive records.
+     *
+     * @return  turn stride of the records
+     */
+    public int getTurnStride() {
+        return this.cntStride;
+    }
+
+    /**
+     * Returns the turn number of the given record.
+     *
+     * @param indRecord index of the record
+     *
+     * @return  turn at which the record was taken
+     */
+    public int getRecordedTurn(int indRecord) {
+        return indRecord * this.cntStride;
+    }
+
+    /**
+     * Returns the number of particles sampled.
+     *
+     * @return  number of particles in each record
+     */
+    public int getParticleCount() {
+        return this.cntParticles;
+    }
+
+
+    /*
+     * Operations
+     */
+
+    /**
+     * Returns a single sample.
+     *
+     * @param indObs        index of the observation point
+     * @param indRecord     index of the record
+     * @param indCoord      coordinate index, one of the <code>ParticleBatch.IND_</code> constants
+     * @param indParticle   index of the particle
+     *
+     * @return  the coordinate of the particle, <code>NaN</code> if it was lost
+     */
+    public double getSample(int indObs, int indRecord, int indCoord, int indParticle) {
+        return this.arrSamples[indObs][this.offsetOf(indRecord, indCoord) + indParticle];
+    }
+
+    /**
+     * Copies the given coordinate of all particles for one record into the buffer.
+     *
+     * @param indObs        index of the observation point
+     * @param indRecord     index of the record
+     * @param indCoord      coordinate index, one of the <code>ParticleBatch.IND_</code> constants
+     * @param arrBuf        buffer of at least the particle count, or <code>null</code> to allocate one
+     *
+     * @return  the buffer holding the coordinate indexed by particle
+     */
+    public double[] getCoordinates(int indObs, int indRecord, int indCoord, double[] arrBuf) {
+        if (arrBuf == null)
+            arrBuf = new double[this.cntParticles];
+
+        System.arraycopy(this.arrSamples[indObs], this.offsetOf(indRecord, indCoord), arrBuf, 0, this.cntParticles);
+
+        return arrBuf;
+    }
+
+    /**
+     * Copies the history of the given coordinate of one particle into the buffer.
+     *
+     * @param indObs        index of the observation point
+     * @param indCoord      coordinate index, one of the <code>ParticleBatch.IND_</code> constants
+     * @param indParticle   index of the particle
+     * @param arrBuf        buffer of at least the record count, or <code>null</code> to allocate one
+     *
+     * @return  the buffer holding the coordinate indexed by record
+     */
+    public double[] getHistory(int indObs, int indCoord, int indParticle, double[] arrBuf) {
+        if (arrBuf == null)
+            arrBuf = new double[this.cntRecords];
+
+        double[]    arrObs = this.arrSamples[indObs];
+        for (int indRecord=0; indRecord<this.cntRecords; indRecord++)
+            arrBuf[indRecord] = arrObs[this.offsetOf(indRecord, indCoord) + indParticle];
+
+        return arrBuf;
+    }
+
+
+    /*
+     * Support Methods
+     */
+
+    /**
+     * Returns the array offset of the first particle of the given record and coordinate.
+     *
+     * @param indRecord     index of the record
+     * @param indCoord      coordinate index
+     *
+     * @return  offset into the samples of an observation point
+     */
+    int offsetOf(int indRecord, int indCoord) {
+        return (indRecord * ParticleBatch.CNT_COORDS + indCoord) * this.cntParticles;
+    }
+
+    /**
+     * Returns the live sample array of the given observation point for the tracking engine.
+     *
+     * @param indObs    index of the observation point
+     *
+     * @return  samples indexed by record, coordinate then particle
+     */
+    double[] getSamples(int indObs) {
+        return this.arrSamples[indObs];
+    }
+}
@@ -0,0 +1,747 @@
+//
+// ConnectionPool.java: Source file for 'ConnectionPool'
+// Project xal
+//
+
+package xal.tools.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+
+/**
+ * ConnectionPool is a bounded pool of database connections for one account (URL, user and password) whose raw connections are made by
+ * a database adaptor. Connections handed out by the pool are proxies whose close() method returns the underlying connection to the pool.
+ * Idle connections are validated before being reused and are closed once they have been idle longer than the maximum idle time.
+ * Each pooled connection also keeps a bounded cache of the prepared statements made with prepareStatement(sql) so that closing such
+ * a statement returns it to the cache to be reused the next time the same SQL is prepared on that connection.
+ * The pool records the time clients wait for a connection and the latency of the queries executed through cached prepared statements.
+ * Clients which hold a connection for their whole lifetime should use a dedicated connection instead, which caches its prepared statements
+ * in the same way but does not count against the bound and is physically closed when it is closed.
+ */
+public class ConnectionPool {
+	/** default maximum number of open connections */
+	final static public int DEFAULT_MAX_CONNECTIONS = 8;
+
+	/** default maximum time in seconds a connection may sit idle in the pool */
+	final static public double DEFAULT_MAX_IDLE_TIME = 300.0;
+
+	/** default maximum time in seconds to wait for a connection */
+	final static public double DEFAULT_MAX_WAIT_TIME = 30.0;
+
+	/** default maximum number of idle prepared statements cached per connection */
+	final static public int DEFAULT_STATEMENT_CACHE_SIZE = 32;
+
+	/** idle time in seconds beyond which a connection is validated before being reused */
+	final static private double VALIDATION_IDLE_TIME = 5.0;
+
+	/** timeout in seconds for validating a connection */
+	final static private int VALIDATION_TIMEOUT = 2;
+
+	/** pools keyed by adaptor and account */
+	final static private Map<String,ConnectionPool> POOLS = new HashMap<String,ConnectionPool>();
+
+	/** adaptor which makes the raw connections */
+	final private DatabaseAdaptor DATABASE_ADAPTOR;
+
+	/** URL of the database */
+	final private String URL_SPEC;
+
+	/** database user */
+	final private String USER;
+
+	/** user's password */
+	final private String PASSWORD;
+
+	/** idle connections with the most recently used last */
+	final private Deque<PooledConnection> IDLE_CONNECTIONS;
+
+	/** maximum number of open connections */
+	private int _maxConnections;
+
+	/** maximum time in seconds a connection may sit idle in the pool */
+	private double _maxIdleTime;
+
+	/** maximum time in seconds to wait for a connection */
+	private double _maxWaitTime;
+
+	/** maximum number of idle prepared statements cached per connection */
+	private volatile int _statementCacheSize;
+
+	/** number of open connections (idle, lent or being opened) */
+	private int _openCount;
+
+	/** indicates whether the pool has been closed */
+	private boolean _isClosed;
+
+	/** number of connections lent */
+	private long _borrowCount;
+
+	/** total time in nanoseconds spent waiting for connections */
+	private long _totalWaitTime;
+
+	/** longest time in nanoseconds spent waiting for a connection */
+	private long _maxObservedWaitTime;
+
+	/** number of queries executed through cached prepared statements */
+	final private AtomicLong QUERY_COUNT;
+
+	/** total time in nanoseconds spent executing queries through cached prepared statements */
+	final private AtomicLong TOTAL_QUERY_TIME;
+
+	/** number of prepared statements reused from a cache */
+	final private AtomicLong STATEMENT_CACHE_HITS;
+
+	/** number of prepared statements made because none was cached */
+	final private AtomicLong STATEMENT_CACHE_MISSES;
+
+
+	/**
+	 * Constructor
+	 * @param adaptor database adaptor used to make the raw connections
+	 * @param urlSpec URL of the database
+	 * @param user database user
+	 * @param password user's password
+	 */
+	public ConnectionPool( final DatabaseAdaptor adaptor, final String urlSpec, final String user, final String password ) {
+		DATABASE_ADAPTOR = adaptor;
+		URL_SPEC = urlSpec;
+		USER = user;
+		PASSWORD = password;
+		IDLE_CONNECTIONS = new ArrayDeque<PooledConnection>();
+		QUERY_COUNT = new AtomicLong( 0 );
+		TOTAL_QUERY_TIME = new AtomicLong( 0 );
+		STATEMENT_CACHE_HITS = new AtomicLong( 0 );
+		STATEMENT_CACHE_MISSES = new AtomicLong( 0 );
+
+		_maxConnections = DEFAULT_MAX_CONNECTIONS;
+		_maxIdleTime = DEFAULT_MAX_IDLE_TIME;
+		_maxWaitTime = DEFAULT_MAX_WAIT_TIME;
+		_statementCacheSize = DEFAULT_STATEMENT_CACHE_SIZE;
+		_openCount = 0;
+		_isClosed = false;
+	}
+
+
+	/**
+	 * Get the shared pool for the adaptor and the account specified by the connection dictionary creating it if necessary
+	 * @param adaptor database adaptor used to make the raw connections
+	 * @param dictionary connection dictionary specifying the account
+	 * @return the shared pool
+	 */
+	static public ConnectionPool getInstance( final DatabaseAdaptor adaptor, final ConnectionDictionary dictionary ) {
+		final String urlSpec = dictionary.getURLSpec();
+		final String user = dictionary.getUser();
+		final String password = dictionary.getPassword();
+		final String key = adaptor.getClass().getName() + "|" + urlSpec + "|" + user + "|" + ( password != null ? password.hashCode() : 0 );
+
+		synchronized( POOLS ) {
+			ConnectionPool pool = POOLS.get( key );
+			if ( pool == null || pool.isClosed() ) {
+				pool = new ConnectionPool( adaptor, urlSpec, user, password );
+				POOLS.put( key, pool );
+			}
+			return pool;
+		}
+	}
+
+
+	/** Close every shared pool */
+	static public void closeAll() {
+		synchronized( POOLS ) {
+			for ( final ConnectionPool pool : POOLS.values() ) {
+				pool.close();
+			}
+			POOLS.clear();
+		}
+	}
+
+
+	/** get the maximum number of open connections */
+	synchronized public int getMaxConnections() {
+		return _maxConnections;
+	}
+
+
+	/** set the maximum number of open connections */
+	synchronized public void setMaxConnections( final int maxConnections ) {
+		_maxConnections = Math.max( 1, maxConnections );
+		notifyAll();
+	}
+
+
+	/** get the maximum time in seconds a connection may sit idle in the pool */
+	synchronized public double getMaxIdleTime() {
+		return _maxIdleTime;
+	}
+
+
+	/** set the maximum time in seconds a connection may sit idle in the pool */
+	synchronized public void setMaxIdleTime( final double maxIdleTime ) {
+		_maxIdleTime = maxIdleTime;
+	}
+
+
+	/** get the maximum time in seconds to wait for a connection */
+	synchronized public double getMaxWaitTime() {
+		return _maxWaitTime;
+	}
+
+
+	/** set the maximum time in seconds to wait for a connection */
+	synchronized public void setMaxWaitTime( final double maxWaitTime ) {
+		_maxWaitTime = maxWaitTime;
+	}
+
+
+	/** get the maximum number of idle prepared statements cached per connection */
+	public int getStatementCacheSize() {
+		return _statementCacheSize;
+	}
+
+
+	/** set the maximum number of idle prepared statements cached per connection (zero disables the cache) */
+	public void setStatementCacheSize( final int cacheSize ) {
+		_statementCacheSize = Math.max( 0, cacheSize );
+	}
+
+
+	/** get the number of open connections including those lent */
+	synchronized public int getOpenConnectionCount() {
+		return _openCount;
+	}
+
+
+	/** get the number of idle connections */
+	synchronized public int getIdleConnectionCount() {
+		return IDLE_CONNECTIONS.size();
+	}
+
+
+	/** get the number of connections lent */
+	synchronized public long getBorrowCount() {
+		return _borrowCount;
+	}
+
+
+	/** get the mean time in seconds clients waited for a connection */
+	synchronized public double getMeanWaitTime() {
+		return _borrowCount > 0 ? 1.0e-9 * _totalWaitTime / _borrowCount : 0.0;
+	}
+
+
+	/** get the longest time in seconds a client waited for a connection */
+	synchronized public double getMaxObservedWaitTime() {
+		return 1.0e-9 * _maxObservedWaitTime;
+	}
+
+
+	/** get the number of queries executed through cached prepared statements */
+	public long getQueryCount() {
+		return QUERY_COUNT.get();
+	}
+
+
+	/** get the mean latency in seconds of queries executed through cached prepared statements */
+	public double getMeanQueryLatency() {
+		final long queryCount = QUERY_COUNT.get();
+		return queryCount > 0 ? 1.0e-9 * TOTAL_QUERY_TIME.get() / queryCount : 0.0;
+	}
+
+
+	/** get the number of prepared statements reused from a cache */
+	public long getStatementCacheHits() {
+		return STATEMENT_CACHE_HITS.get();
+	}
+
+
+	/** get the number of prepared statements made because none was cached */
+	public long getStatementCacheMisses() {
+		return STATEMENT_CACHE_MISSES.get();
+	}
+
+
+	/** determine whether the pool has been closed */
+	synchronized public boolean isClosed() {
+		return _isClosed;
+	}
+
+
+	/**
+	 * Get a connection from the pool waiting up to the maximum wait time for one to become available. Closing the connection returns it to the pool.
+	 * @return a pooled connection
+	 * @throws xal.tools.database.DatabaseException if no connection could be made or none became available in time
+	 */
+	public Connection getConnection() throws DatabaseException {
+		final long startTime = System.nanoTime();
+
+		synchronized( this ) {
+			if ( _isClosed ) {
+				throw new DatabaseException( "Exception getting a connection from the pool.", DATABASE_ADAPTOR, new SQLException( "The connection pool has been closed." ) );
+			}
+
+			evictIdleConnections();
+
+			final long deadline = startTime + (long)( 1.0e9 * _maxWaitTime );
+			while ( true ) {
+				final PooledConnection idleConnection = IDLE_CONNECTIONS.pollLast();
+				if ( idleConnection != null ) {
+					if ( isValid( idleConnection ) ) {
+						idleConnection.lend();
+						recordBorrow( startTime );
+						return idleConnection.getProxy();
+					}
+					else {
+						discard( idleConnection );
+						continue;
+					}
+				}
+
+				if ( _openCount < _maxConnections ) {
+					++_openCount;		// reserve the slot and open the connection outside of the lock
+					break;
+				}
+
+				final long remainingTime = deadline - System.nanoTime();
+				if ( remainingTime <= 0 ) {
+					throw new DatabaseException( "Exception getting a connection from the pool.", DATABASE_ADAPTOR, new SQLException( "Timed out waiting for one of the " + _maxConnections + " connections to " + URL_SPEC ) );
+				}
+				try {
+					wait( remainingTime / 1000000 + 1 );
+				}
+				catch( InterruptedException exception ) {
+					Thread.currentThread().interrupt();
+					throw new DatabaseException( "Exception getting a connection from the pool.", DATABASE_ADAPTOR, new SQLException( "Interrupted while waiting for a connection.", exception ) );
+				}
+			}
+		}
+
+		final Connection rawConnection;
+		try {
+			rawConnection = DATABASE_ADAPTOR.getConnection( URL_SPEC, USER, PASSWORD );
+		}
+		catch( RuntimeException exception ) {
+			releaseSlot();
+			throw exception;
+		}
+
+		final PooledConnection connection = new PooledConnection( rawConnection );
+		connection.lend();
+		synchronized( this ) {
+			recordBorrow( startTime );
+		}
+		return connection.getProxy();
+	}
+
+
+	/**
+	 * Get a dedicated connection for a client which holds it for a long time. The connection caches its prepared statements like a pooled connection
+	 * but it does not count against the maximum number of connections, so holding it never starves the pool, and closing it closes the raw connection.
+	 * @return a dedicated connection
+	 * @throws xal.tools.database.DatabaseException if no connection could be made
+	 */
+	public Connection getDedicatedConnection() throws DatabaseException {
+		synchronized( this ) {
+			if ( _isClosed ) {
+				throw new DatabaseException( "Exception getting a dedicated connection.", DATABASE_ADAPTOR, new SQLException( "The connection pool has been closed." ) );
+			}
+		}
+
+		final PooledConnection connection = new PooledConnection( DATABASE_ADAPTOR.getConnection( URL_SPEC, USER, PASSWORD ), true );
+		connection.lend();
+		return connection.getProxy();
+	}
+
+
+	/** Close the idle connections which have been idle longer than the maximum idle time */
+	synchronized public void evictIdleConnections() {
+		final long now = System.nanoTime();
+		final Iterator<PooledConnection> iterator = IDLE_CONNECTIONS.iterator();
+		while ( iterator.hasNext() ) {
+			final PooledConnection connection = iterator.next();
+			if ( 1.0e-9 * ( now - connection.getLastUseTime() ) > _maxIdleTime ) {
+				iterator.remove();
+				discard( connection );
+			}
+		}
+	}
+
+
+	/** Close the idle connections and mark the pool closed so that lent connections are closed when they are returned */
+	synchronized public void close() {
+		_isClosed = true;
+		while ( !IDLE_CONNECTIONS.isEmpty() ) {
+			discard( IDLE_CONNECTIONS.pollLast() );
+		}
+		notifyAll();
+	}
+
+
+	/** record a connection having been lent */
+	private void recordBorrow( final long startTime ) {
+		final long waitTime = System.nanoTime() - startTime;
+		++_borrowCount;
+		_totalWaitTime += waitTime;
+		if ( waitTime > _maxObservedWaitTime )  _maxObservedWaitTime = waitTime;
+	}
+
+
+	/** record the execution of a query (not synchronized on the pool since it is called while holding a connection's lock) */
+	private void recordQuery( final long duration ) {
+		QUERY_COUNT.incrementAndGet();
+		TOTAL_QUERY_TIME.addAndGet( duration );
+	}
+
+
+	/** record a statement cache lookup (not synchronized on the pool since it is called while holding a connection's lock) */
+	private void recordStatementLookup( final boolean hit ) {
+		( hit ? STATEMENT_CACHE_HITS : STATEMENT_CACHE_MISSES ).incrementAndGet();
+	}
+
+
+	/** release a reserved connection slot */
+	synchronized private void releaseSlot() {
+		--_openCount;
+		notifyAll();
+	}
+
+
+	/** validate a connection if it has been idle long enough that it may have gone stale */
+	private boolean isValid( final PooledConnection connection ) {
+		final Connection rawConnection = connection.getRawConnection();
+		try {
+			if ( rawConnection.isClosed() )  return false;
+			if ( 1.0e-9 * ( System.nanoTime() - connection.getLastUseTime() ) < VALIDATION_IDLE_TIME )  return true;
+			return rawConnection.isValid( VALIDATION_TIMEOUT );
+		}
+		catch( SQLException exception ) {
+			return false;
+		}
+		catch( AbstractMethodError error ) {
+			return true;	// driver predates JDBC 4 validation and the connection is not closed
+		}
+	}
+
+
+	/** return a connection to the pool or close it if the pool is closed or the connection cannot be reset */
+	private void release( final PooledConnection connection ) {
+		if ( connection.isDedicated() ) {
+			connection.closeRawConnection();
+			return;
+		}
+
+		final boolean isReset = connection.reset();
+		synchronized( this ) {
+			if ( isReset && !_isClosed ) {
+				IDLE_CONNECTIONS.addLast( connection );
+				notifyAll();
+			}
+			else {
+				discard( connection );
+			}
+		}
+	}
+
+
+	/** physically close the connection and free its slot */
+	private void discard( final PooledConnection connection ) {
+		connection.closeRawConnection();
+		--_openCount;
+		notifyAll();
+	}
+
+
+	/** invoke the method on the target unwrapping the cause of any invocation exception */
+	static private Object invoke( final Object target, final Method method, final Object[] args ) throws Throwable {
+		try {
+			return method.invoke( target, args );
+		}
+		catch( InvocationTargetException exception ) {
+			throw exception.getCause();
+		}
+	}
+
+
+	/** close the object ignoring any exception */
+	static private void closeQuietly( final AutoCloseable closeable ) {
+		try {
+			if ( closeable != null )  closeable.close();
+		}
+		catch( Exception exception ) {
+			Logger.getLogger( "global" ).log( Level.FINE, "Exception closing a pooled database resource.", exception );
+		}
+	}
+
+
+
+	/** Handler for the proxy of a pooled connection */
+	private class PooledConnection implements InvocationHandler {
+		/** the raw connection */
+		final private Connection RAW_CONNECTION;
+
+		/** idle prepared statements keyed by SQL in least recently used order */
+		final private LinkedHashMap<String,PreparedStatement> STATEMENT_CACHE;
+
+		/** proxy for the current loan or null if the connection is idle */
+		private Connection _proxy;
+
+		/** indicates whether the connection is dedicated to one client rather than pooled */
+		final private boolean IS_DEDICATED;
+
+		/** time in nanoseconds at which the connection was last used */
+		private long _lastUseTime;
+
+
+		/** Constructor */
+		public PooledConnection( final Connection rawConnection ) {
+			this( rawConnection, false );
+		}
+
+
+		/** Primary Constructor */
+		public PooledConnection( final Connection rawConnection, final boolean isDedicated ) {
+			RAW_CONNECTION = rawConnection;
+			IS_DEDICATED = isDedicated;
+			STATEMENT_CACHE = new LinkedHashMap<String,PreparedStatement>( 16, 0.75f, true );
+			_lastUseTime = System.nanoTime();
+		}
+
+
+		/** determine whether the connection is dedicated to one client rather than pooled */
+		public boolean isDedicated() {
+			return IS_DEDICATED;
+		}
+
+
+		/** get the raw connection */
+		public Connection getRawConnection() {
+			return RAW_CONNECTION;
+		}
+
+
+		/** get the time in nanoseconds at which the connection was last used */
+		public long getLastUseTime() {
+			return _lastUseTime;
+		}
+
+
+		/** make a new proxy for lending the connection */
+		synchronized public void lend() {
+			_proxy = (Connection)Proxy.newProxyInstance( Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, this );
+		}
+
+
+		/** get the proxy for the current loan */
+		synchronized public Connection getProxy() {
+			return _proxy;
+		}
+
+
+		/** handle the proxy's method calls */
+		public Object invoke( final Object proxy, final Method method, final Object[] args ) throws Throwable {
+			final String methodName = method.getName();
+			if ( methodName.equals( "equals" ) && args != null && args.length == 1 )  return proxy == args[0];
+			if ( methodName.equals( "hashCode" ) && args == null )  return System.identityHashCode( proxy );
+			if ( methodName.equals( "toString" ) && args == null )  return ( IS_DEDICATED ? "Dedicated" : "Pooled" ) + " connection to " + URL_SPEC;
+
+			if ( methodName.equals( "close" ) && args == null ) {
+				// release outside of this connection's lock since releasing locks the pool
+				if ( endLoan( proxy ) )  release( this );
+				return null;
+			}
+
+			synchronized( this ) {
+				final boolean isLent = proxy == _proxy;
+				if ( methodName.equals( "isClosed" ) && args == null ) {
+					return !isLent || RAW_CONNECTION.isClosed();
+				}
+				else if ( !isLent ) {
+					throw new SQLException( "The pooled connection has been closed." );
+				}
+				else if ( methodName.equals( "prepareStatement" ) && args != null && args.length == 1 && args[0] instanceof String ) {
+					return prepareStatement( (Connection)proxy, (String)args[0] );
+				}
+			}
+
+			return ConnectionPool.invoke( RAW_CONNECTION, method, args );
+		}
+
+
+		/** end the loan if the proxy is the current loan's proxy returning true if the loan was ended */
+		synchronized private boolean endLoan( final Object proxy ) {
+			if ( proxy != _proxy )  return false;
+			_proxy = null;
+			_lastUseTime = System.nanoTime();
+			return true;
+		}
+
+
+		/** determine whether the proxy is the current loan's proxy */
+		synchronized public boolean isLent( final Object proxy ) {
+			return proxy == _proxy;
+		}
+
+
+		/** get a cached statement for the SQL or prepare a new one */
+		private PreparedStatement prepareStatement( final Connection proxy, final String sql ) throws SQLException {
+			PreparedStatement statement = STATEMENT_CACHE.remove( sql );
+			if ( statement != null && statement.isClosed() )  statement = null;
+
+			recordStatementLookup( statement != null );
+			if ( statement == null ) {
+				statement = RAW_CONNECTION.prepareStatement( sql );
+			}
+
+			final CachedStatement handler = new CachedStatement( this, proxy, sql, statement );
+			return (PreparedStatement)Proxy.newProxyInstance( PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, handler );
+		}
+
+
+		/** return a statement to the cache or close it if the cache is full or it is already cached */
+		synchronized public void cacheStatement( final String sql, final PreparedStatement statement ) {
+			final int cacheSize = getStatementCacheSize();
+			if ( cacheSize <= 0 || STATEMENT_CACHE.containsKey( sql ) ) {
+				closeQuietly( statement );
+				return;
+			}
+
+			STATEMENT_CACHE.put( sql, statement );
+			final Iterator<PreparedStatement> iterator = STATEMENT_CACHE.values().iterator();
+			while ( STATEMENT_CACHE.size() > cacheSize && iterator.hasNext() ) {
+				closeQuietly( iterator.next() );
+				iterator.remove();
+			}
+		}
+
+
+		/** roll back any uncommitted work and restore the default connection state returning true upon success */
+		public boolean reset() {
+			try {
+				if ( RAW_CONNECTION.isClosed() )  return false;
+				if ( !RAW_CONNECTION.getAutoCommit() ) {
+					RAW_CONNECTION.rollback();
+					RAW_CONNECTION.setAutoCommit( true );
+				}
+				if ( RAW_CONNECTION.isReadOnly() ) {
+					RAW_CONNECTION.setReadOnly( false );
+				}
+				RAW_CONNECTION.clearWarnings();
+				return true;
+			}
+			catch( SQLException exception ) {
+				Logger.getLogger( "global" ).log( Level.WARNING, "Discarding a pooled connection which could not be reset.", exception );
+				return false;
+			}
+		}
+
+
+		/** close the cached statements and the raw connection */
+		synchronized public void closeRawConnection() {
+			for ( final PreparedStatement statement : STATEMENT_CACHE.values() ) {
+				closeQuietly( statement );
+			}
+			STATEMENT_CACHE.clear();
+			closeQuietly( RAW_CONNECTION );
+		}
+	}
+
+
+
+	/** Handler for the proxy of a cached prepared statement */
+	private class CachedStatement implements InvocationHandler {
+		/** connection which owns the statement */
+		final private PooledConnection CONNECTION;
+
+		/** connection proxy through which the statement was prepared */
+		final private Connection CONNECTION_PROXY;
+
+		/** SQL of the statement */
+		final private String SQL;
+
+		/** raw prepared statement */
+		final private PreparedStatement STATEMENT;
+
+		/** last result set generated by this statement */
+		private ResultSet _resultSet;
+
+		/** indicates whether the statement has been closed by the client */
+		private boolean _isClosed;
+
+
+		/** Constructor */
+		public CachedStatement( final PooledConnection connection, final Connection connectionProxy, final String sql, final PreparedStatement statement ) {
+			CONNECTION = connection;
+			CONNECTION_PROXY = connectionProxy;
+			SQL = sql;
+			STATEMENT = statement;
+			_isClosed = false;
+		}
+
+
+		/** handle the proxy's method calls */
+		public Object invoke( final Object proxy, final Method method, final Object[] args ) throws Throwable {
+			final String methodName = method.getName();
+			if ( methodName.equals( "equals" ) && args != null && args.length == 1 )  return proxy == args[0];
+			if ( methodName.equals( "hashCode" ) && args == null )  return System.identityHashCode( proxy );
+			if ( methodName.equals( "toString" ) && args == null )  return "Cached statement: " + SQL;
+
+			if ( methodName.equals( "close" ) && args == null ) {
+				close();
+				return null;
+			}
+			else if ( methodName.equals( "isClosed" ) && args == null ) {
+				return _isClosed || STATEMENT.isClosed();
+			}
+			else if ( _isClosed || !CONNECTION.isLent( CONNECTION_PROXY ) ) {
+				throw new SQLException( "The prepared statement has been closed." );
+			}
+			else if ( methodName.equals( "getConnection" ) && args == null ) {
+				return CONNECTION_PROXY;
+			}
+			else if ( methodName.startsWith( "execute" ) ) {
+				final long startTime = System.nanoTime();
+				final Object result = ConnectionPool.invoke( STATEMENT, method, args );
+				recordQuery( System.nanoTime() - startTime );
+				if ( result instanceof ResultSet )  _resultSet = (ResultSet)result;
+				return result;
+			}
+
+			return ConnectionPool.invoke( STATEMENT, method, args );
+		}
+
+
+		/** close the last result set and return the statement to the connection's cache */
+		private void close() {
+			if ( _isClosed )  return;
+			_isClosed = true;
+
+			closeQuietly( _resultSet );
+			_resultSet = null;
+
+			try {
+				if ( STATEMENT.isClosed() )  return;
+				STATEMENT.clearParameters();
+				STATEMENT.clearBatch();
+				CONNECTION.cacheStatement( SQL, STATEMENT );
+			}
+			catch( SQLException exception ) {
+				closeQuietly( STATEMENT );
+			}
+		}
+	}
+}
@@ -72,6 +72,39 @@ public abstract class DatabaseAdaptor {
 	}
 	
 	
+	/**
+	 * Get the shared connection pool for the account specified by the connection dictionary. The pool makes its raw connections
+	 * using this adaptor's getConnection( urlSpec, user, password ) method so site specific adaptors are pooled without changes.
+	 * @param dictionary A connection dictionary
+	 * @return the shared connection pool for the dictionary's account
+	 */
+	public ConnectionPool getConnectionPool( final ConnectionDictionary dictionary ) {
+		return ConnectionPool.getInstance( this, dictionary );
+	}
+	
+	
+	/**
+	 * Get a connection from the shared connection pool for the account specified by the connection dictionary. Closing the connection returns it
+	 * to the pool and prepared statements made with prepareStatement( sql ) are cached with the connection and reused once closed.
+	 * @param dictionary A connection dictionary
+	 * @throws xal.tools.database.DatabaseException if a database exception is thrown or no pooled connection becomes available in time
+	 */
+	public Connection getPooledConnection( final ConnectionDictionary dictionary ) throws DatabaseException {
+		return getConnectionPool( dictionary ).getConnection();
+	}
+	
+	
+	/**
+	 * Get a dedicated connection for a client which holds the connection for its lifetime. Prepared statements made with prepareStatement( sql ) are cached
+	 * as for a pooled connection, but the connection does not count against the shared pool's bound and closing it closes the raw connection.
+	 * @param dictionary A connection dictionary
+	 * @throws xal.tools.database.DatabaseException if a database exception is thrown
+	 */
+	public Connection getDedicatedConnection( final ConnectionDictionary dictionary ) throws DatabaseException {
+		return getConnectionPool( dictionary ).getDedicatedConnection();
+	}
+	
+	
 	/**
 	 * Get a new database adaptor using the default database adaptor. Site specific code should provide an implementation of this method using the site specific database drivers.
 	 * @return return a new instance of the default database adaptor (OracleDatabaseAdaptor)
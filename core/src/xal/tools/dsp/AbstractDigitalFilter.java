@@ -3,8 +3,6 @@
  */
 package xal.tools.dsp;
 
-import xal.tools.collections.LinearBuffer;
-
 
 /**
  * <p>
@@ -54,6 +52,11 @@ import xal.tools.collections.LinearBuffer;
  * Note that the coefficient <i>b</i><sub>0</sub> is essentially just an attenuation/amplification 
  * factor.  (In fact, a zeroth-order digital filter is just that.)  
  * </p>
+ * <p>
+ * The filter is also a {@link FilterStage} so it can process blocks of a signal
+ * in place and be chained within a {@link FilterPipeline}.  The signal history
+ * is kept in primitive ring buffers so block processing does not allocate.
+ * </p>
  * 
  * @author Christopher K. Allen
  * 
@@ -61,7 +64,7 @@ import xal.tools.collections.LinearBuffer;
  * @see AbstractDigitalFilter#getOutputCoefficient(int, int)
  *
  */
-public abstract class AbstractDigitalFilter {
+public abstract class AbstractDigitalFilter implements FilterStage {
 
     /*
      * Local Attributes
@@ -79,11 +82,21 @@ public abstract class AbstractDigitalFilter {
     private int             intTime;
     
     
-    /** input signal buffer */
-    private LinearBuffer<Double> bufInput;
+    /** input signal history ring indexed by the history position */
+    private double[]        arrInpHist;
+    
+    /** output signal history ring indexed by the history position */
+    private double[]        arrOutHist;
+    
+    /** position of the most recent signal in the history rings */
+    private int             indHist;
+    
+    
+    /** input coefficient scratch for block processing */
+    private double[]        arrCoefInp;
     
-    /** output signal buffer */
-    private LinearBuffer<Double> bufOutput;
+    /** output coefficient scratch for block processing */
+    private double[]        arrCoefOut;
     
     
 
@@ -115,6 +128,18 @@ public abstract class AbstractDigitalFilter {
     public abstract double getOutputCoefficient(int iTime, int iDelay);
     
     
+    /**
+     * Indicates whether the filter coefficients are independent of the time index.
+     * When they are, block processing queries the coefficients once per block
+     * rather than once per sample.  The default is <code>false</code>.
+     * 
+     * @return  <code>true</code> if the coefficients do not depend upon the time index
+     */
+    protected boolean isTimeInvariant() {
+        return false;
+    }
+    
+    
     
     
     /*
@@ -226,35 +251,109 @@ public abstract class AbstractDigitalFilter {
         int     iDelay;             // current coefficient delay index
         double  dblOutput;          // current output value
         
+        int     N = this.getOrder();
+        int     iHist;              // history position of the current delay
+        
         iTime  = this.getTimeIndex();
         
         // process the inputs
-        iDelay = 0;
-        dblOutput = this.getInputCoefficient(iTime, iDelay++)*dblInput;
-        for (Double dblInpDel : this.bufInput) {
-            double  dblCoef = this.getInputCoefficient(iTime, iDelay++);
+        dblOutput = this.getInputCoefficient(iTime, 0)*dblInput;
+        iHist = this.indHist;
+        for (iDelay=1; iDelay<=N; iDelay++) {
+            double  dblCoef = this.getInputCoefficient(iTime, iDelay);
             
-            dblOutput += dblCoef*dblInpDel;
+            dblOutput += dblCoef*this.arrInpHist[iHist];
+            iHist = (iHist == 0) ? N - 1 : iHist - 1;
         }
         
         // process the outputs
-        iDelay = 1;
-        for (Double dblOutDel : this.bufOutput) {
-            double  dblCoef = this.getOutputCoefficient(iTime, iDelay++);
+        iHist = this.indHist;
+        for (iDelay=1; iDelay<=N; iDelay++) {
+            double  dblCoef = this.getOutputCoefficient(iTime, iDelay);
             
-            dblOutput -= dblCoef*dblOutDel;
+            dblOutput -= dblCoef*this.arrOutHist[iHist];
+            iHist = (iHist == 0) ? N - 1 : iHist - 1;
         }
         dblOutput = dblOutput/this.getOutputCoefficient(iTime, 0);
         
         
         // Load buffers, update the index, and return
-        this.bufInput.add(dblInput);
-        this.bufOutput.add(dblOutput);
+        this.pushHistory(dblInput, dblOutput);
         this.intTime++;
         
         return dblOutput;
     }
     
+    /**
+     * <p>
+     * Replace the given block of the signal train with the response of this filter.
+     * The result is identical to calling {@link AbstractDigitalFilter#response(double)}
+     * for each element in order, and the filter history carries over to the next block.
+     * </p>
+     * <p>
+     * When the filter is time invariant the coefficients are retrieved once
+     * for the whole block.  No memory is allocated.
+     * </p>
+     * 
+     * @param arrBlock  signal array whose block is replaced by the filter response
+     * @param offset    index of the first signal value in the block
+     * @param length    number of signal values in the block
+     * 
+     * @see xal.tools.dsp.FilterStage#process(double[], int, int)
+     */
+    public void process(final double[] arrBlock, final int offset, final int length) {
+        if (!this.isTimeInvariant()) {
+            for (int n=offset; n<offset+length; n++) 
+                arrBlock[n] = this.response(arrBlock[n]);
+            
+            return;
+        }
+        
+        
+        // Retrieve the coefficients once for the block
+        int         N = this.getOrder();
+        int         iTime = this.getTimeIndex();
+        double[]    arrA = this.arrCoefInp;
+        double[]    arrB = this.arrCoefOut;
+        
+        for (int iDelay=0; iDelay<=N; iDelay++) {
+            arrA[iDelay] = this.getInputCoefficient(iTime, iDelay);
+            arrB[iDelay] = this.getOutputCoefficient(iTime, iDelay);
+        }
+        
+        double[]    arrInp = this.arrInpHist;
+        double[]    arrOut = this.arrOutHist;
+        double      dblB0  = arrB[0];
+        int         iHead  = this.indHist;
+        
+        for (int n=offset; n<offset+length; n++) {
+            double  dblInput  = arrBlock[n];
+            double  dblOutput = arrA[0]*dblInput;
+            
+            int     iHist = iHead;
+            for (int iDelay=1; iDelay<=N; iDelay++) {
+                dblOutput += arrA[iDelay]*arrInp[iHist];
+                iHist = (iHist == 0) ? N - 1 : iHist - 1;
+            }
+            iHist = iHead;
+            for (int iDelay=1; iDelay<=N; iDelay++) {
+                dblOutput -= arrB[iDelay]*arrOut[iHist];
+                iHist = (iHist == 0) ? N - 1 : iHist - 1;
+            }
+            dblOutput = dblOutput/dblB0;
+            
+            if (N > 0) {
+                iHead = (iHead == N - 1) ? 0 : iHead + 1;
+                arrInp[iHead] = dblInput;
+                arrOut[iHead] = dblOutput;
+            }
+            arrBlock[n] = dblOutput;
+        }
+        
+        this.indHist = iHead;
+        this.intTime += length;
+    }
+    
     /**
      * Convenience function for computing the response of this filter to
      * an input signal train.  This method simply calls 
@@ -272,9 +371,8 @@ public abstract class AbstractDigitalFilter {
     public double[] response(final double[] arrTrain) {
         int     N = arrTrain.length;
         
-        double[]    arrResp = new double[N];
-        for (int n=0; n<N; n++) 
-            arrResp[n] = this.response(arrTrain[n]);
+        double[]    arrResp = arrTrain.clone();
+        this.process(arrResp, 0, N);
         
         return arrResp;
     }
@@ -286,8 +384,9 @@ public abstract class AbstractDigitalFilter {
      */
     public void reset() {
         this.intTime = 0;
-        this.bufInput.clear();
-        this.bufOutput.clear();
+        this.indHist = 0;
+        java.util.Arrays.fill(this.arrInpHist, 0.0);
+        java.util.Arrays.fill(this.arrOutHist, 0.0);
     }
     
     
@@ -306,9 +405,9 @@ public abstract class AbstractDigitalFilter {
         strBuffer += "filter order  = " + this.getOrder() + "\n";
         strBuffer += "current index = " + this.getTimeIndex() + "\n";
         strBuffer += "input buffer\n";
-        strBuffer += this.bufInput.toString() + "\n";
+        strBuffer += this.historyToString(this.arrInpHist) + "\n";
         strBuffer += "output buffer\n";
-        strBuffer += this.bufOutput + "\n";
+        strBuffer += this.historyToString(this.arrOutHist) + "\n";
         
         return strBuffer;
     }
@@ -329,8 +428,51 @@ public abstract class AbstractDigitalFilter {
         this.intOrder = intOrder;
         this.cntCoefs  = intOrder + 1;
         
-        this.bufInput   = new LinearBuffer<Double>(intOrder);
-        this.bufOutput  = new LinearBuffer<Double>(intOrder);
+        this.arrInpHist = new double[intOrder];
+        this.arrOutHist = new double[intOrder];
+        this.indHist    = 0;
+        
+        this.arrCoefInp = new double[this.cntCoefs];
+        this.arrCoefOut = new double[this.cntCoefs];
+    }
+    
+    /**
+     * Push the given input and output signals onto the history rings
+     * as the most recent values.
+     * 
+     * @param dblInput  current input signal
+     * @param dblOutput current output signal
+     */
+    private void pushHistory(double dblInput, double dblOutput) {
+        int     N = this.getOrder();
+        
+        if (N == 0)
+            return;
+        
+        this.indHist = (this.indHist == N - 1) ? 0 : this.indHist + 1;
+        this.arrInpHist[this.indHist] = dblInput;
+        this.arrOutHist[this.indHist] = dblOutput;
+    }
+    
+    /**
+     * Write out the given history ring with the most recent value first.
+     * 
+     * @param arrHist   history ring
+     * 
+     * @return  history values ordered by increasing delay
+     */
+    private String historyToString(double[] arrHist) {
+        int     N = this.getOrder();
+        
+        String  strBuffer = "buffer size = " + N + "\ncontents : [";
+        int     iHist = this.indHist;
+        for (int iDelay=1; iDelay<=N; iDelay++) {
+            strBuffer += arrHist[iHist] + ((iDelay < N) ? ", " : "");
+            iHist = (iHist == 0) ? N - 1 : iHist - 1;
+        }
+        strBuffer += "]";
+        
+        return strBuffer;
     }
     
     /**
@@ -6,6 +6,7 @@
  */
 package xal.tools.dsp;
 
+import xal.tools.math.FastFourierTransform;
 
 
 /**
@@ -265,17 +266,13 @@ public class DigitalSignalProcessor {
         int         N = arrStat.length;
         
         double[]    arrRxy = new double[N];
-        for (int d=0; d<N; d++) {
-            double  dblSum = 0.0;
-            
-            for (int m=0; m<N; m++) {
-                int n = (d + m) % N;
-                
-                dblSum += arrStat[m]*arrShft[n];
-            }
-            
-            arrRxy[d] = dblSum/N;
-        }
+        if (N == 0)
+            return arrRxy;
+        
+        // Correlation theorem: Rxy = IDFT( conj(X)*Y ) computed in O(N log N)
+        FastFourierTransform.getInstance(N).crossCorrelation(arrStat, arrShft, arrRxy);
+        for (int d=0; d<N; d++) 
+            arrRxy[d] /= N;
         
         return arrRxy;
     }
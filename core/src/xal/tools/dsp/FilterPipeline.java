@@ -0,0 +1,144 @@
+/**
+ * FilterPipeline.java
+ * 
+ * Created      : October, 2026
+ */
+package xal.tools.dsp;
+
+
+/**
+ * <p>
+ * Chain of filter stages which processes blocks of a signal train in place.
+ * Each block passes through the stages in the order they were added, and each
+ * stage carries its own history across blocks.  Since the pipeline is itself a
+ * {@link FilterStage} pipelines may be nested.
+ * </p>
+ * <p>
+ * For example, a smoothed derivative of a waveform can be computed in place with
+ * <br>
+ * <br>&nbsp;&nbsp; <code>new FilterPipeline().addStage(lowPass).addStage(new DigitalDifferentiator()).process(arrWaveform)</code>
+ * <br>
+ * <br>
+ * Processing does not allocate memory.  A pipeline is not thread safe and, like
+ * its stages, should only process one signal train.  Use one pipeline per channel.
+ * </p>
+ * 
+ * @see xal.tools.dsp.FilterStage
+ * @see xal.tools.dsp.WaveformFilterSink
+ */
+public class FilterPipeline implements FilterStage {
+
+    /*
+     * Local Attributes
+     */
+    
+    /** the stages in processing order */
+    private FilterStage[]   arrStages;
+    
+    
+    
+    /*
+     * Initialization
+     */
+    
+    /**
+     * Create a new pipeline with the given stages in processing order.
+     * 
+     * @param arrStages     initial stages of the pipeline
+     */
+    public FilterPipeline(final FilterStage... arrStages) {
+        this.arrStages = arrStages.clone();
+    }
+    
+    
+    /**
+     * Append a stage to the end of this pipeline.
+     * 
+     * @param stage     stage to append
+     * 
+     * @return          this pipeline so that stages may be chained
+     */
+    public FilterPipeline addStage(final FilterStage stage) {
+        if (stage == null)
+            throw new IllegalArgumentException("FilterPipeline#addStage(): stage is null");
+        
+        FilterStage[]   arrNew = java.util.Arrays.copyOf(this.arrStages, this.arrStages.length + 1);
+        arrNew[this.arrStages.length] = stage;
+        this.arrStages = arrNew;
+        
+        return this;
+    }
+    
+    
+    
+    /*
+     * Attribute Query
+     */
+    
+    /**
+     * Return the number of stages in this pipeline.
+     * 
+     * @return  stage count
+     */
+    public int  getStageCount() {
+        return this.arrStages.length;
+    }
+    
+    /**
+     * Return the stage at the given position in the processing order.
+     * 
+     * @param index     position of the stage
+     * 
+     * @return          the stage at the given position
+     */
+    public FilterStage  getStage(final int index) {
+        return this.arrStages[index];
+    }
+    
+    
+    
+    /*
+     * Operations
+     */
+    
+    /**
+     * Pass the given block through each stage in order.
+     * 
+     * @param arrBlock  signal array whose block is replaced by the response
+     * @param offset    index of the first signal value in the block
+     * @param length    number of signal values in the block
+     * 
+     * @see xal.tools.dsp.FilterStage#process(double[], int, int)
+     */
+    public void process(final double[] arrBlock, final int offset, final int length) {
+        if (offset < 0 || length < 0 || offset + length > arrBlock.length)
+            throw new IndexOutOfBoundsException(
+                            "FilterPipeline#process(): block ["
+                          + offset + ", " + (offset + length)
+                          + ") outside of array with length "
+                          + arrBlock.length
+                            );
+        
+        for (FilterStage stage : this.arrStages)
+            stage.process(arrBlock, offset, length);
+    }
+    
+    /**
+     * Pass the entire array through each stage in order.
+     * 
+     * @param arrBlock  signal array which is replaced by the response
+     */
+    public void process(final double[] arrBlock) {
+        this.process(arrBlock, 0, arrBlock.length);
+    }
+    
+    /**
+     * Reset every stage of this pipeline.
+     * 
+     * @see xal.tools.dsp.FilterStage#reset()
+     */
+    public void reset() {
+        for (FilterStage stage : this.arrStages)
+            stage.reset();
+    }
+}
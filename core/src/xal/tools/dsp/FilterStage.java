@@ -0,0 +1,42 @@
+/**
+ * FilterStage.java
+ * 
+ * Created      : October, 2026
+ */
+package xal.tools.dsp;
+
+
+/**
+ * <p>
+ * A stateful stage of a streaming signal processing chain.  A stage processes
+ * consecutive blocks of a signal train in place, carrying whatever history it
+ * needs from one block to the next, so that processing a signal train in several
+ * blocks gives the same result as processing it in one.  Stages are chained with
+ * {@link FilterPipeline}.
+ * </p>
+ * <p>
+ * Implementations should not allocate memory while processing a block so that
+ * pipelines can run at the update rate of many waveform channels.  Stages are not
+ * thread safe; a stage should only process one signal train.
+ * </p>
+ * 
+ * @see xal.tools.dsp.AbstractDigitalFilter
+ * @see xal.tools.dsp.FilterPipeline
+ */
+public interface FilterStage {
+
+    /**
+     * Replace the given block of the signal train with the response of this stage.
+     * 
+     * @param arrBlock  signal array whose block is replaced by the response
+     * @param offset    index of the first signal value in the block
+     * @param length    number of signal values in the block
+     */
+    public void process(final double[] arrBlock, final int offset, final int length);
+    
+    
+    /**
+     * Clear the history of this stage so it can process a new signal train.
+     */
+    public void reset();
+}
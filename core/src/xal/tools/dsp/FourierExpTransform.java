@@ -10,19 +10,17 @@ import JSci.maths.Complex;
 import JSci.maths.matrices.ComplexSquareMatrix;
 import JSci.maths.vectors.AbstractComplexVector;
 import JSci.maths.vectors.ComplexVector;
+import xal.tools.math.FastFourierTransform;
 
 
 /**
  * <p>
- * Class embodying the classic Discrete Fourier Transform (DFT).  Although this is a
- * discrete transform, it is not a Fast Fourier Transform (FFT).  Specifically, we do not
- * exploit the dyadic nature of the transform kernel.  In fact, we explicitly compute
- * both the forward and inverse kernels which, in the discrete version, are matrices.  
- * Thus, the transform can
- * potentially be expensive for large signal sizes (of order <i>O</i>(<i>N</i>&sup2;)).
- * The advantage here is that we may consider arbitrary signal sizes <i>N</i> > 0.  That is,
- * <i>N</i> does not need to be a power of 2 as with the FFT, requiring the given signal
- * to be padded accordingly.
+ * Class embodying the classic Discrete Fourier Transform (DFT).  The transform is
+ * evaluated with the <code>FastFourierTransform</code> engine in <i>O</i>(<i>N</i> log <i>N</i>)
+ * operations for arbitrary signal sizes <i>N</i> > 0.  That is,
+ * <i>N</i> does not need to be a power of 2, so the given signal need not be padded.
+ * The kernel matrices described below define the transform but are only built
+ * on demand for debugging output.
  * </p>
  * <p>
  * The transform performed here is given by
@@ -87,10 +85,13 @@ public class FourierExpTransform {
     /** generator of transform kernel */
     private Complex                 cpxZ = null;
     
-    /** the forward transform kernel */
+    /** the fast transform engine for the data size */
+    private FastFourierTransform    fft = null;
+    
+    /** the forward transform kernel (built on demand) */
     private ComplexSquareMatrix     matKerFwd = null;
     
-    /** the inverse transform kernel */
+    /** the inverse transform kernel (built on demand) */
     private ComplexSquareMatrix     matKerInv = null;
     
     
@@ -101,9 +102,8 @@ public class FourierExpTransform {
     
     /**
      * Create a new sine transform object for transforming data vectors of 
-     * size <var>szData</var>.  During construction the 
-     * <var>szData</var>&times;<var>szData</var> transform matrix kernel is
-     * built. Upon completion the returned transform object is able to
+     * size <var>szData</var>.  During construction the cached fast transform
+     * engine for the size is acquired. Upon completion the returned transform object is able to
      * transform any <code>double[]</code> object of the appropriate size. 
      * 
      * @param szData
@@ -213,11 +213,18 @@ public class FourierExpTransform {
         
         
         // Perform the transform
-        double[]                arrZero = this.createZeroFunction(this.getDataSize());
-        ComplexVector           vecFunc = new ComplexVector(arrFunc, arrZero);
-        AbstractComplexVector   vecTrans = this.matKerFwd.multiply(vecFunc);
+        int         N = this.getDataSize();
+        double[]    arrRe = new double[N];
+        double[]    arrIm = new double[N];
+        this.fft.transformReal(arrFunc, arrRe, arrIm);
         
-        return vecTrans;
+        double      c = Math.sqrt(1.0/N);   // normalization constant
+        for (int index=0; index<N; index++)   {
+            arrRe[index] *= c;
+            arrIm[index] *= c;
+        }
+        
+        return new ComplexVector(arrRe, arrIm);
     }
     
     /**
@@ -253,14 +260,20 @@ public class FourierExpTransform {
                           );
         
         
-        // Perform the transform
-        AbstractComplexVector   vecFunc = this.matKerInv.multiply(vecTrans);
+        // Perform the transform (the engine inverse includes 1/N so rescale to 1/sqrt(N))
+        double[]    arrFunc = new double[szArr];
+        double[]    arrIm   = new double[szArr];
+        for (int index=0; index<szArr; index++) {
+            arrFunc[index] = vecTrans.getRealComponent(index);
+            arrIm[index]   = vecTrans.getImagComponent(index);
+        }
+        this.fft.inverse(arrFunc, arrIm);
 
         
         // Unpack result and return it
-        double[]    arrFunc = new double[szArr];
+        double      c = Math.sqrt(szArr);
         for (int index=0; index<szArr; index++)
-            arrFunc[index] = vecFunc.getRealComponent(index);
+            arrFunc[index] *= c;
         
         return arrFunc;
     }
@@ -287,13 +300,21 @@ public class FourierExpTransform {
      * @throws IllegalArgumentException     invalid function dimension
      */
     public double[] powerSpectrum(final double[] arrFunc) throws IllegalArgumentException {
-        AbstractComplexVector   vecSpec = this.transform(arrFunc);
+        int     N = this.getDataSize();
         
-        double[]    arrSpec = new double[this.getDataSize()];
-        for (int index=0; index<this.getDataSize(); index++)    {
-            Complex cpxVal = vecSpec.getComponent(index);
-            arrSpec[index] = cpxVal.modSqr();
-        }
+        if (arrFunc.length != N)
+            throw new IllegalArgumentException(
+                            "FourierExpTransform#powerSpectrum():"
+                          + " array size != " 
+                          + N
+                          );
+        
+        double[]    arrSpec = new double[N];
+        this.fft.powerSpectrum(arrFunc, arrSpec);
+        
+        // Apply the squared normalization constant 1/N
+        for (int index=0; index<N; index++)
+            arrSpec[index] /= N;
 
         return arrSpec;
     }
@@ -310,6 +331,8 @@ public class FourierExpTransform {
      */
     @Override
     public String toString() {
+        this.initKernels();
+        
         String  strBuf = "";
         
         strBuf += "Forward transform kernel\n";
@@ -331,7 +354,7 @@ public class FourierExpTransform {
      */
     
     /**
-     * Computes and stores the transform kernel.
+     * Computes and stores the transform generator and acquires the fast transform engine.
      * 
      * @param   szData  dimensions of the tranform kernel.
      */
@@ -343,6 +366,24 @@ public class FourierExpTransform {
         // Compute the z transform generator
         Double               h = 2.0*Math.PI/N;
         Complex              z = new Complex(Math.cos(h), Math.sin(h));
+        
+        this.szData = N;
+        this.cpxZ   = z;
+        this.fft    = FastFourierTransform.getInstance(N);
+    }
+
+
+    /**
+     * Computes and stores the transform kernel matrices if they have not
+     * already been built.  These are only needed for debugging output.
+     */
+    private void initKernels() {
+        
+        if (this.matKerFwd != null)
+            return;
+        
+        final int           N = this.getDataSize(); // vector/matrix dimensions 
+        final double        h = 2.0*Math.PI/N;
        
 
         // Create matrix kernel and compute element values
@@ -363,8 +404,6 @@ public class FourierExpTransform {
             }
         }
         
-        this.szData = N;
-        this.cpxZ   = z;
         this.matKerFwd = Kf;
         this.matKerInv = Ki;
     }
@@ -419,23 +458,5 @@ public class FourierExpTransform {
         this.matKerFwd = Kf;
         this.matKerInv = Ki;
     }
-
-
-    /**
-     * Create and return a discrete function of the given
-     * size and with value zero.
-     * 
-     * @param szVec     size of the returned function
-     * 
-     * @return          the zero function
-     */
-    private double[]    createZeroFunction(int szVec)   {
-        double[]    arrFunc = new double[szVec];
-        
-        for (int index=0; index<szData; index++)    
-            arrFunc[index] = 0.0;
-        
-        return arrFunc;
-    }
     
 }
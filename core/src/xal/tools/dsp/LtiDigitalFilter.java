@@ -153,6 +153,19 @@ public class LtiDigitalFilter extends AbstractDigitalFilter {
     public double getOutputCoefficient(int iTime, int iDelay) {
         return this.arrCoefOut[iDelay];
     }
+
+    /**
+     * The coefficients of an LTI filter do not depend upon the time
+     * index, so block processing retrieves them once per block.
+     * 
+     * @return  <code>true</code>
+     * 
+     * @see xal.tools.dsp.AbstractDigitalFilter#isTimeInvariant()
+     */
+    @Override
+    protected boolean isTimeInvariant() {
+        return true;
+    }
     
     
     
@@ -195,7 +208,7 @@ public class LtiDigitalFilter extends AbstractDigitalFilter {
      * @throws IllegalArgumentException     argument has wrong array size
      */
     public void setInputCoefficients(double[] arrCoeffs) throws IllegalArgumentException {
-        this.checkIndex(arrCoeffs.length);
+        this.checkIndex(arrCoeffs.length - 1);
         
         for (int iDelay=0; iDelay<arrCoeffs.length; iDelay++)
             this.setInputCoefficient(iDelay, arrCoeffs[iDelay]);
@@ -227,7 +240,7 @@ public class LtiDigitalFilter extends AbstractDigitalFilter {
      * @throws IllegalArgumentException     argument has wrong array size
      */
     public void setOutputCoefficients(double[] arrCoeffs) throws IllegalArgumentException {
-        this.checkIndex(arrCoeffs.length);
+        this.checkIndex(arrCoeffs.length - 1);
         
         for (int iDelay=0; iDelay<arrCoeffs.length; iDelay++)
             this.setOutputCoefficient(iDelay, arrCoeffs[iDelay]);
@@ -0,0 +1,193 @@
+/**
+ * WaveformFilterSink.java
+ *
+ * Created      : October, 2026
+ */
+package xal.tools.dsp;
+
+import xal.ca.Channel;
+import xal.ca.ChannelRecord;
+import xal.ca.ChannelTimeRecord;
+import xal.ca.IEventSinkValTime;
+import xal.ca.IEventSinkValue;
+
+
+/**
+ * <p>
+ * Monitor event sink which passes each waveform posted by a channel through a
+ * {@link FilterPipeline} and forwards the filtered waveform to a listener.  The sink
+ * can be registered directly as a value or value-time monitor listener of a waveform channel.
+ * </p>
+ * <p>
+ * The waveform is copied into a buffer owned by the sink which is reused from
+ * one update to the next (it only grows when a longer waveform arrives), so
+ * steady state processing does not allocate.  By default the pipeline is reset
+ * before each waveform so each waveform is filtered as an independent signal train;
+ * call {@link #setResetPerWaveform(boolean)} with <code>false</code> to treat
+ * consecutive waveforms as consecutive blocks of one signal train.
+ * </p>
+ * <p>
+ * Updates are processed one at a time.  The filtered buffer passed to the listener
+ * is only valid during the listener callback.  Use one sink and pipeline per channel.
+ * </p>
+ *
+ * @see xal.tools.dsp.FilterPipeline
+ */
+public class WaveformFilterSink implements IEventSinkValue, IEventSinkValTime {
+
+    /**
+     * Receives the filtered waveforms.
+     */
+    public interface Listener {
+        /**
+         * Handle a filtered waveform.  The buffer is owned by the sink and reused
+         * for the next update, so copy any values which must be retained.
+         *
+         * @param sink          sink which filtered the waveform
+         * @param channel       channel which posted the waveform
+         * @param record        record posted by the channel (the raw waveform)
+         * @param arrFiltered   buffer holding the filtered waveform
+         * @param length        number of filtered values in the buffer
+         */
+        public void waveformFiltered(WaveformFilterSink sink, Channel channel, ChannelRecord record, double[] arrFiltered, int length);
+    }
+
+
+
+    /*
+     * Local Attributes
+     */
+
+    /** the pipeline which filters each waveform */
+    final private FilterPipeline    pipeline;
+
+    /** receiver of the filtered waveforms */
+    final private Listener          lsnFiltered;
+
+    /** reusable waveform buffer */
+    private double[]                arrBuffer;
+
+    /** indicates whether the pipeline is reset before each waveform */
+    private volatile boolean        bolResetPerWaveform;
+
+
+
+    /*
+     * Initialization
+     */
+
+    /**
+     * Create a new sink which filters waveforms with the given pipeline.
+     *
+     * @param pipeline      pipeline which filters each waveform
+     * @param lsnFiltered   receiver of the filtered waveforms
+     */
+    public WaveformFilterSink(final FilterPipeline pipeline, final Listener lsnFiltered) {
+        this.pipeline = pipeline;
+        this.lsnFiltered = lsnFiltered;
+        this.arrBuffer = new double[0];
+        this.bolResetPerWaveform = true;
+    }
+
+
+    /**
+     * Set whether the pipeline is reset before each waveform.
+     *
+     * @param bolReset  <code>true</code> to filter each waveform independently and
+     *                  <code>false</code> to carry the filter history across waveforms
+     */
+    public void setResetPerWaveform(final boolean bolReset) {
+        this.bolResetPerWaveform = bolReset;
+    }
+
+
+
+    /*
+     * Attribute Query
+     */
+
+    /**
+     * Return whether the pipeline is reset before each waveform.
+     *
+     * @return  <code>true</code> if each waveform is filtered independently
+     */
+    public boolean  getResetPerWaveform() {
+        return this.bolResetPerWaveform;
+    }
+
+    /**
+     * Return the pipeline which filters the waveforms.
+     *
+     * @return  the filter pipeline
+     */
+    public FilterPipeline   getPipeline() {
+        return this.pipeline;
+    }
+
+
+
+    /*
+     * Operations
+     */
+
+    /**
+     * Filter the waveform posted by the channel and forward it to the listener.
+     *
+     * @param record    record posted by the channel
+     * @param channel   channel which posted the record
+     *
+     * @see xal.ca.IEventSinkValue#eventValue(xal.ca.ChannelRecord, xal.ca.Channel)
+     */
+    public void eventValue(final ChannelRecord record, final Channel channel) {
+        this.filter(record, channel);
+    }
+
+    /**
+     * Filter the waveform posted by the channel and forward it to the listener.
+     *
+     * @param record    record posted by the channel
+     * @param channel   channel which posted the record
+     *
+     * @see xal.ca.IEventSinkValTime#eventValue(xal.ca.ChannelTimeRecord, xal.ca.Channel)
+     */
+    public void eventValue(final ChannelTimeRecord record, final Channel channel) {
+        this.filter(record, channel);
+    }
+
+    /**
+     * Reset the pipeline so the next waveform starts a new signal train.
+     */
+    public synchronized void reset() {
+        this.pipeline.reset();
+    }
+
+
+
+    /*
+     * Internal Support
+     */
+
+    /**
+     * Copy the waveform into the buffer, filter it and forward it to the listener.
+     *
+     * @param record    record posted by the channel
+     * @param channel   channel which posted the record
+     */
+    private synchronized void filter(final ChannelRecord record, final Channel channel) {
+        int     N = record.getCount();
+
+        if (this.arrBuffer.length < N)
+            this.arrBuffer = new double[N];
+
+        double[]    arrWaveform = this.arrBuffer;
+        for (int index=0; index<N; index++)
+            arrWaveform[index] = record.doubleValueAt(index);
+
+        if (this.bolResetPerWaveform)
+            this.pipeline.reset();
+        this.pipeline.process(arrWaveform, 0, N);
+
+        if (this.lsnFiltered != null)
+            this.lsnFiltered.waveformFiltered(this, channel, record, arrWaveform, N);
+    }
+}
@@ -0,0 +1,449 @@
+//
+// Formula.java
+// xal
+//
+
+package xal.tools.formula;
+
+import java.util.*;
+
+
+/**
+ * Formula is an arithmetic expression compiled from source text into a compact postfix program over named double variables.
+ * The syntax is the JavaScript expression subset used by formulas written for the former script based interpreter: the arithmetic,
+ * comparison and logical operators, the conditional operator, parentheses, number literals and the functions abs, sqrt, exp, log,
+ * sin, cos, tan, asin, acos, atan, atan2, pow, floor, ceil, round, min and max with or without the "Math." prefix. The constants
+ * Math.PI, Math.E and the other JavaScript Math constants, NaN and Infinity are also recognized. Any other identifier is a variable.
+ * A formula is immutable and may be evaluated concurrently. It may be evaluated for one set of variable values or over whole arrays of values.
+ */
+final public class Formula {
+	/** push a constant */
+	final static int CONSTANT = 0;
+
+	/** push a variable's value */
+	final static int VARIABLE = 1;
+
+	// unary operators and functions
+	final static int NEGATE = 2;
+	final static int NOT = 3;
+	final static int ABS = 4;
+	final static int SQRT = 5;
+	final static int EXP = 6;
+	final static int LOG = 7;
+	final static int SIN = 8;
+	final static int COS = 9;
+	final static int TAN = 10;
+	final static int ASIN = 11;
+	final static int ACOS = 12;
+	final static int ATAN = 13;
+	final static int FLOOR = 14;
+	final static int CEIL = 15;
+	final static int ROUND = 16;
+
+	// binary operators and functions
+	final static int ADD = 17;
+	final static int SUBTRACT = 18;
+	final static int MULTIPLY = 19;
+	final static int DIVIDE = 20;
+	final static int REMAINDER = 21;
+	final static int LESS = 22;
+	final static int LESS_OR_EQUAL = 23;
+	final static int GREATER = 24;
+	final static int GREATER_OR_EQUAL = 25;
+	final static int EQUAL = 26;
+	final static int NOT_EQUAL = 27;
+	final static int AND = 28;
+	final static int OR = 29;
+	final static int ATAN2 = 30;
+	final static int POW = 31;
+	final static int MIN = 32;
+	final static int MAX = 33;
+
+	/** ternary conditional operator */
+	final static int CONDITIONAL = 34;
+
+	/** number of array elements evaluated together by each instruction of a vectorized evaluation */
+	final static private int BLOCK_SIZE = 256;
+
+	/** evaluation stack for each thread (grown as needed) */
+	final static private ThreadLocal<double[][]> STACK = new ThreadLocal<double[][]>() {
+		protected double[][] initialValue() {
+			return new double[1][16];
+		}
+	};
+
+	/** source text */
+	final private String SOURCE;
+
+	/** names of the variables in order of their first appearance in the source */
+	final private String[] VARIABLE_NAMES;
+
+	/** variable indices keyed by name */
+	final private Map<String,Integer> VARIABLE_INDICES;
+
+	/** instruction codes */
+	final private int[] CODES;
+
+	/** instruction operands: the constant value or the variable index */
+	final private double[] OPERANDS;
+
+	/** maximum depth of the evaluation stack */
+	final private int STACK_DEPTH;
+
+
+	/** Constructor called by the compiler */
+	Formula( final String source, final List<String> variableNames, final int[] codes, final double[] operands, final int stackDepth ) {
+		SOURCE = source;
+		VARIABLE_NAMES = variableNames.toArray( new String[variableNames.size()] );
+		VARIABLE_INDICES = new HashMap<String,Integer>( VARIABLE_NAMES.length );
+		for ( int index = 0 ; index < VARIABLE_NAMES.length ; index++ ) {
+			VARIABLE_INDICES.put( VARIABLE_NAMES[index], index );
+		}
+		CODES = codes;
+		OPERANDS = operands;
+		STACK_DEPTH = stackDepth;
+	}
+
+
+	/**
+	 * Compile a formula from its source text.
+	 * @param source the formula's source text
+	 * @return the compiled formula
+	 * @throws FormulaException if the source is not a valid formula
+	 */
+	static public Formula compile( final String source ) throws FormulaException {
+		return new FormulaCompiler( source ).compile();
+	}
+
+
+	/** Get the source text */
+	public String getSource() {
+		return SOURCE;
+	}
+
+
+	/** Get the number of variables */
+	public int getVariableCount() {
+		return VARIABLE_NAMES.length;
+	}
+
+
+	/** Get the name of the variable at the specified index */
+	public String getVariableName( final int index ) {
+		return VARIABLE_NAMES[index];
+	}
+
+
+	/** Get the names of the variables in order of their index */
+	public List<String> getVariableNames() {
+		return Collections.unmodifiableList( Arrays.asList( VARIABLE_NAMES ) );
+	}
+
+
+	/**
+	 * Get the index of the named variable.
+	 * @param name the name of the variable
+	 * @return the variable's index or -1 if the formula does not reference the variable
+	 */
+	public int getVariableIndex( final String name ) {
+		final Integer index = VARIABLE_INDICES.get( name );
+		return index != null ? index : -1;
+	}
+
+
+	/** Get the number of instructions in the compiled program */
+	public int getInstructionCount() {
+		return CODES.length;
+	}
+
+
+	/**
+	 * Evaluate the formula.
+	 * @param values the values of the variables in order of their index
+	 * @return the value of the formula
+	 */
+	public double evaluate( final double ... values ) {
+		if ( values.length < VARIABLE_NAMES.length )  throw new IllegalArgumentException( "The formula requires " + VARIABLE_NAMES.length + " variable values but only " + values.length + " were provided." );
+
+		final double[][] stackHolder = STACK.get();
+		if ( stackHolder[0].length < STACK_DEPTH )  stackHolder[0] = new double[STACK_DEPTH];
+		final double[] stack = stackHolder[0];
+
+		final int[] codes = CODES;
+		final double[] operands = OPERANDS;
+		int top = -1;
+		for ( int instruction = 0 ; instruction < codes.length ; instruction++ ) {
+			final int code = codes[instruction];
+			switch ( code ) {
+				case CONSTANT:
+					stack[++top] = operands[instruction];
+					break;
+				case VARIABLE:
+					stack[++top] = values[(int)operands[instruction]];
+					break;
+				case ADD:
+					--top;
+					stack[top] += stack[top + 1];
+					break;
+				case SUBTRACT:
+					--top;
+					stack[top] -= stack[top + 1];
+					break;
+				case MULTIPLY:
+					--top;
+					stack[top] *= stack[top + 1];
+					break;
+				case DIVIDE:
+					--top;
+					stack[top] /= stack[top + 1];
+					break;
+				case CONDITIONAL:
+					top -= 2;
+					stack[top] = apply( stack[top], stack[top + 1], stack[top + 2] );
+					break;
+				default:
+					if ( code < ADD ) {
+						stack[top] = apply( code, stack[top] );
+					}
+					else {
+						--top;
+						stack[top] = apply( code, stack[top], stack[top + 1] );
+					}
+					break;
+			}
+		}
+		return stack[0];
+	}
+
+
+	/**
+	 * Evaluate the formula element by element over arrays of variable values.
+	 * @param arrays the arrays of values for each variable in order of the variable index; an array with one element is applied to every element
+	 * @param count the number of elements to evaluate
+	 * @param result array to hold the results or null to allocate a new one
+	 * @return the array of results
+	 */
+	public double[] evaluate( final double[][] arrays, final int count, final double[] result ) {
+		if ( arrays.length < VARIABLE_NAMES.length )  throw new IllegalArgumentException( "The formula requires " + VARIABLE_NAMES.length + " variable arrays but only " + arrays.length + " were provided." );
+		for ( int variable = 0 ; variable < VARIABLE_NAMES.length ; variable++ ) {
+			final double[] array = arrays[variable];
+			if ( array == null )  throw new IllegalArgumentException( "No values were provided for the formula variable: " + VARIABLE_NAMES[variable] );
+			if ( array.length != 1 && array.length < count )  throw new IllegalArgumentException( "The values of the formula variable " + VARIABLE_NAMES[variable] + " has " + array.length + " elements but " + count + " are required." );
+		}
+
+		final double[] results = result != null ? result : new double[count];
+		final double[][] stack = new double[STACK_DEPTH][BLOCK_SIZE];
+		for ( int start = 0 ; start < count ; start += BLOCK_SIZE ) {
+			final int size = Math.min( BLOCK_SIZE, count - start );
+			evaluateBlock( arrays, start, size, stack );
+			System.arraycopy( stack[0], 0, results, start, size );
+		}
+		return results;
+	}
+
+
+	/**
+	 * Evaluate the formula element by element over arrays of variable values.
+	 * @param arrays the arrays of values for each variable in order of the variable index; all arrays must have the same length except that an array with one element is applied to every element
+	 * @return the array of results
+	 */
+	public double[] evaluate( final double[][] arrays ) {
+		int count = 1;
+		for ( int variable = 0 ; variable < VARIABLE_NAMES.length && variable < arrays.length ; variable++ ) {
+			if ( arrays[variable] != null && arrays[variable].length != 1 ) {
+				count = arrays[variable].length;
+				break;
+			}
+		}
+		return evaluate( arrays, count, null );
+	}
+
+
+	/** evaluate a block of elements with each instruction applied to the whole block */
+	private void evaluateBlock( final double[][] arrays, final int start, final int size, final double[][] stack ) {
+		final int[] codes = CODES;
+		final double[] operands = OPERANDS;
+		int top = -1;
+		for ( int instruction = 0 ; instruction < codes.length ; instruction++ ) {
+			final int code = codes[instruction];
+			switch ( code ) {
+				case CONSTANT:
+					Arrays.fill( stack[++top], 0, size, operands[instruction] );
+					break;
+				case VARIABLE: {
+					final double[] array = arrays[(int)operands[instruction]];
+					if ( array.length == 1 ) {
+						Arrays.fill( stack[++top], 0, size, array[0] );
+					}
+					else {
+						System.arraycopy( array, start, stack[++top], 0, size );
+					}
+					break;
+				}
+				case ADD: {
+					final double[] left = stack[--top];
+					final double[] right = stack[top + 1];
+					for ( int index = 0 ; index < size ; index++ )  left[index] += right[index];
+					break;
+				}
+				case SUBTRACT: {
+					final double[] left = stack[--top];
+					final double[] right = stack[top + 1];
+					for ( int index = 0 ; index < size ; index++ )  left[index] -= right[index];
+					break;
+				}
+				case MULTIPLY: {
+					final double[] left = stack[--top];
+					final double[] right = stack[top + 1];
+					for ( int index = 0 ; index < size ; index++ )  left[index] *= right[index];
+					break;
+				}
+				case DIVIDE: {
+					final double[] left = stack[--top];
+					final double[] right = stack[top + 1];
+					for ( int index = 0 ; index < size ; index++ )  left[index] /= right[index];
+					break;
+				}
+				case NEGATE: {
+					final double[] operand = stack[top];
+					for ( int index = 0 ; index < size ; index++ )  operand[index] = -operand[index];
+					break;
+				}
+				case CONDITIONAL: {
+					top -= 2;
+					final double[] condition = stack[top];
+					final double[] first = stack[top + 1];
+					final double[] second = stack[top + 2];
+					for ( int index = 0 ; index < size ; index++ )  condition[index] = apply( condition[index], first[index], second[index] );
+					break;
+				}
+				default:
+					if ( code < ADD ) {
+						final double[] operand = stack[top];
+						for ( int index = 0 ; index < size ; index++ )  operand[index] = apply( code, operand[index] );
+					}
+					else {
+						final double[] left = stack[--top];
+						final double[] right = stack[top + 1];
+						for ( int index = 0 ; index < size ; index++ )  left[index] = apply( code, left[index], right[index] );
+					}
+					break;
+			}
+		}
+	}
+
+
+	/** determine whether the value is true in the JavaScript sense (neither zero nor NaN) */
+	static private boolean isTrue( final double value ) {
+		return value != 0.0 && value == value;
+	}
+
+
+	/** apply the unary operation */
+	static double apply( final int code, final double value ) {
+		switch ( code ) {
+			case NEGATE:
+				return -value;
+			case NOT:
+				return isTrue( value ) ? 0.0 : 1.0;
+			case ABS:
+				return Math.abs( value );
+			case SQRT:
+				return Math.sqrt( value );
+			case EXP:
+				return Math.exp( value );
+			case LOG:
+				return Math.log( value );
+			case SIN:
+				return Math.sin( value );
+			case COS:
+				return Math.cos( value );
+			case TAN:
+				return Math.tan( value );
+			case ASIN:
+				return Math.asin( value );
+			case ACOS:
+				return Math.acos( value );
+			case ATAN:
+				return Math.atan( value );
+			case FLOOR:
+				return Math.floor( value );
+			case CEIL:
+				return Math.ceil( value );
+			case ROUND:
+				return Math.floor( value + 0.5 );
+			default:
+				throw new IllegalArgumentException( "Not a unary formula operation: " + code );
+		}
+	}
+
+
+	/** apply the binary operation */
+	static double apply( final int code, final double left, final double right ) {
+		switch ( code ) {
+			case ADD:
+				return left + right;
+			case SUBTRACT:
+				return left - right;
+			case MULTIPLY:
+				return left * right;
+			case DIVIDE:
+				return left / right;
+			case REMAINDER:
+				return left % right;
+			case LESS:
+				return left < right ? 1.0 : 0.0;
+			case LESS_OR_EQUAL:
+				return left <= right ? 1.0 : 0.0;
+			case GREATER:
+				return left > right ? 1.0 : 0.0;
+			case GREATER_OR_EQUAL:
+				return left >= right ? 1.0 : 0.0;
+			case EQUAL:
+				return left == right ? 1.0 : 0.0;
+			case NOT_EQUAL:
+				return left != right ? 1.0 : 0.0;
+			case AND:
+				return isTrue( left ) ? right : left;
+			case OR:
+				return isTrue( left ) ? left : right;
+			case ATAN2:
+				return Math.atan2( left, right );
+			case POW:
+				return Math.pow( left, right );
+			case MIN:
+				return Math.min( left, right );
+			case MAX:
+				return Math.max( left, right );
+			default:
+				throw new IllegalArgumentException( "Not a binary formula operation: " + code );
+		}
+	}
+
+
+	/** apply the conditional operation */
+	static double apply( final double condition, final double first, final double second ) {
+		return isTrue( condition ) ? first : second;
+	}
+
+
+	/** Get a string representation of the compiled program */
+	public String toString() {
+		final StringBuilder buffer = new StringBuilder( SOURCE );
+		for ( int instruction = 0 ; instruction < CODES.length ; instruction++ ) {
+			buffer.append( "\n" );
+			switch ( CODES[instruction] ) {
+				case CONSTANT:
+					buffer.append( "CONSTANT " ).append( OPERANDS[instruction] );
+					break;
+				case VARIABLE:
+					buffer.append( "VARIABLE " ).append( VARIABLE_NAMES[(int)OPERANDS[instruction]] );
+					break;
+				default:
+					buffer.append( FormulaCompiler.getOperationName( CODES[instruction] ) );
+					break;
+			}
+		}
+		return buffer.toString();
+	}
+}
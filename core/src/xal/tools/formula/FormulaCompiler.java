@@ -0,0 +1,519 @@
+//
+// FormulaCompiler.java
+// xal
+//
+
+package xal.tools.formula;
+
+import java.util.*;
+
+
+/**
+ * FormulaCompiler parses the source of a formula by recursive descent with the JavaScript operator precedence and emits the postfix program.
+ * Operations whose operands are all constant are folded into a constant as they are emitted.
+ */
+final class FormulaCompiler {
+	/** prefix of the JavaScript Math functions and constants */
+	final static private String MATH_PREFIX = "Math.";
+
+	/** function codes keyed by name */
+	final static private Map<String,Integer> FUNCTIONS;
+
+	/** constants keyed by name */
+	final static private Map<String,Double> CONSTANTS;
+
+	/** operation names indexed by code */
+	final static private String[] OPERATION_NAMES;
+
+	/** source text */
+	final private String SOURCE;
+
+	/** names of the variables in order of first appearance */
+	final private List<String> VARIABLE_NAMES;
+
+	/** variable indices keyed by name */
+	final private Map<String,Integer> VARIABLE_INDICES;
+
+	/** emitted instruction codes */
+	private int[] _codes;
+
+	/** emitted instruction operands */
+	private double[] _operands;
+
+	/** number of emitted instructions */
+	private int _instructionCount;
+
+	/** stack depth after the emitted instructions */
+	private int _stackDepth;
+
+	/** maximum stack depth */
+	private int _maxStackDepth;
+
+	/** position of the next character to parse */
+	private int _position;
+
+
+	// static initializer
+	static {
+		FUNCTIONS = new HashMap<String,Integer>();
+		FUNCTIONS.put( "abs", Formula.ABS );
+		FUNCTIONS.put( "sqrt", Formula.SQRT );
+		FUNCTIONS.put( "exp", Formula.EXP );
+		FUNCTIONS.put( "log", Formula.LOG );
+		FUNCTIONS.put( "sin", Formula.SIN );
+		FUNCTIONS.put( "cos", Formula.COS );
+		FUNCTIONS.put( "tan", Formula.TAN );
+		FUNCTIONS.put( "asin", Formula.ASIN );
+		FUNCTIONS.put( "acos", Formula.ACOS );
+		FUNCTIONS.put( "atan", Formula.ATAN );
+		FUNCTIONS.put( "floor", Formula.FLOOR );
+		FUNCTIONS.put( "ceil", Formula.CEIL );
+		FUNCTIONS.put( "round", Formula.ROUND );
+		FUNCTIONS.put( "atan2", Formula.ATAN2 );
+		FUNCTIONS.put( "pow", Formula.POW );
+		FUNCTIONS.put( "min", Formula.MIN );
+		FUNCTIONS.put( "max", Formula.MAX );
+
+		CONSTANTS = new HashMap<String,Double>();
+		CONSTANTS.put( "Math.PI", Math.PI );
+		CONSTANTS.put( "Math.E", Math.E );
+		CONSTANTS.put( "Math.LN2", Math.log( 2.0 ) );
+		CONSTANTS.put( "Math.LN10", Math.log( 10.0 ) );
+		CONSTANTS.put( "Math.LOG2E", 1.0 / Math.log( 2.0 ) );
+		CONSTANTS.put( "Math.LOG10E", 1.0 / Math.log( 10.0 ) );
+		CONSTANTS.put( "Math.SQRT2", Math.sqrt( 2.0 ) );
+		CONSTANTS.put( "Math.SQRT1_2", Math.sqrt( 0.5 ) );
+		CONSTANTS.put( "NaN", Double.NaN );
+		CONSTANTS.put( "Infinity", Double.POSITIVE_INFINITY );
+		CONSTANTS.put( "true", 1.0 );
+		CONSTANTS.put( "false", 0.0 );
+
+		OPERATION_NAMES = new String[Formula.CONDITIONAL + 1];
+		OPERATION_NAMES[Formula.NEGATE] = "NEGATE";
+		OPERATION_NAMES[Formula.NOT] = "NOT";
+		OPERATION_NAMES[Formula.ADD] = "ADD";
+		OPERATION_NAMES[Formula.SUBTRACT] = "SUBTRACT";
+		OPERATION_NAMES[Formula.MULTIPLY] = "MULTIPLY";
+		OPERATION_NAMES[Formula.DIVIDE] = "DIVIDE";
+		OPERATION_NAMES[Formula.REMAINDER] = "REMAINDER";
+		OPERATION_NAMES[Formula.LESS] = "LESS";
+		OPERATION_NAMES[Formula.LESS_OR_EQUAL] = "LESS_OR_EQUAL";
+		OPERATION_NAMES[Formula.GREATER] = "GREATER";
+		OPERATION_NAMES[Formula.GREATER_OR_EQUAL] = "GREATER_OR_EQUAL";
+		OPERATION_NAMES[Formula.EQUAL] = "EQUAL";
+		OPERATION_NAMES[Formula.NOT_EQUAL] = "NOT_EQUAL";
+		OPERATION_NAMES[Formula.AND] = "AND";
+		OPERATION_NAMES[Formula.OR] = "OR";
+		OPERATION_NAMES[Formula.CONDITIONAL] = "CONDITIONAL";
+		for ( final Map.Entry<String,Integer> entry : FUNCTIONS.entrySet() ) {
+			OPERATION_NAMES[entry.getValue()] = entry.getKey().toUpperCase();
+		}
+	}
+
+
+	/** Constructor */
+	FormulaCompiler( final String source ) {
+		if ( source == null )  throw new FormulaException( "The formula source is null." );
+
+		SOURCE = source;
+		VARIABLE_NAMES = new ArrayList<String>();
+		VARIABLE_INDICES = new HashMap<String,Integer>();
+		_codes = new int[16];
+		_operands = new double[16];
+		_instructionCount = 0;
+		_stackDepth = 0;
+		_maxStackDepth = 0;
+		_position = 0;
+	}
+
+
+	/** Get the name of the operation with the specified code */
+	static String getOperationName( final int code ) {
+		return OPERATION_NAMES[code];
+	}
+
+
+	/** compile the source */
+	Formula compile() {
+		skipWhitespace();
+		if ( _position == SOURCE.length() )  throw makeException( "The formula is empty" );
+		parseConditional();
+		skipWhitespace();
+		// allow the statement terminator accepted by the former script interpreter
+		if ( _position < SOURCE.length() && SOURCE.charAt( _position ) == ';' ) {
+			++_position;
+			skipWhitespace();
+		}
+		if ( _position < SOURCE.length() )  throw makeException( "Unexpected character '" + SOURCE.charAt( _position ) + "'" );
+
+		return new Formula( SOURCE, VARIABLE_NAMES, Arrays.copyOf( _codes, _instructionCount ), Arrays.copyOf( _operands, _instructionCount ), _maxStackDepth );
+	}
+
+
+	/** conditional := or [ '?' conditional ':' conditional ] */
+	private void parseConditional() {
+		parseOr();
+		if ( match( "?" ) ) {
+			parseConditional();
+			expect( ":" );
+			parseConditional();
+			emitOperation( Formula.CONDITIONAL );
+		}
+	}
+
+
+	/** or := and { '||' and } */
+	private void parseOr() {
+		parseAnd();
+		while ( match( "||" ) ) {
+			parseAnd();
+			emitOperation( Formula.OR );
+		}
+	}
+
+
+	/** and := equality { '&&' equality } */
+	private void parseAnd() {
+		parseEquality();
+		while ( match( "&&" ) ) {
+			parseEquality();
+			emitOperation( Formula.AND );
+		}
+	}
+
+
+	/** equality := relational { ( '==' | '!=' ) relational } where the strict forms '===' and '!==' are equivalent for numbers */
+	private void parseEquality() {
+		parseRelational();
+		while ( true ) {
+			if ( match( "===" ) || match( "==" ) ) {
+				parseRelational();
+				emitOperation( Formula.EQUAL );
+			}
+			else if ( match( "!==" ) || match( "!=" ) ) {
+				parseRelational();
+				emitOperation( Formula.NOT_EQUAL );
+			}
+			else {
+				return;
+			}
+		}
+	}
+
+
+	/** relational := additive { ( '<=' | '<' | '>=' | '>' ) additive } */
+	private void parseRelational() {
+		parseAdditive();
+		while ( true ) {
+			if ( match( "<=" ) ) {
+				parseAdditive();
+				emitOperation( Formula.LESS_OR_EQUAL );
+			}
+			else if ( match( "<" ) ) {
+				parseAdditive();
+				emitOperation( Formula.LESS );
+			}
+			else if ( match( ">=" ) ) {
+				parseAdditive();
+				emitOperation( Formula.GREATER_OR_EQUAL );
+			}
+			else if ( match( ">" ) ) {
+				parseAdditive();
+				emitOperation( Formula.GREATER );
+			}
+			else {
+				return;
+			}
+		}
+	}
+
+
+	/** additive := multiplicative { ( '+' | '-' ) multiplicative } */
+	private void parseAdditive() {
+		parseMultiplicative();
+		while ( true ) {
+			if ( match( "+" ) ) {
+				parseMultiplicative();
+				emitOperation( Formula.ADD );
+			}
+			else if ( match( "-" ) ) {
+				parseMultiplicative();
+				emitOperation( Formula.SUBTRACT );
+			}
+			else {
+				return;
+			}
+		}
+	}
+
+
+	/** multiplicative := unary { ( '*' | '/' | '%' ) unary } */
+	private void parseMultiplicative() {
+		parseUnary();
+		while ( true ) {
+			if ( match( "*" ) ) {
+				parseUnary();
+				emitOperation( Formula.MULTIPLY );
+			}
+			else if ( match( "/" ) ) {
+				parseUnary();
+				emitOperation( Formula.DIVIDE );
+			}
+			else if ( match( "%" ) ) {
+				parseUnary();
+				emitOperation( Formula.REMAINDER );
+			}
+			else {
+				return;
+			}
+		}
+	}
+
+
+	/** unary := ( '-' | '+' | '!' ) unary | primary */
+	private void parseUnary() {
+		if ( match( "-" ) ) {
+			parseUnary();
+			emitOperation( Formula.NEGATE );
+		}
+		else if ( match( "+" ) ) {
+			parseUnary();
+		}
+		else if ( !peek( "!=" ) && match( "!" ) ) {
+			parseUnary();
+			emitOperation( Formula.NOT );
+		}
+		else {
+			parsePrimary();
+		}
+	}
+
+
+	/** primary := number | '(' conditional ')' | function '(' arguments ')' | constant | variable */
+	private void parsePrimary() {
+		skipWhitespace();
+		if ( _position == SOURCE.length() )  throw makeException( "Unexpected end of the formula" );
+
+		final char next = SOURCE.charAt( _position );
+		if ( match( "(" ) ) {
+			parseConditional();
+			expect( ")" );
+		}
+		else if ( Character.isDigit( next ) || next == '.' ) {
+			emitConstant( parseNumber() );
+		}
+		else if ( Character.isJavaIdentifierStart( next ) ) {
+			final int start = _position;
+			final String name = parseName();
+			if ( match( "(" ) ) {
+				parseFunction( name, start );
+			}
+			else if ( CONSTANTS.containsKey( name ) ) {
+				emitConstant( CONSTANTS.get( name ) );
+			}
+			else if ( name.indexOf( '.' ) >= 0 ) {
+				_position = start;
+				throw makeException( "Unknown name \"" + name + "\"" );
+			}
+			else {
+				emitVariable( name );
+			}
+		}
+		else {
+			throw makeException( "Unexpected character '" + next + "'" );
+		}
+	}
+
+
+	/** parse the arguments of the named function following its opening parenthesis */
+	private void parseFunction( final String name, final int start ) {
+		final String functionName = name.startsWith( MATH_PREFIX ) ? name.substring( MATH_PREFIX.length() ) : name;
+		final Integer code = FUNCTIONS.get( functionName );
+		if ( code == null ) {
+			_position = start;
+			throw makeException( "Unknown function \"" + name + "\"" );
+		}
+
+		int argumentCount = 0;
+		if ( !match( ")" ) ) {
+			do {
+				parseConditional();
+				++argumentCount;
+				// min and max accept any number of arguments and reduce them pairwise
+				if ( argumentCount > 1 && ( code == Formula.MIN || code == Formula.MAX ) )  emitOperation( code );
+			} while ( match( "," ) );
+			expect( ")" );
+		}
+
+		final int requiredCount = code == Formula.MIN || code == Formula.MAX ? -1 : code < Formula.ADD ? 1 : 2;
+		if ( requiredCount < 0 ) {
+			if ( argumentCount == 0 ) {
+				_position = start;
+				throw makeException( "The function \"" + name + "\" requires at least one argument" );
+			}
+		}
+		else if ( argumentCount != requiredCount ) {
+			_position = start;
+			throw makeException( "The function \"" + name + "\" requires " + requiredCount + ( requiredCount == 1 ? " argument" : " arguments" ) + " but has " + argumentCount );
+		}
+		else {
+			emitOperation( code );
+		}
+	}
+
+
+	/** parse a name which may be qualified by dots such as Math.sin */
+	private String parseName() {
+		final int start = _position;
+		++_position;
+		while ( _position < SOURCE.length() ) {
+			final char next = SOURCE.charAt( _position );
+			if ( Character.isJavaIdentifierPart( next ) ) {
+				++_position;
+			}
+			else if ( next == '.' && _position + 1 < SOURCE.length() && Character.isJavaIdentifierStart( SOURCE.charAt( _position + 1 ) ) ) {
+				_position += 2;
+			}
+			else {
+				break;
+			}
+		}
+		return SOURCE.substring( start, _position );
+	}
+
+
+	/** parse a decimal number with an optional fraction and exponent */
+	private double parseNumber() {
+		final int start = _position;
+		while ( _position < SOURCE.length() && Character.isDigit( SOURCE.charAt( _position ) ) )  ++_position;
+		if ( _position < SOURCE.length() && SOURCE.charAt( _position ) == '.' ) {
+			++_position;
+			while ( _position < SOURCE.length() && Character.isDigit( SOURCE.charAt( _position ) ) )  ++_position;
+		}
+		if ( _position < SOURCE.length() && ( SOURCE.charAt( _position ) == 'e' || SOURCE.charAt( _position ) == 'E' ) ) {
+			int exponentPosition = _position + 1;
+			if ( exponentPosition < SOURCE.length() && ( SOURCE.charAt( exponentPosition ) == '+' || SOURCE.charAt( exponentPosition ) == '-' ) )  ++exponentPosition;
+			if ( exponentPosition < SOURCE.length() && Character.isDigit( SOURCE.charAt( exponentPosition ) ) ) {
+				_position = exponentPosition;
+				while ( _position < SOURCE.length() && Character.isDigit( SOURCE.charAt( _position ) ) )  ++_position;
+			}
+		}
+
+		final String text = SOURCE.substring( start, _position );
+		if ( text.equals( "." ) ) {
+			_position = start;
+			throw makeException( "Invalid number" );
+		}
+		return Double.parseDouble( text );
+	}
+
+
+	/** skip whitespace and consume the token if it is next */
+	private boolean match( final String token ) {
+		if ( peek( token ) ) {
+			_position += token.length();
+			return true;
+		}
+		else {
+			return false;
+		}
+	}
+
+
+	/** skip whitespace and determine whether the token is next */
+	private boolean peek( final String token ) {
+		skipWhitespace();
+		return SOURCE.startsWith( token, _position );
+	}
+
+
+	/** consume the token which must be next */
+	private void expect( final String token ) {
+		if ( !match( token ) ) {
+			throw makeException( "Expected '" + token + "'" );
+		}
+	}
+
+
+	/** skip whitespace */
+	private void skipWhitespace() {
+		while ( _position < SOURCE.length() && Character.isWhitespace( SOURCE.charAt( _position ) ) )  ++_position;
+	}
+
+
+	/** make an exception for a problem at the current position */
+	private FormulaException makeException( final String problem ) {
+		return new FormulaException( problem + " at position " + _position + " of the formula: " + SOURCE );
+	}
+
+
+	/** emit an instruction to push the constant */
+	private void emitConstant( final double value ) {
+		emit( Formula.CONSTANT, value );
+		pushStack();
+	}
+
+
+	/** emit an instruction to push the named variable's value */
+	private void emitVariable( final String name ) {
+		Integer index = VARIABLE_INDICES.get( name );
+		if ( index == null ) {
+			index = VARIABLE_NAMES.size();
+			VARIABLE_NAMES.add( name );
+			VARIABLE_INDICES.put( name, index );
+		}
+		emit( Formula.VARIABLE, index );
+		pushStack();
+	}
+
+
+	/** emit the operation or fold it into a constant if its operands are constants */
+	private void emitOperation( final int code ) {
+		final int operandCount = code == Formula.CONDITIONAL ? 3 : code < Formula.ADD ? 1 : 2;
+		_stackDepth -= operandCount - 1;
+
+		boolean constantOperands = _instructionCount >= operandCount;
+		for ( int operand = 1 ; operand <= operandCount && constantOperands ; operand++ ) {
+			constantOperands = _codes[_instructionCount - operand] == Formula.CONSTANT;
+		}
+		if ( constantOperands ) {
+			final int first = _instructionCount - operandCount;
+			final double value;
+			switch ( operandCount ) {
+				case 1:
+					value = Formula.apply( code, _operands[first] );
+					break;
+				case 2:
+					value = Formula.apply( code, _operands[first], _operands[first + 1] );
+					break;
+				default:
+					value = Formula.apply( _operands[first], _operands[first + 1], _operands[first + 2] );
+					break;
+			}
+			_instructionCount = first;
+			emit( Formula.CONSTANT, value );
+		}
+		else {
+			emit( code, 0.0 );
+		}
+	}
+
+
+	/** append an instruction */
+	private void emit( final int code, final double operand ) {
+		if ( _instructionCount == _codes.length ) {
+			_codes = Arrays.copyOf( _codes, 2 * _instructionCount );
+			_operands = Arrays.copyOf( _operands, 2 * _instructionCount );
+		}
+		_codes[_instructionCount] = code;
+		_operands[_instructionCount] = operand;
+		++_instructionCount;
+	}
+
+
+	/** account for a value pushed onto the evaluation stack */
+	private void pushStack() {
+		++_stackDepth;
+		if ( _stackDepth > _maxStackDepth )  _maxStackDepth = _stackDepth;
+	}
+}
@@ -0,0 +1,22 @@
+//
+// FormulaException.java
+// xal
+//
+
+package xal.tools.formula;
+
+
+/** FormulaException is thrown when a formula cannot be compiled or evaluated. */
+public class FormulaException extends RuntimeException {
+	/** serialization identifier */
+	private static final long serialVersionUID = 1L;
+
+
+	/**
+	 * Constructor
+	 * @param message description of the problem
+	 */
+	public FormulaException( final String message ) {
+		super( message );
+	}
+}
@@ -6,79 +6,40 @@
 
 package xal.tools.formula;
 
-import javax.script.ScriptEngineManager;
-import javax.script.ScriptEngine;
-import javax.script.ScriptException;
+import java.util.HashMap;
+import java.util.Map;
 
 
 /**
  * FormulaInterpreter is a class used to evaluate a formula with a given set of variables provided by the user.
+ * The formula is compiled once into a Formula and reevaluated against the present variable values.
  * @author  tap
  */
 final public class FormulaInterpreter {
-	/** standard script header */
-	static final private String STANDARD_SCRIPT_HEADER;
-
-	/** script engine to perform the formula evaluation */
-	final private ScriptEngine SCRIPT_ENGINE;
+	/** values of the variables keyed by name */
+	final private Map<String,Double> VARIABLES;
 
 	/** formula to evaluate */
 	private String _formula;
 
+	/** compiled formula or null if the formula has not been compiled */
+	private Formula _compiledFormula;
 
-	// static initializer
-	static {
-		STANDARD_SCRIPT_HEADER = generateStandardScriptHeader();
-	}
+	/** values of the compiled formula's variables in the formula's order */
+	private double[] _values;
+
+	/** indicates whether each of the compiled formula's variables has been assigned */
+	private boolean[] _assigned;
 
 	
     /** Creates a new instance of FormulaInterpreter */
     public FormulaInterpreter() {
-        SCRIPT_ENGINE = new ScriptEngineManager().getEngineByName( "JavaScript" );		// standard scrip engine shipped with Java
-		if ( SCRIPT_ENGINE == null ) {
-			System.err.println( "Error: JavaScript engine is missing!" );
-			throw new RuntimeException( "JavaScript engine is missing and needed for the Formula Interpreter!" );
-		}
-
-		try {
-			SCRIPT_ENGINE.eval( STANDARD_SCRIPT_HEADER );
-			_formula = "";
-		}
-		catch ( ScriptException exception ) {
-			throw new RuntimeException( exception );
-		}
+		VARIABLES = new HashMap<String,Double>();
+		_formula = "";
+		_compiledFormula = null;
+		_values = new double[0];
+		_assigned = new boolean[0];
     }
-
-
-	/** getnerate the standard script header */
-	static private String generateStandardScriptHeader() {
-		final StringBuffer buffer = new StringBuffer();
-		appendMappedMathFunctionToGlobal( "min", buffer );
-		appendMappedMathFunctionToGlobal( "max", buffer );
-		appendMappedMathFunctionToGlobal( "abs", buffer );
-		appendMappedMathFunctionToGlobal( "pow", buffer );
-		appendMappedMathFunctionToGlobal( "exp", buffer );
-		appendMappedMathFunctionToGlobal( "log", buffer );
-		appendMappedMathFunctionToGlobal( "sin", buffer );
-		appendMappedMathFunctionToGlobal( "cos", buffer );
-		appendMappedMathFunctionToGlobal( "tan", buffer );
-		appendMappedMathFunctionToGlobal( "asin", buffer );
-		appendMappedMathFunctionToGlobal( "acos", buffer );
-		appendMappedMathFunctionToGlobal( "atan", buffer );
-		return buffer.toString();
-	}
-
-
-	/** append the mapped math function to the specified buffer */
-	static private void appendMappedMathFunctionToGlobal( final String name, final StringBuffer buffer ) {
-		buffer.append( mapMathFunctionToGlobal( name ) );
-	}
-
-
-	/** Map the Math function to a global function */
-	static private String mapMathFunctionToGlobal( final String name ) {
-		return "var " + name + " = Math." + name + "; ";
-	}
     
         
     /** 
@@ -87,7 +48,16 @@ final public class FormulaInterpreter {
      * @param value     value assigned to the variable
      */
     final public void setVariable( final String name, final double value ) {
-        SCRIPT_ENGINE.put( name, value );
+        VARIABLES.put( name, value );
+
+		final Formula formula = _compiledFormula;
+		if ( formula != null ) {
+			final int index = formula.getVariableIndex( name );
+			if ( index >= 0 ) {
+				_values[index] = value;
+				_assigned[index] = true;
+			}
+		}
     }
     
     
@@ -97,13 +67,30 @@ final public class FormulaInterpreter {
      * @return true if the variable exists; false otherwise.
      */
     final public boolean hasVariable( final String name ) {
-        return SCRIPT_ENGINE.get( name ) != null;
+        return VARIABLES.containsKey( name );
     }
 
 
 	/** compile the specified formula */
 	public void compile( final String formula ) {
-		_formula = formula;
+		if ( _compiledFormula == null || !_formula.equals( formula ) ) {
+			final Formula compiledFormula = Formula.compile( formula );
+			final int variableCount = compiledFormula.getVariableCount();
+			final double[] values = new double[variableCount];
+			final boolean[] assigned = new boolean[variableCount];
+			for ( int index = 0 ; index < variableCount ; index++ ) {
+				final Double value = VARIABLES.get( compiledFormula.getVariableName( index ) );
+				if ( value != null ) {
+					values[index] = value;
+					assigned[index] = true;
+				}
+			}
+
+			_formula = formula;
+			_values = values;
+			_assigned = assigned;
+			_compiledFormula = compiledFormula;
+		}
 	}
     
     
@@ -113,29 +100,20 @@ final public class FormulaInterpreter {
      */
     public double evaluate( final String formula ) {
 		compile( formula );
-		return performEvaluation( formula );
+		return evaluate();
     }
 
 
 	/** evaluate the compiled formula */
 	public double evaluate() {
-		return performEvaluation( _formula );
-	}
+		final Formula formula = _compiledFormula;
+		if ( formula == null )  throw new FormulaException( "No formula has been compiled." );
 
-
-	/** perform the evaluation internally */
-	private double performEvaluation( final String formula ) {
-		try {
-			final Object result = SCRIPT_ENGINE.eval( formula );
-			if ( result instanceof Number ) {
-				return ((Number)result).doubleValue();
-			}
-			else {
-				throw new RuntimeException( "Formula does not evaluate to a number." );
+		for ( int index = 0 ; index < _assigned.length ; index++ ) {
+			if ( !_assigned[index] ) {
+				throw new FormulaException( "The variable \"" + formula.getVariableName( index ) + "\" is not defined in the formula: " + _formula );
 			}
 		}
-		catch ( ScriptException exception ) {
-			throw new RuntimeException( exception );
-		}
+		return formula.evaluate( _values );
 	}
 }
@@ -11,12 +11,11 @@ package xal.tools.math;
 
 
 /**
- * Calculates the discrete fourier transform.
- * While not as efficient as a fast fourier transform, it offers more flexibility.
+ * Calculates the discrete fourier transform for any even number of values.
+ * The transform is evaluated with the FastFourierTransform engine.
  * transform(f) = 1/2N * sum( f(t) e^(i pi p k / N) ), k = 0...2N-1, t = kT/2N, freq = 2 pi p / T, p = 0...2N-1
  */
 public class DiscreteFourierTransform {
-	final private static double PI2 = 2.0 * Math.PI;
 	final private double[] VALUES;
 	final private double PERIOD;
 	final private Complex[] SPECTRUM;
@@ -44,20 +43,17 @@ public class DiscreteFourierTransform {
 	private Complex[] computeTransform() {
 		final double[] values = VALUES;
 		final int count = values.length;
-		final double countReciprocal = 1.0 / count;
-		
 		final Complex[] transform = new Complex[count];
+		if ( count == 0 )  return transform;
+
+		final double[] realParts = new double[count];
+		final double[] imaginaryParts = new double[count];
+		FastFourierTransform.getInstance( count ).transformReal( values, realParts, imaginaryParts );
+
+		// this transform uses a positive phase which is the conjugate of the engine's forward transform
+		final double countReciprocal = 1.0 / count;
 		for ( int p = 0 ; p < count ; p++ ) {
-			double realSum = 0.0;
-			double iSum = 0.0;
-			for ( int k = 0 ; k < count ; k++ ) {
-				final double phase = PI2 * p * k * countReciprocal;
-				realSum += values[k] * Math.cos( phase );
-				iSum += values[k] * Math.sin( phase );
-			}
-			realSum *= countReciprocal;
-			iSum *= countReciprocal;
-			transform[p] = new Complex( realSum, iSum );
+			transform[p] = new Complex( realParts[p] * countReciprocal, -imaginaryParts[p] * countReciprocal );
 		}
 		
 		return transform;
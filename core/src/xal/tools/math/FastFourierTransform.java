@@ -0,0 +1,631 @@
+//
+//  FastFourierTransform.java
+//  xal
+//
+
+package xal.tools.math;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * <p>
+ * FastFourierTransform computes discrete Fourier transforms of a fixed size in <i>O</i>(<i>N</i> log <i>N</i>) operations.
+ * Sizes which are a power of two use an in place radix-2 transform, sizes whose prime factors are small use a mixed radix
+ * transform and any other size uses Bluestein's chirp-z algorithm built on a power of two transform. The twiddle factor
+ * tables are computed once per size and the instances are cached and shared, so use getInstance() rather than constructing them.
+ * Instances are thread safe since each thread gets its own scratch space.
+ * </p>
+ * <p>
+ * The forward transform is unnormalized: <i>X<sub>k</sub></i> = &Sigma;<sub><i>n</i></sub> <i>x<sub>n</sub></i> <i>e</i><sup>-2&pi;<i>ikn</i>/<i>N</i></sup>,
+ * and the inverse transform includes the factor 1/<i>N</i>. All transforms write into caller supplied arrays so no memory is allocated per transform.
+ * </p>
+ */
+public class FastFourierTransform {
+	/** largest prime factor handled by the mixed radix transform before switching to Bluestein's algorithm */
+	final static private int MAX_MIXED_RADIX = 64;
+
+	/** maximum number of transform plans to cache */
+	final static private int MAX_CACHED_PLANS = 64;
+
+	/** cached transforms keyed by size in least recently used order */
+	final static private Map<Integer,FastFourierTransform> PLAN_CACHE = new LinkedHashMap<Integer,FastFourierTransform>( 16, 0.75f, true ) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry( final Map.Entry<Integer,FastFourierTransform> eldest ) {
+			return size() > MAX_CACHED_PLANS;
+		}
+	};
+
+	/** transform size */
+	final private int SIZE;
+
+	/** algorithm used for this size */
+	final private Algorithm ALGORITHM;
+
+	/** cosines of the twiddle factors: cos( 2 pi k / N ) */
+	final private double[] TWIDDLE_COS;
+
+	/** sines of the twiddle factors for the forward transform: -sin( 2 pi k / N ) */
+	final private double[] TWIDDLE_SIN;
+
+	/** bit reversal permutation for the radix-2 transform */
+	final private int[] BIT_REVERSAL;
+
+	/** radix and sub-transform length pairs for the mixed radix transform */
+	final private int[] FACTORS;
+
+	/** largest radix used by the mixed radix transform */
+	final private int MAX_RADIX;
+
+	/** power of two transform used by Bluestein's algorithm */
+	final private FastFourierTransform CONVOLUTION_TRANSFORM;
+
+	/** Bluestein chirp: exp( -i pi n^2 / N ) real part */
+	final private double[] CHIRP_COS;
+
+	/** Bluestein chirp: exp( -i pi n^2 / N ) imaginary part */
+	final private double[] CHIRP_SIN;
+
+	/** transform of the Bluestein convolution kernel (real part) */
+	final private double[] KERNEL_REAL;
+
+	/** transform of the Bluestein convolution kernel (imaginary part) */
+	final private double[] KERNEL_IMAG;
+
+	/** per thread scratch space */
+	final private ThreadLocal<Workspace> WORKSPACE;
+
+	/** twiddle factors for combining the half size transform in the real transform (computed on demand) */
+	private volatile double[][] _realTwiddles;
+
+
+	/** Algorithms for computing the transform */
+	private enum Algorithm { TRIVIAL, RADIX_2, MIXED_RADIX, BLUESTEIN }
+
+
+	/**
+	 * Constructor
+	 * @param size the transform size which must be positive
+	 */
+	protected FastFourierTransform( final int size ) {
+		if ( size < 1 )  throw new IllegalArgumentException( "The transform size must be positive but is " + size );
+
+		SIZE = size;
+		final List<Integer> primeFactors = factor( size );
+		final int largestFactor = primeFactors.isEmpty() ? 1 : primeFactors.get( primeFactors.size() - 1 );
+
+		if ( size == 1 ) {
+			ALGORITHM = Algorithm.TRIVIAL;
+		}
+		else if ( Integer.bitCount( size ) == 1 ) {
+			ALGORITHM = Algorithm.RADIX_2;
+		}
+		else if ( largestFactor <= MAX_MIXED_RADIX ) {
+			ALGORITHM = Algorithm.MIXED_RADIX;
+		}
+		else {
+			ALGORITHM = Algorithm.BLUESTEIN;
+		}
+
+		// twiddle factors (radix-2 only needs the first half)
+		final int twiddleCount = ALGORITHM == Algorithm.RADIX_2 ? size / 2 : ALGORITHM == Algorithm.MIXED_RADIX ? size : 0;
+		TWIDDLE_COS = new double[twiddleCount];
+		TWIDDLE_SIN = new double[twiddleCount];
+		for ( int index = 0 ; index < twiddleCount ; index++ ) {
+			final double phase = 2.0 * Math.PI * index / size;
+			TWIDDLE_COS[index] = Math.cos( phase );
+			TWIDDLE_SIN[index] = -Math.sin( phase );
+		}
+
+		BIT_REVERSAL = ALGORITHM == Algorithm.RADIX_2 ? makeBitReversal( size ) : null;
+
+		if ( ALGORITHM == Algorithm.MIXED_RADIX ) {
+			FACTORS = makeRadixPlan( size, primeFactors );
+			int maxRadix = 1;
+			for ( int index = 0 ; index < FACTORS.length ; index += 2 ) {
+				maxRadix = Math.max( maxRadix, FACTORS[index] );
+			}
+			MAX_RADIX = maxRadix;
+		}
+		else {
+			FACTORS = null;
+			MAX_RADIX = 1;
+		}
+
+		if ( ALGORITHM == Algorithm.BLUESTEIN ) {
+			final int convolutionSize = Integer.highestOneBit( 2 * size - 1 ) << 1;
+			CONVOLUTION_TRANSFORM = getInstance( convolutionSize );
+
+			CHIRP_COS = new double[size];
+			CHIRP_SIN = new double[size];
+			final long doubleSize = 2L * size;
+			for ( int index = 0 ; index < size ; index++ ) {
+				// reduce n^2 modulo 2N to keep the phase accurate for large n
+				final long square = ( (long)index * index ) % doubleSize;
+				final double phase = Math.PI * square / size;
+				CHIRP_COS[index] = Math.cos( phase );
+				CHIRP_SIN[index] = -Math.sin( phase );
+			}
+
+			KERNEL_REAL = new double[convolutionSize];
+			KERNEL_IMAG = new double[convolutionSize];
+			KERNEL_REAL[0] = CHIRP_COS[0];
+			KERNEL_IMAG[0] = -CHIRP_SIN[0];
+			for ( int index = 1 ; index < size ; index++ ) {
+				KERNEL_REAL[index] = KERNEL_REAL[convolutionSize - index] = CHIRP_COS[index];
+				KERNEL_IMAG[index] = KERNEL_IMAG[convolutionSize - index] = -CHIRP_SIN[index];
+			}
+			CONVOLUTION_TRANSFORM.transform( KERNEL_REAL, KERNEL_IMAG );
+		}
+		else {
+			CONVOLUTION_TRANSFORM = null;
+			CHIRP_COS = null;
+			CHIRP_SIN = null;
+			KERNEL_REAL = null;
+			KERNEL_IMAG = null;
+		}
+
+		WORKSPACE = new ThreadLocal<Workspace>() {
+			protected Workspace initialValue() {
+				return new Workspace();
+			}
+		};
+	}
+
+
+	/**
+	 * Get the shared transform for the specified size creating and caching it if necessary
+	 * @param size the transform size which must be positive
+	 * @return the transform for the size
+	 */
+	static public FastFourierTransform getInstance( final int size ) {
+		synchronized( PLAN_CACHE ) {
+			final FastFourierTransform cachedTransform = PLAN_CACHE.get( size );
+			if ( cachedTransform != null )  return cachedTransform;
+		}
+
+		// construct outside of the lock since Bluestein transforms request their convolution transform
+		final FastFourierTransform transform = new FastFourierTransform( size );
+		synchronized( PLAN_CACHE ) {
+			final FastFourierTransform cachedTransform = PLAN_CACHE.get( size );
+			if ( cachedTransform != null )  return cachedTransform;
+			PLAN_CACHE.put( size, transform );
+			return transform;
+		}
+	}
+
+
+	/** get the transform size */
+	public int getSize() {
+		return SIZE;
+	}
+
+
+	/**
+	 * Compute the forward transform in place
+	 * @param real the real parts of the values to transform (at least size elements) replaced with the real parts of the transform
+	 * @param imag the imaginary parts of the values to transform (at least size elements) replaced with the imaginary parts of the transform
+	 */
+	public void transform( final double[] real, final double[] imag ) {
+		checkLength( real );
+		checkLength( imag );
+
+		switch( ALGORITHM ) {
+			case RADIX_2:
+				transformRadix2( real, imag );
+				break;
+			case MIXED_RADIX:
+				transformMixedRadix( real, imag );
+				break;
+			case BLUESTEIN:
+				transformBluestein( real, imag );
+				break;
+			default:
+				break;
+		}
+	}
+
+
+	/**
+	 * Compute the inverse transform in place including the 1/N normalization
+	 * @param real the real parts of the transform (at least size elements) replaced with the real parts of the inverse
+	 * @param imag the imaginary parts of the transform (at least size elements) replaced with the imaginary parts of the inverse
+	 */
+	public void inverse( final double[] real, final double[] imag ) {
+		checkLength( imag );
+
+		// inverse( x ) = conj( forward( conj( x ) ) ) / N
+		for ( int index = 0 ; index < SIZE ; index++ ) {
+			imag[index] = -imag[index];
+		}
+		transform( real, imag );
+		final double scale = 1.0 / SIZE;
+		for ( int index = 0 ; index < SIZE ; index++ ) {
+			real[index] *= scale;
+			imag[index] *= -scale;
+		}
+	}
+
+
+	/**
+	 * Compute the forward transform of real values. The full (Hermitian symmetric) spectrum of size elements is written to the output arrays.
+	 * For even sizes the transform is computed with a complex transform of half the size.
+	 * @param values the real values to transform (at least size elements) which are not modified
+	 * @param real array (at least size elements) into which to write the real parts of the transform
+	 * @param imag array (at least size elements) into which to write the imaginary parts of the transform
+	 */
+	public void transformReal( final double[] values, final double[] real, final double[] imag ) {
+		checkLength( values );
+		checkLength( real );
+		checkLength( imag );
+
+		if ( SIZE % 2 != 0 || SIZE < 4 ) {
+			System.arraycopy( values, 0, real, 0, SIZE );
+			java.util.Arrays.fill( imag, 0, SIZE, 0.0 );
+			transform( real, imag );
+			return;
+		}
+
+		// pack the even and odd samples as a complex signal of half the size and transform it
+		final int halfSize = SIZE / 2;
+		final double[] packedReal = real;
+		final double[] packedImag = imag;
+		for ( int index = 0 ; index < halfSize ; index++ ) {
+			packedReal[index] = values[2 * index];
+			packedImag[index] = values[2 * index + 1];
+		}
+		getInstance( halfSize ).transform( packedReal, packedImag );
+
+		// split the half size transform into the transforms of the even and odd samples and combine them
+		final double[][] twiddles = getRealTwiddles();
+		final double[] twiddleCos = twiddles[0];
+		final double[] twiddleSin = twiddles[1];
+		final Workspace workspace = WORKSPACE.get();
+		final double[] halfReal = workspace.getArray( 0, halfSize );
+		final double[] halfImag = workspace.getArray( 1, halfSize );
+		System.arraycopy( packedReal, 0, halfReal, 0, halfSize );
+		System.arraycopy( packedImag, 0, halfImag, 0, halfSize );
+
+		for ( int k = 0 ; k <= halfSize ; k++ ) {
+			final int index = k == halfSize ? 0 : k;
+			final int mirror = k == 0 ? 0 : halfSize - k;
+			final double zr = halfReal[index];
+			final double zi = halfImag[index];
+			final double cr = halfReal[mirror];
+			final double ci = -halfImag[mirror];
+
+			// even part E = ( Z[k] + conj( Z[M-k] ) ) / 2 and odd part O = ( Z[k] - conj( Z[M-k] ) ) / 2i
+			final double evenReal = 0.5 * ( zr + cr );
+			final double evenImag = 0.5 * ( zi + ci );
+			final double oddReal = 0.5 * ( zi - ci );
+			final double oddImag = -0.5 * ( zr - cr );
+
+			final double wr = twiddleCos[k];
+			final double wi = twiddleSin[k];
+			final double xr = evenReal + wr * oddReal - wi * oddImag;
+			final double xi = evenImag + wr * oddImag + wi * oddReal;
+			real[k] = xr;
+			imag[k] = xi;
+			if ( k > 0 && k < halfSize ) {
+				real[SIZE - k] = xr;
+				imag[SIZE - k] = -xi;
+			}
+		}
+	}
+
+
+	/**
+	 * Compute the power spectrum |X<sub>k</sub>|&sup2; of real values using the unnormalized forward transform.
+	 * @param values the real values (at least size elements) which are not modified
+	 * @param spectrum array (at least size elements) into which to write the power spectrum
+	 */
+	public void powerSpectrum( final double[] values, final double[] spectrum ) {
+		checkLength( spectrum );
+		final Workspace workspace = WORKSPACE.get();
+		final double[] real = workspace.getArray( 2, SIZE );
+		final double[] imag = workspace.getArray( 3, SIZE );
+		transformReal( values, real, imag );
+		for ( int index = 0 ; index < SIZE ; index++ ) {
+			spectrum[index] = real[index] * real[index] + imag[index] * imag[index];
+		}
+	}
+
+
+	/**
+	 * Compute the circular cross correlation R[d] = &Sigma;<sub><i>m</i></sub> <i>x</i>[<i>m</i>] <i>y</i>[(<i>m</i> + <i>d</i>) mod <i>N</i>] of real signals
+	 * @param stationary the stationary signal x (at least size elements)
+	 * @param shifted the shifted signal y (at least size elements)
+	 * @param correlation array (at least size elements) into which to write the correlation
+	 */
+	public void crossCorrelation( final double[] stationary, final double[] shifted, final double[] correlation ) {
+		checkLength( correlation );
+		final Workspace workspace = WORKSPACE.get();
+		final double[] stationaryReal = workspace.getArray( 2, SIZE );
+		final double[] stationaryImag = workspace.getArray( 3, SIZE );
+		final double[] shiftedReal = workspace.getArray( 4, SIZE );
+		final double[] shiftedImag = workspace.getArray( 5, SIZE );
+		transformReal( stationary, stationaryReal, stationaryImag );
+		transformReal( shifted, shiftedReal, shiftedImag );
+
+		// R = inverse( conj( X ) Y )
+		for ( int index = 0 ; index < SIZE ; index++ ) {
+			final double xr = stationaryReal[index];
+			final double xi = stationaryImag[index];
+			final double yr = shiftedReal[index];
+			final double yi = shiftedImag[index];
+			stationaryReal[index] = xr * yr + xi * yi;
+			stationaryImag[index] = xr * yi - xi * yr;
+		}
+		inverse( stationaryReal, stationaryImag );
+		System.arraycopy( stationaryReal, 0, correlation, 0, SIZE );
+	}
+
+
+	/** in place iterative radix-2 decimation in time transform */
+	private void transformRadix2( final double[] real, final double[] imag ) {
+		final int size = SIZE;
+		final int[] reversal = BIT_REVERSAL;
+		for ( int index = 0 ; index < size ; index++ ) {
+			final int target = reversal[index];
+			if ( target > index ) {
+				final double tempReal = real[index];
+				real[index] = real[target];
+				real[target] = tempReal;
+				final double tempImag = imag[index];
+				imag[index] = imag[target];
+				imag[target] = tempImag;
+			}
+		}
+
+		final double[] twiddleCos = TWIDDLE_COS;
+		final double[] twiddleSin = TWIDDLE_SIN;
+		for ( int span = 1 ; span < size ; span <<= 1 ) {
+			final int twiddleStride = size / ( 2 * span );
+			for ( int start = 0 ; start < size ; start += 2 * span ) {
+				for ( int offset = 0, twiddle = 0 ; offset < span ; offset++, twiddle += twiddleStride ) {
+					final int top = start + offset;
+					final int bottom = top + span;
+					final double wr = twiddleCos[twiddle];
+					final double wi = twiddleSin[twiddle];
+					final double tr = real[bottom] * wr - imag[bottom] * wi;
+					final double ti = real[bottom] * wi + imag[bottom] * wr;
+					real[bottom] = real[top] - tr;
+					imag[bottom] = imag[top] - ti;
+					real[top] += tr;
+					imag[top] += ti;
+				}
+			}
+		}
+	}
+
+
+	/** mixed radix transform which reads a copy of the input and writes the transform back into the arrays */
+	private void transformMixedRadix( final double[] real, final double[] imag ) {
+		final Workspace workspace = WORKSPACE.get();
+		final double[] inputReal = workspace.getArray( 0, SIZE );
+		final double[] inputImag = workspace.getArray( 1, SIZE );
+		System.arraycopy( real, 0, inputReal, 0, SIZE );
+		System.arraycopy( imag, 0, inputImag, 0, SIZE );
+
+		final double[] scratchReal = workspace.getArray( 6, MAX_RADIX );
+		final double[] scratchImag = workspace.getArray( 7, MAX_RADIX );
+		mixedRadixStage( real, imag, 0, inputReal, inputImag, 0, 1, 0, scratchReal, scratchImag );
+	}
+
+
+	/**
+	 * Recursive decimation in time stage of the mixed radix transform
+	 * @param outReal output real parts
+	 * @param outImag output imaginary parts
+	 * @param outOffset offset of this stage's output
+	 * @param inReal input real parts
+	 * @param inImag input imaginary parts
+	 * @param inOffset offset of this stage's first input
+	 * @param stride stride between this stage's inputs
+	 * @param factorIndex index of this stage's radix in the plan
+	 */
+	private void mixedRadixStage( final double[] outReal, final double[] outImag, final int outOffset, final double[] inReal, final double[] inImag, final int inOffset, final int stride, final int factorIndex, final double[] scratchReal, final double[] scratchImag ) {
+		final int radix = FACTORS[factorIndex];
+		final int length = FACTORS[factorIndex + 1];
+
+		if ( length == 1 ) {
+			for ( int q = 0 ; q < radix ; q++ ) {
+				final int source = inOffset + q * stride;
+				outReal[outOffset + q] = inReal[source];
+				outImag[outOffset + q] = inImag[source];
+			}
+		}
+		else {
+			for ( int q = 0 ; q < radix ; q++ ) {
+				mixedRadixStage( outReal, outImag, outOffset + q * length, inReal, inImag, inOffset + q * stride, stride * radix, factorIndex + 2, scratchReal, scratchImag );
+			}
+		}
+
+		if ( radix == 2 ) {
+			butterfly2( outReal, outImag, outOffset, stride, length );
+		}
+		else {
+			butterflyGeneric( outReal, outImag, outOffset, stride, length, radix, scratchReal, scratchImag );
+		}
+	}
+
+
+	/** radix-2 butterfly combining two transforms of the specified length */
+	private void butterfly2( final double[] real, final double[] imag, final int offset, final int stride, final int length ) {
+		for ( int u = 0 ; u < length ; u++ ) {
+			final int top = offset + u;
+			final int bottom = top + length;
+			final int twiddle = u * stride;
+			final double wr = TWIDDLE_COS[twiddle];
+			final double wi = TWIDDLE_SIN[twiddle];
+			final double tr = real[bottom] * wr - imag[bottom] * wi;
+			final double ti = real[bottom] * wi + imag[bottom] * wr;
+			real[bottom] = real[top] - tr;
+			imag[bottom] = imag[top] - ti;
+			real[top] += tr;
+			imag[top] += ti;
+		}
+	}
+
+
+	/** generic butterfly combining radix transforms of the specified length */
+	private void butterflyGeneric( final double[] real, final double[] imag, final int offset, final int stride, final int length, final int radix, final double[] scratchReal, final double[] scratchImag ) {
+		final int size = SIZE;
+		for ( int u = 0 ; u < length ; u++ ) {
+			for ( int q = 0, k = offset + u ; q < radix ; q++, k += length ) {
+				scratchReal[q] = real[k];
+				scratchImag[q] = imag[k];
+			}
+
+			for ( int q1 = 0, k = u ; q1 < radix ; q1++, k += length ) {
+				final int twiddleStep = ( stride * k ) % size;
+				double sumReal = scratchReal[0];
+				double sumImag = scratchImag[0];
+				int twiddle = 0;
+				for ( int q = 1 ; q < radix ; q++ ) {
+					twiddle += twiddleStep;
+					if ( twiddle >= size )  twiddle -= size;
+					final double wr = TWIDDLE_COS[twiddle];
+					final double wi = TWIDDLE_SIN[twiddle];
+					sumReal += scratchReal[q] * wr - scratchImag[q] * wi;
+					sumImag += scratchReal[q] * wi + scratchImag[q] * wr;
+				}
+				real[offset + k] = sumReal;
+				imag[offset + k] = sumImag;
+			}
+		}
+	}
+
+
+	/** Bluestein chirp-z transform expressed as a circular convolution computed with a power of two transform */
+	private void transformBluestein( final double[] real, final double[] imag ) {
+		final int size = SIZE;
+		final FastFourierTransform convolutionTransform = CONVOLUTION_TRANSFORM;
+		final int convolutionSize = convolutionTransform.getSize();
+		final Workspace workspace = WORKSPACE.get();
+		final double[] workReal = workspace.getArray( 0, convolutionSize );
+		final double[] workImag = workspace.getArray( 1, convolutionSize );
+
+		// a[n] = x[n] chirp[n] zero padded
+		for ( int index = 0 ; index < size ; index++ ) {
+			final double cr = CHIRP_COS[index];
+			final double ci = CHIRP_SIN[index];
+			workReal[index] = real[index] * cr - imag[index] * ci;
+			workImag[index] = real[index] * ci + imag[index] * cr;
+		}
+		java.util.Arrays.fill( workReal, size, convolutionSize, 0.0 );
+		java.util.Arrays.fill( workImag, size, convolutionSize, 0.0 );
+
+		// convolve with the kernel
+		convolutionTransform.transform( workReal, workImag );
+		for ( int index = 0 ; index < convolutionSize ; index++ ) {
+			final double ar = workReal[index];
+			final double ai = workImag[index];
+			final double br = KERNEL_REAL[index];
+			final double bi = KERNEL_IMAG[index];
+			workReal[index] = ar * br - ai * bi;
+			workImag[index] = ar * bi + ai * br;
+		}
+		convolutionTransform.inverse( workReal, workImag );
+
+		// X[k] = chirp[k] c[k]
+		for ( int index = 0 ; index < size ; index++ ) {
+			final double cr = CHIRP_COS[index];
+			final double ci = CHIRP_SIN[index];
+			final double wr = workReal[index];
+			final double wi = workImag[index];
+			real[index] = wr * cr - wi * ci;
+			imag[index] = wr * ci + wi * cr;
+		}
+	}
+
+
+	/** get the twiddle factors exp( -2 pi i k / N ) for k = 0...N/2 used by the real transform */
+	private double[][] getRealTwiddles() {
+		double[][] twiddles = _realTwiddles;
+		if ( twiddles == null ) {
+			final int halfSize = SIZE / 2;
+			final double[] twiddleCos = new double[halfSize + 1];
+			final double[] twiddleSin = new double[halfSize + 1];
+			for ( int index = 0 ; index <= halfSize ; index++ ) {
+				final double phase = 2.0 * Math.PI * index / SIZE;
+				twiddleCos[index] = Math.cos( phase );
+				twiddleSin[index] = -Math.sin( phase );
+			}
+			twiddles = new double[][] { twiddleCos, twiddleSin };
+			_realTwiddles = twiddles;
+		}
+		return twiddles;
+	}
+
+
+	/** verify that the array can hold a transform of this size */
+	private void checkLength( final double[] array ) {
+		if ( array.length < SIZE ) {
+			throw new IllegalArgumentException( "The array length " + array.length + " is less than the transform size " + SIZE );
+		}
+	}
+
+
+	/** compute the prime factors of the number in ascending order */
+	static private List<Integer> factor( final int number ) {
+		final List<Integer> factors = new ArrayList<Integer>();
+		int remainder = number;
+		for ( int factor = 2 ; (long)factor * factor <= remainder ; factor++ ) {
+			while ( remainder % factor == 0 ) {
+				factors.add( factor );
+				remainder /= factor;
+			}
+		}
+		if ( remainder > 1 )  factors.add( remainder );
+		return factors;
+	}
+
+
+	/** make the radix and sub-transform length pairs for the mixed radix transform from the prime factors */
+	static private int[] makeRadixPlan( final int size, final List<Integer> primeFactors ) {
+		final int[] plan = new int[2 * primeFactors.size()];
+		int length = size;
+		for ( int index = 0 ; index < primeFactors.size() ; index++ ) {
+			final int radix = primeFactors.get( index );
+			length /= radix;
+			plan[2 * index] = radix;
+			plan[2 * index + 1] = length;
+		}
+		return plan;
+	}
+
+
+	/** make the bit reversal permutation for a power of two size */
+	static private int[] makeBitReversal( final int size ) {
+		final int bits = Integer.numberOfTrailingZeros( size );
+		final int[] reversal = new int[size];
+		for ( int index = 0 ; index < size ; index++ ) {
+			reversal[index] = Integer.reverse( index ) >>> ( 32 - bits );
+		}
+		return reversal;
+	}
+
+
+
+	/** Scratch arrays for one thread */
+	private static class Workspace {
+		/** scratch arrays by slot */
+		final private double[][] ARRAYS = new double[8][];
+
+
+		/** get the scratch array in the slot with at least the specified length */
+		public double[] getArray( final int slot, final int length ) {
+			double[] array = ARRAYS[slot];
+			if ( array == null || array.length < length ) {
+				array = new double[length];
+				ARRAYS[slot] = array;
+			}
+			return array;
+		}
+	}
+}
@@ -118,6 +118,23 @@ abstract public class DifferentiableOperation {
     }
     
     
+    /**
+     * Append the instructions for this operation to the compiler's tape returning the register of the result. Operations defined outside
+     * this package can implement it by returning the register of an equivalent expression of the built in operations from compiler.register().
+     */
+    abstract protected int compileInstructions( final TapeCompiler compiler );
+    
+    
+    /** 
+     * Compile this operation into a tape which evaluates the operation and its derivatives over an array of variable values.
+     * @param variables variables which come first (in order) in the value and gradient arrays
+     * @return the compiled tape
+     */
+    final public DifferentiableOperationTape compile( final DifferentiableVariable ... variables ) {
+        return DifferentiableOperationTape.compile( this, variables );
+    }
+    
+    
     /** Get the derivative with respect to the specified variable */
     abstract public DifferentiableOperation getDerivative( final DifferentiableVariable variable );
     
@@ -441,6 +458,12 @@ class DifferentiableConstant extends DifferentiableSymbol {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.constant( VALUE );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return VALUE;
@@ -731,6 +754,12 @@ class DifferentiableAddition extends DifferentiableOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.binary( DifferentiableOperationTape.ADD, SUMMAND, ADDEND );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return SUMMAND.evaluateWithCache( valueMap, cache ) + ADDEND.evaluateWithCache( valueMap, cache );
@@ -794,6 +823,12 @@ class DifferentiableSubtraction extends DifferentiableOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.binary( DifferentiableOperationTape.SUBTRACT, MINUEND, SUBTRAHEND );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return MINUEND.evaluateWithCache( valueMap, cache ) - SUBTRAHEND.evaluateWithCache( valueMap, cache );
@@ -912,6 +947,12 @@ class DifferentiableMultiplication extends DifferentiableOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.binary( DifferentiableOperationTape.MULTIPLY, MULTIPLICAND, MULTIPLIER );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return MULTIPLICAND.evaluateWithCache( valueMap, cache ) * MULTIPLIER.evaluateWithCache( valueMap, cache );
@@ -987,6 +1028,12 @@ class DifferentiableDivision extends DifferentiableOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.binary( DifferentiableOperationTape.DIVIDE, DIVIDEND, DIVISOR );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return DIVIDEND.evaluateWithCache( valueMap, cache ) / DIVISOR.evaluateWithCache( valueMap, cache );
@@ -1053,6 +1100,12 @@ class DifferentiableNegation extends DifferentiableOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.NEGATE, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return - ARGUMENT.evaluateWithCache( valueMap, cache );
@@ -1131,6 +1184,12 @@ class DifferentiableAbsoluteValue extends DifferentiableSymbol {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.ABS, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.abs( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1197,6 +1256,12 @@ class DifferentiableSine extends DifferentiableUnaryOperation {
     }
 
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.SIN, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.sin( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1251,6 +1316,12 @@ class DifferentiableCosine extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.COS, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.cos( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1293,6 +1364,12 @@ class DifferentiableTangent extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.TAN, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.tan( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1335,6 +1412,12 @@ class DifferentiableArcSine extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.ASIN, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.asin( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1377,6 +1460,12 @@ class DifferentiableArcCosine extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.ACOS, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.acos( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1419,6 +1508,12 @@ class DifferentiableArcTangent extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.ATAN, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.atan( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1451,6 +1546,12 @@ class DifferentiableSinh extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.SINH, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.sinh( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1505,6 +1606,12 @@ class DifferentiableCosh extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.COSH, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.cosh( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1547,6 +1654,12 @@ class DifferentiableTanh extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.TANH, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.tanh( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1609,6 +1722,12 @@ class DifferentiableConstantPower extends DifferentiableSymbol {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.CONSTANT_POWER, ARGUMENT, POWER );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.pow( ARGUMENT.evaluateWithCache( valueMap, cache ), POWER );
@@ -1684,6 +1803,12 @@ class DifferentiablePower extends DifferentiableSymbol {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.binary( DifferentiableOperationTape.POWER, ARGUMENT, POWER );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.pow( ARGUMENT.evaluateWithCache( valueMap, cache ), POWER.evaluateWithCache( valueMap, cache ) );
@@ -1735,6 +1860,12 @@ class DifferentiableSquareRoot extends DifferentiableConstantPower {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.SQRT, ARGUMENT );
+    }
+    
+    
     /** get the string representation */
     public String toString() {
         return "sqrt(" + ARGUMENT + ")";
@@ -1767,6 +1898,12 @@ class DifferentiableExponential extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.EXP, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.exp( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -1809,6 +1946,12 @@ class DifferentiableLogarithm extends DifferentiableUnaryOperation {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.unary( DifferentiableOperationTape.LOG, ARGUMENT );
+    }
+    
+    
     /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
     public double evaluate( final DifferentiableVariableValues valueMap, final Map<DifferentiableOperation,Double> cache ) {
         return Math.log( ARGUMENT.evaluateWithCache( valueMap, cache ) );
@@ -8,8 +8,6 @@
 
 package xal.tools.math.differential;
 
-import xal.tools.ArrayTool;
-
 import java.util.*;
 
 
@@ -25,11 +23,8 @@ public class DifferentiableOperationMinimizer implements Runnable {
     /** variables used to minimize the function */
     final private List<BoundedDifferentiableVariable> VARIABLES;
     
-    /** gradient operation for the penalty operation */
-    final private Gradient GRADIENT_OPERATION;
-    
-    /** hessian operation for the penalty operation */
-    final private Hessian HESSIAN_OPERATION;
+    /** penalty operation compiled with the variables first so the gradient and curvature are evaluated without symbolic derivatives */
+    final private DifferentiableOperationTape PENALTY_TAPE;
     
     /** maximum number of evaluations to evaluate the operation */
     volatile private int _maxEvaluations;
@@ -43,8 +38,7 @@ public class DifferentiableOperationMinimizer implements Runnable {
         RANDOM_GENERATOR = new Random( 0 );
         PENALTY_OPERATION = operation;
         VARIABLES = new ArrayList<BoundedDifferentiableVariable>( variables );
-        GRADIENT_OPERATION = new Gradient( PENALTY_OPERATION, VARIABLES );
-        HESSIAN_OPERATION = new Hessian( GRADIENT_OPERATION );
+        PENALTY_TAPE = DifferentiableOperationTape.compile( PENALTY_OPERATION, VARIABLES );
         
         _maxEvaluations = maxEvaluations;
         _bestSolution = null;
@@ -134,7 +128,18 @@ public class DifferentiableOperationMinimizer implements Runnable {
     
     /** evaluate the operation to minimize at the specified trial point */
     public double getPenalty( final TrialPoint point ) {
-        return PENALTY_OPERATION.evaluate( point.getPointMap() );
+        return PENALTY_TAPE.evaluate( point.getPointMap() );
+    }
+    
+    
+    /** square of the metric length of the vector */
+    static private double squareLength( final double[] vector ) {
+        double squareLength = 0.0;
+        for ( int index = 0 ; index < vector.length ; index++ ) {
+            final double value = vector[index];
+            squareLength += value * value;
+        }
+        return squareLength;
     }
     
     
@@ -170,16 +175,22 @@ public class DifferentiableOperationMinimizer implements Runnable {
         if ( evaluations >= _maxEvaluations )  return initialTrial;
                 
         final TrialPoint initialPoint = initialTrial.getPoint();
-        final double[] gradient = GRADIENT_OPERATION.evaluate( initialPoint );
+        final double[] values = PENALTY_TAPE.getValues( initialPoint.getPointMap() );
         
-        final double[][] hessian = HESSIAN_OPERATION.evaluate( initialPoint );
+        // the tape's gradient includes any free variables after the search variables, so zero those components to search along the search variables only
+        final double[] direction = new double[ values.length ];
+        PENALTY_TAPE.evaluateGradient( values, direction );
+        final int dimension = VARIABLES.size();
+        Arrays.fill( direction, dimension, direction.length, 0.0 );
+        final double[] gradient = Arrays.copyOf( direction, dimension );
         
-        final double gradSquare = Gradient.squareLength( gradient );
+        final double gradSquare = squareLength( gradient );
         if ( gradSquare == 0.0 || Double.isInfinite( gradSquare ) || Double.isNaN( gradSquare ) ) {
             return findNextRandomTrialWithPowerDistribution( initialTrial, evaluations );
         }
         
-        final double curvature = Hessian.getCurvature( gradient, hessian );
+        // curvature along the gradient: gradient * Hessian * gradient
+        final double curvature = PENALTY_TAPE.evaluateCurvature( values, direction );
         
         double searchStep = 0.0;
         if ( curvature <= 0.0 || Double.isInfinite( curvature ) || Double.isNaN( curvature ) ) {
@@ -282,143 +293,6 @@ public class DifferentiableOperationMinimizer implements Runnable {
 
 
 
-/** represents and calculates the gradient operation of a specified operation */
-class Gradient {
-    /** array of variables corresponding to the gradient components */
-    final private List<BoundedDifferentiableVariable> VARIABLES;
-    
-    /** array of gradient component operations */
-    final private DifferentiableOperation[] OPERATION_VECTOR;
-    
-    
-    /** constructor */
-    public Gradient( final DifferentiableOperation operation, final List<BoundedDifferentiableVariable> variables ) {
-        VARIABLES = variables;
-        OPERATION_VECTOR = new DifferentiableOperation[ variables.size() ];
-        final int dimension = getDimension();
-        for ( int index = 0 ; index < dimension; index++ ) {
-            OPERATION_VECTOR[index] = operation.getDerivative( variables.get( index ) );
-        }
-    }
-    
-    
-    /** get the operation vector */
-    public DifferentiableOperation[] getOperationVector() {
-        return OPERATION_VECTOR;
-    }
-    
-    
-    /** Get the variables */
-    public List<BoundedDifferentiableVariable> getVariables() {
-        return VARIABLES;
-    }
-    
-    
-    /** get the dimension of the gradient */
-    public int getDimension() {
-        return OPERATION_VECTOR.length;
-    }
-    
-    
-    /** square of the metric length of the vector */
-    static public double squareLength( final double[] vector ) {
-        double squareLength = 0.0;
-        for ( int index = 0 ; index < vector.length ; index++ ) {
-            final double value = vector[index];
-            squareLength += value * value;
-        }
-        return squareLength;
-    }
-    
-    
-    /** evaluate the gradient (returned as array) at the specified point */
-    public double[] evaluate( final TrialPoint point ) {
-        final DifferentiableVariableValues pointMap = point.getPointMap();
-        final int dimension = getDimension();
-        final double[] vector = new double[ dimension ];
-        for ( int index = 0 ; index < dimension ; index++ ) {
-            vector[index] = OPERATION_VECTOR[index].evaluate( pointMap );
-        }
-        
-        return vector;
-    }
-    
-    
-    /** Get a string representation of this gradient operation */
-    public String toString() {
-        return ArrayTool.asString( OPERATION_VECTOR );
-    }
-}
-
-
-
-/** represents and calculates the hessian matrix */
-class Hessian {
-    /** array of variables corresponding to the gradient components */
-    final private List<BoundedDifferentiableVariable> VARIABLES;
-    
-    /** matrix of hessian component operations */
-    final private DifferentiableOperation[][] OPERATION_MATRIX;
-    
-    
-    /** construct the hessian matrix from the gradient */
-    public Hessian( final Gradient gradient ) {
-        VARIABLES = gradient.getVariables();
-        final DifferentiableOperation[] gradientVector = gradient.getOperationVector();
-        final int dimension = getDimension();
-        OPERATION_MATRIX = new DifferentiableOperation[ dimension ][ dimension ];
-        for ( int row = 0 ; row < dimension ; row++ ) {
-            final BoundedDifferentiableVariable variable = VARIABLES.get( row );
-            OPERATION_MATRIX[row][row] = gradientVector[row].getDerivative( variable );
-            for ( int column = 0 ; column < row ; column++ ) {
-                OPERATION_MATRIX[column][row] = gradientVector[column].getDerivative( variable );
-                OPERATION_MATRIX[row][column] = OPERATION_MATRIX[column][row];
-            }
-        }
-    }
-    
-    
-    /** get the matrix dimension */
-    public int getDimension() {
-        return VARIABLES.size();
-    }
-    
-    
-    /** get the curvature along the gradient: gradient * Hessian * gradient */
-    static public double getCurvature( final double[] grad, final double[][] matrix ) {
-        double curvature = 0.0;
-        final int dimension = grad.length;
-        for ( int column = 0 ; column < dimension ; column++ ) {
-            curvature += matrix[column][column] * grad[column] * grad[column];  // contribution from the diagonal
-            // loop over the upper triangular region and use symmetry (contribution doubles)
-            for ( int row = 0 ; row < column ; row++ ) {
-                curvature += 2 * matrix[row][column] * grad[row] * grad[column];
-            }
-        }
-        
-        return curvature;
-    }
-    
-    
-    /** evaluate the hessian matrix at the point and return matrix as an array of arrays */
-    public double[][] evaluate( final TrialPoint point ) {
-        final DifferentiableVariableValues pointMap = point.getPointMap();
-        final int dimension = getDimension();
-        final double[][] matrix = new double[dimension][dimension];
-        for ( int row = 0 ; row < dimension ; row++ ) {
-            matrix[row][row] = OPERATION_MATRIX[row][row].evaluate( pointMap );
-            for ( int column = 0 ; column < row ; column++ ) {
-                matrix[row][column] = OPERATION_MATRIX[row][column].evaluate( pointMap );
-                matrix[column][row] = matrix[row][column];
-            }
-        }
-        
-        return matrix;
-    }
-}
-
-
-
 /** Trial representing the evaluated point and the corresponding penalty */
 class Trial {
     /** trial point keyed by variable */
@@ -0,0 +1,543 @@
+//
+// DifferentiableOperationTape.java
+// xal
+//
+
+package xal.tools.math.differential;
+
+import java.util.*;
+
+
+/**
+ * Differentiable operation compiled into a linear tape of instructions over a register file. Each instruction writes one register from
+ * previously written registers, so evaluating the operation is a single pass over the tape without map lookups or tree recursion.
+ * Equivalent subexpressions share a register and subexpressions free of variables are folded into constants when compiling.
+ * The gradient with respect to all variables is accumulated in one reverse pass over the tape and the second derivative along
+ * a direction is propagated in one forward pass, so each costs a small constant multiple of a single evaluation.
+ * A tape is immutable and may be evaluated concurrently from several threads.
+ */
+public class DifferentiableOperationTape {
+    /** load a constant */
+    final static int CONSTANT = 0;
+
+    /** load a variable value */
+    final static int VARIABLE = 1;
+
+    /** add two registers */
+    final static int ADD = 2;
+
+    /** subtract two registers */
+    final static int SUBTRACT = 3;
+
+    /** multiply two registers */
+    final static int MULTIPLY = 4;
+
+    /** divide two registers */
+    final static int DIVIDE = 5;
+
+    /** raise a register to the power of another register */
+    final static int POWER = 6;
+
+    /** raise a register to a constant power */
+    final static int CONSTANT_POWER = 7;
+
+    /** negate a register */
+    final static int NEGATE = 8;
+
+    /** absolute value of a register */
+    final static int ABS = 9;
+
+    /** square root of a register */
+    final static int SQRT = 10;
+
+    /** exponential of a register */
+    final static int EXP = 11;
+
+    /** natural logarithm of a register */
+    final static int LOG = 12;
+
+    /** sine of a register */
+    final static int SIN = 13;
+
+    /** cosine of a register */
+    final static int COS = 14;
+
+    /** tangent of a register */
+    final static int TAN = 15;
+
+    /** arc sine of a register */
+    final static int ASIN = 16;
+
+    /** arc cosine of a register */
+    final static int ACOS = 17;
+
+    /** arc tangent of a register */
+    final static int ATAN = 18;
+
+    /** hyperbolic sine of a register */
+    final static int SINH = 19;
+
+    /** hyperbolic cosine of a register */
+    final static int COSH = 20;
+
+    /** hyperbolic tangent of a register */
+    final static int TANH = 21;
+
+    /** instruction labels indexed by opcode */
+    final static private String[] OPCODE_LABELS = { "const", "var", "add", "sub", "mul", "div", "pow", "powc", "neg", "abs", "sqrt", "exp", "ln", "sin", "cos", "tan", "asin", "acos", "atan", "sinh", "cosh", "tanh" };
+
+    /** variables in the order of the value and gradient arrays */
+    final private DifferentiableVariable[] VARIABLES;
+
+    /** opcode of each instruction */
+    final private int[] OPCODES;
+
+    /** register (or variable index for a variable instruction) of each instruction's first operand */
+    final private int[] FIRST_OPERANDS;
+
+    /** register of each instruction's second operand */
+    final private int[] SECOND_OPERANDS;
+
+    /** constant value or constant power of each instruction */
+    final private double[] PARAMETERS;
+
+    /** register holding the result of the operation */
+    final private int OUTPUT;
+
+    /** register files for each evaluating thread */
+    final private ThreadLocal<TapeRegisters> REGISTERS;
+
+
+    /** Constructor */
+    DifferentiableOperationTape( final List<DifferentiableVariable> variables, final int[] opcodes, final int[] firstOperands, final int[] secondOperands, final double[] parameters, final int output ) {
+        VARIABLES = variables.toArray( new DifferentiableVariable[variables.size()] );
+        OPCODES = opcodes;
+        FIRST_OPERANDS = firstOperands;
+        SECOND_OPERANDS = secondOperands;
+        PARAMETERS = parameters;
+        OUTPUT = output;
+
+        final int registerCount = output + 1;
+        REGISTERS = new ThreadLocal<TapeRegisters>() {
+            protected TapeRegisters initialValue() {
+                return new TapeRegisters( registerCount );
+            }
+        };
+    }
+
+
+    /**
+     * Compile the operation into a tape.
+     * @param operation the operation to compile
+     * @param variables variables which come first (in order) in the value and gradient arrays; any other variables in the operation follow in the order encountered
+     * @return the compiled tape
+     */
+    static public DifferentiableOperationTape compile( final DifferentiableOperation operation, final List<? extends DifferentiableVariable> variables ) {
+        final TapeCompiler compiler = new TapeCompiler( variables );
+        final int output = compiler.register( operation );
+        return compiler.getTape( output );
+    }
+
+
+    /**
+     * Compile the operation into a tape.
+     * @param operation the operation to compile
+     * @param variables variables which come first (in order) in the value and gradient arrays; any other variables in the operation follow in the order encountered
+     * @return the compiled tape
+     */
+    static public DifferentiableOperationTape compile( final DifferentiableOperation operation, final DifferentiableVariable ... variables ) {
+        return compile( operation, Arrays.asList( variables ) );
+    }
+
+
+    /** Get the variables in the order of the value and gradient arrays */
+    public List<DifferentiableVariable> getVariables() {
+        return Collections.unmodifiableList( Arrays.asList( VARIABLES ) );
+    }
+
+
+    /** Get the number of variables which is the length of the value and gradient arrays */
+    public int getVariableCount() {
+        return VARIABLES.length;
+    }
+
+
+    /** Get the number of instructions evaluated per pass */
+    public int getInstructionCount() {
+        return OUTPUT + 1;
+    }
+
+
+    /** Get a new array of the variables' default values */
+    public double[] getDefaultValues() {
+        return getValues( null );
+    }
+
+
+    /**
+     * Get a new array of the variable values from the value map.
+     * @param valueMap variable values or null to use the default values
+     * @return the variable values in tape order using the default value of any variable not assigned in the map
+     */
+    public double[] getValues( final DifferentiableVariableValues valueMap ) {
+        final double[] values = new double[VARIABLES.length];
+        for ( int index = 0 ; index < values.length ; index++ ) {
+            final DifferentiableVariable variable = VARIABLES[index];
+            values[index] = valueMap != null ? valueMap.getValue( variable ) : variable.getDefaultValue();
+        }
+        return values;
+    }
+
+
+    /** Evaluate the operation for the specified variable values using the default value if this variable is not specified in the map */
+    public double evaluate( final DifferentiableVariableValues valueMap ) {
+        return evaluate( getValues( valueMap ) );
+    }
+
+
+    /**
+     * Evaluate the operation.
+     * @param values variable values in tape order
+     * @return the value of the operation
+     */
+    public double evaluate( final double[] values ) {
+        final double[] registers = REGISTERS.get().VALUES;
+        forward( values, registers );
+        return registers[OUTPUT];
+    }
+
+
+    /**
+     * Evaluate the operation and its gradient.
+     * @param values variable values in tape order
+     * @param gradient array (at least as long as the variable count) to which the partial derivative with respect to each variable is written
+     * @return the value of the operation
+     */
+    public double evaluateGradient( final double[] values, final double[] gradient ) {
+        final TapeRegisters tapeRegisters = REGISTERS.get();
+        final double[] registers = tapeRegisters.VALUES;
+        final double[] adjoints = tapeRegisters.ADJOINTS;
+        forward( values, registers );
+
+        Arrays.fill( gradient, 0, VARIABLES.length, 0.0 );
+        Arrays.fill( adjoints, 0.0 );
+        adjoints[OUTPUT] = 1.0;
+
+        // accumulate the adjoints in reverse order so each instruction's adjoint is complete before it is propagated to its operands
+        for ( int index = OUTPUT ; index >= 0 ; index-- ) {
+            final double adjoint = adjoints[index];
+            if ( adjoint == 0.0 )  continue;
+
+            final int first = FIRST_OPERANDS[index];
+            final int second = SECOND_OPERANDS[index];
+            final double value = registers[index];
+            switch ( OPCODES[index] ) {
+                case CONSTANT:
+                    break;
+                case VARIABLE:
+                    gradient[first] += adjoint;
+                    break;
+                case ADD:
+                    adjoints[first] += adjoint;
+                    adjoints[second] += adjoint;
+                    break;
+                case SUBTRACT:
+                    adjoints[first] += adjoint;
+                    adjoints[second] -= adjoint;
+                    break;
+                case MULTIPLY:
+                    adjoints[first] += adjoint * registers[second];
+                    adjoints[second] += adjoint * registers[first];
+                    break;
+                case DIVIDE:
+                    adjoints[first] += adjoint / registers[second];
+                    adjoints[second] -= adjoint * value / registers[second];
+                    break;
+                case POWER:
+                    adjoints[first] += adjoint * registers[second] * Math.pow( registers[first], registers[second] - 1.0 );
+                    adjoints[second] += adjoint * value * Math.log( registers[first] );
+                    break;
+                default:
+                    adjoints[first] += adjoint * unaryFirstDerivative( OPCODES[index], registers[first], value, PARAMETERS[index] );
+                    break;
+            }
+        }
+
+        return registers[OUTPUT];
+    }
+
+
+    /**
+     * Evaluate the second derivative of the operation along a direction in variable space: d^2/dt^2 f( values + t * direction ) at t = 0.
+     * For a direction given by the gradient this is the curvature g * H * g without forming the Hessian.
+     * @param values variable values in tape order
+     * @param direction direction in tape order
+     * @return the second derivative along the direction
+     */
+    public double evaluateCurvature( final double[] values, final double[] direction ) {
+        final TapeRegisters tapeRegisters = REGISTERS.get();
+        final double[] registers = tapeRegisters.VALUES;
+        final double[] slopes = tapeRegisters.ADJOINTS;
+        final double[] curvatures = tapeRegisters.CURVATURES;
+        forward( values, registers );
+
+        // propagate the first and second derivatives along the direction forward with the chain rule
+        for ( int index = 0 ; index <= OUTPUT ; index++ ) {
+            final int first = FIRST_OPERANDS[index];
+            final int second = SECOND_OPERANDS[index];
+            final double value = registers[index];
+            switch ( OPCODES[index] ) {
+                case CONSTANT:
+                    slopes[index] = 0.0;
+                    curvatures[index] = 0.0;
+                    break;
+                case VARIABLE:
+                    slopes[index] = direction[first];
+                    curvatures[index] = 0.0;
+                    break;
+                case ADD:
+                    slopes[index] = slopes[first] + slopes[second];
+                    curvatures[index] = curvatures[first] + curvatures[second];
+                    break;
+                case SUBTRACT:
+                    slopes[index] = slopes[first] - slopes[second];
+                    curvatures[index] = curvatures[first] - curvatures[second];
+                    break;
+                case MULTIPLY:
+                    slopes[index] = slopes[first] * registers[second] + registers[first] * slopes[second];
+                    curvatures[index] = curvatures[first] * registers[second] + 2.0 * slopes[first] * slopes[second] + registers[first] * curvatures[second];
+                    break;
+                case DIVIDE: {
+                    final double divisor = registers[second];
+                    final double slope = ( slopes[first] - value * slopes[second] ) / divisor;
+                    slopes[index] = slope;
+                    curvatures[index] = ( curvatures[first] - 2.0 * slope * slopes[second] - value * curvatures[second] ) / divisor;
+                    break;
+                }
+                case POWER: {
+                    final double base = registers[first];
+                    final double exponent = registers[second];
+                    if ( slopes[second] == 0.0 && curvatures[second] == 0.0 ) {
+                        // the exponent is constant along the direction, so avoid ln(a) which is NaN for a negative base (e.g. with an integer exponent)
+                        final double derivative = exponent * Math.pow( base, exponent - 1.0 );
+                        final double secondDerivative = exponent * ( exponent - 1.0 ) * Math.pow( base, exponent - 2.0 );
+                        slopes[index] = derivative * slopes[first];
+                        curvatures[index] = secondDerivative * slopes[first] * slopes[first] + derivative * curvatures[first];
+                        break;
+                    }
+
+                    // a^b = exp( b ln(a) )
+                    final double logBase = Math.log( base );
+                    final double logSlope = slopes[first] / base;
+                    final double logCurvature = ( curvatures[first] - slopes[first] * logSlope ) / base;
+                    final double exponentSlope = slopes[second] * logBase + exponent * logSlope;
+                    final double exponentCurvature = curvatures[second] * logBase + 2.0 * slopes[second] * logSlope + exponent * logCurvature;
+                    slopes[index] = value * exponentSlope;
+                    curvatures[index] = value * ( exponentCurvature + exponentSlope * exponentSlope );
+                    break;
+                }
+                default: {
+                    final double argument = registers[first];
+                    final double argumentSlope = slopes[first];
+                    final double derivative = unaryFirstDerivative( OPCODES[index], argument, value, PARAMETERS[index] );
+                    final double secondDerivative = unarySecondDerivative( OPCODES[index], argument, value, PARAMETERS[index] );
+                    slopes[index] = derivative * argumentSlope;
+                    curvatures[index] = secondDerivative * argumentSlope * argumentSlope + derivative * curvatures[first];
+                    break;
+                }
+            }
+        }
+
+        return curvatures[OUTPUT];
+    }
+
+
+    /** evaluate each instruction in order writing the registers */
+    private void forward( final double[] values, final double[] registers ) {
+        for ( int index = 0 ; index <= OUTPUT ; index++ ) {
+            final int opcode = OPCODES[index];
+            switch ( opcode ) {
+                case CONSTANT:
+                    registers[index] = PARAMETERS[index];
+                    break;
+                case VARIABLE:
+                    registers[index] = values[FIRST_OPERANDS[index]];
+                    break;
+                case ADD:
+                    registers[index] = registers[FIRST_OPERANDS[index]] + registers[SECOND_OPERANDS[index]];
+                    break;
+                case SUBTRACT:
+                    registers[index] = registers[FIRST_OPERANDS[index]] - registers[SECOND_OPERANDS[index]];
+                    break;
+                case MULTIPLY:
+                    registers[index] = registers[FIRST_OPERANDS[index]] * registers[SECOND_OPERANDS[index]];
+                    break;
+                case DIVIDE:
+                    registers[index] = registers[FIRST_OPERANDS[index]] / registers[SECOND_OPERANDS[index]];
+                    break;
+                default:
+                    registers[index] = apply( opcode, registers[FIRST_OPERANDS[index]], registers[SECOND_OPERANDS[index]], PARAMETERS[index] );
+                    break;
+            }
+        }
+    }
+
+
+    /** apply the operation for the opcode to the operand values */
+    static double apply( final int opcode, final double first, final double second, final double parameter ) {
+        switch ( opcode ) {
+            case CONSTANT:
+                return parameter;
+            case ADD:
+                return first + second;
+            case SUBTRACT:
+                return first - second;
+            case MULTIPLY:
+                return first * second;
+            case DIVIDE:
+                return first / second;
+            case POWER:
+                return Math.pow( first, second );
+            case CONSTANT_POWER:
+                return Math.pow( first, parameter );
+            case NEGATE:
+                return - first;
+            case ABS:
+                return Math.abs( first );
+            case SQRT:
+                return Math.sqrt( first );
+            case EXP:
+                return Math.exp( first );
+            case LOG:
+                return Math.log( first );
+            case SIN:
+                return Math.sin( first );
+            case COS:
+                return Math.cos( first );
+            case TAN:
+                return Math.tan( first );
+            case ASIN:
+                return Math.asin( first );
+            case ACOS:
+                return Math.acos( first );
+            case ATAN:
+                return Math.atan( first );
+            case SINH:
+                return Math.sinh( first );
+            case COSH:
+                return Math.cosh( first );
+            case TANH:
+                return Math.tanh( first );
+            default:
+                throw new IllegalArgumentException( "Unsupported opcode: " + opcode );
+        }
+    }
+
+
+    /** derivative of a unary operation with respect to its argument given the argument and the operation value */
+    static private double unaryFirstDerivative( final int opcode, final double argument, final double value, final double power ) {
+        switch ( opcode ) {
+            case CONSTANT_POWER:
+                return power * Math.pow( argument, power - 1.0 );
+            case NEGATE:
+                return -1.0;
+            case ABS:
+                return argument / value;
+            case SQRT:
+                return 0.5 / value;
+            case EXP:
+                return value;
+            case LOG:
+                return 1.0 / argument;
+            case SIN:
+                return Math.cos( argument );
+            case COS:
+                return - Math.sin( argument );
+            case TAN:
+                return 1.0 + value * value;
+            case ASIN:
+                return 1.0 / Math.sqrt( 1.0 - argument * argument );
+            case ACOS:
+                return -1.0 / Math.sqrt( 1.0 - argument * argument );
+            case ATAN:
+                return 1.0 / ( 1.0 + argument * argument );
+            case SINH:
+                return Math.cosh( argument );
+            case COSH:
+                return Math.sinh( argument );
+            case TANH:
+                return 1.0 - value * value;
+            default:
+                throw new IllegalArgumentException( "Unsupported unary opcode: " + opcode );
+        }
+    }
+
+
+    /** second derivative of a unary operation with respect to its argument given the argument and the operation value */
+    static private double unarySecondDerivative( final int opcode, final double argument, final double value, final double power ) {
+        switch ( opcode ) {
+            case CONSTANT_POWER:
+                return power * ( power - 1.0 ) * Math.pow( argument, power - 2.0 );
+            case NEGATE:
+            case ABS:
+                return 0.0;
+            case SQRT:
+                return -0.25 / ( value * value * value );
+            case EXP:
+                return value;
+            case LOG:
+                return -1.0 / ( argument * argument );
+            case SIN:
+                return - value;
+            case COS:
+                return - value;
+            case TAN:
+                return 2.0 * value * ( 1.0 + value * value );
+            case ASIN:
+                return argument * Math.pow( 1.0 - argument * argument, -1.5 );
+            case ACOS:
+                return - argument * Math.pow( 1.0 - argument * argument, -1.5 );
+            case ATAN: {
+                final double denominator = 1.0 + argument * argument;
+                return -2.0 * argument / ( denominator * denominator );
+            }
+            case SINH:
+                return value;
+            case COSH:
+                return value;
+            case TANH:
+                return -2.0 * value * ( 1.0 - value * value );
+            default:
+                throw new IllegalArgumentException( "Unsupported unary opcode: " + opcode );
+        }
+    }
+
+
+    /** Get a listing of the instructions */
+    public String toString() {
+        final StringBuilder buffer = new StringBuilder();
+        for ( int index = 0 ; index <= OUTPUT ; index++ ) {
+            final int opcode = OPCODES[index];
+            buffer.append( "r" ).append( index ).append( " = " ).append( OPCODE_LABELS[opcode] ).append( " " );
+            switch ( opcode ) {
+                case CONSTANT:
+                    buffer.append( PARAMETERS[index] );
+                    break;
+                case VARIABLE:
+                    buffer.append( VARIABLES[FIRST_OPERANDS[index]] );
+                    break;
+                case ADD: case SUBTRACT: case MULTIPLY: case DIVIDE: case POWER:
+                    buffer.append( "r" ).append( FIRST_OPERANDS[index] ).append( ", r" ).append( SECOND_OPERANDS[index] );
+                    break;
+                case CONSTANT_POWER:
+                    buffer.append( "r" ).append( FIRST_OPERANDS[index] ).append( ", " ).append( PARAMETERS[index] );
+                    break;
+                default:
+                    buffer.append( "r" ).append( FIRST_OPERANDS[index] );
+                    break;
+            }
+            buffer.append( "\n" );
+        }
+        return buffer.toString();
+    }
+}
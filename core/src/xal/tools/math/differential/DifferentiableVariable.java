@@ -72,6 +72,12 @@ public class DifferentiableVariable extends DifferentiableSymbol {
     }
     
     
+    /** Append the instructions for this operation to the compiler's tape returning the register of the result */
+    protected int compileInstructions( final TapeCompiler compiler ) {
+        return compiler.variable( this );
+    }
+    
+    
     /** Get the derivative with respect to the coordinate at the specified index */
     final public DifferentiableOperation getDerivative( final DifferentiableVariable variable ) {
         return variable == this ? DifferentiableOperation.getConstant( 1.0 ) : DifferentiableOperation.getConstant( 0.0 );
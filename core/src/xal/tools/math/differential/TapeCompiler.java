@@ -0,0 +1,189 @@
+//
+// TapeCompiler.java
+// xal
+//
+
+package xal.tools.math.differential;
+
+import java.util.*;
+
+
+/** Compiles an operation tree into tape instructions eliminating common subexpressions and folding constants */
+public class TapeCompiler {
+    /** variables in tape order */
+    final private List<DifferentiableVariable> VARIABLES;
+
+    /** index of each variable keyed by variable */
+    final private Map<DifferentiableVariable,Integer> VARIABLE_INDICES;
+
+    /** register of each compiled operation keyed by operation instance */
+    final private Map<DifferentiableOperation,Integer> OPERATION_REGISTERS;
+
+    /** register of each instruction keyed by the instruction so equivalent subexpressions share a register */
+    final private Map<Instruction,Integer> INSTRUCTION_REGISTERS;
+
+    /** instructions in tape order */
+    final private List<Instruction> INSTRUCTIONS;
+
+
+    /** Constructor */
+    TapeCompiler( final List<? extends DifferentiableVariable> variables ) {
+        VARIABLES = new ArrayList<DifferentiableVariable>();
+        VARIABLE_INDICES = new HashMap<DifferentiableVariable,Integer>();
+        OPERATION_REGISTERS = new IdentityHashMap<DifferentiableOperation,Integer>();
+        INSTRUCTION_REGISTERS = new HashMap<Instruction,Integer>();
+        INSTRUCTIONS = new ArrayList<Instruction>();
+
+        for ( final DifferentiableVariable variable : variables ) {
+            if ( !VARIABLE_INDICES.containsKey( variable ) ) {
+                VARIABLE_INDICES.put( variable, VARIABLES.size() );
+                VARIABLES.add( variable );
+            }
+        }
+    }
+
+
+    /** Get the register holding the value of the operation compiling it if necessary */
+    public int register( final DifferentiableOperation operation ) {
+        final Integer cachedRegister = OPERATION_REGISTERS.get( operation );
+        if ( cachedRegister != null ) {
+            return cachedRegister.intValue();
+        }
+        else {
+            final int register = operation.compileInstructions( this );
+            OPERATION_REGISTERS.put( operation, register );
+            return register;
+        }
+    }
+
+
+    /** append a constant */
+    int constant( final double value ) {
+        return append( new Instruction( DifferentiableOperationTape.CONSTANT, 0, 0, value ) );
+    }
+
+
+    /** append a variable */
+    int variable( final DifferentiableVariable variable ) {
+        Integer index = VARIABLE_INDICES.get( variable );
+        if ( index == null ) {
+            index = VARIABLES.size();
+            VARIABLE_INDICES.put( variable, index );
+            VARIABLES.add( variable );
+        }
+        return append( new Instruction( DifferentiableOperationTape.VARIABLE, index, 0, 0.0 ) );
+    }
+
+
+    /** append a unary operation on the argument */
+    int unary( final int opcode, final DifferentiableOperation argument ) {
+        return unary( opcode, argument, 0.0 );
+    }
+
+
+    /** append a unary operation on the argument with a constant parameter */
+    int unary( final int opcode, final DifferentiableOperation argument, final double parameter ) {
+        final int argumentRegister = register( argument );
+        final Instruction argumentInstruction = INSTRUCTIONS.get( argumentRegister );
+        if ( argumentInstruction.OPCODE == DifferentiableOperationTape.CONSTANT ) {
+            return constant( DifferentiableOperationTape.apply( opcode, argumentInstruction.PARAMETER, 0.0, parameter ) );
+        }
+        else {
+            return append( new Instruction( opcode, argumentRegister, 0, parameter ) );
+        }
+    }
+
+
+    /** append a binary operation on the operands */
+    int binary( final int opcode, final DifferentiableOperation firstOperand, final DifferentiableOperation secondOperand ) {
+        int firstRegister = register( firstOperand );
+        int secondRegister = register( secondOperand );
+        final Instruction firstInstruction = INSTRUCTIONS.get( firstRegister );
+        final Instruction secondInstruction = INSTRUCTIONS.get( secondRegister );
+        if ( firstInstruction.OPCODE == DifferentiableOperationTape.CONSTANT && secondInstruction.OPCODE == DifferentiableOperationTape.CONSTANT ) {
+            return constant( DifferentiableOperationTape.apply( opcode, firstInstruction.PARAMETER, secondInstruction.PARAMETER, 0.0 ) );
+        }
+
+        // order the operands of commutative operations so equivalent subexpressions match
+        if ( ( opcode == DifferentiableOperationTape.ADD || opcode == DifferentiableOperationTape.MULTIPLY ) && firstRegister > secondRegister ) {
+            final int register = firstRegister;
+            firstRegister = secondRegister;
+            secondRegister = register;
+        }
+        return append( new Instruction( opcode, firstRegister, secondRegister, 0.0 ) );
+    }
+
+
+    /** append the instruction unless an equivalent instruction exists and return the register holding its value */
+    private int append( final Instruction instruction ) {
+        final Integer existingRegister = INSTRUCTION_REGISTERS.get( instruction );
+        if ( existingRegister != null ) {
+            return existingRegister.intValue();
+        }
+        else {
+            final int register = INSTRUCTIONS.size();
+            INSTRUCTIONS.add( instruction );
+            INSTRUCTION_REGISTERS.put( instruction, register );
+            return register;
+        }
+    }
+
+
+    /** generate the tape whose result is in the specified register */
+    DifferentiableOperationTape getTape( final int output ) {
+        final int count = INSTRUCTIONS.size();
+        final int[] opcodes = new int[count];
+        final int[] firstOperands = new int[count];
+        final int[] secondOperands = new int[count];
+        final double[] parameters = new double[count];
+        for ( int index = 0 ; index < count ; index++ ) {
+            final Instruction instruction = INSTRUCTIONS.get( index );
+            opcodes[index] = instruction.OPCODE;
+            firstOperands[index] = instruction.FIRST_OPERAND;
+            secondOperands[index] = instruction.SECOND_OPERAND;
+            parameters[index] = instruction.PARAMETER;
+        }
+        return new DifferentiableOperationTape( VARIABLES, opcodes, firstOperands, secondOperands, parameters, output );
+    }
+
+
+
+    /** tape instruction used as a key to find equivalent instructions */
+    static private class Instruction {
+        /** opcode */
+        final private int OPCODE;
+
+        /** first operand register or variable index */
+        final private int FIRST_OPERAND;
+
+        /** second operand register */
+        final private int SECOND_OPERAND;
+
+        /** constant value or constant power */
+        final private double PARAMETER;
+
+
+        /** Constructor */
+        private Instruction( final int opcode, final int firstOperand, final int secondOperand, final double parameter ) {
+            OPCODE = opcode;
+            FIRST_OPERAND = firstOperand;
+            SECOND_OPERAND = secondOperand;
+            PARAMETER = parameter;
+        }
+
+
+        /** instructions are equal if they perform the same operation on the same operands */
+        public boolean equals( final Object object ) {
+            if ( !( object instanceof Instruction ) )  return false;
+            final Instruction instruction = (Instruction)object;
+            return OPCODE == instruction.OPCODE && FIRST_OPERAND == instruction.FIRST_OPERAND && SECOND_OPERAND == instruction.SECOND_OPERAND && Double.doubleToLongBits( PARAMETER ) == Double.doubleToLongBits( instruction.PARAMETER );
+        }
+
+
+        /** hash code consistent with equals */
+        public int hashCode() {
+            final long parameterBits = Double.doubleToLongBits( PARAMETER );
+            return ( ( OPCODE * 31 + FIRST_OPERAND ) * 31 + SECOND_OPERAND ) * 31 + (int)( parameterBits ^ ( parameterBits >>> 32 ) );
+        }
+    }
+}
@@ -0,0 +1,27 @@
+//
+// TapeRegisters.java
+// xal
+//
+
+package xal.tools.math.differential;
+
+
+/** registers written by one thread evaluating a tape */
+class TapeRegisters {
+    /** instruction values */
+    final double[] VALUES;
+
+    /** reverse adjoints or forward directional slopes */
+    final double[] ADJOINTS;
+
+    /** forward directional second derivatives */
+    final double[] CURVATURES;
+
+
+    /** Constructor */
+    TapeRegisters( final int count ) {
+        VALUES = new double[count];
+        ADJOINTS = new double[count];
+        CURVATURES = new double[count];
+    }
+}
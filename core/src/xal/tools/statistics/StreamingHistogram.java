@@ -0,0 +1,475 @@
+//
+// StreamingHistogram.java
+// xal
+//
+
+package xal.tools.statistics;
+
+import java.util.Arrays;
+
+
+/**
+ * StreamingHistogram maintains a histogram over a sliding window of the most recent samples. The samples are kept in a primitive
+ * ring buffer and each insertion and eviction updates a fine internal histogram in constant time. The internal bins have a width which is
+ * a power of two so the bins can be merged exactly when a sample falls outside of the present range and the histogram is rebuilt at a finer
+ * width only after the window's range has shrunk substantially. Display histograms and quantiles are derived from the internal bins in time
+ * proportional to the internal resolution independent of the window size. This class is not thread safe.
+ */
+public class StreamingHistogram {
+	/** default number of internal bins */
+	final static public int DEFAULT_RESOLUTION = 4096;
+
+	/** finest internal bin width relative to the magnitude of the samples expressed as a power of two */
+	final static private int RELATIVE_PRECISION_BITS = 40;
+
+	/** smallest allowed bin width exponent so the inverse width remains finite */
+	final static private int MINIMUM_EXPONENT = -1000;
+
+	/** largest magnitude of a bin key relative to the bin width expressed as a power of two so keys fit in a long */
+	final static private int KEY_LIMIT_BITS = 60;
+
+	/** number of internal bins which must be even */
+	final private int RESOLUTION;
+
+	/** ring buffer of samples indexed by sequence modulo the capacity */
+	private double[] _samples;
+
+	/** ring positions of the samples forming the monotonically increasing queue of window minimum candidates */
+	private int[] _minimumQueue;
+
+	/** ring positions of the samples forming the monotonically decreasing queue of window maximum candidates */
+	private int[] _maximumQueue;
+
+	/** index of the head of the minimum queue */
+	private int _minimumHead;
+
+	/** number of entries in the minimum queue */
+	private int _minimumCount;
+
+	/** index of the head of the maximum queue */
+	private int _maximumHead;
+
+	/** number of entries in the maximum queue */
+	private int _maximumCount;
+
+	/** counts of the internal bins */
+	final private int[] COUNTS;
+
+	/** key of the first internal bin where a sample's key is the floor of the sample divided by the bin width */
+	private long _baseKey;
+
+	/** exponent of the internal bin width which is two raised to this power */
+	private int _exponent;
+
+	/** internal bin width */
+	private double _binWidth;
+
+	/** inverse of the internal bin width */
+	private double _inverseBinWidth;
+
+	/** maximum number of samples in the window */
+	private int _capacity;
+
+	/** number of samples in the window */
+	private int _size;
+
+	/** sequence which will be assigned to the next sample */
+	private long _sequence;
+
+
+	/**
+	 * Primary constructor
+	 * @param capacity maximum number of samples in the window
+	 * @param resolution number of internal bins (rounded up to an even number of at least 16)
+	 */
+	public StreamingHistogram( final int capacity, final int resolution ) {
+		if ( capacity < 1 )  throw new IllegalArgumentException( "The capacity must be positive but is " + capacity );
+
+		RESOLUTION = Math.max( 16, resolution + ( resolution & 1 ) );
+		COUNTS = new int[RESOLUTION];
+		setExponent( 0 );
+		_baseKey = 0;
+		allocate( capacity );
+	}
+
+
+	/**
+	 * Constructor with the default resolution
+	 * @param capacity maximum number of samples in the window
+	 */
+	public StreamingHistogram( final int capacity ) {
+		this( capacity, DEFAULT_RESOLUTION );
+	}
+
+
+	/** allocate the buffers for the specified capacity */
+	private void allocate( final int capacity ) {
+		_capacity = capacity;
+		_samples = new double[capacity];
+		_minimumQueue = new int[capacity];
+		_maximumQueue = new int[capacity];
+		_minimumHead = 0;
+		_minimumCount = 0;
+		_maximumHead = 0;
+		_maximumCount = 0;
+		_size = 0;
+		_sequence = 0;
+	}
+
+
+	/** Get the maximum number of samples in the window */
+	public int getCapacity() {
+		return _capacity;
+	}
+
+
+	/**
+	 * Set the maximum number of samples in the window keeping the most recent samples which fit
+	 * @param capacity the new capacity
+	 */
+	public void setCapacity( final int capacity ) {
+		if ( capacity < 1 )  throw new IllegalArgumentException( "The capacity must be positive but is " + capacity );
+		if ( capacity == _capacity )  return;
+
+		final int keepCount = Math.min( _size, capacity );
+		final double[] keptSamples = new double[keepCount];
+		for ( int index = 0 ; index < keepCount ; index++ ) {
+			keptSamples[index] = getSample( _size - keepCount + index );
+		}
+
+		allocate( capacity );
+		for ( final double sample : keptSamples ) {
+			pushSample( sample );
+		}
+		rebuild();
+	}
+
+
+	/** Get the number of samples in the window */
+	public int getSize() {
+		return _size;
+	}
+
+
+	/** Get the number of internal bins */
+	public int getResolution() {
+		return RESOLUTION;
+	}
+
+
+	/**
+	 * Get a sample in the window
+	 * @param index index of the sample where zero is the oldest sample
+	 * @return the sample
+	 */
+	public double getSample( final int index ) {
+		if ( index < 0 || index >= _size )  throw new IndexOutOfBoundsException( "Sample index " + index + " is out of bounds for window size " + _size );
+		return sampleAt( _sequence - _size + index );
+	}
+
+
+	/** Get the smallest sample in the window or NaN if the window is empty */
+	public double getMinimum() {
+		return _size > 0 ? _samples[ _minimumQueue[_minimumHead] ] : Double.NaN;
+	}
+
+
+	/** Get the largest sample in the window or NaN if the window is empty */
+	public double getMaximum() {
+		return _size > 0 ? _samples[ _maximumQueue[_maximumHead] ] : Double.NaN;
+	}
+
+
+	/** Remove all samples */
+	public void clear() {
+		_size = 0;
+		_minimumCount = 0;
+		_maximumCount = 0;
+		Arrays.fill( COUNTS, 0 );
+	}
+
+
+	/**
+	 * Add a sample evicting the oldest sample if the window is full.
+	 * @param value the sample to add which must be finite
+	 * @return the evicted sample or NaN if no sample was evicted
+	 */
+	public double addSample( final double value ) {
+		if ( Double.isNaN( value ) || Double.isInfinite( value ) )  throw new IllegalArgumentException( "Only finite samples can be histogrammed but got " + value );
+
+		final double evictedValue = _size == _capacity ? evictOldest() : Double.NaN;
+		pushSample( value );
+
+		if ( _size == 1 ) {
+			rebuild();
+		}
+		else {
+			if ( !isInRange( value ) )  fitRange();
+			++COUNTS[ (int)( keyOf( value ) - _baseKey ) ];
+			if ( !Double.isNaN( evictedValue ) && needsRefinement() )  rebuild();
+		}
+
+		return evictedValue;
+	}
+
+
+	/** remove the oldest sample from the window and its bin and return it */
+	private double evictOldest() {
+		final int position = (int)( ( _sequence - _size ) % _capacity );
+		final double value = _samples[position];
+		--COUNTS[ (int)( keyOf( value ) - _baseKey ) ];
+		--_size;
+
+		if ( _minimumCount > 0 && _minimumQueue[_minimumHead] == position ) {
+			_minimumHead = ( _minimumHead + 1 ) % _capacity;
+			--_minimumCount;
+		}
+		if ( _maximumCount > 0 && _maximumQueue[_maximumHead] == position ) {
+			_maximumHead = ( _maximumHead + 1 ) % _capacity;
+			--_maximumCount;
+		}
+
+		return value;
+	}
+
+
+	/** append the sample to the ring buffer and the extreme queues without binning it */
+	private void pushSample( final double value ) {
+		final int position = (int)( _sequence++ % _capacity );
+		_samples[position] = value;
+		++_size;
+
+		while ( _minimumCount > 0 && _samples[ _minimumQueue[ ( _minimumHead + _minimumCount - 1 ) % _capacity ] ] >= value ) {
+			--_minimumCount;
+		}
+		_minimumQueue[ ( _minimumHead + _minimumCount ) % _capacity ] = position;
+		++_minimumCount;
+
+		while ( _maximumCount > 0 && _samples[ _maximumQueue[ ( _maximumHead + _maximumCount - 1 ) % _capacity ] ] <= value ) {
+			--_maximumCount;
+		}
+		_maximumQueue[ ( _maximumHead + _maximumCount ) % _capacity ] = position;
+		++_maximumCount;
+	}
+
+
+	/** get the sample with the specified sequence which must be in the window */
+	private double sampleAt( final long sequence ) {
+		return _samples[ (int)( sequence % _capacity ) ];
+	}
+
+
+	/** set the exponent of the internal bin width */
+	private void setExponent( final int exponent ) {
+		_exponent = exponent;
+		_binWidth = Math.scalb( 1.0, exponent );
+		_inverseBinWidth = Math.scalb( 1.0, -exponent );
+	}
+
+
+	/** get the key of the bin containing the value which is exact since the bin width is a power of two */
+	private long keyOf( final double value ) {
+		return (long)Math.floor( value * _inverseBinWidth );
+	}
+
+
+	/** determine whether the value falls within the internal bins without overflowing the key */
+	private boolean isInRange( final double value ) {
+		if ( Math.abs( value ) * _inverseBinWidth >= Math.scalb( 1.0, KEY_LIMIT_BITS ) )  return false;
+		final long key = keyOf( value );
+		return key >= _baseKey && key < _baseKey + RESOLUTION;
+	}
+
+
+	/** get the smallest exponent which is not finer than the relative precision and keeps keys of values of the given magnitude bounded */
+	static private int getExponentFloor( final double magnitude, final int bits ) {
+		return Math.max( MINIMUM_EXPONENT, Math.getExponent( Math.max( magnitude, Double.MIN_NORMAL ) ) - bits );
+	}
+
+
+	/** get the number of bins spanned from the minimum to the maximum at the specified exponent */
+	static private long getKeySpan( final double minimum, final double maximum, final int exponent ) {
+		final double inverseWidth = Math.scalb( 1.0, -exponent );
+		return (long)Math.floor( maximum * inverseWidth ) - (long)Math.floor( minimum * inverseWidth ) + 1;
+	}
+
+
+	/** get the exponent of the finest bin width for which the window spans at most the specified number of bins */
+	static private int getFittingExponent( final double minimum, final double maximum, final int startExponent, final int binCount ) {
+		int exponent = startExponent;
+		while ( getKeySpan( minimum, maximum, exponent ) > binCount ) {
+			++exponent;
+		}
+		return exponent;
+	}
+
+
+	/** merge bins as needed and recenter so the window's range fits within the internal bins */
+	private void fitRange() {
+		final double minimum = getMinimum();
+		final double maximum = getMaximum();
+		final double magnitude = Math.max( Math.abs( minimum ), Math.abs( maximum ) );
+		final int exponent = getFittingExponent( minimum, maximum, Math.max( _exponent, getExponentFloor( magnitude, KEY_LIMIT_BITS ) ), RESOLUTION );
+		final int shift = Math.min( exponent - _exponent, 63 );
+
+		// keys of the existing bins are bounded so the arithmetic shift performs an exact floor division by the merge factor
+		final int[] oldCounts = COUNTS.clone();
+		final long oldBaseKey = _baseKey;
+		Arrays.fill( COUNTS, 0 );
+		setExponent( exponent );
+		centerOn( minimum, maximum );
+		for ( int bin = 0 ; bin < RESOLUTION ; bin++ ) {
+			final int count = oldCounts[bin];
+			if ( count != 0 ) {
+				COUNTS[ (int)( ( ( oldBaseKey + bin ) >> shift ) - _baseKey ) ] += count;
+			}
+		}
+	}
+
+
+	/** determine whether the window's range has shrunk enough that rebuilding would make the bins at least four times finer */
+	private boolean needsRefinement() {
+		final double minimum = getMinimum();
+		final double maximum = getMaximum();
+		if ( 4 * getKeySpan( minimum, maximum, _exponent ) > RESOLUTION )  return false;
+		final double magnitude = Math.max( Math.abs( minimum ), Math.abs( maximum ) );
+		return getExponentFloor( magnitude, RELATIVE_PRECISION_BITS ) <= _exponent - 2 && getFittingExponent( minimum, maximum, _exponent - 2, RESOLUTION / 2 ) <= _exponent - 2;
+	}
+
+
+	/** choose the finest bin width for which the window spans at most half of the internal bins and rebin every sample */
+	private void rebuild() {
+		Arrays.fill( COUNTS, 0 );
+		if ( _size == 0 )  return;
+
+		final double minimum = getMinimum();
+		final double maximum = getMaximum();
+		final double magnitude = Math.max( Math.abs( minimum ), Math.abs( maximum ) );
+		final double span = maximum - minimum;
+		int startExponent = getExponentFloor( magnitude, RELATIVE_PRECISION_BITS );
+		if ( span > 0.0 )  startExponent = Math.max( startExponent, Math.getExponent( span / RESOLUTION ) );
+		setExponent( getFittingExponent( minimum, maximum, startExponent, RESOLUTION / 2 ) );
+		centerOn( minimum, maximum );
+
+		for ( int index = 0 ; index < _size ; index++ ) {
+			++COUNTS[ (int)( keyOf( getSample( index ) ) - _baseKey ) ];
+		}
+	}
+
+
+	/** set the base key so the range from the minimum to the maximum is centered within the internal bins */
+	private void centerOn( final double minimum, final double maximum ) {
+		final long lowKey = keyOf( minimum );
+		final long keySpan = keyOf( maximum ) - lowKey + 1;
+		_baseKey = lowKey - ( RESOLUTION - keySpan ) / 2;
+	}
+
+
+	/**
+	 * Get the histogram of the window's samples for the specified range. Each internal bin is assigned to the display bin containing its
+	 * center (clamped to the range if the internal bin overlaps the range) so samples equal to the upper limit are counted in the last bin.
+	 * @param lowerLimit lower limit of the histogram range
+	 * @param upperLimit upper limit of the histogram range
+	 * @param counts array of counts to fill whose length is the number of display bins
+	 * @return the counts
+	 */
+	public int[] getCounts( final double lowerLimit, final double upperLimit, final int[] counts ) {
+		Arrays.fill( counts, 0 );
+		final int binCount = counts.length;
+		final double span = upperLimit - lowerLimit;
+		if ( _size == 0 || binCount == 0 || !( span > 0.0 ) )  return counts;
+
+		final int firstBin = (int)( keyOf( getMinimum() ) - _baseKey );
+		final int lastBin = (int)( keyOf( getMaximum() ) - _baseKey );
+
+		// internal bins overlapping the range and then the first internal bin whose center reaches each interior display boundary
+		int startBin = (int)Math.max( firstBin, Math.min( (double)lastBin + 1, Math.floor( lowerLimit * _inverseBinWidth - _baseKey ) ) );
+		final int endBin = (int)Math.min( lastBin + 1, Math.max( (double)firstBin, Math.floor( upperLimit * _inverseBinWidth - _baseKey ) + 1 ) );
+		final double displayWidth = span / binCount;
+		for ( int displayBin = 0 ; displayBin < binCount ; displayBin++ ) {
+			final int stopBin;
+			if ( displayBin < binCount - 1 ) {
+				final double boundary = lowerLimit + ( displayBin + 1 ) * displayWidth;
+				stopBin = (int)Math.max( startBin, Math.min( (double)endBin, Math.ceil( boundary * _inverseBinWidth - _baseKey - 0.5 ) ) );
+			}
+			else {
+				stopBin = Math.max( startBin, endBin );
+			}
+
+			int count = 0;
+			for ( int bin = startBin ; bin < stopBin ; bin++ ) {
+				count += COUNTS[bin];
+			}
+			counts[displayBin] = count;
+			startBin = stopBin;
+		}
+
+		return counts;
+	}
+
+
+	/**
+	 * Estimate a quantile of the window's samples by interpolating within the internal bins. The error is at most one internal bin width.
+	 * @param fraction fraction of samples at or below the quantile from zero to one
+	 * @return the estimated quantile or NaN if the window is empty
+	 */
+	public double getQuantile( final double fraction ) {
+		return getQuantiles( fraction )[0];
+	}
+
+
+	/**
+	 * Estimate several quantiles of the window's samples in a single pass over the internal bins when the fractions are in ascending order.
+	 * @param fractions fractions of samples at or below each quantile
+	 * @return the estimated quantiles
+	 */
+	public double[] getQuantiles( final double ... fractions ) {
+		final double[] quantiles = new double[fractions.length];
+		if ( _size == 0 ) {
+			Arrays.fill( quantiles, Double.NaN );
+			return quantiles;
+		}
+
+		final double minimum = getMinimum();
+		final double maximum = getMaximum();
+		final int firstBin = (int)( keyOf( minimum ) - _baseKey );
+		final int lastBin = (int)( keyOf( maximum ) - _baseKey );
+		int bin = firstBin;
+		long cumulativeCount = 0;
+		double previousRank = 0.0;
+		for ( int index = 0 ; index < fractions.length ; index++ ) {
+			final double fraction = fractions[index];
+			if ( fraction <= 0.0 ) {
+				quantiles[index] = minimum;
+				continue;
+			}
+			else if ( fraction >= 1.0 ) {
+				quantiles[index] = maximum;
+				continue;
+			}
+
+			// restart the scan if the fractions are not in ascending order
+			final double rank = fraction * _size;
+			if ( rank < previousRank ) {
+				bin = firstBin;
+				cumulativeCount = 0;
+			}
+			previousRank = rank;
+
+			while ( bin <= lastBin && cumulativeCount + COUNTS[bin] < rank ) {
+				cumulativeCount += COUNTS[bin];
+				++bin;
+			}
+
+			if ( bin <= lastBin ) {
+				final double binLower = ( _baseKey + bin ) * _binWidth;
+				final double quantile = binLower + _binWidth * ( rank - cumulativeCount ) / COUNTS[bin];
+				quantiles[index] = Math.min( Math.max( quantile, minimum ), maximum );
+			}
+			else {
+				quantiles[index] = maximum;
+			}
+		}
+		return quantiles;
+	}
+}
@@ -0,0 +1,99 @@
+//
+//  TestArrayBufferReader.java
+//  xal
+//
+
+package xal.ca;
+
+import java.nio.*;
+
+import org.junit.*;
+
+import xal.tools.ArrayValue;
+
+
+/** test copying array payloads into caller buffers against the ArrayValue conversions */
+public class TestArrayBufferReader {
+	@Test
+	public void testMatchingTypes() {
+		final double[] doubles = { 1.5, -2.25, 3.0, 4.75 };
+		final double[] doubleBuffer = new double[6];
+		Assert.assertEquals( 4, new ArrayBufferReader( doubles ).copyTo( doubleBuffer, 1, 5 ) );
+		Assert.assertArrayEquals( new double[] { 0.0, 1.5, -2.25, 3.0, 4.75, 0.0 }, doubleBuffer, 0.0 );
+
+		final float[] floats = { 1.5f, -2.25f };
+		final float[] floatBuffer = new float[2];
+		Assert.assertEquals( 2, new ArrayBufferReader( floats ).copyTo( floatBuffer, 0, 2 ) );
+		Assert.assertArrayEquals( floats, floatBuffer, 0.0f );
+
+		final int[] ints = { 7, -3, 12 };
+		final int[] intBuffer = new int[2];
+		Assert.assertEquals( 2, new ArrayBufferReader( ints ).copyTo( intBuffer, 0, 2 ) );
+		Assert.assertArrayEquals( new int[] { 7, -3 }, intBuffer );
+	}
+
+
+	@Test
+	public void testConversions() {
+		final Object[] payloads = { new double[] { 1.75, -2.5, 300.25 }, new float[] { 1.75f, -2.5f, 300.25f }, new int[] { 4, -5, 6 }, new short[] { 4, -5, 6 }, new byte[] { 4, -5, 6 }, new String[] { "4", "-5", "6" } };
+		for ( final Object payload : payloads ) {
+			final ArrayValue value = ArrayValue.arrayValueFromArray( payload );
+			final ArrayBufferReader reader = new ArrayBufferReader( payload );
+			Assert.assertEquals( 3, reader.getCount() );
+
+			final double[] doubleBuffer = new double[3];
+			reader.copyTo( doubleBuffer, 0, 3 );
+			Assert.assertArrayEquals( value.doubleArray(), doubleBuffer, 0.0 );
+
+			final float[] floatBuffer = new float[3];
+			reader.copyTo( floatBuffer, 0, 3 );
+			Assert.assertArrayEquals( value.floatArray(), floatBuffer, 0.0f );
+
+			final int[] intBuffer = new int[3];
+			reader.copyTo( intBuffer, 0, 3 );
+			Assert.assertArrayEquals( value.intArray(), intBuffer );
+
+			final ArrayBufferReader valueReader = ArrayBufferReader.getInstance( value );
+			final double[] valueBuffer = new double[3];
+			valueReader.copyTo( valueBuffer, 0, 3 );
+			Assert.assertArrayEquals( value.doubleArray(), valueBuffer, 0.0 );
+		}
+	}
+
+
+	@Test
+	public void testDoubleBuffers() {
+		final ArrayBufferReader reader = new ArrayBufferReader( new float[] { 1.0f, 2.0f, 3.0f, 4.0f } );
+		final DoubleBuffer[] buffers = { DoubleBuffer.allocate( 5 ), ByteBuffer.allocateDirect( 40 ).asDoubleBuffer() };
+		for ( final DoubleBuffer buffer : buffers ) {
+			buffer.position( 2 );
+			Assert.assertEquals( 3, reader.copyTo( buffer ) );
+			Assert.assertEquals( 5, buffer.position() );
+			Assert.assertEquals( 0.0, buffer.get( 1 ), 0.0 );
+			Assert.assertEquals( 1.0, buffer.get( 2 ), 0.0 );
+			Assert.assertEquals( 3.0, buffer.get( 4 ), 0.0 );
+		}
+	}
+
+
+	@Test
+	public void testPool() {
+		final DoubleArrayPool pool = new DoubleArrayPool( 2 );
+		final double[] first = pool.acquire( 10 );
+		final double[] second = pool.acquire( 10 );
+		final double[] third = pool.acquire( 4 );
+		Assert.assertEquals( 10, first.length );
+		Assert.assertNotSame( first, second );
+
+		pool.release( first );
+		pool.release( second );
+		pool.release( third );
+		Assert.assertEquals( 2, pool.size() );
+
+		// the most recently retained array is reused and shorter arrays are discarded
+		Assert.assertSame( second, pool.acquire( 8 ) );
+		pool.release( third );
+		Assert.assertEquals( 16, pool.acquire( 16 ).length );
+		Assert.assertEquals( 0, pool.size() );
+	}
+}
@@ -0,0 +1,78 @@
+//
+//  TestScanEngine.java
+//  xal
+//
+
+package xal.extension.scan;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/** test that a scan engine restarted right after it was stopped runs only the new scan */
+public class TestScanEngine {
+	/** number of points in the scan plan */
+	final static private int POINT_COUNT = 40;
+
+
+	@Test
+	public void testStartRightAfterStop() throws InterruptedException {
+		final ScanEngine engine = makeEngine( "TestScanEngine:restart" );
+		final List<Boolean> endings = Collections.synchronizedList( new ArrayList<Boolean>() );
+		engine.addScanEngineListener( new ScanEngineListener() {
+			public void pointMeasured( final ScanEngine sender, final ScanPoint point ) {}
+
+			public void scanEnded( final ScanEngine sender, final boolean completed ) {
+				endings.add( completed );
+			}
+		});
+
+		engine.start();
+		engine.stop();
+		engine.start();
+
+		// the stopped scan must neither end the new scan nor release its completion latch
+		Assert.assertTrue( engine.isRunning() );
+		Assert.assertTrue( engine.awaitCompletion( 30.0 ) );
+		Assert.assertFalse( engine.isRunning() );
+		Assert.assertTrue( endings.contains( Boolean.TRUE ) );
+
+		// only the new scan's points are recorded and each of them once
+		final List<ScanPoint> points = engine.getPoints();
+		Assert.assertEquals( POINT_COUNT, points.size() );
+		for ( int index = 0 ; index < POINT_COUNT ; index++ ) {
+			Assert.assertEquals( index, points.get( index ).getIndex() );
+		}
+	}
+
+
+	@Test
+	public void testRepeatedStopAndStart() throws InterruptedException {
+		final ScanEngine engine = makeEngine( "TestScanEngine:repeat" );
+		for ( int trial = 0 ; trial < 20 ; trial++ ) {
+			engine.start();
+			engine.stop();
+		}
+		engine.start();
+
+		Assert.assertTrue( engine.awaitCompletion( 30.0 ) );
+		Assert.assertFalse( engine.isRunning() );
+		Assert.assertEquals( POINT_COUNT, engine.getPoints().size() );
+	}
+
+
+	/** make an engine which scans a variable without channels and waits a short fixed delay at each point */
+	static private ScanEngine makeEngine( final String alias ) {
+		final double[] values = new double[POINT_COUNT];
+		for ( int index = 0 ; index < POINT_COUNT ; index++ ) {
+			values[index] = index;
+		}
+
+		final ScanEngine engine = new ScanEngine();
+		engine.addAxis( new ScanVariable( alias, alias + "_RB" ), values, 0.0 );
+		engine.setSettleDelay( 0.005 );
+		engine.setPublishesData( false );
+		return engine;
+	}
+}
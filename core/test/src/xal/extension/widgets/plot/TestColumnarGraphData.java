@@ -0,0 +1,72 @@
+//
+//  TestColumnarGraphData.java
+//  xal
+//
+
+package xal.extension.widgets.plot;
+
+import org.junit.*;
+
+
+/** test that the pixel column summaries of ColumnarGraphData follow point removal */
+public class TestColumnarGraphData {
+	@Test
+	public void testRemoveLastPointWithinBlock() {
+		// the last point shares its block with other points
+		assertMaxAfterRemovingLast( 200 );
+		assertMaxAfterRemovingLast( 1000 );
+	}
+
+
+	@Test
+	public void testRemoveLastPointAloneInBlock() {
+		// the last point is the only point of its lowest level block but shares the higher level block
+		assertMaxAfterRemovingLast( 993 );
+	}
+
+
+	@Test
+	public void testRemoveInteriorPoint() {
+		final ColumnarGraphData data = makeData( 1000 );
+		data.updateValueY( 500, 1000.0 );
+		Assert.assertEquals( 1000.0, getSingleColumnMaxY( data ), 0.0 );
+
+		data.removePoint( 500 );
+		Assert.assertEquals( 9.0, getSingleColumnMaxY( data ), 0.0 );
+		Assert.assertEquals( 999, data.getNumbOfPoints() );
+	}
+
+
+	/** make data whose last point is the maximum, remove it and check that the summary no longer includes it */
+	static private void assertMaxAfterRemovingLast( final int pointCount ) {
+		final ColumnarGraphData data = makeData( pointCount );
+		data.updateValueY( pointCount - 1, 1000.0 );
+		Assert.assertEquals( 1000.0, getSingleColumnMaxY( data ), 0.0 );
+
+		data.removePoint( pointCount - 1 );
+		Assert.assertEquals( "max after removing the last of " + pointCount + " points", 9.0, getSingleColumnMaxY( data ), 0.0 );
+	}
+
+
+	/** make data with the specified number of points whose y-values cycle from 0 to 9 */
+	static private ColumnarGraphData makeData( final int pointCount ) {
+		final double[] x = new double[pointCount];
+		final double[] y = new double[pointCount];
+		for ( int index = 0 ; index < pointCount ; index++ ) {
+			x[index] = index;
+			y[index] = index % 10;
+		}
+		final ColumnarGraphData data = new ColumnarGraphData();
+		data.addPoint( x, y );
+		return data;
+	}
+
+
+	/** get the maximum y-value of all points reduced to a single pixel column */
+	static private double getSingleColumnMaxY( final ColumnarGraphData data ) {
+		final ColumnarGraphData.ScreenColumns columns = new ColumnarGraphData.ScreenColumns();
+		final int columnCount = data.getScreenColumns( 0.0, 1.0e-6, 0.0, 1.0e6, columns );
+		Assert.assertEquals( 1, columnCount );
+		return columns.getMaxY( 0 );
+	}
+}
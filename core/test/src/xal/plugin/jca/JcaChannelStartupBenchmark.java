@@ -0,0 +1,186 @@
+//
+//  JcaChannelStartupBenchmark.java
+//  xal
+//
+
+package xal.plugin.jca;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import xal.ca.BatchConnectionRequest;
+import xal.ca.Channel;
+import xal.ca.ChannelFactory;
+import xal.ca.ChannelServer;
+
+
+/**
+ * Benchmark of the time to connect the channels of an application at startup. An in process channel server serves
+ * the PVs over loopback and each stage connects its own set of PVs, so no stage benefits from the connections of
+ * another:
+ * <ul>
+ *	<li>serial: connectAndWait() on each channel of the default factory in turn</li>
+ *	<li>batch: one BatchConnectionRequest for all the channels of the default factory which flushes once</li>
+ *	<li>shared: several threads each request a channel for every PV at once and share the native channel cache,
+ *		which must end up with one native channel per PV</li>
+ * </ul>
+ * This is not a unit test and is not run with the tests. Run it with the shared library and the core test classes
+ * on the class path: <code>java xal.plugin.jca.JcaChannelStartupBenchmark [PV count] [thread count]</code>
+ */
+public class JcaChannelStartupBenchmark {
+	/** default number of PVs connected in each stage */
+	final static private int DEFAULT_PV_COUNT = 2000;
+
+	/** default number of threads requesting the shared channels */
+	final static private int DEFAULT_THREAD_COUNT = 8;
+
+	/** timeout in seconds to connect all the channels of a stage */
+	final static private double CONNECTION_TIMEOUT = 60.0;
+
+	/** prefix of the served PVs */
+	final static private String PV_PREFIX = "JcaChannelStartupBenchmark:";
+
+
+	/** run the benchmark with the optional PV count and thread count */
+	static public void main( final String[] args ) throws Exception {
+		final int pvCount = args.length > 0 ? Integer.parseInt( args[0] ) : DEFAULT_PV_COUNT;
+		final int threadCount = args.length > 1 ? Integer.parseInt( args[1] ) : DEFAULT_THREAD_COUNT;
+
+		final ChannelServer server = ChannelServer.getInstance();
+		try {
+			final List<String> serialPVs = registerPVs( server, "serial", pvCount );
+			final List<String> batchPVs = registerPVs( server, "batch", pvCount );
+			final List<String> sharedPVs = registerPVs( server, "shared", pvCount );
+
+			System.out.println( "Connecting " + pvCount + " channels in each stage..." );
+			report( "serial", pvCount, connectSerially( serialPVs ) );
+			report( "batch", pvCount, connectInBatch( batchPVs ) );
+			report( "shared (" + threadCount + " threads)", pvCount, connectShared( sharedPVs, threadCount ) );
+		}
+		finally {
+			server.destroy();
+		}
+
+		System.exit( 0 );
+	}
+
+
+	/** register the specified number of scalar PVs for a stage */
+	static private List<String> registerPVs( final ChannelServer server, final String stage, final int count ) {
+		final List<String> pvs = new ArrayList<String>( count );
+		for ( int index = 0 ; index < count ; index++ ) {
+			final String pv = PV_PREFIX + stage + ":" + index;
+			server.registerPV( pv, (double)index );
+			pvs.add( pv );
+		}
+		return pvs;
+	}
+
+
+	/**
+	 * Connect each channel and wait for it before requesting the next one.
+	 * @return the elapsed time in seconds
+	 */
+	static private double connectSerially( final List<String> pvs ) {
+		final ChannelFactory factory = ChannelFactory.defaultFactory();
+		final long start = System.nanoTime();
+		for ( final String pv : pvs ) {
+			if ( !factory.getChannel( pv ).connectAndWait( CONNECTION_TIMEOUT ) ) {
+				throw new IllegalStateException( "The channel failed to connect: " + pv );
+			}
+		}
+		return elapsedSeconds( start );
+	}
+
+
+	/**
+	 * Request the connections of all the channels with one batch request.
+	 * @return the elapsed time in seconds
+	 */
+	static private double connectInBatch( final List<String> pvs ) {
+		final ChannelFactory factory = ChannelFactory.defaultFactory();
+		final long start = System.nanoTime();
+		final List<Channel> channels = new ArrayList<Channel>( pvs.size() );
+		for ( final String pv : pvs ) {
+			channels.add( factory.getChannel( pv ) );
+		}
+
+		final BatchConnectionRequest request = new BatchConnectionRequest( channels );
+		request.submitAndWait( CONNECTION_TIMEOUT );
+		if ( request.getConnectedCount() != channels.size() ) {
+			throw new IllegalStateException( "Only " + request.getConnectedCount() + " of " + channels.size() + " channels connected." );
+		}
+		return elapsedSeconds( start );
+	}
+
+
+	/**
+	 * Request a channel for every PV from several threads at once which share one native channel cache, then flush once
+	 * and wait for every channel to connect.
+	 * @return the elapsed time in seconds
+	 */
+	static private double connectShared( final List<String> pvs, final int threadCount ) throws Exception {
+		final JcaSystem jcaSystem = new JcaSystem();
+		jcaSystem.init();
+		final JcaNativeChannelCache nativeChannelCache = new JcaNativeChannelCache( jcaSystem );
+
+		final ExecutorService executor = Executors.newFixedThreadPool( threadCount );
+		final CountDownLatch startLatch = new CountDownLatch( 1 );
+		final List<Future<List<Channel>>> requests = new ArrayList<Future<List<Channel>>>( threadCount );
+		for ( int thread = 0 ; thread < threadCount ; thread++ ) {
+			requests.add( executor.submit( new Callable<List<Channel>>() {
+				public List<Channel> call() throws Exception {
+					startLatch.await();
+					final List<Channel> channels = new ArrayList<Channel>( pvs.size() );
+					for ( final String pv : pvs ) {
+						final Channel channel = new JcaChannel( pv, jcaSystem.getJcaContext(), nativeChannelCache );
+						channel.requestConnection();
+						channels.add( channel );
+					}
+					return channels;
+				}
+			}));
+		}
+
+		final long start = System.nanoTime();
+		startLatch.countDown();
+		final List<Channel> channels = new ArrayList<Channel>( threadCount * pvs.size() );
+		for ( final Future<List<Channel>> request : requests ) {
+			channels.addAll( request.get() );
+		}
+		jcaSystem.flushIO();
+
+		final long deadline = start + (long)( 1.0e9 * CONNECTION_TIMEOUT );
+		for ( final Channel channel : channels ) {
+			while ( !channel.isConnected() ) {
+				if ( System.nanoTime() > deadline )  throw new IllegalStateException( "The channel failed to connect: " + channel.channelName() );
+				Thread.sleep( 1 );
+			}
+		}
+		final double elapsedTime = elapsedSeconds( start );
+		executor.shutdown();
+
+		final Set<gov.aps.jca.Channel> nativeChannels = Collections.newSetFromMap( new IdentityHashMap<gov.aps.jca.Channel,Boolean>() );
+		for ( final String pv : pvs ) {
+			nativeChannels.add( nativeChannelCache.getChannel( pv ) );
+		}
+		System.out.println( "shared: " + channels.size() + " channel requests share " + nativeChannels.size() + " native channels" );
+		if ( nativeChannels.size() != pvs.size() ) {
+			throw new IllegalStateException( "Expected one native channel per PV but found " + nativeChannels.size() + " for " + pvs.size() + " PVs." );
+		}
+
+		return elapsedTime;
+	}
+
+
+	/** get the seconds elapsed since the specified start time in nanoseconds */
+	static private double elapsedSeconds( final long start ) {
+		return 1.0e-9 * ( System.nanoTime() - start );
+	}
+
+
+	/** print the time of a stage */
+	static private void report( final String stage, final int pvCount, final double seconds ) {
+		System.out.printf( "%s: %d channels connected in %.3f s (%.3f ms per channel)%n", stage, pvCount, seconds, 1000.0 * seconds / pvCount );
+	}
+}
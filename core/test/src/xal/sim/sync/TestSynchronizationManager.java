@@ -10,6 +10,7 @@ import static org.junit.Assert.*;
 
 import java.io.File;
 import java.io.PrintWriter;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 
@@ -17,10 +18,12 @@ import org.junit.AfterClass;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
+import xal.model.IElement;
 import xal.model.ModelException;
 import xal.model.alg.EnvTrackerAdapt;
 import xal.model.alg.ParticleTracker;
 import xal.model.alg.TransferMapTracker;
+import xal.model.elem.sync.IElectromagnet;
 import xal.model.probe.EnvelopeProbe;
 import xal.model.probe.ParticleProbe;
 import xal.model.probe.TransferMapProbe;
@@ -35,6 +38,7 @@ import xal.smf.Accelerator;
 import xal.smf.AcceleratorNode;
 import xal.smf.AcceleratorSeq;
 import xal.smf.impl.Quadrupole;
+import xal.smf.proxy.ElectromagnetPropertyAccessor;
 
 import xal.test.ResourceManager;
 
@@ -258,6 +262,35 @@ public class TestSynchronizationManager {
         
     }
 
+    /**
+     * Test method for {@link xal.sim.sync.SynchronizationManager#resyncFromCache(java.util.Collection)}.
+     * Only the elements of the specified nodes should pick up their changed model inputs.
+     */
+    @Test
+    public final void testResyncFromCacheForNodes() throws ModelException {
+        Scenario              model       = Scenario.newScenarioFor(SEQ_TEST);
+        model.setSynchronizationMode(Scenario.SYNC_MODE_DESIGN);
+        model.resync();
+        
+        List<AcceleratorNode> lstSmfQuads = SEQ_TEST.getNodesOfType("q", true);
+        Quadrupole            smfQuad1    = (Quadrupole)lstSmfQuads.get(0);
+        Quadrupole            smfQuad2    = (Quadrupole)lstSmfQuads.get(1);
+        double                dblFld1Old  = this.magFieldOf(model, smfQuad1);
+        double                dblFld2Old  = this.magFieldOf(model, smfQuad2);
+        
+        model.setModelInput(smfQuad1, ElectromagnetPropertyAccessor.PROPERTY_FIELD, 2.0*smfQuad1.getDesignField());
+        model.setModelInput(smfQuad2, ElectromagnetPropertyAccessor.PROPERTY_FIELD, 2.0*smfQuad2.getDesignField());
+        
+        // resync the first quadrupole only
+        model.resyncFromCache(Collections.<AcceleratorNode>singleton(smfQuad1));
+        assertEquals(2.0*dblFld1Old, this.magFieldOf(model, smfQuad1), 1.0e-12*Math.abs(dblFld1Old));
+        assertEquals(dblFld2Old, this.magFieldOf(model, smfQuad2), 0.0);
+        
+        // the full resync from the cache picks up the remaining model input
+        model.resyncFromCache();
+        assertEquals(2.0*dblFld2Old, this.magFieldOf(model, smfQuad2), 1.0e-12*Math.abs(dblFld2Old));
+    }
+
     /**
      * Test method for {@link xal.sim.sync.SynchronizationManager#setModelInput(xal.smf.AcceleratorNode, java.lang.String, double)}.
      */
@@ -269,6 +302,20 @@ public class TestSynchronizationManager {
      * Support Methods
      */
 
+    /**
+     * Returns the magnetic field of the first lattice element mapped to the given magnet.
+     *
+     * @param model     scenario containing the lattice
+     * @param smfMagnet magnet whose modeling element field is returned
+     * 
+     * @return          field of the modeling element (T/m for quadrupoles)
+     */
+    private double magFieldOf(Scenario model, AcceleratorNode smfMagnet) {
+        List<IElement> lstElems = model.elementsMappedTo(smfMagnet);
+        
+        return ((IElectromagnet)lstElems.get(0)).getMagField();
+    }
+    
     /**
      * Write the current simulation data to disk.
      *
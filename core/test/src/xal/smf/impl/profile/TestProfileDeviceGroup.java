@@ -0,0 +1,236 @@
+//
+//  TestProfileDeviceGroup.java
+//  xal
+//
+
+package xal.smf.impl.profile;
+
+import java.lang.reflect.Constructor;
+import java.util.Random;
+
+import xal.ca.ChannelRecord;
+import xal.ca.ValueAdaptor;
+import xal.smf.impl.ProfileFit;
+import xal.smf.impl.WireHarp;
+import xal.smf.impl.WireScanner;
+import xal.tools.ArrayValue;
+
+import org.junit.*;
+
+
+/** test the trace reduction of ProfileDeviceGroup on synthetic Gaussian traces */
+public class TestProfileDeviceGroup {
+	/** number of samples in a trace */
+	static final private int SAMPLE_COUNT = 201;
+
+	/** position of the first sample */
+	static final private double FIRST_POSITION = -20.0;
+
+	/** spacing between samples */
+	static final private double SPACING = 0.2;
+
+	/** peak of the Gaussian above the baseline */
+	static final private double AMPLITUDE = 10.0;
+
+	/** mean of the Gaussian */
+	static final private double MEAN = 1.5;
+
+	/** standard deviation of the Gaussian */
+	static final private double SIGMA = 3.0;
+
+	/** baseline offset of the raw trace */
+	static final private double BASELINE = 2.0;
+
+	/** standard deviation of the added noise */
+	static final private double NOISE = 0.05;
+
+	/** record slots of the signal fields for a trace with positions and values only */
+	static final private int[] POS_VAL_SLOTS = makeSlots( -1, 0, 1, -1, -1 );
+
+	/** record slots of the signal fields for a trace with a count and a device baseline */
+	static final private int[] ALL_SLOTS = makeSlots( 2, 0, 1, 3, 4 );
+
+	/** random number generator with a fixed seed for reproducible tests */
+	final private Random RANDOM = new Random( 31 );
+
+
+	@Test
+	public void testMomentsOfCleanTrace() {
+		final ProfileDeviceGroup.PlaneData plane = new ProfileDeviceGroup.PlaneData( ProfileDevice.ANGLE.HOR, POS_VAL_SLOTS );
+		plane.process( new ChannelRecord[] { makeRecord( makePositions() ), makeRecord( makeTrace( 0.0 ) ) }, ProfileDeviceGroup.DBL_EDGE_FRACTION, ProfileDeviceGroup.DBL_FIT_THRESHOLD );
+
+		// the edge samples include a Gaussian tail of order 1e-6 which limits the agreement
+		Assert.assertEquals( SAMPLE_COUNT, plane.getCount() );
+		Assert.assertEquals( BASELINE, plane.getBaseline(), 1.0e-4 );
+		Assert.assertEquals( 0.0, plane.getNoise(), 1.0e-4 );
+		Assert.assertEquals( AMPLITUDE * SIGMA * Math.sqrt( 2.0 * Math.PI ), plane.getArea(), 1.0e-3 );
+		Assert.assertEquals( MEAN, plane.getCentroid(), 1.0e-4 );
+		Assert.assertEquals( SIGMA, plane.getRms(), 1.0e-3 );
+		final int peakIndex = indexOf( MEAN );
+		final double peakOffset = ( plane.getPositions()[peakIndex] - MEAN ) / SIGMA;
+		Assert.assertEquals( AMPLITUDE * Math.exp( -0.5 * peakOffset * peakOffset ), plane.getSignal()[peakIndex], 1.0e-4 );
+
+		// the log-parabola fit of a Gaussian is exact up to the baseline error
+		final ProfileFit fit = plane.getFit();
+		Assert.assertTrue( plane.isFitValid() );
+		Assert.assertEquals( MEAN, fit.getMean(), 1.0e-4 );
+		Assert.assertEquals( SIGMA, fit.getSigma(), 1.0e-4 );
+		Assert.assertEquals( AMPLITUDE, fit.getAmp(), 1.0e-4 );
+		Assert.assertEquals( plane.getBaseline(), fit.getOffset(), 0.0 );
+	}
+
+
+	@Test
+	public void testFitOfNoisyTrace() {
+		final ProfileDeviceGroup.PlaneData plane = new ProfileDeviceGroup.PlaneData( ProfileDevice.ANGLE.VER, POS_VAL_SLOTS );
+		plane.process( new ChannelRecord[] { makeRecord( makePositions() ), makeRecord( makeTrace( NOISE ) ) }, ProfileDeviceGroup.DBL_EDGE_FRACTION, ProfileDeviceGroup.DBL_FIT_THRESHOLD );
+
+		Assert.assertEquals( BASELINE, plane.getBaseline(), 0.02 );
+		Assert.assertEquals( NOISE, plane.getNoise(), 0.015 );
+		Assert.assertEquals( MEAN, plane.getCentroid(), 0.1 );
+
+		final ProfileFit fit = plane.getFit();
+		Assert.assertTrue( plane.isFitValid() );
+		Assert.assertEquals( MEAN, fit.getMean(), 0.02 );
+		Assert.assertEquals( SIGMA, fit.getSigma(), 0.02 * SIGMA );
+		Assert.assertEquals( AMPLITUDE, fit.getAmp(), 0.02 * AMPLITUDE );
+	}
+
+
+	@Test
+	public void testDeviceBaselineAndCount() {
+		final int count = 150;
+		final double deviceBaseline = 1.5;
+		final double deviceNoise = 0.25;
+		final ProfileDeviceGroup.PlaneData plane = new ProfileDeviceGroup.PlaneData( ProfileDevice.ANGLE.HOR, ALL_SLOTS );
+		final ChannelRecord[] records = { makeRecord( makePositions() ), makeRecord( makeTrace( 0.0 ) ), makeRecord( count ), makeRecord( deviceBaseline ), makeRecord( deviceNoise ) };
+		plane.process( records, ProfileDeviceGroup.DBL_EDGE_FRACTION, ProfileDeviceGroup.DBL_FIT_THRESHOLD );
+
+		Assert.assertEquals( count, plane.getCount() );
+		Assert.assertEquals( deviceBaseline, plane.getBaseline(), 0.0 );
+		Assert.assertEquals( deviceNoise, plane.getNoise(), 0.0 );
+		for ( int index = 0 ; index < count ; index++ ) {
+			Assert.assertEquals( plane.getValues()[index] - deviceBaseline, plane.getSignal()[index], 0.0 );
+		}
+	}
+
+
+	@Test
+	public void testFlatTraceHasNoFit() {
+		final double[] flat = new double[SAMPLE_COUNT];
+		java.util.Arrays.fill( flat, BASELINE );
+
+		final ProfileDeviceGroup.PlaneData plane = new ProfileDeviceGroup.PlaneData( ProfileDevice.ANGLE.HOR, POS_VAL_SLOTS );
+		plane.process( new ChannelRecord[] { makeRecord( makePositions() ), makeRecord( flat ) }, ProfileDeviceGroup.DBL_EDGE_FRACTION, ProfileDeviceGroup.DBL_FIT_THRESHOLD );
+
+		Assert.assertEquals( BASELINE, plane.getBaseline(), 0.0 );
+		Assert.assertTrue( Double.isNaN( plane.getCentroid() ) );
+		Assert.assertTrue( Double.isNaN( plane.getRms() ) );
+		Assert.assertFalse( plane.isFitValid() );
+		Assert.assertTrue( Double.isNaN( plane.getFit().getSigma() ) );
+	}
+
+
+	@Test
+	public void testDeviceConstructor() throws NoSuchMethodException {
+		final ProfileDevice scanner = new WireScanner( "TEST_WS" );		// the package private method is only visible through ProfileDevice
+
+		final Constructor<GenericData> genericConstructor = scanner.getDeviceConstructor( GenericData.class );
+		Assert.assertEquals( ProfileDevice.class, genericConstructor.getParameterTypes()[0] );
+
+		final Constructor<ScannerData> scannerConstructor = scanner.getDeviceConstructor( ScannerData.class );
+		Assert.assertEquals( WireScanner.class, scannerConstructor.getParameterTypes()[0] );
+
+		try {
+			scanner.getDeviceConstructor( HarpData.class );
+			Assert.fail( "A wire scanner should not match a constructor which requires a wire harp." );
+		}
+		catch( NoSuchMethodException exception ) {}
+	}
+
+
+	/** make the positions of the samples */
+	static private double[] makePositions() {
+		final double[] positions = new double[SAMPLE_COUNT];
+		for ( int index = 0 ; index < SAMPLE_COUNT ; index++ ) {
+			positions[index] = FIRST_POSITION + SPACING * index;
+		}
+		return positions;
+	}
+
+
+	/** make a Gaussian trace above the baseline with the specified noise */
+	private double[] makeTrace( final double noise ) {
+		final double[] trace = new double[SAMPLE_COUNT];
+		for ( int index = 0 ; index < SAMPLE_COUNT ; index++ ) {
+			final double offset = ( FIRST_POSITION + SPACING * index - MEAN ) / SIGMA;
+			trace[index] = BASELINE + AMPLITUDE * Math.exp( -0.5 * offset * offset ) + noise * RANDOM.nextGaussian();
+		}
+		return trace;
+	}
+
+
+	/** get the index of the sample at the specified position */
+	static private int indexOf( final double position ) {
+		return (int)Math.round( ( position - FIRST_POSITION ) / SPACING );
+	}
+
+
+	/** make the record slots indexed by signal field ordinal */
+	static private int[] makeSlots( final int cntSlot, final int posSlot, final int valSlot, final int avgSlot, final int varSlot ) {
+		final int[] slots = new int[Signal.FIELD.values().length];
+		slots[Signal.FIELD.CNT.ordinal()] = cntSlot;
+		slots[Signal.FIELD.POS.ordinal()] = posSlot;
+		slots[Signal.FIELD.VAL.ordinal()] = valSlot;
+		slots[Signal.FIELD.NAVG.ordinal()] = avgSlot;
+		slots[Signal.FIELD.NVAR.ordinal()] = varSlot;
+		return slots;
+	}
+
+
+	/** make a channel record holding the array */
+	static private ChannelRecord makeRecord( final double[] array ) {
+		return makeRecord( ArrayValue.doubleStore( array ) );
+	}
+
+
+	/** make a channel record holding the scalar */
+	static private ChannelRecord makeRecord( final double scalar ) {
+		return makeRecord( ArrayValue.doubleStore( scalar ) );
+	}
+
+
+	/** make a channel record holding the value */
+	static private ChannelRecord makeRecord( final ArrayValue value ) {
+		return new ChannelRecord( new ValueAdaptor() {
+			public ArrayValue getStore() {
+				return value;
+			}
+		});
+	}
+
+
+
+	/** data structure whose acquisition constructor accepts any profile device */
+	public static class GenericData {
+		/** Constructor */
+		public GenericData( final ProfileDevice device ) {}
+	}
+
+
+	/** data structure whose acquisition constructor requires a wire scanner */
+	public static class ScannerData {
+		/** Constructor */
+		public ScannerData( final WireScanner scanner ) {}
+
+		/** Constructor which is not an acquisition constructor */
+		public ScannerData( final WireScanner scanner, final int count ) {}
+	}
+
+
+	/** data structure whose acquisition constructor requires a wire harp */
+	public static class HarpData {
+		/** Constructor */
+		public HarpData( final WireHarp harp ) {}
+	}
+}
@@ -0,0 +1,181 @@
+//
+//  TestScadaRecord.java
+//  xal
+//
+
+package xal.smf.scada;
+
+import xal.ca.Channel;
+import xal.ca.ChannelFactory;
+import xal.ca.IServerChannel;
+import xal.smf.impl.Marker;
+import xal.tools.ArrayValue;
+import xal.tools.transforms.ValueTransform;
+
+import org.junit.*;
+
+
+/** test the cached field accessors of ScadaRecord and the batched hardware value exchange against an in process channel access server */
+public class TestScadaRecord {
+	/** prefix of the served PVs */
+	static final private String PV_PREFIX = "TEST:SCADA:";
+
+	/** scale of the transform between raw and physical values */
+	static final private double SCALE = 2.0;
+
+	/** raw values of the served array PV */
+	static final private double[] RAW_ARRAY = { 1.0, 2.5, -4.0 };
+
+	/** raw value of the served scalar PVs */
+	static final private double RAW_SCALAR = 3.5;
+
+	/** node whose channels are served in process */
+	static private Marker _node;
+
+	/** server channels keyed by index of the PV_NAMES */
+	static private Channel[] _serverChannels;
+
+	/** suffixes of the served PVs which also serve as the channel handles */
+	static final private String[] PV_NAMES = { "Array", "Scalar", "Count", "Label", "Setting" };
+
+
+	@BeforeClass
+	static public void setUpClass() throws Exception {
+		final ChannelFactory serverFactory = ChannelFactory.newServerFactory();
+		_serverChannels = new Channel[PV_NAMES.length];
+		for ( int index = 0 ; index < PV_NAMES.length ; index++ ) {
+			final Channel channel = serverFactory.getChannel( PV_PREFIX + PV_NAMES[index] );
+			channel.connectAndWait();
+			((IServerChannel)channel).setSettable( true );
+			_serverChannels[index] = channel;
+		}
+		_serverChannels[0].putVal( RAW_ARRAY );
+		for ( int index = 1 ; index < PV_NAMES.length ; index++ ) {
+			_serverChannels[index].putVal( RAW_SCALAR );
+		}
+
+		_node = new Marker( "TEST_SCADA", ChannelFactory.defaultFactory() );
+		_node.channelSuite().putTransform( "scale", new ScaleTransform() );
+		for ( final String name : PV_NAMES ) {
+			_node.channelSuite().putChannel( name, PV_PREFIX + name, true, "scale" );
+		}
+	}
+
+
+	@Test
+	public void testAccessorsAreCached() throws BadStructException {
+		final ScadaFieldAccessor accessor = ScadaFieldAccessor.getAccessor( TestData.class, "count" );
+		Assert.assertSame( accessor, ScadaFieldAccessor.getAccessor( TestData.class, "count" ) );
+		Assert.assertEquals( ScadaFieldAccessor.FieldType.INT, accessor.getFieldTypeClass() );
+		Assert.assertEquals( ScadaFieldAccessor.FieldType.DOUBLE_ARRAY, ScadaFieldAccessor.getAccessor( TestData.class, "array" ).getFieldTypeClass() );
+
+		final TestData data = new TestData();
+		accessor.set( data, 7 );
+		Assert.assertEquals( 7, data.count );
+		Assert.assertEquals( 7, accessor.get( data ) );
+
+		try {
+			ScadaFieldAccessor.getAccessor( TestData.class, "missing" );
+			Assert.fail( "A missing field should not have an accessor." );
+		}
+		catch( BadStructException exception ) {}
+	}
+
+
+	@Test
+	public void testBatchedLoadMatchesFieldByFieldLoad() throws Exception {
+		final TestData batchData = new TestData();
+		batchData.loadHardwareValues( _node );
+
+		// double arrays and strings are read through the transform, other fields from the raw value
+		Assert.assertArrayEquals( new double[] { SCALE * RAW_ARRAY[0], SCALE * RAW_ARRAY[1], SCALE * RAW_ARRAY[2] }, batchData.array, 0.0 );
+		Assert.assertEquals( RAW_SCALAR, batchData.scalar, 0.0 );
+		Assert.assertEquals( (int)RAW_SCALAR, batchData.count );
+		Assert.assertEquals( SCALE * RAW_SCALAR, Double.parseDouble( batchData.label ), 1.0e-12 );
+
+		final TestData fieldData = new TestData();
+		for ( final ScadaFieldDescriptor descriptor : fieldData.getFieldDescriptors() ) {
+			fieldData.setFieldFromPV( descriptor.getFieldName(), descriptor.getRbHandle(), _node );
+		}
+		Assert.assertArrayEquals( fieldData.array, batchData.array, 0.0 );
+		Assert.assertEquals( fieldData.scalar, batchData.scalar, 0.0 );
+		Assert.assertEquals( fieldData.count, batchData.count );
+		Assert.assertEquals( fieldData.label, batchData.label );
+	}
+
+
+	@Test
+	public void testSetHardwareValuesWritesThroughTransform() throws Exception {
+		final TestData data = new TestData();
+		data.setting = 5.0;
+		data.setHardwareValues( _node );
+
+		final Channel serverChannel = _serverChannels[4];
+		final long deadline = System.currentTimeMillis() + 5000;
+		while ( serverChannel.getValDbl() != data.setting / SCALE && System.currentTimeMillis() < deadline ) {
+			Thread.sleep( 10 );
+		}
+		Assert.assertEquals( data.setting / SCALE, serverChannel.getValDbl(), 0.0 );
+		serverChannel.putVal( RAW_SCALAR );
+	}
+
+
+
+	/** record whose fields cover array, scalar, integer, string and settable fields */
+	public static class TestData extends ScadaRecord {
+		/** transformed array */
+		public double[] array;
+
+		/** raw scalar */
+		public double scalar;
+
+		/** raw integer */
+		public int count;
+
+		/** string value */
+		public String label;
+
+		/** settable scalar */
+		public double setting;
+
+
+		/** Constructor */
+		public TestData() {
+			super( new ScadaFieldDescriptor( "array", double[].class, "Array" ),
+			       new ScadaFieldDescriptor( "scalar", double.class, "Scalar" ),
+			       new ScadaFieldDescriptor( "count", int.class, "Count" ),
+			       new ScadaFieldDescriptor( "label", String.class, "Label" ),
+			       new ScadaFieldDescriptor( "setting", double.class, "Setting", "Setting" ) );
+		}
+
+
+		/** label for data storage */
+		public String dataLabel() {
+			return "TestData";
+		}
+	}
+
+
+
+	/** transform which scales raw values to physical values */
+	static private class ScaleTransform implements ValueTransform {
+		/** convert a raw value to a physical value */
+		public ArrayValue convertFromRaw( final ArrayValue rawValue ) {
+			final double[] values = rawValue.doubleArray();
+			for ( int index = 0 ; index < values.length ; index++ ) {
+				values[index] *= SCALE;
+			}
+			return ArrayValue.doubleStore( values );
+		}
+
+
+		/** convert a physical value to a raw value */
+		public ArrayValue convertToRaw( final ArrayValue physicalValue ) {
+			final double[] values = physicalValue.doubleArray();
+			for ( int index = 0 ; index < values.length ; index++ ) {
+				values[index] /= SCALE;
+			}
+			return ArrayValue.doubleStore( values );
+		}
+	}
+}
@@ -0,0 +1,223 @@
+/**
+ * TestRingTrackingEngine.java
+ *
+ * Since   : Oct 19, 2026
+ */
+package xal.tools.beam.calc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import xal.model.alg.TransferMapTracker;
+import xal.model.probe.TransferMapProbe;
+import xal.model.probe.traj.Trajectory;
+import xal.model.probe.traj.TransferMapState;
+import xal.sim.scenario.AlgorithmFactory;
+import xal.sim.scenario.ProbeFactory;
+import xal.sim.scenario.Scenario;
+import xal.smf.Accelerator;
+import xal.smf.AcceleratorNode;
+import xal.smf.AcceleratorSeq;
+import xal.smf.impl.Sextupole;
+import xal.test.ResourceManager;
+import xal.tools.beam.IConstants;
+import xal.tools.beam.PhaseMatrix;
+import xal.tools.beam.PhaseVector;
+
+/**
+ * Test cases for the <code>RingTrackingEngine</code> class comparing tracked particles
+ * with particles propagated by the transfer matrices and kicks directly.
+ *
+ * @since  Oct 19, 2026
+ */
+public class TestRingTrackingEngine {
+
+    
+    /*
+     * Global Constants
+     */
+    
+    /** String identifier for accelerator sequence used in testing */
+    static private String            STR_SEQ_ID       = "Ring";
+    
+    /** Tolerance for comparing particle coordinates */
+    static private double            DBL_TOL          = 1.0e-10;
+    
+
+    /*
+     * Global Attributes 
+     */
+    
+    /** The ring sequence */
+    private static AcceleratorSeq                   SEQ_RING;
+    
+    /** Transfer map trajectory around the ring */
+    private static Trajectory<TransferMapState>     TRJ_RING;
+    
+    /** Ring calculation engine */
+    private static CalculationsOnRings              CAL_RING;
+    
+    
+    /**
+     * Runs a transfer map probe around the test ring.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Accelerator     accel = ResourceManager.getTestAccelerator();
+        SEQ_RING = accel.findSequence(STR_SEQ_ID);
+        Scenario        model = Scenario.newScenarioFor(SEQ_RING);
+        model.setSynchronizationMode(Scenario.SYNC_MODE_DESIGN);
+        
+        TransferMapTracker  algXferMap = AlgorithmFactory.createTransferMapTracker(SEQ_RING);
+        TransferMapProbe    probe      = ProbeFactory.getTransferMapProbe(SEQ_RING, algXferMap);
+        probe.reset();
+        model.setProbe(probe);
+        model.resync();
+        model.run();
+        
+        TRJ_RING = probe.getTrajectory();
+        CAL_RING = new CalculationsOnRings(TRJ_RING);
+    }
+
+    
+    /*
+     * Tests
+     */
+    
+    /**
+     * Without kicks the tracked particles follow the transfer matrices.
+     */
+    @Test
+    public void testLinearTracking() {
+        RingTrackingEngine  engine = CAL_RING.createTrackingEngine();
+        int                 indObs = TRJ_RING.numStates()/3;
+        TransferMapState    stateObs = TRJ_RING.stateWithIndex(indObs);
+        engine.addObservationPoint(stateObs);
+        assertEquals(3, engine.getKernelCount());
+        
+        ParticleBatch   batch = new ParticleBatch(3);
+        PhaseVector[]   arrVecs = new PhaseVector[3];
+        for (int i=0; i<3; i++) {
+            arrVecs[i] = new PhaseVector(1.0e-3*(i+1), 1.0e-4, -2.0e-3, 0.0, 0.0, 1.0e-4*i);
+            batch.setParticle(i, arrVecs[i]);
+        }
+        
+        int                 cntTurns = 20;
+        TurnByTurnBuffer    bufSamples = engine.track(batch, cntTurns, 3);
+        assertEquals(7, bufSamples.getRecordCount());
+        
+        PhaseMatrix matObs  = stateObs.getTransferMap().getFirstOrder();
+        PhaseMatrix matFull = TRJ_RING.finalState().getTransferMap().getFirstOrder();
+        for (int i=0; i<3; i++) {
+            PhaseVector vec = arrVecs[i];
+            for (int indTurn=0; indTurn<cntTurns; indTurn++) {
+                if (indTurn % 3 == 0) {
+                    PhaseVector vecObs = matObs.times(vec);
+                    for (int indCoord=0; indCoord<ParticleBatch.CNT_COORDS; indCoord++)
+                        assertEquals(vecObs.getElem(indCoord), bufSamples.getSample(0, indTurn/3, indCoord, i), DBL_TOL);
+                }
+                vec = matFull.times(vec);
+            }
+            
+            for (int indCoord=0; indCoord<ParticleBatch.CNT_COORDS; indCoord++)
+                assertEquals(vec.getElem(indCoord), batch.getCoordinates(indCoord)[i], DBL_TOL);
+        }
+        assertEquals(3, batch.countSurvivors());
+    }
+    
+    /**
+     * The sextupole kicks loaded from the ring sequence agree with kicks applied by hand,
+     * and every chunk of a large batch is tracked identically.
+     */
+    @Test
+    public void testSextupoleTracking() {
+        RingTrackingEngine  engine = CAL_RING.createTrackingEngine();
+        int                 cntSext = engine.loadSextupoles(SEQ_RING);
+        assertTrue(cntSext > 0);
+        
+        int                 cntParticles = 3*RingTrackingEngine.CNT_CHUNK_PARTICLES + 17;
+        ParticleBatch       batch = new ParticleBatch(cntParticles);
+        PhaseVector         vecInit = new PhaseVector(4.0e-3, 0.0, 3.0e-3, 0.0, 0.0, 0.0);
+        for (int i=0; i<cntParticles; i++)
+            batch.setParticle(i, vecInit);
+        
+        int                 cntTurns = 10;
+        engine.track(batch, cntTurns, 1);
+        
+        // Propagate the same particle by hand using the trajectory states and the kick strengths
+        double              dblRigid = TRJ_RING.initialState().getSpeciesCharge() * IConstants.LightSpeed / TRJ_RING.initialState().getMomentum();
+        PhaseVector         vec = vecInit;
+        for (int indTurn=0; indTurn<cntTurns; indTurn++) {
+            PhaseMatrix matPrev = PhaseMatrix.identity();
+            for (TransferMapState state : TRJ_RING) {
+                PhaseMatrix matCurr = state.getTransferMap().getFirstOrder();
+                vec = matCurr.times( matPrev.inverse() ).times(vec);
+                matPrev = matCurr;
+                
+                String  strId = state.getElementId();
+                if (strId.startsWith("CENTER:")) {
+                    AcceleratorNode smfNode = SEQ_RING.getNodeWithId( strId.substring("CENTER:".length()) );
+                    if (smfNode instanceof Sextupole && !((Sextupole)smfNode).isSkew()) {
+                        Sextupole   smfSext = (Sextupole)smfNode;
+                        double  dblK2L = dblRigid * smfSext.getDesignField() * smfSext.getEffLength();
+                        double  x = vec.getx();
+                        double  y = vec.gety();
+                        vec.setxp( vec.getxp() - 0.5*dblK2L*(x*x - y*y) );
+                        vec.setyp( vec.getyp() + dblK2L*x*y );
+                    }
+                }
+            }
+        }
+        double  dblDiff = Math.abs(vec.getx() - batch.getCoordinates(ParticleBatch.IND_X)[0]);
+        assertTrue("Difference from the element by element propagation " + dblDiff, dblDiff < 1.0e-8);
+        
+        for (int i=1; i<cntParticles; i++)
+            for (int indCoord=0; indCoord<ParticleBatch.CNT_COORDS; indCoord++)
+                assertEquals(batch.getCoordinates(indCoord)[0], batch.getCoordinates(indCoord)[i], 0.0);
+    }
+    
+    /**
+     * Octupole kicks add up and particles outside the aperture are lost.
+     */
+    @Test
+    public void testLosses() {
+        RingTrackingEngine  engine = CAL_RING.createTrackingEngine();
+        String              strObsId = TRJ_RING.stateWithIndex(10).getElementId();
+        engine.addObservationPoint(strObsId);
+        engine.addOctupole(TRJ_RING.stateWithIndex(TRJ_RING.numStates()/2).getElementId(), 5.0e3);
+        engine.setApertureRadius(0.05);
+        
+        Random          rnd   = new Random(17);
+        ParticleBatch   batch = new ParticleBatch(400);
+        batch.setParticle(0, 0.0, 0.0, 0.0, 0.0, 0.0, 0.0);
+        for (int i=1; i<batch.getParticleCount(); i++)
+            batch.setParticle(i, 0.04*rnd.nextDouble(), 0.0, 0.04*rnd.nextDouble(), 0.0, 0.0, 0.0);
+        
+        int                 cntTurns = 50;
+        TurnByTurnBuffer    bufSamples = engine.track(batch, cntTurns, 1);
+        
+        assertEquals(strObsId, bufSamples.getObservationId(0));
+        assertTrue(batch.countSurvivors() < batch.getParticleCount());
+        assertTrue(!batch.isLost(0));
+        
+        double[]    arrHist = new double[cntTurns];
+        for (int i=0; i<batch.getParticleCount(); i++) {
+            if (!batch.isLost(i))
+                continue;
+            
+            int     indLoss = batch.getLossTurn(i);
+            bufSamples.getHistory(0, ParticleBatch.IND_X, i, arrHist);
+            assertTrue(!Double.isNaN(arrHist[indLoss]));
+            for (int indTurn=indLoss+1; indTurn<cntTurns; indTurn++)
+                assertTrue(Double.isNaN(arrHist[indTurn]));
+            assertTrue(Double.isNaN(batch.getCoordinates(ParticleBatch.IND_X)[i]));
+        }
+    }
+}
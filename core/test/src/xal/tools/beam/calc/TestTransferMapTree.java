@@ -0,0 +1,184 @@
+/**
+ * TestTransferMapTree.java
+ *
+ * Since   : Oct 19, 2026
+ */
+package xal.tools.beam.calc;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import xal.model.alg.TransferMapTracker;
+import xal.model.probe.TransferMapProbe;
+import xal.model.probe.traj.Trajectory;
+import xal.model.probe.traj.TransferMapState;
+import xal.sim.scenario.AlgorithmFactory;
+import xal.sim.scenario.ProbeFactory;
+import xal.sim.scenario.Scenario;
+import xal.smf.Accelerator;
+import xal.smf.AcceleratorSeq;
+import xal.test.ResourceManager;
+import xal.tools.beam.PhaseMatrix;
+import xal.tools.math.r3.R3;
+
+/**
+ * Test cases for the <code>TransferMapTree</code> class comparing its transfer
+ * maps with those computed from the composite maps of the ring states.
+ *
+ * @since  Oct 19, 2026
+ */
+public class TestTransferMapTree {
+
+    
+    /*
+     * Global Constants
+     */
+    
+    /** String identifier for accelerator sequence used in testing */
+    static private String            STR_SEQ_ID       = "Ring";
+    
+    /** Relative tolerance for comparing transfer matrices */
+    static private double            DBL_TOL          = 1.0e-8;
+    
+
+    /*
+     * Global Attributes 
+     */
+    
+    /** Transfer map trajectory around the ring */
+    private static Trajectory<TransferMapState>     TRJ_XFER_TEST;
+    
+    /** Transfer map cache under test */
+    private static TransferMapTree                  TRR_XFER_TEST;
+    
+    
+    /**
+     * Runs a transfer map probe around the test ring and builds the cache.
+     *
+     * @throws java.lang.Exception
+     */
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        Accelerator     accel = ResourceManager.getTestAccelerator();
+        AcceleratorSeq  seq   = accel.findSequence(STR_SEQ_ID);
+        Scenario        model = Scenario.newScenarioFor(seq);
+        model.setSynchronizationMode(Scenario.SYNC_MODE_DESIGN);
+        
+        TransferMapTracker  algXferMap = AlgorithmFactory.createTransferMapTracker(seq);
+        TransferMapProbe    probe      = ProbeFactory.getTransferMapProbe(seq, algXferMap);
+        probe.reset();
+        model.setProbe(probe);
+        model.resync();
+        model.run();
+        
+        TRJ_XFER_TEST = probe.getTrajectory();
+        TRR_XFER_TEST = new TransferMapTree(TRJ_XFER_TEST);
+    }
+
+    
+    /*
+     * Tests
+     */
+    
+    /**
+     * The partial maps produced by the transfer map tracker compose to the composite maps.
+     */
+    @Test
+    public void testPartialMapsConsistent() {
+        assertEquals(TRJ_XFER_TEST.numStates(), TRR_XFER_TEST.getStateCount());
+        assertEquals(0, TRR_XFER_TEST.getDerivedLeafCount());
+        
+        TransferMapState    stateFinal = TRJ_XFER_TEST.finalState();
+        PhaseMatrix         matFull    = TRR_XFER_TEST.computeLeafProduct(0, TRR_XFER_TEST.getStateCount() - 1).getFirstOrder();
+        
+        assertMatricesEqual(stateFinal.getTransferMap().getFirstOrder(), matFull);
+    }
+    
+    /**
+     * Transfer matrices between arbitrary states agree with the inversion formula.
+     */
+    @Test
+    public void testTransferMatrices() {
+        Random  rnd = new Random(3);
+        int     cntStates = TRR_XFER_TEST.getStateCount();
+        
+        for (int i=0; i<200; i++) {
+            TransferMapState    state1 = TRJ_XFER_TEST.stateWithIndex( rnd.nextInt(cntStates) );
+            TransferMapState    state2 = TRJ_XFER_TEST.stateWithIndex( rnd.nextInt(cntStates) );
+            
+            PhaseMatrix matExpected = CalculationsOnMachines.computeTransferMatrix(state1, state2);
+            PhaseMatrix matCached   = TRR_XFER_TEST.computeTransferMatrix(state1, state2);
+            
+            assertMatricesEqual(matExpected, matCached);
+        }
+    }
+    
+    /**
+     * Ring transfer matrices and full-turn matrices agree with the calculation engine formulas.
+     */
+    @Test
+    public void testRingMatrices() {
+        Random  rnd = new Random(5);
+        int     cntStates = TRR_XFER_TEST.getStateCount();
+        PhaseMatrix matFull = TRJ_XFER_TEST.finalState().getTransferMap().getFirstOrder();
+        
+        for (int i=0; i<200; i++) {
+            int     ind1 = rnd.nextInt(cntStates);
+            int     ind2 = rnd.nextInt(cntStates);
+            
+            TransferMapState    state1 = TRJ_XFER_TEST.stateWithIndex(ind1);
+            TransferMapState    state2 = TRJ_XFER_TEST.stateWithIndex(ind2);
+            PhaseMatrix         matPhi1 = state1.getTransferMap().getFirstOrder();
+            PhaseMatrix         matPhi2 = state2.getTransferMap().getFirstOrder();
+            
+            PhaseMatrix matExpected = matPhi2.times( matFull.times( matPhi1.inverse() ) );
+            PhaseMatrix matCached   = TRR_XFER_TEST.computeRingTransferMap(ind1, ind2, true).getFirstOrder();
+            assertMatricesEqual(matExpected, matCached);
+            
+            PhaseMatrix matTurnExp = matPhi1.times( matFull.times( matPhi1.inverse() ) );
+            PhaseMatrix matTurn    = TRR_XFER_TEST.computeFullTurnMapAt(state1).getFirstOrder();
+            assertMatricesEqual(matTurnExp, matTurn);
+        }
+    }
+    
+    /**
+     * The ring calculation engine computes the same tunes with the cache as before.
+     */
+    @Test
+    public void testRingCalculations() {
+        CalculationsOnRings calRing = new CalculationsOnRings(TRJ_XFER_TEST);
+        TransferMapState    state   = TRJ_XFER_TEST.stateWithIndex( TRR_XFER_TEST.getStateCount()/3 );
+        PhaseMatrix         matFull = TRJ_XFER_TEST.finalState().getTransferMap().getFirstOrder();
+        PhaseMatrix         matPhi  = state.getTransferMap().getFirstOrder();
+        
+        assertMatricesEqual(matPhi.times( matFull.times( matPhi.inverse() ) ), calRing.computeRingFullTurnMatrixAt(state));
+        
+        R3  vecFrac = calRing.computeFractionalTunes();
+        R3  vecFull = calRing.computeFullTunes();
+        assertEquals(vecFrac.getx(), vecFull.getx() - Math.floor(vecFull.getx()), 1.0e-6);
+        assertEquals(vecFrac.gety(), vecFull.gety() - Math.floor(vecFull.gety()), 1.0e-6);
+    }
+    
+    
+    /*
+     * Support Methods
+     */
+    
+    /**
+     * Asserts that two matrices agree to the relative tolerance.
+     *
+     * @param matExpected   expected matrix
+     * @param matActual     actual matrix
+     */
+    private static void assertMatricesEqual(PhaseMatrix matExpected, PhaseMatrix matActual) {
+        double  dblScale = Math.max(1.0, matExpected.normInf());
+        double  dblErr   = matExpected.minus(matActual).normInf();
+        
+        assertTrue("matrix error " + dblErr + " exceeds tolerance", dblErr <= DBL_TOL*dblScale);
+    }
+}
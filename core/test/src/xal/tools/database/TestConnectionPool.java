@@ -0,0 +1,236 @@
+//
+//  TestConnectionPool.java
+//  xal
+//
+
+package xal.tools.database;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.*;
+
+
+/** test the ConnectionPool class against an in process stub database */
+public class TestConnectionPool {
+	/** adaptor making stub connections */
+	private StubDatabaseAdaptor _adaptor;
+
+	/** pool under test */
+	private ConnectionPool _pool;
+
+
+	@Before
+	public void setUp() {
+		_adaptor = new StubDatabaseAdaptor();
+		_pool = new ConnectionPool( _adaptor, "stub:db", "user", "password" );
+	}
+
+
+	@After
+	public void tearDown() {
+		_pool.close();
+	}
+
+
+	@Test
+	public void testConnectionReuse() throws SQLException {
+		final Connection connection = _pool.getConnection();
+		connection.close();
+		Assert.assertTrue( connection.isClosed() );
+
+		final Connection nextConnection = _pool.getConnection();
+		Assert.assertEquals( 1, _adaptor.CONNECTION_COUNT.get() );
+		Assert.assertEquals( 1, _pool.getOpenConnectionCount() );
+		Assert.assertEquals( 2, _pool.getBorrowCount() );
+		nextConnection.close();
+		Assert.assertEquals( 1, _pool.getIdleConnectionCount() );
+	}
+
+
+	@Test
+	public void testClosedConnectionRejectsCalls() throws SQLException {
+		final Connection connection = _pool.getConnection();
+		connection.close();
+		connection.close();		// closing again must not return the connection twice
+		Assert.assertEquals( 1, _pool.getIdleConnectionCount() );
+
+		try {
+			connection.prepareStatement( "SELECT 1" );
+			Assert.fail( "A closed pooled connection should not prepare statements." );
+		}
+		catch( SQLException exception ) {}
+	}
+
+
+	@Test
+	public void testBoundedPoolTimesOut() throws SQLException {
+		_pool.setMaxConnections( 2 );
+		_pool.setMaxWaitTime( 0.05 );
+
+		final Connection first = _pool.getConnection();
+		final Connection second = _pool.getConnection();
+		try {
+			_pool.getConnection();
+			Assert.fail( "The pool should not exceed its maximum number of connections." );
+		}
+		catch( DatabaseException exception ) {}
+
+		first.close();
+		final Connection third = _pool.getConnection();
+		Assert.assertEquals( 2, _adaptor.CONNECTION_COUNT.get() );
+		second.close();
+		third.close();
+	}
+
+
+	@Test
+	public void testDedicatedConnectionsBypassBound() throws SQLException {
+		_pool.setMaxConnections( 1 );
+		_pool.setMaxWaitTime( 0.05 );
+
+		final Connection first = _pool.getDedicatedConnection();
+		final Connection second = _pool.getDedicatedConnection();
+		final Connection pooled = _pool.getConnection();		// holding dedicated connections must not starve the pool
+		Assert.assertEquals( 1, _pool.getOpenConnectionCount() );
+
+		final PreparedStatement statement = first.prepareStatement( "SELECT 1" );
+		statement.close();
+		first.prepareStatement( "SELECT 1" ).close();
+		Assert.assertEquals( 1, _pool.getStatementCacheHits() );
+
+		first.close();
+		second.close();
+		Assert.assertTrue( first.isClosed() );
+		Assert.assertEquals( 2, _adaptor.CLOSED_CONNECTION_COUNT.get() );
+		Assert.assertEquals( 0, _pool.getIdleConnectionCount() );
+		pooled.close();
+	}
+
+
+	@Test
+	public void testIdleEviction() throws SQLException {
+		_pool.getConnection().close();
+		_pool.setMaxIdleTime( 0.0 );
+		_pool.evictIdleConnections();
+		Assert.assertEquals( 0, _pool.getOpenConnectionCount() );
+		Assert.assertEquals( 1, _adaptor.CLOSED_CONNECTION_COUNT.get() );
+	}
+
+
+	@Test
+	public void testStatementCache() throws SQLException {
+		final Connection connection = _pool.getConnection();
+		final PreparedStatement statement = connection.prepareStatement( "SELECT * FROM T WHERE ID = ?" );
+		statement.setLong( 1, 5 );
+		statement.executeQuery();
+		statement.close();
+
+		final PreparedStatement nextStatement = connection.prepareStatement( "SELECT * FROM T WHERE ID = ?" );
+		nextStatement.executeQuery();
+		nextStatement.close();
+
+		Assert.assertEquals( 1, _adaptor.STATEMENT_COUNT.get() );
+		Assert.assertEquals( 1, _pool.getStatementCacheHits() );
+		Assert.assertEquals( 1, _pool.getStatementCacheMisses() );
+		Assert.assertEquals( 2, _pool.getQueryCount() );
+
+		// statements in use at the same time must be distinct
+		final PreparedStatement statementA = connection.prepareStatement( "SELECT * FROM T" );
+		final PreparedStatement statementB = connection.prepareStatement( "SELECT * FROM T" );
+		Assert.assertEquals( 3, _adaptor.STATEMENT_COUNT.get() );
+		statementA.close();
+		statementB.close();
+		connection.close();
+	}
+
+
+	@Test
+	public void testUncommittedWorkIsRolledBack() throws SQLException {
+		final Connection connection = _pool.getConnection();
+		connection.setAutoCommit( false );
+		connection.close();
+		Assert.assertEquals( 1, _adaptor.ROLLBACK_COUNT.get() );
+
+		final Connection nextConnection = _pool.getConnection();
+		Assert.assertTrue( nextConnection.getAutoCommit() );
+		nextConnection.close();
+	}
+
+
+
+	/** database adaptor which makes stub connections and counts the calls made on them */
+	static private class StubDatabaseAdaptor extends DatabaseAdaptor {
+		final public AtomicInteger CONNECTION_COUNT = new AtomicInteger();
+		final public AtomicInteger CLOSED_CONNECTION_COUNT = new AtomicInteger();
+		final public AtomicInteger STATEMENT_COUNT = new AtomicInteger();
+		final public AtomicInteger ROLLBACK_COUNT = new AtomicInteger();
+
+
+		public Array getArray( final String type, final Connection connection, final Object array ) {
+			return null;
+		}
+
+
+		public Connection getConnection( final String urlSpec, final String user, final String password ) {
+			CONNECTION_COUNT.incrementAndGet();
+			return (Connection)Proxy.newProxyInstance( Connection.class.getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+				private boolean _autoCommit = true;
+				private boolean _isClosed = false;
+
+				public Object invoke( final Object proxy, final Method method, final Object[] args ) {
+					switch( method.getName() ) {
+						case "getAutoCommit":
+							return _autoCommit;
+						case "setAutoCommit":
+							_autoCommit = (Boolean)args[0];
+							return null;
+						case "rollback":
+							ROLLBACK_COUNT.incrementAndGet();
+							return null;
+						case "isClosed":
+							return _isClosed;
+						case "isValid":
+						case "isReadOnly":
+							return method.getName().equals( "isValid" );
+						case "close":
+							if ( !_isClosed )  CLOSED_CONNECTION_COUNT.incrementAndGet();
+							_isClosed = true;
+							return null;
+						case "prepareStatement":
+							STATEMENT_COUNT.incrementAndGet();
+							return newStatement();
+						default:
+							return null;
+					}
+				}
+			} );
+		}
+
+
+		/** make a stub prepared statement */
+		private PreparedStatement newStatement() {
+			return (PreparedStatement)Proxy.newProxyInstance( PreparedStatement.class.getClassLoader(), new Class<?>[] { PreparedStatement.class }, new InvocationHandler() {
+				private boolean _isClosed = false;
+
+				public Object invoke( final Object proxy, final Method method, final Object[] args ) {
+					switch( method.getName() ) {
+						case "isClosed":
+							return _isClosed;
+						case "close":
+							_isClosed = true;
+							return null;
+						default:
+							return method.getReturnType() == int.class ? (Object)0 : method.getReturnType() == boolean.class ? (Object)false : null;
+					}
+				}
+			} );
+		}
+	}
+}
@@ -0,0 +1,102 @@
+//
+//  TestAbstractDigitalFilter.java
+//  xal
+//
+
+package xal.tools.dsp;
+
+import java.util.Random;
+
+import org.junit.*;
+
+
+/** test that block processing of a digital filter matches its per sample response */
+public class TestAbstractDigitalFilter {
+	/** filter orders covering the pure gain filter and filters with several delays */
+	static final private int[] ORDERS = { 0, 1, 2, 5 };
+
+	/** number of samples used to put the filters into a nontrivial initial state */
+	static final private int WARMUP_COUNT = 7;
+
+	/** number of samples in the processed signal */
+	static final private int SIGNAL_COUNT = 64;
+
+	/** tolerance for comparing the responses */
+	static final private double TOLERANCE = 1.0e-12;
+
+	/** random number generator with a fixed seed for reproducible tests */
+	final private Random RANDOM = new Random( 23 );
+
+
+	@Test
+	public void testLtiBlockMatchesResponse() {
+		for ( final int order : ORDERS ) {
+			final double[] inputCoefficients = randomArray( order + 1 );
+			final double[] outputCoefficients = randomArray( order + 1 );
+			outputCoefficients[0] = 1.0;
+			for ( int delay = 1 ; delay <= order ; delay++ ) {
+				outputCoefficients[delay] *= 0.5 / order;		// keep the filter stable
+			}
+
+			final LtiDigitalFilter blockFilter = makeLtiFilter( order, inputCoefficients, outputCoefficients );
+			final LtiDigitalFilter sampleFilter = makeLtiFilter( order, inputCoefficients, outputCoefficients );
+			assertBlockMatchesResponse( blockFilter, sampleFilter );
+		}
+	}
+
+
+	@Test
+	public void testTimeVaryingBlockMatchesResponse() {
+		assertBlockMatchesResponse( new DigitalAverager(), new DigitalAverager() );
+	}
+
+
+	/** warm up both filters with the same signal, then process a block with one and respond sample by sample with the other */
+	private void assertBlockMatchesResponse( final AbstractDigitalFilter blockFilter, final AbstractDigitalFilter sampleFilter ) {
+		final double[] warmup = randomArray( WARMUP_COUNT );
+		for ( final double value : warmup ) {
+			blockFilter.response( value );
+			sampleFilter.response( value );
+		}
+
+		final double[] signal = randomArray( SIGNAL_COUNT );
+		final int offset = 3;
+		final int length = SIGNAL_COUNT - 2 * offset;
+		final double[] block = signal.clone();
+		blockFilter.process( block, offset, length );
+
+		for ( int index = 0 ; index < SIGNAL_COUNT ; index++ ) {
+			if ( index < offset || index >= offset + length ) {
+				Assert.assertEquals( "values outside of the block must be untouched", signal[index], block[index], 0.0 );
+			}
+			else {
+				Assert.assertEquals( "order " + blockFilter.getOrder() + " at index " + index, sampleFilter.response( signal[index] ), block[index], TOLERANCE );
+			}
+		}
+
+		Assert.assertEquals( sampleFilter.getTimeIndex(), blockFilter.getTimeIndex() );
+
+		// the filters must continue from the same state
+		final double next = RANDOM.nextDouble();
+		Assert.assertEquals( sampleFilter.response( next ), blockFilter.response( next ), TOLERANCE );
+	}
+
+
+	/** make an LTI filter with the specified coefficients */
+	static private LtiDigitalFilter makeLtiFilter( final int order, final double[] inputCoefficients, final double[] outputCoefficients ) {
+		final LtiDigitalFilter filter = new LtiDigitalFilter( order );
+		filter.setInputCoefficients( inputCoefficients );
+		filter.setOutputCoefficients( outputCoefficients );
+		return filter;
+	}
+
+
+	/** make an array of random values between -1 and 1 */
+	private double[] randomArray( final int size ) {
+		final double[] array = new double[size];
+		for ( int index = 0 ; index < size ; index++ ) {
+			array[index] = 2.0 * RANDOM.nextDouble() - 1.0;
+		}
+		return array;
+	}
+}
@@ -0,0 +1,121 @@
+//
+//  TestFormula.java
+//  xal
+//
+
+package xal.tools.formula;
+
+import org.junit.*;
+
+
+/** test the Formula compiler and evaluator */
+public class TestFormula {
+	/** tolerance for floating point comparisons */
+	final static private double TOLERANCE = 1.0e-12;
+
+
+	@Test
+	public void testPrecedence() {
+		Assert.assertEquals( 7.0, Formula.compile( "1 + 2 * 3" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 9.0, Formula.compile( "(1 + 2) * 3" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( -1.0, Formula.compile( "1 - 4 / 2" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 2.0, Formula.compile( "8 / 2 / 2" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 1.0, Formula.compile( "7 % 3" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( -4.0, Formula.compile( "-2 * 2" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 1.5e-3, Formula.compile( "1.5E-3" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 1.0, Formula.compile( "1 + 2 > 2 && 3 == 3" ).evaluate(), TOLERANCE );
+	}
+
+
+	@Test
+	public void testFunctions() {
+		Assert.assertEquals( 3.0, Formula.compile( "sqrt(9)" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 1.0, Formula.compile( "Math.sin(Math.PI/2)" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 8.0, Formula.compile( "pow(2, 3)" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( Math.atan2( 1.0, 2.0 ), Formula.compile( "atan2(1, 2)" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 1.0, Formula.compile( "min(4, 1, 3)" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 4.0, Formula.compile( "max(4, 1, 3)" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 5.0, Formula.compile( "max(5)" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( -2.0, Formula.compile( "round(-2.5)" ).evaluate(), TOLERANCE );
+	}
+
+
+	@Test
+	public void testConditionalAndLogic() {
+		Assert.assertEquals( 2.0, Formula.compile( "x > 1 ? 2 : 3" ).evaluate( 5.0 ), TOLERANCE );
+		Assert.assertEquals( 3.0, Formula.compile( "x > 1 ? 2 : 3" ).evaluate( 0.0 ), TOLERANCE );
+		Assert.assertEquals( 4.0, Formula.compile( "0 || 4" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 0.0, Formula.compile( "0 && 4" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 1.0, Formula.compile( "!0" ).evaluate(), TOLERANCE );
+		Assert.assertEquals( 1.0, Formula.compile( "x != y" ).evaluate( 1.0, 2.0 ), TOLERANCE );
+	}
+
+
+	@Test
+	public void testVariablesAndFolding() {
+		final Formula formula = Formula.compile( "ch2 * (2 + 3) - ch1 + ch2;" );
+		Assert.assertEquals( 2, formula.getVariableCount() );
+		Assert.assertEquals( 0, formula.getVariableIndex( "ch2" ) );
+		Assert.assertEquals( 1, formula.getVariableIndex( "ch1" ) );
+		Assert.assertEquals( -1, formula.getVariableIndex( "ch3" ) );
+		Assert.assertEquals( 7, formula.getInstructionCount() );
+		Assert.assertEquals( 11.0, formula.evaluate( 2.0, 1.0 ), TOLERANCE );
+
+		Assert.assertEquals( 1, Formula.compile( "sqrt(2) * Math.PI + max(1, 2, 3)" ).getInstructionCount() );
+	}
+
+
+	@Test
+	public void testSyntaxErrors() {
+		final String[] sources = { "", "1 +", "(1 + 2", "foo(1)", "sqrt(1, 2)", "pow(1)", "min()", "1 2", "Math.bogus", "1 + $#" };
+		for ( final String source : sources ) {
+			try {
+				Formula.compile( source );
+				Assert.fail( "Expected a syntax error for: " + source );
+			}
+			catch ( FormulaException exception ) {}
+		}
+	}
+
+
+	@Test
+	public void testVectorizedEvaluation() {
+		final Formula formula = Formula.compile( "a > 0 ? sqrt(a) * b : min(a, b, 0.5) + c" );
+		final int count = 1000;
+		final double[] a = new double[count];
+		final double[] b = new double[count];
+		for ( int index = 0 ; index < count ; index++ ) {
+			a[index] = Math.sin( 0.1 * index );
+			b[index] = Math.cos( 0.3 * index );
+		}
+		final double[] c = { 2.0 };
+
+		final double[] results = formula.evaluate( new double[][] { a, b, c } );
+		Assert.assertEquals( count, results.length );
+		for ( int index = 0 ; index < count ; index++ ) {
+			Assert.assertEquals( formula.evaluate( a[index], b[index], 2.0 ), results[index], TOLERANCE );
+		}
+	}
+
+
+	@Test
+	public void testInterpreter() {
+		final FormulaInterpreter interpreter = new FormulaInterpreter();
+		interpreter.setVariable( "x", 3.0 );
+		Assert.assertTrue( interpreter.hasVariable( "x" ) );
+		Assert.assertFalse( interpreter.hasVariable( "y" ) );
+		Assert.assertEquals( 10.0, interpreter.evaluate( "x * x + 1" ), TOLERANCE );
+
+		interpreter.setVariable( "x", 2.0 );
+		Assert.assertEquals( 5.0, interpreter.evaluate(), TOLERANCE );
+
+		interpreter.compile( "x + y" );
+		try {
+			interpreter.evaluate();
+			Assert.fail( "Expected an undefined variable error." );
+		}
+		catch ( RuntimeException exception ) {}
+		interpreter.setVariable( "y", 4.0 );
+		Assert.assertEquals( 6.0, interpreter.evaluate(), TOLERANCE );
+	}
+}
@@ -0,0 +1,130 @@
+//
+//  TestFastFourierTransform.java
+//  xal
+//
+
+package xal.tools.math;
+
+import java.util.Random;
+
+import org.junit.*;
+
+
+/** test the fast fourier transform against a direct evaluation of the discrete fourier transform */
+public class TestFastFourierTransform {
+	/** sizes covering the trivial, radix-2, mixed radix and Bluestein algorithms */
+	static final private int[] SIZES = { 1, 2, 3, 8, 12, 15, 30, 64, 97, 194, 360, 1024 };
+
+	/** tolerance relative to the signal size */
+	static final private double TOLERANCE = 1.0e-10;
+
+	/** random number generator with a fixed seed for reproducible tests */
+	final private Random RANDOM = new Random( 17 );
+
+
+	@Test
+	public void testComplexTransform() {
+		for ( final int size : SIZES ) {
+			final double[] real = randomArray( size );
+			final double[] imag = randomArray( size );
+			final double[][] expected = directTransform( real, imag );
+
+			FastFourierTransform.getInstance( size ).transform( real, imag );
+			assertArrayEquals( size, expected[0], real );
+			assertArrayEquals( size, expected[1], imag );
+		}
+	}
+
+
+	@Test
+	public void testRealTransform() {
+		for ( final int size : SIZES ) {
+			final double[] values = randomArray( size );
+			final double[][] expected = directTransform( values, new double[size] );
+
+			final double[] real = new double[size];
+			final double[] imag = new double[size];
+			FastFourierTransform.getInstance( size ).transformReal( values, real, imag );
+			assertArrayEquals( size, expected[0], real );
+			assertArrayEquals( size, expected[1], imag );
+		}
+	}
+
+
+	@Test
+	public void testInverse() {
+		for ( final int size : SIZES ) {
+			final double[] originalReal = randomArray( size );
+			final double[] originalImag = randomArray( size );
+			final double[] real = originalReal.clone();
+			final double[] imag = originalImag.clone();
+
+			final FastFourierTransform transform = FastFourierTransform.getInstance( size );
+			transform.transform( real, imag );
+			transform.inverse( real, imag );
+			assertArrayEquals( size, originalReal, real );
+			assertArrayEquals( size, originalImag, imag );
+		}
+	}
+
+
+	@Test
+	public void testCrossCorrelation() {
+		for ( final int size : SIZES ) {
+			final double[] stationary = randomArray( size );
+			final double[] shifted = randomArray( size );
+			final double[] expected = new double[size];
+			for ( int shift = 0 ; shift < size ; shift++ ) {
+				for ( int index = 0 ; index < size ; index++ ) {
+					expected[shift] += stationary[index] * shifted[( index + shift ) % size];
+				}
+			}
+
+			final double[] correlation = new double[size];
+			FastFourierTransform.getInstance( size ).crossCorrelation( stationary, shifted, correlation );
+			assertArrayEquals( size, expected, correlation );
+		}
+	}
+
+
+	@Test
+	public void testInstanceCache() {
+		Assert.assertSame( FastFourierTransform.getInstance( 48 ), FastFourierTransform.getInstance( 48 ) );
+		Assert.assertEquals( 48, FastFourierTransform.getInstance( 48 ).getSize() );
+	}
+
+
+	/** generate an array of random values */
+	private double[] randomArray( final int size ) {
+		final double[] values = new double[size];
+		for ( int index = 0 ; index < size ; index++ ) {
+			values[index] = RANDOM.nextDouble() - 0.5;
+		}
+		return values;
+	}
+
+
+	/** evaluate the discrete fourier transform directly */
+	static private double[][] directTransform( final double[] real, final double[] imag ) {
+		final int size = real.length;
+		final double[][] result = new double[2][size];
+		for ( int k = 0 ; k < size ; k++ ) {
+			for ( int n = 0 ; n < size ; n++ ) {
+				final double phase = -2.0 * Math.PI * ( (long)k * n % size ) / size;
+				final double cos = Math.cos( phase );
+				final double sin = Math.sin( phase );
+				result[0][k] += real[n] * cos - imag[n] * sin;
+				result[1][k] += real[n] * sin + imag[n] * cos;
+			}
+		}
+		return result;
+	}
+
+
+	/** assert that the arrays agree to within the tolerance scaled by the size */
+	static private void assertArrayEquals( final int size, final double[] expected, final double[] actual ) {
+		for ( int index = 0 ; index < size ; index++ ) {
+			Assert.assertEquals( "size " + size + " index " + index, expected[index], actual[index], TOLERANCE * size );
+		}
+	}
+}
@@ -0,0 +1,171 @@
+//
+// TestDifferentiableOperationTape.java
+// xal
+//
+
+package xal.tools.math.differential;
+
+import org.junit.*;
+
+
+/** Test the compiled tape against the tree evaluation and symbolic derivatives of DifferentiableOperation */
+public class TestDifferentiableOperationTape {
+    /** maximum error allowed between test and control evaluations */
+    final static private double ERROR_TOLERANCE = 1.0e-6;
+
+
+    @Test
+    public void testEvaluation() {
+        final DifferentiableVariable xVar = DifferentiableOperation.getVariable( "x", 0.0 );
+        final DifferentiableVariable yVar = DifferentiableOperation.getVariable( "y", 0.0 );
+        for ( final DifferentiableOperation operation : makeOperations( xVar, yVar ) ) {
+            final DifferentiableOperationTape tape = operation.compile( xVar, yVar );
+            for ( final double[] point : makePoints() ) {
+                assertResult( operation.toString(), tape.evaluate( point ), operation.evaluate( makeValueMap( xVar, yVar, point ) ) );
+            }
+        }
+    }
+
+
+    @Test
+    public void testGradient() {
+        final DifferentiableVariable xVar = DifferentiableOperation.getVariable( "x", 0.0 );
+        final DifferentiableVariable yVar = DifferentiableOperation.getVariable( "y", 0.0 );
+        for ( final DifferentiableOperation operation : makeOperations( xVar, yVar ) ) {
+            final DifferentiableOperationTape tape = operation.compile( xVar, yVar );
+            final DifferentiableOperation xDerivative = operation.getDerivative( xVar );
+            final DifferentiableOperation yDerivative = operation.getDerivative( yVar );
+            final double[] gradient = new double[2];
+            for ( final double[] point : makePoints() ) {
+                final DifferentiableVariableValues valueMap = makeValueMap( xVar, yVar, point );
+                assertResult( operation.toString(), tape.evaluateGradient( point, gradient ), operation.evaluate( valueMap ) );
+                assertResult( operation + " d/dx", gradient[0], xDerivative.evaluate( valueMap ) );
+                assertResult( operation + " d/dy", gradient[1], yDerivative.evaluate( valueMap ) );
+            }
+        }
+    }
+
+
+    @Test
+    public void testCurvature() {
+        final DifferentiableVariable xVar = DifferentiableOperation.getVariable( "x", 0.0 );
+        final DifferentiableVariable yVar = DifferentiableOperation.getVariable( "y", 0.0 );
+        final double[] direction = { 0.6, -0.8 };
+        for ( final DifferentiableOperation operation : makeOperations( xVar, yVar ) ) {
+            final DifferentiableOperationTape tape = operation.compile( xVar, yVar );
+            final DifferentiableOperation xDerivative = operation.getDerivative( xVar );
+            final DifferentiableOperation yDerivative = operation.getDerivative( yVar );
+            final DifferentiableOperation xxDerivative = xDerivative.getDerivative( xVar );
+            final DifferentiableOperation xyDerivative = xDerivative.getDerivative( yVar );
+            final DifferentiableOperation yyDerivative = yDerivative.getDerivative( yVar );
+            for ( final double[] point : makePoints() ) {
+                final DifferentiableVariableValues valueMap = makeValueMap( xVar, yVar, point );
+                final double expected = direction[0] * direction[0] * xxDerivative.evaluate( valueMap ) + 2.0 * direction[0] * direction[1] * xyDerivative.evaluate( valueMap ) + direction[1] * direction[1] * yyDerivative.evaluate( valueMap );
+                assertResult( operation + " curvature", tape.evaluateCurvature( point, direction ), expected );
+            }
+        }
+    }
+
+
+    @Test
+    public void testPowerOfNegativeBase() {
+        final DifferentiableVariable xVar = DifferentiableOperation.getVariable( "x", 0.0 );
+        final DifferentiableVariable yVar = DifferentiableOperation.getVariable( "y", 0.0 );
+        final DifferentiableVariable nVar = DifferentiableOperation.getVariable( "n", 3.0 );
+
+        // the base is negative at these points and the exponent is an integer held fixed along the direction
+        final DifferentiableOperationTape tape = xVar.minus( yVar.times( 2.0 ) ).pow( nVar ).compile( xVar, yVar, nVar );
+        final double[] direction = { 0.6, -0.8, 0.0 };
+        final double directionSlope = direction[0] - 2.0 * direction[1];
+        for ( final double[] point : makePoints() ) {
+            final double base = point[0] - 2.0 * point[1];
+            final double[] values = { point[0], point[1], 3.0 };
+            assertResult( "(x - 2y)^3", tape.evaluate( values ), base * base * base );
+            assertResult( "(x - 2y)^3 curvature", tape.evaluateCurvature( values, direction ), 6.0 * base * directionSlope * directionSlope );
+
+            final double[] gradient = new double[3];
+            tape.evaluateGradient( values, gradient );
+            assertResult( "(x - 2y)^3 d/dx", gradient[0], 3.0 * base * base );
+            assertResult( "(x - 2y)^3 d/dy", gradient[1], -6.0 * base * base );
+        }
+    }
+
+
+    @Test
+    public void testCommonSubexpressions() {
+        final DifferentiableVariable xVar = DifferentiableOperation.getVariable( "x", 0.5 );
+        final DifferentiableVariable yVar = DifferentiableOperation.getVariable( "y", 2.0 );
+
+        // separately constructed but equivalent subexpressions share registers: x, y, x*y, sin(x*y), sum
+        final DifferentiableOperation operation = xVar.times( yVar ).sin().plus( yVar.times( xVar ).sin() );
+        final DifferentiableOperationTape tape = operation.compile( xVar, yVar );
+        Assert.assertEquals( 5, tape.getInstructionCount() );
+        assertResult( "shared", tape.evaluate( tape.getDefaultValues() ), 2.0 * Math.sin( 1.0 ) );
+
+        // constant subexpressions are folded
+        final DifferentiableOperation constantOperation = DifferentiableOperation.getConstant( 2.0 ).sqrt().times( xVar );
+        final DifferentiableOperationTape constantTape = constantOperation.compile( xVar );
+        Assert.assertFalse( constantTape.toString().contains( "sqrt" ) );
+        assertResult( "folded", constantTape.evaluate( constantTape.getDefaultValues() ), 0.5 * Math.sqrt( 2.0 ) );
+    }
+
+
+    @Test
+    public void testFreeVariables() {
+        final DifferentiableVariable xVar = DifferentiableOperation.getVariable( "x", 3.0 );
+        final DifferentiableVariable yVar = DifferentiableOperation.getVariable( "y", 4.0 );
+
+        // variables not listed when compiling follow the listed variables and take their default values
+        final DifferentiableOperationTape tape = xVar.times( yVar ).compile( yVar );
+        Assert.assertEquals( 2, tape.getVariableCount() );
+        Assert.assertSame( yVar, tape.getVariables().get( 0 ) );
+        Assert.assertSame( xVar, tape.getVariables().get( 1 ) );
+        assertResult( "free", tape.evaluate( (DifferentiableVariableValues)null ), 12.0 );
+    }
+
+
+    /** make operations covering every operation type */
+    static private DifferentiableOperation[] makeOperations( final DifferentiableVariable xVar, final DifferentiableVariable yVar ) {
+        final DifferentiableOperation product = xVar.times( yVar );
+        return new DifferentiableOperation[] {
+            xVar.plus( yVar ).plus( 3.2 ),
+            xVar.minus( yVar.times( 2.0 ) ),
+            product.times( xVar ),
+            xVar.over( yVar.plus( 4.0 ) ),
+            xVar.negate().times( yVar ),
+            xVar.minus( yVar ).abs(),
+            xVar.pow( 3 ).plus( yVar.pow( 2.5 ) ),
+            xVar.pow( yVar ),
+            xVar.sqrt().times( yVar ),
+            product.exp(),
+            xVar.times( yVar ).log(),
+            product.sin().plus( yVar.cos() ),
+            xVar.tan().times( yVar ),
+            xVar.times( 0.3 ).asin().plus( yVar.times( 0.2 ).acos() ),
+            product.atan(),
+            xVar.sinh().plus( yVar.cosh() ).plus( product.tanh() ),
+            xVar.minus( yVar ).over( yVar.times( 0.5 ) ).pow( 2 ).times( -0.5 ).exp().times( xVar ).plus( 0.1 )
+        };
+    }
+
+
+    /** make evaluation points with positive coordinates so every operation is defined */
+    static private double[][] makePoints() {
+        return new double[][] { { 0.3, 1.7 }, { 1.2, 0.8 }, { 2.5, 3.1 } };
+    }
+
+
+    /** make the value map for the point */
+    static private DifferentiableVariableValues makeValueMap( final DifferentiableVariable xVar, final DifferentiableVariable yVar, final double[] point ) {
+        final DifferentiableVariableValues valueMap = DifferentiableVariableValues.getInstance();
+        valueMap.assignValue( xVar, point[0] );
+        valueMap.assignValue( yVar, point[1] );
+        return valueMap;
+    }
+
+
+    /** Assert that the test value matches the control value */
+    static private void assertResult( final String message, final double testValue, final double controlValue ) {
+        Assert.assertTrue( message + ": " + testValue + " != " + controlValue, testValue == controlValue || Math.abs( testValue - controlValue ) < ERROR_TOLERANCE * Math.max( 1.0, Math.abs( controlValue ) ) || ( Double.isNaN( testValue ) && Double.isNaN( controlValue ) ) );
+    }
+}
@@ -0,0 +1,123 @@
+//
+//  TestStreamingHistogram.java
+//  xal
+//
+
+package xal.tools.statistics;
+
+import java.util.*;
+
+import org.junit.*;
+
+
+/** test the StreamingHistogram against a brute force histogram of the same window */
+public class TestStreamingHistogram {
+	@Test
+	public void testWindowExtremes() {
+		final StreamingHistogram histogram = new StreamingHistogram( 50 );
+		final Random random = new Random( 7 );
+		final LinkedList<Double> window = new LinkedList<Double>();
+		for ( int index = 0 ; index < 2000 ; index++ ) {
+			final double value = random.nextGaussian() * ( 1 + index / 100 );
+			final double evicted = histogram.addSample( value );
+			window.add( value );
+			if ( window.size() > 50 ) {
+				Assert.assertEquals( window.removeFirst(), evicted, 0.0 );
+			}
+			else {
+				Assert.assertTrue( Double.isNaN( evicted ) );
+			}
+			Assert.assertEquals( window.size(), histogram.getSize() );
+			Assert.assertEquals( Collections.min( window ), histogram.getMinimum(), 0.0 );
+			Assert.assertEquals( Collections.max( window ), histogram.getMaximum(), 0.0 );
+		}
+		Assert.assertEquals( window.getFirst(), histogram.getSample( 0 ), 0.0 );
+		Assert.assertEquals( window.getLast(), histogram.getSample( 49 ), 0.0 );
+	}
+
+
+	@Test
+	public void testCountsAndQuantiles() {
+		final int capacity = 1000;
+		final StreamingHistogram histogram = new StreamingHistogram( capacity );
+		final Random random = new Random( 11 );
+		final LinkedList<Double> window = new LinkedList<Double>();
+		for ( int index = 0 ; index < 20000 ; index++ ) {
+			// alternate between wide and narrow distributions with occasional spikes so the bins both merge and refine
+			final double scale = ( index / 3000 ) % 2 == 0 ? 1.0 : 1.0e-3;
+			final double value = index % 997 == 0 ? 1.0e4 : 5.0 + scale * random.nextGaussian();
+			histogram.addSample( value );
+			window.add( value );
+			if ( window.size() > capacity )  window.removeFirst();
+
+			if ( index % 500 == 499 ) {
+				assertCountsMatch( window, histogram );
+				assertQuantilesMatch( window, histogram );
+			}
+		}
+	}
+
+
+	@Test
+	public void testCapacityChange() {
+		final StreamingHistogram histogram = new StreamingHistogram( 100 );
+		for ( int index = 0 ; index < 100 ; index++ ) {
+			histogram.addSample( index );
+		}
+		histogram.setCapacity( 10 );
+		Assert.assertEquals( 10, histogram.getSize() );
+		Assert.assertEquals( 90.0, histogram.getMinimum(), 0.0 );
+		Assert.assertEquals( 99.0, histogram.getMaximum(), 0.0 );
+		Assert.assertArrayEquals( new int[] { 5, 5 }, histogram.getCounts( 90.0, 100.0, new int[2] ) );
+
+		histogram.clear();
+		Assert.assertEquals( 0, histogram.getSize() );
+		Assert.assertTrue( Double.isNaN( histogram.getQuantile( 0.5 ) ) );
+		histogram.addSample( -3.0 );
+		Assert.assertEquals( -3.0, histogram.getQuantile( 0.5 ), 0.0 );
+	}
+
+
+	/** compare the display counts against brute force counts allowing each boundary to be misplaced by one internal bin */
+	static private void assertCountsMatch( final List<Double> window, final StreamingHistogram histogram ) {
+		final double lower = histogram.getMinimum();
+		final double upper = histogram.getMaximum();
+		final int binCount = 20;
+		final int[] counts = histogram.getCounts( lower, upper, new int[binCount] );
+
+		int total = 0;
+		for ( final int count : counts ) {
+			total += count;
+		}
+		Assert.assertEquals( window.size(), total );
+
+		// the cumulative counts may only differ by samples within one internal bin width of each display boundary
+		final double tolerance = ( upper - lower ) / ( histogram.getResolution() / 4 );
+		int cumulative = 0;
+		for ( int bin = 0 ; bin < binCount - 1 ; bin++ ) {
+			cumulative += counts[bin];
+			final double boundary = lower + ( bin + 1 ) * ( upper - lower ) / binCount;
+			int below = 0;
+			int above = 0;
+			for ( final double value : window ) {
+				if ( value < boundary - tolerance )  ++below;
+				if ( value <= boundary + tolerance )  ++above;
+			}
+			Assert.assertTrue( cumulative >= below && cumulative <= above );
+		}
+	}
+
+
+	/** compare the quantiles against the sorted window allowing an error of one internal bin width */
+	static private void assertQuantilesMatch( final List<Double> window, final StreamingHistogram histogram ) {
+		final List<Double> sorted = new ArrayList<Double>( window );
+		Collections.sort( sorted );
+		final double tolerance = ( histogram.getMaximum() - histogram.getMinimum() ) / ( histogram.getResolution() / 4 );
+		for ( final double fraction : new double[] { 0.05, 0.25, 0.5, 0.75, 0.95 } ) {
+			final double quantile = histogram.getQuantile( fraction );
+			final int rank = (int)Math.ceil( fraction * sorted.size() ) - 1;
+			Assert.assertTrue( quantile >= sorted.get( Math.max( rank - 1, 0 ) ) - tolerance );
+			Assert.assertTrue( quantile <= sorted.get( Math.min( rank + 1, sorted.size() - 1 ) ) + tolerance );
+		}
+	}
+}
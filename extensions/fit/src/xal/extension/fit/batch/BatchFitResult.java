@@ -0,0 +1,159 @@
+//
+// BatchFitResult.java
+// xal
+//
+
+package xal.extension.fit.batch;
+
+
+/**
+ * Results of a batch fit packed into primitive arrays. The parameters of dataset d start at index d * P of the parameter array and its
+ * P x P covariance matrix starts at index d * P * P of the covariance array (row major) where P is the parameter count.
+ * A result may be passed back to the fitter to be refilled without allocation when the next batch has the same shape.
+ */
+public class BatchFitResult {
+	/** number of datasets */
+	private int _datasetCount;
+
+	/** number of parameters per dataset */
+	private int _parameterCount;
+
+	/** packed fitted parameters */
+	private double[] _parameters;
+
+	/** packed covariance matrices */
+	private double[] _covariances;
+
+	/** chi square (weighted sum of square residuals) of each fit */
+	private double[] _chiSquares;
+
+	/** number of model iterations performed for each fit */
+	private int[] _iterations;
+
+	/** indicates whether each fit converged */
+	private boolean[] _converged;
+
+
+	/** Constructor */
+	public BatchFitResult() {
+		_parameters = new double[0];
+		_covariances = new double[0];
+		_chiSquares = new double[0];
+		_iterations = new int[0];
+		_converged = new boolean[0];
+	}
+
+
+	/** size the arrays for the specified shape reusing the existing arrays if they already have the shape */
+	void setShape( final int datasetCount, final int parameterCount ) {
+		_datasetCount = datasetCount;
+		_parameterCount = parameterCount;
+		if ( _chiSquares.length != datasetCount || _parameters.length != datasetCount * parameterCount ) {
+			_parameters = new double[datasetCount * parameterCount];
+			_covariances = new double[datasetCount * parameterCount * parameterCount];
+			_chiSquares = new double[datasetCount];
+			_iterations = new int[datasetCount];
+			_converged = new boolean[datasetCount];
+		}
+	}
+
+
+	/** record the fit of the specified dataset */
+	void setFit( final int dataset, final double chiSquare, final int iterations, final boolean converged ) {
+		_chiSquares[dataset] = chiSquare;
+		_iterations[dataset] = iterations;
+		_converged[dataset] = converged;
+	}
+
+
+	/** Get the number of datasets */
+	public int getDatasetCount() {
+		return _datasetCount;
+	}
+
+
+	/** Get the number of parameters per dataset */
+	public int getParameterCount() {
+		return _parameterCount;
+	}
+
+
+	/** Get the packed parameter array (not a copy) */
+	public double[] getParameters() {
+		return _parameters;
+	}
+
+
+	/** Get the packed covariance array (not a copy) */
+	public double[] getCovariances() {
+		return _covariances;
+	}
+
+
+	/** Get the packed chi square array (not a copy) */
+	public double[] getChiSquares() {
+		return _chiSquares;
+	}
+
+
+	/**
+	 * Get a fitted parameter.
+	 * @param dataset index of the dataset
+	 * @param parameter index of the parameter
+	 * @return the fitted parameter value
+	 */
+	public double getParameter( final int dataset, final int parameter ) {
+		return _parameters[dataset * _parameterCount + parameter];
+	}
+
+
+	/**
+	 * Get the standard error of a fitted parameter which is the square root of its variance.
+	 * @param dataset index of the dataset
+	 * @param parameter index of the parameter
+	 * @return the parameter's standard error
+	 */
+	public double getParameterError( final int dataset, final int parameter ) {
+		return Math.sqrt( getCovariance( dataset, parameter, parameter ) );
+	}
+
+
+	/**
+	 * Get an element of a fit's covariance matrix.
+	 * @param dataset index of the dataset
+	 * @param row parameter index of the row
+	 * @param column parameter index of the column
+	 * @return the covariance
+	 */
+	public double getCovariance( final int dataset, final int row, final int column ) {
+		return _covariances[( dataset * _parameterCount + row ) * _parameterCount + column];
+	}
+
+
+	/** Get the chi square (weighted sum of square residuals) for the dataset's fit */
+	public double getChiSquare( final int dataset ) {
+		return _chiSquares[dataset];
+	}
+
+
+	/** Get the number of iterations performed for the dataset's fit */
+	public int getIterations( final int dataset ) {
+		return _iterations[dataset];
+	}
+
+
+	/** Determine whether the dataset's fit converged */
+	public boolean isConverged( final int dataset ) {
+		return _converged[dataset];
+	}
+
+
+	/** Get the number of fits which converged */
+	public int getConvergedCount() {
+		int count = 0;
+		for ( int dataset = 0 ; dataset < _datasetCount ; dataset++ ) {
+			if ( _converged[dataset] )  ++count;
+		}
+		return count;
+	}
+}
@@ -0,0 +1,475 @@
+//
+// BatchFitter.java
+// xal
+//
+
+package xal.extension.fit.batch;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+
+/**
+ * BatchFitter fits a model to many datasets (e.g. the wire scanner or harp profiles of an acquisition or the turn by turn waveforms of many BPMs)
+ * with the Levenberg-Marquardt method. The datasets are passed packed end to end in primitive arrays and are fitted in parallel.
+ * Each worker thread preallocates one workspace for all of its fits, so fitting does not allocate per dataset. The fitted parameters
+ * and covariance matrices are returned packed in a BatchFitResult.
+ */
+public class BatchFitter {
+	/** number of datasets claimed by a worker at a time */
+	final static private int DATASET_CHUNK = 8;
+
+	/** damping beyond which a fit is considered to be at a minimum since no downhill step can be found */
+	final static private double MAX_DAMPING = 1.0e12;
+
+	/** model to fit */
+	final private BatchModel MODEL;
+
+	/** number of model parameters */
+	final private int PARAMETER_COUNT;
+
+	/** maximum number of iterations per fit */
+	private int _maxIterations;
+
+	/** relative change in chi square below which a fit has converged */
+	private double _tolerance;
+
+	/** number of threads fitting concurrently */
+	private int _threadCount;
+
+	/** executor for the worker threads or null to fit on the calling thread */
+	private ExecutorService _executor;
+
+	/** number of fits in progress keyed by the executor running their helpers (guarded by this fitter) */
+	final private Map<ExecutorService,Integer> ACTIVE_FIT_COUNTS;
+
+
+	/**
+	 * Constructor
+	 * @param model the model to fit
+	 */
+	public BatchFitter( final BatchModel model ) {
+		MODEL = model;
+		PARAMETER_COUNT = model.getParameterCount();
+		ACTIVE_FIT_COUNTS = new IdentityHashMap<ExecutorService,Integer>();
+		_maxIterations = 100;
+		_tolerance = 1.0e-10;
+		setThreadCount( Runtime.getRuntime().availableProcessors() );
+	}
+
+
+	/** Get the model */
+	public BatchModel getModel() {
+		return MODEL;
+	}
+
+
+	/** Get the maximum number of iterations per fit */
+	public int getMaxIterations() {
+		return _maxIterations;
+	}
+
+
+	/** Set the maximum number of iterations per fit */
+	public void setMaxIterations( final int maxIterations ) {
+		_maxIterations = maxIterations;
+	}
+
+
+	/** Get the relative change in chi square below which a fit has converged */
+	public double getTolerance() {
+		return _tolerance;
+	}
+
+
+	/** Set the relative change in chi square below which a fit has converged */
+	public void setTolerance( final double tolerance ) {
+		_tolerance = tolerance;
+	}
+
+
+	/** Get the number of threads fitting concurrently */
+	public int getThreadCount() {
+		return _threadCount;
+	}
+
+
+	/**
+	 * Set the number of threads fitting concurrently. The calling thread fits along with threadCount - 1 daemon worker threads which exit when idle.
+	 * Fits already in progress finish on the previous threads which are shut down once those fits complete.
+	 * @param threadCount the number of threads (1 to fit on the calling thread only)
+	 */
+	synchronized public void setThreadCount( final int threadCount ) {
+		final ExecutorService oldExecutor = _executor;
+		_executor = null;
+		if ( oldExecutor != null && !ACTIVE_FIT_COUNTS.containsKey( oldExecutor ) ) {
+			oldExecutor.shutdown();
+		}
+
+		_threadCount = Math.max( threadCount, 1 );
+		if ( _threadCount > 1 ) {
+			final ThreadPoolExecutor executor = new ThreadPoolExecutor( _threadCount - 1, _threadCount - 1, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+				public Thread newThread( final Runnable runnable ) {
+					final Thread thread = new Thread( runnable, "Batch Fitter" );
+					thread.setDaemon( true );
+					return thread;
+				}
+			});
+			executor.allowCoreThreadTimeOut( true );
+			_executor = executor;
+		}
+	}
+
+
+	/**
+	 * Fit datasets which all have the same number of samples.
+	 * @param xValues packed independent variable values, or the values of one dataset if they are shared by all datasets
+	 * @param yValues packed dependent variable values
+	 * @param yErrors packed measurement errors of the dependent variable or null to weight the samples equally
+	 * @param sampleCount number of samples in each dataset
+	 * @return the fit results
+	 */
+	public BatchFitResult fit( final double[] xValues, final double[] yValues, final double[] yErrors, final int sampleCount ) {
+		if ( sampleCount < 1 || yValues.length % sampleCount != 0 )  throw new IllegalArgumentException( "The dependent value count " + yValues.length + " is not a multiple of the sample count " + sampleCount );
+
+		final int datasetCount = yValues.length / sampleCount;
+		final int[] offsets = new int[datasetCount + 1];
+		for ( int dataset = 0 ; dataset <= datasetCount ; dataset++ ) {
+			offsets[dataset] = dataset * sampleCount;
+		}
+		return fit( xValues, yValues, yErrors, offsets, null, null );
+	}
+
+
+	/**
+	 * Fit datasets which may have different numbers of samples.
+	 * @param xValues packed independent variable values (packed like the dependent values)
+	 * @param yValues packed dependent variable values
+	 * @param yErrors packed measurement errors of the dependent variable or null to weight the samples equally
+	 * @param offsets index of each dataset's first sample followed by the total sample count (one more element than datasets)
+	 * @return the fit results
+	 */
+	public BatchFitResult fit( final double[] xValues, final double[] yValues, final double[] yErrors, final int[] offsets ) {
+		return fit( xValues, yValues, yErrors, offsets, null, null );
+	}
+
+
+	/**
+	 * Fit datasets which may have different numbers of samples.
+	 * @param xValues packed independent variable values (packed like the dependent values), or the values of one dataset if all datasets have the same sample count and share them
+	 * @param yValues packed dependent variable values
+	 * @param yErrors packed measurement errors of the dependent variable or null to weight the samples equally
+	 * @param offsets index of each dataset's first sample followed by the total sample count (one more element than datasets)
+	 * @param initialParameters packed initial parameters or null to estimate them with the model
+	 * @param result result to refill or null to allocate a new result
+	 * @return the fit results
+	 */
+	public BatchFitResult fit( final double[] xValues, final double[] yValues, final double[] yErrors, final int[] offsets, final double[] initialParameters, final BatchFitResult result ) {
+		final int datasetCount = offsets.length - 1;
+		final int totalCount = offsets[datasetCount];
+		if ( yValues.length < totalCount )  throw new IllegalArgumentException( "The dependent value count " + yValues.length + " is less than the total sample count " + totalCount );
+		if ( yErrors != null && yErrors.length < totalCount )  throw new IllegalArgumentException( "The error count " + yErrors.length + " is less than the total sample count " + totalCount );
+		if ( initialParameters != null && initialParameters.length < datasetCount * PARAMETER_COUNT )  throw new IllegalArgumentException( "The initial parameter count " + initialParameters.length + " is less than required: " + datasetCount * PARAMETER_COUNT );
+
+		final boolean sharedX = xValues.length < totalCount;
+		if ( sharedX ) {
+			for ( int dataset = 0 ; dataset < datasetCount ; dataset++ ) {
+				if ( offsets[dataset + 1] - offsets[dataset] > xValues.length )  throw new IllegalArgumentException( "The independent value count " + xValues.length + " is less than the sample count of dataset " + dataset );
+			}
+		}
+
+		final BatchFitResult fitResult = result != null ? result : new BatchFitResult();
+		fitResult.setShape( datasetCount, PARAMETER_COUNT );
+
+		final AtomicInteger nextDataset = new AtomicInteger( 0 );
+		final Runnable worker = new Runnable() {
+			public void run() {
+				final FitWorkspace workspace = new FitWorkspace( PARAMETER_COUNT );
+				int firstDataset;
+				while ( ( firstDataset = nextDataset.getAndAdd( DATASET_CHUNK ) ) < datasetCount ) {
+					final int endDataset = Math.min( firstDataset + DATASET_CHUNK, datasetCount );
+					for ( int dataset = firstDataset ; dataset < endDataset ; dataset++ ) {
+						final int yOffset = offsets[dataset];
+						fitDataset( dataset, xValues, sharedX ? 0 : yOffset, yValues, yErrors, yOffset, offsets[dataset + 1] - yOffset, initialParameters, fitResult, workspace );
+					}
+				}
+			}
+		};
+
+		// register the fit with the executor so changing the thread count cannot shut it down before the helpers are submitted and done
+		final ExecutorService executor;
+		final int helperCount;
+		synchronized( this ) {
+			executor = _executor;
+			helperCount = executor != null ? Math.min( _threadCount - 1, ( datasetCount - 1 ) / DATASET_CHUNK ) : 0;
+			if ( helperCount > 0 ) {
+				final Integer activeCount = ACTIVE_FIT_COUNTS.get( executor );
+				ACTIVE_FIT_COUNTS.put( executor, activeCount != null ? activeCount + 1 : 1 );
+			}
+		}
+
+		try {
+			final List<Future<?>> futures = new ArrayList<Future<?>>( helperCount );
+			for ( int helper = 0 ; helper < helperCount ; helper++ ) {
+				futures.add( executor.submit( worker ) );
+			}
+			worker.run();
+
+			for ( final Future<?> future : futures ) {
+				try {
+					future.get();
+				}
+				catch( InterruptedException exception ) {
+					Thread.currentThread().interrupt();
+					throw new RuntimeException( "Interrupted while waiting for the batch fit to complete.", exception );
+				}
+				catch( ExecutionException exception ) {
+					final Throwable cause = exception.getCause();
+					if ( cause instanceof RuntimeException )  throw (RuntimeException)cause;
+					throw new RuntimeException( "Exception fitting a dataset.", cause );
+				}
+			}
+		}
+		finally {
+			if ( helperCount > 0 )  endFit( executor );
+		}
+
+		return fitResult;
+	}
+
+
+	/** unregister a completed fit from the executor which ran its helpers and shut down the executor if it has been replaced and has no other fits */
+	synchronized private void endFit( final ExecutorService executor ) {
+		final int activeCount = ACTIVE_FIT_COUNTS.get( executor ) - 1;
+		if ( activeCount > 0 ) {
+			ACTIVE_FIT_COUNTS.put( executor, activeCount );
+		}
+		else {
+			ACTIVE_FIT_COUNTS.remove( executor );
+			if ( executor != _executor )  executor.shutdown();
+		}
+	}
+
+
+	/** fit one dataset and record the result */
+	private void fitDataset( final int dataset, final double[] xValues, final int xOffset, final double[] yValues, final double[] yErrors, final int yOffset, final int count,
+							final double[] initialParameters, final BatchFitResult result, final FitWorkspace workspace ) {
+		final int parameterCount = PARAMETER_COUNT;
+		final double[] parameters = workspace.PARAMETERS;
+		final double[] trialParameters = workspace.TRIAL_PARAMETERS;
+		final double[] normalMatrix = workspace.NORMAL_MATRIX;
+		final double[] gradient = workspace.GRADIENT;
+		final double[] step = workspace.STEP;
+		final double[] factor = workspace.FACTOR;
+
+		final double[] fittedParameters = result.getParameters();
+		final double[] covariances = result.getCovariances();
+		final int parameterOffset = dataset * parameterCount;
+		final int covarianceOffset = parameterOffset * parameterCount;
+
+		boolean hasInitialParameters;
+		if ( initialParameters != null ) {
+			System.arraycopy( initialParameters, parameterOffset, parameters, 0, parameterCount );
+			hasInitialParameters = true;
+		}
+		else {
+			hasInitialParameters = MODEL.guessParameters( xValues, yValues, xOffset, yOffset, count, parameters );
+		}
+
+		if ( count < parameterCount || !hasInitialParameters ) {
+			Arrays.fill( fittedParameters, parameterOffset, parameterOffset + parameterCount, Double.NaN );
+			Arrays.fill( covariances, covarianceOffset, covarianceOffset + parameterCount * parameterCount, Double.NaN );
+			result.setFit( dataset, Double.NaN, 0, false );
+			return;
+		}
+
+		double chiSquare = accumulateNormalEquations( xValues, xOffset, yValues, yErrors, yOffset, count, parameters, workspace );
+		double damping = 1.0e-3;
+		boolean converged = false;
+		int iterations = 0;
+		while ( iterations < _maxIterations && !converged ) {
+			++iterations;
+
+			// solve ( N + damping * diag( N ) ) step = gradient
+			System.arraycopy( normalMatrix, 0, factor, 0, parameterCount * parameterCount );
+			for ( int index = 0 ; index < parameterCount ; index++ ) {
+				final int diagonal = index * parameterCount + index;
+				factor[diagonal] += damping * Math.max( normalMatrix[diagonal], Double.MIN_NORMAL );
+			}
+			if ( !choleskyDecompose( factor, parameterCount ) ) {
+				damping *= 10.0;
+				if ( damping > MAX_DAMPING )  break;
+				continue;
+			}
+			System.arraycopy( gradient, 0, step, 0, parameterCount );
+			choleskySolve( factor, parameterCount, step );
+
+			for ( int index = 0 ; index < parameterCount ; index++ ) {
+				trialParameters[index] = parameters[index] + step[index];
+			}
+			final double trialChiSquare = chiSquare( xValues, xOffset, yValues, yErrors, yOffset, count, trialParameters, workspace );
+
+			if ( trialChiSquare < chiSquare ) {
+				converged = chiSquare - trialChiSquare <= _tolerance * chiSquare;
+				System.arraycopy( trialParameters, 0, parameters, 0, parameterCount );
+				chiSquare = accumulateNormalEquations( xValues, xOffset, yValues, yErrors, yOffset, count, parameters, workspace );
+				damping = Math.max( damping / 10.0, 1.0e-12 );
+			}
+			else {
+				// no downhill step within numerical precision means the fit is at a minimum
+				damping *= 10.0;
+				converged = damping > MAX_DAMPING || !( trialChiSquare - chiSquare > _tolerance * chiSquare );
+			}
+		}
+
+		// the covariance is the inverse of the normal matrix, scaled by the reduced chi square when the measurement errors are unknown
+		System.arraycopy( parameters, 0, fittedParameters, parameterOffset, parameterCount );
+		System.arraycopy( normalMatrix, 0, factor, 0, parameterCount * parameterCount );
+		if ( choleskyDecompose( factor, parameterCount ) ) {
+			final double scale = yErrors != null ? 1.0 : count > parameterCount ? chiSquare / ( count - parameterCount ) : 0.0;
+			for ( int column = 0 ; column < parameterCount ; column++ ) {
+				Arrays.fill( step, 0.0 );
+				step[column] = 1.0;
+				choleskySolve( factor, parameterCount, step );
+				for ( int row = 0 ; row < parameterCount ; row++ ) {
+					covariances[covarianceOffset + row * parameterCount + column] = scale * step[row];
+				}
+			}
+		}
+		else {
+			Arrays.fill( covariances, covarianceOffset, covarianceOffset + parameterCount * parameterCount, Double.NaN );
+			converged = false;
+		}
+
+		result.setFit( dataset, chiSquare, iterations, converged );
+	}
+
+
+	/** calculate the chi square for the parameters */
+	private double chiSquare( final double[] xValues, final int xOffset, final double[] yValues, final double[] yErrors, final int yOffset, final int count, final double[] parameters, final FitWorkspace workspace ) {
+		final double[] derivatives = workspace.DERIVATIVES;
+		double chiSquare = 0.0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			final double residual = yValues[yOffset + index] - MODEL.evaluate( xValues[xOffset + index], parameters, derivatives );
+			final double weight = yErrors != null ? 1.0 / ( yErrors[yOffset + index] * yErrors[yOffset + index] ) : 1.0;
+			chiSquare += weight * residual * residual;
+		}
+		return Double.isNaN( chiSquare ) ? Double.POSITIVE_INFINITY : chiSquare;
+	}
+
+
+	/** accumulate the normal matrix J^T W J and the gradient J^T W r in the workspace and return the chi square */
+	private double accumulateNormalEquations( final double[] xValues, final int xOffset, final double[] yValues, final double[] yErrors, final int yOffset, final int count, final double[] parameters, final FitWorkspace workspace ) {
+		final int parameterCount = PARAMETER_COUNT;
+		final double[] derivatives = workspace.DERIVATIVES;
+		final double[] normalMatrix = workspace.NORMAL_MATRIX;
+		final double[] gradient = workspace.GRADIENT;
+		Arrays.fill( normalMatrix, 0.0 );
+		Arrays.fill( gradient, 0.0 );
+
+		double chiSquare = 0.0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			final double residual = yValues[yOffset + index] - MODEL.evaluate( xValues[xOffset + index], parameters, derivatives );
+			final double weight = yErrors != null ? 1.0 / ( yErrors[yOffset + index] * yErrors[yOffset + index] ) : 1.0;
+			chiSquare += weight * residual * residual;
+			for ( int row = 0 ; row < parameterCount ; row++ ) {
+				final double weightedDerivative = weight * derivatives[row];
+				gradient[row] += weightedDerivative * residual;
+				final int rowOffset = row * parameterCount;
+				for ( int column = 0 ; column <= row ; column++ ) {
+					normalMatrix[rowOffset + column] += weightedDerivative * derivatives[column];
+				}
+			}
+		}
+
+		// fill the upper triangle by symmetry
+		for ( int row = 0 ; row < parameterCount ; row++ ) {
+			for ( int column = 0 ; column < row ; column++ ) {
+				normalMatrix[column * parameterCount + row] = normalMatrix[row * parameterCount + column];
+			}
+		}
+
+		return Double.isNaN( chiSquare ) ? Double.POSITIVE_INFINITY : chiSquare;
+	}
+
+
+	/** decompose the symmetric positive definite matrix in place into its lower triangular Cholesky factor and return false if it is not positive definite */
+	static private boolean choleskyDecompose( final double[] matrix, final int size ) {
+		for ( int row = 0 ; row < size ; row++ ) {
+			final int rowOffset = row * size;
+			for ( int column = 0 ; column <= row ; column++ ) {
+				final int columnOffset = column * size;
+				double sum = matrix[rowOffset + column];
+				for ( int index = 0 ; index < column ; index++ ) {
+					sum -= matrix[rowOffset + index] * matrix[columnOffset + index];
+				}
+				if ( row == column ) {
+					if ( !( sum > 0.0 ) )  return false;
+					matrix[rowOffset + row] = Math.sqrt( sum );
+				}
+				else {
+					matrix[rowOffset + column] = sum / matrix[columnOffset + column];
+				}
+			}
+		}
+		return true;
+	}
+
+
+	/** solve L L^T x = b in place given the lower triangular Cholesky factor L */
+	static private void choleskySolve( final double[] factor, final int size, final double[] vector ) {
+		for ( int row = 0 ; row < size ; row++ ) {
+			double sum = vector[row];
+			for ( int index = 0 ; index < row ; index++ ) {
+				sum -= factor[row * size + index] * vector[index];
+			}
+			vector[row] = sum / factor[row * size + row];
+		}
+		for ( int row = size - 1 ; row >= 0 ; row-- ) {
+			double sum = vector[row];
+			for ( int index = row + 1 ; index < size ; index++ ) {
+				sum -= factor[index * size + row] * vector[index];
+			}
+			vector[row] = sum / factor[row * size + row];
+		}
+	}
+
+
+
+	/** arrays used by one worker thread for all of its fits */
+	static private class FitWorkspace {
+		/** current parameters */
+		final private double[] PARAMETERS;
+
+		/** trial parameters */
+		final private double[] TRIAL_PARAMETERS;
+
+		/** partial derivatives of the model at a sample */
+		final private double[] DERIVATIVES;
+
+		/** normal matrix J^T W J (row major) */
+		final private double[] NORMAL_MATRIX;
+
+		/** gradient J^T W r */
+		final private double[] GRADIENT;
+
+		/** step solved from the damped normal equations */
+		final private double[] STEP;
+
+		/** Cholesky factor of the damped normal matrix */
+		final private double[] FACTOR;
+
+
+		/** Constructor */
+		private FitWorkspace( final int parameterCount ) {
+			PARAMETERS = new double[parameterCount];
+			TRIAL_PARAMETERS = new double[parameterCount];
+			DERIVATIVES = new double[parameterCount];
+			NORMAL_MATRIX = new double[parameterCount * parameterCount];
+			GRADIENT = new double[parameterCount];
+			STEP = new double[parameterCount];
+			FACTOR = new double[parameterCount * parameterCount];
+		}
+	}
+}
@@ -0,0 +1,51 @@
+//
+// BatchModel.java
+// xal
+//
+
+package xal.extension.fit.batch;
+
+
+/**
+ * Model function of one independent variable fitted by the BatchFitter. The value and all partial derivatives with respect to the parameters are
+ * calculated together so common factors are evaluated once per sample. Implementations are called concurrently from the fitter's worker threads
+ * and so must be thread safe.
+ */
+public interface BatchModel {
+	/**
+	 * Get the number of model parameters.
+	 * @return the number of parameters
+	 */
+	public int getParameterCount();
+
+
+	/**
+	 * Get the name of the parameter at the specified index.
+	 * @param index the parameter index
+	 * @return the parameter name
+	 */
+	public String getParameterName( final int index );
+
+
+	/**
+	 * Evaluate the model and its partial derivatives with respect to each parameter.
+	 * @param x the value of the independent variable
+	 * @param parameters the model parameters
+	 * @param derivatives array (at least as long as the parameter count) to which the partial derivatives are written
+	 * @return the value of the model
+	 */
+	public double evaluate( final double x, final double[] parameters, final double[] derivatives );
+
+
+	/**
+	 * Estimate initial parameters for a dataset.
+	 * @param xValues packed independent variable values
+	 * @param yValues packed dependent variable values
+	 * @param xOffset index of the dataset's first independent variable value
+	 * @param yOffset index of the dataset's first dependent variable value
+	 * @param count number of samples in the dataset
+	 * @param parameters array to which the estimated parameters are written
+	 * @return true if the parameters could be estimated and false if not
+	 */
+	public boolean guessParameters( final double[] xValues, final double[] yValues, final int xOffset, final int yOffset, final int count, final double[] parameters );
+}
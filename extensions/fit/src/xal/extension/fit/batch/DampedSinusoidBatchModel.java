@@ -0,0 +1,152 @@
+//
+// DampedSinusoidBatchModel.java
+// xal
+//
+
+package xal.extension.fit.batch;
+
+import xal.tools.math.FastFourierTransform;
+
+
+/**
+ * Damped sinusoid <code>y = amplitude * exp( growthRate * x ) * sin( 2 pi frequency * x + phase ) + offset</code> such as a turn by turn BPM signal
+ * for which the frequency is the tune when x is the turn number. Initial parameters are estimated from the peak of the power spectrum,
+ * which assumes the samples are equally spaced in x.
+ */
+public class DampedSinusoidBatchModel implements BatchModel {
+	/** index of the amplitude parameter */
+	final static public int AMPLITUDE = 0;
+
+	/** index of the growth rate parameter */
+	final static public int GROWTH_RATE = 1;
+
+	/** index of the frequency parameter */
+	final static public int FREQUENCY = 2;
+
+	/** index of the phase parameter */
+	final static public int PHASE = 3;
+
+	/** index of the offset parameter */
+	final static public int OFFSET = 4;
+
+	/** parameter names */
+	final static private String[] PARAMETER_NAMES = { "amplitude", "growth rate", "frequency", "phase", "offset" };
+
+	/** two pi */
+	final static private double TWO_PI = 2.0 * Math.PI;
+
+	/** scratch arrays (signal and spectrum) for estimating the parameters on each thread */
+	final static private ThreadLocal<double[][]> SCRATCH = new ThreadLocal<double[][]>() {
+		protected double[][] initialValue() {
+			return new double[2][0];
+		}
+	};
+
+
+	/** Get the number of model parameters */
+	public int getParameterCount() {
+		return PARAMETER_NAMES.length;
+	}
+
+
+	/** Get the name of the parameter at the specified index */
+	public String getParameterName( final int index ) {
+		return PARAMETER_NAMES[index];
+	}
+
+
+	/** Evaluate the model and its partial derivatives with respect to each parameter */
+	public double evaluate( final double x, final double[] parameters, final double[] derivatives ) {
+		final double amplitude = parameters[AMPLITUDE];
+		final double envelope = Math.exp( parameters[GROWTH_RATE] * x );
+		final double angle = TWO_PI * parameters[FREQUENCY] * x + parameters[PHASE];
+		final double sine = Math.sin( angle );
+		final double cosine = Math.cos( angle );
+		final double signal = amplitude * envelope * sine;
+		final double phaseSlope = amplitude * envelope * cosine;
+
+		derivatives[AMPLITUDE] = envelope * sine;
+		derivatives[GROWTH_RATE] = x * signal;
+		derivatives[FREQUENCY] = TWO_PI * x * phaseSlope;
+		derivatives[PHASE] = phaseSlope;
+		derivatives[OFFSET] = 1.0;
+
+		return signal + parameters[OFFSET];
+	}
+
+
+	/** Estimate the frequency from the interpolated peak of the power spectrum, then the amplitude and phase by projection and the growth rate from the envelope */
+	public boolean guessParameters( final double[] xValues, final double[] yValues, final int xOffset, final int yOffset, final int count, final double[] parameters ) {
+		if ( count < 6 )  return false;
+
+		final double firstX = xValues[xOffset];
+		final double spacing = ( xValues[xOffset + count - 1] - firstX ) / ( count - 1 );
+		if ( !( spacing > 0.0 ) )  return false;
+
+		double sum = 0.0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			sum += yValues[yOffset + index];
+		}
+		final double mean = sum / count;
+
+		final double[][] scratch = SCRATCH.get();
+		if ( scratch[0].length < count ) {
+			scratch[0] = new double[count];
+			scratch[1] = new double[count];
+		}
+		final double[] signal = scratch[0];
+		final double[] spectrum = scratch[1];
+		for ( int index = 0 ; index < count ; index++ ) {
+			signal[index] = yValues[yOffset + index] - mean;
+		}
+		FastFourierTransform.getInstance( count ).powerSpectrum( signal, spectrum );
+
+		// find the peak below the Nyquist frequency and interpolate the peak magnitude with a parabola
+		final int maxBin = count / 2;
+		int peakBin = 1;
+		for ( int bin = 2 ; bin <= maxBin ; bin++ ) {
+			if ( spectrum[bin] > spectrum[peakBin] )  peakBin = bin;
+		}
+		double binOffset = 0.0;
+		if ( peakBin < maxBin ) {
+			final double lower = Math.sqrt( spectrum[peakBin - 1] );
+			final double peak = Math.sqrt( spectrum[peakBin] );
+			final double upper = Math.sqrt( spectrum[peakBin + 1] );
+			final double denominator = lower - 2.0 * peak + upper;
+			if ( denominator < 0.0 )  binOffset = Math.max( -0.5, Math.min( 0.5, 0.5 * ( lower - upper ) / denominator ) );
+		}
+		final double frequency = ( peakBin + binOffset ) / ( count * spacing );
+
+		// project onto the sine and cosine at the frequency: sin( w x + phase ) = sin( w x ) cos( phase ) + cos( w x ) sin( phase )
+		double sineProjection = 0.0;
+		double cosineProjection = 0.0;
+		double firstHalfPower = 0.0;
+		double secondHalfPower = 0.0;
+		final int halfCount = count / 2;
+		for ( int index = 0 ; index < count ; index++ ) {
+			final double angle = TWO_PI * frequency * xValues[xOffset + index];
+			final double value = signal[index];
+			sineProjection += value * Math.sin( angle );
+			cosineProjection += value * Math.cos( angle );
+			if ( index < halfCount ) {
+				firstHalfPower += value * value;
+			}
+			else if ( index >= count - halfCount ) {
+				secondHalfPower += value * value;
+			}
+		}
+
+		// the envelope ratio between the centers of the two halves gives the growth rate
+		final double halfSpan = ( count - halfCount ) * spacing;
+		final double growthRate = firstHalfPower > 0.0 && secondHalfPower > 0.0 ? 0.5 * Math.log( secondHalfPower / firstHalfPower ) / halfSpan : 0.0;
+
+		// reference the amplitude to x = 0 using the envelope at the center of the samples
+		final double centerX = firstX + 0.5 * ( count - 1 ) * spacing;
+		parameters[AMPLITUDE] = 2.0 * Math.sqrt( sineProjection * sineProjection + cosineProjection * cosineProjection ) / count * Math.exp( - growthRate * centerX );
+		parameters[GROWTH_RATE] = growthRate;
+		parameters[FREQUENCY] = frequency;
+		parameters[PHASE] = Math.atan2( cosineProjection, sineProjection );
+		parameters[OFFSET] = mean;
+		return true;
+	}
+}
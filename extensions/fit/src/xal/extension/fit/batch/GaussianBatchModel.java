@@ -0,0 +1,116 @@
+//
+// GaussianBatchModel.java
+// xal
+//
+
+package xal.extension.fit.batch;
+
+
+/**
+ * Gaussian profile on a constant pedestal: <code>y = pedestal + amplitude * exp( -(x - center)^2 / (2 sigma^2) )</code>.
+ * The parameters are ordered as in xal.extension.fit.lsm.Gaussian: sigma, amplitude, center and pedestal.
+ */
+public class GaussianBatchModel implements BatchModel {
+	/** index of the sigma parameter */
+	final static public int SIGMA = 0;
+
+	/** index of the amplitude parameter */
+	final static public int AMPLITUDE = 1;
+
+	/** index of the center parameter */
+	final static public int CENTER = 2;
+
+	/** index of the pedestal parameter */
+	final static public int PEDESTAL = 3;
+
+	/** parameter names */
+	final static private String[] PARAMETER_NAMES = { "sigma", "amplitude", "center", "pedestal" };
+
+
+	/** Get the number of model parameters */
+	public int getParameterCount() {
+		return PARAMETER_NAMES.length;
+	}
+
+
+	/** Get the name of the parameter at the specified index */
+	public String getParameterName( final int index ) {
+		return PARAMETER_NAMES[index];
+	}
+
+
+	/** Evaluate the model and its partial derivatives with respect to each parameter */
+	public double evaluate( final double x, final double[] parameters, final double[] derivatives ) {
+		final double sigma = parameters[SIGMA];
+		final double amplitude = parameters[AMPLITUDE];
+		final double offset = x - parameters[CENTER];
+		final double inverseVariance = 1.0 / ( sigma * sigma );
+		final double gaussian = Math.exp( -0.5 * offset * offset * inverseVariance );
+		final double peak = amplitude * gaussian;
+
+		derivatives[SIGMA] = peak * offset * offset * inverseVariance / sigma;
+		derivatives[AMPLITUDE] = gaussian;
+		derivatives[CENTER] = peak * offset * inverseVariance;
+		derivatives[PEDESTAL] = 1.0;
+
+		return parameters[PEDESTAL] + peak;
+	}
+
+
+	/** Estimate the parameters from the peak, the minimum and the width at the one sigma level (or the second moment if the peak is not resolved) */
+	public boolean guessParameters( final double[] xValues, final double[] yValues, final int xOffset, final int yOffset, final int count, final double[] parameters ) {
+		if ( count < 2 )  return false;
+
+		double minY = Double.POSITIVE_INFINITY;
+		double maxY = Double.NEGATIVE_INFINITY;
+		int peakIndex = 0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			final double y = yValues[yOffset + index];
+			if ( y < minY )  minY = y;
+			if ( y > maxY ) {
+				maxY = y;
+				peakIndex = index;
+			}
+		}
+		if ( !( maxY > minY ) )  return false;
+
+		// find the extreme crossings of the one sigma level: exp( -1/2 ) of the peak above the pedestal
+		final double level = minY + Math.exp( -0.5 ) * ( maxY - minY );
+		double minCrossing = Double.POSITIVE_INFINITY;
+		double maxCrossing = Double.NEGATIVE_INFINITY;
+		for ( int index = 1 ; index < count ; index++ ) {
+			final double lastY = yValues[yOffset + index - 1];
+			final double y = yValues[yOffset + index];
+			if ( ( level - lastY ) * ( level - y ) <= 0.0 && lastY != y ) {
+				final double lastX = xValues[xOffset + index - 1];
+				final double crossing = lastX + ( xValues[xOffset + index] - lastX ) * ( level - lastY ) / ( y - lastY );
+				if ( crossing < minCrossing )  minCrossing = crossing;
+				if ( crossing > maxCrossing )  maxCrossing = crossing;
+			}
+		}
+
+		double sigma = 0.5 * ( maxCrossing - minCrossing );
+		if ( !( sigma > 0.0 ) || Double.isInfinite( sigma ) ) {
+			// use the second moment of the signal above the pedestal
+			double weightSum = 0.0;
+			double firstMoment = 0.0;
+			double secondMoment = 0.0;
+			for ( int index = 0 ; index < count ; index++ ) {
+				final double weight = yValues[yOffset + index] - minY;
+				final double x = xValues[xOffset + index];
+				weightSum += weight;
+				firstMoment += weight * x;
+				secondMoment += weight * x * x;
+			}
+			final double mean = firstMoment / weightSum;
+			sigma = Math.sqrt( Math.max( secondMoment / weightSum - mean * mean, 0.0 ) );
+			if ( !( sigma > 0.0 ) )  return false;
+		}
+
+		parameters[SIGMA] = sigma;
+		parameters[AMPLITUDE] = maxY - minY;
+		parameters[CENTER] = xValues[xOffset + peakIndex];
+		parameters[PEDESTAL] = minY;
+		return true;
+	}
+}
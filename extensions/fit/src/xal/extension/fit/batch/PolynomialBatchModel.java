@@ -0,0 +1,73 @@
+//
+// PolynomialBatchModel.java
+// xal
+//
+
+package xal.extension.fit.batch;
+
+
+/**
+ * Polynomial <code>y = c0 + c1 x + ... + cn x^n</code> whose parameters are the coefficients in order of increasing power.
+ * The model is linear in its parameters so the fitter converges in one or two iterations.
+ */
+public class PolynomialBatchModel implements BatchModel {
+	/** order of the polynomial */
+	final private int ORDER;
+
+
+	/**
+	 * Constructor
+	 * @param order the order of the polynomial
+	 */
+	public PolynomialBatchModel( final int order ) {
+		if ( order < 0 )  throw new IllegalArgumentException( "The polynomial order must not be negative: " + order );
+		ORDER = order;
+	}
+
+
+	/** Get the order of the polynomial */
+	public int getOrder() {
+		return ORDER;
+	}
+
+
+	/** Get the number of model parameters */
+	public int getParameterCount() {
+		return ORDER + 1;
+	}
+
+
+	/** Get the name of the parameter at the specified index */
+	public String getParameterName( final int index ) {
+		return "c" + index;
+	}
+
+
+	/** Evaluate the model and its partial derivatives with respect to each parameter */
+	public double evaluate( final double x, final double[] parameters, final double[] derivatives ) {
+		double value = 0.0;
+		double power = 1.0;
+		for ( int index = 0 ; index <= ORDER ; index++ ) {
+			derivatives[index] = power;
+			value += parameters[index] * power;
+			power *= x;
+		}
+		return value;
+	}
+
+
+	/** Start from a constant polynomial at the mean value */
+	public boolean guessParameters( final double[] xValues, final double[] yValues, final int xOffset, final int yOffset, final int count, final double[] parameters ) {
+		if ( count < 1 )  return false;
+
+		double sum = 0.0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			sum += yValues[yOffset + index];
+		}
+		parameters[0] = sum / count;
+		for ( int index = 1 ; index <= ORDER ; index++ ) {
+			parameters[index] = 0.0;
+		}
+		return true;
+	}
+}
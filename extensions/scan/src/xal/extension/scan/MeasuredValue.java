@@ -112,7 +112,26 @@ public class MeasuredValue{
         sumValues  = sumValues + currValue;
         sumValues2 = sumValues2 + currValue*currValue;
     }
-    
+
+    /** accumulates a raw value acquired elsewhere (e.g. by a batch get) with the offset read at the same time */
+    void measure(double rawValue, double offSetValue){
+        currValue = rawValue - offSetValue;
+        if(transFunc != null){
+            currValue =  transFunc.transform(this,currValue);
+        }
+        nMeasurements++;
+        sumValues  = sumValues + currValue;
+        sumValues2 = sumValues2 + currValue*currValue;
+    }
+
+    /** returns the current value of the offset PV or 0 if there is no offset */
+    double getOffSetValue(){
+        if(offSetVal != null){
+            return offSetVal.getValue();
+        }
+        return 0.0;
+    }
+
     public double getMeasurement(){
         if( nMeasurements > 0 ){
             return sumValues/nMeasurements;
@@ -0,0 +1,720 @@
+/*
+ * ScanEngine.java
+ *
+ * Created on Mon Oct 19 2026
+ */
+
+package xal.extension.scan;
+
+import xal.ca.*;
+import xal.tools.messaging.MessageCenter;
+
+import java.awt.event.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+
+/**
+ * Headless engine which drives a scan plan over one or more scan variables as a pipeline.
+ * The plan is the grid of the axis values with the last axis added varying fastest, so two axes
+ * reproduce the point order of ScanController2D. At each point only the axes whose setpoints change
+ * are put, and the engine moves on as soon as every changed readback is within its tolerance of the
+ * setpoint rather than after a fixed delay. Axes without a readback or tolerance fall back to the
+ * fixed settle delay. All measured channels are read with one batch get per sample, and the averaging
+ * and publication of each point run on a reduction thread while the next setpoints are issued.
+ */
+public class ScanEngine {
+	/** default time in seconds to wait for axes without a readback tolerance (matches the scan controller's default) */
+	final static private double DEFAULT_SETTLE_DELAY = 0.2;
+
+	/** default maximum time in seconds to wait for readbacks to settle */
+	final static private double DEFAULT_SETTLE_TIMEOUT = 5.0;
+
+	/** default timeout in seconds for each batch get */
+	final static private double DEFAULT_GET_TIMEOUT = 2.0;
+
+	/** maximum number of consecutive invalid samples before the scan is stopped */
+	final static private int MAX_BAD_SAMPLES = 10;
+
+	/** message center for dispatching scan events */
+	final private MessageCenter MESSAGE_CENTER;
+
+	/** proxy which forwards scan events to registered listeners */
+	final private ScanEngineListener EVENT_PROXY;
+
+	/** scan axes ordered from the outermost to the innermost */
+	final private List<Axis> AXES;
+
+	/** measured values to acquire at each point */
+	final private List<MeasuredValue> MEASURED_VALUES;
+
+	/** values which must lie within the validation limits for a sample to be accepted */
+	final private List<MeasuredValue> VALIDATION_VALUES;
+
+	/** lock on which the scan thread waits for readbacks to settle */
+	final private Object SETTLE_LOCK;
+
+	/** notifies the settle lock whenever a readback changes */
+	final private ActionListener READBACK_HANDLER;
+
+	/** points measured during the latest scan */
+	final private List<ScanPoint> POINTS;
+
+	/** time in seconds to wait for axes without a readback tolerance */
+	private volatile double _settleDelay;
+
+	/** minimum time in seconds to wait after a setting even when the readbacks are already within tolerance */
+	private volatile double _minimumSettleTime;
+
+	/** maximum time in seconds to wait for readbacks to settle */
+	private volatile double _settleTimeout;
+
+	/** timeout in seconds for each batch get */
+	private volatile double _getTimeout;
+
+	/** number of samples to average at each point */
+	private volatile int _averageCount;
+
+	/** delay in seconds between samples at the same point */
+	private volatile double _averageDelay;
+
+	/** lower validation limit */
+	private volatile double _lowValidationLimit;
+
+	/** upper validation limit */
+	private volatile double _upperValidationLimit;
+
+	/** optional trigger pulsed before each sample */
+	private volatile BeamTrigger _beamTrigger;
+
+	/** indicates whether averaged points are added to the graph data containers of the measured values */
+	private volatile boolean _publishesData;
+
+	/** indicates whether a scan is running */
+	private volatile boolean _running;
+
+	/** generation of the latest scan which lets a scan that was stopped tell that a newer scan has taken over */
+	private volatile long _scanGeneration;
+
+	/** thread which issues setpoints and acquires samples */
+	private volatile Thread _scanThread;
+
+	/** latch released once the latest scan has ended */
+	private volatile CountDownLatch _completionLatch;
+
+
+	/** Constructor */
+	public ScanEngine() {
+		MESSAGE_CENTER = new MessageCenter( "Scan Engine" );
+		EVENT_PROXY = MESSAGE_CENTER.registerSource( this, ScanEngineListener.class );
+
+		AXES = new ArrayList<Axis>();
+		MEASURED_VALUES = new ArrayList<MeasuredValue>();
+		VALIDATION_VALUES = new ArrayList<MeasuredValue>();
+		POINTS = new ArrayList<ScanPoint>();
+		SETTLE_LOCK = new Object();
+		READBACK_HANDLER = new ActionListener() {
+			public void actionPerformed( final ActionEvent event ) {
+				synchronized( SETTLE_LOCK ) {
+					SETTLE_LOCK.notifyAll();
+				}
+			}
+		};
+
+		_settleDelay = DEFAULT_SETTLE_DELAY;
+		_minimumSettleTime = 0.0;
+		_settleTimeout = DEFAULT_SETTLE_TIMEOUT;
+		_getTimeout = DEFAULT_GET_TIMEOUT;
+		_averageCount = 1;
+		_averageDelay = 0.0;
+		_lowValidationLimit = Double.NEGATIVE_INFINITY;
+		_upperValidationLimit = Double.POSITIVE_INFINITY;
+		_publishesData = true;
+		_running = false;
+		_scanGeneration = 0;
+		_completionLatch = new CountDownLatch( 0 );
+	}
+
+
+	/**
+	 * Add a listener of scan events
+	 * @param listener the listener to add
+	 */
+	public void addScanEngineListener( final ScanEngineListener listener ) {
+		MESSAGE_CENTER.registerTarget( listener, this, ScanEngineListener.class );
+	}
+
+
+	/**
+	 * Remove a listener of scan events
+	 * @param listener the listener to remove
+	 */
+	public void removeScanEngineListener( final ScanEngineListener listener ) {
+		MESSAGE_CENTER.removeTarget( listener, this, ScanEngineListener.class );
+	}
+
+
+	/**
+	 * Add a scan axis inside the axes added so far.
+	 * @param variable the scan variable to set
+	 * @param values the setpoints of the axis in scan order
+	 * @param tolerance maximum difference between the readback and the setpoint for the axis to be settled, or zero to use the fixed settle delay
+	 */
+	synchronized public void addAxis( final ScanVariable variable, final double[] values, final double tolerance ) {
+		checkIdle();
+		AXES.add( new Axis( variable, values.clone(), tolerance ) );
+	}
+
+
+	/** Remove all scan axes */
+	synchronized public void removeAllAxes() {
+		checkIdle();
+		AXES.clear();
+	}
+
+
+	/**
+	 * Add a measured value to acquire at each point
+	 * @param measuredValue the measured value
+	 */
+	synchronized public void addMeasuredValue( final MeasuredValue measuredValue ) {
+		checkIdle();
+		MEASURED_VALUES.add( measuredValue );
+	}
+
+
+	/** Remove all measured values */
+	synchronized public void removeAllMeasuredValues() {
+		checkIdle();
+		MEASURED_VALUES.clear();
+	}
+
+
+	/**
+	 * Add a value which must lie within the validation limits for a sample to be accepted
+	 * @param validationValue the validation value
+	 */
+	synchronized public void addValidationValue( final MeasuredValue validationValue ) {
+		checkIdle();
+		VALIDATION_VALUES.add( validationValue );
+	}
+
+
+	/** Remove all validation values */
+	synchronized public void removeAllValidationValues() {
+		checkIdle();
+		VALIDATION_VALUES.clear();
+	}
+
+
+	/**
+	 * Set the limits within which the validation values must lie for a sample to be accepted
+	 * @param lowLimit the lower limit
+	 * @param upperLimit the upper limit
+	 */
+	public void setValidationLimits( final double lowLimit, final double upperLimit ) {
+		_lowValidationLimit = lowLimit;
+		_upperValidationLimit = upperLimit;
+	}
+
+
+	/**
+	 * Set the trigger to pulse before each sample
+	 * @param beamTrigger the trigger or null for none
+	 */
+	public void setBeamTrigger( final BeamTrigger beamTrigger ) {
+		_beamTrigger = beamTrigger;
+	}
+
+
+	/**
+	 * Set the time to wait after a setting for axes which have no readback tolerance
+	 * @param settleDelay the delay in seconds
+	 */
+	public void setSettleDelay( final double settleDelay ) {
+		_settleDelay = settleDelay;
+	}
+
+
+	/** @return the time in seconds to wait for axes without a readback tolerance */
+	public double getSettleDelay() {
+		return _settleDelay;
+	}
+
+
+	/**
+	 * Set the minimum time to wait after a setting even if the readbacks are already within tolerance
+	 * @param minimumSettleTime the minimum time in seconds
+	 */
+	public void setMinimumSettleTime( final double minimumSettleTime ) {
+		_minimumSettleTime = minimumSettleTime;
+	}
+
+
+	/**
+	 * Set the maximum time to wait for the readbacks to settle before measuring anyway
+	 * @param settleTimeout the timeout in seconds
+	 */
+	public void setSettleTimeout( final double settleTimeout ) {
+		_settleTimeout = settleTimeout;
+	}
+
+
+	/**
+	 * Set the timeout of each batch get of the measured values
+	 * @param getTimeout the timeout in seconds
+	 */
+	public void setGetTimeout( final double getTimeout ) {
+		_getTimeout = getTimeout;
+	}
+
+
+	/**
+	 * Set the averaging at each point
+	 * @param averageCount the number of samples to average
+	 * @param averageDelay the delay in seconds between samples
+	 */
+	public void setAveraging( final int averageCount, final double averageDelay ) {
+		_averageCount = Math.max( 1, averageCount );
+		_averageDelay = averageDelay;
+	}
+
+
+	/**
+	 * Take the averaging from an averaging controller
+	 * @param avgController the averaging controller
+	 */
+	public void setAveraging( final AvgController avgController ) {
+		setAveraging( avgController.getAvgNumber(), avgController.getTimeDelay() );
+	}
+
+
+	/**
+	 * Set whether averaged points are added to the graph data containers of the measured values
+	 * @param publishesData true to add points to the data containers and false to only post events
+	 */
+	public void setPublishesData( final boolean publishesData ) {
+		_publishesData = publishesData;
+	}
+
+
+	/** @return the number of points in the scan plan */
+	synchronized public int getPointCount() {
+		return getPointCount( AXES.toArray( new Axis[AXES.size()] ) );
+	}
+
+
+	/** get the number of points in the plan over the specified axes */
+	static private int getPointCount( final Axis[] axes ) {
+		if ( axes.length == 0 )  return 0;
+
+		int count = 1;
+		for ( final Axis axis : axes ) {
+			count *= axis.VALUES.length;
+		}
+		return count;
+	}
+
+
+	/** @return the points measured so far in the latest scan */
+	public List<ScanPoint> getPoints() {
+		synchronized( POINTS ) {
+			return new ArrayList<ScanPoint>( POINTS );
+		}
+	}
+
+
+	/** @return true if a scan is running and false if not */
+	public boolean isRunning() {
+		return _running;
+	}
+
+
+	/**
+	 * Start the scan plan on a new thread. A scan which was stopped but has not yet ended winds down on its own without
+	 * affecting the new scan, and its points which have not been posted yet are dropped.
+	 */
+	synchronized public void start() {
+		checkIdle();
+		if ( AXES.isEmpty() )  throw new IllegalStateException( "The scan engine has no scan axes." );
+
+		// a point of a stopped scan which is still being reduced finishes before the points are cleared
+		final long generation;
+		synchronized( POINTS ) {
+			POINTS.clear();
+			generation = ++_scanGeneration;
+		}
+
+		final Axis[] axes = AXES.toArray( new Axis[AXES.size()] );
+		final MeasuredValue[] measuredValues = MEASURED_VALUES.toArray( new MeasuredValue[MEASURED_VALUES.size()] );
+		final MeasuredValue[] validationValues = VALIDATION_VALUES.toArray( new MeasuredValue[VALIDATION_VALUES.size()] );
+
+		final CountDownLatch completionLatch = new CountDownLatch( 1 );
+		final ExecutorService reductionExecutor = Executors.newSingleThreadExecutor( new ThreadFactory() {
+			public Thread newThread( final Runnable runnable ) {
+				final Thread thread = new Thread( runnable, "Scan Engine Reduction" );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+		_running = true;
+		_completionLatch = completionLatch;
+
+		final Thread scanThread = new Thread( new Runnable() {
+			public void run() {
+				runScan( generation, axes, measuredValues, validationValues, reductionExecutor, completionLatch );
+			}
+		}, "Scan Engine" );
+		scanThread.setDaemon( true );
+		_scanThread = scanThread;
+		scanThread.start();
+	}
+
+
+	/** Stop the scan after the current point. Points already acquired are still posted. */
+	public void stop() {
+		_running = false;
+		final Thread scanThread = _scanThread;
+		if ( scanThread != null ) {
+			scanThread.interrupt();
+		}
+	}
+
+
+	/**
+	 * Wait for the latest scan to end and its points to be posted
+	 * @param timeout the maximum time to wait in seconds
+	 * @return true if the scan ended and false if the timeout expired first
+	 * @throws InterruptedException if the waiting thread is interrupted
+	 */
+	public boolean awaitCompletion( final double timeout ) throws InterruptedException {
+		return _completionLatch.await( (long)( 1000 * timeout ), TimeUnit.MILLISECONDS );
+	}
+
+
+	/** verify that no scan is running before the plan is modified */
+	private void checkIdle() {
+		if ( _running )  throw new IllegalStateException( "The scan plan cannot be modified while a scan is running." );
+	}
+
+
+	/**
+	 * Determine whether the scan of the specified generation should keep running
+	 * @return true if the scan has neither been stopped nor replaced by a newer scan
+	 */
+	private boolean isActive( final long generation ) {
+		return _running && _scanGeneration == generation;
+	}
+
+
+	/** issue the setpoints, wait for them to settle, acquire the samples and hand each point off for reduction */
+	private void runScan( final long generation, final Axis[] axes, final MeasuredValue[] measuredValues, final MeasuredValue[] validationValues, final ExecutorService reductionExecutor, final CountDownLatch completionLatch ) {
+		final int pointCount = getPointCount( axes );
+		final int axisCount = axes.length;
+		final int measuredCount = measuredValues.length;
+		final double[] setpoints = new double[axisCount];
+		final boolean[] changed = new boolean[axisCount];
+		Arrays.fill( setpoints, Double.NaN );
+
+		final Channel[] channels = new Channel[measuredCount];
+		final Set<Channel> batchChannels = new HashSet<Channel>();
+		for ( int index = 0 ; index < measuredCount ; index++ ) {
+			channels[index] = measuredValues[index].getChannel();
+			if ( channels[index] != null )  batchChannels.add( channels[index] );
+		}
+		final BatchGetValueRequest request = batchChannels.isEmpty() ? null : new BatchGetValueRequest( batchChannels );
+
+		for ( final Axis axis : axes ) {
+			axis.addReadbackListener( READBACK_HANDLER );
+		}
+
+		boolean completed = false;
+		try {
+			for ( int pointIndex = 0 ; pointIndex < pointCount && isActive( generation ) ; pointIndex++ ) {
+				// decompose the point index with the last axis varying fastest
+				boolean newSet = pointIndex == 0;
+				for ( int axisIndex = axisCount - 1, remainder = pointIndex ; axisIndex >= 0 ; axisIndex-- ) {
+					final Axis axis = axes[axisIndex];
+					final double setpoint = axis.VALUES[remainder % axis.VALUES.length];
+					remainder /= axis.VALUES.length;
+
+					changed[axisIndex] = setpoint != setpoints[axisIndex];
+					if ( changed[axisIndex] ) {
+						setpoints[axisIndex] = setpoint;
+						axis.VARIABLE.setValue( setpoint );
+						if ( axisIndex < axisCount - 1 )  newSet = true;
+					}
+				}
+
+				final long settleStart = System.nanoTime();
+				final boolean settled = awaitSettle( generation, axes, setpoints, changed, settleStart );
+				final double settleTime = 1.0e-9 * ( System.nanoTime() - settleStart );
+				if ( !isActive( generation ) )  break;
+
+				final double[][] samples = acquireSamples( generation, request, channels, measuredValues, validationValues );
+				if ( samples == null )  break;
+
+				final double[] readbacks = new double[axisCount];
+				for ( int axisIndex = 0 ; axisIndex < axisCount ; axisIndex++ ) {
+					readbacks[axisIndex] = axes[axisIndex].getReadback();
+				}
+
+				final ScanPoint point = new ScanPoint( pointIndex, setpoints.clone(), readbacks, measuredCount, settleTime, settled );
+				final boolean startsNewSet = newSet;
+				reductionExecutor.submit( new Runnable() {
+					public void run() {
+						reducePoint( generation, point, samples, measuredValues, startsNewSet, axes[axisCount-1].hasReadback() );
+					}
+				});
+
+				completed = pointIndex == pointCount - 1;
+			}
+		}
+		finally {
+			for ( final Axis axis : axes ) {
+				axis.removeReadbackListener( READBACK_HANDLER );
+			}
+
+			final boolean scanCompleted = completed;
+			reductionExecutor.submit( new Runnable() {
+				public void run() {
+					// a newer scan owns the engine state once it has started
+					synchronized( ScanEngine.this ) {
+						if ( _scanGeneration == generation ) {
+							_running = false;
+							_scanThread = null;
+						}
+					}
+					EVENT_PROXY.scanEnded( ScanEngine.this, scanCompleted );
+					completionLatch.countDown();
+				}
+			});
+			reductionExecutor.shutdown();
+		}
+	}
+
+
+	/**
+	 * Wait until the readback of every changed axis is within its tolerance, the fixed delay has passed for axes without a tolerance, or the settle timeout expires.
+	 * @return true if the axes settled and false if the timeout expired first
+	 */
+	private boolean awaitSettle( final long generation, final Axis[] axes, final double[] setpoints, final boolean[] changed, final long settleStart ) {
+		boolean anyChanged = false;
+		long minimumEnd = settleStart + (long)( 1.0e9 * _minimumSettleTime );
+		for ( int axisIndex = 0 ; axisIndex < axes.length ; axisIndex++ ) {
+			if ( changed[axisIndex] ) {
+				anyChanged = true;
+				if ( !axes[axisIndex].hasTolerance() ) {
+					minimumEnd = Math.max( minimumEnd, settleStart + (long)( 1.0e9 * _settleDelay ) );
+				}
+			}
+		}
+		if ( !anyChanged )  return true;
+
+		final long deadline = settleStart + (long)( 1.0e9 * Math.max( _settleTimeout, _settleDelay ) );
+		synchronized( SETTLE_LOCK ) {
+			while ( isActive( generation ) ) {
+				final long now = System.nanoTime();
+				if ( now >= minimumEnd && areSettled( axes, setpoints, changed ) )  return true;
+				if ( now >= deadline )  return false;
+
+				// readback events notify the lock so this wakes up as soon as a readback moves
+				final long waitEnd = now < minimumEnd ? minimumEnd : deadline;
+				final long waitMillis = Math.max( 1, ( waitEnd - now ) / 1000000 );
+				try {
+					SETTLE_LOCK.wait( waitMillis );
+				}
+				catch( InterruptedException exception ) {
+					return false;
+				}
+			}
+		}
+		return false;
+	}
+
+
+	/** determine whether the readbacks of the changed axes with a tolerance are within tolerance of their setpoints */
+	private boolean areSettled( final Axis[] axes, final double[] setpoints, final boolean[] changed ) {
+		for ( int axisIndex = 0 ; axisIndex < axes.length ; axisIndex++ ) {
+			if ( changed[axisIndex] && axes[axisIndex].hasTolerance() && !axes[axisIndex].isSettled( setpoints[axisIndex] ) )  return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Acquire the samples of the measured values with one batch get per sample.
+	 * @return the raw samples and offsets indexed by measured value then sample (offsets follow the samples), or null if the scan was stopped
+	 */
+	private double[][] acquireSamples( final long generation, final BatchGetValueRequest request, final Channel[] channels, final MeasuredValue[] measuredValues, final MeasuredValue[] validationValues ) {
+		final int averageCount = _averageCount;
+		final double averageDelay = _averageDelay;
+		final int measuredCount = measuredValues.length;
+		final double[][] samples = new double[measuredCount][2 * averageCount];
+
+		int badCount = 0;
+		for ( int sampleIndex = 0 ; sampleIndex < averageCount ; ) {
+			if ( !isActive( generation ) )  return null;
+
+			final BeamTrigger beamTrigger = _beamTrigger;
+			if ( beamTrigger != null )  beamTrigger.makePulse();
+
+			if ( !isValid( validationValues ) ) {
+				if ( ++badCount > MAX_BAD_SAMPLES ) {
+					System.err.println( "Scan engine stopped: cannot validate measurements." );
+					return null;
+				}
+				if ( !pause( generation, Math.max( averageDelay, _settleDelay ) ) )  return null;
+				continue;
+			}
+			badCount = 0;
+
+			if ( request != null )  request.submitAndWait( _getTimeout );
+			for ( int index = 0 ; index < measuredCount ; index++ ) {
+				final ChannelRecord record = channels[index] != null ? request.getRecord( channels[index] ) : null;
+				samples[index][sampleIndex] = record != null ? record.doubleValue() : Double.NaN;
+				samples[index][averageCount + sampleIndex] = measuredValues[index].getOffSetValue();
+			}
+
+			if ( ++sampleIndex < averageCount && averageDelay > 0.0 ) {
+				if ( !pause( generation, averageDelay ) )  return null;
+			}
+		}
+
+		return samples;
+	}
+
+
+	/** determine whether all validation values lie within the validation limits */
+	private boolean isValid( final MeasuredValue[] validationValues ) {
+		for ( final MeasuredValue validationValue : validationValues ) {
+			final double value = validationValue.getValue();
+			if ( value < _lowValidationLimit || value > _upperValidationLimit )  return false;
+		}
+		return true;
+	}
+
+
+	/**
+	 * Sleep for the specified time unless the scan is stopped
+	 * @return true if the scan is still running
+	 */
+	private boolean pause( final long generation, final double seconds ) {
+		try {
+			Thread.sleep( (long)( 1000 * seconds ) );
+		}
+		catch( InterruptedException exception ) {
+			return false;
+		}
+		return isActive( generation );
+	}
+
+
+	/**
+	 * Average the samples of a point, publish them to the data containers if requested and post the point.
+	 * The point is dropped if a newer scan has started since the measured values now belong to the newer scan.
+	 */
+	private void reducePoint( final long generation, final ScanPoint point, final double[][] samples, final MeasuredValue[] measuredValues, final boolean startsNewSet, final boolean hasReadback ) {
+		synchronized( POINTS ) {
+			if ( _scanGeneration != generation )  return;
+			reduceMeasurements( point, samples, measuredValues, startsNewSet, hasReadback );
+			POINTS.add( point );
+		}
+		EVENT_PROXY.pointMeasured( this, point );
+	}
+
+
+	/** average the samples of each measured value into the point and publish them to the data containers if requested */
+	private void reduceMeasurements( final ScanPoint point, final double[][] samples, final MeasuredValue[] measuredValues, final boolean startsNewSet, final boolean hasReadback ) {
+		final int axisIndex = point.getAxisCount() - 1;
+		final double scanValue = point.getSetpoint( axisIndex );
+		final boolean publishesData = _publishesData;
+
+		for ( int index = 0 ; index < measuredValues.length ; index++ ) {
+			final MeasuredValue measuredValue = measuredValues[index];
+			final double[] measuredSamples = samples[index];
+			final int averageCount = measuredSamples.length / 2;
+
+			measuredValue.restoreIniState();
+			for ( int sampleIndex = 0 ; sampleIndex < averageCount ; sampleIndex++ ) {
+				final double sample = measuredSamples[sampleIndex];
+				if ( !Double.isNaN( sample ) ) {
+					measuredValue.measure( sample, measuredSamples[averageCount + sampleIndex] );
+				}
+			}
+
+			final int sampleCount = measuredValue.getNumberOfAveraging();
+			final double mean = sampleCount > 0 ? measuredValue.getMeasurement() : Double.NaN;
+			point.setMeasurement( index, mean, measuredValue.getMeasurementSigma(), sampleCount );
+
+			if ( publishesData && sampleCount > 0 ) {
+				if ( startsNewSet ) {
+					measuredValue.createNewDataContainer();
+					if ( hasReadback )  measuredValue.createNewDataContainerRB();
+				}
+				measuredValue.consumeData( scanValue );
+				if ( hasReadback )  measuredValue.consumeDataRB( point.getReadback( axisIndex ) );
+			}
+		}
+	}
+
+
+
+	/** scan variable with its setpoints and readback tolerance */
+	static private class Axis {
+		/** scan variable to set */
+		final private ScanVariable VARIABLE;
+
+		/** setpoints in scan order */
+		final private double[] VALUES;
+
+		/** maximum difference between the readback and the setpoint for the axis to be settled */
+		final private double TOLERANCE;
+
+
+		/** Constructor */
+		public Axis( final ScanVariable variable, final double[] values, final double tolerance ) {
+			if ( values.length == 0 )  throw new IllegalArgumentException( "A scan axis must have at least one value." );
+
+			VARIABLE = variable;
+			VALUES = values;
+			TOLERANCE = tolerance;
+		}
+
+
+		/** determine whether the axis has a readback channel */
+		public boolean hasReadback() {
+			return VARIABLE.getMonitoredPV_RB() != null && VARIABLE.getChannelRB() != null;
+		}
+
+
+		/** determine whether settling is judged from the readback */
+		public boolean hasTolerance() {
+			return TOLERANCE > 0.0 && hasReadback();
+		}
+
+
+		/** determine whether the monitored readback is within tolerance of the setpoint */
+		public boolean isSettled( final double setpoint ) {
+			return VARIABLE.getMonitoredPV_RB().isGood() && Math.abs( VARIABLE.getValueRB() - setpoint ) <= TOLERANCE;
+		}
+
+
+		/** get the monitored readback or NaN if there is none */
+		public double getReadback() {
+			return hasReadback() ? VARIABLE.getValueRB() : Double.NaN;
+		}
+
+
+		/** listen for changes of the monitored readback */
+		public void addReadbackListener( final ActionListener listener ) {
+			if ( VARIABLE.getMonitoredPV_RB() != null )  VARIABLE.getMonitoredPV_RB().addValueListener( listener );
+		}
+
+
+		/** stop listening for changes of the monitored readback */
+		public void removeReadbackListener( final ActionListener listener ) {
+			if ( VARIABLE.getMonitoredPV_RB() != null )  VARIABLE.getMonitoredPV_RB().removeValueListener( listener );
+		}
+	}
+}
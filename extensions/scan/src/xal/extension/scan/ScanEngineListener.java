@@ -0,0 +1,26 @@
+/*
+ * ScanEngineListener.java
+ *
+ * Created on Mon Oct 19 2026
+ */
+
+package xal.extension.scan;
+
+
+/** Receives the results of a scan driven by a ScanEngine. Events are posted from the engine's reduction thread in point order. */
+public interface ScanEngineListener {
+	/**
+	 * Event indicating that a scan point has been acquired and averaged
+	 * @param engine the engine driving the scan
+	 * @param point the averaged scan point
+	 */
+	public void pointMeasured( final ScanEngine engine, final ScanPoint point );
+
+
+	/**
+	 * Event indicating that the scan has ended after all of its points have been posted
+	 * @param engine the engine driving the scan
+	 * @param completed true if every point of the plan was measured and false if the scan was stopped
+	 */
+	public void scanEnded( final ScanEngine engine, final boolean completed );
+}
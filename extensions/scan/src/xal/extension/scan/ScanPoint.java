@@ -0,0 +1,136 @@
+/*
+ * ScanPoint.java
+ *
+ * Created on Mon Oct 19 2026
+ */
+
+package xal.extension.scan;
+
+
+/** Averaged measurements at one setting of the scan variables of a ScanEngine plan */
+public class ScanPoint {
+	/** index of the point within the scan plan */
+	final private int INDEX;
+
+	/** setpoint of each scan axis ordered from the outermost to the innermost */
+	final private double[] SETPOINTS;
+
+	/** readback of each scan axis when the measurements were taken (NaN if there is no readback) */
+	final private double[] READBACKS;
+
+	/** mean of each measured value */
+	final private double[] MEANS;
+
+	/** standard deviation of each measured value */
+	final private double[] SIGMAS;
+
+	/** number of valid samples averaged for each measured value */
+	final private int[] SAMPLE_COUNTS;
+
+	/** time in seconds from issuing the setpoints until the readbacks settled */
+	final private double SETTLE_TIME;
+
+	/** indicates whether all readbacks settled within tolerance before the settle timeout */
+	final private boolean SETTLED;
+
+
+	/** Constructor */
+	ScanPoint( final int index, final double[] setpoints, final double[] readbacks, final int measuredCount, final double settleTime, final boolean settled ) {
+		INDEX = index;
+		SETPOINTS = setpoints;
+		READBACKS = readbacks;
+		MEANS = new double[measuredCount];
+		SIGMAS = new double[measuredCount];
+		SAMPLE_COUNTS = new int[measuredCount];
+		SETTLE_TIME = settleTime;
+		SETTLED = settled;
+	}
+
+
+	/** record the statistics of the measured value at the specified index */
+	void setMeasurement( final int measuredIndex, final double mean, final double sigma, final int sampleCount ) {
+		MEANS[measuredIndex] = mean;
+		SIGMAS[measuredIndex] = sigma;
+		SAMPLE_COUNTS[measuredIndex] = sampleCount;
+	}
+
+
+	/** @return the index of this point within the scan plan */
+	public int getIndex() {
+		return INDEX;
+	}
+
+
+	/** @return the number of scan axes */
+	public int getAxisCount() {
+		return SETPOINTS.length;
+	}
+
+
+	/**
+	 * Get the setpoint of a scan axis
+	 * @param axisIndex index of the axis with 0 being the outermost
+	 * @return the setpoint
+	 */
+	public double getSetpoint( final int axisIndex ) {
+		return SETPOINTS[axisIndex];
+	}
+
+
+	/**
+	 * Get the readback of a scan axis at the time of measurement
+	 * @param axisIndex index of the axis with 0 being the outermost
+	 * @return the readback or NaN if the axis has no readback
+	 */
+	public double getReadback( final int axisIndex ) {
+		return READBACKS[axisIndex];
+	}
+
+
+	/** @return the number of measured values */
+	public int getMeasuredCount() {
+		return MEANS.length;
+	}
+
+
+	/**
+	 * Get the averaged value of a measured value
+	 * @param measuredIndex index of the measured value in the order it was added to the engine
+	 * @return the mean or NaN if no valid sample was acquired
+	 */
+	public double getMean( final int measuredIndex ) {
+		return MEANS[measuredIndex];
+	}
+
+
+	/**
+	 * Get the standard deviation of a measured value
+	 * @param measuredIndex index of the measured value in the order it was added to the engine
+	 * @return the standard deviation of the averaged samples
+	 */
+	public double getSigma( final int measuredIndex ) {
+		return SIGMAS[measuredIndex];
+	}
+
+
+	/**
+	 * Get the number of valid samples averaged for a measured value
+	 * @param measuredIndex index of the measured value in the order it was added to the engine
+	 * @return the number of samples
+	 */
+	public int getSampleCount( final int measuredIndex ) {
+		return SAMPLE_COUNTS[measuredIndex];
+	}
+
+
+	/** @return the time in seconds from issuing the setpoints until the readbacks settled */
+	public double getSettleTime() {
+		return SETTLE_TIME;
+	}
+
+
+	/** @return true if all readbacks settled within tolerance and false if the settle timeout expired first */
+	public boolean isSettled() {
+		return SETTLED;
+	}
+}
@@ -16,10 +16,14 @@ import xal.extension.solver.constraint.*;
 import xal.extension.solver.market.*;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * AlgorithmSchedule keeps track of and executes the next algorithm based on its score.
  * Schedule also sets a trial and a stopper.
+ * Batches of trial points may be evaluated concurrently on an evaluation executor when the problem has an
+ * evaluator factory. Trials are always validated, judged and posted to listeners on the solver thread in the
+ * order they were proposed, so the score board and stopper see the same sequence of trials as a serial run.
  *
  * @author   ky6
  * @author   t6p
@@ -46,6 +50,18 @@ public class AlgorithmSchedule {
     /** the maximum proposed Evalautions defined by the largest minimumEvaluations of an algorithm */
     private int _proposedEvaluations;
 	
+	/** executor for evaluating batches of trials concurrently or null to evaluate trials on the solver thread */
+	private Executor _evaluationExecutor;
+	
+	/** executor service created and owned by this schedule (if any) which must be shutdown when replaced */
+	private ExecutorService _ownedEvaluationExecutor;
+	
+	/** number of trials that can be evaluated concurrently by the evaluation executor */
+	private int _evaluationParallelism;
+	
+	/** evaluator confined to the current evaluation thread */
+	final private ThreadLocal<ThreadEvaluator> THREAD_EVALUATOR;
+	
 
 	/**
 	 * Creates a new instance of Schedule.
@@ -61,6 +77,8 @@ public class AlgorithmSchedule {
 		_market = market;
         
         _proposedEvaluations = 1;
+		_evaluationParallelism = 1;
+		THREAD_EVALUATOR = new ThreadLocal<ThreadEvaluator>();
 		
 		setStopper( stopper );
 	}
@@ -134,6 +152,62 @@ public class AlgorithmSchedule {
 	}
 	
 	
+	/**
+	 * Set the executor on which batches of trials are evaluated concurrently. Concurrent evaluation also requires that
+	 * the problem has an evaluator factory. The caller retains ownership of the executor.
+	 * @param executor the executor on which to evaluate trials or null to evaluate trials on the solver thread
+	 * @param parallelism the number of trials the executor can evaluate at once which algorithms use as their batch size
+	 */
+	synchronized public void setEvaluationExecutor( final Executor executor, final int parallelism ) {
+		if ( _ownedEvaluationExecutor != null ) {
+			_ownedEvaluationExecutor.shutdown();
+			_ownedEvaluationExecutor = null;
+		}
+		_evaluationExecutor = executor;
+		_evaluationParallelism = executor != null ? Math.max( parallelism, 1 ) : 1;
+	}
+	
+	
+	/**
+	 * Evaluate batches of trials concurrently on a pool of daemon threads owned by this schedule.
+	 * @param threadCount the number of evaluation threads (less than two evaluates trials on the solver thread)
+	 */
+	synchronized public void setEvaluationThreadCount( final int threadCount ) {
+		if ( threadCount > 1 ) {
+			final ExecutorService executor = Executors.newFixedThreadPool( threadCount, new ThreadFactory() {
+				public Thread newThread( final Runnable runnable ) {
+					final Thread thread = new Thread( runnable, "Solver Trial Evaluation" );
+					thread.setDaemon( true );
+					return thread;
+				}
+			});
+			setEvaluationExecutor( executor, threadCount );
+			_ownedEvaluationExecutor = executor;
+		}
+		else {
+			setEvaluationExecutor( null, 1 );
+		}
+	}
+	
+	
+	/**
+	 * Get the number of trials which can be evaluated concurrently. Algorithms should propose batches of this size when they can.
+	 * @return the number of trials which can be evaluated concurrently (1 if trials are evaluated on the solver thread)
+	 */
+	public int getEvaluationParallelism() {
+		return isConcurrentEvaluationEnabled() ? _evaluationParallelism : 1;
+	}
+	
+	
+	/**
+	 * Determine whether batches of trials are evaluated concurrently which requires an evaluation executor and an evaluator factory.
+	 * @return true if trials are evaluated concurrently and false if not
+	 */
+	public boolean isConcurrentEvaluationEnabled() {
+		return _evaluationExecutor != null && _problem != null && _problem.getEvaluatorFactory() != null;
+	}
+	
+	
 	/**
 	 * Determine whether to continue executing the schedule.
 	 * @return true if the stopper allows us to continue executing the schedule and false if not
@@ -194,7 +268,8 @@ public class AlgorithmSchedule {
 	 */
 	private void executeRun( final SearchAlgorithm algorithm ) {
 		if ( algorithm != null ) {
-            algorithm.setProposedEvaluations( _proposedEvaluations );
+            // propose at least enough evaluations per run to fill a batch when trials are evaluated concurrently
+            algorithm.setProposedEvaluations( Math.max( _proposedEvaluations, getEvaluationParallelism() ) );
             
 			EVENT_PROXY.algorithmRunWillExecute( this, algorithm, _solver.getScoreBoard() );
 			algorithm.executeRun( this, _solver.getScoreBoard() );
@@ -220,6 +295,92 @@ public class AlgorithmSchedule {
 	}
 
 
+	/**
+	 * Evaluate the specified trial points concurrently on the evaluation executor. The trials are validated on the calling thread,
+	 * evaluated concurrently and then judged and posted to listeners on the calling thread in the order of the trial points.
+	 * If concurrent evaluation is not enabled the trial points are evaluated one at a time.
+	 * @param searchAlgorithm the algorithm proposing the trial points
+	 * @param trialPoints the trial points to evaluate
+	 * @return the scored trials corresponding to the specified trial points
+	 * @throws xal.extension.solver.RunTerminationException if the run has been terminated
+	 */
+	public List<Trial> evaluateTrialPoints( final SearchAlgorithm searchAlgorithm, final List<TrialPoint> trialPoints ) {
+		if ( _stopper.shouldStop( _solver ) )  throw new RunTerminationException( "Run terminated by the stopper." );
+		else if ( searchAlgorithm.getEvaluationsLeft() < 0 )  throw new RunTerminationException( "Run terminated due to overrun of scheduled evaluations." );
+		
+		final Problem problem = _problem;
+		final Executor executor = _evaluationExecutor;
+		final EvaluatorFactory evaluatorFactory = problem.getEvaluatorFactory();
+		final List<Trial> trials = new ArrayList<Trial>( trialPoints.size() );
+		
+		if ( executor == null || evaluatorFactory == null ) {
+			for ( final TrialPoint trialPoint : trialPoints ) {
+				final Trial trial = new Trial( problem, trialPoint, searchAlgorithm );
+				score( trial );
+				trials.add( trial );
+			}
+			return trials;
+		}
+		
+		// validate on this thread since validation updates the problem's value references and constraints need not be thread safe
+		final boolean[] validations = new boolean[trialPoints.size()];
+		final List<FutureTask<Trial>> evaluations = new ArrayList<FutureTask<Trial>>( trialPoints.size() );
+		for ( final TrialPoint trialPoint : trialPoints ) {
+			final Trial trial = new Trial( problem, trialPoint, searchAlgorithm );
+			final TrialVeto veto = problem.validate( trial );
+			if ( veto != null ) {
+				trial.vetoTrial( veto );
+			}
+			else {
+				validations[trials.size()] = true;
+				final FutureTask<Trial> evaluation = new FutureTask<Trial>( new Runnable() {
+					public void run() {
+						getThreadEvaluator( problem, evaluatorFactory ).evaluate( trial );
+					}
+				}, trial );
+				evaluations.add( evaluation );
+				executor.execute( evaluation );
+			}
+			trials.add( trial );
+		}
+		
+		// wait for all of the evaluations to complete before reporting any failure
+		RuntimeException failure = null;
+		boolean interrupted = false;
+		for ( final FutureTask<Trial> evaluation : evaluations ) {
+			try {
+				while ( true ) {
+					try {
+						evaluation.get();
+						break;
+					}
+					catch( InterruptedException exception ) {
+						interrupted = true;
+					}
+				}
+			}
+			catch( ExecutionException exception ) {
+				if ( failure == null ) {
+					final Throwable cause = exception.getCause();
+					failure = cause instanceof RuntimeException ? (RuntimeException)cause : new RuntimeException( "Exception evaluating a trial.", cause );
+				}
+			}
+		}
+		if ( interrupted )  Thread.currentThread().interrupt();
+		if ( failure != null )  throw failure;
+		
+		// judge and post the trials in order
+		for ( int index = 0 ; index < trials.size() ; index++ ) {
+			final Trial trial = trials.get( index );
+			if ( !validations[index] )  EVENT_PROXY.trialVetoed( this, trial );
+			_solver.judge( trial );
+			EVENT_PROXY.trialScored( this, trial );
+		}
+		
+		return trials;
+	}
+
+
 	/**
 	 * Score the trial.
 	 * @param trial  The trial to be scored.
@@ -230,5 +391,46 @@ public class AlgorithmSchedule {
 		_solver.judge( trial );
 		EVENT_PROXY.trialScored( this, trial );
 	}
+	
+	
+	/**
+	 * Get the evaluator confined to the current thread making a new one if the thread has none for the problem and factory.
+	 * @param problem the problem being solved
+	 * @param evaluatorFactory the factory from which to make a new evaluator
+	 * @return the evaluator for the current thread
+	 */
+	private Evaluator getThreadEvaluator( final Problem problem, final EvaluatorFactory evaluatorFactory ) {
+		final ThreadEvaluator threadEvaluator = THREAD_EVALUATOR.get();
+		if ( threadEvaluator != null && threadEvaluator.PROBLEM == problem && threadEvaluator.FACTORY == evaluatorFactory ) {
+			return threadEvaluator.EVALUATOR;
+		}
+		else {
+			final Evaluator evaluator = evaluatorFactory.makeEvaluator();
+			THREAD_EVALUATOR.set( new ThreadEvaluator( problem, evaluatorFactory, evaluator ) );
+			return evaluator;
+		}
+	}
+	
+	
+	
+	/** Evaluator bound to an evaluation thread for a specific problem and factory */
+	private static class ThreadEvaluator {
+		/** problem for which the evaluator was made */
+		final private Problem PROBLEM;
+		
+		/** factory which made the evaluator */
+		final private EvaluatorFactory FACTORY;
+		
+		/** the thread's evaluator */
+		final private Evaluator EVALUATOR;
+		
+		
+		/** Constructor */
+		public ThreadEvaluator( final Problem problem, final EvaluatorFactory factory, final Evaluator evaluator ) {
+			PROBLEM = problem;
+			FACTORY = factory;
+			EVALUATOR = evaluator;
+		}
+	}
 }
 
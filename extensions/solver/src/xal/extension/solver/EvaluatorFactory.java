@@ -0,0 +1,22 @@
+//
+//  EvaluatorFactory.java
+//  xal
+//
+
+package xal.extension.solver;
+
+
+/**
+ * EvaluatorFactory makes evaluators for concurrent trial evaluation. When a problem has an evaluator factory and the
+ * solver has an evaluation executor, each evaluation thread gets its own evaluator from the factory and keeps it for
+ * all the trials it evaluates, so an evaluator need not be thread safe (e.g. it may own its own model scenario).
+ * Trials are validated on the solver thread before they are dispatched, so the problem's value references only reflect
+ * the most recently validated trial; concurrent evaluators must take the variable values from the trial's trial point.
+ */
+public interface EvaluatorFactory {
+	/**
+	 * Make a new evaluator to be confined to a single evaluation thread.
+	 * @return a new evaluator
+	 */
+	public Evaluator makeEvaluator();
+}
@@ -36,6 +36,9 @@ public class Problem {
 	/** The user provided object which evaluates the trial solutions. */
 	protected Evaluator _evaluator;
 	
+	/** Optional factory of thread confined evaluators for evaluating trials concurrently. */
+	protected EvaluatorFactory _evaluatorFactory;
+	
 	/** A table of reference values keyed by variable */
 	protected Map<Variable,ValueRef> _valueRefs;
 	
@@ -231,6 +234,25 @@ public class Problem {
 	}
 	
 	
+	/**
+	 * Set the factory of evaluators used to score trials concurrently. Trials are only evaluated concurrently if the problem has
+	 * an evaluator factory and the solver has an evaluation executor; otherwise the evaluator is used on the solver thread.
+	 * @param evaluatorFactory factory making a new evaluator for each evaluation thread or null to disable concurrent evaluation
+	 */
+	public void setEvaluatorFactory( final EvaluatorFactory evaluatorFactory ) {
+		_evaluatorFactory = evaluatorFactory;
+	}
+	
+	
+	/**
+	 * Get the factory of evaluators used to score trials concurrently.
+	 * @return the evaluator factory or null if there is none
+	 */
+	public EvaluatorFactory getEvaluatorFactory() {
+		return _evaluatorFactory;
+	}
+	
+	
 	/**
 	 * Generate a trial for the initial variable values without any associated algorithm
 	 * @return a trial without any associated algorithm
@@ -290,12 +312,23 @@ public class Problem {
 	 * @return true if the evaluation was successful and false if it was vetoed
 	 */
 	public boolean evaluate( final Trial trial ) {
+		return evaluate( trial, _evaluator );
+	}
+	
+	
+	/**
+	 * Evaluate the trial with the specified evaluator
+	 * @param trial the trial to evaluate
+	 * @param evaluator the evaluator with which to score the trial
+	 * @return true if the evaluation was successful and false if it was vetoed
+	 */
+	public boolean evaluate( final Trial trial, final Evaluator evaluator ) {
 		final TrialVeto veto = validate( trial );
 		if ( veto != null ) {
 			trial.vetoTrial( veto );
 			return false;
 		};
-		_evaluator.evaluate( trial );
+		evaluator.evaluate( trial );
 		return true;
 	}
 	
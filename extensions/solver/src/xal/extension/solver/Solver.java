@@ -148,6 +148,27 @@ public class Solver implements AlgorithmPoolListener, AlgorithmMarketListener {
 		_schedule.setStopper( stopper );
 	}
 
+	
+	/**
+	 * Set the executor on which batches of trials are evaluated concurrently. Concurrent evaluation also requires that the problem has an evaluator factory.
+	 * @param executor the executor on which to evaluate trials or null to evaluate trials on the solver thread
+	 * @param parallelism the number of trials the executor can evaluate at once
+	 * @see Problem#setEvaluatorFactory
+	 */
+	public void setEvaluationExecutor( final java.util.concurrent.Executor executor, final int parallelism ) {
+		_schedule.setEvaluationExecutor( executor, parallelism );
+	}
+	
+	
+	/**
+	 * Evaluate batches of trials concurrently on the specified number of threads. Concurrent evaluation also requires that the problem has an evaluator factory.
+	 * @param threadCount the number of evaluation threads (less than two evaluates trials on the solver thread)
+	 * @see Problem#setEvaluatorFactory
+	 */
+	public void setEvaluationThreadCount( final int threadCount ) {
+		_schedule.setEvaluationThreadCount( threadCount );
+	}
+
 
 	/**
 	 * Get the solution judge.
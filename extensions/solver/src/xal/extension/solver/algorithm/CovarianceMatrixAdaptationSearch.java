@@ -0,0 +1,522 @@
+//
+//  CovarianceMatrixAdaptationSearch.java
+//  xal
+//
+
+package xal.extension.solver.algorithm;
+
+import xal.extension.solver.*;
+import xal.extension.solver.hint.*;
+import xal.extension.solver.solutionjudge.*;
+
+import Jama.EigenvalueDecomposition;
+import Jama.Matrix;
+
+import java.util.*;
+
+
+/**
+ * CovarianceMatrixAdaptationSearch implements the covariance matrix adaptation evolution strategy (CMA-ES). Each generation
+ * samples a population of trial points from a multivariate normal distribution, proposes the whole generation as one batch
+ * (so it can be evaluated concurrently) and then moves the distribution mean toward the most satisfying points while adapting
+ * the step size and the covariance to the local shape of the problem. The search runs in coordinates normalized to each variable's
+ * limits and samples are clipped to the limits. Another algorithm's better solution moves the mean to that solution, and
+ * the search restarts from the best point when the distribution collapses.
+ * This algorithm is not part of the default algorithm pool. Solve with it by passing a pool to the solver which holds it, either alone
+ * (new AlgorithmPool( new CovarianceMatrixAdaptationSearch() )) or added to the default algorithms.
+ */
+public class CovarianceMatrixAdaptationSearch extends SearchAlgorithm {
+	/** initial step size as a fraction of each variable's limit range */
+	final static private double INITIAL_SIGMA = 0.3;
+
+	/** step size (in normalized coordinates) below which the distribution is considered collapsed */
+	final static private double MIN_SIGMA = 1.0e-12;
+
+	/** condition number of the covariance above which the search restarts */
+	final static private double MAX_CONDITION = 1.0e14;
+
+	/** random number generator */
+	final private Random RANDOM_GENERATOR;
+
+	/** requested population size or 0 to use the default for the problem dimension */
+	private int _requestedPopulationSize;
+
+	/** problem dimension */
+	private int _dimension;
+
+	/** population size (lambda) */
+	private int _populationSize;
+
+	/** number of points selected for recombination (mu) */
+	private int _parentCount;
+
+	/** recombination weights */
+	private double[] _weights;
+
+	/** variance effective selection mass */
+	private double _effectiveMass;
+
+	/** learning rate for the covariance path */
+	private double _covariancePathRate;
+
+	/** learning rate for the step size path */
+	private double _sigmaPathRate;
+
+	/** learning rate for the rank one update */
+	private double _rankOneRate;
+
+	/** learning rate for the rank mu update */
+	private double _rankMuRate;
+
+	/** step size damping */
+	private double _sigmaDamping;
+
+	/** expected length of a standard normal vector */
+	private double _expectedNormLength;
+
+	/** distribution mean in normalized coordinates */
+	private double[] _mean;
+
+	/** overall step size */
+	private double _sigma;
+
+	/** evolution path for the covariance */
+	private double[] _covariancePath;
+
+	/** evolution path for the step size */
+	private double[] _sigmaPath;
+
+	/** covariance matrix */
+	private double[][] _covariance;
+
+	/** eigenvectors of the covariance (columns) */
+	private double[][] _basis;
+
+	/** square roots of the covariance eigenvalues */
+	private double[] _axisScales;
+
+	/** number of generations since the last restart */
+	private int _generation;
+
+	/** generation at which the eigen decomposition was last computed */
+	private int _eigenGeneration;
+
+	/** best trial found by this algorithm */
+	private Trial _bestTrial;
+
+	/** better solution found by another algorithm which the mean should adopt or null if none */
+	private Trial _externalSolution;
+
+
+	/** Constructor */
+	public CovarianceMatrixAdaptationSearch() {
+		RANDOM_GENERATOR = new Random( 0 );
+	}
+
+
+	/**
+	 * Set the population size (trial points per generation). Larger populations are more robust against noise and local optima.
+	 * @param populationSize the population size or 0 to use the default of 4 + 3 ln( N ) for N variables
+	 */
+	public void setPopulationSize( final int populationSize ) {
+		_requestedPopulationSize = populationSize > 0 ? Math.max( populationSize, 4 ) : 0;
+		if ( _problem != null )  reset();
+	}
+
+
+	/**
+	 * Get the population size (trial points per generation).
+	 * @return the population size
+	 */
+	public int getPopulationSize() {
+		return _populationSize;
+	}
+
+
+	/**
+	 * Return the label for a search algorithm.
+	 * @return   The label.
+	 */
+	public String getLabel() {
+		return "CMA-ES Search";
+	}
+
+
+	/** Assign a new problem. */
+	public void setProblem( final Problem problem ) {
+		super.setProblem( problem );
+		reset();
+	}
+
+
+	/** Reset the strategy parameters and the distribution to start from the initial variable values. */
+	public void reset() {
+		if ( _problem == null )  return;
+
+		final List<Variable> variables = _problem.getVariables();
+		_dimension = variables.size();
+		if ( _dimension == 0 )  return;
+
+		initializeStrategyParameters();
+
+		final double[] initialPoint = new double[_dimension];
+		int index = 0;
+		for ( final Variable variable : variables ) {
+			initialPoint[index++] = toNormalized( variable, variable.getInitialValue() );
+		}
+		restart( initialPoint );
+
+		// scale the initial distribution by the initial delta hint if any
+		final InitialDelta hint = (InitialDelta)_problem.getHint( InitialDelta.TYPE );
+		if ( hint != null ) {
+			index = 0;
+			for ( final Variable variable : variables ) {
+				final double[] range = hint.getRange( variable );
+				final double span = variable.getUpperLimit() - variable.getLowerLimit();
+				final double scale = span > 0.0 ? 0.5 * Math.abs( range[1] - range[0] ) / span / INITIAL_SIGMA : 1.0;
+				if ( scale > 0.0 ) {
+					_axisScales[index] = scale;
+					_covariance[index][index] = scale * scale;
+				}
+				++index;
+			}
+		}
+
+		_bestTrial = null;
+		_externalSolution = null;
+	}
+
+
+	/** Compute the strategy parameters for the problem dimension and population size */
+	private void initializeStrategyParameters() {
+		final int dimension = _dimension;
+		_populationSize = _requestedPopulationSize > 0 ? _requestedPopulationSize : 4 + (int)Math.floor( 3.0 * Math.log( dimension ) );
+		_parentCount = _populationSize / 2;
+
+		_weights = new double[_parentCount];
+		double weightSum = 0.0;
+		for ( int index = 0 ; index < _parentCount ; index++ ) {
+			_weights[index] = Math.log( 0.5 * ( _populationSize + 1 ) ) - Math.log( index + 1 );
+			weightSum += _weights[index];
+		}
+		double squareSum = 0.0;
+		for ( int index = 0 ; index < _parentCount ; index++ ) {
+			_weights[index] /= weightSum;
+			squareSum += _weights[index] * _weights[index];
+		}
+		_effectiveMass = 1.0 / squareSum;
+
+		final double mass = _effectiveMass;
+		_covariancePathRate = ( 4.0 + mass / dimension ) / ( dimension + 4.0 + 2.0 * mass / dimension );
+		_sigmaPathRate = ( mass + 2.0 ) / ( dimension + mass + 5.0 );
+		_rankOneRate = 2.0 / ( ( dimension + 1.3 ) * ( dimension + 1.3 ) + mass );
+		_rankMuRate = Math.min( 1.0 - _rankOneRate, 2.0 * ( mass - 2.0 + 1.0 / mass ) / ( ( dimension + 2.0 ) * ( dimension + 2.0 ) + mass ) );
+		_sigmaDamping = 1.0 + 2.0 * Math.max( 0.0, Math.sqrt( ( mass - 1.0 ) / ( dimension + 1.0 ) ) - 1.0 ) + _sigmaPathRate;
+		_expectedNormLength = Math.sqrt( dimension ) * ( 1.0 - 1.0 / ( 4.0 * dimension ) + 1.0 / ( 21.0 * dimension * dimension ) );
+	}
+
+
+	/**
+	 * Restart the distribution about the specified point with the initial step size and an identity covariance.
+	 * @param point the new mean in normalized coordinates
+	 */
+	private void restart( final double[] point ) {
+		final int dimension = _dimension;
+		_mean = point.clone();
+		_sigma = INITIAL_SIGMA;
+		_covariancePath = new double[dimension];
+		_sigmaPath = new double[dimension];
+		_covariance = new double[dimension][dimension];
+		_basis = new double[dimension][dimension];
+		_axisScales = new double[dimension];
+		for ( int index = 0 ; index < dimension ; index++ ) {
+			_covariance[index][index] = 1.0;
+			_basis[index][index] = 1.0;
+			_axisScales[index] = 1.0;
+		}
+		_generation = 0;
+		_eigenGeneration = 0;
+	}
+
+
+	/**
+	 * Calculate the next few trial points.
+	 */
+	public void performRun( final AlgorithmSchedule algorithmSchedule ) {
+		if ( _dimension == 0 || _mean == null )  return;
+
+		try {
+			while ( getEvaluationsLeft() >= _populationSize && !algorithmSchedule.shouldStop() ) {
+				adoptExternalSolution();
+				performGeneration();
+			}
+		}
+		catch ( RunTerminationException exception ) {}
+	}
+
+
+	/** Sample, evaluate and select one generation and update the distribution */
+	private void performGeneration() {
+		final int dimension = _dimension;
+		final int populationSize = _populationSize;
+		final List<Variable> variables = _problem.getVariables();
+
+		// sample the generation
+		final double[][] points = new double[populationSize][dimension];
+		final double[][] steps = new double[populationSize][dimension];
+		final List<TrialPoint> trialPoints = new ArrayList<TrialPoint>( populationSize );
+		final double[] normalSample = new double[dimension];
+		final Map<Variable,Number> valueMap = new HashMap<Variable,Number>( dimension );
+		for ( int member = 0 ; member < populationSize ; member++ ) {
+			for ( int row = 0 ; row < dimension ; row++ ) {
+				normalSample[row] = _axisScales[row] * RANDOM_GENERATOR.nextGaussian();
+			}
+
+			final double[] point = points[member];
+			final double[] step = steps[member];
+			for ( int row = 0 ; row < dimension ; row++ ) {
+				double sum = 0.0;
+				for ( int column = 0 ; column < dimension ; column++ ) {
+					sum += _basis[row][column] * normalSample[column];
+				}
+				// clip the point to the variable limits and use the clipped step in the update
+				point[row] = Math.min( Math.max( _mean[row] + _sigma * sum, 0.0 ), 1.0 );
+				step[row] = ( point[row] - _mean[row] ) / _sigma;
+			}
+
+			int index = 0;
+			for ( final Variable variable : variables ) {
+				valueMap.put( variable, fromNormalized( variable, point[index++] ) );
+			}
+			trialPoints.add( new TrialPoint( valueMap ) );
+		}
+
+		// evaluate the whole generation as a batch and rank the members by satisfaction
+		final List<Trial> trials = evaluateTrialPoints( trialPoints );
+		final Integer[] ranking = new Integer[populationSize];
+		final double[] satisfactions = new double[populationSize];
+		for ( int member = 0 ; member < populationSize ; member++ ) {
+			ranking[member] = member;
+			satisfactions[member] = getSatisfaction( trials.get( member ) );
+		}
+		Arrays.sort( ranking, new Comparator<Integer>() {
+			public int compare( final Integer memberA, final Integer memberB ) {
+				return Double.compare( satisfactions[memberB], satisfactions[memberA] );
+			}
+		});
+
+		final Trial generationBest = trials.get( ranking[0] );
+		if ( _bestTrial == null || getSatisfaction( generationBest ) > getSatisfaction( _bestTrial ) ) {
+			_bestTrial = generationBest;
+		}
+
+		updateDistribution( points, steps, ranking );
+	}
+
+
+	/**
+	 * Update the mean, evolution paths, covariance and step size from the ranked generation.
+	 * @param points the sampled points
+	 * @param steps the sampled steps relative to the old mean in units of the step size
+	 * @param ranking member indices ordered from most to least satisfying
+	 */
+	private void updateDistribution( final double[][] points, final double[][] steps, final Integer[] ranking ) {
+		final int dimension = _dimension;
+		++_generation;
+
+		// recombine the best members into the new mean
+		final double[] weightedStep = new double[dimension];
+		for ( int parent = 0 ; parent < _parentCount ; parent++ ) {
+			final double[] step = steps[ranking[parent]];
+			final double weight = _weights[parent];
+			for ( int row = 0 ; row < dimension ; row++ ) {
+				weightedStep[row] += weight * step[row];
+			}
+		}
+		for ( int row = 0 ; row < dimension ; row++ ) {
+			_mean[row] = Math.min( Math.max( _mean[row] + _sigma * weightedStep[row], 0.0 ), 1.0 );
+		}
+
+		// step size path uses the whitened step: B D^-1 B^T y
+		final double[] projected = new double[dimension];
+		for ( int column = 0 ; column < dimension ; column++ ) {
+			double sum = 0.0;
+			for ( int row = 0 ; row < dimension ; row++ ) {
+				sum += _basis[row][column] * weightedStep[row];
+			}
+			projected[column] = sum / _axisScales[column];
+		}
+		final double sigmaPathScale = Math.sqrt( _sigmaPathRate * ( 2.0 - _sigmaPathRate ) * _effectiveMass );
+		double sigmaPathNormSquare = 0.0;
+		for ( int row = 0 ; row < dimension ; row++ ) {
+			double sum = 0.0;
+			for ( int column = 0 ; column < dimension ; column++ ) {
+				sum += _basis[row][column] * projected[column];
+			}
+			_sigmaPath[row] = ( 1.0 - _sigmaPathRate ) * _sigmaPath[row] + sigmaPathScale * sum;
+			sigmaPathNormSquare += _sigmaPath[row] * _sigmaPath[row];
+		}
+		final double sigmaPathNorm = Math.sqrt( sigmaPathNormSquare );
+
+		// stall the covariance path while the step size path is long to avoid overshooting
+		final double sigmaPathBias = Math.sqrt( 1.0 - Math.pow( 1.0 - _sigmaPathRate, 2.0 * _generation ) );
+		final boolean isPathStalled = sigmaPathNorm / sigmaPathBias / _expectedNormLength >= 1.4 + 2.0 / ( dimension + 1.0 );
+		final double covariancePathScale = isPathStalled ? 0.0 : Math.sqrt( _covariancePathRate * ( 2.0 - _covariancePathRate ) * _effectiveMass );
+		for ( int row = 0 ; row < dimension ; row++ ) {
+			_covariancePath[row] = ( 1.0 - _covariancePathRate ) * _covariancePath[row] + covariancePathScale * weightedStep[row];
+		}
+
+		// rank one and rank mu covariance updates
+		final double stallCorrection = isPathStalled ? _rankOneRate * _covariancePathRate * ( 2.0 - _covariancePathRate ) : 0.0;
+		final double decay = 1.0 - _rankOneRate - _rankMuRate + stallCorrection;
+		for ( int row = 0 ; row < dimension ; row++ ) {
+			for ( int column = 0 ; column <= row ; column++ ) {
+				double rankMu = 0.0;
+				for ( int parent = 0 ; parent < _parentCount ; parent++ ) {
+					final double[] step = steps[ranking[parent]];
+					rankMu += _weights[parent] * step[row] * step[column];
+				}
+				final double value = decay * _covariance[row][column] + _rankOneRate * _covariancePath[row] * _covariancePath[column] + _rankMuRate * rankMu;
+				_covariance[row][column] = value;
+				_covariance[column][row] = value;
+			}
+		}
+
+		// cumulative step size adaptation limited to the normalized domain
+		_sigma *= Math.exp( Math.min( 1.0, ( _sigmaPathRate / _sigmaDamping ) * ( sigmaPathNorm / _expectedNormLength - 1.0 ) ) );
+		_sigma = Math.min( _sigma, 1.0 );
+
+		// the eigen decomposition is O(N^3) so only update it as often as the covariance changes significantly
+		if ( _generation - _eigenGeneration > _populationSize / ( _rankOneRate + _rankMuRate ) / dimension / 10.0 ) {
+			updateEigenDecomposition();
+		}
+
+		if ( shouldRestart() ) {
+			restart( _bestTrial != null ? toNormalized( _bestTrial.getTrialPoint() ) : _mean );
+		}
+	}
+
+
+	/** Compute the eigen decomposition of the covariance */
+	private void updateEigenDecomposition() {
+		_eigenGeneration = _generation;
+
+		final EigenvalueDecomposition decomposition = new Matrix( _covariance ).eig();
+		final double[] eigenvalues = decomposition.getRealEigenvalues();
+		final double[][] eigenvectors = decomposition.getV().getArray();
+		for ( int index = 0 ; index < _dimension ; index++ ) {
+			_axisScales[index] = Math.sqrt( Math.max( eigenvalues[index], 0.0 ) );
+			for ( int row = 0 ; row < _dimension ; row++ ) {
+				_basis[row][index] = eigenvectors[row][index];
+			}
+		}
+	}
+
+
+	/** Determine whether the distribution has collapsed or degenerated so the search should restart */
+	private boolean shouldRestart() {
+		double maxScale = 0.0;
+		double minScale = Double.POSITIVE_INFINITY;
+		for ( final double scale : _axisScales ) {
+			if ( Double.isNaN( scale ) )  return true;
+			maxScale = Math.max( maxScale, scale );
+			minScale = Math.min( minScale, scale );
+		}
+		if ( Double.isNaN( _sigma ) || _sigma * maxScale < MIN_SIGMA )  return true;
+		return minScale <= 0.0 || ( maxScale * maxScale ) / ( minScale * minScale ) > MAX_CONDITION;
+	}
+
+
+	/** Move the mean to a better solution found by another algorithm if there is one */
+	private void adoptExternalSolution() {
+		final Trial externalSolution = _externalSolution;
+		_externalSolution = null;
+		if ( externalSolution != null && ( _bestTrial == null || getSatisfaction( externalSolution ) > getSatisfaction( _bestTrial ) ) ) {
+			_bestTrial = externalSolution;
+			_mean = toNormalized( externalSolution.getTrialPoint() );
+			Arrays.fill( _covariancePath, 0.0 );
+			Arrays.fill( _sigmaPath, 0.0 );
+		}
+	}
+
+
+	/** Get the trial's satisfaction treating an undefined satisfaction as none */
+	static private double getSatisfaction( final Trial trial ) {
+		final double rawSatisfaction = trial.getSatisfaction();
+		return Double.isNaN( rawSatisfaction ) ? 0.0 : rawSatisfaction;
+	}
+
+
+	/** Convert a variable value to the normalized coordinate in which the limits map to 0 and 1 */
+	static private double toNormalized( final Variable variable, final double value ) {
+		final double span = variable.getUpperLimit() - variable.getLowerLimit();
+		return span > 0.0 ? Math.min( Math.max( ( value - variable.getLowerLimit() ) / span, 0.0 ), 1.0 ) : 0.5;
+	}
+
+
+	/** Convert a normalized coordinate to the variable value */
+	static private double fromNormalized( final Variable variable, final double coordinate ) {
+		final double span = variable.getUpperLimit() - variable.getLowerLimit();
+		return span > 0.0 ? variable.getLowerLimit() + coordinate * span : variable.getInitialValue();
+	}
+
+
+	/** Convert a trial point to normalized coordinates */
+	private double[] toNormalized( final TrialPoint trialPoint ) {
+		final double[] point = new double[_dimension];
+		int index = 0;
+		for ( final Variable variable : _problem.getVariables() ) {
+			point[index++] = toNormalized( variable, trialPoint.getValue( variable ) );
+		}
+		return point;
+	}
+
+
+	/**
+	 * Get the minimum number of evaluations per run which is one generation.
+	 * @return the minimum number of evaluation per run.
+	 */
+	public int getMinEvaluationsPerRun() {
+		return _problem != null && _dimension > 0 ? _populationSize : 0;
+	}
+
+
+	/**
+	 * Get the maximum number of evaluations per run which is several generations.
+	 * @return the maximum number of evaluation per run.
+	 */
+	public int getMaxEvaluationsPerRun() {
+		return _problem != null && _dimension > 0 ? 10 * _populationSize : 0;
+	}
+
+
+	/**
+	 * Returns the global rating which in an integer between 0 and 10.
+	 * @return   The global rating for this algorithm.
+	 */
+	public int globalRating() {
+		return 6;
+	}
+
+
+	/**
+	 * Returns the local rating which is an integer between 0 and 10.
+	 * @return   The local rating for this algorithm.
+	 */
+	public int localRating() {
+		return 8;
+	}
+
+
+	/**
+	 * Handle a message that a new optimal solution has been found. A solution found by another algorithm is adopted at the next generation if it is better than this algorithm's best.
+	 * @param source     The source of the new optimal solution.
+	 * @param solutions  The list of solutions.
+	 * @param solution   The new optimal solution.
+	 */
+	public void foundNewOptimalSolution( final SolutionJudge source, final List<Trial> solutions, final Trial solution ) {
+		if ( solution.getAlgorithm() != this ) {
+			_externalSolution = solution;
+		}
+	}
+}
@@ -110,6 +110,10 @@ public class DirectedStep extends SearchAlgorithm {
 		final Map<Variable,Number> valueMap = new HashMap<Variable,Number>( originTrial.getTrialPoint().getValueMap() );
 		final double[] gradient = new double[variables.size()];
 		final double originSatisfaction = getSatisfaction( originTrial );
+
+		// the lower and upper trial points for every variable are independent so evaluate them as one batch
+		final double[] stepValues = new double[2 * variables.size()];
+		final List<TrialPoint> trialPoints = new ArrayList<TrialPoint>( stepValues.length );
 		int index = 0;
 		for ( Variable variable : variables ) {
 			final double originValue = valueMap.get( variable ).doubleValue();
@@ -117,18 +121,24 @@ public class DirectedStep extends SearchAlgorithm {
 
 			final double lowerValue = trialRange[0];
 			valueMap.put( variable, lowerValue );
-			final Trial lowerTrial = evaluateTrialPoint( new TrialPoint( valueMap ) );
-			final double lowerSatisfaction = getSatisfaction( lowerTrial );
+			trialPoints.add( new TrialPoint( valueMap ) );
+			stepValues[index++] = lowerValue;
 
 			final double upperValue = trialRange[1];
 			valueMap.put( variable, upperValue );
-			final Trial upperTrial = evaluateTrialPoint( new TrialPoint( valueMap ) );
-			final double upperSatisfaction = getSatisfaction( upperTrial );
+			trialPoints.add( new TrialPoint( valueMap ) );
+			stepValues[index++] = upperValue;
 
-			gradient[index++] = ( upperSatisfaction - lowerSatisfaction ) / ( upperValue - lowerValue );
 			valueMap.put( variable, originValue );
 		}
 
+		final List<Trial> trials = evaluateTrialPoints( trialPoints );
+		for ( int variableIndex = 0 ; variableIndex < gradient.length ; variableIndex++ ) {
+			final double lowerSatisfaction = getSatisfaction( trials.get( 2 * variableIndex ) );
+			final double upperSatisfaction = getSatisfaction( trials.get( 2 * variableIndex + 1 ) );
+			gradient[variableIndex] = ( upperSatisfaction - lowerSatisfaction ) / ( stepValues[2 * variableIndex + 1] - stepValues[2 * variableIndex] );
+		}
+
 		//System.out.println( "Gradient:  " + ArrayTool.asString( gradient ) );
 		return gradient;
 	}
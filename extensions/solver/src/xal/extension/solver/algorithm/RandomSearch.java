@@ -59,7 +59,18 @@ public class RandomSearch extends SearchAlgorithm {
 	public void performRun( final AlgorithmSchedule algorithmSchedule ) {
 		try {
             while( getEvaluationsLeft() > 0 && !algorithmSchedule.shouldStop() ){
-                evaluateTrialPoint( nextTrialPoint() );
+                // random trial points are independent so propose them in batches which may be evaluated concurrently
+                final int batchSize = Math.min( getEvaluationsLeft(), getPreferredBatchSize() );
+                if ( batchSize > 1 ) {
+                    final List<TrialPoint> trialPoints = new ArrayList<TrialPoint>( batchSize );
+                    for ( int index = 0 ; index < batchSize ; index++ ) {
+                        trialPoints.add( nextTrialPoint() );
+                    }
+                    evaluateTrialPoints( trialPoints );
+                }
+                else {
+                    evaluateTrialPoint( nextTrialPoint() );
+                }
             }
 		}
 		catch ( RunTerminationException exception ) {}
@@ -143,6 +143,41 @@ public abstract class SearchAlgorithm implements AlgorithmScheduleListener, Solu
         //System.out.println("evaluating trial point for count: " + _evaluationsLeft + " using " + _algorithm.getLabel());
         return _schedule.evaluateTrialPoint( this, trialPoint );
     }
+    
+    
+    /**
+     * Evaluate a batch of trial points which may be evaluated concurrently. The trials are judged in the order of the trial points.
+     * If trials are not evaluated concurrently this is equivalent to evaluating each trial point in turn.
+     * @param trialPoints the trial points to evaluate
+     * @return the scored trials in the order of the trial points
+     * @throws xal.extension.solver.RunTerminationException if the run has been terminated
+     */
+    public List<Trial> evaluateTrialPoints( final List<TrialPoint> trialPoints ) {
+        if ( !_schedule.isConcurrentEvaluationEnabled() || trialPoints.size() < 2 ) {
+            final List<Trial> trials = new ArrayList<Trial>( trialPoints.size() );
+            for ( final TrialPoint trialPoint : trialPoints ) {
+                trials.add( evaluateTrialPoint( trialPoint ) );
+            }
+            return trials;
+        }
+        
+        // evaluate only the trial points within the scheduled evaluations and then terminate the run as a serial run would
+        final int allowedCount = Math.max( Math.min( trialPoints.size(), _evaluationsLeft ), 0 );
+        if ( allowedCount == 0 )  throw new RunTerminationException( "Run terminated due to overrun of scheduled evaluations." );
+        _evaluationsLeft -= allowedCount;
+        final List<Trial> trials = _schedule.evaluateTrialPoints( this, trialPoints.subList( 0, allowedCount ) );
+        if ( allowedCount < trialPoints.size() )  throw new RunTerminationException( "Run terminated due to overrun of scheduled evaluations." );
+        return trials;
+    }
+    
+    
+    /**
+     * Get the number of trial points this algorithm should propose in a batch to make full use of concurrent evaluation.
+     * @return the preferred batch size which is 1 if trials are not evaluated concurrently
+     */
+    public int getPreferredBatchSize() {
+        return _schedule != null ? _schedule.getEvaluationParallelism() : 1;
+    }
 
 
 	/**
@@ -20,6 +20,7 @@ import xal.model.probe.TransferMapProbe;
 import xal.model.probe.traj.EnvelopeProbeState;
 import xal.model.probe.traj.Trajectory;
 import xal.model.probe.traj.TransferMapState;
+import xal.tools.beam.calc.TransferMapTree;
 
 import xal.service.pvlogger.sim.PVLoggerDataSource;
 
@@ -120,6 +121,9 @@ public class TransferMatrixGenerator {
     /** Model of the above hardware */
     private Scenario           mdlBeamline;
     
+    /** PV Logger data source of historical machine states (null until first needed) */
+    private PVLoggerDataSource srcPvLog;
+    
     
     /** Transfer map probe used for simulation without space charge */
     private TransferMapProbe   mdlTmapProbe;
@@ -134,6 +138,9 @@ public class TransferMatrixGenerator {
     /** The transfer map probe propagation history through the machine */
     private Trajectory<TransferMapState>        mdlTrjMap;
     
+    /** Cache of transfer map products between the states of the transfer map trajectory */
+    private TransferMapTree                     mdlTreeMap;
+    
 	
 	
 	/*
@@ -210,6 +217,7 @@ public class TransferMatrixGenerator {
         // Obviate uninitialized objects
         this.bolScheff = false;
         this.mdlTrjMap = null;
+        this.mdlTreeMap = null;
         this.mdlTrjEnv = null;
 	}
 	
@@ -245,9 +253,13 @@ public class TransferMatrixGenerator {
 	 */
 	public void setSyncToMachineHistory(final long lngPvLogId) throws SynchronizationException {
 	    
-        PVLoggerDataSource  srcPvLog = new PVLoggerDataSource(lngPvLogId);
-        this.mdlBeamline = srcPvLog.setModelSource(this.smfSeq, this.mdlBeamline);
-        this.mdlBeamline.resync();
+        // reuse the data source so consecutive snapshots only resync the elements that changed
+        if (this.srcPvLog == null) {
+            this.srcPvLog = new PVLoggerDataSource(lngPvLogId);
+            this.mdlBeamline = this.srcPvLog.setModelSource(this.smfSeq, this.mdlBeamline);
+        } else {
+            this.mdlBeamline = this.srcPvLog.updateModelSource(lngPvLogId, this.smfSeq, this.mdlBeamline);
+        }
 	}
 	
 	
@@ -285,6 +297,7 @@ public class TransferMatrixGenerator {
         
         // Save the trajectory
         this.mdlTrjMap = this.mdlBeamline.getTrajectory();
+        this.mdlTreeMap = new TransferMapTree(this.mdlTrjMap);
         this.bolScheff = false;
 	}
 	
@@ -466,9 +479,8 @@ public class TransferMatrixGenerator {
 	        TransferMapState state1 = this.mdlTrjMap.stateForElement(strElemStart);
 	        TransferMapState state2 = this.mdlTrjMap.stateForElement(strElemStop);
 	        
-	        PhaseMatrix      matPhi1 = state1.getTransferMap().getFirstOrder();
-	        PhaseMatrix      matPhi2 = state2.getTransferMap().getFirstOrder();
-	        PhaseMatrix      matPhi  = matPhi2.times( matPhi1.inverse() );
+	        // Compose the partial maps between the states rather than inverting the upstream map
+	        PhaseMatrix      matPhi  = this.mdlTreeMap.computeTransferMatrix(state1, state2);
 	        
 	        return matPhi;
 	    }
@@ -59,5 +59,6 @@ public class BlackAndWhite3D extends ColorSurfaceData{
 	gridData[i][j] = 1.0;
 	if(z_min > gridData[i][j]) z_min = gridData[i][j];
 	if(z_max < gridData[i][j]) z_max = gridData[i][j];
+	invalidateGrid(i, i, j, j);
     }
 }
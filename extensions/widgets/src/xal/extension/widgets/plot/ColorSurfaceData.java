@@ -1,12 +1,19 @@
 package xal.extension.widgets.plot;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.awt.*;
+import java.awt.image.*;
 
 /**
  * This class is a base abstract class for data used in the FunctionGraphsJPanel class.
  * This class contains 2D grid with values at the grid points. These values
  * will be presented as colored rectangles in the plot. 
+ * The rectangles are rasterized into a cached image in parallel tiles with
+ * a color table precomputed for the color generator. Only the tiles near
+ * grid points changed since the last rasterization are recomputed, so the
+ * subclasses that modify the grid directly must call invalidateGrid. 
  *
  * @version 1.0
  * @author  A. Shishlo
@@ -31,6 +38,33 @@ abstract public class ColorSurfaceData{
 
     private ColorGenerator colorGen =  RainbowColorGenerator.getColorGenerator();
 
+    /** The number of screen stripes along the side of a rasterization tile. */
+    private static final int TILE_SIZE = 32;
+
+    /** The number of grid steps around a changed grid point where interpolated values may change. */
+    private static final int INTERPOLATION_RADIUS = 2;
+
+    /** The number of colors in a color table. */
+    private static final int COLOR_TABLE_SIZE = 4096;
+
+    /** The color tables (RGB values) of the color generators. */
+    private static final Map<ColorGenerator,int[]> COLOR_TABLES = new WeakHashMap<ColorGenerator,int[]>();
+
+    /** The executor shared by all surfaces to rasterize tiles in parallel. */
+    private static ExecutorService rasterExecutor = null;
+
+    //the cached rasterization: image, stripe values (NaN outside of the grid) and the state they represent
+    private BufferedImage image = null;
+    private double[] imageValues = new double[0];
+    private double imageMinX, imageMaxX, imageMinY, imageMaxY;
+    private double imageMinZ, imageMaxZ;
+    private int[] imageColorTable = null;
+    private boolean imageValid = false;
+
+    //the grid indexes changed since the last rasterization (empty if min > max)
+    private int dirtyMinI = Integer.MAX_VALUE, dirtyMaxI = Integer.MIN_VALUE;
+    private int dirtyMinJ = Integer.MAX_VALUE, dirtyMaxJ = Integer.MIN_VALUE;
+
     /**  The data set constructor with size of the grid.*/   
     public ColorSurfaceData(int nX, int nY){
 	this.nX = nX;
@@ -170,6 +204,7 @@ abstract public class ColorSurfaceData{
 	else{
 	    x_step = (x_max - x_min);
 	}
+	invalidateImage();
     }
 
     /**  Sets the minimal maximal Y value of the grid. */
@@ -182,6 +217,7 @@ abstract public class ColorSurfaceData{
 	else{
 	    y_step = (y_max - y_min);
 	}
+	invalidateImage();
     }
 
     /**  Sets all values of the 2D array to 0. */
@@ -193,6 +229,7 @@ abstract public class ColorSurfaceData{
 	}
 	z_min =   0.; 
         z_max =   0.;
+	invalidateImage();
     }
 
     /**  Sets value of the 2D array with indexes i and j. */
@@ -200,6 +237,7 @@ abstract public class ColorSurfaceData{
 	gridData[i][j] = value;
         if(z_min > gridData[i][j]) z_min = gridData[i][j];
         if(z_max < gridData[i][j]) z_max = gridData[i][j];
+	invalidateGrid(i, i, j, j);
     }
 
 
@@ -238,6 +276,7 @@ abstract public class ColorSurfaceData{
 		if(z_max < gridData[i][j]) z_max = gridData[i][j];
 	    }
 	} 
+	invalidateImage();
     }
 
    /**  Calculates minimal and maximal Z values. 
@@ -269,4 +308,181 @@ abstract public class ColorSurfaceData{
 	}
         return colorGen.getColor(value);
     }
+    /**  Marks the interpolated values near the grid points with indexes
+     *   from iMin to iMax and from jMin to jMax as changed, so the cached
+     *   image is updated there. The subclasses should call this method
+     *   after they modify the grid values.
+     */
+    protected synchronized void invalidateGrid(int iMin, int iMax, int jMin, int jMax){
+	if(iMin < dirtyMinI) dirtyMinI = iMin;
+	if(iMax > dirtyMaxI) dirtyMaxI = iMax;
+	if(jMin < dirtyMinJ) dirtyMinJ = jMin;
+	if(jMax > dirtyMaxJ) dirtyMaxJ = jMax;
+    }
+
+    /**  Marks the whole cached image as changed. */
+    public synchronized void invalidateImage(){
+	imageValid = false;
+    }
+
+    /**  Returns the image of the surface in the specified region with one
+     *   pixel for each screen stripe (see setScreenResolution). The pixel
+     *   in the column i and row j (from the top) has the color for the
+     *   center of the stripe. Stripes outside of the grid have the color
+     *   of the minimal Z value. The image is cached and only the tiles
+     *   near grid points changed since the last call are recomputed unless
+     *   the region, the Z range or the color generator changes. The
+     *   returned image is reused by the next call.
+     */
+    public synchronized BufferedImage getImage(double xMin, double xMax, double yMin, double yMax){
+	final int nColumns = nScreenX;
+	final int nRows = nScreenY;
+	if(image == null || image.getWidth() != nColumns || image.getHeight() != nRows){
+	    image = new BufferedImage(nColumns, nRows, BufferedImage.TYPE_INT_RGB);
+	    imageValues = new double[nColumns*nRows];
+	    imageValid = false;
+	}
+	final boolean allValues = !imageValid || xMin != imageMinX || xMax != imageMaxX || yMin != imageMinY || yMax != imageMaxY;
+	final int[] colorTable = getColorTable(colorGen);
+	final boolean allColors = allValues || z_min != imageMinZ || z_max != imageMaxZ || colorTable != imageColorTable;
+
+	final double stripeW = (xMax - xMin)/nColumns;
+	final double stripeH = (yMax - yMin)/nRows;
+	final int nTilesX = (nColumns + TILE_SIZE - 1)/TILE_SIZE;
+	final int nTilesY = (nRows + TILE_SIZE - 1)/TILE_SIZE;
+
+	//tiles to recompute: 0 - none, 1 - colors, 2 - values and colors
+	final int[] tileTasks = new int[nTilesX*nTilesY];
+	if(allColors) Arrays.fill(tileTasks, allValues ? 2 : 1);
+	if(!allValues && dirtyMinI <= dirtyMaxI && !(stripeW > 0. && stripeH > 0.)){
+	    Arrays.fill(tileTasks, 2);
+	}
+	else if(!allValues && dirtyMinI <= dirtyMaxI){
+	    double gx0 = getX(dirtyMinI - INTERPOLATION_RADIUS);
+	    double gx1 = getX(dirtyMaxI + INTERPOLATION_RADIUS);
+	    double gy0 = getY(dirtyMinJ - INTERPOLATION_RADIUS);
+	    double gy1 = getY(dirtyMaxJ + INTERPOLATION_RADIUS);
+	    int i0 = (int) Math.max(Math.floor((Math.min(gx0, gx1) - xMin)/stripeW - 0.5), 0.);
+	    int i1 = (int) Math.min(Math.ceil((Math.max(gx0, gx1) - xMin)/stripeW - 0.5), nColumns - 1.);
+	    int j0 = (int) Math.max(Math.floor((yMax - Math.max(gy0, gy1))/stripeH - 0.5), 0.);
+	    int j1 = (int) Math.min(Math.ceil((yMax - Math.min(gy0, gy1))/stripeH - 0.5), nRows - 1.);
+	    for(int tj = j0/TILE_SIZE; tj <= j1/TILE_SIZE; tj++){
+		for(int ti = i0/TILE_SIZE; ti <= i1/TILE_SIZE; ti++){
+		    tileTasks[tj*nTilesX + ti] = 2;
+		}
+	    }
+	}
+
+	final int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+	final double[] values = imageValues;
+	final double zMin = z_min;
+	final double zScale = z_max != z_min ? COLOR_TABLE_SIZE/(z_max - z_min) : 0.;
+
+	int nTasks = 0;
+	for(int task : tileTasks){
+	    if(task != 0) nTasks++;
+	}
+	final int[] tasks = new int[nTasks];
+	for(int t = 0, k = 0; t < tileTasks.length; t++){
+	    if(tileTasks[t] != 0) tasks[k++] = t;
+	}
+
+	final AtomicInteger nextTask = new AtomicInteger(0);
+	final Runnable rasterizer = new Runnable(){
+		public void run(){
+		    int k;
+		    while((k = nextTask.getAndIncrement()) < tasks.length){
+			int tile = tasks[k];
+			boolean computeValues = tileTasks[tile] == 2;
+			int iStart = (tile % nTilesX)*TILE_SIZE;
+			int jStart = (tile / nTilesX)*TILE_SIZE;
+			int iEnd = Math.min(iStart + TILE_SIZE, nColumns);
+			int jEnd = Math.min(jStart + TILE_SIZE, nRows);
+			for(int j = jStart; j < jEnd; j++){
+			    double y = yMax - (j + 0.5)*stripeH;
+			    boolean insideY = y >= y_min && y <= y_max;
+			    for(int i = iStart, index = j*nColumns + iStart; i < iEnd; i++, index++){
+				if(computeValues){
+				    double x = xMin + (i + 0.5)*stripeW;
+				    values[index] = insideY && x >= x_min && x <= x_max ? getValue(x, y) : Double.NaN;
+				}
+				int colorIndex = (int) ((values[index] - zMin)*zScale);
+				if(colorIndex < 0 || values[index] != values[index]) colorIndex = 0;
+				if(colorIndex >= COLOR_TABLE_SIZE) colorIndex = COLOR_TABLE_SIZE - 1;
+				pixels[index] = colorTable[colorIndex];
+			    }
+			}
+		    }
+		}
+	    };
+
+	//the calling thread rasterizes along with the helpers
+	final int nHelpers = nTasks > 1 ? Math.min(nTasks - 1, Runtime.getRuntime().availableProcessors() - 1) : 0;
+	final java.util.List<Future<?>> futures = new ArrayList<Future<?>>(nHelpers);
+	for(int h = 0; h < nHelpers; h++){
+	    futures.add(getRasterExecutor().submit(rasterizer));
+	}
+	rasterizer.run();
+	for(Future<?> future : futures){
+	    try{
+		future.get();
+	    }
+	    catch(InterruptedException exception){
+		Thread.currentThread().interrupt();
+		throw new RuntimeException("Interrupted while rasterizing the color surface.", exception);
+	    }
+	    catch(ExecutionException exception){
+		throw new RuntimeException("Exception rasterizing the color surface.", exception.getCause());
+	    }
+	}
+
+	imageMinX = xMin;
+	imageMaxX = xMax;
+	imageMinY = yMin;
+	imageMaxY = yMax;
+	imageMinZ = z_min;
+	imageMaxZ = z_max;
+	imageColorTable = colorTable;
+	imageValid = true;
+	dirtyMinI = Integer.MAX_VALUE;
+	dirtyMaxI = Integer.MIN_VALUE;
+	dirtyMinJ = Integer.MAX_VALUE;
+	dirtyMaxJ = Integer.MIN_VALUE;
+	return image;
+    }
+
+    /**  Returns the table of RGB values of the color generator sampled
+     *   uniformly for values from 0.0 to 1.0. */
+    public static int[] getColorTable(ColorGenerator colorGen){
+	synchronized(COLOR_TABLES){
+	    int[] colorTable = COLOR_TABLES.get(colorGen);
+	    if(colorTable == null){
+		colorTable = new int[COLOR_TABLE_SIZE];
+		for(int k = 0; k < COLOR_TABLE_SIZE; k++){
+		    colorTable[k] = colorGen.getColor(((double) k)/COLOR_TABLE_SIZE).getRGB();
+		}
+		COLOR_TABLES.put(colorGen, colorTable);
+	    }
+	    return colorTable;
+	}
+    }
+
+    /**  Returns the executor for rasterizing tiles in parallel. Its daemon
+     *   threads exit when idle. */
+    private static synchronized ExecutorService getRasterExecutor(){
+	if(rasterExecutor == null){
+	    int nThreads = Math.max(Runtime.getRuntime().availableProcessors() - 1, 1);
+	    ThreadPoolExecutor executor = new ThreadPoolExecutor(nThreads, nThreads, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), new ThreadFactory(){
+		    public Thread newThread(Runnable runnable){
+			Thread thread = new Thread(runnable, "Color Surface Rasterizer");
+			thread.setDaemon(true);
+			return thread;
+		    }
+		});
+	    executor.allowCoreThreadTimeOut(true);
+	    rasterExecutor = executor;
+	}
+	return rasterExecutor;
+    }
+
 }
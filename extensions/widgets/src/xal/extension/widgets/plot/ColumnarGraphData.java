@@ -0,0 +1,1081 @@
+package xal.extension.widgets.plot;
+
+import java.util.*;
+
+/**
+ *  This class is a container class for data used in the FunctionGraphsJPanel
+ *  class intended for curves with very many points such as long histories and
+ *  waveforms. It has the API of the <code> BasicGraphData </code> class, but it
+ *  keeps the points in growable primitive columns instead of point objects and
+ *  summarizes blocks of consecutive points into levels of detail (minimum and
+ *  maximum values) which are updated incrementally as points are appended or
+ *  changed. The FunctionGraphsJPanel uses the levels of detail to reduce the
+ *  visible points to the extremes in each pixel column, so the cost of a
+ *  repaint is bounded by the screen width rather than the number of points.
+ *  The y-values are interpolated linearly.
+ *
+ *@see        BasicGraphData
+ */
+
+public class ColumnarGraphData extends BasicGraphData {
+
+	/**
+	 *  log2 of the number of points summarized by a block of the finest level of
+	 *  detail
+	 */
+	private final static int BASE_SHIFT = 4;
+
+	/**
+	 *  log2 of the number of blocks of a level of detail summarized by a block of
+	 *  the next coarser level
+	 */
+	private final static int BRANCH_SHIFT = 2;
+
+	/**
+	 *  x-values of the points sorted in increasing order
+	 */
+	protected double[] xValues;
+
+	/**
+	 *  y-values of the points
+	 */
+	protected double[] yValues;
+
+	/**
+	 *  errors of the y-values
+	 */
+	protected double[] yErrValues;
+
+	/**
+	 *  number of points
+	 */
+	protected int nPoints;
+
+	/**
+	 *  minimal and maximal y-values without errors
+	 */
+	protected double yMinValue, yMaxValue;
+
+	/**
+	 *  number of levels of detail
+	 */
+	protected int nLevels;
+
+	/**
+	 *  number of leading points which are summarized correctly in the levels of
+	 *  detail
+	 */
+	protected int nSummarizedPoints;
+
+	/**
+	 *  minimal and maximal y-values of the blocks indexed by level and block
+	 */
+	protected double[][] lodMinY, lodMaxY;
+
+	/**
+	 *  minimal y-value minus error and maximal y-value plus error of the blocks
+	 *  indexed by level and block
+	 */
+	protected double[][] lodMinLowY, lodMaxUppY;
+
+
+	//-----------------------------------------------------
+	//constructor
+	//-----------------------------------------------------
+
+	/**
+	 *  data set constructor
+	 */
+	public ColumnarGraphData() {
+		super();
+	}
+
+
+	/**
+	 *  data set constructor with defined initial capacity for number of (x,y)
+	 *  points and the number of interpolated points
+	 *
+	 *@param  nPoint           the initial capacity for points
+	 *@param  nInterpPointsIn  the number of interpolated points
+	 */
+	public ColumnarGraphData(int nPoint, int nInterpPointsIn) {
+		super(nPoint, nInterpPointsIn);
+	}
+
+
+	/**
+	 *  initializes graph data containers
+	 *
+	 *@param  nPoint         the initial capacity for points
+	 *@param  nInterpPoints  the number of interpolated points
+	 */
+	protected void init(int nPoint, int nInterpPoints) {
+		super.init(0, 0);
+		int capacity = Math.max(nPoint, 16);
+		xValues = new double[capacity];
+		yValues = new double[capacity];
+		yErrValues = new double[capacity];
+		nPoints = 0;
+		yMinValue = Double.MAX_VALUE;
+		yMaxValue = -Double.MAX_VALUE;
+		nLevels = 0;
+		nSummarizedPoints = 0;
+		lodMinY = new double[0][];
+		lodMaxY = new double[0][];
+		lodMinLowY = new double[0][];
+		lodMaxUppY = new double[0][];
+	}
+
+
+	/**
+	 *  add (x,y, error of y) point to the data set. Appending a point with an
+	 *  x-value not less than the last one takes constant time.
+	 *
+	 *@param  x    the x-value
+	 *@param  y    the y-value
+	 *@param  err  the error of the y-value
+	 */
+	public void addPoint(double x, double y, double err) {
+		synchronized (lockUpObj) {
+			if (nPoints == 0 || x >= xValues[nPoints - 1]) {
+				insertPoint(nPoints, x, y, Math.abs(err));
+				this.calculateRepresentation();
+				this.updateLastPoint();
+			} else {
+				insertPoint(upperIndex(x), x, y, Math.abs(err));
+				this.calculateRepresentation();
+				this.updateData();
+			}
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  replace the data set with an array of (x,y) points
+	 *
+	 *@param  x  the x-values
+	 *@param  y  the y-values
+	 */
+	public void addPoint(double[] x, double[] y) {
+		synchronized (lockUpObj) {
+			setPoints(x, y, null);
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  replace the data set with an array of (x,y, error of y) points
+	 *
+	 *@param  x    the x-values
+	 *@param  y    the y-values
+	 *@param  err  the errors of the y-values
+	 */
+	public void addPoint(double[] x, double[] y, double[] err) {
+		synchronized (lockUpObj) {
+			setPoints(x, y, err);
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  update all points
+	 *
+	 *@param  x    the x-values
+	 *@param  y    the y-values
+	 *@param  err  the errors of the y-values
+	 */
+	public void updateValues(double[] x, double[] y, double[] err) {
+		synchronized (lockUpObj) {
+			if (x.length != y.length || y.length != err.length) {
+				return;
+			}
+			setPoints(x, y, err);
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  update all points
+	 *
+	 *@param  x  the x-values
+	 *@param  y  the y-values
+	 */
+	public void updateValues(double[] x, double[] y) {
+		synchronized (lockUpObj) {
+			if (x.length != y.length) {
+				return;
+			}
+			setPoints(x, y, null);
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  update the y-array with errors into the data set
+	 *
+	 *@param  y    the y-values
+	 *@param  err  the errors of the y-values
+	 */
+	public void updateValuesY(double[] y, double[] err) {
+		synchronized (lockUpObj) {
+			if (nPoints != y.length || nPoints != err.length) {
+				return;
+			}
+			System.arraycopy(y, 0, yValues, 0, nPoints);
+			for (int i = 0; i < nPoints; i++) {
+				yErrValues[i] = Math.abs(err[i]);
+			}
+			nSummarizedPoints = 0;
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  update the y-array into the data set
+	 *
+	 *@param  y  the y-values
+	 */
+	public void updateValuesY(double[] y) {
+		synchronized (lockUpObj) {
+			if (nPoints != y.length) {
+				return;
+			}
+			System.arraycopy(y, 0, yValues, 0, nPoints);
+			Arrays.fill(yErrValues, 0, nPoints, 0.0);
+			nSummarizedPoints = 0;
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  update the y-value with certain index into the data set
+	 *
+	 *@param  index  the index of the point
+	 *@param  y      the y-value
+	 */
+	public void updateValueY(int index, double y) {
+		synchronized (lockUpObj) {
+			if (index < 0 || index >= nPoints) {
+				return;
+			}
+			yValues[index] = y;
+			yErrValues[index] = 0.0;
+			nSummarizedPoints = Math.min(nSummarizedPoints, index);
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  update the y-value and x-value with certain index into the data set
+	 *
+	 *@param  index  the index of the point
+	 *@param  x      the x-value
+	 *@param  y      the y-value
+	 */
+	public void updatePoint(int index, double x, double y) {
+		updatePoint(index, x, y, 0.0);
+	}
+
+
+	/**
+	 *  update the y-value, x-value and error with certain index into the data set
+	 *
+	 *@param  index  the index of the point
+	 *@param  x      the x-value
+	 *@param  y      the y-value
+	 *@param  err    the error of the y-value
+	 */
+	public void updatePoint(int index, double x, double y, double err) {
+		synchronized (lockUpObj) {
+			if (index < 0 || index >= nPoints) {
+				return;
+			}
+			deletePoint(index);
+			insertPoint(upperIndex(x), x, y, Math.abs(err));
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  remove a point from the data set
+	 *
+	 *@param  index  the index of the point
+	 */
+	public void removePoint(int index) {
+		synchronized (lockUpObj) {
+			if (index >= 0 && index < nPoints) {
+				deletePoint(index);
+				this.calculateRepresentation();
+				this.updateData();
+			}
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  remove all points from the data set
+	 */
+	public void removeAllPoints() {
+		synchronized (lockUpObj) {
+			if (nPoints == 0) {
+				return;
+			}
+			nPoints = 0;
+			nSummarizedPoints = 0;
+			this.calculateRepresentation();
+			this.updateData();
+		}
+		this.updateContainer();
+	}
+
+
+	/**
+	 *  get y-value for certain x-value
+	 *
+	 *@param  x  the x-value
+	 *@return    the linearly interpolated y-value
+	 */
+	public double getValueY(double x) {
+		synchronized (lockUpObj) {
+			if (nPoints == 0) {
+				return Double.MIN_VALUE;
+			}
+			if (nPoints == 1) {
+				return yValues[0];
+			}
+			int i = Math.min(Math.max(upperIndex(x), 1), nPoints - 1);
+			double x1 = xValues[i - 1];
+			double x2 = xValues[i];
+			if (x2 == x1) {
+				return (yValues[i - 1] + yValues[i]) / 2.0;
+			}
+			double u = (x - x1) / (x2 - x1);
+			return (yValues[i - 1] + u * (yValues[i] - yValues[i - 1]));
+		}
+	}
+
+
+	/**
+	 *  get y'-value for certain x-value
+	 *
+	 *@param  x  the x-value
+	 *@return    the derivative of the linear interpolation
+	 */
+	public double getValueDerivativeY(double x) {
+		synchronized (lockUpObj) {
+			if (nPoints == 0) {
+				return Double.MIN_VALUE;
+			}
+			if (nPoints == 1) {
+				return 0.0;
+			}
+			int i = Math.min(Math.max(upperIndex(x), 1), nPoints - 1);
+			double x1 = xValues[i - 1];
+			double x2 = xValues[i];
+			if (x2 == x1) {
+				return 0.0;
+			}
+			return (yValues[i] - yValues[i - 1]) / (x2 - x1);
+		}
+	}
+
+
+	/**
+	 *  Returns the capacity of the point columns
+	 *
+	 *@return    The capacity value
+	 */
+	protected int getCapacity() {
+		return xValues.length;
+	}
+
+
+	/**
+	 *  returns the number of data points
+	 *
+	 *@return    The numbOfPoints value
+	 */
+	public int getNumbOfPoints() {
+		synchronized (lockUpObj) {
+			return nPoints;
+		}
+	}
+
+
+	/**
+	 *  returns the number of data points in the interpolation
+	 *
+	 *@return    The numbOfInterpPoints value
+	 */
+	public int getNumbOfInterpPoints() {
+		synchronized (lockUpObj) {
+			return nPoints > 0 ? nInterpPoints : 0;
+		}
+	}
+
+
+	/**
+	 *  returns x-value from the container
+	 *
+	 *@param  index  the index of the point
+	 *@return        The x value
+	 */
+	public double getX(int index) {
+		synchronized (lockUpObj) {
+			checkIndex(index);
+			return xValues[index];
+		}
+	}
+
+
+	/**
+	 *  returns y-value from the container
+	 *
+	 *@param  index  the index of the point
+	 *@return        The y value
+	 */
+	public double getY(int index) {
+		synchronized (lockUpObj) {
+			checkIndex(index);
+			return yValues[index];
+		}
+	}
+
+
+	/**
+	 *  returns x-value for a particular point in the interpolating data set
+	 *
+	 *@param  index  the index of the interpolated point
+	 *@return        The interpX value
+	 */
+	public double getInterpX(int index) {
+		synchronized (lockUpObj) {
+			return xMin + index * (xMax - xMin) / (nInterpPoints - 1);
+		}
+	}
+
+
+	/**
+	 *  returns interpolated y-value from the interpolating data set
+	 *
+	 *@param  index  the index of the interpolated point
+	 *@return        The interpY value
+	 */
+	public double getInterpY(int index) {
+		synchronized (lockUpObj) {
+			return getValueY(getInterpX(index));
+		}
+	}
+
+
+	/**
+	 *  returns the error value for certain index
+	 *
+	 *@param  index  the index of the point
+	 *@return        The err value
+	 */
+	public double getErr(int index) {
+		synchronized (lockUpObj) {
+			checkIndex(index);
+			return yErrValues[index];
+		}
+	}
+
+
+	/**
+	 *  recalculates the limits of the data from all points
+	 */
+	protected void updateData() {
+		if (nPoints == 0) {
+			return;
+		}
+
+		xMin = xValues[0];
+		xMax = xValues[nPoints - 1];
+		yMinValue = Double.MAX_VALUE;
+		yMaxValue = -Double.MAX_VALUE;
+		errYmax = 0.0;
+		for (int i = 0; i < nPoints; i++) {
+			double y = yValues[i];
+			if (y < yMinValue) {
+				yMinValue = y;
+			}
+			if (y > yMaxValue) {
+				yMaxValue = y;
+			}
+			if (yErrValues[i] > errYmax) {
+				errYmax = yErrValues[i];
+			}
+		}
+		yMin = yMinValue - errYmax;
+		yMax = yMaxValue + errYmax;
+	}
+
+
+	/**
+	 *  updates the limits of the data with the last point
+	 */
+	protected void updateLastPoint() {
+		int i = nPoints - 1;
+		double y = yValues[i];
+		if (nPoints == 1) {
+			xMin = xValues[i];
+			yMinValue = Double.MAX_VALUE;
+			yMaxValue = -Double.MAX_VALUE;
+			errYmax = 0.0;
+		}
+		xMax = xValues[i];
+		if (y < yMinValue) {
+			yMinValue = y;
+		}
+		if (y > yMaxValue) {
+			yMaxValue = y;
+		}
+		if (yErrValues[i] > errYmax) {
+			errYmax = yErrValues[i];
+		}
+		yMin = yMinValue - errYmax;
+		yMax = yMaxValue + errYmax;
+	}
+
+
+	/**
+	 *  reduces the points in the x-range to the pixel columns they occupy. The
+	 *  pixel column of an x-value is floor((x - xOrigin) * xScale). The nearest
+	 *  points outside of the range are included so lines can be drawn to the
+	 *  edges. The cost is bounded by the number of pixel columns rather than the
+	 *  number of points.
+	 *
+	 *@param  xOrigin  the x-value at the left edge of the first pixel column
+	 *@param  xScale   the number of pixel columns per unit of x
+	 *@param  xLow     the minimal visible x-value
+	 *@param  xHigh    the maximal visible x-value
+	 *@param  columns  the screen columns to fill
+	 *@return          the number of pixel columns occupied by points
+	 */
+	public int getScreenColumns(double xOrigin, double xScale, double xLow, double xHigh, ScreenColumns columns) {
+		synchronized (lockUpObj) {
+			columns.clear();
+			if (nPoints == 0) {
+				return 0;
+			}
+			updateLevelsOfDetail();
+			int first = Math.max(lowerIndex(xLow) - 1, 0);
+			int last = Math.min(upperIndex(xHigh), nPoints - 1);
+			if (nLevels == 0) {
+				for (int i = first; i <= last; i++) {
+					addScreenPoint(i, xOrigin, xScale, columns);
+				}
+			} else {
+				int top = nLevels - 1;
+				int shift = BASE_SHIFT + BRANCH_SHIFT * top;
+				for (int block = first >> shift, lastBlock = last >> shift; block <= lastBlock; block++) {
+					addScreenBlock(top, block, first, last, xOrigin, xScale, columns);
+				}
+			}
+			return columns.getColumnCount();
+		}
+	}
+
+
+	/**
+	 *  adds the points of a block between the first and last indexes to the
+	 *  screen columns using the block summary if all of its points are in the
+	 *  same column
+	 */
+	private void addScreenBlock(int level, int block, int first, int last, double xOrigin, double xScale, ScreenColumns columns) {
+		int shift = BASE_SHIFT + BRANCH_SHIFT * level;
+		int start = block << shift;
+		int end = Math.min(start + (1 << shift), nPoints) - 1;
+		if (end < first || start > last) {
+			return;
+		}
+		if (start >= first && end <= last) {
+			int column = getScreenColumn(xValues[start], xOrigin, xScale);
+			if (column == getScreenColumn(xValues[end], xOrigin, xScale)) {
+				columns.add(column, yValues[start], yValues[end], lodMinY[level][block], lodMaxY[level][block], lodMinLowY[level][block], lodMaxUppY[level][block], end - start + 1);
+				return;
+			}
+		}
+		if (level == 0) {
+			for (int i = Math.max(start, first), iEnd = Math.min(end, last); i <= iEnd; i++) {
+				addScreenPoint(i, xOrigin, xScale, columns);
+			}
+		} else {
+			int child = block << BRANCH_SHIFT;
+			for (int i = 0; i < (1 << BRANCH_SHIFT); i++) {
+				addScreenBlock(level - 1, child + i, first, last, xOrigin, xScale, columns);
+			}
+		}
+	}
+
+
+	/**
+	 *  adds a point to the screen columns
+	 */
+	private void addScreenPoint(int index, double xOrigin, double xScale, ScreenColumns columns) {
+		double y = yValues[index];
+		double err = yErrValues[index];
+		columns.add(getScreenColumn(xValues[index], xOrigin, xScale), y, y, y, y, y - err, y + err, 1);
+	}
+
+
+	/**
+	 *  returns the pixel column of the x-value
+	 */
+	private static int getScreenColumn(double x, double xOrigin, double xScale) {
+		double column = Math.floor((x - xOrigin) * xScale);
+		return (int) Math.max(Math.min(column, Integer.MAX_VALUE / 2), Integer.MIN_VALUE / 2);
+	}
+
+
+	/**
+	 *  brings the levels of detail up to date with the points
+	 */
+	protected void updateLevelsOfDetail() {
+		int nRequiredLevels = 0;
+		while (nPoints > (1 << (BASE_SHIFT + BRANCH_SHIFT * (nRequiredLevels + 1)))) {
+			nRequiredLevels++;
+		}
+		if (nRequiredLevels != nLevels) {
+			nLevels = nRequiredLevels;
+			nSummarizedPoints = 0;
+			lodMinY = new double[nLevels][];
+			lodMaxY = new double[nLevels][];
+			lodMinLowY = new double[nLevels][];
+			lodMaxUppY = new double[nLevels][];
+			for (int level = 0; level < nLevels; level++) {
+				int nBlocks = getBlockCount(xValues.length, level);
+				lodMinY[level] = new double[nBlocks];
+				lodMaxY[level] = new double[nBlocks];
+				lodMinLowY[level] = new double[nBlocks];
+				lodMaxUppY[level] = new double[nBlocks];
+			}
+		}
+		if (nSummarizedPoints >= nPoints) {
+			return;
+		}
+
+		for (int level = 0; level < nLevels; level++) {
+			int nBlocks = getBlockCount(nPoints, level);
+			if (lodMinY[level].length < nBlocks) {
+				int capacity = getBlockCount(xValues.length, level);
+				lodMinY[level] = Arrays.copyOf(lodMinY[level], capacity);
+				lodMaxY[level] = Arrays.copyOf(lodMaxY[level], capacity);
+				lodMinLowY[level] = Arrays.copyOf(lodMinLowY[level], capacity);
+				lodMaxUppY[level] = Arrays.copyOf(lodMaxUppY[level], capacity);
+			}
+
+			double[] minY = lodMinY[level];
+			double[] maxY = lodMaxY[level];
+			double[] minLowY = lodMinLowY[level];
+			double[] maxUppY = lodMaxUppY[level];
+			int shift = BASE_SHIFT + BRANCH_SHIFT * level;
+			for (int block = nSummarizedPoints >> shift; block < nBlocks; block++) {
+				double blockMinY = Double.MAX_VALUE;
+				double blockMaxY = -Double.MAX_VALUE;
+				double blockMinLowY = Double.MAX_VALUE;
+				double blockMaxUppY = -Double.MAX_VALUE;
+				if (level == 0) {
+					for (int i = block << shift, end = Math.min((block + 1) << shift, nPoints); i < end; i++) {
+						double y = yValues[i];
+						double err = yErrValues[i];
+						blockMinY = Math.min(blockMinY, y);
+						blockMaxY = Math.max(blockMaxY, y);
+						blockMinLowY = Math.min(blockMinLowY, y - err);
+						blockMaxUppY = Math.max(blockMaxUppY, y + err);
+					}
+				} else {
+					int nChildBlocks = getBlockCount(nPoints, level - 1);
+					for (int child = block << BRANCH_SHIFT, end = Math.min((block + 1) << BRANCH_SHIFT, nChildBlocks); child < end; child++) {
+						blockMinY = Math.min(blockMinY, lodMinY[level - 1][child]);
+						blockMaxY = Math.max(blockMaxY, lodMaxY[level - 1][child]);
+						blockMinLowY = Math.min(blockMinLowY, lodMinLowY[level - 1][child]);
+						blockMaxUppY = Math.max(blockMaxUppY, lodMaxUppY[level - 1][child]);
+					}
+				}
+				minY[block] = blockMinY;
+				maxY[block] = blockMaxY;
+				minLowY[block] = blockMinLowY;
+				maxUppY[block] = blockMaxUppY;
+			}
+		}
+		nSummarizedPoints = nPoints;
+	}
+
+
+	/**
+	 *  returns the number of blocks needed to summarize the points at a level of
+	 *  detail
+	 */
+	private static int getBlockCount(int nPoint, int level) {
+		int shift = BASE_SHIFT + BRANCH_SHIFT * level;
+		return (nPoint + (1 << shift) - 1) >> shift;
+	}
+
+
+	/**
+	 *  returns the index of the first point with an x-value not less than x
+	 */
+	protected int lowerIndex(double x) {
+		int low = 0;
+		int high = nPoints;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (xValues[middle] < x) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 *  returns the index of the first point with an x-value greater than x
+	 */
+	protected int upperIndex(double x) {
+		int low = 0;
+		int high = nPoints;
+		while (low < high) {
+			int middle = (low + high) >>> 1;
+			if (xValues[middle] <= x) {
+				low = middle + 1;
+			} else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+
+	/**
+	 *  replaces the points and sorts them by x-value
+	 */
+	private void setPoints(double[] x, double[] y, double[] err) {
+		int n = x.length;
+		ensureCapacity(n);
+		System.arraycopy(x, 0, xValues, 0, n);
+		System.arraycopy(y, 0, yValues, 0, n);
+		for (int i = 0; i < n; i++) {
+			yErrValues[i] = err != null ? Math.abs(err[i]) : 0.0;
+		}
+		nPoints = n;
+		nSummarizedPoints = 0;
+
+		for (int i = 1; i < n; i++) {
+			if (xValues[i] < xValues[i - 1]) {
+				sortPoints();
+				break;
+			}
+		}
+	}
+
+
+	/**
+	 *  sorts the points by x-value keeping the order of points with equal
+	 *  x-values
+	 */
+	private void sortPoints() {
+		Integer[] order = new Integer[nPoints];
+		for (int i = 0; i < nPoints; i++) {
+			order[i] = i;
+		}
+		final double[] x = Arrays.copyOf(xValues, nPoints);
+		final double[] y = Arrays.copyOf(yValues, nPoints);
+		final double[] err = Arrays.copyOf(yErrValues, nPoints);
+		Arrays.sort(order,
+			new Comparator<Integer>() {
+				public int compare(Integer index1, Integer index2) {
+					return Double.compare(x[index1], x[index2]);
+				}
+			});
+		for (int i = 0; i < nPoints; i++) {
+			xValues[i] = x[order[i]];
+			yValues[i] = y[order[i]];
+			yErrValues[i] = err[order[i]];
+		}
+	}
+
+
+	/**
+	 *  inserts a point at the index
+	 */
+	private void insertPoint(int index, double x, double y, double err) {
+		ensureCapacity(nPoints + 1);
+		if (index < nPoints) {
+			System.arraycopy(xValues, index, xValues, index + 1, nPoints - index);
+			System.arraycopy(yValues, index, yValues, index + 1, nPoints - index);
+			System.arraycopy(yErrValues, index, yErrValues, index + 1, nPoints - index);
+			nSummarizedPoints = Math.min(nSummarizedPoints, index);
+		}
+		xValues[index] = x;
+		yValues[index] = y;
+		yErrValues[index] = err;
+		nPoints++;
+	}
+
+
+	/**
+	 *  deletes the point at the index
+	 */
+	private void deletePoint(int index) {
+		System.arraycopy(xValues, index + 1, xValues, index, nPoints - index - 1);
+		System.arraycopy(yValues, index + 1, yValues, index, nPoints - index - 1);
+		System.arraycopy(yErrValues, index + 1, yErrValues, index, nPoints - index - 1);
+		nPoints--;
+		// re-summarize from the start of the block holding the point, or the
+		// new last point if the deleted one was the only point of its block, so
+		// blocks which held the deleted point are updated even if no point
+		// moved into them
+		int first = Math.max(Math.min(index, nPoints - 1), 0);
+		nSummarizedPoints = Math.min(nSummarizedPoints, (first >> BASE_SHIFT) << BASE_SHIFT);
+	}
+
+
+	/**
+	 *  grows the point columns to hold at least the specified number of points
+	 */
+	private void ensureCapacity(int capacity) {
+		if (capacity > xValues.length) {
+			int newCapacity = Math.max(capacity, xValues.length + (xValues.length >> 1));
+			xValues = Arrays.copyOf(xValues, newCapacity);
+			yValues = Arrays.copyOf(yValues, newCapacity);
+			yErrValues = Arrays.copyOf(yErrValues, newCapacity);
+		}
+	}
+
+
+	/**
+	 *  throws an exception if the index is not the index of a point
+	 */
+	private void checkIndex(int index) {
+		if (index < 0 || index >= nPoints) {
+			throw new ArrayIndexOutOfBoundsException("Point index " + index + " is out of range for " + nPoints + " points.");
+		}
+	}
+
+
+
+	//----------------------------------------------
+	//inner classes
+	//----------------------------------------------
+
+	/**
+	 *  The points of a graph reduced to the pixel columns they occupy on the
+	 *  screen. For each column it holds the y-values of the first and last
+	 *  points, the minimal and maximal y-values, the minimal y-value minus error,
+	 *  the maximal y-value plus error and the number of points. An instance can
+	 *  be reused for many graphs.
+	 */
+	public static class ScreenColumns {
+
+		/**
+		 *  number of occupied columns
+		 */
+		private int nColumns;
+
+		/**
+		 *  the pixel columns
+		 */
+		private int[] columns;
+
+		/**
+		 *  the number of points in each column
+		 */
+		private int[] pointCounts;
+
+		/**
+		 *  y-values of the first and last points, minimal and maximal y-values and
+		 *  the limits including errors for each column
+		 */
+		private double[] firstY, lastY, minY, maxY, minLowY, maxUppY;
+
+
+		/**
+		 *  Constructor for the ScreenColumns object
+		 */
+		public ScreenColumns() {
+			nColumns = 0;
+			allocate(256);
+		}
+
+
+		/**
+		 *  allocates the arrays for the capacity keeping the filled columns
+		 */
+		private void allocate(int capacity) {
+			columns = columns == null ? new int[capacity] : Arrays.copyOf(columns, capacity);
+			pointCounts = pointCounts == null ? new int[capacity] : Arrays.copyOf(pointCounts, capacity);
+			firstY = firstY == null ? new double[capacity] : Arrays.copyOf(firstY, capacity);
+			lastY = lastY == null ? new double[capacity] : Arrays.copyOf(lastY, capacity);
+			minY = minY == null ? new double[capacity] : Arrays.copyOf(minY, capacity);
+			maxY = maxY == null ? new double[capacity] : Arrays.copyOf(maxY, capacity);
+			minLowY = minLowY == null ? new double[capacity] : Arrays.copyOf(minLowY, capacity);
+			maxUppY = maxUppY == null ? new double[capacity] : Arrays.copyOf(maxUppY, capacity);
+		}
+
+
+		/**
+		 *  removes all columns
+		 */
+		void clear() {
+			nColumns = 0;
+		}
+
+
+		/**
+		 *  adds a summary of consecutive points merging it with the last column if
+		 *  it is in the same pixel column
+		 */
+		void add(int column, double first, double last, double min, double max, double minLow, double maxUpp, int nPoint) {
+			int i = nColumns - 1;
+			if (i >= 0 && columns[i] == column) {
+				lastY[i] = last;
+				minY[i] = Math.min(minY[i], min);
+				maxY[i] = Math.max(maxY[i], max);
+				minLowY[i] = Math.min(minLowY[i], minLow);
+				maxUppY[i] = Math.max(maxUppY[i], maxUpp);
+				pointCounts[i] += nPoint;
+				return;
+			}
+			if (nColumns == columns.length) {
+				allocate(2 * nColumns);
+			}
+			i = nColumns++;
+			columns[i] = column;
+			firstY[i] = first;
+			lastY[i] = last;
+			minY[i] = min;
+			maxY[i] = max;
+			minLowY[i] = minLow;
+			maxUppY[i] = maxUpp;
+			pointCounts[i] = nPoint;
+		}
+
+
+		/**
+		 *  returns the number of occupied columns
+		 *
+		 *@return    The columnCount value
+		 */
+		public int getColumnCount() {
+			return nColumns;
+		}
+
+
+		/**
+		 *  returns the pixel column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The column value
+		 */
+		public int getColumn(int index) {
+			return columns[index];
+		}
+
+
+		/**
+		 *  returns the number of points in the column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The pointCount value
+		 */
+		public int getPointCount(int index) {
+			return pointCounts[index];
+		}
+
+
+		/**
+		 *  returns the y-value of the first point in the column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The firstY value
+		 */
+		public double getFirstY(int index) {
+			return firstY[index];
+		}
+
+
+		/**
+		 *  returns the y-value of the last point in the column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The lastY value
+		 */
+		public double getLastY(int index) {
+			return lastY[index];
+		}
+
+
+		/**
+		 *  returns the minimal y-value in the column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The minY value
+		 */
+		public double getMinY(int index) {
+			return minY[index];
+		}
+
+
+		/**
+		 *  returns the maximal y-value in the column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The maxY value
+		 */
+		public double getMaxY(int index) {
+			return maxY[index];
+		}
+
+
+		/**
+		 *  returns the minimal y-value minus its error in the column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The minLowY value
+		 */
+		public double getMinLowY(int index) {
+			return minLowY[index];
+		}
+
+
+		/**
+		 *  returns the maximal y-value plus its error in the column
+		 *
+		 *@param  index  the index of the occupied column
+		 *@return        The maxUppY value
+		 */
+		public double getMaxUppY(int index) {
+			return maxUppY[index];
+		}
+	}
+}
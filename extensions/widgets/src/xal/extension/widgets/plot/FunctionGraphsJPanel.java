@@ -112,6 +112,9 @@ public class FunctionGraphsJPanel extends JPanel implements MouseListener, Mouse
 	private int screenW = 0;
 	private int screenH = 0;
 
+	//visible points of a ColumnarGraphData reduced to pixel columns
+	private ColumnarGraphData.ScreenColumns screenColumns = new ColumnarGraphData.ScreenColumns();
+
 	private int fSizeName = 0;
 	private int fSizeX = 0;
 	private int fSizeY = 0;
@@ -2895,26 +2898,12 @@ public class FunctionGraphsJPanel extends JPanel implements MouseListener, Mouse
 		//draw the colored surface plot
 		//------------------------------
 		if (colorSurfaceData != null) {
-			int nStripesX = colorSurfaceData.getScreenSizeX();
-			int nStripesY = colorSurfaceData.getScreenSizeY();
-			double xStripeW = (xMax - xMin) / nStripesX;
-			double yStripeW = (yMax - yMin) / nStripesY;
-			double x_0;
-			double y_0;
-			for (int i = 0; i < nStripesX; i++) {
-				for (int j = 0; j < nStripesY; j++) {
-					x_0 = i * xStripeW + xMin;
-					y_0 = yMax - j * yStripeW;
-					x1 = getScreenX(x_0);
-					x2 = getScreenX(x_0 + xStripeW);
-					y1 = getScreenY(y_0);
-					y2 = getScreenY(y_0 - yStripeW);
-					x_0 += 0.5 * xStripeW;
-					y_0 -= 0.5 * yStripeW;
-					g.setBackground(colorSurfaceData.getColor(x_0, y_0));
-					g.clearRect(x1, y1, x2 - x1 + 1, y2 - y1 + 1);
-				}
-			}
+			Image surfaceImage = colorSurfaceData.getImage(xMin, xMax, yMin, yMax);
+			x1 = getScreenX(xMin);
+			x2 = getScreenX(xMax);
+			y1 = getScreenY(yMax);
+			y2 = getScreenY(yMin);
+			g.drawImage(surfaceImage, x1, y1, x2 - x1 + 1, y2 - y1 + 1, null);
 		}
 
 		//------------------------------
@@ -3023,6 +3012,23 @@ public class FunctionGraphsJPanel extends JPanel implements MouseListener, Mouse
 						y2 = getScreenY(lgd.getInterpY(j + 1));
 						g.drawLine(x1, y1, x2, y2);
 					}
+				} else if (lgd instanceof ColumnarGraphData) {
+					//connect the columns and span the extremes within each column
+					ColumnarGraphData.ScreenColumns columns = getScreenColumns((ColumnarGraphData) lgd);
+					x1 = 0;
+					y1 = 0;
+					for (int j = 0, nColumns = columns.getColumnCount(); j < nColumns; j++) {
+						x2 = columns.getColumn(j) + xLOffSet;
+						y2 = getScreenY(columns.getFirstY(j));
+						if (j > 0) {
+							g.drawLine(x1, y1, x2, y2);
+						}
+						if (columns.getPointCount(j) > 1) {
+							g.drawLine(x2, getScreenY(columns.getMinY(j)), x2, getScreenY(columns.getMaxY(j)));
+						}
+						x1 = x2;
+						y1 = getScreenY(columns.getLastY(j));
+					}
 				} else {
 					for (int j = 0, nGrPoint = lgd.getNumbOfPoints() - 1; j < nGrPoint; j++) {
 						x1 = getScreenX(lgd.getX(j));
@@ -3076,7 +3082,17 @@ public class FunctionGraphsJPanel extends JPanel implements MouseListener, Mouse
 				}
 				g.setColor(lineColor);
 
-				if (lgd.getGraphPointShape() == null) {
+				if (lgd instanceof ColumnarGraphData) {
+					//mark the extremes within each column
+					ColumnarGraphData.ScreenColumns columns = getScreenColumns((ColumnarGraphData) lgd);
+					for (int j = 0, nColumns = columns.getColumnCount(); j < nColumns; j++) {
+						ovalX = columns.getColumn(j) + xLOffSet;
+						drawGraphPoint(g, lgd, ovalX, getScreenY(columns.getMinY(j)));
+						if (columns.getMaxY(j) != columns.getMinY(j)) {
+							drawGraphPoint(g, lgd, ovalX, getScreenY(columns.getMaxY(j)));
+						}
+					}
+				} else if (lgd.getGraphPointShape() == null) {
 
 					ovalW = lgd.getGraphPointSize();
 					ovalH = lgd.getGraphPointSize();
@@ -3140,6 +3156,18 @@ public class FunctionGraphsJPanel extends JPanel implements MouseListener, Mouse
 					}
 				}
 				g.setColor(lineColor);
+				if (lgd instanceof ColumnarGraphData) {
+					//span the error limits within each column
+					ColumnarGraphData.ScreenColumns columns = getScreenColumns((ColumnarGraphData) lgd);
+					for (int j = 0, nColumns = columns.getColumnCount(); j < nColumns; j++) {
+						if (columns.getMinLowY(j) == columns.getMinY(j) && columns.getMaxUppY(j) == columns.getMaxY(j)) {
+							continue;
+						}
+						xPosition = columns.getColumn(j) + xLOffSet;
+						g.drawLine(xPosition, getScreenY(columns.getMinLowY(j)), xPosition, getScreenY(columns.getMaxUppY(j)));
+					}
+					continue;
+				}
 				for (int j = 0, nGrPoint = lgd.getNumbOfPoints(); j < nGrPoint; j++) {
 					if (lgd.getErr(j) == 0.) {
 						continue;
@@ -3512,6 +3540,44 @@ public class FunctionGraphsJPanel extends JPanel implements MouseListener, Mouse
 	}
 
 
+	/**
+	 *  Returns the visible points of the graph data reduced to the pixel columns
+	 *  of the screen
+	 *
+	 *@param  gd  the graph data
+	 *@return     the screen columns which are reused for the next graph data
+	 */
+	private ColumnarGraphData.ScreenColumns getScreenColumns(ColumnarGraphData gd) {
+		gd.getScreenColumns(xMin, scaleX, xMin, xMax, screenColumns);
+		return screenColumns;
+	}
+
+
+	/**
+	 *  Draws a point of the graph data at the screen position
+	 *
+	 *@param  g   the graphics
+	 *@param  gd  the graph data
+	 *@param  x   the screen x-position
+	 *@param  y   the screen y-position
+	 */
+	private void drawGraphPoint(Graphics2D g, BasicGraphData gd, int x, int y) {
+		if (gd.getGraphPointShape() == null) {
+			int ovalW = gd.getGraphPointSize();
+			int ovalH = gd.getGraphPointSize();
+			g.fillOval(x - ovalW / 2, y - ovalH / 2, ovalW, ovalH);
+		} else {
+			g.translate(x, y);
+			if (gd.isGraphPointShapeFilled()) {
+				g.fill(gd.getGraphPointShape());
+			} else {
+				g.draw(gd.getGraphPointShape());
+			}
+			g.translate(-x, -y);
+		}
+	}
+
+
 	/**
 	 *  Returns the screenY attribute of the FunctionGraphsJPanel object
 	 *
@@ -116,6 +116,7 @@ public class LinearData3D extends ColorSurfaceData{
 		if(z_max < gridData[i+ii][j+jj]) z_max = gridData[i+ii][j+jj];        
 	    }
 	}
+	invalidateGrid(i, i+1, j, j+1);
 
 
     }
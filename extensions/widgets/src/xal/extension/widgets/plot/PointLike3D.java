@@ -55,6 +55,7 @@ public class PointLike3D extends ColorSurfaceData{
 	gridData[i][j]  += value;
 	if(z_min > gridData[i][j]) z_min = gridData[i][j];
 	if(z_max < gridData[i][j]) z_max = gridData[i][j];
+	invalidateGrid(i, i, j, j);
     }
 
 }
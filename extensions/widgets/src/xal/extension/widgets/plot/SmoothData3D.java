@@ -102,6 +102,7 @@ public class SmoothData3D extends ColorSurfaceData{
 		if(z_max < gridData[i+ii][j+jj]) z_max = gridData[i+ii][j+jj];        
 	    }
 	}
+	invalidateGrid(i-1, i+1, j-1, j+1);
 
     }
 
@@ -299,6 +299,7 @@ class JcaChannel extends Channel {
 			try {
 				// make sure we don't post a connection event until the channel has been assigned
 				synchronized ( _connectionLock ) {
+					if ( _jcaChannel != null )  return;		// another thread assigned the channel while we waited for the lock
 					_jcaChannel = _jcaNativeChannelCache.getChannel( m_strId );
 					_jcaChannel.addConnectionListener( newConnectionListener() );
 					if ( _jcaChannel.getConnectionState() == gov.aps.jca.Channel.CONNECTED ) {
@@ -326,11 +327,16 @@ class JcaChannel extends Channel {
      * Wait until a connection is made or the attempt to connect has timed out.
 	 * @param timeout seconds to wait for the connection before giving up
      */
-    synchronized private void waitForConnection( final double timeout ) {
-        if ( connectionFlag )  return;  // no need to wait
+    private void waitForConnection( final double timeout ) {
         try {
+			// check the connection under the lock so a connection made just before waiting is not missed
+			final long deadline = System.currentTimeMillis() + (long)( 1000 * timeout );
 			synchronized(_connectionLock) {
-				_connectionLock.wait( (long)( 1000 * timeout ) );
+				long remainingTime = deadline - System.currentTimeMillis();
+				while ( !connectionFlag && remainingTime > 0 ) {
+					_connectionLock.wait( remainingTime );
+					remainingTime = deadline - System.currentTimeMillis();
+				}
 			}
         }
         catch(InterruptedException exception) {
@@ -345,7 +351,7 @@ class JcaChannel extends Channel {
      */
     private void proceedFromConnection() {
 		synchronized(_connectionLock) {
-			_connectionLock.notify();
+			_connectionLock.notifyAll();
 		}
     }
         
@@ -937,6 +943,14 @@ class JcaChannel extends Channel {
         connectAndWait();
 		return getRawTimeRecord( getTimeType() );
     }
+
+	
+    /** Fetch the native type array as a reader of the DBR payload which is copied directly into the caller's buffers. */
+    protected ArrayBufferReader getRawArrayReader()  throws ConnectionException, GetException {
+        connectAndWait();
+        final DBR dbr = this.getVal( nativeType() );
+        return new ArrayBufferReader( dbr.getValue() );
+    }
 	
     
     /**
@@ -1020,6 +1034,27 @@ class JcaChannel extends Channel {
 			throw new RuntimeException( "Exception getting the time DBR type for " + m_strId, exception );
 		}
 	}
+
+	
+	/** Submit a non-blocking Get request which copies the DBR payload directly into the caller's buffer */
+	public void getArrDblCallback( final double[] buffer, final IEventSinkBufferDbl listener ) throws ConnectionException, GetException {
+		checkConnection( "getArrDblCallback()" );
+		
+		try {
+			_jcaChannel.get( getJcaType(), elementCount(), new gov.aps.jca.event.GetListener() {
+				public void getCompleted( final gov.aps.jca.event.GetEvent event ) {
+					final DBR dbr = event.getDBR();
+					if ( dbr != null ) {
+						final int rawCount = new ArrayBufferReader( dbr.getValue() ).copyTo( buffer, 0, buffer.length );
+						listener.eventArray( buffer, transformFromRaw( buffer, 0, rawCount ), JcaChannel.this );
+					}
+				}
+			});
+		}
+		catch( gov.aps.jca.CAException exception ) {
+			throw new GetException( "Exception getting the array value for " + m_strId + ": " + exception.getMessage() );
+		}
+	}
 	
     
     /**
@@ -1304,6 +1339,21 @@ class JcaChannel extends Channel {
         this.checkConnection("addMonitorValue()");
         return JcaMonitor.newValueMonitor( this, ifcSink, intMaskFire );
     }
+
+    
+    /**
+     *  Setup a monitor on this channel which copies the DBR payload of each event directly into a buffer from the pool
+     *  @param  ifcSink     interface to data sink
+     *  @param  pool        pool from which the buffers are acquired
+     *  @param  intMaskFire code specifying when the monitor is fired
+     *                      or'ed combination of 
+     *                      {Monitor.VALUE, Monitor.LOG, Monitor.ALARM}
+     *  @return             MonitorSrc object associated with this event
+     */
+    public xal.ca.Monitor addMonitorArrDbl( final IEventSinkBufferDbl ifcSink, final DoubleArrayPool pool, final int intMaskFire ) throws ConnectionException, MonitorException {
+        this.checkConnection("addMonitorArrDbl()");
+        return JcaMonitor.newArrayBufferMonitor( this, ifcSink, pool, intMaskFire );
+    }
     
     
     /** Flushes the channel access request buffer for events */
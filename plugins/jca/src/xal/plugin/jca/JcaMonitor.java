@@ -59,6 +59,12 @@ abstract class JcaMonitor extends Monitor implements gov.aps.jca.event.MonitorLi
 	}
 
 
+	/** factory method to create a monitor which provides array values in buffers from a pool */
+	static public JcaMonitorArrDbl newArrayBufferMonitor( final JcaChannel chan, final IEventSinkBufferDbl ifcSink, final DoubleArrayPool pool, final int intMaskFire ) throws ConnectionException, MonitorException {
+		return JcaMonitorArrDbl.newMonitor( chan, ifcSink, pool, intMaskFire );
+	}
+
+
     /**
      *  Derived monitor objects must override this event hook.  Derived class
      *  will catch the jca.MonitorEvent, convert to appropriate data type, and
@@ -235,3 +241,43 @@ class JcaMonitorValue extends JcaMonitor {
 		}
     }
 }
+
+
+
+/**
+ *  Class JcaMonitorArrDbl
+ *  Monitor a channel for any numeric type.
+ *  The array value of each event is copied from the DBR payload into a buffer from the pool.
+ */
+class JcaMonitorArrDbl extends JcaMonitor {
+    final private IEventSinkBufferDbl m_ifcSink;      // data sink for channel monitoring
+    final private DoubleArrayPool m_pool;             // pool of buffers for the array values
+    
+	
+    // create a mew monitor
+    protected JcaMonitorArrDbl( final Channel chan, final int type, final IEventSinkBufferDbl ifcSink, final DoubleArrayPool pool, final int intMaskFire ) 
+        throws ConnectionException, MonitorException {
+        super( chan, type, intMaskFire );
+        m_ifcSink = ifcSink;
+        m_pool = pool;
+
+        super.begin();
+    }
+    
+    
+    // capture an event, copy the dbr payload into a pooled buffer and notify the sink
+    public void monitorChanged( final MonitorEvent evt ) {
+        final DBR dbr = evt.getDBR();
+		if ( dbr != null ) {
+			synchronized(dbr) {
+				postArrayBuffer( m_ifcSink, new ArrayBufferReader( dbr.getValue() ), m_pool );
+			}			
+		}
+    }
+
+    
+    // convenient way to create a new monitor for the native type which carries no status or timestamp
+    static public JcaMonitorArrDbl newMonitor( final JcaChannel chan, final IEventSinkBufferDbl ifcSink, final DoubleArrayPool pool, final int intMaskFire ) throws ConnectionException, MonitorException {
+		return new JcaMonitorArrDbl( chan, chan.nativeType(), ifcSink, pool, intMaskFire );
+    }
+}
@@ -9,45 +9,98 @@
 package xal.plugin.jca;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 import gov.aps.jca.Channel;
 import gov.aps.jca.Context;
 
 
-/** Cache JCA native channels for reuse among several XAL channels.  JCA won't allow us to create more than one channel for the same PV signal. */
+/**
+ * Cache JCA native channels for reuse among several XAL channels.  JCA won't allow us to create more than one channel for the same PV signal.
+ * Channels are created without a global lock. Each signal maps to a future for its native channel, so concurrent requests for the same signal
+ * share a single native channel while requests for different signals proceed in parallel.
+ */
 class JcaNativeChannelCache {
 	/** JCA System */
 	final protected JcaSystem JCA_SYSTEM;
-	
-	/** map of native channel's keyed by PV signal name */
-	final protected Map<String,Channel> CHANNEL_MAP;
-	
-	
+
+	/** map of futures for the native channels keyed by PV signal name */
+	final protected ConcurrentMap<String,Future<Channel>> CHANNEL_MAP;
+
+
 	/** Constructor */
 	public JcaNativeChannelCache( final JcaSystem jcaSystem ) {
 		JCA_SYSTEM = jcaSystem;
-		CHANNEL_MAP = new HashMap<String,Channel>();
+		CHANNEL_MAP = new ConcurrentHashMap<String,Future<Channel>>();
 	}
-	
-	
+
+
 	/**
 	 * Get an existing channel if available or else, create a new channel for specified signal name.
+	 * A cached channel which has since been destroyed is replaced with a new channel.
 	 * @param signalName the PV signal name.
 	 * @return the native JCA channel corresponding to the specified PV signal
 	 * @throws gov.aps.jca.CAException if the channel fails to be created
 	 */
 	public Channel getChannel( final String signalName ) throws gov.aps.jca.CAException {
-		Channel channel;
-		
-		synchronized( CHANNEL_MAP ) {
-			channel = CHANNEL_MAP.get( signalName );
-			
-			if ( channel == null ) {
-				channel = JCA_SYSTEM.getJcaContext().createChannel( signalName );
-				CHANNEL_MAP.put( signalName, channel );
+		while ( true ) {
+			final Future<Channel> channelFuture = getChannelFuture( signalName );
+			final Channel channel = awaitChannel( signalName, channelFuture );
+			if ( channel.getConnectionState() != Channel.CLOSED )  return channel;
+
+			// the channel was destroyed so remove it (unless another thread already has) and create a new one
+			CHANNEL_MAP.remove( signalName, channelFuture );
+		}
+	}
+
+
+	/** Get the future for the specified signal's channel creating the channel on the calling thread if no other thread has requested it */
+	private Future<Channel> getChannelFuture( final String signalName ) {
+		final Future<Channel> channelFuture = CHANNEL_MAP.get( signalName );
+		if ( channelFuture != null )  return channelFuture;
+
+		final FutureTask<Channel> channelTask = new FutureTask<Channel>( new Callable<Channel>() {
+			public Channel call() throws gov.aps.jca.CAException {
+				return JCA_SYSTEM.getJcaContext().createChannel( signalName );
 			}
+		});
+
+		final Future<Channel> existingFuture = CHANNEL_MAP.putIfAbsent( signalName, channelTask );
+		if ( existingFuture != null )  return existingFuture;
+
+		channelTask.run();
+		return channelTask;
+	}
+
+
+	/** Wait for the channel of the future removing the future if the channel could not be created so a later request may try again */
+	private Channel awaitChannel( final String signalName, final Future<Channel> channelFuture ) throws gov.aps.jca.CAException {
+		boolean interrupted = false;
+		try {
+			while ( true ) {
+				try {
+					return channelFuture.get();
+				}
+				catch ( InterruptedException exception ) {
+					interrupted = true;
+				}
+				catch ( ExecutionException exception ) {
+					CHANNEL_MAP.remove( signalName, channelFuture );
+					final Throwable cause = exception.getCause();
+					if ( cause instanceof gov.aps.jca.CAException ) {
+						throw (gov.aps.jca.CAException)cause;
+					}
+					else if ( cause instanceof RuntimeException ) {
+						throw (RuntimeException)cause;
+					}
+					else {
+						throw new RuntimeException( "Exception creating the native channel for: " + signalName, cause );
+					}
+				}
+			}
+		}
+		finally {
+			if ( interrupted )  Thread.currentThread().interrupt();
 		}
-		
-		return channel;
 	}
 }
@@ -38,15 +38,18 @@ import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
 public class JcaServerChannel extends Channel implements IServerChannel {
 	private ServerMemoryRecord pv;
     private ProcessVariableEventDispatcher pved;;
+    /** channel system which publishes the staged values */
+    private final JcaServerChannelSystem channelSystem;
 
     /** size for array PVs */
     public static final int DEFAULT_ARRAY_SIZE = 1024;
 
     private final int size;
 
-    JcaServerChannel( final String signal, final DefaultServerImpl channelServer ) {
+    JcaServerChannel( final String signal, final DefaultServerImpl channelServer, final JcaServerChannelSystem channelSystem ) {
         super(signal);
         m_strId = signal;
+        this.channelSystem = channelSystem;
 
 		if ( signal.length() > 0 ) {
 			size = signal.matches(".*(TBT|A)") ? DEFAULT_ARRAY_SIZE : 1;
@@ -386,15 +389,29 @@ public class JcaServerChannel extends Channel implements IServerChannel {
         }
     }
     
+    @Override
+    public void stageValue(double newVal) {
+        stageValue(new double[] { newVal });
+    }
+
+    @Override
+    public void stageValue(double[] newVal) {
+        if (pv != null) {
+            pv.stageValue(newVal);
+            channelSystem.stagePV(pv);
+        }
+    }
+    
     private class JcaServerMonitor extends Monitor implements ProcessVariableEventCallback {
     	private int maskEvent;
     	private IEventSinkValTime listener;
 		
     	protected JcaServerMonitor(IEventSinkValTime listener, int intMaskEvent)
-				throws ConnectionException {
+				throws ConnectionException, MonitorException {
 			super(JcaServerChannel.this, intMaskEvent);
 			this.listener = listener;
 			this.maskEvent = intMaskEvent;
+			begin();
 		}
 		
     	@Override
@@ -410,11 +427,15 @@ public class JcaServerChannel extends Channel implements IServerChannel {
 		@Override
 		protected void begin() throws MonitorException {
 			pved.registerEventListener(this);
+			m_bolMonitoring = true;
 		}
 
 		@Override
 		public void clear() {
-			pved.unregisterEventListener(this);			
+			if (m_bolMonitoring) {
+				pved.unregisterEventListener(this);
+				m_bolMonitoring = false;
+			}
 		}
     }
     
@@ -48,7 +48,7 @@ public class JcaServerChannelFactory extends ChannelFactory {
      *            The name of the PV signal
      */
     protected xal.ca.Channel newChannel(final String signalName) {
-        return (xal.ca.Channel) new JcaServerChannel(signalName, CHANNEL_SERVER);
+        return (xal.ca.Channel) new JcaServerChannel(signalName, CHANNEL_SERVER, JCA_SERVER_SYSTEM);
     }
 
     /**
@@ -1,6 +1,11 @@
 package xal.plugin.jca.server;
 
 import gov.aps.jca.cas.ServerContext;
+import gov.aps.jca.dbr.TimeStamp;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
 import xal.ca.ChannelSystem;
 import xal.ca.ChannelServer;
 
@@ -15,6 +20,9 @@ class JcaServerChannelSystem extends ChannelSystem {
     /** Java Channel Access Context */
     private ServerContext JCA_CONTEXT;
 
+    /** PVs whose values were staged since the last publication */
+    private Set<ServerMemoryProcessVariable> stagedPVs = new LinkedHashSet<ServerMemoryProcessVariable>();
+
  
     /** Constructor */
     public JcaServerChannelSystem(ServerContext JCA_CONTEXT) {
@@ -37,6 +45,27 @@ class JcaServerChannelSystem extends ChannelSystem {
     public void flushIO() {
     }
 
+    /** Record that the PV has a staged value to publish */
+    synchronized void stagePV(ServerMemoryProcessVariable pv) {
+        stagedPVs.add(pv);
+    }
+
+    /** Publish all staged PVs with one timestamp */
+    @Override
+    public void publishStagedValues() {
+        final Set<ServerMemoryProcessVariable> pvs;
+        synchronized (this) {
+            if (stagedPVs.isEmpty()) return;
+            pvs = stagedPVs;
+            stagedPVs = new LinkedHashSet<ServerMemoryProcessVariable>(pvs.size());
+        }
+
+        final TimeStamp timestamp = new TimeStamp();
+        for (final ServerMemoryProcessVariable pv : pvs) {
+            pv.publish(timestamp);
+        }
+    }
+
     @Override
     public boolean pendIO(double timeout) {
         return true;
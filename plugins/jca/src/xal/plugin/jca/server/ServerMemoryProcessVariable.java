@@ -24,8 +24,12 @@ import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.dbr.STS;
 import gov.aps.jca.dbr.Severity;
 import gov.aps.jca.dbr.Status;
+import gov.aps.jca.dbr.TIME;
 import gov.aps.jca.dbr.TimeStamp;
 
+import java.lang.reflect.Array;
+
+import com.cosylab.epics.caj.cas.handlers.AbstractCASResponseHandler;
 import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
 import com.cosylab.epics.caj.cas.util.MemoryProcessVariable;
 
@@ -105,6 +109,37 @@ public class ServerMemoryProcessVariable extends MemoryProcessVariable {
 		}
     }
 
+    /**
+     * Sets PV's value without notifying monitors. The value is posted to the monitors by the next call to
+     * {@link #publish}. Meant only for {@link JcaServerChannel}.
+     * 
+     * @param value
+     *            value to stage.
+     */
+    public synchronized void stageValue(Object value) {
+    	type = getType(value);
+    	this.value = value;
+    	count = Array.getLength(value);
+    }
+
+    /**
+     * Stamps the PV's value with the given timestamp and posts it to the monitors if any are interested. Meant only
+     * for {@link JcaServerChannelSystem}, which shares one timestamp among all PVs staged since the last publication.
+     * 
+     * @param timestamp
+     *            timestamp of the published value.
+     */
+    public synchronized void publish(TimeStamp timestamp) {
+    	this.timestamp = timestamp;
+    	if (interest) {
+    		DBR dbr = AbstractCASResponseHandler.createDBRforReading(this);
+    		fillInDBR(dbr);
+    		((TIME)dbr).setTimeStamp(timestamp);
+    		System.arraycopy(value, 0, dbr.getValue(), 0, count);
+    		eventCallback.postEvent(3, dbr);	// same value and log mask as write
+    	}
+    }
+
     /**
      * Creates channel when PV is attached by a client. Returns {@link ServerChannel} with overridden {@link
      * writeAccess()} to return true when PV is {@link #settable} and false otherwise.
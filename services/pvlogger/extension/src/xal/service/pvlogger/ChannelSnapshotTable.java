@@ -51,6 +51,9 @@ class ChannelSnapshotTable {
 	/** value array type (value holds an array of doubles) */
 	protected final String VALUE_ARRAY_TYPE;
 
+	/** binary value type (if specified, the value column holds the array of doubles packed as binary) */
+	protected final String VALUE_BINARY_TYPE;
+
 
 	/** Constructor */
 	public ChannelSnapshotTable( final DBTableConfiguration configuration ) {
@@ -65,6 +68,13 @@ class ChannelSnapshotTable {
 		SEVERITY_COLUMN = configuration.getColumn( "severity" );
 
 		VALUE_ARRAY_TYPE = configuration.getDataType( "valueArray" );
+		VALUE_BINARY_TYPE = configuration.getDataType( "valueBinary" );
+	}
+
+
+	/** Determine whether the values are stored packed as binary rather than as an SQL array */
+	public boolean usesPackedValues() {
+		return VALUE_BINARY_TYPE != null;
 	}
 
 
@@ -76,18 +86,70 @@ class ChannelSnapshotTable {
 	 */
 	public void insert( final Connection connection, final DatabaseAdaptor databaseAdaptor, final ChannelSnapshot[] channelSnapshots, final long machineSnapshotID ) throws SQLException {
 		final PreparedStatement insertStatement = getInsertStatement( connection );
+		try {
+			if ( addToBatch( insertStatement, connection, databaseAdaptor, channelSnapshots, machineSnapshotID ) ) {
+				insertStatement.executeBatch();
+			}
+		}
+		finally {
+			insertStatement.close();
+		}
+	}
+
+
+	/**
+	 * Insert the channel snapshots of several machine snapshots in a single batch. The caller is responsible for committing the transaction.
+	 * @param connection database connection
+	 * @param databaseAdaptor database adaptor
+	 * @param machineSnapshots machine snapshots whose channel snapshots should be inserted
+	 * @param machineSnapshotIDs machine snapshot IDs corresponding to the machine snapshots
+	 */
+	public void insert( final Connection connection, final DatabaseAdaptor databaseAdaptor, final List<MachineSnapshot> machineSnapshots, final long[] machineSnapshotIDs ) throws SQLException {
+		final PreparedStatement insertStatement = getInsertStatement( connection );
+		try {
+			boolean needsInsert = false;
+			final int count = machineSnapshots.size();
+			for ( int index = 0 ; index < count ; index++ ) {
+				needsInsert |= addToBatch( insertStatement, connection, databaseAdaptor, machineSnapshots.get( index ).getChannelSnapshots(), machineSnapshotIDs[index] );
+			}
+
+			if ( needsInsert ) {
+				insertStatement.executeBatch();
+			}
+		}
+		finally {
+			insertStatement.close();
+		}
+	}
+
+
+	/**
+	 * Add the channel snapshots to the insert statement's batch.
+	 * @param insertStatement statement to which to add the channel snapshot records
+	 * @param connection database connection
+	 * @param databaseAdaptor database adaptor
+	 * @param channelSnapshots channel snapshots to add
+	 * @param machineSnapshotID machine snapshot ID
+	 * @return true if at least one record was added to the batch and false if not
+	 */
+	protected boolean addToBatch( final PreparedStatement insertStatement, final Connection connection, final DatabaseAdaptor databaseAdaptor, final ChannelSnapshot[] channelSnapshots, final long machineSnapshotID ) throws SQLException {
 		boolean needsInsert = false;
 
 		for ( final ChannelSnapshot channelSnapshot : channelSnapshots ) {
 			if ( channelSnapshot != null ) {
 				final Timestamp timeStamp = channelSnapshot.getTimestamp().getSQLTimestamp();
 				try {
-					final Array valueArray = databaseAdaptor.getArray( VALUE_ARRAY_TYPE, connection, channelSnapshot.getValue() );
 					insertStatement.setLong( 1, machineSnapshotID );
 					insertStatement.setString( 2, channelSnapshot.getPV() );
 					insertStatement.setTimestamp( 3, timeStamp );
 
-					insertStatement.setArray( 4, valueArray );
+					if ( usesPackedValues() ) {
+						insertStatement.setBytes( 4, PackedValueCodec.encode( channelSnapshot.getValue() ) );
+					}
+					else {
+						final Array valueArray = databaseAdaptor.getArray( VALUE_ARRAY_TYPE, connection, channelSnapshot.getValue() );
+						insertStatement.setArray( 4, valueArray );
+					}
 
 					insertStatement.setInt( 5, channelSnapshot.getStatus() );
 					insertStatement.setInt( 6, channelSnapshot.getSeverity() );
@@ -103,12 +165,7 @@ class ChannelSnapshotTable {
 			}
 		}
 
-		if ( needsInsert ) {
-			insertStatement.executeBatch();
-		}
-		if(insertStatement != null) {
-			insertStatement.close();
-		}
+		return needsInsert;
 	}
 
 
@@ -128,8 +185,7 @@ class ChannelSnapshotTable {
 		while ( resultSet.next() ) {
 			final String pv = resultSet.getString( PV_COLUMN );
 			final Timestamp timestamp = resultSet.getTimestamp( TIMESTAMP_COLUMN );
-			final BigDecimal[] bigValue = (BigDecimal[])resultSet.getArray( VALUE_COLUMN ).getArray();
-			final double[] value = toDoubleArray( bigValue );
+			final double[] value = fetchValue( resultSet );
 			final short status = resultSet.getShort( STATUS_COLUMN );
 			final short severity = resultSet.getShort( SEVERITY_COLUMN );
 			snapshots.add( new ChannelSnapshot( pv, value, status, severity, new xal.ca.Timestamp( timestamp ) ) );
@@ -142,6 +198,67 @@ class ChannelSnapshotTable {
 	}
 
 
+	/**
+	 * Stream the samples of the requested PVs for the machine snapshots of the specified type within the time range into the accumulator
+	 * using a single query which joins the machine snapshot table rather than fetching every channel of each machine snapshot.
+	 * @param connection database connection
+	 * @param machineSnapshotTable machine snapshot table to join
+	 * @param type machine snapshot type
+	 * @param pvs PVs for which to fetch samples
+	 * @param startTime The start time of the time range
+	 * @param endTime The end time of the time range
+	 * @param accumulator accumulator into which the samples are added
+	 */
+	public void fetchSignalSamples( final Connection connection, final MachineSnapshotTable machineSnapshotTable, final String type, final List<String> pvs, final java.util.Date startTime, final java.util.Date endTime, final SignalHistoryAccumulator accumulator ) throws SQLException {
+		if ( pvs.isEmpty() )  return;
+
+		final PreparedStatement query = getSignalQueryStatement( connection, machineSnapshotTable, pvs.size() );
+		try {
+			query.setString( 1, type );
+			query.setTimestamp( 2, new Timestamp( startTime.getTime() ) );
+			query.setTimestamp( 3, new Timestamp( endTime.getTime() ) );
+			for ( int index = 0 ; index < pvs.size() ; index++ ) {
+				query.setString( 4 + index, pvs.get( index ) );
+			}
+
+			final ResultSet resultSet = query.executeQuery();
+			try {
+				while ( resultSet.next() ) {
+					final String pv = resultSet.getString( PV_COLUMN );
+					final Timestamp timestamp = resultSet.getTimestamp( TIMESTAMP_COLUMN );
+					final double[] value = fetchValue( resultSet );
+					if ( value.length > 0 ) {
+						accumulator.addSample( pv, new xal.ca.Timestamp( timestamp ).getSeconds(), value[0] );
+					}
+				}
+			}
+			finally {
+				resultSet.close();
+			}
+		}
+		finally {
+			query.close();
+		}
+	}
+
+
+	/**
+	 * Read the value array from the current record of the result set.
+	 * @param resultSet result set positioned at a channel snapshot record
+	 * @return the value array
+	 * @throws java.sql.SQLException  if an exception occurs during a SQL evaluation
+	 */
+	protected double[] fetchValue( final ResultSet resultSet ) throws SQLException {
+		if ( usesPackedValues() ) {
+			return PackedValueCodec.decode( resultSet.getBytes( VALUE_COLUMN ) );
+		}
+		else {
+			final BigDecimal[] bigValue = (BigDecimal[])resultSet.getArray( VALUE_COLUMN ).getArray();
+			return toDoubleArray( bigValue );
+		}
+	}
+
+
 	/**
 	 * Create a prepared statement for inserting new records into the channel snapshot database table.
 	 * @return the prepared statement for inserting a new channel snapshot
@@ -162,6 +279,30 @@ class ChannelSnapshotTable {
 	}
 
 
+	/**
+	 * Create a prepared statement to query for the channel snapshot records of selected PVs belonging to machine snapshots of a type within a time range.
+	 * @param connection database connection
+	 * @param machineSnapshotTable machine snapshot table to join
+	 * @param pvCount number of PVs to select
+	 * @return the prepared statement with parameters type, start time, end time followed by the PVs
+	 * @throws java.sql.SQLException  if an exception occurs during a SQL evaluation
+	 */
+	protected PreparedStatement getSignalQueryStatement( final Connection connection, final MachineSnapshotTable machineSnapshotTable, final int pvCount ) throws SQLException {
+		final StringBuilder pvParameters = new StringBuilder( "?" );
+		for ( int index = 1 ; index < pvCount ; index++ ) {
+			pvParameters.append( ", ?" );
+		}
+
+		final String machineTable = machineSnapshotTable.TABLE_NAME;
+		final String machineTimestamp = machineTable + "." + machineSnapshotTable.TIMESTAMP_COLUMN;
+		return connection.prepareStatement( "SELECT " + TABLE_NAME + "." + PV_COLUMN + ", " + TABLE_NAME + "." + TIMESTAMP_COLUMN + ", " + TABLE_NAME + "." + VALUE_COLUMN + 
+										   " FROM " + TABLE_NAME + ", " + machineTable + 
+										   " WHERE " + TABLE_NAME + "." + MACHINE_SNAPSHOT_COLUMN + " = " + machineTable + "." + machineSnapshotTable.PRIMARY_KEY + 
+										   " AND " + machineTable + "." + machineSnapshotTable.TYPE_COLUMN + " = ? AND " + machineTimestamp + " > ? AND " + machineTimestamp + " < ?" + 
+										   " AND " + TABLE_NAME + "." + PV_COLUMN + " IN (" + pvParameters + ") ORDER BY " + machineTimestamp );
+	}
+
+
 	/**
 	 * Convert an array of numbers to an array of double values.
 	 * @param numbers array of numbers to convert
@@ -30,6 +30,9 @@ class DBTableConfiguration {
 	/** map of database data types keyed by name */
 	final protected Map<String,String> DATA_TYPE_MAP;
 	
+	/** number of primary keys reserved by each fetch of the next primary key (must match the increment of the key sequence) */
+	final protected int KEY_BLOCK_SIZE;
+	
 	
 	/** Constructor */
 	protected DBTableConfiguration( final DataAdaptor tableAdaptor ) {
@@ -37,6 +40,7 @@ class DBTableConfiguration {
 		COLUMN_ATTRIBUTE_MAP = getColumnAttributeMap( tableAdaptor );
 		QUERY_MAP = getQueryMap( tableAdaptor );
 		DATA_TYPE_MAP = getDataTypes( tableAdaptor );
+		KEY_BLOCK_SIZE = tableAdaptor.hasAttribute( "keyBlockSize" ) ? Math.max( 1, tableAdaptor.intValue( "keyBlockSize" ) ) : 1;
 	}
 	
 	
@@ -85,6 +89,16 @@ class DBTableConfiguration {
 	}
 	
 	
+	/**
+	 * Get the number of primary keys reserved with each fetch of the next primary key. The database sequence which generates
+	 * the primary keys must increment by this amount so that each fetched key reserves the range [key, key + blockSize).
+	 * @return the primary key block size which defaults to 1
+	 */
+	public int getKeyBlockSize() {
+		return KEY_BLOCK_SIZE;
+	}
+	
+	
 	/**
 	 * Get the map of columns keyed by attributes.
 	 * @param tableAdaptor the adaptor for the database table
@@ -0,0 +1,188 @@
+//
+// DatabaseSnapshotStore.java: Source file for 'DatabaseSnapshotStore'
+// Project xal
+//
+
+package xal.service.pvlogger;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import xal.tools.database.ConnectionDictionary;
+
+
+/** Snapshot store backed by the relational database described by the persistent store configuration and reached through a connection dictionary */
+class DatabaseSnapshotStore implements SnapshotStore {
+	/** database store */
+	final protected PersistentStore PERSISTENT_STORE;
+
+	/** connection dictionary */
+	protected ConnectionDictionary _connectionDictionary;
+
+	/** current database connection used for fetching */
+	protected Connection _connection;
+
+	/** current database connection used for publishing */
+	protected Connection _publishingConnection;
+
+
+	/** Constructor */
+	public DatabaseSnapshotStore( final PersistentStore persistentStore, final ConnectionDictionary connectionDictionary ) {
+		PERSISTENT_STORE = persistentStore;
+		_connectionDictionary = connectionDictionary;
+	}
+
+
+	/** get the persistent store */
+	public PersistentStore getPersistentStore() {
+		return PERSISTENT_STORE;
+	}
+
+
+	/** get the connection dictionary */
+	public ConnectionDictionary getConnectionDictionary() {
+		return _connectionDictionary;
+	}
+
+
+	/** set the connection dictionary closing any connections made with the previous dictionary */
+	synchronized public void setConnectionDictionary( final ConnectionDictionary dictionary ) {
+		_connectionDictionary = dictionary;
+		close();
+	}
+
+
+	/** Fetch channel groups as an array of types */
+	public String[] fetchTypes()  throws SQLException {
+		return PERSISTENT_STORE.fetchTypes( getDatabaseConnection() );
+	}
+
+
+	/** Fetch the channel groups associated with the service ID as an array of types */
+	public String[] fetchTypes( final String serviceID ) throws SQLException {
+		return PERSISTENT_STORE.fetchTypes( getDatabaseConnection(), serviceID );
+	}
+
+
+	/** Fetch the channel group for the specified type from the database */
+	public ChannelGroup fetchChannelGroup( final String type ) throws SQLException {
+		final Connection connection = getDatabaseConnection();
+		return connection != null ? PERSISTENT_STORE.fetchChannelGroup( connection, type ) : null;
+	}
+
+
+	/** Get the channel group corresponding to the specified type. */
+	public ChannelGroup getChannelGroup( final String type ) throws SQLException {
+		return PERSISTENT_STORE.getChannelGroup( getDatabaseConnection(), type );
+	}
+
+
+	/** Fetch the machine snapshot corresponding to the specified snasphot ID */
+	public MachineSnapshot fetchMachineSnapshot( final long snapshotID ) throws SQLException {
+		return PERSISTENT_STORE.fetchMachineSnapshot( getDatabaseConnection(), snapshotID );
+	}
+
+
+	/** Fetch the machine snapshots within the specified time range. */
+	public MachineSnapshot[] fetchMachineSnapshotsInRange( final String type, final Date startTime, final Date endTime ) throws SQLException {
+		return PERSISTENT_STORE.fetchMachineSnapshotsInRange( getDatabaseConnection(), type, startTime, endTime );
+	}
+
+
+	/** Fetch the channel snapshots from the data source and populate the machine snapshot */
+	public MachineSnapshot loadChannelSnapshotsInto( final MachineSnapshot machineSnapshot ) throws SQLException {
+		return PERSISTENT_STORE.loadChannelSnapshotsInto( getDatabaseConnection(), machineSnapshot );
+	}
+
+
+	/** Fetch the histories of the specified PVs with a single query */
+	public Map<String,SignalHistory> fetchSignalHistories( final String type, final List<String> pvs, final Date startTime, final Date endTime, final int bucketCount ) throws SQLException {
+		return PERSISTENT_STORE.fetchSignalHistories( getDatabaseConnection(), type, pvs, startTime, endTime, bucketCount );
+	}
+
+
+	/** Publish the machine snapshots in a single transaction on the publishing connection */
+	synchronized public List<MachineSnapshot> publish( final List<MachineSnapshot> machineSnapshots ) throws SQLException {
+		if ( _publishingConnection == null || !testConnection( _publishingConnection ) ) {
+			closeConnection( _publishingConnection );
+			_publishingConnection = PersistentStore.connectionInstance( _connectionDictionary );
+		}
+
+		boolean succeeded = false;
+		try {
+			final List<MachineSnapshot> publishedSnapshots = PERSISTENT_STORE.publish( _publishingConnection, _connectionDictionary.getDatabaseAdaptor(), machineSnapshots );
+			succeeded = publishedSnapshots != null && publishedSnapshots.size() == machineSnapshots.size();
+			return publishedSnapshots;
+		}
+		finally {
+			// a failure may indicate a stale connection so reconnect on the next attempt
+			if ( !succeeded ) {
+				closeConnection( _publishingConnection );
+				_publishingConnection = null;
+			}
+		}
+	}
+
+
+	/** get the current database connection creating it if necessary */
+	synchronized public Connection getDatabaseConnection() {
+		if ( _connection == null || !testConnection( _connection ) ) {
+			closeConnection( _connection );
+			_connection = getNewDatabaseConnection();
+		}
+
+		return _connection;
+	}
+
+
+	/** make a new database connection */
+	protected Connection getNewDatabaseConnection() {
+		try {
+			return _connectionDictionary != null && _connectionDictionary.hasRequiredInfo() ? PersistentStore.connectionInstance( _connectionDictionary ) : null;
+		}
+		catch( Exception exception ) {
+			return null;
+		}
+	}
+
+
+	/** close the database connections */
+	synchronized public void close() {
+		closeConnection( _connection );
+		_connection = null;
+
+		closeConnection( _publishingConnection );
+		_publishingConnection = null;
+	}
+
+
+	/** close the specified connection if it exists reporting but otherwise ignoring any exception */
+	static private void closeConnection( final Connection connection ) {
+		try {
+			if ( connection != null ) {
+				connection.close();
+			}
+		}
+		catch ( Exception exception ) {
+			exception.printStackTrace();
+		}
+	}
+
+
+	/**
+	 * Test whether the connection is good
+	 * @param connection the connection to test
+	 * @return true if the connection is good and false if not
+	 */
+	static protected boolean testConnection( final Connection connection ) {
+		try {
+			return !connection.isClosed();
+		}
+		catch( SQLException exception ) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,1063 @@
+//
+// LocalSnapshotStore.java: Source file for 'LocalSnapshotStore'
+// Project xal
+//
+
+package xal.service.pvlogger;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+import xal.ca.Timestamp;
+import xal.tools.data.DataAdaptor;
+import xal.tools.xml.XmlDataAdaptor;
+
+
+/**
+ * LocalSnapshotStore is an embedded snapshot store which keeps machine snapshots in append-only segment files within a local directory so
+ * the PV Logger can be used without an external database (e.g. on test rigs or for offline analysis). Each machine snapshot is written as one
+ * checksummed record whose channel data is laid out column-wise (PVs, timestamps, status, severity, value counts and packed values). Segments
+ * are read through memory mapping and an in-memory index by type and timestamp is built when the store is opened, so range scans return
+ * machine snapshots without reading any channel data until the channel snapshots are requested. Channel groups are defined directly on the store
+ * and kept in an XML file alongside the segments. Expired snapshots (per group retention) and corrupt records are removed by compaction.
+ *
+ * Record layout: magic (int), body length (int), body, CRC32 of the body (long). The body holds the snapshot ID (long), timestamp in milliseconds (long),
+ * type, comment, channel count (int) followed by the channel columns. Strings are written as a UTF-8 byte count (or -1 for null) followed by the bytes.
+ * Snapshot IDs are never reused: compaction records the next ID in a sequence file so IDs of removed snapshots are not handed out again.
+ */
+public class LocalSnapshotStore implements SnapshotStore {
+	/** magic number which begins every snapshot record ("PVLS") */
+	final static private int RECORD_MAGIC = 0x50564C53;
+
+	/** number of bytes in the record header (magic and body length) */
+	final static private int RECORD_HEADER_SIZE = 8;
+
+	/** number of bytes in the record trailer (checksum) */
+	final static private int RECORD_TRAILER_SIZE = 8;
+
+	/** default size in bytes beyond which the active segment is sealed and a new one started */
+	final static private long DEFAULT_MAX_SEGMENT_SIZE = 64L * 1024L * 1024L;
+
+	/** largest segment size supported since segments are memory mapped as a whole and indexed by int offsets */
+	final static private long MAX_MAPPABLE_SEGMENT_SIZE = 1L << 30;
+
+	/** file extension for segment files */
+	final static private String SEGMENT_EXTENSION = ".pvs";
+
+	/** prefix of segment file names */
+	final static private String SEGMENT_PREFIX = "segment-";
+
+	/** name of the file holding the channel group definitions */
+	final static private String GROUPS_FILE_NAME = "groups.xml";
+
+	/** name of the file holding the high-water mark of snapshot IDs */
+	final static private String SEQUENCE_FILE_NAME = "sequence";
+
+	/** data label of the groups document root */
+	final static private String GROUPS_DATA_LABEL = "LocalSnapshotStore";
+
+	/** character set for encoding strings */
+	final static private Charset UTF8 = Charset.forName( "UTF-8" );
+
+	/** orders index entries by timestamp and then ID */
+	final static private Comparator<IndexEntry> TIME_ORDER = new Comparator<IndexEntry>() {
+		public int compare( final IndexEntry entry1, final IndexEntry entry2 ) {
+			final int timeComparison = Long.compare( entry1.TIME, entry2.TIME );
+			return timeComparison != 0 ? timeComparison : Long.compare( entry1.ID, entry2.ID );
+		}
+	};
+
+	/** directory holding the store's files */
+	final private File DIRECTORY;
+
+	/** size in bytes beyond which the active segment is sealed */
+	final private long MAX_SEGMENT_SIZE;
+
+	/** segments in order of creation (the last one is the active segment to which new records are appended) */
+	final private List<Segment> SEGMENTS;
+
+	/** index entries keyed by snapshot ID */
+	final private Map<Long,IndexEntry> ID_INDEX;
+
+	/** index entries ordered by time keyed by snapshot type */
+	final private Map<String,NavigableSet<IndexEntry>> TYPE_INDEX;
+
+	/** all index entries ordered by time */
+	final private NavigableSet<IndexEntry> TIME_INDEX;
+
+	/** channel group definitions keyed by type */
+	final private Map<String,GroupDefinition> GROUP_DEFINITIONS;
+
+	/** channel groups keyed by type */
+	final private Map<String,ChannelGroup> CHANNEL_GROUPS;
+
+	/** ID to assign to the next published snapshot */
+	private long _nextSnapshotID;
+
+
+	/**
+	 * Primary Constructor which opens (creating if necessary) the store in the specified directory
+	 * @param directory directory holding the store's files
+	 * @param maxSegmentSize size in bytes beyond which the active segment is sealed and a new one started (limited to 1 GB)
+	 */
+	public LocalSnapshotStore( final File directory, final long maxSegmentSize ) throws IOException {
+		DIRECTORY = directory;
+		MAX_SEGMENT_SIZE = Math.min( maxSegmentSize, MAX_MAPPABLE_SEGMENT_SIZE );
+
+		SEGMENTS = new ArrayList<Segment>();
+		ID_INDEX = new HashMap<Long,IndexEntry>();
+		TYPE_INDEX = new HashMap<String,NavigableSet<IndexEntry>>();
+		TIME_INDEX = new TreeSet<IndexEntry>( TIME_ORDER );
+		GROUP_DEFINITIONS = new HashMap<String,GroupDefinition>();
+		CHANNEL_GROUPS = new HashMap<String,ChannelGroup>();
+
+		_nextSnapshotID = 1;
+
+		if ( !DIRECTORY.exists() && !DIRECTORY.mkdirs() ) {
+			throw new IOException( "Cannot create the local snapshot store directory: " + DIRECTORY );
+		}
+
+		loadGroupDefinitions();
+		openSegments();
+	}
+
+
+	/**
+	 * Constructor which opens (creating if necessary) the store in the specified directory using the default segment size
+	 * @param directory directory holding the store's files
+	 */
+	public LocalSnapshotStore( final File directory ) throws IOException {
+		this( directory, DEFAULT_MAX_SEGMENT_SIZE );
+	}
+
+
+	/** get the directory holding the store's files */
+	public File getDirectory() {
+		return DIRECTORY;
+	}
+
+
+	/** get the number of snapshots in the store */
+	synchronized public int getSnapshotCount() {
+		return ID_INDEX.size();
+	}
+
+
+	/**
+	 * Define (or redefine) a channel group which can then be logged to this store.
+	 * @param label The group's label which is the type of its machine snapshots
+	 * @param serviceID ID of the service which logs the group
+	 * @param description A description of the group
+	 * @param pvs The PVs in the group
+	 * @param loggingPeriod The default logging period in seconds for the group
+	 * @param retention the rentention time in days (or zero for permanent retention) for snapshots associated with this group
+	 */
+	synchronized public void defineChannelGroup( final String label, final String serviceID, final String description, final String[] pvs, final double loggingPeriod, final double retention ) throws IOException {
+		GROUP_DEFINITIONS.put( label, new GroupDefinition( label, serviceID, description, pvs, loggingPeriod, retention ) );
+		CHANNEL_GROUPS.remove( label );
+		saveGroupDefinitions();
+	}
+
+
+	/** Fetch channel groups as an array of types */
+	synchronized public String[] fetchTypes() {
+		final String[] types = GROUP_DEFINITIONS.keySet().toArray( new String[GROUP_DEFINITIONS.size()] );
+		Arrays.sort( types );
+		return types;
+	}
+
+
+	/** Fetch the channel groups associated with the service ID as an array of types */
+	synchronized public String[] fetchTypes( final String serviceID ) {
+		final List<String> types = new ArrayList<String>();
+		for ( final GroupDefinition definition : GROUP_DEFINITIONS.values() ) {
+			if ( serviceID != null ? serviceID.equals( definition.SERVICE_ID ) : definition.SERVICE_ID == null ) {
+				types.add( definition.LABEL );
+			}
+		}
+		final String[] typeArray = types.toArray( new String[types.size()] );
+		Arrays.sort( typeArray );
+		return typeArray;
+	}
+
+
+	/** Fetch a new instance of the channel group for the specified type */
+	synchronized public ChannelGroup fetchChannelGroup( final String type ) {
+		final GroupDefinition definition = GROUP_DEFINITIONS.get( type );
+		final ChannelGroup group = definition != null ? definition.newChannelGroup() : null;
+		if ( group != null ) {
+			CHANNEL_GROUPS.put( type, group );
+		}
+		return group;
+	}
+
+
+	/** Get the channel group corresponding to the specified type. */
+	synchronized public ChannelGroup getChannelGroup( final String type ) {
+		final ChannelGroup group = CHANNEL_GROUPS.get( type );
+		return group != null ? group : fetchChannelGroup( type );
+	}
+
+
+	/** Fetch the machine snapshot including its channel snapshots */
+	synchronized public MachineSnapshot fetchMachineSnapshot( final long snapshotID ) throws SQLException {
+		final IndexEntry entry = ID_INDEX.get( snapshotID );
+		if ( entry == null )  return null;
+
+		final MachineSnapshot machineSnapshot = entry.newMachineSnapshot();
+		return loadChannelSnapshotsInto( machineSnapshot );
+	}
+
+
+	/** Fetch the machine snapshots (without their channel snapshots) strictly within the time range */
+	synchronized public MachineSnapshot[] fetchMachineSnapshotsInRange( final String type, final Date startTime, final Date endTime ) {
+		final NavigableSet<IndexEntry> range = getEntriesInRange( type, startTime, endTime );
+		final MachineSnapshot[] snapshots = new MachineSnapshot[range.size()];
+		int index = 0;
+		for ( final IndexEntry entry : range ) {
+			snapshots[index++] = entry.newMachineSnapshot();
+		}
+		return snapshots;
+	}
+
+
+	/** get the index entries of the specified type (or any type if null) strictly within the time range */
+	private NavigableSet<IndexEntry> getEntriesInRange( final String type, final Date startTime, final Date endTime ) {
+		final NavigableSet<IndexEntry> entries = type != null ? TYPE_INDEX.get( type ) : TIME_INDEX;
+		if ( entries == null || !startTime.before( endTime ) )  return new TreeSet<IndexEntry>( TIME_ORDER );
+
+		final IndexEntry lowerBound = new IndexEntry( Long.MAX_VALUE, null, startTime.getTime(), null, 0, 0, null );
+		final IndexEntry upperBound = new IndexEntry( Long.MIN_VALUE, null, endTime.getTime(), null, 0, 0, null );
+		return entries.subSet( lowerBound, false, upperBound, false );
+	}
+
+
+	/** Fetch the channel snapshots and populate the machine snapshot */
+	synchronized public MachineSnapshot loadChannelSnapshotsInto( final MachineSnapshot machineSnapshot ) throws SQLException {
+		final IndexEntry entry = ID_INDEX.get( machineSnapshot.getId() );
+		if ( entry != null ) {
+			try {
+				machineSnapshot.setChannelSnapshots( readChannelSnapshots( entry, null ) );
+			}
+			catch( IOException exception ) {
+				throw new SQLException( "Exception reading the channel snapshots for machine snapshot: " + machineSnapshot.getId(), exception );
+			}
+		}
+		else {
+			machineSnapshot.setChannelSnapshots( new ChannelSnapshot[0] );
+		}
+		return machineSnapshot;
+	}
+
+
+	/**
+	 * Fetch the snapshot of a single channel from a machine snapshot reading only that channel's values.
+	 * @param snapshotID machine snapshot ID
+	 * @param pv PV of the channel
+	 * @return the channel snapshot or null if the machine snapshot does not exist or does not include the PV
+	 */
+	synchronized public ChannelSnapshot fetchChannelSnapshot( final long snapshotID, final String pv ) throws SQLException {
+		final IndexEntry entry = ID_INDEX.get( snapshotID );
+		if ( entry == null )  return null;
+
+		try {
+			final ChannelSnapshot[] channelSnapshots = readChannelSnapshots( entry, Collections.singleton( pv ) );
+			return channelSnapshots.length > 0 ? channelSnapshots[0] : null;
+		}
+		catch( IOException exception ) {
+			throw new SQLException( "Exception reading the channel snapshot for PV: " + pv + " in machine snapshot: " + snapshotID, exception );
+		}
+	}
+
+
+	/** Fetch the histories of the specified PVs reading only their columns from each machine snapshot record in the range */
+	synchronized public Map<String,SignalHistory> fetchSignalHistories( final String type, final List<String> pvs, final Date startTime, final Date endTime, final int bucketCount ) throws SQLException {
+		final SignalHistoryAccumulator accumulator = new SignalHistoryAccumulator( pvs, startTime.getTime() / 1000.0, endTime.getTime() / 1000.0, bucketCount );
+		final Set<String> pvSet = new HashSet<String>( pvs );
+		for ( final IndexEntry entry : getEntriesInRange( type, startTime, endTime ) ) {
+			try {
+				for ( final ChannelSnapshot channelSnapshot : readChannelSnapshots( entry, pvSet ) ) {
+					if ( channelSnapshot.getValueCount() > 0 ) {
+						accumulator.addSample( channelSnapshot.getPV(), channelSnapshot.getTimestamp().getSeconds(), channelSnapshot.getScalarValue() );
+					}
+				}
+			}
+			catch( IOException exception ) {
+				throw new SQLException( "Exception reading the channel snapshots for machine snapshot: " + entry.ID, exception );
+			}
+		}
+		return accumulator.getSignalHistories();
+	}
+
+
+	/** Append the machine snapshots to the active segment and flush them to disk */
+	synchronized public List<MachineSnapshot> publish( final List<MachineSnapshot> machineSnapshots ) throws SQLException {
+		final List<MachineSnapshot> publishedSnapshots = new ArrayList<MachineSnapshot>( machineSnapshots.size() );
+		final List<IndexEntry> entries = new ArrayList<IndexEntry>( machineSnapshots.size() );
+
+		try {
+			for ( final MachineSnapshot machineSnapshot : machineSnapshots ) {
+				final long snapshotID = _nextSnapshotID;
+				final byte[] record = encodeRecord( snapshotID, machineSnapshot );
+
+				final Segment segment = getWritableSegment();
+				final long offset = segment.append( record );
+				_nextSnapshotID = snapshotID + 1;
+
+				entries.add( new IndexEntry( snapshotID, machineSnapshot.getType(), machineSnapshot.getTimestamp().getTime(), machineSnapshot.getComment(), offset, record.length, segment ) );
+				publishedSnapshots.add( machineSnapshot );
+			}
+		}
+		catch( IOException exception ) {
+			Logger.getLogger( "global" ).log( Level.SEVERE, "Exception appending snapshots to the local snapshot store: " + DIRECTORY, exception );
+		}
+
+		try {
+			if ( SEGMENTS.size() > 0 ) {
+				SEGMENTS.get( SEGMENTS.size() - 1 ).force();
+			}
+		}
+		catch( IOException exception ) {
+			throw new SQLException( "Exception flushing the local snapshot store: " + DIRECTORY, exception );
+		}
+
+		for ( int index = 0 ; index < entries.size() ; index++ ) {
+			final IndexEntry entry = entries.get( index );
+			addToIndex( entry );
+			publishedSnapshots.get( index ).setId( entry.ID );
+		}
+
+		return publishedSnapshots;
+	}
+
+
+	/**
+	 * Compact the store by rewriting the segments keeping only intact snapshots which have not expired per their group's retention.
+	 * @return the number of snapshots removed
+	 */
+	synchronized public int compact() throws IOException {
+		final long now = System.currentTimeMillis();
+		final int originalCount = ID_INDEX.size();
+		final List<Segment> oldSegments = new ArrayList<Segment>( SEGMENTS );
+
+		// write the surviving records in time order into temporary files which become the new segments
+		final List<File> compactedFiles = new ArrayList<File>();
+		int segmentNumber = oldSegments.size() > 0 ? oldSegments.get( oldSegments.size() - 1 ).NUMBER + 1 : 1;
+		Segment compactedSegment = null;
+		try {
+			for ( final IndexEntry entry : TIME_INDEX ) {
+				if ( isExpired( entry, now ) )  continue;
+
+				final ByteBuffer record = entry.SEGMENT.readRecord( entry.OFFSET, entry.LENGTH );
+				if ( !isRecordIntact( record ) ) {
+					Logger.getLogger( "global" ).log( Level.WARNING, "Dropping corrupt snapshot record: " + entry.ID + " during compaction of: " + DIRECTORY );
+					continue;
+				}
+
+				if ( compactedSegment == null || compactedSegment.size() >= MAX_SEGMENT_SIZE ) {
+					if ( compactedSegment != null )  compactedSegment.close();
+					final File compactedFile = new File( DIRECTORY, segmentFileName( segmentNumber++ ) + ".tmp" );
+					compactedFiles.add( compactedFile );
+					compactedSegment = new Segment( compactedFile, 0 );
+				}
+				final byte[] bytes = new byte[record.remaining()];
+				record.get( bytes );
+				compactedSegment.append( bytes );
+			}
+			if ( compactedSegment != null ) {
+				compactedSegment.force();
+			}
+		}
+		finally {
+			if ( compactedSegment != null )  compactedSegment.close();
+		}
+
+		// compaction may remove the snapshots with the highest IDs so record the next ID before any segment is deleted
+		saveNextSnapshotID();
+
+		// swap in the compacted segments and delete the old ones (snapshots duplicated by an interrupted swap are resolved in favor of the newer segment when indexing)
+		for ( final Segment segment : oldSegments ) {
+			segment.close();
+		}
+		try {
+			for ( final File compactedFile : compactedFiles ) {
+				final String path = compactedFile.getPath();
+				if ( !compactedFile.renameTo( new File( path.substring( 0, path.length() - ".tmp".length() ) ) ) ) {
+					throw new IOException( "Cannot rename the compacted segment: " + compactedFile );
+				}
+			}
+			for ( final Segment segment : oldSegments ) {
+				if ( !segment.FILE.delete() ) {
+					Logger.getLogger( "global" ).log( Level.WARNING, "Cannot delete the compacted segment: " + segment.FILE );
+				}
+			}
+		}
+		finally {
+			openSegments();
+		}
+
+		return originalCount - ID_INDEX.size();
+	}
+
+
+	/** Close the segment files */
+	synchronized public void close() {
+		for ( final Segment segment : SEGMENTS ) {
+			try {
+				segment.close();
+			}
+			catch( IOException exception ) {
+				exception.printStackTrace();
+			}
+		}
+	}
+
+
+	/** determine whether the snapshot has expired per the retention of its channel group */
+	private boolean isExpired( final IndexEntry entry, final long now ) {
+		final GroupDefinition definition = entry.TYPE != null ? GROUP_DEFINITIONS.get( entry.TYPE ) : null;
+		if ( definition == null || definition.RETENTION <= 0 )  return false;
+		return entry.TIME < now - (long)( definition.RETENTION * 24.0 * 3600.0 * 1000.0 );
+	}
+
+
+	/** get the segment to which to append the next record starting a new segment if necessary */
+	private Segment getWritableSegment() throws IOException {
+		final Segment activeSegment = SEGMENTS.size() > 0 ? SEGMENTS.get( SEGMENTS.size() - 1 ) : null;
+		if ( activeSegment != null && activeSegment.size() < MAX_SEGMENT_SIZE ) {
+			return activeSegment;
+		}
+		else {
+			if ( activeSegment != null ) {
+				activeSegment.force();
+				activeSegment.seal();
+			}
+			final int number = activeSegment != null ? activeSegment.NUMBER + 1 : 1;
+			final Segment segment = new Segment( new File( DIRECTORY, segmentFileName( number ) ), number );
+			SEGMENTS.add( segment );
+			return segment;
+		}
+	}
+
+
+	/** open the segment files and build the index */
+	private void openSegments() throws IOException {
+		SEGMENTS.clear();
+		ID_INDEX.clear();
+		TYPE_INDEX.clear();
+		TIME_INDEX.clear();
+
+		final File[] files = DIRECTORY.listFiles( new FileFilter() {
+			public boolean accept( final File file ) {
+				return file.isFile() && file.getName().startsWith( SEGMENT_PREFIX ) && file.getName().endsWith( SEGMENT_EXTENSION );
+			}
+		});
+		if ( files == null )  return;
+
+		final List<Segment> segments = new ArrayList<Segment>( files.length );
+		for ( final File file : files ) {
+			final String name = file.getName();
+			try {
+				final int number = Integer.parseInt( name.substring( SEGMENT_PREFIX.length(), name.length() - SEGMENT_EXTENSION.length() ) );
+				segments.add( new Segment( file, number ) );
+			}
+			catch( NumberFormatException exception ) {
+				Logger.getLogger( "global" ).log( Level.WARNING, "Ignoring unrecognized file in the local snapshot store: " + file );
+			}
+		}
+		segments.sort( new Comparator<Segment>() {
+			public int compare( final Segment segment1, final Segment segment2 ) {
+				return Integer.compare( segment1.NUMBER, segment2.NUMBER );
+			}
+		});
+
+		for ( int index = 0 ; index < segments.size() ; index++ ) {
+			final Segment segment = segments.get( index );
+			SEGMENTS.add( segment );
+			indexSegment( segment, index == segments.size() - 1 );
+		}
+
+		long maxID = 0;
+		for ( final Long snapshotID : ID_INDEX.keySet() ) {
+			maxID = Math.max( maxID, snapshotID );
+		}
+		_nextSnapshotID = Math.max( maxID + 1, loadNextSnapshotID() );
+	}
+
+
+	/** load the next snapshot ID recorded in the sequence file or 1 if there is no sequence file */
+	private long loadNextSnapshotID() throws IOException {
+		final File sequenceFile = new File( DIRECTORY, SEQUENCE_FILE_NAME );
+		if ( !sequenceFile.exists() )  return 1;
+
+		final RandomAccessFile input = new RandomAccessFile( sequenceFile, "r" );
+		try {
+			return input.length() >= 8 ? input.readLong() : 1;
+		}
+		finally {
+			input.close();
+		}
+	}
+
+
+	/** record the next snapshot ID in the sequence file replacing it atomically */
+	private void saveNextSnapshotID() throws IOException {
+		final File sequenceFile = new File( DIRECTORY, SEQUENCE_FILE_NAME );
+		final File temporaryFile = new File( DIRECTORY, SEQUENCE_FILE_NAME + ".tmp" );
+		final RandomAccessFile output = new RandomAccessFile( temporaryFile, "rw" );
+		try {
+			output.setLength( 0 );
+			output.writeLong( _nextSnapshotID );
+			output.getChannel().force( false );
+		}
+		finally {
+			output.close();
+		}
+		if ( sequenceFile.exists() && !sequenceFile.delete() || !temporaryFile.renameTo( sequenceFile ) ) {
+			throw new IOException( "Cannot replace the snapshot sequence file: " + sequenceFile );
+		}
+	}
+
+
+	/**
+	 * Scan the segment's records adding them to the index. The records of the active segment are verified and a torn tail (e.g. from a crash
+	 * during an append) is truncated. Records of sealed segments are verified when their channel snapshots are read. Invalid data followed by
+	 * an intact record is logged and skipped so indexing resumes at that record. Compaction later drops the skipped data.
+	 * @param segment the segment to index
+	 * @param isActive true if the segment is the active segment and false if it is sealed
+	 */
+	private void indexSegment( final Segment segment, final boolean isActive ) throws IOException {
+		final long size = segment.size();
+		final ByteBuffer buffer = segment.map();
+		long offset = 0;
+		while ( offset < size ) {
+			final IndexEntry entry = readIndexEntry( segment, buffer, offset, size );
+			if ( entry != null && ( !isActive || isRecordIntact( segment.readRecord( entry.OFFSET, entry.LENGTH ) ) ) ) {
+				addToIndex( entry );
+				offset += entry.LENGTH;
+				continue;
+			}
+
+			final long nextOffset = findIntactRecord( segment, buffer, offset + 1, size );
+			if ( nextOffset < 0 ) {
+				if ( isActive ) {
+					Logger.getLogger( "global" ).log( Level.WARNING, "Truncating invalid snapshot data from offset " + offset + " in segment: " + segment.FILE );
+					segment.truncate( offset );
+				}
+				else {
+					Logger.getLogger( "global" ).log( Level.WARNING, "Skipping invalid snapshot data from offset " + offset + " to the end of segment: " + segment.FILE );
+				}
+				break;
+			}
+			Logger.getLogger( "global" ).log( Level.WARNING, "Skipping invalid snapshot data from offset " + offset + " to " + nextOffset + " in segment: " + segment.FILE );
+			offset = nextOffset;
+		}
+	}
+
+
+	/** find the offset of the first intact record at or after the specified offset or -1 if there is none */
+	static private long findIntactRecord( final Segment segment, final ByteBuffer buffer, final long startOffset, final long size ) throws IOException {
+		for ( long offset = startOffset ; size - offset >= RECORD_HEADER_SIZE + RECORD_TRAILER_SIZE ; offset++ ) {
+			if ( buffer.getInt( (int)offset ) != RECORD_MAGIC )  continue;
+
+			final IndexEntry entry = readIndexEntry( segment, buffer, offset, size );
+			if ( entry != null && isRecordIntact( segment.readRecord( entry.OFFSET, entry.LENGTH ) ) )  return offset;
+		}
+		return -1;
+	}
+
+
+	/** read the index entry for the record at the specified offset or null if there is no valid record header there */
+	static private IndexEntry readIndexEntry( final Segment segment, final ByteBuffer buffer, final long offset, final long size ) {
+		if ( size - offset < RECORD_HEADER_SIZE + RECORD_TRAILER_SIZE )  return null;
+
+		final ByteBuffer header = buffer.duplicate();
+		header.position( (int)offset );
+		if ( header.getInt() != RECORD_MAGIC )  return null;
+
+		final int bodyLength = header.getInt();
+		final long length = RECORD_HEADER_SIZE + (long)bodyLength + RECORD_TRAILER_SIZE;
+		if ( bodyLength < 0 || offset + length > size )  return null;
+
+		// confine the header fields to the record body so corrupt string lengths cannot read beyond it
+		header.limit( (int)( offset + RECORD_HEADER_SIZE + bodyLength ) );
+		try {
+			final long snapshotID = header.getLong();
+			final long time = header.getLong();
+			final String type = readString( header );
+			final String comment = readString( header );
+
+			return new IndexEntry( snapshotID, type, time, comment, offset, (int)length, segment );
+		}
+		catch( BufferUnderflowException exception ) {
+			return null;
+		}
+	}
+
+
+	/** add the entry to the index replacing any existing entry with the same ID */
+	private void addToIndex( final IndexEntry entry ) {
+		final IndexEntry oldEntry = ID_INDEX.put( entry.ID, entry );
+		if ( oldEntry != null ) {
+			TIME_INDEX.remove( oldEntry );
+			final NavigableSet<IndexEntry> typeEntries = TYPE_INDEX.get( oldEntry.TYPE );
+			if ( typeEntries != null )  typeEntries.remove( oldEntry );
+		}
+
+		TIME_INDEX.add( entry );
+		NavigableSet<IndexEntry> typeEntries = TYPE_INDEX.get( entry.TYPE );
+		if ( typeEntries == null ) {
+			typeEntries = new TreeSet<IndexEntry>( TIME_ORDER );
+			TYPE_INDEX.put( entry.TYPE, typeEntries );
+		}
+		typeEntries.add( entry );
+	}
+
+
+	/** verify the record's checksum */
+	static private boolean isRecordIntact( final ByteBuffer record ) {
+		final int start = record.position();
+		final int bodyLength = record.getInt( start + 4 );
+		final ByteBuffer body = record.duplicate();
+		body.position( start + RECORD_HEADER_SIZE );
+		body.limit( start + RECORD_HEADER_SIZE + bodyLength );
+		final CRC32 checksum = new CRC32();
+		checksum.update( body );
+		return checksum.getValue() == record.getLong( start + RECORD_HEADER_SIZE + bodyLength );
+	}
+
+
+	/**
+	 * Read the channel snapshots from the record for the entry.
+	 * @param entry index entry of the machine snapshot
+	 * @param pvs if not null, read only the channel snapshots for these PVs
+	 * @return the channel snapshots
+	 */
+	static private ChannelSnapshot[] readChannelSnapshots( final IndexEntry entry, final Set<String> pvs ) throws IOException {
+		final ByteBuffer record = entry.SEGMENT.readRecord( entry.OFFSET, entry.LENGTH );
+		if ( !isRecordIntact( record ) ) {
+			throw new IOException( "Checksum mismatch for machine snapshot record: " + entry.ID + " in segment: " + entry.SEGMENT.FILE );
+		}
+
+		// skip the header fields already captured in the index entry
+		record.position( record.position() + RECORD_HEADER_SIZE + 16 );
+		readString( record );
+		readString( record );
+
+		final int count = record.getInt();
+		final String[] channelPVs = new String[count];
+		final boolean[] selections = new boolean[count];
+		int selectionCount = 0;
+		for ( int index = 0 ; index < count ; index++ ) {
+			channelPVs[index] = readString( record );
+			selections[index] = pvs == null || pvs.contains( channelPVs[index] );
+			if ( selections[index] )  ++selectionCount;
+		}
+
+		// columns
+		final int secondsPosition = record.position();
+		final int nanosPosition = secondsPosition + 8 * count;
+		final int statusPosition = nanosPosition + 4 * count;
+		final int severityPosition = statusPosition + 4 * count;
+		final int valueCountPosition = severityPosition + 4 * count;
+
+		final ChannelSnapshot[] channelSnapshots = new ChannelSnapshot[selectionCount];
+		int valuePosition = valueCountPosition + 4 * count;
+		int snapshotIndex = 0;
+		for ( int index = 0 ; index < count && snapshotIndex < selectionCount ; index++ ) {
+			final int valueCount = record.getInt( valueCountPosition + 4 * index );
+			if ( selections[index] ) {
+				final long seconds = record.getLong( secondsPosition + 8 * index );
+				final int nanos = record.getInt( nanosPosition + 4 * index );
+				final int status = record.getInt( statusPosition + 4 * index );
+				final int severity = record.getInt( severityPosition + 4 * index );
+
+				final double[] value = new double[valueCount];
+				record.position( valuePosition );
+				record.asDoubleBuffer().get( value );
+
+				final Timestamp timestamp = new Timestamp( BigDecimal.valueOf( seconds ).add( BigDecimal.valueOf( nanos, 9 ) ) );
+				channelSnapshots[snapshotIndex++] = new ChannelSnapshot( channelPVs[index], value, status, severity, timestamp );
+			}
+			valuePosition += 8 * valueCount;
+		}
+
+		return channelSnapshots;
+	}
+
+
+	/** encode the machine snapshot as a checksummed record */
+	static private byte[] encodeRecord( final long snapshotID, final MachineSnapshot machineSnapshot ) throws IOException {
+		final List<ChannelSnapshot> channelSnapshots = new ArrayList<ChannelSnapshot>();
+		for ( final ChannelSnapshot channelSnapshot : machineSnapshot.getChannelSnapshots() ) {
+			if ( channelSnapshot != null )  channelSnapshots.add( channelSnapshot );
+		}
+		final int count = channelSnapshots.size();
+
+		final ByteArrayOutputStream byteStream = new ByteArrayOutputStream();
+		final DataOutputStream output = new DataOutputStream( byteStream );
+		output.writeInt( RECORD_MAGIC );
+		output.writeInt( 0 );	// placeholder for the body length
+
+		output.writeLong( snapshotID );
+		output.writeLong( machineSnapshot.getTimestamp().getTime() );
+		writeString( output, machineSnapshot.getType() );
+		writeString( output, machineSnapshot.getComment() );
+
+		output.writeInt( count );
+		for ( final ChannelSnapshot channelSnapshot : channelSnapshots ) {
+			writeString( output, channelSnapshot.getPV() );
+		}
+
+		final BigDecimal[] fullSeconds = new BigDecimal[count];
+		for ( int index = 0 ; index < count ; index++ ) {
+			fullSeconds[index] = channelSnapshots.get( index ).getTimestamp().getFullSeconds();
+			output.writeLong( fullSeconds[index].longValue() );
+		}
+		for ( int index = 0 ; index < count ; index++ ) {
+			final BigDecimal fraction = fullSeconds[index].subtract( BigDecimal.valueOf( fullSeconds[index].longValue() ) );
+			output.writeInt( fraction.movePointRight( 9 ).intValue() );
+		}
+		for ( final ChannelSnapshot channelSnapshot : channelSnapshots ) {
+			output.writeInt( channelSnapshot.getStatus() );
+		}
+		for ( final ChannelSnapshot channelSnapshot : channelSnapshots ) {
+			output.writeInt( channelSnapshot.getSeverity() );
+		}
+		for ( final ChannelSnapshot channelSnapshot : channelSnapshots ) {
+			output.writeInt( channelSnapshot.getValueCount() );
+		}
+		for ( final ChannelSnapshot channelSnapshot : channelSnapshots ) {
+			if ( channelSnapshot.getValueCount() > 0 ) {
+				output.write( PackedValueCodec.encode( channelSnapshot.getValue() ) );
+			}
+		}
+		output.flush();
+
+		final byte[] bytes = new byte[ byteStream.size() + RECORD_TRAILER_SIZE ];
+		System.arraycopy( byteStream.toByteArray(), 0, bytes, 0, byteStream.size() );
+
+		final int bodyLength = byteStream.size() - RECORD_HEADER_SIZE;
+		final ByteBuffer buffer = ByteBuffer.wrap( bytes );
+		buffer.putInt( 4, bodyLength );
+
+		final CRC32 checksum = new CRC32();
+		checksum.update( bytes, RECORD_HEADER_SIZE, bodyLength );
+		buffer.putLong( RECORD_HEADER_SIZE + bodyLength, checksum.getValue() );
+
+		return bytes;
+	}
+
+
+	/** write a string as its UTF-8 byte count followed by the bytes (a null string is written with count -1) */
+	static private void writeString( final DataOutputStream output, final String text ) throws IOException {
+		if ( text == null ) {
+			output.writeInt( -1 );
+		}
+		else {
+			final byte[] bytes = text.getBytes( UTF8 );
+			output.writeInt( bytes.length );
+			output.write( bytes );
+		}
+	}
+
+
+	/** read a string written with writeString() */
+	static private String readString( final ByteBuffer buffer ) {
+		final int length = buffer.getInt();
+		if ( length < 0 )  return null;
+		if ( length > buffer.remaining() )  throw new BufferUnderflowException();
+
+		final byte[] bytes = new byte[length];
+		buffer.get( bytes );
+		return new String( bytes, UTF8 );
+	}
+
+
+	/** generate the name of the segment file with the specified number */
+	static private String segmentFileName( final int number ) {
+		return SEGMENT_PREFIX + String.format( "%08d", number ) + SEGMENT_EXTENSION;
+	}
+
+
+	/** load the channel group definitions from the groups file if it exists */
+	private void loadGroupDefinitions() throws IOException {
+		final File groupsFile = new File( DIRECTORY, GROUPS_FILE_NAME );
+		if ( !groupsFile.exists() )  return;
+
+		final DataAdaptor storeAdaptor = XmlDataAdaptor.adaptorForFile( groupsFile, false ).childAdaptor( GROUPS_DATA_LABEL );
+		for ( final DataAdaptor groupAdaptor : storeAdaptor.childAdaptors( GroupDefinition.DATA_LABEL ) ) {
+			final GroupDefinition definition = new GroupDefinition( groupAdaptor );
+			GROUP_DEFINITIONS.put( definition.LABEL, definition );
+		}
+	}
+
+
+	/** save the channel group definitions to the groups file */
+	private void saveGroupDefinitions() throws IOException {
+		final XmlDataAdaptor documentAdaptor = XmlDataAdaptor.newEmptyDocumentAdaptor();
+		final DataAdaptor storeAdaptor = documentAdaptor.createChild( GROUPS_DATA_LABEL );
+		for ( final GroupDefinition definition : GROUP_DEFINITIONS.values() ) {
+			definition.write( storeAdaptor.createChild( GroupDefinition.DATA_LABEL ) );
+		}
+		documentAdaptor.writeTo( new File( DIRECTORY, GROUPS_FILE_NAME ) );
+	}
+
+
+
+	/** definition of a channel group logged to the local store */
+	static private class GroupDefinition {
+		/** data label */
+		final static public String DATA_LABEL = "group";
+
+		/** group label which is also the snapshot type */
+		final public String LABEL;
+
+		/** service ID */
+		final public String SERVICE_ID;
+
+		/** description */
+		final public String DESCRIPTION;
+
+		/** PVs in the group */
+		final public String[] PVS;
+
+		/** default logging period in seconds */
+		final public double LOGGING_PERIOD;
+
+		/** retention in days or zero for permanent retention */
+		final public double RETENTION;
+
+
+		/** Primary Constructor */
+		public GroupDefinition( final String label, final String serviceID, final String description, final String[] pvs, final double loggingPeriod, final double retention ) {
+			LABEL = label;
+			SERVICE_ID = serviceID;
+			DESCRIPTION = description != null ? description : "";
+			PVS = pvs.clone();
+			LOGGING_PERIOD = loggingPeriod;
+			RETENTION = retention;
+		}
+
+
+		/** Constructor from a data adaptor */
+		public GroupDefinition( final DataAdaptor adaptor ) {
+			LABEL = adaptor.stringValue( "label" );
+			SERVICE_ID = adaptor.hasAttribute( "service" ) ? adaptor.stringValue( "service" ) : null;
+			DESCRIPTION = adaptor.hasAttribute( "description" ) ? adaptor.stringValue( "description" ) : "";
+			LOGGING_PERIOD = adaptor.doubleValue( "period" );
+			RETENTION = adaptor.doubleValue( "retention" );
+
+			final List<DataAdaptor> pvAdaptors = adaptor.childAdaptors( "pv" );
+			PVS = new String[pvAdaptors.size()];
+			for ( int index = 0 ; index < PVS.length ; index++ ) {
+				PVS[index] = pvAdaptors.get( index ).stringValue( "name" );
+			}
+		}
+
+
+		/** write this definition to the adaptor */
+		public void write( final DataAdaptor adaptor ) {
+			adaptor.setValue( "label", LABEL );
+			if ( SERVICE_ID != null )  adaptor.setValue( "service", SERVICE_ID );
+			adaptor.setValue( "description", DESCRIPTION );
+			adaptor.setValue( "period", LOGGING_PERIOD );
+			adaptor.setValue( "retention", RETENTION );
+			for ( final String pv : PVS ) {
+				adaptor.createChild( "pv" ).setValue( "name", pv );
+			}
+		}
+
+
+		/** generate a new channel group from this definition */
+		public ChannelGroup newChannelGroup() {
+			return new ChannelGroup( LABEL, SERVICE_ID, DESCRIPTION, PVS, LOGGING_PERIOD, RETENTION );
+		}
+	}
+
+
+
+	/** index entry locating a machine snapshot record */
+	static private class IndexEntry {
+		/** snapshot ID */
+		final public long ID;
+
+		/** snapshot type */
+		final public String TYPE;
+
+		/** snapshot time in milliseconds */
+		final public long TIME;
+
+		/** snapshot comment */
+		final public String COMMENT;
+
+		/** offset of the record in the segment */
+		final public long OFFSET;
+
+		/** length of the record in bytes */
+		final public int LENGTH;
+
+		/** segment holding the record */
+		final public Segment SEGMENT;
+
+
+		/** Constructor */
+		public IndexEntry( final long snapshotID, final String type, final long time, final String comment, final long offset, final int length, final Segment segment ) {
+			ID = snapshotID;
+			TYPE = type;
+			TIME = time;
+			COMMENT = comment;
+			OFFSET = offset;
+			LENGTH = length;
+			SEGMENT = segment;
+		}
+
+
+		/** generate a new machine snapshot (without its channel snapshots) for this entry */
+		public MachineSnapshot newMachineSnapshot() {
+			return new MachineSnapshot( ID, TYPE, new Date( TIME ), COMMENT, new ChannelSnapshot[0] );
+		}
+	}
+
+
+
+	/**
+	 * Append-only segment file. The segment is memory mapped once (when first read and again when it is sealed) and records appended
+	 * beyond the mapped region are read through the file channel, so appends never remap the segment.
+	 */
+	static private class Segment {
+		/** segment file */
+		final public File FILE;
+
+		/** segment number */
+		final public int NUMBER;
+
+		/** random access file for the segment */
+		final private RandomAccessFile RANDOM_ACCESS_FILE;
+
+		/** file channel for the segment */
+		final private FileChannel CHANNEL;
+
+		/** current size of the segment in bytes */
+		private long _size;
+
+		/** memory map of the leading part of the segment */
+		private MappedByteBuffer _mappedBuffer;
+
+
+		/** Constructor */
+		public Segment( final File file, final int number ) throws IOException {
+			FILE = file;
+			NUMBER = number;
+			RANDOM_ACCESS_FILE = new RandomAccessFile( file, "rw" );
+			CHANNEL = RANDOM_ACCESS_FILE.getChannel();
+			_size = CHANNEL.size();
+		}
+
+
+		/** get the size of the segment in bytes */
+		public long size() {
+			return _size;
+		}
+
+
+		/** append the record returning the offset at which it was written */
+		public long append( final byte[] record ) throws IOException {
+			final long offset = _size;
+			final ByteBuffer buffer = ByteBuffer.wrap( record );
+			long position = offset;
+			while ( buffer.hasRemaining() ) {
+				position += CHANNEL.write( buffer, position );
+			}
+			_size = offset + record.length;
+			return offset;
+		}
+
+
+		/** flush appended records to the storage device */
+		public void force() throws IOException {
+			CHANNEL.force( false );
+		}
+
+
+		/** truncate the segment to the specified size discarding everything beyond it */
+		public void truncate( final long size ) throws IOException {
+			CHANNEL.truncate( size );
+			_size = size;
+			_mappedBuffer = null;
+		}
+
+
+		/** get a buffer over the mapped part of the segment mapping the segment as it stands if it has not been mapped */
+		public ByteBuffer map() throws IOException {
+			if ( _mappedBuffer == null ) {
+				_mappedBuffer = CHANNEL.map( FileChannel.MapMode.READ_ONLY, 0, _size );
+			}
+			return _mappedBuffer.duplicate();
+		}
+
+
+		/** remap the full segment once no more records will be appended to it */
+		public void seal() throws IOException {
+			_mappedBuffer = null;
+			map();
+		}
+
+
+		/** get a buffer positioned at the record with the specified offset and limited to its length */
+		public ByteBuffer readRecord( final long offset, final int length ) throws IOException {
+			final ByteBuffer mappedBuffer = map();
+			if ( offset + length <= mappedBuffer.capacity() ) {
+				mappedBuffer.limit( (int)( offset + length ) );
+				mappedBuffer.position( (int)offset );
+				return mappedBuffer.slice();
+			}
+			else {
+				// the record was appended after the segment was mapped
+				final ByteBuffer buffer = ByteBuffer.allocate( length );
+				long position = offset;
+				while ( buffer.hasRemaining() ) {
+					final int count = CHANNEL.read( buffer, position );
+					if ( count < 0 )  throw new IOException( "Unexpected end of segment: " + FILE );
+					position += count;
+				}
+				buffer.flip();
+				return buffer;
+			}
+		}
+
+
+		/** close the segment file */
+		public void close() throws IOException {
+			_mappedBuffer = null;
+			CHANNEL.close();
+			RANDOM_ACCESS_FILE.close();
+		}
+	}
+}
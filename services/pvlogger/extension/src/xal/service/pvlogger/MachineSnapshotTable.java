@@ -40,6 +40,15 @@ class MachineSnapshotTable {
 	/** SQL to get the next primary key */
 	protected final String NEXT_PRIMARY_KEY_SQL;
 
+	/** number of primary keys reserved by each fetch of the next primary key */
+	protected final int KEY_BLOCK_SIZE;
+
+	/** next reserved primary key available for assignment */
+	private long _nextReservedKey;
+
+	/** limit (exclusive) of the reserved primary key range */
+	private long _reservedKeyLimit;
+
 
 	/** Constructor */
 	public MachineSnapshotTable( final DBTableConfiguration configuration ) {
@@ -51,12 +60,16 @@ class MachineSnapshotTable {
 		COMMENT_COLUMN = configuration.getColumn( "comment" );
 
 		NEXT_PRIMARY_KEY_SQL = configuration.getQuerySQL( "nextPrimaryKey" );
+		KEY_BLOCK_SIZE = configuration.getKeyBlockSize();
+
+		_nextReservedKey = 0;
+		_reservedKeyLimit = 0;
 	}
 
 
 	/** insert the machine snapshot and update its ID upone success */
 	public void insert( final Connection connection, final DatabaseAdaptor databaseAdaptor,  final ChannelSnapshotTable channelSnapshotTable, final MachineSnapshot machineSnapshot ) throws SQLException {
-		final long primaryKey = fetchNextPrimaryKey( connection );
+		final long primaryKey = nextPrimaryKey( connection );
 		final String type = machineSnapshot.getType();
 		final Timestamp timeStamp = new Timestamp( machineSnapshot.getTimestamp().getTime() );
 
@@ -75,6 +88,62 @@ class MachineSnapshotTable {
 	}
 
 
+	/**
+	 * Insert the machine snapshot records (but not their channel snapshots) in a single batch. The caller is responsible for committing the transaction.
+	 * @param connection database connection
+	 * @param machineSnapshots machine snapshots to insert
+	 * @param primaryKeys primary keys to assign to the corresponding machine snapshots
+	 */
+	public void insert( final Connection connection, final List<MachineSnapshot> machineSnapshots, final long[] primaryKeys ) throws SQLException {
+		final PreparedStatement insertStatement = getInsertStatement( connection );
+		try {
+			final int count = machineSnapshots.size();
+			for ( int index = 0 ; index < count ; index++ ) {
+				final MachineSnapshot machineSnapshot = machineSnapshots.get( index );
+				insertStatement.setLong( 1, primaryKeys[index] );
+				insertStatement.setTimestamp( 2, new Timestamp( machineSnapshot.getTimestamp().getTime() ) );
+				insertStatement.setString( 3, machineSnapshot.getType() );
+				insertStatement.setString( 4, machineSnapshot.getComment() );
+				insertStatement.addBatch();
+			}
+			insertStatement.executeBatch();
+		}
+		finally {
+			insertStatement.close();
+		}
+	}
+
+
+	/**
+	 * Get the next primary key from the reserved range fetching a new range from the database only when the reserved range is exhausted.
+	 * @param connection database connection
+	 * @return the next primary key
+	 */
+	synchronized public long nextPrimaryKey( final Connection connection ) throws SQLException {
+		if ( _nextReservedKey >= _reservedKeyLimit ) {
+			final long firstKey = fetchNextPrimaryKey( connection );
+			_nextReservedKey = firstKey;
+			_reservedKeyLimit = firstKey + KEY_BLOCK_SIZE;
+		}
+		return _nextReservedKey++;
+	}
+
+
+	/**
+	 * Get the specified number of primary keys.
+	 * @param connection database connection
+	 * @param count number of primary keys to get
+	 * @return array of primary keys
+	 */
+	synchronized public long[] nextPrimaryKeys( final Connection connection, final int count ) throws SQLException {
+		final long[] primaryKeys = new long[count];
+		for ( int index = 0 ; index < count ; index++ ) {
+			primaryKeys[index] = nextPrimaryKey( connection );
+		}
+		return primaryKeys;
+	}
+
+
 	/** fetch the next primary key */
 	public long fetchNextPrimaryKey( final Connection connection ) throws SQLException {
 		final PreparedStatement queryStatement = getNextPrimaryKeyStatement( connection );
@@ -8,6 +8,8 @@
 
 package xal.service.pvlogger;
 
+import java.io.File;
+import java.io.IOException;
 import java.net.URL;
 import java.sql.Connection;
 import java.sql.SQLException;
@@ -27,36 +29,43 @@ import xal.tools.xml.XmlDataAdaptor;
 
 /** Provides a public interface to the PV Logger package */
 public class PVLogger {
-	/** database store */
-	final protected PersistentStore PERSISTENT_STORE;
+	/** store of machine snapshots */
+	final protected SnapshotStore SNAPSHOT_STORE;
 
 	/** snapshot publisher */
 	final protected SnapshotPublisher SNAPSHOT_PUBLISHER;
 
-	/** connection dictionary */
-	protected ConnectionDictionary _connectionDictionary;
-
 	/** logger sessions keyed by channel group ID */
 	protected Map<String,LoggerSession> LOGGER_SESSIONS;
 
-	/** current database connection */
-	protected Connection _connection;
-
 
 	/** Primary Constructor */
 	public PVLogger( final ConnectionDictionary connectionDictionary ) {
 		LOGGER_SESSIONS = new HashMap<String,LoggerSession>();
 
-		final URL configurationURL = ResourceManager.getResourceURL( getClass(), "configuration.xml" );
-		final DataAdaptor configurationAdaptor = XmlDataAdaptor.adaptorForUrl( configurationURL, false ).childAdaptor( "Configuration" );
+		final DataAdaptor configurationAdaptor = loadConfiguration();
 
 		final DataAdaptor persistentStoreAdaptor = configurationAdaptor.childAdaptor( "persistentStore" );
-		PERSISTENT_STORE = new PersistentStore( persistentStoreAdaptor );
+		SNAPSHOT_STORE = new DatabaseSnapshotStore( new PersistentStore( persistentStoreAdaptor ), connectionDictionary );
 
 		final DataAdaptor publisherAdaptor = configurationAdaptor.childAdaptor( "publisher" );
-		SNAPSHOT_PUBLISHER = new SnapshotPublisher( publisherAdaptor, PERSISTENT_STORE, connectionDictionary );
+		SNAPSHOT_PUBLISHER = new SnapshotPublisher( publisherAdaptor, SNAPSHOT_STORE );
+	}
+	
+	
+	/**
+	 * Constructor which logs to and browses the specified snapshot store (e.g. a local store for test rigs and offline analysis) rather than the database.
+	 * The publisher is configured from the PV Logger configuration if it is available and uses default settings otherwise.
+	 * @param snapshotStore store of machine snapshots
+	 */
+	public PVLogger( final SnapshotStore snapshotStore ) {
+		LOGGER_SESSIONS = new HashMap<String,LoggerSession>();
 
-		setConnectionDictionary( connectionDictionary );
+		SNAPSHOT_STORE = snapshotStore;
+
+		final URL configurationURL = ResourceManager.getResourceURL( getClass(), "configuration.xml" );
+		final DataAdaptor publisherAdaptor = configurationURL != null ? loadConfiguration().childAdaptor( "publisher" ) : null;
+		SNAPSHOT_PUBLISHER = publisherAdaptor != null ? new SnapshotPublisher( publisherAdaptor, SNAPSHOT_STORE ) : new SnapshotPublisher( SNAPSHOT_STORE );
 	}
 	
 	
@@ -64,6 +73,29 @@ public class PVLogger {
 	public PVLogger() {
 		this( newLoggingConnectionDictionary() );
 	}
+
+
+	/** load the PV Logger configuration */
+	private DataAdaptor loadConfiguration() {
+		final URL configurationURL = ResourceManager.getResourceURL( getClass(), "configuration.xml" );
+		return XmlDataAdaptor.adaptorForUrl( configurationURL, false ).childAdaptor( "Configuration" );
+	}
+	
+	
+	/**
+	 * Get an instance which logs to and browses a local snapshot store in the specified directory
+	 * @param storeDirectory directory holding the local store's files
+	 * @return a new PV Logger backed by the local store
+	 */
+	static public PVLogger getLocalInstance( final File storeDirectory ) throws IOException {
+		return new PVLogger( new LocalSnapshotStore( storeDirectory ) );
+	}
+
+
+	/** get the snapshot store */
+	public SnapshotStore getSnapshotStore() {
+		return SNAPSHOT_STORE;
+	}
 	
 	
 	/** get an instance for browsing the PV Logger data */
@@ -92,16 +124,17 @@ public class PVLogger {
 	}
 	
 	
-	/** get the connection dictionary */
+	/** get the connection dictionary or null if this logger is not backed by the database */
 	public ConnectionDictionary getConnectionDictionary() {
-		return _connectionDictionary;
+		return SNAPSHOT_STORE instanceof DatabaseSnapshotStore ? ((DatabaseSnapshotStore)SNAPSHOT_STORE).getConnectionDictionary() : null;
 	}
 	
 	
-	/** set the connection dictionary */
+	/** set the connection dictionary (ignored if this logger is not backed by the database) */
 	public void setConnectionDictionary( final ConnectionDictionary dictionary ) {
-		_connectionDictionary = dictionary;
-		SNAPSHOT_PUBLISHER.setConnectionDictionary( dictionary );
+		if ( SNAPSHOT_STORE instanceof DatabaseSnapshotStore ) {
+			((DatabaseSnapshotStore)SNAPSHOT_STORE).setConnectionDictionary( dictionary );
+		}
 	}
 	
 	
@@ -174,10 +207,9 @@ public class PVLogger {
 	public List<LoggerSession> requestEnabledLoggerSessionsForService( final String serviceID ) throws SQLException {
 		final String[] types = fetchTypes( serviceID );
 		final List<LoggerSession> sessions = new ArrayList<LoggerSession>( types.length );
-		final Connection connection = getDatabaseConnection();
 		for ( final String groupID : types ) {
-			final ChannelGroup group = PERSISTENT_STORE.fetchChannelGroup( connection, groupID );
-			if ( group.getDefaultLoggingPeriod() > 0 ) {
+			final ChannelGroup group = SNAPSHOT_STORE.fetchChannelGroup( groupID );
+			if ( group != null && group.getDefaultLoggingPeriod() > 0 ) {
 				sessions.add( requestLoggerSession( groupID ) );
 			}
 		}
@@ -213,9 +245,7 @@ public class PVLogger {
 				return getLoggerSession( groupID );
 			}
 
-			final Connection connection = getDatabaseConnection();
-			if ( connection == null )  return null;
-			final ChannelGroup group = PERSISTENT_STORE.fetchChannelGroup( connection, groupID );
+			final ChannelGroup group = SNAPSHOT_STORE.fetchChannelGroup( groupID );
 			if ( group != null ) {
 				final LoggerSession session = new LoggerSession( group, SNAPSHOT_PUBLISHER );
 				LOGGER_SESSIONS.put( groupID, session );
@@ -236,9 +266,8 @@ public class PVLogger {
 	public LoggerSession reloadLoggerSession( final String groupID ) throws SQLException {
 		synchronized( LOGGER_SESSIONS ) {
 			if ( LOGGER_SESSIONS.containsKey( groupID ) ) {
-				final Connection connection = getDatabaseConnection();
-				if ( connection == null )  return null;
-				final ChannelGroup group = PERSISTENT_STORE.fetchChannelGroup( connection, groupID );
+				final ChannelGroup group = SNAPSHOT_STORE.fetchChannelGroup( groupID );
+				if ( group == null )  return null;
 				final LoggerSession session = getLoggerSession( groupID );
 				session.setChannelGroup( group );
 				return session;
@@ -329,8 +358,7 @@ public class PVLogger {
 	 * @return machine snapshot corresponding to the specified ID
 	 */
 	public MachineSnapshot fetchMachineSnapshot( final long snapshotID ) throws SQLException {
-		final Connection connection = getDatabaseConnection();
-		return PERSISTENT_STORE.fetchMachineSnapshot( connection, snapshotID );
+		return SNAPSHOT_STORE.fetchMachineSnapshot( snapshotID );
 	}
 	
 	
@@ -343,8 +371,7 @@ public class PVLogger {
 	 * @return An array of machine snapshots meeting the specified criteria
 	 */
 	public MachineSnapshot[] fetchMachineSnapshotsInRange( final String type, final Date startTime, final Date endTime ) throws SQLException {
-		final Connection connection = getDatabaseConnection();
-		return PERSISTENT_STORE.fetchMachineSnapshotsInRange( connection, type, startTime, endTime );
+		return SNAPSHOT_STORE.fetchMachineSnapshotsInRange( type, startTime, endTime );
 	}
 	
 	
@@ -354,18 +381,45 @@ public class PVLogger {
 	 * @return the machineSnapshot which is the same as the parameter returned for convenience
 	 */
 	public MachineSnapshot loadChannelSnapshotsInto( final MachineSnapshot machineSnapshot ) throws SQLException {
-		final Connection connection = getDatabaseConnection();
-		return PERSISTENT_STORE.loadChannelSnapshotsInto( connection, machineSnapshot );
+		return SNAPSHOT_STORE.loadChannelSnapshotsInto( machineSnapshot );
 	}
-	
-	
+
+
+	/**
+	 * Fetch the raw histories of the specified PVs logged with machine snapshots of the specified type within the time range.
+	 * Only the requested channels are fetched which is far cheaper than loading the channel snapshots of every machine snapshot.
+	 * @param type The type of machine snapshots whose channel snapshots to fetch
+	 * @param pvs PVs whose histories to fetch
+	 * @param startTime The start time of the time range
+	 * @param endTime The end time of the time range
+	 * @return the signal histories keyed by PV
+	 */
+	public Map<String,SignalHistory> fetchSignalHistories( final String type, final List<String> pvs, final Date startTime, final Date endTime ) throws SQLException {
+		return fetchSignalHistories( type, pvs, startTime, endTime, 0 );
+	}
+
+
+	/**
+	 * Fetch the histories of the specified PVs logged with machine snapshots of the specified type within the time range
+	 * aggregating the samples into fixed width buckets (mean, min and max per bucket).
+	 * @param type The type of machine snapshots whose channel snapshots to fetch
+	 * @param pvs PVs whose histories to fetch
+	 * @param startTime The start time of the time range
+	 * @param endTime The end time of the time range
+	 * @param bucketCount number of buckets into which to aggregate the samples or zero for the raw samples
+	 * @return the signal histories keyed by PV
+	 */
+	public Map<String,SignalHistory> fetchSignalHistories( final String type, final List<String> pvs, final Date startTime, final Date endTime, final int bucketCount ) throws SQLException {
+		return SNAPSHOT_STORE.fetchSignalHistories( type, pvs, startTime, endTime, bucketCount );
+	}
+
+
 	/**
 	 * Fetch channel groups as an array of types
 	 * @return array of types corresponding to all of the channel groups
 	 */
 	public String[] fetchTypes()  throws SQLException {
-		final Connection connection = getDatabaseConnection();
-		return PERSISTENT_STORE.fetchTypes( connection );
+		return SNAPSHOT_STORE.fetchTypes();
 	}
 	
 	
@@ -375,8 +429,7 @@ public class PVLogger {
 	 * @return array of types corresponding to channel groups with the specified service ID
 	 */
 	public String[] fetchTypes( final String serviceID ) throws SQLException {
-		final Connection connection = getDatabaseConnection();
-		return PERSISTENT_STORE.fetchTypes( connection, serviceID );
+		return SNAPSHOT_STORE.fetchTypes( serviceID );
 	}
 	
 	
@@ -385,47 +438,24 @@ public class PVLogger {
 	 * @param type channel group type
 	 */
 	public ChannelGroup getChannelGroup( final String type ) throws SQLException {
-		final Connection connection = getDatabaseConnection();
-		return PERSISTENT_STORE.getChannelGroup( connection, type );
+		return SNAPSHOT_STORE.getChannelGroup( type );
 	}
 	
 	
-	/** get the current database connection creating it if necessary */
+	/** get the current database connection creating it if necessary or null if this logger is not backed by the database */
 	protected Connection getDatabaseConnection() {
-		if ( _connection == null || !testConnection( _connection ) ) {
-			closeConnection();
-			_connection = getNewDatabaseConnection();
-		}
-
-		return _connection;
+		return SNAPSHOT_STORE instanceof DatabaseSnapshotStore ? ((DatabaseSnapshotStore)SNAPSHOT_STORE).getDatabaseConnection() : null;
 	}
 	
 	
-	/** make a new database connection */
+	/**
+	 * Make a new database connection
+	 * @return a new connection to the database or null if this logger is not backed by the database or the connection fails
+	 * @deprecated the connections are now managed by the DatabaseSnapshotStore, so overriding this method no longer affects which connection is used
+	 */
+	@Deprecated
 	protected Connection getNewDatabaseConnection() {
-		try {
-			return _connectionDictionary.hasRequiredInfo() ? PersistentStore.connectionInstance( _connectionDictionary ) : null;
-		}
-		catch( Exception exception ) {
-			return null;
-		}
-	}
-	
-	
-	/** close the database connection if a connection exists and set the connection to null */
-	public void closeConnection() {
-		try {
-			if ( _connection != null ) {
-				_connection.close();
-			}
-		}
-		catch ( Exception exception ) {
-			exception.printStackTrace();
-		}
-		finally {
-			_connection = null;
-		}
-		
+		return SNAPSHOT_STORE instanceof DatabaseSnapshotStore ? ((DatabaseSnapshotStore)SNAPSHOT_STORE).getNewDatabaseConnection() : null;
 	}
 	
 	
@@ -433,14 +463,17 @@ public class PVLogger {
 	 * Test whether the connection is good
 	 * @param connection the connection to test
 	 * @return true if the connection is good and false if not
+	 * @deprecated the connections are now tested by the DatabaseSnapshotStore which manages them
 	 */
+	@Deprecated
 	static protected boolean testConnection( final Connection connection ) {
-		try {
-			return !connection.isClosed();
-		}
-		catch( SQLException exception ) {
-			return false;
-		}
+		return DatabaseSnapshotStore.testConnection( connection );
+	}
+	
+	
+	/** close the database connection (or more generally release the snapshot store's resources) */
+	public void closeConnection() {
+		SNAPSHOT_STORE.close();
 	}
 	
 	
@@ -0,0 +1,55 @@
+//
+//  PackedValueCodec.java
+//  xal
+//
+//  Copyright 2026 Oak Ridge National Lab. All rights reserved.
+//
+
+package xal.service.pvlogger;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+
+/** Packs channel value arrays into a compact binary form (big endian IEEE 754 doubles) for storage in a binary column and unpacks them again. */
+class PackedValueCodec {
+	/** number of bytes per packed value */
+	final static private int BYTES_PER_VALUE = 8;
+
+
+	/** Constructor */
+	private PackedValueCodec() {}
+
+
+	/**
+	 * Pack the array of values into a byte array.
+	 * @param values the array of values to pack
+	 * @return the packed byte array
+	 */
+	static public byte[] encode( final double[] values ) {
+		final int count = values != null ? values.length : 0;
+		final byte[] bytes = new byte[ count * BYTES_PER_VALUE ];
+		if ( count > 0 ) {
+			ByteBuffer.wrap( bytes ).order( ByteOrder.BIG_ENDIAN ).asDoubleBuffer().put( values );
+		}
+		return bytes;
+	}
+
+
+	/**
+	 * Unpack the values from the byte array.
+	 * @param bytes the packed bytes
+	 * @return the array of values
+	 */
+	static public double[] decode( final byte[] bytes ) {
+		if ( bytes == null )  return new double[0];
+
+		if ( bytes.length % BYTES_PER_VALUE != 0 ) {
+			throw new IllegalArgumentException( "The packed value length, " + bytes.length + ", is not a multiple of " + BYTES_PER_VALUE + " bytes." );
+		}
+
+		final double[] values = new double[ bytes.length / BYTES_PER_VALUE ];
+		ByteBuffer.wrap( bytes ).order( ByteOrder.BIG_ENDIAN ).asDoubleBuffer().get( values );
+		return values;
+	}
+}
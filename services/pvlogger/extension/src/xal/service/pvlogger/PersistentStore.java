@@ -80,10 +80,10 @@ class PersistentStore {
 	}
 	
 	
-	/** get a new connection using the specified connection dictionary */
+	/** get a dedicated connection for the specified connection dictionary (snapshot stores hold their connections until they are closed, so they must not hold pooled ones) */
 	static public Connection connectionInstance( final ConnectionDictionary dictionary ) throws SQLException {
 		final DatabaseAdaptor databaseAdaptor = dictionary.getDatabaseAdaptor();
-		final Connection connection = databaseAdaptor.getConnection( dictionary );
+		final Connection connection = databaseAdaptor.getDedicatedConnection( dictionary );
 		connection.setAutoCommit( false );
 		
 		return connection;
@@ -132,6 +132,27 @@ class PersistentStore {
 	}
 	
 	
+	/**
+	 * Fetch the histories of the specified PVs logged with machine snapshots of the specified type within the time range.
+	 * @param connection database connection
+	 * @param type The type of machine snapshots whose channel snapshots to fetch
+	 * @param pvs PVs whose histories to fetch
+	 * @param startTime The start time of the time range
+	 * @param endTime The end time of the time range
+	 * @param bucketCount number of fixed width buckets into which to aggregate (min/max/mean) the samples or zero for the raw samples
+	 * @return the signal histories keyed by PV
+	 */
+	public Map<String,SignalHistory> fetchSignalHistories( final Connection connection, final String type, final List<String> pvs, final Date startTime, final Date endTime, final int bucketCount ) throws SQLException {
+		final SignalHistoryAccumulator accumulator = new SignalHistoryAccumulator( pvs, startTime.getTime() / 1000.0, endTime.getTime() / 1000.0, bucketCount );
+		final ChannelGroup group = getChannelGroup( connection, type );
+		if ( group != null ) {
+			final ChannelSnapshotTable channelSnapshotTable = CHANNEL_SNAPSHOT_TABLES.get( group.getServiceID() );
+			channelSnapshotTable.fetchSignalSamples( connection, MACHINE_SNAPSHOT_TABLE, type, pvs, startTime, endTime, accumulator );
+		}
+		return accumulator.getSignalHistories();
+	}
+	
+	
 	/**
 	 * Fetch channel groups as an array of types
 	 * @param connection database connection
@@ -176,7 +197,9 @@ class PersistentStore {
 	 */
 	protected ChannelGroup fetchChannelGroup( final Connection connection, final String type ) throws SQLException {
 		final ChannelGroup channelGroup = SNAPSHOT_GROUP_TABLE.fetchChannelGroup( connection, type );
-		CHANNEL_GROUPS.put( type, channelGroup );
+		if ( channelGroup != null ) {
+			CHANNEL_GROUPS.put( type, channelGroup );		// don't cache a missing group so it is found once it has been created
+		}
 		return channelGroup;
 	}
 	
@@ -202,14 +225,23 @@ class PersistentStore {
 	protected ChannelSnapshotTable getChannelSnapshotTable( final Connection connection, final MachineSnapshot machineSnapshot ) throws SQLException {
 		final String groupID = machineSnapshot.getType();
 		final ChannelGroup group = getChannelGroup( connection, groupID );
+		if ( group == null ) {
+			throw new SQLException( "No channel group found for the snapshot type: " + groupID );
+		}
+		
 		final String serviceID = group.getServiceID();
+		final ChannelSnapshotTable channelSnapshotTable = CHANNEL_SNAPSHOT_TABLES.get( serviceID );
+		if ( channelSnapshotTable == null ) {
+			throw new SQLException( "No channel snapshot table configured for the service: " + serviceID + " of the snapshot type: " + groupID );
+		}
 		
-		return CHANNEL_SNAPSHOT_TABLES.get( serviceID );		
+		return channelSnapshotTable;
 	}
 	
 	
 	/** 
-	 * Publish the machine snapshots to the database
+	 * Publish the machine snapshots to the database. The snapshots are published together in a single transaction using batched inserts.
+	 * If the batch fails, the transaction is rolled back and the snapshots are published individually so a bad snapshot cannot block the others.
 	 * @param connection database connection
 	 * @param machineSnapshots machine snapshots to publish to the database
 	 * @return machine snapshots successfully published to the database
@@ -217,6 +249,17 @@ class PersistentStore {
 	public List<MachineSnapshot> publish( final Connection connection, final DatabaseAdaptor databaseAdaptor, final List<MachineSnapshot> machineSnapshots ) {
 		if ( machineSnapshots.size() == 0 )  return null;
 		
+		if ( machineSnapshots.size() > 1 ) {
+			try {
+				publishBatch( connection, databaseAdaptor, machineSnapshots );
+				return new ArrayList<MachineSnapshot>( machineSnapshots );
+			}
+			catch( SQLException exception ) {
+				exception.printStackTrace();
+				rollback( connection );
+			}
+		}
+		
 		final List<MachineSnapshot> successfulSnapshots = new ArrayList<MachineSnapshot>( machineSnapshots.size() );
 		for ( final MachineSnapshot machineSnapshot : machineSnapshots ) {
 			if ( publish( connection, databaseAdaptor, machineSnapshot ) ) {
@@ -228,6 +271,62 @@ class PersistentStore {
 	}
 	
 	
+	/**
+	 * Publish the machine snapshots in a single transaction. The machine snapshot records are inserted in one batch and the channel snapshots in one batch per channel snapshot table.
+	 * The machine snapshot IDs are only assigned once the transaction has been committed.
+	 * @param connection database connection
+	 * @param databaseAdaptor database adaptor
+	 * @param machineSnapshots machine snapshots to publish
+	 */
+	protected void publishBatch( final Connection connection, final DatabaseAdaptor databaseAdaptor, final List<MachineSnapshot> machineSnapshots ) throws SQLException {
+		final int count = machineSnapshots.size();
+		final long[] primaryKeys = MACHINE_SNAPSHOT_TABLE.nextPrimaryKeys( connection, count );
+		
+		// group the machine snapshots by the channel snapshot table to which their channel snapshots belong
+		final Map<ChannelSnapshotTable,List<Integer>> tableSnapshotIndices = new HashMap<ChannelSnapshotTable,List<Integer>>();
+		for ( int index = 0 ; index < count ; index++ ) {
+			final ChannelSnapshotTable channelSnapshotTable = getChannelSnapshotTable( connection, machineSnapshots.get( index ) );
+			List<Integer> snapshotIndices = tableSnapshotIndices.get( channelSnapshotTable );
+			if ( snapshotIndices == null ) {
+				snapshotIndices = new ArrayList<Integer>();
+				tableSnapshotIndices.put( channelSnapshotTable, snapshotIndices );
+			}
+			snapshotIndices.add( index );
+		}
+		
+		MACHINE_SNAPSHOT_TABLE.insert( connection, machineSnapshots, primaryKeys );
+		
+		for ( final Map.Entry<ChannelSnapshotTable,List<Integer>> entry : tableSnapshotIndices.entrySet() ) {
+			final List<Integer> snapshotIndices = entry.getValue();
+			final List<MachineSnapshot> tableSnapshots = new ArrayList<MachineSnapshot>( snapshotIndices.size() );
+			final long[] tableKeys = new long[snapshotIndices.size()];
+			for ( int index = 0 ; index < tableKeys.length ; index++ ) {
+				final int snapshotIndex = snapshotIndices.get( index );
+				tableSnapshots.add( machineSnapshots.get( snapshotIndex ) );
+				tableKeys[index] = primaryKeys[snapshotIndex];
+			}
+			entry.getKey().insert( connection, databaseAdaptor, tableSnapshots, tableKeys );
+		}
+		
+		connection.commit();
+		
+		for ( int index = 0 ; index < count ; index++ ) {
+			machineSnapshots.get( index ).setId( primaryKeys[index] );
+		}
+	}
+	
+	
+	/** rollback the current transaction on the connection reporting but otherwise ignoring any exception */
+	static private void rollback( final Connection connection ) {
+		try {
+			connection.rollback();
+		}
+		catch( SQLException exception ) {
+			exception.printStackTrace();
+		}
+	}
+	
+	
 	/**
 	 * Publish the specified machine snapshot
 	 * @param connection database connection
@@ -242,6 +341,7 @@ class PersistentStore {
 		}
 		catch( SQLException exception ) {
 			exception.printStackTrace();
+			rollback( connection );
 			return false;
 		}
 	}
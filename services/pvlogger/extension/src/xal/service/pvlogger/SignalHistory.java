@@ -0,0 +1,102 @@
+//
+// SignalHistory.java: Source file for 'SignalHistory'
+// Project xal
+//
+
+package xal.service.pvlogger;
+
+
+/**
+ * SignalHistory is the time series of a single PV's logged scalar value (the first element of the channel's value array) over a time range.
+ * A raw history holds one point per logged sample. An aggregated history divides the time range into fixed width buckets and holds one point
+ * per nonempty bucket whose time is the bucket's center, whose value is the mean of the bucket's samples and whose min and max values are
+ * the extremes of the bucket's samples. For a raw history the min and max values are simply the sample values.
+ */
+public class SignalHistory {
+	/** PV of the signal */
+	final private String PV;
+
+	/** times of the points in seconds since the epoch */
+	final private double[] TIMES;
+
+	/** values (or bucket means) of the points */
+	final private double[] VALUES;
+
+	/** minimum values of the points */
+	final private double[] MIN_VALUES;
+
+	/** maximum values of the points */
+	final private double[] MAX_VALUES;
+
+	/** number of samples represented by each point */
+	final private int[] SAMPLE_COUNTS;
+
+	/** indicates whether the points are aggregated into buckets */
+	final private boolean IS_AGGREGATED;
+
+
+	/** Primary Constructor */
+	SignalHistory( final String pv, final double[] times, final double[] values, final double[] minValues, final double[] maxValues, final int[] sampleCounts, final boolean isAggregated ) {
+		PV = pv;
+		TIMES = times;
+		VALUES = values;
+		MIN_VALUES = minValues;
+		MAX_VALUES = maxValues;
+		SAMPLE_COUNTS = sampleCounts;
+		IS_AGGREGATED = isAggregated;
+	}
+
+
+	/** get the PV of the signal */
+	public String getPV() {
+		return PV;
+	}
+
+
+	/** get the number of points */
+	public int getPointCount() {
+		return TIMES.length;
+	}
+
+
+	/** determine whether the points are aggregated into buckets */
+	public boolean isAggregated() {
+		return IS_AGGREGATED;
+	}
+
+
+	/** get the times of the points in seconds since the epoch (bucket centers if aggregated) */
+	public double[] getTimes() {
+		return TIMES;
+	}
+
+
+	/** get the values of the points (bucket means if aggregated) */
+	public double[] getValues() {
+		return VALUES;
+	}
+
+
+	/** get the minimum values of the points (same as the values if not aggregated) */
+	public double[] getMinValues() {
+		return MIN_VALUES;
+	}
+
+
+	/** get the maximum values of the points (same as the values if not aggregated) */
+	public double[] getMaxValues() {
+		return MAX_VALUES;
+	}
+
+
+	/** get the number of samples represented by each point (all ones if not aggregated) */
+	public int[] getSampleCounts() {
+		return SAMPLE_COUNTS;
+	}
+
+
+	/** Override toString() to describe the history */
+	public String toString() {
+		return PV + ( IS_AGGREGATED ? " aggregated" : "" ) + " history with " + TIMES.length + " points";
+	}
+}
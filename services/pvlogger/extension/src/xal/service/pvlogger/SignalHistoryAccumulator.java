@@ -0,0 +1,214 @@
+//
+// SignalHistoryAccumulator.java: Source file for 'SignalHistoryAccumulator'
+// Project xal
+//
+
+package xal.service.pvlogger;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+
+/** Accumulates samples streamed from a store into signal histories for several PVs either raw or aggregated into fixed width buckets */
+class SignalHistoryAccumulator {
+	/** initial capacity of raw sample buffers */
+	final static private int INITIAL_CAPACITY = 256;
+
+	/** start of the time range in seconds */
+	final private double START_TIME;
+
+	/** width of each bucket in seconds */
+	final private double BUCKET_WIDTH;
+
+	/** number of buckets or zero for raw samples */
+	final private int BUCKET_COUNT;
+
+	/** signal accumulators keyed by PV in the requested order */
+	final private Map<String,Signal> SIGNALS;
+
+
+	/**
+	 * Constructor
+	 * @param pvs PVs for which to accumulate histories
+	 * @param startTime start of the time range in seconds since the epoch
+	 * @param endTime end of the time range in seconds since the epoch
+	 * @param bucketCount number of buckets into which to aggregate the samples or zero to keep the raw samples
+	 */
+	public SignalHistoryAccumulator( final Collection<String> pvs, final double startTime, final double endTime, final int bucketCount ) {
+		START_TIME = startTime;
+		BUCKET_COUNT = Math.max( 0, bucketCount );
+		BUCKET_WIDTH = BUCKET_COUNT > 0 ? ( endTime - startTime ) / BUCKET_COUNT : 0.0;
+
+		SIGNALS = new LinkedHashMap<String,Signal>( pvs.size() );
+		for ( final String pv : pvs ) {
+			SIGNALS.put( pv, new Signal() );
+		}
+	}
+
+
+	/** determine whether samples for the PV are being accumulated */
+	public boolean accepts( final String pv ) {
+		return SIGNALS.containsKey( pv );
+	}
+
+
+	/**
+	 * Add a sample for the specified PV (ignored if the PV was not requested)
+	 * @param pv the sample's PV
+	 * @param time time of the sample in seconds since the epoch
+	 * @param value the sample's value
+	 */
+	public void addSample( final String pv, final double time, final double value ) {
+		final Signal signal = SIGNALS.get( pv );
+		if ( signal == null )  return;
+
+		if ( BUCKET_COUNT > 0 ) {
+			final int bucket = BUCKET_WIDTH > 0.0 ? (int)Math.floor( ( time - START_TIME ) / BUCKET_WIDTH ) : 0;
+			signal.addToBucket( Math.max( 0, Math.min( BUCKET_COUNT - 1, bucket ) ), value );
+		}
+		else {
+			signal.addRaw( time, value );
+		}
+	}
+
+
+	/** generate the signal histories keyed by PV */
+	public Map<String,SignalHistory> getSignalHistories() {
+		final Map<String,SignalHistory> histories = new HashMap<String,SignalHistory>( SIGNALS.size() );
+		for ( final Map.Entry<String,Signal> entry : SIGNALS.entrySet() ) {
+			histories.put( entry.getKey(), entry.getValue().toSignalHistory( entry.getKey() ) );
+		}
+		return histories;
+	}
+
+
+
+	/** accumulator for one signal */
+	private class Signal {
+		/** raw sample times or null if aggregating */
+		private double[] _times;
+
+		/** raw sample values or bucket sums */
+		private double[] _values;
+
+		/** bucket minimum values */
+		final private double[] MIN_VALUES;
+
+		/** bucket maximum values */
+		final private double[] MAX_VALUES;
+
+		/** bucket sample counts */
+		final private int[] COUNTS;
+
+		/** number of raw samples */
+		private int _count;
+
+
+		/** Constructor */
+		public Signal() {
+			if ( BUCKET_COUNT > 0 ) {
+				_values = new double[BUCKET_COUNT];
+				MIN_VALUES = new double[BUCKET_COUNT];
+				MAX_VALUES = new double[BUCKET_COUNT];
+				COUNTS = new int[BUCKET_COUNT];
+				Arrays.fill( MIN_VALUES, Double.POSITIVE_INFINITY );
+				Arrays.fill( MAX_VALUES, Double.NEGATIVE_INFINITY );
+			}
+			else {
+				_times = new double[INITIAL_CAPACITY];
+				_values = new double[INITIAL_CAPACITY];
+				MIN_VALUES = null;
+				MAX_VALUES = null;
+				COUNTS = null;
+			}
+			_count = 0;
+		}
+
+
+		/** add a raw sample */
+		public void addRaw( final double time, final double value ) {
+			if ( _count == _times.length ) {
+				_times = Arrays.copyOf( _times, 2 * _count );
+				_values = Arrays.copyOf( _values, 2 * _count );
+			}
+			_times[_count] = time;
+			_values[_count] = value;
+			++_count;
+		}
+
+
+		/** add a sample to the specified bucket */
+		public void addToBucket( final int bucket, final double value ) {
+			_values[bucket] += value;
+			if ( value < MIN_VALUES[bucket] )  MIN_VALUES[bucket] = value;
+			if ( value > MAX_VALUES[bucket] )  MAX_VALUES[bucket] = value;
+			++COUNTS[bucket];
+		}
+
+
+		/** generate the signal history for this signal */
+		public SignalHistory toSignalHistory( final String pv ) {
+			if ( BUCKET_COUNT > 0 ) {
+				int pointCount = 0;
+				for ( final int count : COUNTS ) {
+					if ( count > 0 )  ++pointCount;
+				}
+
+				final double[] times = new double[pointCount];
+				final double[] means = new double[pointCount];
+				final double[] minValues = new double[pointCount];
+				final double[] maxValues = new double[pointCount];
+				final int[] counts = new int[pointCount];
+				int point = 0;
+				for ( int bucket = 0 ; bucket < BUCKET_COUNT ; bucket++ ) {
+					if ( COUNTS[bucket] > 0 ) {
+						times[point] = START_TIME + ( bucket + 0.5 ) * BUCKET_WIDTH;
+						means[point] = _values[bucket] / COUNTS[bucket];
+						minValues[point] = MIN_VALUES[bucket];
+						maxValues[point] = MAX_VALUES[bucket];
+						counts[point] = COUNTS[bucket];
+						++point;
+					}
+				}
+				return new SignalHistory( pv, times, means, minValues, maxValues, counts, true );
+			}
+			else {
+				// samples normally arrive in time order but sort them if they did not
+				final double[] times = Arrays.copyOf( _times, _count );
+				final double[] values = Arrays.copyOf( _values, _count );
+				if ( !isSorted( times ) ) {
+					sortByTime( times, values );
+				}
+				final int[] counts = new int[_count];
+				Arrays.fill( counts, 1 );
+				return new SignalHistory( pv, times, values, values, values, counts, false );
+			}
+		}
+	}
+
+
+	/** determine whether the array is in ascending order */
+	static private boolean isSorted( final double[] array ) {
+		for ( int index = 1 ; index < array.length ; index++ ) {
+			if ( array[index] < array[index-1] )  return false;
+		}
+		return true;
+	}
+
+
+	/** sort the times in place carrying the values along */
+	static private void sortByTime( final double[] times, final double[] values ) {
+		final Integer[] order = new Integer[times.length];
+		for ( int index = 0 ; index < order.length ; index++ )  order[index] = index;
+		final double[] originalTimes = times.clone();
+		final double[] originalValues = values.clone();
+		Arrays.sort( order, ( index1, index2 ) -> Double.compare( originalTimes[index1], originalTimes[index2] ) );
+		for ( int index = 0 ; index < order.length ; index++ ) {
+			times[index] = originalTimes[order[index]];
+			values[index] = originalValues[order[index]];
+		}
+	}
+}
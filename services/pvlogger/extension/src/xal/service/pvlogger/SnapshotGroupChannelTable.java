@@ -58,6 +58,7 @@ class SnapshotGroupChannelTable {
 			pvs.add( resultSet.getString( CHANNEL_COLUMN ) );
 		}
 		resultSet.close();
+		queryStatement.close();
 		return pvs.toArray( new String[pvs.size()] );
 	}
 
@@ -78,6 +79,7 @@ class SnapshotGroupChannelTable {
 			pvs.add( resultSet.getString( CHANNEL_COLUMN ) );
 		}
 		resultSet.close();
+		queryStatement.close();
 		return pvs.toArray( new String[pvs.size()] );
 	}
 
@@ -121,11 +121,13 @@ class SnapshotGroupTable {
 	 */
 	public String[] fetchTypes( final Connection connection )  throws SQLException {
 		final List<String> types = new ArrayList<String>();
-		final ResultSet result = getGroupsQueryStatement( connection ).executeQuery();
+		final PreparedStatement statement = getGroupsQueryStatement( connection );
+		final ResultSet result = statement.executeQuery();
 		while ( result.next() ) {
 			types.add( result.getString( PRIMARY_KEY ) );
 		}
 		result.close();
+		statement.close();
 		return types.toArray( new String[types.size()] );		
 	}
 	
@@ -8,22 +8,51 @@
 
 package xal.service.pvlogger;
 
-import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import xal.tools.data.DataAdaptor;
-import xal.tools.database.ConnectionDictionary;
-import xal.tools.database.DatabaseAdaptor;
 
 
-/** publishes machine snapshots to the persistent store */
+/** 
+ * Publishes machine snapshots to the snapshot store. Snapshots are buffered in a bounded queue and published in batches
+ * where each batch is written in a single transaction. If the queue fills (e.g. the store is unavailable) the oldest pending snapshots are dropped.
+ * A snapshot which fails to publish is moved to the back of the queue so the others are published ahead of it. Once it has failed on
+ * the configured number of passes in which the store accepted other snapshots it is logged and discarded.
+ */
 class SnapshotPublisher {
+	/** default maximum number of snapshots pending publication */
+	final static private int DEFAULT_BUFFER_CAPACITY = 10000;
+	
+	/** default maximum number of snapshots to publish in a single transaction */
+	final static private int DEFAULT_BATCH_SIZE = 25;
+	
+	/** default maximum number of passes on which a snapshot may fail to publish while the store accepts others */
+	final static private int DEFAULT_MAX_PUBLISH_ATTEMPTS = 10;
+	
+	/** default publishing period in seconds */
+	final static private double DEFAULT_PUBLISHING_PERIOD = 5.0;
+	
 	/** buffer of machine snapshots pending publishing */
-	final List<MachineSnapshot> SNAPSHOT_BUFFER;
+	final BlockingDeque<MachineSnapshot> SNAPSHOT_BUFFER;
+	
+	/** maximum number of snapshots to publish in a single transaction */
+	final protected int BATCH_SIZE;
+	
+	/** maximum number of passes on which a snapshot may fail to publish while the store accepts others */
+	final protected int MAX_PUBLISH_ATTEMPTS;
+	
+	/** number of failed publishing attempts keyed by the snapshots pending a retry */
+	final private Map<MachineSnapshot,Integer> PUBLISH_FAILURES;
 	
 	/** timer which signals a log operation */
 	final protected Timer LOG_TIMER;
@@ -34,30 +63,37 @@ class SnapshotPublisher {
 	/** publishing period in seconds */
 	protected double _publishingPeriod;
 	
-	/** database store */
-	final protected PersistentStore PERSISTENT_STORE;
-	
-	/** connection dictionary */
-	protected ConnectionDictionary _connectionDictionary;
+	/** snapshot store */
+	final protected SnapshotStore SNAPSHOT_STORE;
 	
 	
 	/** Primary Constructor */
-	protected SnapshotPublisher( final DataAdaptor adaptor, final PersistentStore persistentStore, final ConnectionDictionary connectionDictionary ) {
-		PERSISTENT_STORE = persistentStore;
+	protected SnapshotPublisher( final SnapshotStore snapshotStore, final double publishingPeriod, final int bufferCapacity, final int batchSize, final int maxPublishAttempts ) {
+		SNAPSHOT_STORE = snapshotStore;
 		
-		setConnectionDictionary( connectionDictionary );
+		SNAPSHOT_BUFFER = new LinkedBlockingDeque<MachineSnapshot>( Math.max( 1, bufferCapacity ) );
+		BATCH_SIZE = Math.max( 1, batchSize );
+		MAX_PUBLISH_ATTEMPTS = Math.max( 1, maxPublishAttempts );
+		PUBLISH_FAILURES = new ConcurrentHashMap<MachineSnapshot,Integer>();
 		
-		SNAPSHOT_BUFFER = new ArrayList<MachineSnapshot>();
-		
-		_publishingPeriod = adaptor.doubleValue( "publishPeriod" );
+		_publishingPeriod = publishingPeriod;
 		
 		LOG_TIMER = new Timer();
 	}
 	
 	
-	/** set the connection dictionary */
-	protected void setConnectionDictionary( final ConnectionDictionary dictionary ) {
-		_connectionDictionary = dictionary;
+	/** Constructor with the default configuration */
+	protected SnapshotPublisher( final SnapshotStore snapshotStore ) {
+		this( snapshotStore, DEFAULT_PUBLISHING_PERIOD, DEFAULT_BUFFER_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_MAX_PUBLISH_ATTEMPTS );
+	}
+	
+	
+	/** Constructor configured from the publisher adaptor */
+	protected SnapshotPublisher( final DataAdaptor adaptor, final SnapshotStore snapshotStore ) {
+		this( snapshotStore, adaptor.doubleValue( "publishPeriod" ), 
+			 adaptor.hasAttribute( "bufferCapacity" ) ? adaptor.intValue( "bufferCapacity" ) : DEFAULT_BUFFER_CAPACITY, 
+			 adaptor.hasAttribute( "batchSize" ) ? adaptor.intValue( "batchSize" ) : DEFAULT_BATCH_SIZE,
+			 adaptor.hasAttribute( "maxPublishAttempts" ) ? adaptor.intValue( "maxPublishAttempts" ) : DEFAULT_MAX_PUBLISH_ATTEMPTS );
 	}
 	
 	
@@ -109,38 +145,63 @@ class SnapshotPublisher {
 	}
 	
 	
-	/** publish machine snapshots to the persistent storage */
-	public void publishSnapshots() {
-		publishSnapshots( _connectionDictionary );
-	}
-	
-	
-	/** publish machine snapshots to the persistent storage */
-	synchronized public void publishSnapshots( final ConnectionDictionary connectionDictionary ) {
-		try {
-			final List<MachineSnapshot> machineSnapshots = getSnapshotBufferCopy();
-			if ( machineSnapshots.size() > 0 ) {
-				final Connection connection = PersistentStore.connectionInstance( connectionDictionary );
-				
-				try {
-					connection.setAutoCommit( false );				
-					publishSnapshots( connection, connectionDictionary.getDatabaseAdaptor(), machineSnapshots );
-				}
-				finally {
-					connection.close();
+	/**
+	 * Publish the snapshots pending at the start of the pass batch by batch. Unpublished snapshots are moved to the back of the buffer.
+	 * The pass ends early if nothing has been published and a whole batch fails, since the store is then likely unavailable.
+	 */
+	synchronized public void publishSnapshots() {
+		final int pendingCount = SNAPSHOT_BUFFER.size();
+		final List<MachineSnapshot> failedSnapshots = new ArrayList<MachineSnapshot>();
+		final List<MachineSnapshot> batch = new ArrayList<MachineSnapshot>( BATCH_SIZE );
+		int processedCount = 0;
+		int publishedCount = 0;
+		
+		while ( processedCount < pendingCount && SNAPSHOT_BUFFER.drainTo( batch, Math.min( BATCH_SIZE, pendingCount - processedCount ) ) > 0 ) {
+			final int batchSize = batch.size();
+			processedCount += batchSize;
+			try {
+				final List<MachineSnapshot> publishedSnapshots = SNAPSHOT_STORE.publish( batch );
+				if ( publishedSnapshots != null ) {
+					batch.removeAll( publishedSnapshots );
+					for ( final MachineSnapshot snapshot : publishedSnapshots ) {
+						PUBLISH_FAILURES.remove( snapshot );
+					}
 				}
 			}
+			catch( Exception exception ) {
+				exception.printStackTrace();
+			}
+			
+			publishedCount += batchSize - batch.size();
+			failedSnapshots.addAll( batch );
+			batch.clear();
+			
+			if ( publishedCount == 0 && failedSnapshots.size() == batchSize )  break;
 		}
-		catch( Exception exception ) {
-			exception.printStackTrace();
+		
+		// failures only count against a snapshot when the store has shown it is available by accepting other snapshots
+		if ( publishedCount > 0 ) {
+			discardExhaustedSnapshots( failedSnapshots );
 		}
+		requeue( failedSnapshots );
 	}
 	
 	
-	/** publish machine snapshots to the persistent storage */
-	protected void publishSnapshots( final Connection connection, final DatabaseAdaptor databaseAdaptor, final List<MachineSnapshot> machineSnapshots ) throws SQLException {
-		final List<MachineSnapshot> publishedSnapshots = PERSISTENT_STORE.publish( connection, databaseAdaptor, machineSnapshots );
-		removeFromBuffer( publishedSnapshots );
+	/** count a failed attempt for each snapshot and remove from the list (and log) those which have used up their attempts */
+	private void discardExhaustedSnapshots( final List<MachineSnapshot> failedSnapshots ) {
+		for ( final Iterator<MachineSnapshot> iterator = failedSnapshots.iterator() ; iterator.hasNext() ; ) {
+			final MachineSnapshot snapshot = iterator.next();
+			final Integer failures = PUBLISH_FAILURES.get( snapshot );
+			final int attempts = failures != null ? failures + 1 : 1;
+			if ( attempts >= MAX_PUBLISH_ATTEMPTS ) {
+				iterator.remove();
+				PUBLISH_FAILURES.remove( snapshot );
+				Logger.getLogger( "global" ).log( Level.SEVERE, "Discarding snapshot: " + snapshot.getType() + " taken at " + snapshot.getTimestamp() + " after failing to publish it " + attempts + " times." );
+			}
+			else {
+				PUBLISH_FAILURES.put( snapshot, attempts );
+			}
+		}
 	}
 	
 	
@@ -157,29 +218,38 @@ class SnapshotPublisher {
 	}
 	
 	
-	/** add the specified snapshots to the buffer */
+	/** add the specified snapshot to the buffer dropping the oldest pending snapshot if the buffer is full */
 	public void scheduleSnapshotPublication( final MachineSnapshot snapshot ) {
-		synchronized( SNAPSHOT_BUFFER ) {
-			SNAPSHOT_BUFFER.add( snapshot );
-		}		
+		while ( !SNAPSHOT_BUFFER.offerLast( snapshot ) ) {
+			final MachineSnapshot droppedSnapshot = SNAPSHOT_BUFFER.pollFirst();
+			if ( droppedSnapshot != null ) {
+				PUBLISH_FAILURES.remove( droppedSnapshot );
+				Logger.getLogger( "global" ).log( Level.WARNING, "Snapshot buffer is full. Dropping snapshot: " + droppedSnapshot.getType() + " taken at " + droppedSnapshot.getTimestamp() );
+			}
+		}
 	}
 	
 	
-	/** clear the buffer of the specified snapshots */
-	protected void removeFromBuffer( final List<MachineSnapshot> snapshots ) {
-		if ( snapshots != null && snapshots.size() > 0 ) {
-			synchronized( SNAPSHOT_BUFFER ) {
-				SNAPSHOT_BUFFER.removeAll( snapshots );
+	/** return the unpublished snapshots (in their original order) to the back of the buffer */
+	protected void requeue( final List<MachineSnapshot> snapshots ) {
+		for ( final MachineSnapshot snapshot : snapshots ) {
+			if ( !SNAPSHOT_BUFFER.offerLast( snapshot ) ) {
+				PUBLISH_FAILURES.remove( snapshot );
+				Logger.getLogger( "global" ).log( Level.WARNING, "Snapshot buffer is full. Dropping unpublished snapshot: " + snapshot.getType() );
 			}
 		}
 	}
 	
 	
+	/** get the number of snapshots pending publication */
+	public int getPendingSnapshotCount() {
+		return SNAPSHOT_BUFFER.size();
+	}
+	
+	
 	/** get a copy of the snapshot buffer */
 	protected List<MachineSnapshot> getSnapshotBufferCopy() {
-		synchronized( SNAPSHOT_BUFFER ) {
-			return new ArrayList<MachineSnapshot>( SNAPSHOT_BUFFER );
-		}
+		return new ArrayList<MachineSnapshot>( SNAPSHOT_BUFFER );
 	}
 	
 	
@@ -0,0 +1,101 @@
+//
+// SnapshotStore.java: Source file for 'SnapshotStore'
+// Project xal
+//
+
+package xal.service.pvlogger;
+
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+
+/**
+ * SnapshotStore is the backend in which the PV Logger persists machine snapshots and from which it fetches them. Implementations include the
+ * relational database store (reached through a connection dictionary) and the embedded local store which keeps snapshots in segment files.
+ * Failures of the underlying store are reported as SQLException regardless of the backend so that clients need not distinguish them.
+ */
+public interface SnapshotStore {
+	/**
+	 * Fetch channel groups as an array of types
+	 * @return array of types corresponding to all of the channel groups
+	 */
+	public String[] fetchTypes() throws SQLException;
+
+
+	/**
+	 * Fetch the channel groups associated with the service ID as an array of types
+	 * @param serviceID service ID of groups to fetch
+	 * @return array of types corresponding to channel groups with the specified service ID
+	 */
+	public String[] fetchTypes( final String serviceID ) throws SQLException;
+
+
+	/**
+	 * Fetch a new instance of the channel group for the specified type bypassing any cache.
+	 * @param type channel group type
+	 * @return the channel group or null if none exists for the type
+	 */
+	public ChannelGroup fetchChannelGroup( final String type ) throws SQLException;
+
+
+	/**
+	 * Get the channel group corresponding to the specified type fetching it only if it has not already been fetched.
+	 * @param type channel group type
+	 * @return the channel group or null if none exists for the type
+	 */
+	public ChannelGroup getChannelGroup( final String type ) throws SQLException;
+
+
+	/**
+	 * Fetch the machine snapshot (including its channel snapshots) corresponding to the specified snasphot ID
+	 * @param snapshotID machine snaspshot ID
+	 * @return machine snapshot corresponding to the specified ID or null if there is no such snapshot
+	 */
+	public MachineSnapshot fetchMachineSnapshot( final long snapshotID ) throws SQLException;
+
+
+	/**
+	 * Fetch the machine snapshots within the specified time range. If the type is not null, then restrict the machine snapshots to those of the specified type.
+	 * The machine snapshots do not include the channel snapshots which can be loaded using loadChannelSnapshotsInto().
+	 * @param type The type of machine snapshots to fetch or null for no restriction
+	 * @param startTime The start time of the time range
+	 * @param endTime The end time of the time range
+	 * @return An array of machine snapshots meeting the specified criteria
+	 */
+	public MachineSnapshot[] fetchMachineSnapshotsInRange( final String type, final Date startTime, final Date endTime ) throws SQLException;
+
+
+	/**
+	 * Fetch the channel snapshots from the store and populate the machine snapshot
+	 * @param machineSnapshot The machine snapshot for which to fetch the channel snapshots and load them
+	 * @return the machineSnapshot which is the same as the parameter returned for convenience
+	 */
+	public MachineSnapshot loadChannelSnapshotsInto( final MachineSnapshot machineSnapshot ) throws SQLException;
+
+
+	/**
+	 * Fetch the histories of the specified PVs logged with machine snapshots of the specified type within the time range. Only the requested
+	 * channels are read and the samples may optionally be aggregated (min/max/mean) into fixed width buckets by the store.
+	 * @param type The type of machine snapshots whose channel snapshots to fetch
+	 * @param pvs PVs whose histories to fetch
+	 * @param startTime The start time of the time range
+	 * @param endTime The end time of the time range
+	 * @param bucketCount number of fixed width buckets into which to aggregate the samples or zero for the raw samples
+	 * @return the signal histories keyed by PV
+	 */
+	public Map<String,SignalHistory> fetchSignalHistories( final String type, final List<String> pvs, final Date startTime, final Date endTime, final int bucketCount ) throws SQLException;
+
+
+	/**
+	 * Publish the machine snapshots to the store assigning each successfully published snapshot its unique ID.
+	 * @param machineSnapshots machine snapshots to publish
+	 * @return machine snapshots successfully published
+	 */
+	public List<MachineSnapshot> publish( final List<MachineSnapshot> machineSnapshots ) throws SQLException;
+
+
+	/** Release any resources (e.g. connections or open files) held by the store */
+	public void close();
+}
@@ -36,6 +36,10 @@ public class BrowserModel {
 	protected MachineSnapshot[] _snapshots;
 	protected ChannelGroup _group;
 	
+	/** time range of the fetched machine snapshots */
+	protected java.util.Date _startTime;
+	protected java.util.Date _endTime;
+	
 	
 	/**
 	 * Constructor
@@ -93,13 +97,24 @@ public class BrowserModel {
 	
 	
 	/**
-	 * Connect to the database with the specified connection dictionary
+	 * Connect to the database with the specified connection dictionary. The connection only verifies the account, so it is borrowed from
+	 * the shared pool and returned once the logger has been set up which lets repeated reconnects reuse it.
 	 * @param dictionary The connection dictionary
 	 * @throws DatabaseException if the connection or schema fetch fails
 	 */
 	public void connect( final ConnectionDictionary dictionary ) throws DatabaseException {
-		final Connection connection = dictionary.getDatabaseAdaptor().getConnection( dictionary );
-		setDatabaseConnection( connection, dictionary );
+		final Connection connection = dictionary.getDatabaseAdaptor().getPooledConnection( dictionary );
+		try {
+			setDatabaseConnection( connection, dictionary );
+		}
+		finally {
+			try {
+				connection.close();
+			}
+			catch( SQLException exception ) {
+				throw new DatabaseException( "Exception returning the connection to the pool.", dictionary.getDatabaseAdaptor(), exception );
+			}
+		}
 	}
 	
 	
@@ -176,11 +191,26 @@ public class BrowserModel {
 	 */
 	public void fetchMachineSnapshots( final java.util.Date startTime, final java.util.Date endTime ) throws SQLException {
 		_snapshots = _pvLogger.fetchMachineSnapshotsInRange( _group.getLabel(), startTime, endTime );
+		_startTime = startTime;
+		_endTime = endTime;
 		System.out.println( "Found " + _snapshots.length + " snapshots..." );
 		EVENT_PROXY.machineSnapshotsFetched( this, _snapshots );
 	}
 	
 	
+	/**
+	 * Fetch the histories of the specified signals over the time range of the fetched machine snapshots. Only the
+	 * requested signals are fetched rather than populating every machine snapshot with all of its channel snapshots.
+	 * @param signals the PVs of the signals whose histories to fetch
+	 * @param bucketCount number of buckets into which to aggregate the samples or zero for the raw samples
+	 * @return the signal histories keyed by PV
+	 */
+	public Map<String,SignalHistory> fetchSignalHistories( final List<String> signals, final int bucketCount ) throws SQLException {
+		if ( _group == null || _startTime == null || signals.isEmpty() )  return Collections.<String,SignalHistory>emptyMap();
+		return _pvLogger.fetchSignalHistories( _group.getLabel(), signals, _startTime, _endTime, bucketCount );
+	}
+	
+	
 	/**
 	 * Populate all fetched machine snapshots with all of their data.
 	 */
@@ -96,11 +96,7 @@ public class PVLogSnapshotChooser {
     }
     
     protected void requestUserConnection() {    
-        // initialize PVLogger
-        ConnectionDictionary dict = PVLogger.newBrowsingConnectionDictionary();
-        
-        Connection conn = dict.getDatabaseAdaptor().getConnection(dict);
-        _model.setDatabaseConnection(conn, dict);
+        // initialize PVLogger using a pooled connection to verify the account
         _model.connect();
     }
 
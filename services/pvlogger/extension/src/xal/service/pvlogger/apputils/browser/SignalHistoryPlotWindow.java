@@ -29,6 +29,9 @@ import java.util.*;
 public class SignalHistoryPlotWindow extends JFrame implements SwingConstants {
 	/** specify the serializable version as requied */
 	static private final long serialVersionUID = 1;
+	
+	/** maximum number of points per signal to plot before aggregating the history into buckets */
+	static private final int MAX_RAW_POINTS = 2000;
 
 	protected FunctionGraphsJPanel _chart;
 	protected BrowserController _controller;
@@ -102,58 +105,42 @@ public class SignalHistoryPlotWindow extends JFrame implements SwingConstants {
 		final List<String> signals = new ArrayList<String>( _controller.getSelectedSignals() );
 		final int numSignals = signals.size();
 		final MachineSnapshot[] machineSnapshots = _model.getSnapshots();
-				
-		final Map<String,List<ChannelSnapshot>> signalMap = new HashMap<String,List<ChannelSnapshot>>( numSignals );
-		for ( int signalIndex = 0 ; signalIndex < numSignals ; signalIndex++ ) {
-			final String signal = signals.get( signalIndex );
-			signalMap.put( signal, new ArrayList<ChannelSnapshot>() );
-		}
 		
+		// only aggregate when there are more snapshots than can be meaningfully displayed
+		final int bucketCount = machineSnapshots.length > MAX_RAW_POINTS ? MAX_RAW_POINTS : 0;
+		final Map<String,SignalHistory> histories;
 		try {
-			_model.populateSnapshots();
+			histories = _model.fetchSignalHistories( signals, bucketCount );
 		}
 		catch( Exception exception ) {
 			throw new RuntimeException( exception );
 		}
 		
-		for ( int machineSnapshotIndex = 0 ; machineSnapshotIndex < machineSnapshots.length ; machineSnapshotIndex++ ) {
-			final MachineSnapshot machineSnapshot = machineSnapshots[machineSnapshotIndex];
-			final ChannelSnapshot[] channelSnapshots = machineSnapshot.getChannelSnapshots();
-			for ( int index = 0 ; index < channelSnapshots.length ; index++ ) {
-				final ChannelSnapshot channelSnapshot = channelSnapshots[index];
-				final String signal = channelSnapshot.getPV();
-				final List<ChannelSnapshot> dataList = signalMap.get( signal );
-				if ( dataList != null ) {
-					dataList.add( channelSnapshot );
-				}
-			}
-		}
-		
 		final Vector<BasicGraphData> seriesData = new Vector<BasicGraphData>();
 		for ( int signalIndex = 0 ; signalIndex < numSignals ; signalIndex++ ) {
 			final String signal = signals.get(signalIndex);
-			final List<ChannelSnapshot> snapshots = signalMap.get(signal);
-			final int numPoints = snapshots.size();
-			double[] values = new double[numPoints];
-			double[] timestamps = new double[numPoints];
-			for ( int pointIndex = 0 ; pointIndex < numPoints ; pointIndex++ ) {
-				final ChannelSnapshot snapshot = snapshots.get(pointIndex);
-				values[pointIndex] = snapshot.getValue()[0];
-				timestamps[pointIndex] = snapshot.getTimestamp().getSeconds();
-			}
-			if ( numPoints > 0 ) {
+			final SignalHistory history = histories.get(signal);
+			if ( history != null && history.getPointCount() > 0 ) {
 				Color color = IncrementalColors.getColor(signalIndex);
-				BasicGraphData graphData = new BasicGraphData();
-				graphData.addPoint(timestamps, values);
+				BasicGraphData graphData = new ColumnarGraphData();
+				graphData.addPoint( history.getTimes(), history.getValues() );
 				graphData.setGraphColor( color );
 				graphData.setGraphProperty( _chart.getLegendKeyString(), signal );
 				graphData.setGraphName(signal);
 				seriesData.add( graphData );
+
+				// bucket means hide the spread within each bucket so also draw the min/max envelope
+				if ( history.isAggregated() ) {
+					seriesData.add( makeEnvelopeGraphData( signal + " (min)", history.getTimes(), history.getMinValues(), color ) );
+					seriesData.add( makeEnvelopeGraphData( signal + " (max)", history.getTimes(), history.getMaxValues(), color ) );
+				}
 			}
 		}
 		_chart.removeAllGraphData();
 		_chart.addGraphData( seriesData );
 		
+		if ( machineSnapshots.length == 0 )  return;
+		
 		// set the plot X range to only the selected snapshot range (exclude PV values with timestamps outside this range).
 		double stepSize = (machineSnapshots[machineSnapshots.length-1].getTimestamp().getTime()/1000. -
 				machineSnapshots[0].getTimestamp().getTime()/1000.)/3.;
@@ -162,6 +149,27 @@ public class SignalHistoryPlotWindow extends JFrame implements SwingConstants {
 				stepSize);
 	}
 	
+	/**
+	 * Make the graph data for one side of the min/max envelope of an aggregated signal history.
+	 * @param name the name of the envelope series
+	 * @param times the bucket times
+	 * @param values the bucket minimum or maximum values
+	 * @param color the color of the signal
+	 * @return the graph data drawn as a thin dashed line without points
+	 */
+	private BasicGraphData makeEnvelopeGraphData( final String name, final double[] times, final double[] values, final Color color ) {
+		final BasicGraphData graphData = new ColumnarGraphData();
+		graphData.addPoint( times, values );
+		graphData.setGraphColor( color );
+		graphData.setDrawPointsOn( false );
+		graphData.setLineThick( 1 );
+		graphData.setLineDashPattern( 4.0f, 4.0f );
+		graphData.setGraphProperty( _chart.getLegendKeyString(), name );
+		graphData.setGraphName( name );
+		return graphData;
+	}
+	
+	
 	public FunctionGraphsJPanel getChart() {
 		return _chart;
 	}
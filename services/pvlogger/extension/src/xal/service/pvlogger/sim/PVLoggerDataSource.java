@@ -30,10 +30,23 @@ import xal.tools.transforms.ValueTransform;
  * @author Paul Chu
  */
 public class PVLoggerDataSource {
+	/** default number of decoded machine snapshots to keep in the cache */
+	final static public int DEFAULT_SNAPSHOT_CACHE_CAPACITY = 16;
+	
 	/** PV Logger */
 	final private PVLogger PV_LOGGER;
-    
-	private Map<String,ChannelSnapshot> SNAPSHOT_MAP;
+	
+	/** decoded machine snapshots keyed by ID in least recently used order */
+	final private LinkedHashMap<Long,LoggedSnapshot> SNAPSHOT_CACHE;
+	
+	/** index of each PV within the channel snapshots keyed by channel group type (built once per group) */
+	final private Map<String,Map<String,Integer>> PV_INDEX_BY_GROUP;
+	
+	/** maximum number of decoded machine snapshots to cache */
+	private int _snapshotCacheCapacity;
+	
+	/** currently loaded snapshot */
+	private LoggedSnapshot _loggedSnapshot;
 
     private ChannelSnapshot[] CHANNEL_SNAPSHOTS;
 	
@@ -48,6 +61,12 @@ public class PVLoggerDataSource {
 	
 	/** indicates whether bend fields from the PV Logger are used in the scenario */
 	private boolean _usesLoggedBendFields;
+	
+	/** scenario whose magnet fields were last set from this data source or null if none */
+	private Scenario _syncedScenario;
+	
+	/** logged magnets applied to the synchronized scenario */
+	private List<Electromagnet> _syncedMagnets;
     
     
     /** Primary Constructor
@@ -56,6 +75,9 @@ public class PVLoggerDataSource {
      */
     public PVLoggerDataSource( final long id, final PVLogger theLogger ) {
 		_usesLoggedBendFields = false;
+		_snapshotCacheCapacity = DEFAULT_SNAPSHOT_CACHE_CAPACITY;
+		SNAPSHOT_CACHE = new LinkedHashMap<Long,LoggedSnapshot>( 16, 0.75f, true );
+		PV_INDEX_BY_GROUP = new HashMap<String,Map<String,Integer>>();
 		
         if ( theLogger != null ) {
             PV_LOGGER = theLogger;
@@ -95,10 +117,32 @@ public class PVLoggerDataSource {
 	
 	/** Sets whether to use the logged bend fields in the scenario */
 	public void setUsesLoggedBendFields( final boolean useLoggedBends ) {
+		if ( useLoggedBends != _usesLoggedBendFields )  _syncedScenario = null;	// the logged magnets change so force a full update
 		_usesLoggedBendFields = useLoggedBends;
 	}
 	
 	
+	/** Get the maximum number of decoded machine snapshots to cache */
+	public int getSnapshotCacheCapacity() {
+		return _snapshotCacheCapacity;
+	}
+	
+	
+	/** Set the maximum number of decoded machine snapshots to cache (at least two so consecutive snapshots can be compared) */
+	synchronized public void setSnapshotCacheCapacity( final int capacity ) {
+		_snapshotCacheCapacity = Math.max( 2, capacity );
+		trimSnapshotCache();
+	}
+	
+	
+	/** Discard all cached snapshots except the current one */
+	synchronized public void clearSnapshotCache() {
+		SNAPSHOT_CACHE.clear();
+		PV_INDEX_BY_GROUP.clear();
+		if ( _loggedSnapshot != null )  SNAPSHOT_CACHE.put( _loggedSnapshot.ID, _loggedSnapshot );
+	}
+	
+	
 	/** close the PV Logger connection */
 	public void closeConnection() {
 		try {
@@ -115,16 +159,90 @@ public class PVLoggerDataSource {
 	 * @param id the PV logger ID
 	 */
 	public void updatePVLoggerId( final long id ) {
+		final LoggedSnapshot loggedSnapshot = getLoggedSnapshot( id );
+		_loggedSnapshot = loggedSnapshot;
+		CHANNEL_SNAPSHOTS = loggedSnapshot.CHANNEL_SNAPSHOTS;
+		_magnetFields = loggedSnapshot.MAGNET_FIELDS;
+		_magnetPowerSupplyValues = loggedSnapshot.MAGNET_SUPPLY_VALUES;
+	}
+	
+	
+	/** Get the PV Logger ID of the current snapshot */
+	public long getPVLoggerId() {
+		return _loggedSnapshot.ID;
+	}
+	
+	
+	/** get the decoded snapshot for the specified ID from the cache fetching and decoding it if necessary */
+	synchronized private LoggedSnapshot getLoggedSnapshot( final long id ) {
+		final LoggedSnapshot cachedSnapshot = SNAPSHOT_CACHE.get( id );
+		if ( cachedSnapshot != null )  return cachedSnapshot;
+		
+		final MachineSnapshot machineSnapshot;
 		try {
-			final MachineSnapshot machineSnapshot = PV_LOGGER.fetchMachineSnapshot( id );
-			CHANNEL_SNAPSHOTS = machineSnapshot.getChannelSnapshots();
-			SNAPSHOT_MAP = populateChannelSnapshotTable();
-			_magnetFields = getMagnetMap();
-			_magnetPowerSupplyValues = getMagnetPSMap();
+			machineSnapshot = PV_LOGGER.fetchMachineSnapshot( id );
 		}
 		catch( Exception exception ) {
 			throw new RuntimeException( exception );
 		}
+		if ( machineSnapshot == null ) {
+			throw new RuntimeException( "No PV Logger snapshot exists with ID: " + id );
+		}
+		
+		final ChannelSnapshot[] channelSnapshots = machineSnapshot.getChannelSnapshots();
+		final LoggedSnapshot loggedSnapshot = new LoggedSnapshot( id, channelSnapshots, getPVIndex( machineSnapshot.getType(), channelSnapshots ) );
+		SNAPSHOT_CACHE.put( id, loggedSnapshot );
+		trimSnapshotCache();
+		return loggedSnapshot;
+	}
+	
+	
+	/** get the PV index for the group building it from the channel snapshots if the group has none or it does not fit these channel snapshots */
+	private Map<String,Integer> getPVIndex( final String groupType, final ChannelSnapshot[] channelSnapshots ) {
+		final Map<String,Integer> groupIndex = PV_INDEX_BY_GROUP.get( groupType );
+		if ( groupIndex != null && groupIndex.size() == channelSnapshots.length )  return groupIndex;
+		
+		final Map<String,Integer> pvIndex = new HashMap<String,Integer>( channelSnapshots.length );
+		for ( int index = 0 ; index < channelSnapshots.length ; index++ ) {
+			pvIndex.put( channelSnapshots[index].getPV(), index );
+		}
+		if ( groupType != null )  PV_INDEX_BY_GROUP.put( groupType, pvIndex );
+		return pvIndex;
+	}
+	
+	
+	/** remove the least recently used snapshots exceeding the capacity (never the current one) */
+	private void trimSnapshotCache() {
+		final Iterator<LoggedSnapshot> iterator = SNAPSHOT_CACHE.values().iterator();
+		while ( SNAPSHOT_CACHE.size() > _snapshotCacheCapacity && iterator.hasNext() ) {
+			if ( iterator.next() != _loggedSnapshot ) {
+				iterator.remove();
+			}
+		}
+	}
+	
+	
+	/**
+	 * Get the channel snapshots of one PV Logger snapshot whose values differ from those of a reference snapshot. Channels missing from
+	 * the reference snapshot are considered changed. Both snapshots are fetched through the snapshot cache.
+	 * @param referenceID PV Logger ID of the reference snapshot
+	 * @param id PV Logger ID of the snapshot to compare with the reference
+	 * @return the changed channel snapshots of the snapshot with the specified ID
+	 */
+	public List<ChannelSnapshot> getChangedChannelSnapshots( final long referenceID, final long id ) {
+		final LoggedSnapshot reference = getLoggedSnapshot( referenceID );
+		final LoggedSnapshot target = getLoggedSnapshot( id );
+		
+		final List<ChannelSnapshot> changedSnapshots = new ArrayList<ChannelSnapshot>();
+		if ( reference == target )  return changedSnapshots;
+		
+		for ( final ChannelSnapshot channelSnapshot : target.CHANNEL_SNAPSHOTS ) {
+			final ChannelSnapshot referenceSnapshot = reference.getChannelSnapshot( channelSnapshot.getPV() );
+			if ( referenceSnapshot == null || !Arrays.equals( referenceSnapshot.getValue(), channelSnapshot.getValue() ) ) {
+				changedSnapshots.add( channelSnapshot );
+			}
+		}
+		return changedSnapshots;
 	}
 
 	/** populate the channel snapshot table */
@@ -139,7 +257,7 @@ public class PVLoggerDataSource {
 
 	/** get a channel snapshot for the specified PV */
 	public ChannelSnapshot getChannelSnapshot( final String pv ) {
-		return SNAPSHOT_MAP.get( pv );
+		return _loggedSnapshot.getChannelSnapshot( pv );
 	}
 
 
@@ -152,92 +270,57 @@ public class PVLoggerDataSource {
 	
 	/** Get the value map for magnets */
 	public Map<String, Double> getMagnetMap() {
-		final Map<String, Double> pvMap = new HashMap<String, Double>();
-
-		for (int i = 0; i < CHANNEL_SNAPSHOTS.length; i++) {
-			final String snapshotPV = CHANNEL_SNAPSHOTS[i].getPV();
-			if ( CHANNEL_SNAPSHOTS[i].getPV().contains( "Mag:" ) ) {
-				double[] val = CHANNEL_SNAPSHOTS[i].getValue();
-				pvMap.put( snapshotPV, val[0] );
-			}
-		}
-
-		return pvMap;
+		return getScalarValueMap( CHANNEL_SNAPSHOTS, "Mag:" );
 	}
 	
 	
 	/** Get the value map for magnet power supplies */
 	public Map<String, Double> getMagnetPSMap() {
-		final Map<String, Double> pvMap = new HashMap<String, Double>();
-
-		for (int i = 0; i < CHANNEL_SNAPSHOTS.length; i++) {
-			if (CHANNEL_SNAPSHOTS[i].getPV().indexOf("Mag:PS_Q") > -1) {
-				double[] val = CHANNEL_SNAPSHOTS[i].getValue();
-				pvMap.put(CHANNEL_SNAPSHOTS[i].getPV(), new Double(val[0]));
-			}
-		}
-
-		return pvMap;
+		return getScalarValueMap( CHANNEL_SNAPSHOTS, "Mag:PS_Q" );
 	}
 
 	
 	/** Get the value map for horizontal BPM signals */
 	public Map<String, Double> getBPMXMap() {
-		final Map<String, Double> bpmXMap = new HashMap<String, Double>();
-
-		for (int i = 0; i < CHANNEL_SNAPSHOTS.length; i++) {
-			if (CHANNEL_SNAPSHOTS[i].getPV().indexOf(":xAvg") > -1) {
-				double[] val = CHANNEL_SNAPSHOTS[i].getValue();
-				bpmXMap.put(CHANNEL_SNAPSHOTS[i].getPV(), new Double(val[0]));
-			}
-		}
-
-		return bpmXMap;
+		return getScalarValueMap( CHANNEL_SNAPSHOTS, ":xAvg" );
 	}
 
 	
 	/** Get the value map for vertical BPM signals */
 	public Map<String, Double> getBPMYMap() {
-		Map<String, Double> bpmYMap = new HashMap<String, Double>();
-
-		for (int i = 0; i < CHANNEL_SNAPSHOTS.length; i++) {
-			if (CHANNEL_SNAPSHOTS[i].getPV().indexOf(":yAvg") > -1) {
-				double[] val = CHANNEL_SNAPSHOTS[i].getValue();
-				bpmYMap.put(CHANNEL_SNAPSHOTS[i].getPV(), new Double(val[0]));
-			}
-		}
-
-		return bpmYMap;
+		return getScalarValueMap( CHANNEL_SNAPSHOTS, ":yAvg" );
 	}
 
 	
 	/** Get the value map for BPM amplitude */
 	public Map<String, Double> getBPMAmpMap() {
-		final Map<String, Double> bpmYMap = new HashMap<String, Double>();
-
-		for (int i = 0; i < CHANNEL_SNAPSHOTS.length; i++) {
-			if (CHANNEL_SNAPSHOTS[i].getPV().indexOf(":amplitudeAvg") > -1) {
-				double[] val = CHANNEL_SNAPSHOTS[i].getValue();
-				bpmYMap.put(CHANNEL_SNAPSHOTS[i].getPV(), new Double(val[0]));
-			}
-		}
-
-		return bpmYMap;
+		return getScalarValueMap( CHANNEL_SNAPSHOTS, ":amplitudeAvg" );
 	}
 	
 	
 	/** Get the value map for BPM phase */
 	public Map<String, Double> getBPMPhaseMap() {
-		final Map<String, Double> bpmYMap = new HashMap<String, Double>();
+		return getScalarValueMap( CHANNEL_SNAPSHOTS, ":phaseAvg" );
+	}
+	
+	
+	/**
+	 * Get the scalar values of the channel snapshots whose PVs contain the specified text
+	 * @param channelSnapshots the channel snapshots to search
+	 * @param pvText text which the PVs must contain
+	 * @return map of scalar values keyed by PV
+	 */
+	static private Map<String, Double> getScalarValueMap( final ChannelSnapshot[] channelSnapshots, final String pvText ) {
+		final Map<String, Double> pvMap = new HashMap<String, Double>();
 
-		for (int i = 0; i < CHANNEL_SNAPSHOTS.length; i++) {
-			if (CHANNEL_SNAPSHOTS[i].getPV().indexOf(":phaseAvg") > -1) {
-				double[] val = CHANNEL_SNAPSHOTS[i].getValue();
-				bpmYMap.put(CHANNEL_SNAPSHOTS[i].getPV(), new Double(val[0]));
+		for ( final ChannelSnapshot channelSnapshot : channelSnapshots ) {
+			final String pv = channelSnapshot.getPV();
+			if ( pv.contains( pvText ) ) {
+				pvMap.put( pv, channelSnapshot.getValue()[0] );
 			}
 		}
 
-		return bpmYMap;
+		return pvMap;
 	}
 	
 	
@@ -265,6 +348,7 @@ public class PVLoggerDataSource {
 		for ( final Electromagnet magnet : magnets ) {
 			scenario.removeModelInput( magnet, ElectromagnetPropertyAccessor.PROPERTY_FIELD );
 		}
+		if ( scenario == _syncedScenario )  _syncedScenario = null;
 		
 		try {
 			scenario.resync();
@@ -396,12 +480,58 @@ public class PVLoggerDataSource {
 
 		try {
 			scenario.resync();
+			_syncedScenario = scenario;
+			_syncedMagnets = magnets;
 		} catch (SynchronizationException e) {
+			_syncedScenario = null;
 			System.out.println(e);
 		}
 
 		return scenario;
 	}
+	
+	
+	/**
+	 * Update the model lattice to the specified PV Logger snapshot resynchronizing only the elements of magnets whose logged fields changed.
+	 * If the scenario was not the last one set from this data source, the full model source is set instead. This makes replaying
+	 * a sequence of snapshots through the same scenario much cheaper than calling updatePVLoggerId() and setModelSource() for each one.
+	 * @param id the PV Logger ID
+	 * @param sequence accelerator sequence
+	 * @param scenario Model Scenario object
+	 * @return the scenario updated with the lattice from PV logger data
+	 */
+	public Scenario updateModelSource( final long id, final AcceleratorSeq sequence, final Scenario scenario ) {
+		if ( scenario != _syncedScenario || sequence != _sequence || _loggedSnapshot == null ) {
+			updatePVLoggerId( id );
+			return setModelSource( sequence, scenario );
+		}
+		
+		final long previousID = _loggedSnapshot.ID;
+		updatePVLoggerId( id );
+		if ( getChangedChannelSnapshots( previousID, id ).isEmpty() )  return scenario;
+		
+		final List<AcceleratorNode> changedMagnets = new ArrayList<AcceleratorNode>();
+		for ( final Electromagnet magnet : _syncedMagnets ) {
+			final double field = getLoggedField( magnet );
+			final ModelInput input = scenario.getModelInput( magnet, ElectromagnetPropertyAccessor.PROPERTY_FIELD );
+			if ( input == null || input.getDoubleValue() != field ) {
+				scenario.setModelInput( magnet, ElectromagnetPropertyAccessor.PROPERTY_FIELD, field );
+				changedMagnets.add( magnet );
+			}
+		}
+		
+		if ( !changedMagnets.isEmpty() ) {
+			try {
+				scenario.resyncFromCache( changedMagnets );
+			}
+			catch ( SynchronizationException exception ) {
+				_syncedScenario = null;		// force a full resync on the next update
+				exception.printStackTrace();
+			}
+		}
+		
+		return scenario;
+	}
 
 	public void setAccelSequence(AcceleratorSeq seq) {
 		_sequence = seq;
@@ -464,4 +594,49 @@ public class PVLoggerDataSource {
 	public ChannelSnapshot[] getChannelSnapshots() {
 		return CHANNEL_SNAPSHOTS;
 	}
+	
+	
+	
+	/** Machine snapshot decoded for fast lookup of its channel snapshots and magnet values */
+	static private class LoggedSnapshot {
+		/** PV Logger ID */
+		final public long ID;
+		
+		/** channel snapshots */
+		final public ChannelSnapshot[] CHANNEL_SNAPSHOTS;
+		
+		/** index of each PV within the channel snapshots (may be shared by other snapshots of the same group) */
+		final private Map<String,Integer> PV_INDEX;
+		
+		/** magnet values keyed by PV */
+		final public Map<String,Double> MAGNET_FIELDS;
+		
+		/** magnet power supply values keyed by PV */
+		final public Map<String,Double> MAGNET_SUPPLY_VALUES;
+		
+		
+		/** Constructor */
+		public LoggedSnapshot( final long id, final ChannelSnapshot[] channelSnapshots, final Map<String,Integer> pvIndex ) {
+			ID = id;
+			CHANNEL_SNAPSHOTS = channelSnapshots;
+			PV_INDEX = pvIndex;
+			MAGNET_FIELDS = getScalarValueMap( channelSnapshots, "Mag:" );
+			MAGNET_SUPPLY_VALUES = getScalarValueMap( channelSnapshots, "Mag:PS_Q" );
+		}
+		
+		
+		/** get the channel snapshot for the specified PV or null if there is none */
+		public ChannelSnapshot getChannelSnapshot( final String pv ) {
+			// the shared index normally matches but verify it since a group's channels may change over time
+			final Integer index = PV_INDEX.get( pv );
+			if ( index != null && index < CHANNEL_SNAPSHOTS.length && CHANNEL_SNAPSHOTS[index].getPV().equals( pv ) ) {
+				return CHANNEL_SNAPSHOTS[index];
+			}
+			
+			for ( final ChannelSnapshot channelSnapshot : CHANNEL_SNAPSHOTS ) {
+				if ( channelSnapshot.getPV().equals( pv ) )  return channelSnapshot;
+			}
+			return null;
+		}
+	}
 }
@@ -0,0 +1,223 @@
+//
+//  TestLocalSnapshotStore.java
+//  xal
+//
+
+package xal.service.pvlogger;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.util.*;
+
+import org.junit.*;
+
+import xal.ca.Timestamp;
+
+
+/** test appending, reading, compacting, reopening and recovering the local snapshot store */
+public class TestLocalSnapshotStore {
+	/** milliseconds in a day */
+	final static private long DAY = 24L * 3600L * 1000L;
+
+	/** directory of the store under test */
+	private File _directory;
+
+
+	@Before
+	public void createDirectory() throws Exception {
+		_directory = File.createTempFile( "LocalSnapshotStore", "" );
+		_directory.delete();
+	}
+
+
+	@After
+	public void deleteDirectory() {
+		final File[] files = _directory.listFiles();
+		if ( files != null ) {
+			for ( final File file : files )  file.delete();
+		}
+		_directory.delete();
+	}
+
+
+	@Test
+	public void testAppendAndRead() throws Exception {
+		// small segments so the records span several sealed segments as well as the active one
+		final LocalSnapshotStore store = new LocalSnapshotStore( _directory, 512 );
+		store.defineChannelGroup( "G", "test", "test group", new String[] { "PV:A", "PV:B" }, 1.0, 0.0 );
+
+		final long now = System.currentTimeMillis();
+		final List<MachineSnapshot> published = new ArrayList<MachineSnapshot>();
+		for ( int index = 0 ; index < 20 ; index++ ) {
+			published.addAll( store.publish( Collections.singletonList( newSnapshot( "G", now + 1000 * index, index ) ) ) );
+			// read back every published snapshot including those appended after their segment was mapped
+			for ( final MachineSnapshot snapshot : published ) {
+				assertSnapshotValues( store.fetchMachineSnapshot( snapshot.getId() ), (int)( snapshot.getId() - published.get( 0 ).getId() ) );
+			}
+		}
+		Assert.assertEquals( 20, store.getSnapshotCount() );
+		Assert.assertTrue( new File( _directory, "segment-00000002.pvs" ).exists() );
+
+		final MachineSnapshot[] range = store.fetchMachineSnapshotsInRange( "G", new Date( now + 4500 ), new Date( now + 9500 ) );
+		Assert.assertEquals( 5, range.length );
+		Assert.assertEquals( published.get( 5 ).getId(), range[0].getId() );
+
+		final ChannelSnapshot channelSnapshot = store.fetchChannelSnapshot( published.get( 3 ).getId(), "PV:B" );
+		Assert.assertArrayEquals( new double[] { 3.0, 4.0, 5.0 }, channelSnapshot.getValue(), 0.0 );
+		store.close();
+
+		// reopen and read everything back
+		final LocalSnapshotStore reopenedStore = new LocalSnapshotStore( _directory, 512 );
+		Assert.assertEquals( 20, reopenedStore.getSnapshotCount() );
+		for ( int index = 0 ; index < published.size() ; index++ ) {
+			assertSnapshotValues( reopenedStore.fetchMachineSnapshot( published.get( index ).getId() ), index );
+		}
+		reopenedStore.close();
+	}
+
+
+	@Test
+	public void testCompactionKeepsIDsMonotonic() throws Exception {
+		final LocalSnapshotStore store = new LocalSnapshotStore( _directory, 1024 );
+		store.defineChannelGroup( "G", "test", "test group", new String[] { "PV:A", "PV:B" }, 1.0, 1.0 );
+
+		// the snapshots with the highest IDs are old enough to expire
+		final long now = System.currentTimeMillis();
+		final List<MachineSnapshot> recent = store.publish( Arrays.asList( newSnapshot( "G", now, 0 ), newSnapshot( "G", now + 1, 1 ) ) );
+		final List<MachineSnapshot> expired = store.publish( Arrays.asList( newSnapshot( "G", now - 3 * DAY, 2 ), newSnapshot( "G", now - 2 * DAY, 3 ) ) );
+		final long highestID = expired.get( 1 ).getId();
+		Assert.assertTrue( highestID > recent.get( 1 ).getId() );
+
+		Assert.assertEquals( 2, store.compact() );
+		Assert.assertEquals( 2, store.getSnapshotCount() );
+		Assert.assertNull( store.fetchMachineSnapshot( highestID ) );
+		assertSnapshotValues( store.fetchMachineSnapshot( recent.get( 1 ).getId() ), 1 );
+
+		final long nextID = store.publish( Collections.singletonList( newSnapshot( "G", now + 2, 4 ) ) ).get( 0 ).getId();
+		Assert.assertTrue( nextID > highestID );
+
+		// compact again so the newest snapshot on disk is below the next ID and check that reopening does not reuse IDs either
+		store.publish( Collections.singletonList( newSnapshot( "G", now - 5 * DAY, 5 ) ) );
+		store.compact();
+		store.close();
+
+		final LocalSnapshotStore reopenedStore = new LocalSnapshotStore( _directory, 1024 );
+		Assert.assertEquals( 3, reopenedStore.getSnapshotCount() );
+		assertSnapshotValues( reopenedStore.fetchMachineSnapshot( nextID ), 4 );
+		final long reopenedID = reopenedStore.publish( Collections.singletonList( newSnapshot( "G", now + 3, 6 ) ) ).get( 0 ).getId();
+		Assert.assertTrue( reopenedID > nextID + 1 );
+		reopenedStore.close();
+	}
+
+
+	@Test
+	public void testCorruptRecordHeaderIsSkipped() throws Exception {
+		// small segments so the corrupt record lies in a sealed segment which is indexed without verifying checksums
+		final List<MachineSnapshot> published = publishSnapshots( 512, 8 );
+		final File segmentFile = new File( _directory, "segment-00000001.pvs" );
+		final List<Long> offsets = findRecordOffsets( segmentFile );
+		Assert.assertTrue( offsets.size() >= 3 );
+
+		// give the type of the second record a length far beyond the record
+		writeInt( segmentFile, offsets.get( 1 ) + 24, Integer.MAX_VALUE - 1 );
+
+		final LocalSnapshotStore store = new LocalSnapshotStore( _directory, 512 );
+		Assert.assertEquals( published.size() - 1, store.getSnapshotCount() );
+		Assert.assertNull( store.fetchMachineSnapshot( published.get( 1 ).getId() ) );
+		for ( int index = 0 ; index < published.size() ; index++ ) {
+			if ( index != 1 )  assertSnapshotValues( store.fetchMachineSnapshot( published.get( index ).getId() ), index );
+		}
+		store.close();
+	}
+
+
+	@Test
+	public void testCorruptRecordBodyIsSkipped() throws Exception {
+		// one segment so the corrupt record lies in the active segment whose checksums are verified
+		final List<MachineSnapshot> published = publishSnapshots( 1 << 20, 5 );
+		final File segmentFile = new File( _directory, "segment-00000001.pvs" );
+		final List<Long> offsets = findRecordOffsets( segmentFile );
+		Assert.assertEquals( 5, offsets.size() );
+
+		// corrupt the channel values of the third record which leaves its header readable but breaks its checksum
+		final long valuesOffset = offsets.get( 3 ) - 16;
+		writeInt( segmentFile, valuesOffset, 0x7FF00001 );
+
+		final LocalSnapshotStore store = new LocalSnapshotStore( _directory, 1 << 20 );
+		Assert.assertEquals( 4, store.getSnapshotCount() );
+		Assert.assertNull( store.fetchMachineSnapshot( published.get( 2 ).getId() ) );
+		assertSnapshotValues( store.fetchMachineSnapshot( published.get( 3 ).getId() ), 3 );
+		assertSnapshotValues( store.fetchMachineSnapshot( published.get( 4 ).getId() ), 4 );
+
+		// the records after the corrupt one were kept, so appending continues after them
+		final MachineSnapshot appended = store.publish( Collections.singletonList( newSnapshot( "G", System.currentTimeMillis(), 5 ) ) ).get( 0 );
+		store.close();
+
+		final LocalSnapshotStore reopenedStore = new LocalSnapshotStore( _directory, 1 << 20 );
+		Assert.assertEquals( 5, reopenedStore.getSnapshotCount() );
+		assertSnapshotValues( reopenedStore.fetchMachineSnapshot( appended.getId() ), 5 );
+		reopenedStore.close();
+	}
+
+
+	/** publish the specified number of snapshots one at a time to a new store and close it */
+	private List<MachineSnapshot> publishSnapshots( final long maxSegmentSize, final int count ) throws Exception {
+		final LocalSnapshotStore store = new LocalSnapshotStore( _directory, maxSegmentSize );
+		store.defineChannelGroup( "G", "test", "test group", new String[] { "PV:A", "PV:B" }, 1.0, 0.0 );
+
+		final long now = System.currentTimeMillis();
+		final List<MachineSnapshot> published = new ArrayList<MachineSnapshot>();
+		for ( int index = 0 ; index < count ; index++ ) {
+			published.addAll( store.publish( Collections.singletonList( newSnapshot( "G", now + 1000 * index, index ) ) ) );
+		}
+		store.close();
+		return published;
+	}
+
+
+	/** find the offsets of the records in the segment file by following the record lengths */
+	static private List<Long> findRecordOffsets( final File segmentFile ) throws Exception {
+		final List<Long> offsets = new ArrayList<Long>();
+		try ( final RandomAccessFile file = new RandomAccessFile( segmentFile, "r" ) ) {
+			long offset = 0;
+			while ( offset < file.length() ) {
+				offsets.add( offset );
+				file.seek( offset + 4 );
+				offset += 8 + file.readInt() + 8;
+			}
+		}
+		return offsets;
+	}
+
+
+	/** overwrite the int at the specified offset of the file */
+	static private void writeInt( final File segmentFile, final long offset, final int value ) throws Exception {
+		try ( final RandomAccessFile file = new RandomAccessFile( segmentFile, "rw" ) ) {
+			file.seek( offset );
+			file.writeInt( value );
+		}
+	}
+
+
+	/** make a machine snapshot whose channel values are derived from the seed */
+	static private MachineSnapshot newSnapshot( final String type, final long time, final int seed ) {
+		final Timestamp timestamp = new Timestamp( BigDecimal.valueOf( time, 3 ) );
+		final ChannelSnapshot[] channelSnapshots = {
+			new ChannelSnapshot( "PV:A", new double[] { seed }, 0, 0, timestamp ),
+			new ChannelSnapshot( "PV:B", new double[] { seed, seed + 1, seed + 2 }, 0, 0, timestamp )
+		};
+		return new MachineSnapshot( 0, type, new Date( time ), "seed " + seed, channelSnapshots );
+	}
+
+
+	/** check that the snapshot holds the values of the snapshot made with the specified seed */
+	static private void assertSnapshotValues( final MachineSnapshot snapshot, final int seed ) {
+		Assert.assertNotNull( snapshot );
+		Assert.assertEquals( "seed " + seed, snapshot.getComment() );
+		final ChannelSnapshot[] channelSnapshots = snapshot.getChannelSnapshots();
+		Assert.assertEquals( 2, channelSnapshots.length );
+		Assert.assertArrayEquals( new double[] { seed }, channelSnapshots[0].getValue(), 0.0 );
+		Assert.assertArrayEquals( new double[] { seed, seed + 1, seed + 2 }, channelSnapshots[1].getValue(), 0.0 );
+	}
+}
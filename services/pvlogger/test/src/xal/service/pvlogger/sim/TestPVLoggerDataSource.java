@@ -0,0 +1,96 @@
+//
+//  TestPVLoggerDataSource.java
+//  xal
+//
+
+package xal.service.pvlogger.sim;
+
+import java.io.File;
+import java.math.BigDecimal;
+import java.util.*;
+
+import org.junit.*;
+
+import xal.ca.Timestamp;
+import xal.service.pvlogger.*;
+
+
+/** test comparing and switching between cached snapshots of the PV Logger data source */
+public class TestPVLoggerDataSource {
+	/** directory of the local snapshot store */
+	private File _directory;
+
+	/** local snapshot store backing the PV Logger */
+	private LocalSnapshotStore _store;
+
+
+	@Before
+	public void createStore() throws Exception {
+		_directory = File.createTempFile( "PVLoggerDataSource", "" );
+		_directory.delete();
+		_store = new LocalSnapshotStore( _directory, 1 << 20 );
+		_store.defineChannelGroup( "G", "test", "test group", new String[] { "Q1:Mag:B", "Q2:Mag:B", "BCM:currentMax" }, 1.0, 0.0 );
+	}
+
+
+	@After
+	public void deleteStore() {
+		_store.close();
+		final File[] files = _directory.listFiles();
+		if ( files != null ) {
+			for ( final File file : files )  file.delete();
+		}
+		_directory.delete();
+	}
+
+
+	@Test
+	public void testChangedChannelSnapshots() throws Exception {
+		final long referenceID = publish( 1.0, 2.0, 20.0 );
+		final long changedID = publish( 1.0, 2.5, 20.0 );
+
+		final PVLoggerDataSource dataSource = new PVLoggerDataSource( referenceID, new PVLogger( _store ) );
+		Assert.assertTrue( dataSource.getChangedChannelSnapshots( referenceID, referenceID ).isEmpty() );
+
+		final List<ChannelSnapshot> changedSnapshots = dataSource.getChangedChannelSnapshots( referenceID, changedID );
+		Assert.assertEquals( 1, changedSnapshots.size() );
+		Assert.assertEquals( "Q2:Mag:B", changedSnapshots.get( 0 ).getPV() );
+		Assert.assertArrayEquals( new double[] { 2.5 }, changedSnapshots.get( 0 ).getValue(), 0.0 );
+	}
+
+
+	@Test
+	public void testSwitchingBetweenCachedSnapshots() throws Exception {
+		final long firstID = publish( 1.0, 2.0, 20.0 );
+		final long secondID = publish( 1.5, 2.0, 25.0 );
+
+		final PVLoggerDataSource dataSource = new PVLoggerDataSource( firstID, new PVLogger( _store ) );
+		dataSource.setSnapshotCacheCapacity( 2 );
+		for ( int pass = 0 ; pass < 3 ; pass++ ) {
+			dataSource.updatePVLoggerId( secondID );
+			Assert.assertEquals( secondID, dataSource.getPVLoggerId() );
+			Assert.assertArrayEquals( new double[] { 1.5 }, dataSource.getChannelSnapshot( "Q1:Mag:B" ).getValue(), 0.0 );
+			Assert.assertEquals( 25.0, dataSource.getBeamCurrent( "BCM" ), 0.0 );
+
+			dataSource.updatePVLoggerId( firstID );
+			Assert.assertEquals( firstID, dataSource.getPVLoggerId() );
+			Assert.assertArrayEquals( new double[] { 1.0 }, dataSource.getChannelSnapshot( "Q1:Mag:B" ).getValue(), 0.0 );
+			Assert.assertEquals( 20.0, dataSource.getBeamCurrent( "BCM" ), 0.0 );
+		}
+		Assert.assertNull( dataSource.getChannelSnapshot( "Q3:Mag:B" ) );
+	}
+
+
+	/** publish a snapshot with the specified channel values and return its ID */
+	private long publish( final double q1Field, final double q2Field, final double current ) throws Exception {
+		final long time = System.currentTimeMillis();
+		final Timestamp timestamp = new Timestamp( BigDecimal.valueOf( time, 3 ) );
+		final ChannelSnapshot[] channelSnapshots = {
+			new ChannelSnapshot( "Q1:Mag:B", new double[] { q1Field }, 0, 0, timestamp ),
+			new ChannelSnapshot( "Q2:Mag:B", new double[] { q2Field }, 0, 0, timestamp ),
+			new ChannelSnapshot( "BCM:currentMax", new double[] { current }, 0, 0, timestamp )
+		};
+		final MachineSnapshot snapshot = new MachineSnapshot( 0, "G", new Date( time ), "test", channelSnapshots );
+		return _store.publish( Collections.singletonList( snapshot ) ).get( 0 ).getId();
+	}
+}